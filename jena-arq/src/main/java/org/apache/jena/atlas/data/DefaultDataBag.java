@@ -85,9 +85,10 @@ public class DefaultDataBag<E> extends AbstractDataBag<E>
         if (finishedAdding)
             throw new AtlasException("DefaultDataBag: Cannot add any more items after the writing phase is complete.");
         
-        if (!policy.isThresholdExceeded())
+        if (!spilled && !policy.isThresholdExceeded())
         {
             memory.add(item);
+            policy.increment(item);
         }
         else
         {
@@ -95,13 +96,14 @@ public class DefaultDataBag<E> extends AbstractDataBag<E>
             {
                 spill();
                 spilled = true;
+                // Nothing is held in memory now.
+                policy.reset();
             }
             
             // Write to disk
             serializer.send(item);
         }
         
-        policy.increment(item);
         size++;
     }
     
@@ -142,7 +144,7 @@ public class DefaultDataBag<E> extends AbstractDataBag<E>
     @Override
     public void flush()
     {
-        if (policy.isThresholdExceeded() && (null != serializer))
+        if (spilled && (null != serializer))
         {
             serializer.flush();
         }
@@ -159,7 +161,7 @@ public class DefaultDataBag<E> extends AbstractDataBag<E>
         closeWriter();
         
         // Create a new reader
-        if (policy.isThresholdExceeded())
+        if (spilled)
         {
             File spillFile = getSpillFiles().get(0);
             
@@ -189,10 +191,8 @@ public class DefaultDataBag<E> extends AbstractDataBag<E>
     {
         if (!finishedAdding)
         {
-            if (policy.isThresholdExceeded())
+            if (spilled)
             {
-                // It is possible for "serializer" and "out" to be null even if the policy is exceeded.
-                // This can happen if nothing was ever added (i.e. a zero count policy)
                 if (null != serializer)
                 {
                     serializer.close();
@@ -214,6 +214,8 @@ public class DefaultDataBag<E> extends AbstractDataBag<E>
             closeWriter();
             closeIterators();
             deleteSpillFiles();
+            // Release any memory accounted to the policy.
+            policy.reset();
             
             memory = null;
             closed = true;
@@ -296,6 +296,8 @@ public class SortedDataBag<E> extends AbstractDataBag<E> {
         if (!closed) {
             closeIterators();
             deleteSpillFiles();
+            // Release any memory accounted to the policy.
+            policy.reset();
 
             memory = null;
             closed = true;
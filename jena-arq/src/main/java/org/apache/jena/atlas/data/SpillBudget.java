@@ -0,0 +1,103 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.atlas.data;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.jena.query.ARQ;
+import org.apache.jena.sparql.ARQConstants;
+import org.apache.jena.sparql.util.Context;
+
+/**
+ * A count of items held in memory, shared by all the operations of one execution
+ * that can spill to disk. See {@link ARQ#spillToDiskBudget}.
+ * <p>
+ * Operations charge the budget through a {@link ThresholdPolicyBudget}.
+ */
+public class SpillBudget
+{
+    private final long limit;
+    private final AtomicLong used = new AtomicLong(0);
+
+    public SpillBudget(long limit)
+    {
+        if (limit < 0)
+        {
+            throw new IllegalArgumentException("Budget must be greater than or equal to zero");
+        }
+        this.limit = limit;
+    }
+
+    /**
+     * Get the budget for the execution using this context, creating it on first use.
+     * Returns null if {@link ARQ#spillToDiskBudget} is not set.
+     */
+    public static SpillBudget get(Context context)
+    {
+        long limit = context.getLong(ARQ.spillToDiskBudget, -1);
+        if (limit < 0)
+        {
+            return null;
+        }
+        synchronized (context)
+        {
+            SpillBudget budget = context.get(ARQConstants.sysSpillBudget);
+            if (budget == null)
+            {
+                budget = new SpillBudget(limit);
+                context.set(ARQConstants.sysSpillBudget, budget);
+            }
+            return budget;
+        }
+    }
+
+    public void charge(long n)
+    {
+        used.addAndGet(n);
+    }
+
+    public void release(long n)
+    {
+        used.addAndGet(-n);
+    }
+
+    public boolean isExceeded()
+    {
+        return used.get() >= limit;
+    }
+
+    public long getLimit()
+    {
+        return limit;
+    }
+
+    /**
+     * Returns the number of items currently charged to this budget.
+     */
+    public long getUsed()
+    {
+        return used.get();
+    }
+
+    @Override
+    public String toString()
+    {
+        return "SpillBudget[" + used.get() + "/" + limit + "]";
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.atlas.data;
+
+/**
+ * A threshold policy that charges each item to a {@link SpillBudget} shared with
+ * other operations, and optionally also limits the number of items for this one
+ * operation.
+ * <p>
+ * Once the threshold is exceeded, it stays exceeded until {@link #reset()}, because
+ * the caller will then write further items to disk; those are not charged. The
+ * items charged so far stay charged until {@code reset()}, which the caller calls
+ * when it no longer holds them in memory.
+ * <p>
+ * So that an operation started after the budget has been used up does not write
+ * very small spill files, each operation may keep up to {@link #MinimumCount} items
+ * (or the whole budget, if smaller) regardless of the use by other operations.
+ */
+public class ThresholdPolicyBudget<T> implements ThresholdPolicy<T>
+{
+    public static final long MinimumCount = 1024;
+
+    protected final SpillBudget budget;
+    protected final long minimum;
+    protected final long threshold;
+    protected long count;
+    protected boolean exceeded;
+
+    /**
+     * @param budget The shared budget.
+     * @param threshold The limit for this operation alone, or -1 for none.
+     */
+    public ThresholdPolicyBudget(SpillBudget budget, long threshold)
+    {
+        this.budget = budget;
+        this.threshold = threshold;
+        this.minimum = Math.min(MinimumCount, budget.getLimit());
+        this.count = 0;
+        this.exceeded = false;
+    }
+
+    @Override
+    public void increment(T item)
+    {
+        if (exceeded)
+        {
+            // Items are going to disk.
+            return;
+        }
+        count++;
+        budget.charge(1);
+    }
+
+    @Override
+    public boolean isThresholdExceeded()
+    {
+        if (!exceeded && ((threshold >= 0 && count >= threshold) || (count >= minimum && budget.isExceeded())))
+        {
+            exceeded = true;
+        }
+        return exceeded;
+    }
+
+    @Override
+    public void reset()
+    {
+        budget.release(count);
+        count = 0;
+        exceeded = false;
+    }
+
+    /**
+     * Returns the number of items charged to the budget by this policy.
+     */
+    public long getCount()
+    {
+        return count;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "ThresholdPolicyBudget [threshold=" + threshold + ", count=" + count + ", " + budget + "]";
+    }
+}
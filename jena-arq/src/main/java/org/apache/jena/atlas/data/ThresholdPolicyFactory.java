@@ -65,12 +65,27 @@ public class ThresholdPolicyFactory
     }
 
     /**
-     * A threshold policy based on the {@link org.apache.jena.query.ARQ#spillToDiskThreshold} symbol in the given Context.
-     * If the symbol is not set, then the {@link #never()} policy is used by default.
+     * A threshold policy that charges a budget shared with other operations.
+     * @param threshold The limit for this operation alone, or -1 for none.
+     */
+    public static <E> ThresholdPolicy<E> budget(SpillBudget budget, long threshold)
+    {
+        return new ThresholdPolicyBudget<>(budget, threshold) ;
+    }
+
+    /**
+     * A threshold policy based on the {@link org.apache.jena.query.ARQ#spillToDiskThreshold} and
+     * {@link org.apache.jena.query.ARQ#spillToDiskBudget} symbols in the given Context.
+     * If neither symbol is set, then the {@link #never()} policy is used by default.
      */
     public static <E> ThresholdPolicy<E> policyFromContext(Context context)
     {
         long threshold = context.getLong(ARQ.spillToDiskThreshold, defaultThreshold) ;
+        SpillBudget budget = SpillBudget.get(context) ;
+        if ( budget != null )
+        {
+            return budget(budget, threshold) ;
+        }
         if ( threshold >= 0 )
         {
             return count(threshold);
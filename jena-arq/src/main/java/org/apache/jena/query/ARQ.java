@@ -205,6 +205,48 @@ public class ARQ
      */
     public static final Symbol hideNonDistiguishedVariables = SystemARQ.allocSymbol("hideNonDistiguishedVariables") ;
 
+    /**
+     * Context key to execute queries a batch of rows at a time where possible.
+     * Ignored if the context sets its own {@code OpExecutorFactory}.
+     * @see org.apache.jena.sparql.engine.batch.OpExecutorBatch
+     */
+    public static final Symbol batchExecution = SystemARQ.allocSymbol("batchExecution") ;
+
+    /**
+     * Context key for the number of rows in a batch when {@link #batchExecution} is used.
+     * Default 1024.
+     */
+    public static final Symbol batchExecutionSize = SystemARQ.allocSymbol("batchExecutionSize") ;
+
+    /**
+     * Context key to build and probe hash joins (inner and left) using several threads.
+     * Default false.
+     * @see #parallelism
+     */
+    public static final Symbol parallelHashJoin = SystemARQ.allocSymbol("parallelHashJoin") ;
+
+    /**
+     * Context key to evaluate GROUP BY and aggregates using several threads.
+     * Default false. Not used when {@link #spillToDiskThreshold} or
+     * {@link #spillToDiskBudget} is set.
+     * @see #parallelism
+     */
+    public static final Symbol parallelGroupBy = SystemARQ.allocSymbol("parallelGroupBy") ;
+
+    /**
+     * Context key for the maximum number of tasks one operator runs at once when
+     * {@link #parallelHashJoin} or {@link #parallelGroupBy} is set.
+     * Default: the number of processors.
+     */
+    public static final Symbol parallelism = SystemARQ.allocSymbol("parallelism") ;
+
+    /**
+     * Context key to bypass the plan cache of the query engine factory, if it has one,
+     * by setting it to false.
+     * @see org.apache.jena.sparql.engine.PlanCache
+     */
+    public static final Symbol planCache = SystemARQ.allocSymbol("planCache") ;
+
     /**
      * Use the SAX parser for XML result sets.  The default is to use StAX for
      * full streaming of XML results.  The SAX parser takes a copy of the result set
@@ -275,7 +317,7 @@ public class ARQ
      * choosing the value.
      * <p/>
      * Operations currently affected by this symbol: <br>
-     * ORDER BY, SPARQL Update, CONSTRUCT (optionally)
+     * ORDER BY, SPARQL Update, CONSTRUCT (optionally), hash joins, GROUP BY
      * <p/>
      * TODO: Give a reasonable suggested value here.  10,000?
      * <p/>
@@ -285,6 +327,17 @@ public class ARQ
     // Sort: DISTINCT, merge joins<br>
     // Hash table: GROUP BY, MINUS, SERVICE, VALUES, and hash joins <br>
     public static final Symbol spillToDiskThreshold = SystemARQ.allocSymbol("spillToDiskThreshold") ;
+
+    /**
+     * A Long value that limits the total number of bindings held in memory, across all
+     * the operators of one query execution, by the operations that can spill to
+     * temporary disk files (see {@link #spillToDiskThreshold}). Once the budget is used
+     * up, further operations write to disk. Default -1, meaning no budget.
+     * <p/>
+     * This can be set with or without {@link #spillToDiskThreshold}. When both are set,
+     * an operation spills when either limit is reached.
+     */
+    public static final Symbol spillToDiskBudget = SystemARQ.allocSymbol("spillToDiskBudget") ;
     
     // Optimizer controls.
     
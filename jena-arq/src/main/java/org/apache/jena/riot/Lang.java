@@ -80,6 +80,9 @@ public class Lang
 
     //** The RDF syntax "RDF Thrift" : see http://jena.apache.org/documentation/io */ 
     public static Lang RDFTHRIFT ;
+
+    /** The RDF syntax "RDF Thrift" with dictionary encoding of terms */
+    public static Lang RDFTHRIFT_DICT ;
     
     /** "CSV" - Used in various ways. */
     public static Lang CSV ;
@@ -19,6 +19,7 @@
 package org.apache.jena.riot ;
 
 import static org.apache.jena.riot.RDFLanguages.THRIFT ;
+import static org.apache.jena.riot.RDFLanguages.THRIFT_DICT ;
 
 import java.util.Objects;
 
@@ -40,6 +41,8 @@ public class RDFFormat {
     public static final RDFFormatVariant UTF8           = new RDFFormatVariant("utf-8") ;
     /** Variant for RDF Thrift using values */
     public static final RDFFormatVariant ValueEncoding  = new RDFFormatVariant("Value") ;
+    /** Variant for binary formats with compression */
+    public static final RDFFormatVariant COMPRESSED     = new RDFFormatVariant("compressed") ;
 
     /** Turtle - pretty form */
     public static final RDFFormat        TURTLE_PRETTY  = new RDFFormat(Lang.TURTLE, PRETTY) ;
@@ -125,6 +128,7 @@ public class RDFFormat {
     private static final RDFFormatVariant FLATTEN_FLAT       = new JSONLDVariant("flatten flat", false, JSONLDVariant.JSONLD_FORMAT.FLATTEN) ;
     private static final RDFFormatVariant FRAME_PRETTY       = new JSONLDVariant("frame pretty", true, JSONLDVariant.JSONLD_FORMAT.FRAME) ;
     private static final RDFFormatVariant FRAME_FLAT         = new JSONLDVariant("frame flat", false, JSONLDVariant.JSONLD_FORMAT.FRAME) ;
+    private static final RDFFormatVariant EXPAND_STREAM      = new JSONLDVariant("expand stream", false, JSONLDVariant.JSONLD_FORMAT.EXPAND) ;
 
     public static final RDFFormat        JSONLD_EXPAND_PRETTY   = new RDFFormat(Lang.JSONLD, EXPAND_PRETTY) ;
     public static final RDFFormat        JSONLD_EXPAND_FLAT     = new RDFFormat(Lang.JSONLD, EXPAND_FLAT) ;
@@ -134,6 +138,8 @@ public class RDFFormat {
     public static final RDFFormat        JSONLD_FLATTEN_FLAT    = new RDFFormat(Lang.JSONLD, FLATTEN_FLAT) ;
     public static final RDFFormat        JSONLD_FRAME_PRETTY    = new RDFFormat(Lang.JSONLD, FRAME_PRETTY) ;
     public static final RDFFormat        JSONLD_FRAME_FLAT      = new RDFFormat(Lang.JSONLD, FRAME_FLAT) ;
+    /** JSON-LD in expanded form, written by streaming, one node object per subject, without building the document in memory. */
+    public static final RDFFormat        JSONLD_EXPAND_STREAM   = new RDFFormat(Lang.JSONLD, EXPAND_STREAM) ;
 
     // redefine following ones in a way that preserve what they were doing in previous version
     public static final RDFFormat        JSONLD_PRETTY  = JSONLD_COMPACT_PRETTY ;
@@ -175,6 +181,21 @@ public class RDFFormat {
      */
     public static final RDFFormat RDF_THRIFT_VALUES     = new RDFFormat(THRIFT, ValueEncoding) ;
 
+    /**
+     * RDF Thrift with dictionary encoding of terms. A repeated term is written
+     * as a reference to its earlier occurrence, and IRIs share namespaces. Like
+     * {@link #RDF_THRIFT}, it is a faithful representation of the RDF written.
+     *
+     * @see #RDF_THRIFT_DICT_COMPRESSED
+     */
+    public static final RDFFormat RDF_THRIFT_DICT       = new RDFFormat(THRIFT_DICT) ;
+
+    /**
+     * {@link #RDF_THRIFT_DICT} with the encoded rows compressed (deflate, fast
+     * setting). Readers detect the compression from the data.
+     */
+    public static final RDFFormat RDF_THRIFT_DICT_COMPRESSED = new RDFFormat(THRIFT_DICT, COMPRESSED) ;
+
     /**
      * The "null" output format (a sink that prints nothing, usually quite
      * efficiently)
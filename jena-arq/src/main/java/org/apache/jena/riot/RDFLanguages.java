@@ -30,6 +30,7 @@ import static org.apache.jena.riot.WebContent.contentTypeNTriples;
 import static org.apache.jena.riot.WebContent.contentTypeNTriplesAlt;
 import static org.apache.jena.riot.WebContent.contentTypeRDFJSON;
 import static org.apache.jena.riot.WebContent.contentTypeRDFThrift;
+import static org.apache.jena.riot.WebContent.contentTypeRDFThriftDict;
 import static org.apache.jena.riot.WebContent.contentTypeRDFXML;
 import static org.apache.jena.riot.WebContent.contentTypeTextCSV;
 import static org.apache.jena.riot.WebContent.contentTypeTextTSV;
@@ -69,6 +70,7 @@ public class RDFLanguages
     public static final String strLangTSV        = "TSV";
     public static final String strLangTriX       = "TriX";
     public static final String strLangRDFTHRIFT  = "RDF-THRIFT";
+    public static final String strLangRDFTHRIFT_DICT = "RDF-THRIFT-DICT";
     
     /*
      * ".owl" is not a formally registered file extension for OWL 
@@ -144,6 +146,12 @@ public class RDFLanguages
                                                      .addAltNames("RDF_THRIFT", "RDFTHRIFT", "RDF/THRIFT", "TRDF")
                                                      .addFileExtensions("rt", "trdf")
                                                      .build() ;
+
+    /** RDF Thrift with terms dictionary-encoded : repeated terms are written as references to earlier occurrences */
+    public static final Lang THRIFT_DICT = LangBuilder.create(strLangRDFTHRIFT_DICT, contentTypeRDFThriftDict)
+                                                     .addAltNames("RDF_THRIFT_DICT", "RDFTHRIFTDICT", "TRDFD")
+                                                     .addFileExtensions("trdfd")
+                                                     .build() ;
     
     /** Text */
     public static final Lang TEXT       = LangBuilder.create("text", contentTypeTextPlain)
@@ -197,6 +205,7 @@ public class RDFLanguages
         Lang.NQ         = RDFLanguages.NQ ;
         Lang.TRIG       = RDFLanguages.TRIG ;
         Lang.RDFTHRIFT  = RDFLanguages.THRIFT ;
+        Lang.RDFTHRIFT_DICT = RDFLanguages.THRIFT_DICT ;
         Lang.TRIX       = RDFLanguages.TRIX ;
         Lang.RDFNULL    = RDFLanguages.RDFNULL ;
         
@@ -227,6 +236,7 @@ public class RDFLanguages
         register(TRIG) ;
         register(NQUADS) ;
         register(THRIFT) ;
+        register(THRIFT_DICT) ;
         register(TRIX) ;
         register(RDFNULL) ;
         
@@ -29,6 +29,7 @@ import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import org.apache.http.client.HttpClient;
 import org.apache.jena.atlas.io.IO;
@@ -36,6 +37,8 @@ import org.apache.jena.atlas.lib.InternalErrorException;
 import org.apache.jena.atlas.web.ContentType;
 import org.apache.jena.atlas.web.TypedInputStream;
 import org.apache.jena.graph.Graph;
+import org.apache.jena.riot.lang.LabelToNode;
+import org.apache.jena.riot.lang.LangNTupleParallel;
 import org.apache.jena.riot.process.normalize.StreamCanonicalLangTag;
 import org.apache.jena.riot.process.normalize.StreamCanonicalLiterals;
 import org.apache.jena.riot.system.*;
@@ -91,8 +94,13 @@ public class RDFParser {
     private final Optional<Boolean> checking;
     private final IRIResolver       resolver;
     private final FactoryRDF        factory;
+    private final LabelToNode       labelToNode;
     private final ErrorHandler      errorHandler;
     private final Context           context;
+    private final int               parallelWorkers;
+    private final int               parallelChunkSize;
+    private final boolean           parallelOrdered;
+    private final int               asyncBatchSize;
 
     private boolean                 canUse = true;
 
@@ -168,8 +176,10 @@ public class RDFParser {
     /* package */ RDFParser(String uri, Path path, String content, InputStream inputStream, Reader javaReader, StreamManager streamManager, 
                             HttpClient httpClient, Lang hintLang, Lang forceLang, String baseUri, boolean strict, Optional<Boolean> checking, 
                             boolean canonicalLexicalValues, LangTagForm langTagForm,  
-                            boolean resolveURIs, IRIResolver resolver, FactoryRDF factory,
-                            ErrorHandler errorHandler, Context context) {
+                            boolean resolveURIs, IRIResolver resolver, FactoryRDF factory, LabelToNode labelToNode,
+                            ErrorHandler errorHandler, Context context,
+                            int parallelWorkers, int parallelChunkSize, boolean parallelOrdered,
+                            int asyncBatchSize) {
         int x = countNonNull(uri, path, content, inputStream, javaReader);
         if ( x >= 2 )
             throw new IllegalArgumentException("Only one source allowed: one of uri, path, content, inputStream and javaReader must be set");
@@ -196,8 +206,13 @@ public class RDFParser {
         this.checking = checking;
         this.resolver = resolver;
         this.factory = factory;
+        this.labelToNode = labelToNode;
         this.errorHandler = errorHandler;
         this.context = context;
+        this.parallelWorkers = parallelWorkers;
+        this.parallelChunkSize = parallelChunkSize;
+        this.parallelOrdered = parallelOrdered;
+        this.asyncBatchSize = asyncBatchSize;
     }
 
     /** Count the nulls */
@@ -269,6 +284,15 @@ public class RDFParser {
             default : throw new InternalErrorException("langTagForm = "+langTagForm);
         }
 
+        if ( asyncBatchSize > 0 ) {
+            // Parse on another thread, output to the destination on this thread.
+            AsyncParser.run(this::parseSource, destination, asyncBatchSize);
+            return;
+        }
+        parseSource(destination);
+    }
+
+    private void parseSource(StreamRDF destination) {
         if ( isNonNull(content, inputStream, javaReader) ) {
             parseNotUri(destination);
             return;
@@ -300,6 +324,15 @@ public class RDFParser {
                 if ( reader == null )
                     throw new RiotException("No parser registered for content type: " + ct.getContentType());
             }
+            Lang lang = RDFLanguages.contentTypeToLang(ct);
+            if ( isParallel(lang) ) {
+                // A path is memory mapped, other sources are read in chunks.
+                if ( path != null )
+                    createParallelParser(lang).parse(path, destination);
+                else
+                    createParallelParser(lang).parse(input, destination);
+                return;
+            }
             read(reader, input, null, baseUri, context, ct, destination);
         }
     }
@@ -317,6 +350,13 @@ public class RDFParser {
         ReaderRIOT readerRiot = createReader(ct);
         if ( readerRiot == null )
             throw new RiotException("No parser registered for content type: " + ct.getContentType());
+        Lang ctLang = RDFLanguages.contentTypeToLang(ct);
+        if ( inputStream != null && isParallel(ctLang) ) {
+            try {
+                createParallelParser(ctLang).parse(inputStream, destination);
+            } finally { IO.close(inputStream); }
+            return;
+        }
         Reader jr = javaReader;
         if ( content != null )
             jr = new StringReader(content);
@@ -341,6 +381,27 @@ public class RDFParser {
         throw new InternalErrorException("Both inputStream and javaReader are null");
     }
 
+    /** Whether to parse in parallel: there is more than one worker and the syntax is line-based. */
+    private boolean isParallel(Lang lang) {
+        return parallelWorkers > 1 && lang != null && LangNTupleParallel.canParse(lang);
+    }
+
+    private LangNTupleParallel createParallelParser(Lang lang) {
+        // Chunks share the blank node label mapping so labels are file scoped.
+        // If there is no LabelToNode, because the FactoryRDF was set by the application,
+        // the chunks share the FactoryRDF.
+        Supplier<FactoryRDF> chunkFactory;
+        if ( labelToNode != null ) {
+            LabelToNode shared = LabelToNode.createSynchronized(labelToNode);
+            chunkFactory = ()->RiotLib.factoryRDF(shared);
+        } else {
+            FactoryRDF shared = LangNTupleParallel.synchronizedFactory(factory);
+            chunkFactory = ()->shared;
+        }
+        return new LangNTupleParallel(lang, parallelWorkers, parallelChunkSize, parallelOrdered, errorHandler,
+                                      (handler)->makeParserProfile(lang, chunkFactory.get(), handler));
+    }
+
     @SuppressWarnings("resource")
     private TypedInputStream openTypedInputStream(String urlStr, Path path) {
         // If path, use that.
@@ -393,12 +454,12 @@ public class RDFParser {
     }
 
     private ReaderRIOT createReader(ReaderRIOTFactory r, Lang lang) {
-        ParserProfile profile = makeParserProfile(lang);
+        ParserProfile profile = makeParserProfile(lang, factory, errorHandler);
         ReaderRIOT reader = r.create(lang, profile);
         return reader ;
     }
 
-    private ParserProfile makeParserProfile(Lang lang) {
+    private ParserProfile makeParserProfile(Lang lang, FactoryRDF factory, ErrorHandler errorHandler) {
         boolean resolve = resolveURIs;
         boolean checking$ = strict;
         
@@ -32,6 +32,7 @@ import org.apache.jena.graph.BlankNodeId;
 import org.apache.jena.graph.Graph;
 import org.apache.jena.riot.RDFParser.LangTagForm;
 import org.apache.jena.riot.lang.LabelToNode;
+import org.apache.jena.riot.lang.LangNTupleParallel;
 import org.apache.jena.riot.system.*;
 import org.apache.jena.riot.system.stream.StreamManager;
 import org.apache.jena.riot.web.HttpNames;
@@ -104,6 +105,14 @@ public class RDFParserBuilder {
     // Parsing process
     private Context context = null;
     
+    // Parallel parsing of N-Triples and N-Quads.
+    private int parallelWorkers = 1;
+    private int parallelChunkSize = LangNTupleParallel.DftChunkSize;
+    private boolean parallelOrdered = true;
+    
+    // Parse on another thread, passing batches to the destination. 
+    private int asyncBatchSize = 0;
+    
     public static RDFParserBuilder create() { return new RDFParserBuilder() ; }
     private RDFParserBuilder() {}
     
@@ -479,6 +488,88 @@ public class RDFParserBuilder {
 //        return this;
 //    }
     
+    /**
+     * Parse N-Triples and N-Quads using a pool of {@code workers} threads. The input is
+     * split into chunks at newlines and the chunks are parsed in parallel. A source given
+     * by {@link Path} is memory mapped; other sources are read in chunks. Other syntaxes,
+     * and sources given as a string or a {@link Reader}, are parsed as usual.
+     * <p>
+     * Blank node labels are the same blank node in all chunks. If a {@link FactoryRDF}
+     * has been set with {@link #factory}, it is shared by the worker threads and all calls
+     * to it are serialized; set a {@link LabelToNode} instead for better throughput.
+     * <p>
+     * The default is 1, which is not parallel.
+     * @see #parallelOrdered
+     * @see #parallelChunkSize
+     * @param workers
+     * @return this
+     */
+    public RDFParserBuilder parallel(int workers) {
+        if ( workers < 1 )
+            throw new IllegalArgumentException("Workers must be at least 1: "+workers);
+        this.parallelWorkers = workers;
+        return this;
+    }
+
+    /**
+     * When parsing in parallel, whether the triples or quads are sent to the
+     * {@link StreamRDF} in the order of the input (the default), or in the order that
+     * chunks finish parsing. Unordered output is faster when the destination does not
+     * depend on the order, such as loading a database.
+     * @see #parallel
+     * @param ordered
+     * @return this
+     */
+    public RDFParserBuilder parallelOrdered(boolean ordered) {
+        this.parallelOrdered = ordered;
+        return this;
+    }
+
+    /**
+     * When parsing in parallel, the size, in bytes, of the chunks the input is split into.
+     * A chunk ends at a newline so it is larger if it has a longer line.
+     * The default is {@link LangNTupleParallel#DftChunkSize}.
+     * @see #parallel
+     * @param chunkSize
+     * @return this
+     */
+    public RDFParserBuilder parallelChunkSize(int chunkSize) {
+        if ( chunkSize < 1 )
+            throw new IllegalArgumentException("Chunk size must be at least 1: "+chunkSize);
+        this.parallelChunkSize = chunkSize;
+        return this;
+    }
+
+    /**
+     * Run the parser on its own thread and pass its output to the {@link StreamRDF}
+     * on the calling thread in batches, so parsing overlaps with the work of the
+     * destination, such as loading a database. The destination sees the same calls,
+     * in the same order, as without this setting.
+     * <p>
+     * The default is not to run the parser on another thread.
+     * @see #asyncBatchSize
+     * @param flag
+     * @return this
+     */
+    public RDFParserBuilder async(boolean flag) {
+        this.asyncBatchSize = flag ? AsyncParser.DftBatchSize : 0;
+        return this;
+    }
+
+    /**
+     * Run the parser on its own thread, as {@link #async}, passing batches of
+     * {@code batchSize} triples or quads. The default batch size is
+     * {@link AsyncParser#DftBatchSize}.
+     * @param batchSize
+     * @return this
+     */
+    public RDFParserBuilder asyncBatchSize(int batchSize) {
+        if ( batchSize < 1 )
+            throw new IllegalArgumentException("Batch size must be at least 1: "+batchSize);
+        this.asyncBatchSize = batchSize;
+        return this;
+    }
+
     public RDFParserBuilder context(Context context) {
         if ( context != null )
             context = context.copy();
@@ -541,7 +632,11 @@ public class RDFParserBuilder {
         
         // Setup the HTTP client.
         HttpClient client = buildHttpClient();
-        FactoryRDF factory$ = buildFactoryRDF();
+        // Keep the LabelToNode so parallel parsing can share it between threads.
+        LabelToNode labelToNode$ = null;
+        if ( factory == null )
+            labelToNode$ = ( labelToNode != null ) ? labelToNode : SyntaxLabels.createLabelToNode();
+        FactoryRDF factory$ = buildFactoryRDF(labelToNode$);
         ErrorHandler errorHandler$ = errorHandler;
         if ( errorHandler$ == null )
             errorHandler$ = ErrorHandlerFactory.getDefaultErrorHandler();
@@ -560,17 +655,15 @@ public class RDFParserBuilder {
                              client, hintLang, forceLang,
                              baseUri, strict, checking, 
                              canonicalValues, langTagForm,
-                             resolveURIs, resolver, factory$, errorHandler$, context);
+                             resolveURIs, resolver, factory$, labelToNode$, errorHandler$, context,
+                             parallelWorkers, parallelChunkSize, parallelOrdered,
+                             asyncBatchSize);
     }
 
-    private FactoryRDF buildFactoryRDF() {
+    private FactoryRDF buildFactoryRDF(LabelToNode labelToNode$) {
         FactoryRDF factory$ = factory;
-        if ( factory$ == null ) { 
-            if ( labelToNode != null )
-                factory$ = RiotLib.factoryRDF(labelToNode);
-            else
-                factory$ = RiotLib.factoryRDF();
-        }
+        if ( factory$ == null )
+            factory$ = RiotLib.factoryRDF(labelToNode$);
         return factory$;
     }
 
@@ -623,6 +716,10 @@ public class RDFParserBuilder {
         builder.labelToNode =       this.labelToNode;
         builder.errorHandler =      this.errorHandler;
         builder.context =           this.context;
+        builder.parallelWorkers =   this.parallelWorkers;
+        builder.parallelChunkSize = this.parallelChunkSize;
+        builder.parallelOrdered =   this.parallelOrdered;
+        builder.asyncBatchSize =    this.asyncBatchSize;
         return builder;
     }
 }
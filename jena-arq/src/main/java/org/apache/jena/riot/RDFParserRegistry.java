@@ -26,6 +26,7 @@ import static org.apache.jena.riot.RDFLanguages.RDFJSON;
 import static org.apache.jena.riot.RDFLanguages.RDFNULL;
 import static org.apache.jena.riot.RDFLanguages.RDFXML;
 import static org.apache.jena.riot.RDFLanguages.THRIFT;
+import static org.apache.jena.riot.RDFLanguages.THRIFT_DICT;
 import static org.apache.jena.riot.RDFLanguages.TRIG;
 import static org.apache.jena.riot.RDFLanguages.TRIX;
 import static org.apache.jena.riot.RDFLanguages.TURTLE;
@@ -43,6 +44,7 @@ import org.apache.jena.riot.lang.* ;
 import org.apache.jena.riot.system.ParserProfile;
 import org.apache.jena.riot.system.StreamRDF;
 import org.apache.jena.riot.thrift.BinRDF ;
+import org.apache.jena.riot.thrift.ThriftDict2StreamRDF ;
 import org.apache.jena.sparql.util.Context ;
 
 /** The registry of languages and parsers.
@@ -73,6 +75,7 @@ public class RDFParserRegistry
     private static ReaderRIOTFactory parserFactoryRDFXML    = new ReaderRIOTRDFXML.Factory(); 
     private static ReaderRIOTFactory parserFactoryJsonLD    = new ReaderRIOTFactoryJSONLD() ;
     private static ReaderRIOTFactory parserFactoryThrift    = new ReaderRIOTFactoryThrift() ;
+    private static ReaderRIOTFactory parserFactoryThriftDict = new ReaderRIOTFactoryThriftDict() ;
     private static ReaderRIOTFactory parserFactoryTriX      = new ReaderTriX.ReaderRIOTFactoryTriX() ;
     private static ReaderRIOTFactory parserFactoryRDFNULL   = new ReaderRDFNULL.Factory() ;
         
@@ -97,6 +100,7 @@ public class RDFParserRegistry
         registerLangTriples(RDFXML,     parserFactoryRDFXML) ;
         registerLangTriples(JSONLD,     parserFactoryJsonLD) ;
         registerLangTriples(THRIFT,     parserFactoryThrift) ;
+        registerLangTriples(THRIFT_DICT, parserFactoryThriftDict) ;
         registerLangTriples(TRIX,       parserFactoryTriX) ;
         registerLangTriples(RDFNULL,    parserFactoryRDFNULL) ;
         
@@ -104,6 +108,7 @@ public class RDFParserRegistry
         registerLangQuads(NQUADS,       parserFactory) ;
         registerLangQuads(TRIG,         parserFactory) ;
         registerLangQuads(THRIFT,       parserFactoryThrift) ;
+        registerLangQuads(THRIFT_DICT,  parserFactoryThriftDict) ;
         registerLangQuads(TRIX,         parserFactoryTriX) ;
         registerLangQuads(RDFNULL,      parserFactoryRDFNULL) ;
     }
@@ -234,5 +239,24 @@ public class RDFParserRegistry
             throw new RiotException("RDF Thrift : Reading binary data from a java.io.reader is not supported. Please use an InputStream") ;
         }
     }
+
+    private static class ReaderRIOTFactoryThriftDict implements ReaderRIOTFactory {
+        @Override
+        public ReaderRIOT create(Lang language, ParserProfile profile) {
+            return new ReaderRDFThriftDict() ;
+        }
+    }
+
+    private static class ReaderRDFThriftDict implements ReaderRIOT {
+        @Override
+        public void read(InputStream in, String baseURI, ContentType ct, StreamRDF output, Context context) {
+            ThriftDict2StreamRDF.parse(in, output) ;
+        }
+
+        @Override
+        public void read(Reader reader, String baseURI, ContentType ct, StreamRDF output, Context context) {
+            throw new RiotException("RDF Thrift : Reading binary data from a java.io.reader is not supported. Please use an InputStream") ;
+        }
+    }
 }
 
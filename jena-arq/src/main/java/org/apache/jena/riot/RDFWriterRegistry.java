@@ -109,6 +109,20 @@ public class RDFWriterRegistry
         }
     } ;
     
+    static WriterGraphRIOTFactory wgJsonLDStreamFactory = new WriterGraphRIOTFactory(){
+        @Override
+        public WriterGraphRIOT create(RDFFormat syntaxForm) {
+            return new JsonLDStreamWriter() ;
+        }
+    } ;
+
+    static WriterDatasetRIOTFactory wdsJsonLDStreamFactory = new WriterDatasetRIOTFactory(){
+        @Override
+        public WriterDatasetRIOT create(RDFFormat syntaxForm) {
+            return new JsonLDStreamWriter() ;
+        }
+    } ;
+
     static WriterGraphRIOTFactory wgThriftFactory = new WriterGraphRIOTFactory(){
         @Override
         public WriterGraphRIOT create(RDFFormat syntaxForm) {
@@ -156,6 +170,7 @@ public class RDFWriterRegistry
          register(Lang.NQUADS,      RDFFormat.NQUADS) ;
          register(Lang.RDFNULL,     RDFFormat.RDFNULL) ;
          register(Lang.RDFTHRIFT,   RDFFormat.RDF_THRIFT) ;
+         register(Lang.RDFTHRIFT_DICT, RDFFormat.RDF_THRIFT_DICT) ;
          register(Lang.TRIX,        RDFFormat.TRIX) ;
 
          // Writer factories.
@@ -177,6 +192,7 @@ public class RDFWriterRegistry
          register(RDFFormat.JSONLD_FLATTEN_FLAT,         wgJsonldfactory) ;
          register(RDFFormat.JSONLD_EXPAND_FLAT,          wgJsonldfactory) ;
          register(RDFFormat.JSONLD_FRAME_FLAT,           wgJsonldfactory) ;
+         register(RDFFormat.JSONLD_EXPAND_STREAM,        wgJsonLDStreamFactory) ;
         
          register(RDFFormat.RDFJSON,        wgfactory) ;
 
@@ -194,6 +210,8 @@ public class RDFWriterRegistry
          
          register(RDFFormat.RDF_THRIFT,     wgThriftFactory) ;
          register(RDFFormat.RDF_THRIFT_VALUES, wgThriftFactory) ;
+         register(RDFFormat.RDF_THRIFT_DICT, wgThriftFactory) ;
+         register(RDFFormat.RDF_THRIFT_DICT_COMPRESSED, wgThriftFactory) ;
 
          register(RDFFormat.TRIX, wgTriXFactory) ;
 
@@ -217,9 +235,12 @@ public class RDFWriterRegistry
          register(RDFFormat.JSONLD_FLATTEN_FLAT,         wdsJsonldfactory) ;
          register(RDFFormat.JSONLD_EXPAND_FLAT,          wdsJsonldfactory) ;
          register(RDFFormat.JSONLD_FRAME_FLAT,           wdsJsonldfactory) ;
+         register(RDFFormat.JSONLD_EXPAND_STREAM,        wdsJsonLDStreamFactory) ;
 
          register(RDFFormat.RDF_THRIFT,     wdsThriftFactory) ;
          register(RDFFormat.RDF_THRIFT_VALUES, wdsThriftFactory) ;
+         register(RDFFormat.RDF_THRIFT_DICT, wdsThriftFactory) ;
+         register(RDFFormat.RDF_THRIFT_DICT_COMPRESSED, wdsThriftFactory) ;
          
          register(RDFFormat.TRIX, wdsTriXFactory) ;
      }
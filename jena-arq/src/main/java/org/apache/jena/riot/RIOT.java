@@ -114,4 +114,12 @@ public class RIOT {
      * as expected by the JSONLD-java API (a Map) */
     public static final Symbol JSONLD_CONTEXT = Symbol.create("http://jena.apache.org/riot/jsonld#JSONLD_CONTEXT");
 
+    /**
+     * Symbol to use to ask for JSON-LD to be read by streaming (see
+     * {@link org.apache.jena.riot.lang.JsonLDStreamReader}), without building
+     * the document in memory. The context must then be known before the data.
+     * Expected value: true or false (default false).
+     */
+    public static final Symbol JSONLD_STREAMING = Symbol.create("http://jena.apache.org/riot/jsonld#JSONLD_STREAMING");
+
 }
@@ -82,6 +82,9 @@ public class WebContent
     public static final String      contentTypeRDFThrift         = "application/rdf+thrift" ;
     public static final ContentType ctRDFTHRIFT                  = ContentType.create(contentTypeRDFThrift) ;
 
+    public static final String      contentTypeRDFThriftDict     = "application/rdf-dict+thrift" ;
+    public static final ContentType ctRDFTHRIFTDICT              = ContentType.create(contentTypeRDFThriftDict) ;
+
     public static final String      contentTypeNQuadsAlt1        = "text/n-quads" ;
     public static final ContentType ctNQuadsAlt1                 = ContentType.create(contentTypeNQuadsAlt1) ;
 
@@ -0,0 +1,714 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.lang ;
+
+import java.io.InputStream ;
+import java.io.Reader ;
+import java.math.BigDecimal ;
+import java.text.DecimalFormat ;
+import java.text.DecimalFormatSymbols ;
+import java.util.* ;
+import java.util.function.Consumer ;
+
+import org.apache.jena.atlas.json.* ;
+import org.apache.jena.atlas.json.io.JSONHandler ;
+import org.apache.jena.atlas.json.io.JSONMaker ;
+import org.apache.jena.atlas.json.io.parser.JSONParser ;
+import org.apache.jena.atlas.web.ContentType ;
+import org.apache.jena.datatypes.xsd.XSDDatatype ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.riot.RIOT ;
+import org.apache.jena.riot.ReaderRIOT ;
+import org.apache.jena.riot.RiotException ;
+import org.apache.jena.riot.system.ErrorHandler ;
+import org.apache.jena.riot.system.IRIResolver ;
+import org.apache.jena.riot.system.ParserProfile ;
+import org.apache.jena.riot.system.StreamRDF ;
+import org.apache.jena.sparql.graph.NodeConst ;
+import org.apache.jena.sparql.util.Context ;
+
+/**
+ * JSON-LD reader that emits triples and quads while reading the document,
+ * without building the whole document in memory.
+ * <p>
+ * The document is read with a JSON event parser and each top-level node object
+ * (an element of a top-level array, or of the {@code "@graph"} array of a
+ * top-level object) is converted to RDF when it is complete, then discarded.
+ * Memory use is that of the largest top-level node object.
+ * <p>
+ * The context must be known before the data: either given with
+ * {@link RIOT#JSONLD_CONTEXT}, which overrides the document's top-level context,
+ * or as the {@code "@context"} of a top-level object, before its
+ * {@code "@graph"}. The {@code "@id"} of a top-level object naming the graph must
+ * also come before {@code "@graph"}. Embedded contexts in node objects are
+ * supported. Remote contexts and {@code "@reverse"} are not supported.
+ * <p>
+ * This reader is used for {@link org.apache.jena.riot.Lang#JSONLD} when
+ * {@link RIOT#JSONLD_STREAMING} is set true in the context of the parser run.
+ */
+public class JsonLDStreamReader implements ReaderRIOT
+{
+    private static final String xsdString = XSDDatatype.XSDstring.getURI() ;
+    private static final String xsdInteger = XSDDatatype.XSDinteger.getURI() ;
+    private static final String xsdDouble = XSDDatatype.XSDdouble.getURI() ;
+    private static final String xsdFloat = XSDDatatype.XSDfloat.getURI() ;
+    private static final String xsdDecimal = XSDDatatype.XSDdecimal.getURI() ;
+    private static final String xsdBoolean = XSDDatatype.XSDboolean.getURI() ;
+
+    private final ParserProfile profile ;
+    private final ErrorHandler errorHandler ;
+
+    // Position of the current top-level element, for error messages.
+    private long line = -1 ;
+    private long col = -1 ;
+
+    public JsonLDStreamReader(ParserProfile profile) {
+        this.profile = profile ;
+        this.errorHandler = profile.getErrorHandler() ;
+    }
+
+    @Override
+    public void read(InputStream in, String baseURI, ContentType ct, StreamRDF output, Context context) {
+        read$(h -> JSONParser.parseAny(in, h), output, context) ;
+    }
+
+    @Override
+    public void read(Reader reader, String baseURI, ContentType ct, StreamRDF output, Context context) {
+        read$(h -> JSONParser.parseAny(reader, h), output, context) ;
+    }
+
+    private void read$(Consumer<JSONHandler> parser, StreamRDF output, Context context) {
+        output.start() ;
+        try {
+            JsonValue initial = ( context == null ) ? null : asJson(context.get(RIOT.JSONLD_CONTEXT)) ;
+            parser.accept(new Handler(output, initial)) ;
+        } catch (JsonParseException ex) {
+            errorHandler.error(ex.getMessage(), ex.getLine(), ex.getColumn()) ;
+            throw new RiotException(ex.getMessage()) ;
+        }
+        output.finish() ;
+    }
+
+    /** The value of a JSON-LD context as given by a Jena Context setting (a JSON-LD-java object or a JSON string) */
+    private static JsonValue asJson(Object obj) {
+        if ( obj == null )
+            return null ;
+        if ( obj instanceof JsonValue )
+            return (JsonValue)obj ;
+        if ( obj instanceof String ) {
+            String str = ((String)obj).trim() ;
+            if ( str.startsWith("{") || str.startsWith("[") )
+                return JSON.parseAny(str) ;
+            return new JsonString(str) ;
+        }
+        if ( obj instanceof Map ) {
+            JsonObject x = new JsonObject() ;
+            ((Map<?, ?>)obj).forEach((k, v) -> x.put(k.toString(), json(v))) ;
+            return x ;
+        }
+        if ( obj instanceof List ) {
+            JsonArray x = new JsonArray() ;
+            ((List<?>)obj).forEach(v -> x.add(json(v))) ;
+            return x ;
+        }
+        if ( obj instanceof Boolean )
+            return new JsonBoolean((Boolean)obj) ;
+        if ( obj instanceof Number )
+            return JsonNumber.valueDecimal(obj.toString()) ;
+        throw new RiotException("JSON-LD: not a context: "+obj) ;
+    }
+
+    private static JsonValue json(Object obj) {
+        return ( obj == null ) ? JsonNull.instance : asJson(obj) ;
+    }
+
+    /**
+     * Build JSON values for all but the arrays of top-level node objects, whose
+     * elements are converted as they complete.
+     */
+    private class Handler implements JSONHandler {
+        private final StreamRDF output ;
+        private final JSONMaker maker = new JSONMaker() ;
+        private final boolean contextGiven ;
+        private ActiveContext activeContext = new ActiveContext() ;
+
+        private int depth = 0 ;
+        private boolean rootIsObject = false ;
+        private final Deque<String> keys = new ArrayDeque<>() ;
+        private final Deque<Boolean> streamingArrays = new ArrayDeque<>() ;
+        // The top-level object : "@id" and whether "@graph" has started. 
+        private String rootId = null ;
+        private boolean rootGraphStarted = false ;
+        private Node rootGraph = null ;
+
+        Handler(StreamRDF output, JsonValue initialContext) {
+            this.output = output ;
+            this.contextGiven = ( initialContext != null ) ;
+            if ( initialContext != null ) {
+                activeContext = processContext(initialContext, activeContext) ;
+                prefixes(activeContext) ;
+            }
+        }
+
+        @Override
+        public void startParse(long currLine, long currCol) { maker.startParse(currLine, currCol) ; }
+
+        @Override
+        public void finishParse(long currLine, long currCol) { maker.finishParse(currLine, currCol) ; }
+
+        @Override
+        public void startObject(long currLine, long currCol) {
+            if ( depth == 0 )
+                rootIsObject = true ;
+            depth++ ;
+            maker.startObject(currLine, currCol) ;
+        }
+
+        @Override
+        public void finishObject(long currLine, long currCol) {
+            depth-- ;
+            maker.finishObject(currLine, currCol) ;
+            if ( depth == 0 ) {
+                line = currLine ;
+                col = currCol ;
+                rootObject(maker.jsonValue().getAsObject()) ;
+            }
+        }
+
+        @Override
+        public void startPair(long currLine, long currCol) { maker.startPair(currLine, currCol) ; }
+
+        @Override
+        public void keyPair(long currLine, long currCol) {
+            keys.push(maker.jsonValue().getAsString().value()) ;
+            maker.keyPair(currLine, currCol) ;
+        }
+
+        @Override
+        public void finishPair(long currLine, long currCol) {
+            String key = keys.pop() ;
+            if ( depth == 1 && rootIsObject ) {
+                line = currLine ;
+                col = currCol ;
+                rootPair(key, maker.jsonValue()) ;
+            }
+            maker.finishPair(currLine, currCol) ;
+        }
+
+        @Override
+        public void startArray(long currLine, long currCol) {
+            boolean streaming = ( depth == 0 ) || ( depth == 1 && rootIsObject && "@graph".equals(keyword(activeContext, keys.peek())) ) ;
+            if ( streaming && depth == 1 ) {
+                rootGraphStarted = true ;
+                if ( rootId != null )
+                    rootGraph = idNode(expandIRI(activeContext, rootId, false, true)) ;
+            }
+            streamingArrays.push(streaming) ;
+            depth++ ;
+            maker.startArray(currLine, currCol) ;
+        }
+
+        @Override
+        public void element(long currLine, long currCol) {
+            if ( ! streamingArrays.peek() ) {
+                maker.element(currLine, currCol) ;
+                return ;
+            }
+            line = currLine ;
+            col = currCol ;
+            JsonValue v = maker.jsonValue() ;
+            if ( v.isObject() && ! isValueOrList(keywords(v.getAsObject(), activeContext)) )
+                node(output, v.getAsObject(), rootGraph, activeContext) ;
+        }
+
+        @Override
+        public void finishArray(long currLine, long currCol) {
+            streamingArrays.pop() ;
+            depth-- ;
+            maker.finishArray(currLine, currCol) ;
+        }
+
+        @Override
+        public void valueString(String image, long currLine, long currCol) { maker.valueString(image, currLine, currCol) ; }
+
+        @Override
+        public void valueInteger(String image, long currLine, long currCol) { maker.valueInteger(image, currLine, currCol) ; }
+
+        @Override
+        public void valueDouble(String image, long currLine, long currCol) { maker.valueDouble(image, currLine, currCol) ; }
+
+        @Override
+        public void valueBoolean(boolean b, long currLine, long currCol) { maker.valueBoolean(b, currLine, currCol) ; }
+
+        @Override
+        public void valueNull(long currLine, long currCol) { maker.valueNull(currLine, currCol) ; }
+
+        @Override
+        public void valueDecimal(String image, long currLine, long currCol) { maker.valueDecimal(image, currLine, currCol) ; }
+
+        private void rootPair(String key, JsonValue value) {
+            switch (keyword(activeContext, key)) {
+                case "@context" :
+                    if ( rootGraphStarted )
+                        error("\"@context\" after \"@graph\" : the context must come first when streaming") ;
+                    if ( ! contextGiven ) {
+                        activeContext = processContext(value, activeContext) ;
+                        prefixes(activeContext) ;
+                    }
+                    break ;
+                case "@id" :
+                    if ( rootGraphStarted )
+                        error("\"@id\" after \"@graph\" : the graph name must come first when streaming") ;
+                    if ( ! value.isString() )
+                        error("\"@id\" is not a string") ;
+                    rootId = value.getAsString().value() ;
+                    break ;
+                default :
+            }
+        }
+
+        private void rootObject(JsonObject obj) {
+            obj.remove("@context") ;
+            obj = keywords(obj, activeContext) ;
+            if ( rootGraphStarted )
+                obj.remove("@graph") ;
+            if ( isValueOrList(obj) )
+                return ;
+            // Anything other than the streamed graph and its name.
+            for ( String k : obj.keys() ) {
+                if ( ! k.equals("@id") && ! k.equals("@index") ) {
+                    node(output, obj, null, activeContext) ;
+                    return ;
+                }
+            }
+        }
+
+        // Namespaces from the top-level context.
+        private void prefixes(ActiveContext ctx) {
+            ctx.terms.forEach((term, def) -> {
+                if ( def.iri != null && term.indexOf(':') < 0 && ( def.iri.endsWith("/") || def.iri.endsWith("#") ) )
+                    output.prefix(term, def.iri) ;
+            }) ;
+        }
+    }
+
+    // ---- Context processing (JSON-LD 1.0, local contexts only)
+
+    private static final class TermDef {
+        final String iri ;          // Null if the term is mapped to null.
+        final String type ;         // "@id", "@vocab", a datatype IRI, or null
+        final boolean hasLanguage ;
+        final String language ;     // Null for no language, if hasLanguage.
+        final String container ;
+
+        TermDef(String iri, String type, boolean hasLanguage, String language, String container) {
+            this.iri = iri ;
+            this.type = type ;
+            this.hasLanguage = hasLanguage ;
+            this.language = language ;
+            this.container = container ;
+        }
+    }
+
+    private static final TermDef nullTerm = new TermDef(null, null, false, null, null) ;
+
+    private static final class ActiveContext {
+        IRIResolver base = null ;   // Null for the document base.
+        String vocab = null ;
+        String language = null ;
+        Map<String, TermDef> terms = new HashMap<>() ;
+
+        ActiveContext copy() {
+            ActiveContext x = new ActiveContext() ;
+            x.base = base ;
+            x.vocab = vocab ;
+            x.language = language ;
+            x.terms = new HashMap<>(terms) ;
+            return x ;
+        }
+    }
+
+    private ActiveContext processContext(JsonValue localContext, ActiveContext active) {
+        ActiveContext result = active.copy() ;
+        List<JsonValue> contexts = localContext.isArray() ? localContext.getAsArray() : Collections.singletonList(localContext) ;
+        for ( JsonValue ctx : contexts ) {
+            if ( ctx.isNull() ) {
+                result = new ActiveContext() ;
+                continue ;
+            }
+            if ( ctx.isString() )
+                error("Remote context not supported when streaming: "+ctx.getAsString().value()) ;
+            if ( ! ctx.isObject() )
+                error("Bad \"@context\" : "+ctx) ;
+            JsonObject obj = ctx.getAsObject() ;
+            if ( obj.hasKey("@base") ) {
+                JsonValue v = obj.get("@base") ;
+                if ( v.isNull() )
+                    result.base = null ;
+                else {
+                    String b = string(v, "@base") ;
+                    b = ( result.base == null ) ? profile.resolveIRI(b, line, col) : result.base.resolveToString(b) ;
+                    result.base = IRIResolver.create(b) ;
+                }
+            }
+            if ( obj.hasKey("@vocab") ) {
+                JsonValue v = obj.get("@vocab") ;
+                result.vocab = v.isNull() ? null : string(v, "@vocab") ;
+            }
+            if ( obj.hasKey("@language") ) {
+                JsonValue v = obj.get("@language") ;
+                result.language = v.isNull() ? null : string(v, "@language").toLowerCase(Locale.ROOT) ;
+            }
+            Map<String, Boolean> defined = new HashMap<>() ;
+            for ( String term : obj.keys() ) {
+                if ( term.equals("@base") || term.equals("@vocab") || term.equals("@language") )
+                    continue ;
+                defineTerm(result, obj, term, defined) ;
+            }
+        }
+        return result ;
+    }
+
+    private void defineTerm(ActiveContext result, JsonObject local, String term, Map<String, Boolean> defined) {
+        Boolean b = defined.get(term) ;
+        if ( b != null ) {
+            if ( b )
+                return ;
+            error("Cyclic IRI mapping for term: "+term) ;
+        }
+        defined.put(term, false) ;
+        if ( term.startsWith("@") )
+            error("Keyword redefinition: "+term) ;
+        result.terms.remove(term) ;
+        JsonValue v = local.get(term) ;
+        TermDef def ;
+        if ( v.isNull() )
+            def = nullTerm ;
+        else if ( v.isString() )
+            def = new TermDef(expandIRI(result, v.getAsString().value(), true, false, local, defined), null, false, null, null) ;
+        else if ( v.isObject() ) {
+            JsonObject obj = v.getAsObject() ;
+            if ( obj.hasKey("@reverse") )
+                error("\"@reverse\" not supported when streaming: "+term) ;
+            String type = null ;
+            if ( obj.hasKey("@type") ) {
+                type = string(obj.get("@type"), "@type") ;
+                if ( ! type.equals("@id") && ! type.equals("@vocab") )
+                    type = expandIRI(result, type, true, false, local, defined) ;
+            }
+            String iri ;
+            if ( obj.hasKey("@id") ) {
+                JsonValue x = obj.get("@id") ;
+                iri = x.isNull() ? null : expandIRI(result, string(x, "@id"), true, false, local, defined) ;
+            } else if ( term.indexOf(':') >= 0 )
+                iri = expandIRI(result, term, true, false, local, defined) ;
+            else if ( result.vocab != null )
+                iri = result.vocab+term ;
+            else {
+                error("No IRI for term: "+term) ;
+                iri = null ;
+            }
+            String container = obj.hasKey("@container") ? string(obj.get("@container"), "@container") : null ;
+            boolean hasLanguage = obj.hasKey("@language") ;
+            String language = null ;
+            if ( hasLanguage && ! obj.get("@language").isNull() )
+                language = string(obj.get("@language"), "@language").toLowerCase(Locale.ROOT) ;
+            def = new TermDef(iri, type, hasLanguage, language, container) ;
+        } else {
+            error("Bad term definition: "+term) ;
+            def = null ;
+        }
+        result.terms.put(term, def) ;
+        defined.put(term, true) ;
+    }
+
+    private String expandIRI(ActiveContext ctx, String value, boolean vocab, boolean documentRelative) {
+        return expandIRI(ctx, value, vocab, documentRelative, null, null) ;
+    }
+
+    /** IRI expansion; "local" and "defined" are set while processing a local context. */
+    private String expandIRI(ActiveContext ctx, String value, boolean vocab, boolean documentRelative,
+                             JsonObject local, Map<String, Boolean> defined) {
+        if ( value.startsWith("@") )
+            return value ;
+        if ( local != null && local.hasKey(value) )
+            defineTerm(ctx, local, value, defined) ;
+        if ( vocab && ctx.terms.containsKey(value) )
+            return ctx.terms.get(value).iri ;
+        int idx = value.indexOf(':') ;
+        if ( idx >= 0 ) {
+            String prefix = value.substring(0, idx) ;
+            String suffix = value.substring(idx+1) ;
+            if ( prefix.equals("_") || suffix.startsWith("//") )
+                return value ;
+            if ( local != null && local.hasKey(prefix) )
+                defineTerm(ctx, local, prefix, defined) ;
+            TermDef def = ctx.terms.get(prefix) ;
+            if ( def != null && def.iri != null )
+                return def.iri+suffix ;
+            return value ;
+        }
+        if ( vocab && ctx.vocab != null )
+            return ctx.vocab+value ;
+        if ( documentRelative )
+            return ( ctx.base == null ) ? profile.resolveIRI(value, line, col) : ctx.base.resolveToString(value) ;
+        return value ;
+    }
+
+    // ---- Conversion to RDF
+
+    private static boolean isValueOrList(JsonObject obj) {
+        return obj.hasKey("@value") || obj.hasKey("@list") || obj.hasKey("@set") ;
+    }
+
+    /** The keyword a key is an alias of, or the key. */
+    private static String keyword(ActiveContext ctx, String key) {
+        if ( key == null || key.startsWith("@") )
+            return key ;
+        TermDef def = ctx.terms.get(key) ;
+        if ( def != null && def.iri != null && def.iri.startsWith("@") )
+            return def.iri ;
+        return key ;
+    }
+
+    /** The object with keys that are aliases of keywords replaced by the keywords. */
+    private JsonObject keywords(JsonObject obj, ActiveContext ctx) {
+        boolean aliased = false ;
+        for ( String key : obj.keys() ) {
+            if ( ! key.equals(keyword(ctx, key)) ) {
+                aliased = true ;
+                break ;
+            }
+        }
+        if ( ! aliased )
+            return obj ;
+        JsonObject x = new JsonObject() ;
+        for ( Map.Entry<String, JsonValue> e : obj.entrySet() ) {
+            String key = keyword(ctx, e.getKey()) ;
+            if ( x.hasKey(key) )
+                error("Colliding keywords: "+key) ;
+            x.put(key, e.getValue()) ;
+        }
+        return x ;
+    }
+
+    private JsonValue keywords(JsonValue value, ActiveContext ctx) {
+        return value.isObject() ? keywords(value.getAsObject(), ctx) : value ;
+    }
+
+    /** Convert a node object, returning its subject. */
+    private Node node(StreamRDF output, JsonObject obj, Node graph, ActiveContext ctx) {
+        if ( obj.hasKey("@context") )
+            ctx = processContext(obj.get("@context"), ctx) ;
+        obj = keywords(obj, ctx) ;
+        Node subject ;
+        if ( obj.hasKey("@id") )
+            subject = idNode(expandIRI(ctx, string(obj.get("@id"), "@id"), false, true)) ;
+        else
+            subject = profile.createBlankNode(null, line, col) ;
+        for ( Map.Entry<String, JsonValue> e : obj.entrySet() ) {
+            String key = e.getKey() ;
+            JsonValue value = e.getValue() ;
+            switch (key) {
+                case "@context" : case "@id" : case "@index" :
+                    continue ;
+                case "@type" :
+                    for ( JsonValue t : elements(value) ) {
+                        Node type = idNode(expandIRI(ctx, string(t, "@type"), true, true)) ;
+                        emit(output, graph, subject, NodeConst.nodeRDFType, type) ;
+                    }
+                    continue ;
+                case "@graph" :
+                    for ( JsonValue x : elements(value) ) {
+                        if ( x.isObject() && ! isValueOrList(x.getAsObject()) )
+                            node(output, x.getAsObject(), subject, ctx) ;
+                    }
+                    continue ;
+                case "@reverse" :
+                    error("\"@reverse\" not supported when streaming") ;
+                default :
+            }
+            if ( key.startsWith("@") )
+                continue ;
+            String p = expandIRI(ctx, key, true, false) ;
+            // Keys that are not IRIs are dropped, as are blank node predicates.
+            if ( p == null || p.indexOf(':') < 0 || p.startsWith("_:") )
+                continue ;
+            Node predicate = profile.createURI(p, line, col) ;
+            values(output, graph, subject, predicate, value, ctx.terms.get(key), ctx) ;
+        }
+        return subject ;
+    }
+
+    private void values(StreamRDF output, Node graph, Node subject, Node predicate, JsonValue value, TermDef def, ActiveContext ctx) {
+        value = keywords(value, ctx) ;
+        String container = ( def == null ) ? null : def.container ;
+        if ( "@language".equals(container) && value.isObject() && ! isValueOrList(value.getAsObject()) ) {
+            for ( Map.Entry<String, JsonValue> e : value.getAsObject().entrySet() ) {
+                String lang = e.getKey().toLowerCase(Locale.ROOT) ;
+                for ( JsonValue x : elements(e.getValue()) )
+                    emit(output, graph, subject, predicate, profile.createLangLiteral(string(x, "language map"), lang, line, col)) ;
+            }
+            return ;
+        }
+        if ( "@list".equals(container) && ! ( value.isObject() && value.getAsObject().hasKey("@list") ) ) {
+            emit(output, graph, subject, predicate, list(output, graph, value, def, ctx)) ;
+            return ;
+        }
+        for ( JsonValue x : elements(value) ) {
+            x = keywords(x, ctx) ;
+            if ( x.isObject() && x.getAsObject().hasKey("@set") ) {
+                values(output, graph, subject, predicate, x.getAsObject().get("@set"), def, ctx) ;
+                continue ;
+            }
+            Node object = object(output, graph, x, def, ctx) ;
+            if ( object != null )
+                emit(output, graph, subject, predicate, object) ;
+        }
+    }
+
+    private Node object(StreamRDF output, Node graph, JsonValue value, TermDef def, ActiveContext ctx) {
+        if ( value.isNull() )
+            return null ;
+        String type = ( def == null ) ? null : def.type ;
+        if ( value.isString() ) {
+            String str = value.getAsString().value() ;
+            if ( "@id".equals(type) )
+                return idNode(expandIRI(ctx, str, false, true)) ;
+            if ( "@vocab".equals(type) )
+                return idNode(expandIRI(ctx, str, true, true)) ;
+            if ( type != null )
+                return literal(str, type) ;
+            String lang = ( def != null && def.hasLanguage ) ? def.language : ctx.language ;
+            if ( lang != null )
+                return profile.createLangLiteral(str, lang, line, col) ;
+            return profile.createStringLiteral(str, line, col) ;
+        }
+        if ( value.isNumber() || value.isBoolean() )
+            return nativeLiteral(value, ( "@id".equals(type) || "@vocab".equals(type) ) ? null : type) ;
+        if ( value.isArray() )
+            error("List of lists not supported") ;
+        JsonObject obj = keywords(value.getAsObject(), ctx) ;
+        if ( obj.hasKey("@value") )
+            return valueObject(obj, ctx) ;
+        if ( obj.hasKey("@list") )
+            return list(output, graph, obj.get("@list"), def, ctx) ;
+        return node(output, obj, graph, ctx) ;
+    }
+
+    private Node valueObject(JsonObject obj, ActiveContext ctx) {
+        JsonValue v = obj.get("@value") ;
+        if ( v.isNull() )
+            return null ;
+        String type = obj.hasKey("@type") ? expandIRI(ctx, string(obj.get("@type"), "@type"), true, true) : null ;
+        if ( v.isNumber() || v.isBoolean() )
+            return nativeLiteral(v, type) ;
+        String str = string(v, "@value") ;
+        if ( obj.hasKey("@language") )
+            return profile.createLangLiteral(str, string(obj.get("@language"), "@language").toLowerCase(Locale.ROOT), line, col) ;
+        if ( type != null )
+            return literal(str, type) ;
+        return profile.createStringLiteral(str, line, col) ;
+    }
+
+    private Node list(StreamRDF output, Node graph, JsonValue items, TermDef def, ActiveContext ctx) {
+        List<Node> nodes = new ArrayList<>() ;
+        for ( JsonValue x : elements(items) ) {
+            x = keywords(x, ctx) ;
+            if ( x.isObject() && x.getAsObject().hasKey("@list") )
+                error("List of lists not supported") ;
+            Node n = object(output, graph, x, def, ctx) ;
+            if ( n != null )
+                nodes.add(n) ;
+        }
+        if ( nodes.isEmpty() )
+            return NodeConst.nodeNil ;
+        Node head = profile.createBlankNode(null, line, col) ;
+        Node current = head ;
+        for ( int i = 0 ; i < nodes.size() ; i++ ) {
+            Node next = ( i == nodes.size()-1 ) ? NodeConst.nodeNil : profile.createBlankNode(null, line, col) ;
+            emit(output, graph, current, NodeConst.nodeFirst, nodes.get(i)) ;
+            emit(output, graph, current, NodeConst.nodeRest, next) ;
+            current = next ;
+        }
+        return head ;
+    }
+
+    private static final DecimalFormat doubleFormat = new DecimalFormat("0.0###############E0", new DecimalFormatSymbols(Locale.US)) ;
+
+    // JSON numbers and booleans, as JSON-LD converts native values. A number
+    // with a datatype gets the lexical form for that datatype.
+    private Node nativeLiteral(JsonValue value, String type) {
+        if ( value.isBoolean() )
+            return literal(Boolean.toString(value.getAsBoolean().value()), ( type != null ) ? type : xsdBoolean) ;
+        BigDecimal x = (BigDecimal)value.getAsNumber().value() ;
+        boolean integral = x.scale() <= 0 || x.stripTrailingZeros().scale() <= 0 ;
+        if ( type == null )
+            return ( x.scale() <= 0 ) ? literal(x.toBigInteger().toString(), xsdInteger) : literal(doubleLex(x), xsdDouble) ;
+        if ( type.equals(xsdDouble) || type.equals(xsdFloat) )
+            return literal(doubleLex(x), type) ;
+        if ( type.equals(xsdDecimal) ) {
+            String lex = x.toPlainString() ;
+            if ( lex.indexOf('.') < 0 )
+                lex = lex+".0" ;
+            return literal(lex, type) ;
+        }
+        // xsd:integer and its derived types, or other datatypes.
+        return literal(integral ? x.toBigInteger().toString() : x.toPlainString(), type) ;
+    }
+
+    private static String doubleLex(BigDecimal x) {
+        synchronized(doubleFormat) { return doubleFormat.format(x.doubleValue()) ; }
+    }
+
+    private Node literal(String lex, String datatype) {
+        if ( datatype.equals(xsdString) )
+            return profile.createStringLiteral(lex, line, col) ;
+        return profile.createTypedLiteral(lex, NodeFactory.getType(datatype), line, col) ;
+    }
+
+    private Node idNode(String iri) {
+        if ( iri.startsWith("_:") )
+            return profile.createBlankNode(null, iri.substring(2), line, col) ;
+        return profile.createURI(iri, line, col) ;
+    }
+
+    private void emit(StreamRDF output, Node graph, Node s, Node p, Node o) {
+        if ( graph == null )
+            output.triple(profile.createTriple(s, p, o, line, col)) ;
+        else
+            output.quad(profile.createQuad(graph, s, p, o, line, col)) ;
+    }
+
+    private static List<JsonValue> elements(JsonValue value) {
+        return value.isArray() ? value.getAsArray() : Collections.singletonList(value) ;
+    }
+
+    private String string(JsonValue v, String what) {
+        if ( ! v.isString() )
+            error("Expected a string for "+what+" : "+v) ;
+        return v.getAsString().value() ;
+    }
+
+    private void error(String msg) {
+        errorHandler.error(msg, line, col) ;
+        throw new RiotException(msg) ;
+    }
+}
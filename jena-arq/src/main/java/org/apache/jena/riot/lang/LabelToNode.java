@@ -84,6 +84,12 @@ public class LabelToNode extends MapWithScope<String, Node, Node>
     public static LabelToNode createIncremental()
     { return new LabelToNode(new SingleScopePolicy(), nodeAllocatorDeterministic()) ; } 
 
+    /** A {@code LabelToNode} that can be used by several threads at once, 
+     * such as the chunks of a parallel parse, and passes all calls to {@code labelToNode}.
+     */
+    public static LabelToNode createSynchronized(LabelToNode labelToNode)
+    { return new SyncLabelToNode(labelToNode) ; }
+
     // ---- Create fresh allocators per call
     
     // The preferred node allocator - completely scalable.
@@ -124,6 +130,27 @@ public class LabelToNode extends MapWithScope<String, Node, Node>
         super(scopePolicy, allocator) ;
     }
     
+    /** Serialize access to another {@code LabelToNode}. */
+    private static class SyncLabelToNode extends LabelToNode
+    {
+        private final LabelToNode other ;
+        
+        SyncLabelToNode(LabelToNode other)
+        {
+            super(null, null) ;
+            this.other = other ;
+        }
+        
+        @Override
+        public synchronized Node get(Node scope, String label)  { return other.get(scope, label) ; }
+
+        @Override
+        public synchronized Node create()                       { return other.create() ; }
+
+        @Override
+        public synchronized void clear()                        { other.clear() ; }
+    }
+    
     // ======== Scope Policies
     
     /** Single scope */
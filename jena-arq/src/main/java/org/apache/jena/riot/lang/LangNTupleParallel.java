@@ -0,0 +1,393 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.lang;
+
+import static org.apache.jena.riot.RDFLanguages.NQUADS ;
+import static org.apache.jena.riot.RDFLanguages.NTRIPLES ;
+import static org.apache.jena.riot.RDFLanguages.sameLang ;
+
+import java.io.IOException ;
+import java.io.InputStream ;
+import java.nio.ByteBuffer ;
+import java.nio.channels.FileChannel ;
+import java.nio.file.Path ;
+import java.nio.file.StandardOpenOption ;
+import java.util.ArrayDeque ;
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.Deque ;
+import java.util.List ;
+import java.util.concurrent.* ;
+import java.util.concurrent.atomic.AtomicInteger ;
+import java.util.function.Function ;
+
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.datatypes.RDFDatatype ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.riot.Lang ;
+import org.apache.jena.riot.RiotException ;
+import org.apache.jena.riot.RiotParseException ;
+import org.apache.jena.riot.system.* ;
+import org.apache.jena.riot.tokens.Tokenizer ;
+import org.apache.jena.riot.tokens.TokenizerBytes ;
+import org.apache.jena.riot.tokens.TokenizerFactory ;
+import org.apache.jena.sparql.core.Quad ;
+
+/**
+ * Parallel parsing of N-Triples and N-Quads.
+ * <p>
+ * Both syntaxes are line based: a triple or quad can not span lines so the input can
+ * be split at any newline. The input is split into chunks of about {@code chunkSize}
+ * bytes, each ending at a newline, and the chunks are parsed by a pool of worker
+ * threads, each chunk with its own {@link TokenizerBytes} and {@link ParserProfile}.
+ * A file is memory mapped and tokenized in place; an {@code InputStream} is read in
+ * chunks.
+ * <p>
+ * Output is sent to the {@link StreamRDF} from the calling thread, either in the order
+ * of the input or, if not ordered, in the order that chunks finish parsing.
+ * <p>
+ * Blank node labels are file scoped. For the same label to give the same blank node
+ * in different chunks, the {@link FactoryRDF} of each chunk must use the same
+ * {@link LabelToNode}, made safe for use by several threads with
+ * {@link LabelToNode#createSynchronized}.
+ * <p>
+ * Line and column numbers in error messages are relative to the start of the chunk;
+ * the message gives the byte offset of the chunk in the input.
+ */
+public class LangNTupleParallel
+{
+    /** Default size of a chunk, in bytes */
+    public static final int DftChunkSize = 4*1024*1024 ;
+
+    private static final AtomicInteger threadCounter = new AtomicInteger(0) ;
+    private static final ThreadFactory threadFactory = (r) -> {
+        Thread thread = new Thread(r, "RIOT-Parallel-"+threadCounter.incrementAndGet()) ;
+        thread.setDaemon(true) ;
+        return thread ;
+    } ;
+
+    private final Lang lang ;
+    private final int workers ;
+    private final int chunkSize ;
+    private final boolean ordered ;
+    private final ErrorHandler errorHandler ;
+    private final Function<ErrorHandler, ParserProfile> profiles ;
+
+    /** Whether the language can be parsed in parallel. */
+    public static boolean canParse(Lang lang) {
+        return sameLang(NTRIPLES, lang) || sameLang(NQUADS, lang) ;
+    }
+
+    /**
+     * @param lang          N-Triples or N-Quads
+     * @param workers       Number of parser threads
+     * @param chunkSize     Size of a chunk, in bytes; a chunk is larger if it has a longer line
+     * @param ordered       Whether to send the output in the order of the input
+     * @param errorHandler  Error handler
+     * @param profiles      Create the {@link ParserProfile} for a chunk, given the chunk's error handler.
+     *                      Called from the worker threads.
+     */
+    public LangNTupleParallel(Lang lang, int workers, int chunkSize, boolean ordered,
+                              ErrorHandler errorHandler, Function<ErrorHandler, ParserProfile> profiles) {
+        if ( ! canParse(lang) )
+            throw new RiotException("Not a line-based syntax: "+lang) ;
+        if ( workers < 1 )
+            throw new IllegalArgumentException("Workers must be at least 1: "+workers) ;
+        if ( chunkSize < 1 )
+            throw new IllegalArgumentException("Chunk size must be at least 1: "+chunkSize) ;
+        this.lang = lang ;
+        this.workers = workers ;
+        this.chunkSize = chunkSize ;
+        this.ordered = ordered ;
+        this.errorHandler = errorHandler ;
+        this.profiles = profiles ;
+    }
+
+    /** Parse a file, memory mapping it a chunk at a time. */
+    public void parse(Path path, StreamRDF dest) {
+        try ( FileChannel channel = FileChannel.open(path, StandardOpenOption.READ) ) {
+            parse(new ChunksMapped(channel), dest) ;
+        } catch (IOException ex) { IO.exception(ex) ; }
+    }
+
+    /** Parse an {@code InputStream}, reading it a chunk at a time. The stream is not closed. */
+    public void parse(InputStream input, StreamRDF dest) {
+        parse(new ChunksRead(input), dest) ;
+    }
+
+    private void parse(ChunkSource source, StreamRDF dest) {
+        ExecutorService executor = Executors.newFixedThreadPool(workers, threadFactory) ;
+        // Ordered: wait for the oldest chunk. Unordered: wait for any chunk.
+        CompletionService<ChunkOutput> completion = ordered ? null : new ExecutorCompletionService<>(executor) ;
+        // Bound the parsed-but-not-delivered output.
+        int maxPending = 2*workers ;
+        Deque<Future<ChunkOutput>> pending = new ArrayDeque<>() ;
+        dest.start() ;
+        try {
+            for ( ;; ) {
+                Chunk chunk = source.next() ;
+                if ( chunk == null )
+                    break ;
+                Callable<ChunkOutput> task = ()->parseChunk(chunk) ;
+                pending.add(ordered ? executor.submit(task) : completion.submit(task)) ;
+                if ( pending.size() >= maxPending )
+                    deliver(pending, completion, dest) ;
+            }
+            while ( ! pending.isEmpty() )
+                deliver(pending, completion, dest) ;
+        } catch (IOException ex) {
+            IO.exception(ex) ;
+        } finally {
+            pending.forEach(f->f.cancel(true)) ;
+            executor.shutdownNow() ;
+            dest.finish() ;
+        }
+    }
+
+    private static void deliver(Deque<Future<ChunkOutput>> pending, CompletionService<ChunkOutput> completion, StreamRDF dest) {
+        Future<ChunkOutput> future ;
+        try {
+            future = ( completion == null ) ? pending.peekFirst() : completion.take() ;
+            pending.remove(future) ;
+            future.get().sendTo(dest) ;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt() ;
+            throw new RiotException("Interrupted", ex) ;
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause() ;
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException)cause ;
+            if ( cause instanceof Error )
+                throw (Error)cause ;
+            throw new RiotException(cause) ;
+        }
+    }
+
+    private ChunkOutput parseChunk(Chunk chunk) {
+        ChunkOutput output = new ChunkOutput() ;
+        ParserProfile profile = profiles.apply(new ErrorHandlerChunk(errorHandler, chunk.offset)) ;
+        Tokenizer tokenizer = TokenizerFactory.makeTokenizerBytes(chunk.bytes) ;
+        LangRIOT parser = sameLang(NQUADS, lang)
+            ? new LangNQuads(tokenizer, profile, output)
+            : new LangNTriples(tokenizer, profile, output) ;
+        try {
+            parser.parse() ;
+        } catch (RiotParseException ex) {
+            // From the tokenizer.
+            throw new RiotParseException(ErrorHandlerChunk.prefix(chunk.offset)+ex.getOriginalMessage(), ex.getLine(), ex.getCol()) ;
+        }
+        return output ;
+    }
+
+    /**
+     * Wrap a {@link FactoryRDF} so that it can be shared by the chunks of a parallel
+     * parse, for when there is no {@link LabelToNode} to share. All calls are
+     * serialized.
+     */
+    public static FactoryRDF synchronizedFactory(FactoryRDF factory) {
+        return new FactoryRDFSynchronized(factory) ;
+    }
+
+    // ---- Chunking
+
+    private static class Chunk {
+        final long offset ;
+        final ByteBuffer bytes ;
+        Chunk(long offset, ByteBuffer bytes) { this.offset = offset ; this.bytes = bytes ; }
+    }
+
+    private interface ChunkSource {
+        /** Next chunk, or null at the end of the input */
+        Chunk next() throws IOException ;
+    }
+
+    /** Index of the last newline before {@code limit}, or -1. */
+    private static int lastNewline(ByteBuffer bytes, int limit) {
+        for ( int i = limit-1 ; i >= 0 ; i-- ) {
+            if ( bytes.get(i) == '\n' )
+                return i ;
+        }
+        return -1 ;
+    }
+
+    /** Memory map a file, one chunk at a time. */
+    private class ChunksMapped implements ChunkSource {
+        private final FileChannel channel ;
+        private final long size ;
+        private long position = 0 ;
+
+        ChunksMapped(FileChannel channel) throws IOException {
+            this.channel = channel ;
+            this.size = channel.size() ;
+        }
+
+        @Override
+        public Chunk next() throws IOException {
+            if ( position >= size )
+                return null ;
+            long length = Math.min(chunkSize, size-position) ;
+            for ( ;; ) {
+                ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, position, length) ;
+                boolean last = ( position+length == size ) ;
+                int end = last ? (int)length : lastNewline(bytes, (int)length)+1 ;
+                if ( end > 0 ) {
+                    bytes.limit(end) ;
+                    Chunk chunk = new Chunk(position, bytes) ;
+                    position += end ;
+                    return chunk ;
+                }
+                // A line longer than the chunk.
+                if ( length >= Integer.MAX_VALUE )
+                    throw new RiotException("Line too long at byte offset "+position) ;
+                length = Math.min(Math.min(2*length, Integer.MAX_VALUE), size-position) ;
+            }
+        }
+    }
+
+    /** Read an InputStream, one chunk at a time, carrying any partial line to the next chunk. */
+    private class ChunksRead implements ChunkSource {
+        private final InputStream input ;
+        private byte[] carry = new byte[0] ;
+        private long position = 0 ;
+        private boolean eof = false ;
+
+        ChunksRead(InputStream input) {
+            this.input = input ;
+        }
+
+        @Override
+        public Chunk next() throws IOException {
+            byte[] buffer = Arrays.copyOf(carry, Math.max(chunkSize, 2*carry.length)) ;
+            int len = carry.length ;
+            int end ;
+            for ( ;; ) {
+                while ( ! eof && len < buffer.length ) {
+                    int n = input.read(buffer, len, buffer.length-len) ;
+                    if ( n < 0 )
+                        eof = true ;
+                    else
+                        len += n ;
+                }
+                if ( len == 0 )
+                    return null ;
+                end = eof ? len : lastNewline(ByteBuffer.wrap(buffer), len)+1 ;
+                if ( end > 0 )
+                    break ;
+                // A line longer than the chunk.
+                if ( buffer.length >= Integer.MAX_VALUE/2 )
+                    throw new RiotException("Line too long at byte offset "+position) ;
+                buffer = Arrays.copyOf(buffer, 2*buffer.length) ;
+            }
+            carry = Arrays.copyOfRange(buffer, end, len) ;
+            Chunk chunk = new Chunk(position, ByteBuffer.wrap(buffer, 0, end)) ;
+            position += end ;
+            return chunk ;
+        }
+    }
+
+    // ---- Output
+
+    /** The output of one chunk, kept until it is delivered. */
+    private static class ChunkOutput extends StreamRDFBase {
+        private final List<Triple> triples = new ArrayList<>() ;
+        private final List<Quad> quads = new ArrayList<>() ;
+
+        @Override
+        public void triple(Triple triple) { triples.add(triple) ; }
+
+        @Override
+        public void quad(Quad quad) { quads.add(quad) ; }
+
+        void sendTo(StreamRDF dest) {
+            triples.forEach(dest::triple) ;
+            quads.forEach(dest::quad) ;
+        }
+    }
+
+    /** Add the chunk to error messages. */
+    private static class ErrorHandlerChunk implements ErrorHandler {
+        private final ErrorHandler other ;
+        private final String prefix ;
+
+        ErrorHandlerChunk(ErrorHandler other, long offset) {
+            this.other = other ;
+            this.prefix = prefix(offset) ;
+        }
+
+        static String prefix(long offset) {
+            return "[Chunk at byte "+offset+"] " ;
+        }
+
+        @Override
+        public void warning(String message, long line, long col) { other.warning(prefix+message, line, col) ; }
+
+        @Override
+        public void error(String message, long line, long col) { other.error(prefix+message, line, col) ; }
+
+        @Override
+        public void fatal(String message, long line, long col) { other.fatal(prefix+message, line, col) ; }
+    }
+
+    private static class FactoryRDFSynchronized implements FactoryRDF {
+        private final FactoryRDF other ;
+
+        FactoryRDFSynchronized(FactoryRDF other) { this.other = other ; }
+
+        @Override
+        public synchronized Triple createTriple(Node subject, Node predicate, Node object) {
+            return other.createTriple(subject, predicate, object) ;
+        }
+
+        @Override
+        public synchronized Quad createQuad(Node graph, Node subject, Node predicate, Node object) {
+            return other.createQuad(graph, subject, predicate, object) ;
+        }
+
+        @Override
+        public synchronized Node createURI(String uriStr) { return other.createURI(uriStr) ; }
+
+        @Override
+        public synchronized Node createTypedLiteral(String lexical, RDFDatatype datatype) {
+            return other.createTypedLiteral(lexical, datatype) ;
+        }
+
+        @Override
+        public synchronized Node createLangLiteral(String lexical, String langTag) {
+            return other.createLangLiteral(lexical, langTag) ;
+        }
+
+        @Override
+        public synchronized Node createStringLiteral(String lexical) { return other.createStringLiteral(lexical) ; }
+
+        @Override
+        public synchronized Node createBlankNode() { return other.createBlankNode() ; }
+
+        @Override
+        public synchronized Node createBlankNode(String label) { return other.createBlankNode(label) ; }
+
+        @Override
+        public synchronized Node createBlankNode(long mostSigBits, long leastSigBits) {
+            return other.createBlankNode(mostSigBits, leastSigBits) ;
+        }
+
+        @Override
+        public synchronized void reset() { other.reset() ; }
+    }
+}
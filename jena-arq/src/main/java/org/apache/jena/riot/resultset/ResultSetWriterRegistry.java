@@ -168,7 +168,7 @@ public class ResultSetWriterRegistry {
                 }
                 @Override
                 public void write(OutputStream out, boolean result, Context context)
-                { throw new NotImplemented("No Thrift RDF encoding defined for boolean results"); }
+                { BinRDF.writeBoolean(out, result) ; }
             } ;
         }
     }
@@ -0,0 +1,211 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.system;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.sparql.core.Quad;
+
+/**
+ * Run a parser on its own thread and pass its output to a {@link StreamRDF} on the
+ * calling thread, in batches.
+ * <p>
+ * The parser thread collects triples, quads, prefixes and base settings into an array
+ * and hands over the array when it is full, so the queue between the threads is
+ * touched once per batch, not once per triple. A small number of batches can be in
+ * flight; parsing runs ahead of the destination by at most that much. Output is in
+ * the order the parser produced it.
+ * <p>
+ * {@code start} and {@code finish} of the destination are called on the calling thread.
+ * An exception from the parser is rethrown on the calling thread. If the destination
+ * throws an exception, the parser is stopped.
+ * 
+ * @see org.apache.jena.riot.lang.PipedRDFIterator for one triple at a time, pulled by the consumer.
+ */
+public class AsyncParser {
+    /** Default number of items in a batch. */
+    public static final int DftBatchSize = 10000;
+    /** Number of batches that can be queued. */
+    private static final int QueueSize = 4;
+
+    private static final AtomicInteger threadCounter = new AtomicInteger(0);
+
+    private static final Object[] END = new Object[0];
+
+    private static class Prefix {
+        final String prefix;
+        final String iri;
+        Prefix(String prefix, String iri) { this.prefix = prefix; this.iri = iri; }
+    }
+
+    private static class Base {
+        final String base;
+        Base(String base) { this.base = base; }
+    }
+
+    /** The parser failed. */
+    private static class Failure {
+        final Throwable ex;
+        Failure(Throwable ex) { this.ex = ex; }
+    }
+
+    private final Consumer<StreamRDF> parser;
+    private final int batchSize;
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QueueSize);
+    private volatile boolean cancelled = false;
+
+    /**
+     * Run {@code parser}, which sends its output to the {@link StreamRDF} it is given, on
+     * another thread, and send the output to {@code dest} on this thread, in batches of
+     * {@code batchSize} items.
+     */
+    public static void run(Consumer<StreamRDF> parser, StreamRDF dest, int batchSize) {
+        new AsyncParser(parser, batchSize).exec(dest);
+    }
+
+    private AsyncParser(Consumer<StreamRDF> parser, int batchSize) {
+        if ( batchSize < 1 )
+            throw new IllegalArgumentException("Batch size must be at least 1: "+batchSize);
+        this.parser = parser;
+        this.batchSize = batchSize;
+    }
+
+    private void exec(StreamRDF dest) {
+        Thread thread = new Thread(this::produce, "RIOT-Async-"+threadCounter.incrementAndGet());
+        thread.setDaemon(true);
+        thread.start();
+        dest.start();
+        try {
+            for ( ;; ) {
+                Object item = take();
+                if ( item == END )
+                    break;
+                if ( item instanceof Failure ) {
+                    Throwable ex = ((Failure)item).ex;
+                    if ( ex instanceof RuntimeException )
+                        throw (RuntimeException)ex;
+                    if ( ex instanceof Error )
+                        throw (Error)ex;
+                    throw new RiotException(ex);
+                }
+                send((Object[])item, dest);
+            }
+        } finally {
+            // Stop the parser if it is still running, e.g. dest threw an exception.
+            cancelled = true;
+            queue.clear();
+            dest.finish();
+        }
+    }
+
+    private Object take() {
+        try {
+            return queue.take();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RiotException("Interrupted", ex);
+        }
+    }
+
+    private static void send(Object[] batch, StreamRDF dest) {
+        for ( Object obj : batch ) {
+            if ( obj == null )
+                // End of a short batch.
+                return;
+            if ( obj instanceof Triple )
+                dest.triple((Triple)obj);
+            else if ( obj instanceof Quad )
+                dest.quad((Quad)obj);
+            else if ( obj instanceof Prefix )
+                dest.prefix(((Prefix)obj).prefix, ((Prefix)obj).iri);
+            else if ( obj instanceof Base )
+                dest.base(((Base)obj).base);
+        }
+    }
+
+    // ---- Parser thread.
+
+    private void produce() {
+        Batcher batcher = new Batcher();
+        try {
+            parser.accept(batcher);
+            batcher.flush();
+            put(END);
+        } catch (Cancelled ex) {
+            // Consumer has stopped.
+        } catch (Throwable ex) {
+            try {
+                // Deliver the output before the error, as a synchronous parse would.
+                batcher.flush();
+                put(new Failure(ex));
+            } catch (Cancelled ex2) {}
+        }
+    }
+
+    private static class Cancelled extends RuntimeException {
+        Cancelled() { super(null, null, false, false); }
+    }
+
+    private void put(Object item) {
+        try {
+            while ( ! queue.offer(item, 100, TimeUnit.MILLISECONDS) ) {
+                if ( cancelled )
+                    throw new Cancelled();
+            }
+        } catch (InterruptedException ex) {
+            throw new Cancelled();
+        }
+    }
+
+    /** Collect the output of the parser into batches. */
+    private class Batcher implements StreamRDF {
+        private Object[] batch = new Object[batchSize];
+        private int idx = 0;
+
+        private void add(Object obj) {
+            batch[idx++] = obj;
+            if ( idx == batchSize )
+                flush();
+        }
+
+        void flush() {
+            if ( idx == 0 )
+                return;
+            if ( cancelled )
+                throw new Cancelled();
+            put(batch);
+            batch = new Object[batchSize];
+            idx = 0;
+        }
+
+        // start and finish are called on the destination by the consumer.
+        @Override public void start()                           {}
+        @Override public void triple(Triple triple)             { add(triple); }
+        @Override public void quad(Quad quad)                   { add(quad); }
+        @Override public void base(String base)                 { add(new Base(base)); }
+        @Override public void prefix(String prefix, String iri) { add(new Prefix(prefix, iri)); }
+        @Override public void finish()                          {}
+    }
+}
@@ -31,6 +31,7 @@ import org.apache.jena.graph.Graph ;
 import org.apache.jena.graph.Triple ;
 import org.apache.jena.riot.* ;
 import org.apache.jena.riot.thrift.BinRDF ;
+import org.apache.jena.riot.writer.StreamWriterJSONLD ;
 import org.apache.jena.riot.writer.StreamWriterTriX ;
 import org.apache.jena.riot.writer.WriterStreamRDFBlocks ;
 import org.apache.jena.riot.writer.WriterStreamRDFFlat ;
@@ -80,11 +81,17 @@ public class StreamRDFWriter {
     private static StreamRDFWriterFactory streamWriterFactoryThrift = new StreamRDFWriterFactory() {
         @Override
         public StreamRDF create(OutputStream output, RDFFormat format) {
-            boolean withValues = RDFFormat.RDF_THRIFT_VALUES.equals(format) ; 
-            return BinRDF.streamToOutputStream(output, withValues) ;
+            return BinRDF.streamToOutputStream(output, format) ;
         }
     } ;
     
+    private static StreamRDFWriterFactory streamWriterFactoryJSONLD = new StreamRDFWriterFactory() {
+        @Override
+        public StreamRDF create(OutputStream output, RDFFormat format) {
+            return new StreamWriterJSONLD(output) ;
+        }
+    } ;
+
     private static StreamRDFWriterFactory streamWriterFactoryTriX = new StreamRDFWriterFactory() {
         @Override
         public StreamRDF create(OutputStream output, RDFFormat format) {
@@ -129,6 +136,7 @@ public class StreamRDFWriter {
         register(Lang.NTRIPLES,     RDFFormat.NTRIPLES) ;
         register(Lang.NQUADS,       RDFFormat.NQUADS) ;
         register(Lang.RDFTHRIFT,    RDFFormat.RDF_THRIFT) ;
+        register(Lang.RDFTHRIFT_DICT, RDFFormat.RDF_THRIFT_DICT) ;
         register(Lang.TRIX,         RDFFormat.TRIX) ;
         register(Lang.RDFNULL,      RDFFormat.RDFNULL) ;
         
@@ -147,7 +155,11 @@ public class StreamRDFWriter {
 
         register(RDFFormat.RDF_THRIFT,          streamWriterFactoryThrift) ;
         register(RDFFormat.RDF_THRIFT_VALUES,   streamWriterFactoryThrift) ;
+        register(RDFFormat.RDF_THRIFT_DICT,     streamWriterFactoryThrift) ;
+        register(RDFFormat.RDF_THRIFT_DICT_COMPRESSED, streamWriterFactoryThrift) ;
         
+        register(RDFFormat.JSONLD_EXPAND_STREAM, streamWriterFactoryJSONLD) ;
+
         register(RDFFormat.TRIX,            streamWriterFactoryTriX) ;
         register(RDFFormat.RDFNULL,         streamWriterFactoryNull) ;
     }
@@ -21,12 +21,16 @@ package org.apache.jena.riot.thrift;
 import java.io.BufferedOutputStream ;
 import java.io.InputStream ;
 import java.io.OutputStream ;
+import java.util.Collections ;
 import java.util.List ;
 import java.util.function.Consumer;
 
 import org.apache.jena.atlas.io.IO ;
 import org.apache.jena.atlas.io.IndentedWriter ;
+import org.apache.jena.graph.Node ;
 import org.apache.jena.query.ResultSet ;
+import org.apache.jena.riot.RDFFormat ;
+import org.apache.jena.riot.RDFLanguages ;
 import org.apache.jena.riot.system.PrefixMap ;
 import org.apache.jena.riot.system.PrefixMapFactory ;
 import org.apache.jena.riot.system.StreamRDF ;
@@ -34,6 +38,8 @@ import org.apache.jena.riot.thrift.wire.RDF_StreamRow ;
 import org.apache.jena.sparql.core.Var ;
 import org.apache.jena.sparql.engine.ResultSetStream ;
 import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.binding.BindingFactory ;
+import org.apache.jena.sparql.graph.NodeConst ;
 import org.apache.thrift.TException ;
 import org.apache.thrift.protocol.TProtocol ;
 import org.apache.thrift.transport.TTransportException ;
@@ -47,6 +53,15 @@ public class BinRDF {
     private static int BUFSIZE_IN   = 128*1024 ;
     private static int BUFSIZE_OUT  = 128*1024 ;
 
+    /**
+     * Rows of a result set written between flushes of the output, so that the
+     * reader can start on a long result set while the rest is still being written.
+     */
+    public static int ResultSetRowBatch = 1000 ;
+
+    /** Variable name of the one row result set that is the result of ASK, as for TSV and CSV. */
+    private static final String askResultVar = "_askResult" ;
+
     /** 
      * Create an {@link StreamRDF} for output.  A filename ending {@code .gz} will have
      * a gzip compressor added to the output path. A filename of "-" is {@code System.out}.
@@ -102,6 +117,21 @@ public class BinRDF {
         return new StreamRDF2Thrift(out, withValues) ;
     }
 
+    /** 
+     * Create an {@link StreamRDF} for output in one of the RDF Thrift formats:
+     * {@link RDFFormat#RDF_THRIFT}, {@link RDFFormat#RDF_THRIFT_VALUES},
+     * {@link RDFFormat#RDF_THRIFT_DICT} or {@link RDFFormat#RDF_THRIFT_DICT_COMPRESSED}.
+     * Call {@link StreamRDF#start()}...{@link StreamRDF#finish()}.
+     * @param out OutputStream
+     * @param format The RDF Thrift format.
+     * @return StreamRDF A stream to send to. 
+     */
+    public static StreamRDF streamToOutputStream(OutputStream out, RDFFormat format) {
+        if ( RDFLanguages.THRIFT_DICT.equals(format.getLang()) )
+            return new StreamRDF2ThriftDict(out, RDFFormat.RDF_THRIFT_DICT_COMPRESSED.equals(format)) ;
+        return streamToOutputStream(out, RDFFormat.RDF_THRIFT_VALUES.equals(format)) ;
+    }
+
     /** 
      * Create an {@link StreamRDF} for output.
      * The {@code OutputStream} is closed when {@link StreamRDF#finish()} is called unless it is {@code System.out}.  
@@ -234,13 +264,44 @@ public class BinRDF {
     public static void writeResultSet(TProtocol protocol, ResultSet resultSet, boolean encodeValues) {
         List<Var> vars = Var.varList(resultSet.getResultVars()) ;
         try ( Binding2Thrift b2t = new Binding2Thrift(protocol, vars, encodeValues) ) {
+            long rows = 0 ;
             for ( ; resultSet.hasNext() ; ) {
                 Binding b = resultSet.nextBinding() ;
                 b2t.output(b) ;
+                if ( ++rows % ResultSetRowBatch == 0 )
+                    TRDF.flush(protocol) ;
             }
         }
         //Done by Binding2Thrift.close() -- LibThriftRDF.flush(protocol) ;
     }
+
+    /**
+     * Write a boolean (ASK) result. This is a result set of one variable,
+     * {@code ?_askResult}, and one row, the boolean value.
+     */
+    public static void writeBoolean(OutputStream out, boolean result) {
+        Var var = Var.alloc(askResultVar) ;
+        TProtocol protocol = TRDF.protocol(out) ;
+        try ( Binding2Thrift b2t = new Binding2Thrift(protocol, Collections.singletonList(var), false) ) {
+            b2t.output(BindingFactory.binding(var, result ? NodeConst.nodeTrue : NodeConst.nodeFalse)) ;
+        }
+        IO.flush(out) ;
+    }
+
+    /** Read a boolean (ASK) result written by {@link #writeBoolean}. */
+    public static boolean readBoolean(InputStream in) {
+        Thift2Binding t2b = new Thift2Binding(TRDF.protocol(in)) ;
+        if ( t2b.getVarNames().size() != 1 || ! askResultVar.equals(t2b.getVarNames().get(0)) )
+            throw new RiotThriftException("Not a boolean result: variables "+t2b.getVarNames()) ;
+        if ( ! t2b.hasNext() )
+            throw new RiotThriftException("Not a boolean result: no rows") ;
+        Node n = t2b.next().get(t2b.getVars().get(0)) ;
+        if ( NodeConst.nodeTrue.equals(n) )
+            return true ;
+        if ( NodeConst.nodeFalse.equals(n) )
+            return false ;
+        throw new RiotThriftException("Not a boolean result: "+n) ;
+    }
     
 }
 
@@ -0,0 +1,192 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.thrift;
+
+import static org.apache.jena.riot.thrift.TRDFDict.* ;
+
+import java.io.BufferedOutputStream ;
+import java.io.IOException ;
+import java.io.OutputStream ;
+import java.util.zip.Deflater ;
+import java.util.zip.DeflaterOutputStream ;
+
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.datatypes.xsd.XSDDatatype ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.riot.system.StreamRDF ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.thrift.TException ;
+import org.apache.thrift.protocol.TProtocol ;
+
+/** Encode StreamRDF in dictionary-encoded RDF Thrift.
+ * <p>
+ * Each term is either written in full and entered in the dictionary, or, if it
+ * is still in the dictionary, written as its dictionary id. IRIs are written as
+ * a namespace, itself from a dictionary, and a local name.
+ * The output stream is not closed by {@link #finish()}.
+ *
+ * @see ThriftDict2StreamRDF for the reverse process.
+ */
+public class StreamRDF2ThriftDict implements StreamRDF, AutoCloseable
+{
+    private final OutputStream out ;
+    private final Deflater deflater ;
+    private final DeflaterOutputStream compressor ;
+    private final TProtocol protocol ;
+    private final int maxLiteralLength ;
+    private final Dictionary<Node> terms ;
+    private final Dictionary<String> namespaces ;
+    private boolean finished = false ;
+
+    public StreamRDF2ThriftDict(OutputStream out, boolean compress) {
+        this(out, compress, DftDictionarySize) ;
+    }
+
+    public StreamRDF2ThriftDict(OutputStream output, boolean compress, int dictionarySize) {
+        Header header = new Header(compress, dictionarySize, DftNamespaceSize, DftMaxLiteralLength) ;
+        this.out = ( output instanceof BufferedOutputStream ) ? output : new BufferedOutputStream(output, TRDF.OutputBufferSize) ;
+        this.maxLiteralLength = header.maxLiteralLength ;
+        this.terms = new Dictionary<>(header.dictionarySize, true) ;
+        this.namespaces = new Dictionary<>(header.namespaceSize, true) ;
+        TRDFDict.writeHeader(out, header) ;
+        if ( compress ) {
+            deflater = new Deflater(Deflater.BEST_SPEED) ;
+            compressor = new DeflaterOutputStream(out, deflater, TRDF.OutputBufferSize) ;
+            protocol = TRDF.protocol(compressor) ;
+        } else {
+            deflater = null ;
+            compressor = null ;
+            protocol = TRDF.protocol(out) ;
+        }
+    }
+
+    @Override
+    public void start() { }
+
+    @Override
+    public void triple(Triple triple) {
+        try {
+            protocol.writeByte(ROW_TRIPLE) ;
+            writeTerm(triple.getSubject()) ;
+            writeTerm(triple.getPredicate()) ;
+            writeTerm(triple.getObject()) ;
+        } catch (TException ex) { TRDF.exception(ex) ; }
+    }
+
+    @Override
+    public void quad(Quad quad) {
+        if ( quad.getGraph() == null || quad.isDefaultGraph() ) {
+            triple(quad.asTriple()) ;
+            return ;
+        }
+        try {
+            protocol.writeByte(ROW_QUAD) ;
+            writeTerm(quad.getGraph()) ;
+            writeTerm(quad.getSubject()) ;
+            writeTerm(quad.getPredicate()) ;
+            writeTerm(quad.getObject()) ;
+        } catch (TException ex) { TRDF.exception(ex) ; }
+    }
+
+    @Override
+    public void base(String base) {
+        // Ignore.
+    }
+
+    @Override
+    public void prefix(String prefix, String iri) {
+        try {
+            protocol.writeByte(ROW_PREFIX) ;
+            protocol.writeString(prefix) ;
+            protocol.writeString(iri) ;
+        } catch (TException ex) { TRDF.exception(ex) ; }
+    }
+
+    private void writeTerm(Node node) throws TException {
+        int id = terms.lookup(node) ;
+        if ( id >= 0 ) {
+            protocol.writeByte(TERM_REF) ;
+            protocol.writeI32(id) ;
+            return ;
+        }
+        if ( node.isURI() ) {
+            protocol.writeByte(TERM_IRI) ;
+            writeIRI(node.getURI()) ;
+        } else if ( node.isBlank() ) {
+            protocol.writeByte(TERM_BNODE) ;
+            protocol.writeString(node.getBlankNodeLabel()) ;
+        } else if ( node.isLiteral() ) {
+            String lex = node.getLiteralLexicalForm() ;
+            String lang = node.getLiteralLanguage() ;
+            if ( lang != null && ! lang.isEmpty() ) {
+                protocol.writeByte(TERM_LANG) ;
+                protocol.writeString(lex) ;
+                protocol.writeString(lang) ;
+            } else if ( XSDDatatype.XSDstring.equals(node.getLiteralDatatype()) ) {
+                protocol.writeByte(TERM_STRING) ;
+                protocol.writeString(lex) ;
+            } else {
+                protocol.writeByte(TERM_DATATYPE) ;
+                protocol.writeString(lex) ;
+                writeTerm(NodeFactory.createURI(node.getLiteralDatatypeURI())) ;
+            }
+            if ( lex.length() > maxLiteralLength )
+                return ;
+        } else
+            throw new RiotThriftException("Not a concrete RDF term: "+node) ;
+        terms.add(node) ;
+    }
+
+    private void writeIRI(String iri) throws TException {
+        int split = TRDFDict.splitPoint(iri) ;
+        String ns = iri.substring(0, split) ;
+        int id = namespaces.lookup(ns) ;
+        if ( id >= 0 )
+            protocol.writeI32(id) ;
+        else {
+            protocol.writeI32(NS_NEW) ;
+            protocol.writeString(ns) ;
+            namespaces.add(ns) ;
+        }
+        protocol.writeString(iri.substring(split)) ;
+    }
+
+    @Override
+    public void close() {
+        finish() ;
+    }
+
+    @Override
+    public void finish() {
+        if ( finished )
+            return ;
+        finished = true ;
+        try { protocol.writeByte(ROW_END) ; }
+        catch (TException ex) { TRDF.exception(ex) ; }
+        TRDF.flush(protocol) ;
+        if ( compressor != null ) {
+            try { compressor.finish() ; }
+            catch (IOException ex) { IO.exception(ex) ; }
+            finally { deflater.end() ; }
+        }
+        IO.flush(out) ;
+    }
+}
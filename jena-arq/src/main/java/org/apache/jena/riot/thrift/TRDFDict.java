@@ -0,0 +1,179 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.thrift;
+
+import java.io.DataInputStream ;
+import java.io.DataOutputStream ;
+import java.io.IOException ;
+import java.io.InputStream ;
+import java.io.OutputStream ;
+import java.util.HashMap ;
+import java.util.Map ;
+
+import org.apache.jena.atlas.io.IO ;
+
+/**
+ * Support operations for dictionary-encoded RDF Thrift.
+ * <p>
+ * The format is a header followed by rows written with the Thrift compact
+ * protocol primitives. Writer and reader each keep a dictionary of recently
+ * seen terms, and of IRI namespaces, filled in the same order, so a repeated
+ * term is written as a small integer reference to an earlier occurrence. The
+ * rows after the header may be compressed as a single deflate stream.
+ *
+ * @see StreamRDF2ThriftDict
+ * @see ThriftDict2StreamRDF
+ */
+public class TRDFDict {
+    /** Default number of terms held by the dictionary */
+    public static final int DftDictionarySize       = 4096 ;
+    /** Default number of IRI namespaces held by the dictionary */
+    public static final int DftNamespaceSize        = 1024 ;
+    /** Literals with a longer lexical form are not entered in the dictionary */
+    public static final int DftMaxLiteralLength     = 64 ;
+
+    // Header
+    private static final byte[] MAGIC       = { 'R', 'D', 'F', 'D' } ;
+    private static final int    VERSION     = 1 ;
+    private static final int    FLAG_DEFLATE = 0x01 ;
+    // Upper bound on dictionary sizes accepted when reading.
+    private static final int    MaxDictionarySize = 1<<24 ;
+
+    // Rows
+    static final byte ROW_END       = 0 ;
+    static final byte ROW_TRIPLE    = 1 ;
+    static final byte ROW_QUAD      = 2 ;
+    static final byte ROW_PREFIX    = 3 ;
+
+    // Terms
+    static final byte TERM_REF      = 0 ;
+    static final byte TERM_IRI      = 1 ;
+    static final byte TERM_BNODE    = 2 ;
+    static final byte TERM_STRING   = 3 ;
+    static final byte TERM_LANG     = 4 ;
+    static final byte TERM_DATATYPE = 5 ;
+
+    /** Namespace reference for an IRI when the namespace string follows. */
+    static final int NS_NEW         = -1 ;
+
+    /** The settings of a stream, as recorded in its header. */
+    static final class Header {
+        final boolean deflate ;
+        final int dictionarySize ;
+        final int namespaceSize ;
+        final int maxLiteralLength ;
+
+        Header(boolean deflate, int dictionarySize, int namespaceSize, int maxLiteralLength) {
+            this.deflate = deflate ;
+            this.dictionarySize = dictionarySize ;
+            this.namespaceSize = namespaceSize ;
+            this.maxLiteralLength = maxLiteralLength ;
+        }
+    }
+
+    static void writeHeader(OutputStream out, Header header) {
+        try {
+            DataOutputStream dout = new DataOutputStream(out) ;
+            dout.write(MAGIC) ;
+            dout.writeByte(VERSION) ;
+            dout.writeByte(header.deflate ? FLAG_DEFLATE : 0) ;
+            dout.writeInt(header.dictionarySize) ;
+            dout.writeInt(header.namespaceSize) ;
+            dout.writeInt(header.maxLiteralLength) ;
+            dout.flush() ;
+        } catch (IOException ex) { IO.exception(ex) ; }
+    }
+
+    static Header readHeader(InputStream in) {
+        try {
+            DataInputStream din = new DataInputStream(in) ;
+            byte[] magic = new byte[MAGIC.length] ;
+            din.readFully(magic) ;
+            for ( int i = 0 ; i < MAGIC.length ; i++ ) {
+                if ( magic[i] != MAGIC[i] )
+                    throw new RiotThriftException("Not dictionary-encoded RDF Thrift: bad header") ;
+            }
+            int version = din.readUnsignedByte() ;
+            if ( version != VERSION )
+                throw new RiotThriftException("Unsupported version of dictionary-encoded RDF Thrift: "+version) ;
+            int flags = din.readUnsignedByte() ;
+            int dictionarySize = checkSize(din.readInt()) ;
+            int namespaceSize = checkSize(din.readInt()) ;
+            int maxLiteralLength = din.readInt() ;
+            return new Header((flags & FLAG_DEFLATE) != 0, dictionarySize, namespaceSize, maxLiteralLength) ;
+        } catch (IOException ex) {
+            throw new RiotThriftException("Failed to read the header of dictionary-encoded RDF Thrift", ex) ;
+        }
+    }
+
+    private static int checkSize(int size) {
+        if ( size <= 0 || size > MaxDictionarySize )
+            throw new RiotThriftException("Bad dictionary size in header: "+size) ;
+        return size ;
+    }
+
+    /**
+     * A fixed size dictionary, replacing the oldest entry when full. Writer and
+     * reader add the same entries in the same order, so ids agree. Only the
+     * writer needs to find the id for an entry.
+     */
+    static final class Dictionary<T> {
+        private final Object[] entries ;
+        private final Map<T, Integer> index ;
+        private int next = 0 ;
+
+        Dictionary(int size, boolean indexed) {
+            this.entries = new Object[size] ;
+            this.index = indexed ? new HashMap<>(2*size) : null ;
+        }
+
+        /** Return the id of an entry, or -1 if not present */
+        int lookup(T key) {
+            Integer x = index.get(key) ;
+            return ( x == null ) ? -1 : x ;
+        }
+
+        @SuppressWarnings("unchecked")
+        T get(int id) {
+            if ( id < 0 || id >= entries.length || entries[id] == null )
+                throw new RiotThriftException("Bad dictionary reference: "+id) ;
+            return (T)entries[id] ;
+        }
+
+        /** Add a new entry (one not already in the dictionary) */
+        void add(T key) {
+            if ( index != null ) {
+                Object old = entries[next] ;
+                if ( old != null )
+                    index.remove(old) ;
+                index.put(key, next) ;
+            }
+            entries[next] = key ;
+            next = ( next+1 == entries.length ) ? 0 : next+1 ;
+        }
+    }
+
+    /** The split point of an IRI into namespace and local part. */
+    static int splitPoint(String iri) {
+        int idx = Math.max(iri.lastIndexOf('#'), iri.lastIndexOf('/')) ;
+        if ( idx < 0 )
+            idx = iri.lastIndexOf(':') ;
+        return idx+1 ;
+    }
+}
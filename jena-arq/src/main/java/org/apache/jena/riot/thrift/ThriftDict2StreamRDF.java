@@ -0,0 +1,178 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.thrift;
+
+import static org.apache.jena.riot.thrift.TRDFDict.* ;
+
+import java.io.BufferedInputStream ;
+import java.io.InputStream ;
+import java.util.zip.Inflater ;
+import java.util.zip.InflaterInputStream ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.riot.system.StreamRDF ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.thrift.TException ;
+import org.apache.thrift.protocol.TProtocol ;
+import org.apache.thrift.transport.TTransportException ;
+
+/** Dictionary-encoded RDF Thrift to a StreamRDF.
+ *
+ * @see StreamRDF2ThriftDict for the reverse process.
+ */
+public class ThriftDict2StreamRDF {
+
+    /**
+     * Decode the contents of the input stream and send to the {@link StreamRDF},
+     * calling {@link StreamRDF#start()} and {@link StreamRDF#finish()}.
+     * The input stream is not closed.
+     * @param in InputStream
+     * @param dest StreamRDF
+     */
+    public static void parse(InputStream in, StreamRDF dest) {
+        dest.start() ;
+        new ThriftDict2StreamRDF(in, dest).run() ;
+        dest.finish() ;
+    }
+
+    private final StreamRDF dest ;
+    private final Inflater inflater ;
+    private final TProtocol protocol ;
+    private final int maxLiteralLength ;
+    private final Dictionary<Node> terms ;
+    private final Dictionary<String> namespaces ;
+
+    private ThriftDict2StreamRDF(InputStream input, StreamRDF dest) {
+        InputStream in = ( input instanceof BufferedInputStream ) ? input : new BufferedInputStream(input, TRDF.InputBufferSize) ;
+        Header header = TRDFDict.readHeader(in) ;
+        this.dest = dest ;
+        this.maxLiteralLength = header.maxLiteralLength ;
+        this.terms = new Dictionary<>(header.dictionarySize, false) ;
+        this.namespaces = new Dictionary<>(header.namespaceSize, false) ;
+        if ( header.deflate ) {
+            inflater = new Inflater() ;
+            protocol = TRDF.protocol(new InflaterInputStream(in, inflater, TRDF.InputBufferSize)) ;
+        } else {
+            inflater = null ;
+            protocol = TRDF.protocol(in) ;
+        }
+    }
+
+    private void run() {
+        try {
+            for ( ;; ) {
+                byte row = protocol.readByte() ;
+                switch (row) {
+                    case ROW_END :
+                        return ;
+                    case ROW_TRIPLE : {
+                        Node s = readTerm() ;
+                        Node p = readTerm() ;
+                        Node o = readTerm() ;
+                        dest.triple(Triple.create(s, p, o)) ;
+                        break ;
+                    }
+                    case ROW_QUAD : {
+                        Node g = readTerm() ;
+                        Node s = readTerm() ;
+                        Node p = readTerm() ;
+                        Node o = readTerm() ;
+                        dest.quad(Quad.create(g, s, p, o)) ;
+                        break ;
+                    }
+                    case ROW_PREFIX : {
+                        String prefix = protocol.readString() ;
+                        String iri = protocol.readString() ;
+                        dest.prefix(prefix, iri) ;
+                        break ;
+                    }
+                    default :
+                        throw new RiotThriftException("Unrecognized row: "+row) ;
+                }
+            }
+        } catch (TTransportException ex) {
+            if ( ex.getType() == TTransportException.END_OF_FILE )
+                throw new RiotThriftException("Unexpected end of dictionary-encoded RDF Thrift") ;
+            TRDF.exception(ex) ;
+        } catch (TException ex) {
+            TRDF.exception(ex) ;
+        } finally {
+            if ( inflater != null )
+                inflater.end() ;
+        }
+    }
+
+    private Node readTerm() throws TException {
+        byte kind = protocol.readByte() ;
+        Node node ;
+        switch (kind) {
+            case TERM_REF :
+                return terms.get(protocol.readI32()) ;
+            case TERM_IRI :
+                node = NodeFactory.createURI(readIRI()) ;
+                break ;
+            case TERM_BNODE :
+                node = NodeFactory.createBlankNode(protocol.readString()) ;
+                break ;
+            case TERM_STRING : {
+                String lex = protocol.readString() ;
+                node = NodeFactory.createLiteral(lex) ;
+                if ( lex.length() > maxLiteralLength )
+                    return node ;
+                break ;
+            }
+            case TERM_LANG : {
+                String lex = protocol.readString() ;
+                String lang = protocol.readString() ;
+                node = NodeFactory.createLiteral(lex, lang) ;
+                if ( lex.length() > maxLiteralLength )
+                    return node ;
+                break ;
+            }
+            case TERM_DATATYPE : {
+                String lex = protocol.readString() ;
+                Node dt = readTerm() ;
+                if ( ! dt.isURI() )
+                    throw new RiotThriftException("Datatype is not an IRI: "+dt) ;
+                node = NodeFactory.createLiteral(lex, NodeFactory.getType(dt.getURI())) ;
+                if ( lex.length() > maxLiteralLength )
+                    return node ;
+                break ;
+            }
+            default :
+                throw new RiotThriftException("Unrecognized term: "+kind) ;
+        }
+        terms.add(node) ;
+        return node ;
+    }
+
+    private String readIRI() throws TException {
+        int id = protocol.readI32() ;
+        String ns ;
+        if ( id == NS_NEW ) {
+            ns = protocol.readString() ;
+            namespaces.add(ns) ;
+        } else
+            ns = namespaces.get(id) ;
+        String local = protocol.readString() ;
+        return local.isEmpty() ? ns : ns.concat(local) ;
+    }
+}
@@ -18,8 +18,6 @@
 
 package org.apache.jena.riot.thrift;
 
-import static org.apache.jena.riot.RDFLanguages.THRIFT ;
-
 import java.io.OutputStream ;
 import java.io.Writer ;
 
@@ -35,13 +33,13 @@ import org.apache.jena.sparql.util.Context ;
 /** Write a dataset as RDF Thrift */
 public class WriterDatasetThrift implements WriterDatasetRIOT
 {
-    private final boolean withValues ;
+    private final RDFFormat format ;
     public WriterDatasetThrift(RDFFormat fmt) {
-        this.withValues = RDFFormat.RDF_THRIFT_VALUES.equals(fmt) ;
+        this.format = fmt ;
     }
     @Override
     public Lang getLang() {
-        return THRIFT ;
+        return format.getLang() ;
     }
     @Override
     public void write(Writer out, DatasetGraph dsg, PrefixMap prefixMap, String baseURI, Context context) {
@@ -49,7 +47,7 @@ public class WriterDatasetThrift implements WriterDatasetRIOT
     }
     @Override
     public void write(OutputStream out, DatasetGraph dsg, PrefixMap prefixMap, String baseURI, Context context) {
-        StreamRDF stream = BinRDF.streamToOutputStream(out, withValues) ;
+        StreamRDF stream = BinRDF.streamToOutputStream(out, format) ;
         stream.start();
         StreamOps.sendDatasetToStream(dsg, stream, prefixMap) ;
         stream.finish();
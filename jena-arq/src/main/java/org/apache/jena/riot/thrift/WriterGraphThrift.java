@@ -18,8 +18,6 @@
 
 package org.apache.jena.riot.thrift;
 
-import static org.apache.jena.riot.RDFLanguages.THRIFT ;
-
 import java.io.OutputStream ;
 import java.io.Writer ;
 
@@ -36,13 +34,13 @@ import org.apache.jena.sparql.util.Context ;
 /** Write a graph as RDF Thrift */
 public class WriterGraphThrift implements WriterGraphRIOT
 {
-    private final boolean withValues ;
+    private final RDFFormat format ;
     public WriterGraphThrift(RDFFormat fmt) {
-        this.withValues = RDFFormat.RDF_THRIFT_VALUES.equals(fmt) ;
+        this.format = fmt ;
     }
     @Override
     public Lang getLang() {
-        return THRIFT ;
+        return format.getLang() ;
     }
     @Override
     public void write(Writer out, Graph graph, PrefixMap prefixMap, String baseURI, Context context) {
@@ -50,7 +48,7 @@ public class WriterGraphThrift implements WriterGraphRIOT
     }
     @Override
     public void write(OutputStream out, Graph graph, PrefixMap prefixMap, String baseURI, Context context) {
-        StreamRDF stream = BinRDF.streamToOutputStream(out, withValues) ;
+        StreamRDF stream = BinRDF.streamToOutputStream(out, format) ;
         stream.start() ;
         StreamOps.graphToStream(graph, stream) ;
         stream.finish() ;
@@ -0,0 +1,466 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.tokens;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.NoSuchElementException;
+
+import org.apache.jena.riot.RiotParseException;
+import org.apache.jena.riot.system.FactoryRDFCaching;
+import org.apache.jena.riot.system.RiotChars;
+
+/**
+ * Tokenizer for N-Triples and N-Quads that scans the UTF-8 bytes of a
+ * {@link ByteBuffer}, such as a memory mapped file, in place.
+ * <p>
+ * Only the tokens of N-Triples and N-Quads are recognized: IRIs, blank nodes, strings
+ * with an optional language tag or datatype, and DOT. There is no character decoding
+ * step and no per-token {@code StringBuilder}; a {@code String} is created directly
+ * from the bytes of a token, and escapes are processed only if the token has any.
+ * <p>
+ * IRIs, blank node labels and language tags that are ASCII are looked up in a small
+ * cache keyed by the bytes, so a repeated term, such as a predicate, is the same
+ * {@code String} object each time and nothing is allocated for it. That also makes the
+ * node cache lookup in {@link FactoryRDFCaching} cheap because the string's hash code
+ * has already been calculated.
+ * <p>
+ * Columns count bytes, not characters.
+ */
+public final class TokenizerBytes implements Tokenizer
+{
+    // Direct mapped; a power of two.
+    private static final int CacheSize          = 1024;
+    private static final int MaxCachedLength    = 256;
+
+    private final ByteBuffer bytes;
+    private final int limit;
+    private int idx;
+    private long line = 1;
+    private int lineStart;
+    private Token token = null;
+    private boolean finished = false;
+
+    private final String[] cache = new String[CacheSize];
+    private char[] chars = new char[200];
+    private final StringBuilder stringBuilder = new StringBuilder(200);
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+
+    /** Tokenize the bytes from the position to the limit of the {@code ByteBuffer}. The position is not changed. */
+    /*package*/ TokenizerBytes(ByteBuffer bytes) {
+        this.bytes = bytes;
+        this.idx = bytes.position();
+        this.limit = bytes.limit();
+        // Byte order mark.
+        if ( limit-idx >= 3 && bytes.get(idx) == (byte)0xEF && bytes.get(idx+1) == (byte)0xBB && bytes.get(idx+2) == (byte)0xBF )
+            idx += 3;
+        this.lineStart = idx;
+    }
+
+    @Override
+    public final boolean hasNext() {
+        if ( finished )
+            return false;
+        if ( token != null )
+            return true;
+        skip();
+        if ( idx >= limit ) {
+            finished = true;
+            return false;
+        }
+        token = parseToken();
+        return true;
+    }
+
+    @Override
+    public final boolean eof() {
+        return !hasNext();
+    }
+
+    @Override
+    public final Token next() {
+        if ( !hasNext() )
+            throw new NoSuchElementException();
+        Token t = token;
+        token = null;
+        return t;
+    }
+
+    @Override
+    public final Token peek() {
+        if ( !hasNext() )
+            return null;
+        return token;
+    }
+
+    @Override
+    public void remove()
+    { throw new UnsupportedOperationException(); }
+
+    @Override
+    public long getLine() {
+        return line;
+    }
+
+    @Override
+    public long getColumn() {
+        return idx-lineStart+1;
+    }
+
+    /** The bytes belong to the caller. */
+    @Override
+    public void close() {}
+
+    // ---- Machinary
+
+    /** Skip whitespace, newlines and comments. */
+    private void skip() {
+        while ( idx < limit ) {
+            byte b = bytes.get(idx);
+            switch (b) {
+                case '#':
+                    while ( idx < limit && bytes.get(idx) != '\n' )
+                        idx++;
+                    break;
+                case '\n':
+                    idx++;
+                    line++;
+                    lineStart = idx;
+                    break;
+                case ' ': case '\t': case '\r':
+                    idx++;
+                    break;
+                default:
+                    return;
+            }
+        }
+    }
+
+    private Token parseToken() {
+        Token token = new Token(getLine(), getColumn());
+        byte b = bytes.get(idx);
+        switch (b) {
+            case '<':
+                idx++;
+                token.setType(TokenType.IRI);
+                token.setImage(readIRI());
+                return token;
+            case '"': case '\'':
+                idx++;
+                return readLiteral(token, b);
+            case '_':
+                idx++;
+                token.setType(TokenType.BNODE);
+                token.setImage(readBlankNodeLabel());
+                return token;
+            case '.':
+                idx++;
+                token.setType(TokenType.DOT);
+                return token;
+            default:
+                if ( b < 0x20 || b > 0x7E )
+                    error("Unexpected character (0x%02X)", b & 0xFF);
+                error("Unexpected character '%c'", (char)b);
+                return null;
+        }
+    }
+
+    private String readIRI() {
+        int start = idx;
+        boolean ascii = true;
+        boolean escapes = false;
+        for (;;) {
+            if ( idx >= limit )
+                error("Broken IRI (End of file)");
+            byte b = bytes.get(idx);
+            if ( b == '>' )
+                break;
+            if ( b < 0 )
+                ascii = false;
+            else if ( b == '\\' )
+                escapes = true;
+            else if ( b <= 0x20 || b == '<' )
+                badIRI(start, b);
+            else {
+                switch (b) {
+                    case '{': case '}': case '"': case '|': case '^': case '`' :
+                        error("Illegal character in IRI (codepoint 0x%02X, '%c'): <%s[%c]...>", b, (char)b, decode(start, idx), (char)b);
+                }
+            }
+            idx++;
+        }
+        int end = idx;
+        idx++;
+        if ( escapes )
+            return unescape(decode(start, end), true);
+        return ascii ? cached(start, end, false) : decode(start, end);
+    }
+
+    private void badIRI(int start, byte b) {
+        String soFar = decode(start, idx);
+        switch (b) {
+            case '\n':  error("Broken IRI (newline): %s", soFar);
+            case '\r':  error("Broken IRI (CR): %s", soFar);
+            case '\t':  error("Bad character in IRI (Tab character): <%s[tab]...>", soFar);
+            case ' ':   error("Bad character in IRI (space): <%s[space]...>", soFar);
+            case '<':   error("Bad character in IRI (bad character: '<'): <%s[<]...>", soFar);
+            default:    error("Illegal character in IRI (control char 0x%02X): <%s[0x%02X]...>", b, soFar, b);
+        }
+    }
+
+    private Token readLiteral(Token token, byte quote) {
+        if ( idx+1 < limit && bytes.get(idx) == quote && bytes.get(idx+1) == quote )
+            error("Triple quoted string not permitted");
+        int start = idx;
+        boolean ascii = true;
+        boolean escapes = false;
+        for (;;) {
+            if ( idx >= limit )
+                error("Broken token: %s", decode(start, idx));
+            byte b = bytes.get(idx);
+            if ( b == quote )
+                break;
+            if ( b == '\n' || b == '\r' )
+                error("Broken token (newline): %s", decode(start, idx));
+            if ( b == '\\' ) {
+                // The escaped character is ASCII.
+                escapes = true;
+                idx += 2;
+                continue;
+            }
+            if ( b < 0 )
+                ascii = false;
+            idx++;
+        }
+        int end = idx;
+        idx++;
+
+        String lexical;
+        if ( escapes )
+            lexical = unescape(decode(start, end), false);
+        else
+            lexical = ascii ? ascii(start, end) : decode(start, end);
+        token.setType(TokenType.STRING);
+        token.setStringType(quote == '"' ? StringType.STRING2 : StringType.STRING1);
+        token.setImage(lexical);
+
+        skip();
+        if ( idx < limit && bytes.get(idx) == '@' ) {
+            idx++;
+            Token mainToken = new Token(token);
+            mainToken.setType(TokenType.LITERAL_LANG);
+            mainToken.setSubToken1(token);
+            mainToken.setImage2(langTag());
+            return mainToken;
+        }
+        if ( idx < limit && bytes.get(idx) == '^' ) {
+            if ( idx+1 >= limit || bytes.get(idx+1) != '^' )
+                error("Expected \"^^\"");
+            idx += 2;
+            skip();
+            if ( idx >= limit || bytes.get(idx) != '<' )
+                error("Datatype URI required after ^^ - URI expected");
+            Token mainToken = new Token(token);
+            mainToken.setSubToken1(token);
+            mainToken.setImage(token.getImage());
+            Token subToken = new Token(getLine(), getColumn());
+            idx++;
+            subToken.setType(TokenType.IRI);
+            subToken.setImage(readIRI());
+            mainToken.setSubToken2(subToken);
+            mainToken.setType(TokenType.LITERAL_DT);
+            return mainToken;
+        }
+        return token;
+    }
+
+    private String langTag() {
+        int start = idx;
+        while ( idx < limit && isA2Z(bytes.get(idx)) )
+            idx++;
+        if ( idx == start )
+            error("Bad language tag");
+        while ( idx < limit && bytes.get(idx) == '-' ) {
+            idx++;
+            int x = idx;
+            while ( idx < limit && ( isA2Z(bytes.get(idx)) || isDigit(bytes.get(idx)) ) )
+                idx++;
+            if ( idx == x )
+                error("Bad language tag");
+        }
+        return cached(start, idx, true);
+    }
+
+    private String readBlankNodeLabel() {
+        if ( idx >= limit || bytes.get(idx) != ':' )
+            error("Expected ':' after '_' for a blank node label");
+        idx++;
+        if ( idx >= limit )
+            error("Blank node label missing (EOF found)");
+        int start = idx;
+        byte b = bytes.get(idx);
+        if ( b >= 0 && !RiotChars.isPNChars_U_N(b) ) {
+            if ( RiotChars.isWhitespace(b) )
+                error("Blank node label missing");
+            error("Blank node label does not start with alphabetic or _ :%c", (char)b);
+        }
+        boolean ascii = ( b >= 0 );
+        idx++;
+        while ( idx < limit ) {
+            b = bytes.get(idx);
+            if ( b < 0 )
+                ascii = false;
+            else if ( !RiotChars.isPNChars(b) && b != '.' )
+                break;
+            idx++;
+        }
+        // A label does not end in DOT.
+        while ( bytes.get(idx-1) == '.' )
+            idx--;
+        return ascii ? cached(start, idx, false) : decode(start, idx);
+    }
+
+    // ---- Strings from bytes
+
+    /** String for ASCII bytes, looked up in the cache. */
+    private String cached(int start, int end, boolean intern) {
+        int len = end-start;
+        if ( len > MaxCachedLength )
+            return ascii(start, end);
+        // Same as String.hashCode for ASCII.
+        int h = 0;
+        for ( int i = start ; i < end ; i++ )
+            h = 31*h + bytes.get(i);
+        int slot = (h ^ (h >>> 16)) & (CacheSize-1);
+        String s = cache[slot];
+        if ( s != null && sameChars(s, start, len) )
+            return s;
+        s = ascii(start, end);
+        if ( intern )
+            s = s.intern();
+        cache[slot] = s;
+        return s;
+    }
+
+    private boolean sameChars(String s, int start, int len) {
+        if ( s.length() != len )
+            return false;
+        for ( int i = 0 ; i < len ; i++ ) {
+            if ( s.charAt(i) != bytes.get(start+i) )
+                return false;
+        }
+        return true;
+    }
+
+    /** String for ASCII bytes. */
+    private String ascii(int start, int end) {
+        int len = end-start;
+        if ( chars.length < len )
+            chars = new char[Math.max(len, 2*chars.length)];
+        for ( int i = 0 ; i < len ; i++ )
+            chars[i] = (char)bytes.get(start+i);
+        return new String(chars, 0, len);
+    }
+
+    /** String for UTF-8 bytes. */
+    private String decode(int start, int end) {
+        ByteBuffer bb = bytes.duplicate();
+        bb.limit(end);
+        bb.position(start);
+        try {
+            return decoder.decode(bb).toString();
+        } catch (CharacterCodingException ex) {
+            error("Bad character encoding");
+            return null;
+        }
+    }
+
+    /** Process the escapes in an IRI or string. */
+    private String unescape(String s, boolean iri) {
+        stringBuilder.setLength(0);
+        int len = s.length();
+        for ( int i = 0 ; i < len ; i++ ) {
+            char ch = s.charAt(i);
+            if ( ch != '\\' ) {
+                stringBuilder.append(ch);
+                continue;
+            }
+            i++;
+            if ( i >= len )
+                error("Escape sequence not completed");
+            char c = s.charAt(i);
+            switch (c) {
+                case 'u':
+                    stringBuilder.appendCodePoint(hex(s, i+1, 4));
+                    i += 4;
+                    continue;
+                case 'U':
+                    stringBuilder.appendCodePoint(hex(s, i+1, 8));
+                    i += 8;
+                    continue;
+            }
+            if ( iri )
+                error("Illegal unicode escape sequence value: \\%c (0x%02X)", c, (int)c);
+            switch (c) {
+                case 'n':   stringBuilder.append('\n'); break;
+                case 'r':   stringBuilder.append('\r'); break;
+                case 't':   stringBuilder.append('\t'); break;
+                case 'f':   stringBuilder.append('\f'); break;
+                case 'b':   stringBuilder.append('\b'); break;
+                case '"':   stringBuilder.append('"'); break;
+                case '\'':  stringBuilder.append('\''); break;
+                case '\\':  stringBuilder.append('\\'); break;
+                default:
+                    error("Illegal escape sequence value: %c (0x%02X)", c, (int)c);
+            }
+        }
+        return stringBuilder.toString();
+    }
+
+    private int hex(String s, int start, int n) {
+        if ( start+n > s.length() )
+            error("Broken escape sequence");
+        int x = 0;
+        for ( int i = start ; i < start+n ; i++ ) {
+            int d = Character.digit(s.charAt(i), 16);
+            if ( d < 0 )
+                error("Expected hex digit in escape sequence: '%c'", s.charAt(i));
+            x = (x << 4) + d;
+        }
+        if ( !Character.isValidCodePoint(x) )
+            error("Illegal code point in escape sequence: 0x%X", x);
+        return x;
+    }
+
+    private static boolean isA2Z(byte b) {
+        return ( b >= 'a' && b <= 'z' ) || ( b >= 'A' && b <= 'Z' );
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    private void error(String message, Object... args) {
+        if ( args.length > 0 )
+            message = String.format(message, args);
+        throw new RiotParseException(message, getLine(), getColumn());
+    }
+}
@@ -22,6 +22,7 @@ import java.io.ByteArrayInputStream ;
 import java.io.InputStream ;
 import java.io.Reader ;
 import java.io.StringReader ;
+import java.nio.ByteBuffer ;
 
 import org.apache.jena.atlas.io.PeekReader ;
 import org.apache.jena.atlas.lib.StrUtils ;
@@ -50,6 +51,13 @@ public class TokenizerFactory {
         return tokenizer ;
     }
 
+    /** Tokenizer for N-Triples and N-Quads that works on UTF-8 bytes in place.
+     * @see TokenizerBytes
+     */
+    public static Tokenizer makeTokenizerBytes(ByteBuffer bytes) {
+        return new TokenizerBytes(bytes) ;
+    }
+
     public static Tokenizer makeTokenizerASCII(InputStream in) {
         PeekReader peekReader = PeekReader.makeASCII(in) ;
         Tokenizer tokenizer = new TokenizerText(peekReader) ;
@@ -0,0 +1,217 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.writer;
+
+import java.io.OutputStream ;
+import java.util.ArrayList ;
+import java.util.LinkedHashMap ;
+import java.util.List ;
+import java.util.Map ;
+import java.util.Objects ;
+
+import org.apache.jena.atlas.io.IndentedWriter ;
+import org.apache.jena.atlas.json.io.JSWriter ;
+import org.apache.jena.datatypes.xsd.XSDDatatype ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.riot.RiotException ;
+import org.apache.jena.riot.out.NodeFmtLib ;
+import org.apache.jena.riot.system.StreamRDF ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.graph.NodeConst ;
+
+/** Write JSON-LD, in expanded form, by streaming.
+ * <p>
+ * Consecutive triples with the same subject are written as one node object, so
+ * memory use is that of the triples of one subject, not the whole graph. Quads
+ * of a named graph are written in a node object for the graph with
+ * {@code "@graph"}. A subject or graph that appears again later in the stream
+ * is written as another node object with the same {@code "@id"}, which JSON-LD
+ * processors merge.
+ * <p>
+ * There is no {@code "@context"}, so prefixes are not used.
+ *
+ * @see JsonLDStreamWriter
+ */
+public class StreamWriterJSONLD implements StreamRDF {
+    private static final String xsdString = XSDDatatype.XSDstring.getURI() ;
+    private static final String rdfLangString = NodeConst.dtLangString.getURI() ;
+
+    private final IndentedWriter out ;
+    private int depth = 0 ;                 // Start/finish count
+    private boolean first = true ;          // No element yet in the current array.
+    private Node graph = null ;             // Null for the default graph.
+
+    // The node object being collected.
+    private Node subject = null ;
+    private final List<Node> types = new ArrayList<>() ;
+    private final Map<Node, List<Node>> properties = new LinkedHashMap<>() ;
+
+    public StreamWriterJSONLD(OutputStream out)   { this(new IndentedWriter(out)) ; }
+    public StreamWriterJSONLD(IndentedWriter out) { this.out = out ; }
+
+    @Override
+    public void start() {
+        if ( depth == 0 ) {
+            out.print("[") ;
+            out.incIndent() ;
+        }
+        depth++ ;
+    }
+
+    @Override
+    public void finish() {
+        depth-- ;
+        if ( depth != 0 )
+            return ;
+        finishNode() ;
+        finishGraph() ;
+        out.decIndent() ;
+        out.println() ;
+        out.println("]") ;
+        out.flush() ;
+    }
+
+    @Override public void base(String base) {} // Ignore.
+
+    @Override public void prefix(String prefix, String iri) {} // Ignore.
+
+    @Override
+    public void triple(Triple triple) {
+        add(null, triple.getSubject(), triple.getPredicate(), triple.getObject()) ;
+    }
+
+    @Override
+    public void quad(Quad quad) {
+        Node g = quad.getGraph() ;
+        if ( g != null && Quad.isDefaultGraph(g) )
+            g = null ;
+        add(g, quad.getSubject(), quad.getPredicate(), quad.getObject()) ;
+    }
+
+    private void add(Node g, Node s, Node p, Node o) {
+        if ( ! Objects.equals(g, graph) ) {
+            finishNode() ;
+            finishGraph() ;
+            if ( g != null )
+                startGraph(g) ;
+        }
+        if ( ! s.equals(subject) ) {
+            finishNode() ;
+            if ( ! s.isURI() && ! s.isBlank() )
+                throw new RiotException("JSON-LD: subject is not an IRI or blank node: "+s) ;
+            subject = s ;
+        }
+        if ( p.equals(NodeConst.nodeRDFType) && ! o.isLiteral() )
+            types.add(o) ;
+        else
+            properties.computeIfAbsent(p, x -> new ArrayList<>()).add(o) ;
+    }
+
+    private void startGraph(Node g) {
+        element() ;
+        out.print("{ \"@id\" : ") ;
+        writeId(g) ;
+        out.print(" , \"@graph\" : [") ;
+        out.incIndent() ;
+        first = true ;
+        graph = g ;
+    }
+
+    private void finishGraph() {
+        if ( graph == null )
+            return ;
+        out.decIndent() ;
+        out.println() ;
+        out.print("] }") ;
+        first = false ;
+        graph = null ;
+    }
+
+    private void finishNode() {
+        if ( subject == null )
+            return ;
+        element() ;
+        out.print("{ \"@id\" : ") ;
+        writeId(subject) ;
+        if ( ! types.isEmpty() ) {
+            out.print(" , \"@type\" : [ ") ;
+            for ( int i = 0 ; i < types.size() ; i++ ) {
+                if ( i > 0 )
+                    out.print(" , ") ;
+                writeId(types.get(i)) ;
+            }
+            out.print(" ]") ;
+        }
+        for ( Map.Entry<Node, List<Node>> e : properties.entrySet() ) {
+            out.print(" , ") ;
+            writeId(e.getKey()) ;
+            out.print(" : [ ") ;
+            List<Node> objects = e.getValue() ;
+            for ( int i = 0 ; i < objects.size() ; i++ ) {
+                if ( i > 0 )
+                    out.print(" , ") ;
+                writeObject(objects.get(i)) ;
+            }
+            out.print(" ]") ;
+        }
+        out.print(" }") ;
+        subject = null ;
+        types.clear() ;
+        properties.clear() ;
+    }
+
+    // Start an element of the current array.
+    private void element() {
+        if ( ! first )
+            out.print(",") ;
+        out.println() ;
+        first = false ;
+    }
+
+    private void writeObject(Node node) {
+        if ( ! node.isLiteral() ) {
+            out.print("{ \"@id\" : ") ;
+            writeId(node) ;
+            out.print(" }") ;
+            return ;
+        }
+        out.print("{ \"@value\" : ") ;
+        JSWriter.outputQuotedString(out, node.getLiteralLexicalForm()) ;
+        String lang = node.getLiteralLanguage() ;
+        String dt = node.getLiteralDatatypeURI() ;
+        if ( lang != null && ! lang.isEmpty() ) {
+            out.print(" , \"@language\" : ") ;
+            JSWriter.outputQuotedString(out, lang) ;
+        } else if ( dt != null && ! dt.equals(xsdString) && ! dt.equals(rdfLangString) ) {
+            out.print(" , \"@type\" : ") ;
+            JSWriter.outputQuotedString(out, dt) ;
+        }
+        out.print(" }") ;
+    }
+
+    private void writeId(Node node) {
+        if ( node.isURI() )
+            JSWriter.outputQuotedString(out, node.getURI()) ;
+        else if ( node.isBlank() )
+            JSWriter.outputQuotedString(out, "_:"+NodeFmtLib.encodeBNodeLabel(node.getBlankNodeLabel())) ;
+        else
+            throw new RiotException("JSON-LD: not an IRI or blank node: "+node) ;
+    }
+}
@@ -60,11 +60,21 @@ public abstract class WriterStreamRDFBase implements StreamRDF
     }
 
     public WriterStreamRDFBase(IndentedWriter output)
+    { 
+        this(output, NodeToLabel.createScopeByDocument()) ;
+    }
+
+    /**
+     * Write with the given blank node labelling policy. Writing the internal labels
+     * ({@link NodeToLabel#createBNodeByLabelEncoded()}) means output written in
+     * parts can be joined together.
+     */
+    public WriterStreamRDFBase(IndentedWriter output, NodeToLabel nodeToLabel)
     { 
         out = output ;
         baseURI = null ;
         pMap = PrefixMapFactory.create() ;
-        nodeToLabel = NodeToLabel.createScopeByDocument() ;
+        this.nodeToLabel = nodeToLabel ;
         setFormatter() ;
     }
 
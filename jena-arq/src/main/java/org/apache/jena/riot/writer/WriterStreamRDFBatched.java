@@ -27,6 +27,7 @@ import java.util.Objects;
 import org.apache.jena.atlas.io.IndentedWriter ;
 import org.apache.jena.graph.Node ;
 import org.apache.jena.graph.Triple ;
+import org.apache.jena.riot.out.NodeToLabel ;
 import org.apache.jena.sparql.core.Quad ;
 
 /** Convert the incoming print stream into batches. */
@@ -48,6 +49,9 @@ abstract class WriterStreamRDFBatched extends WriterStreamRDFBase
     public WriterStreamRDFBatched(IndentedWriter output)
     { super(output) ; }
 
+    public WriterStreamRDFBatched(IndentedWriter output, NodeToLabel nodeToLabel)
+    { super(output, nodeToLabel) ; }
+
     @Override
     protected final void startData()    { reset() ; }
 
@@ -28,6 +28,7 @@ import org.apache.jena.atlas.io.IndentedWriter ;
 import org.apache.jena.graph.Node ;
 import org.apache.jena.graph.Triple ;
 import org.apache.jena.riot.other.GLib ;
+import org.apache.jena.riot.out.NodeToLabel ;
 import org.apache.jena.riot.system.RiotLib ;
 import org.apache.jena.sparql.core.Quad ;
 
@@ -79,6 +80,10 @@ public class WriterStreamRDFBlocks extends WriterStreamRDFBatched
         super(output) ;
     }
 
+    public WriterStreamRDFBlocks(IndentedWriter output, NodeToLabel nodeToLabel) {
+        super(output, nodeToLabel) ;
+    }
+
     @Override
     protected void printBatchQuads(Node g, Node s, List<Quad> quads) {
         if ( g == null )
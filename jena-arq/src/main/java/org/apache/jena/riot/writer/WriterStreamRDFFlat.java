@@ -24,6 +24,7 @@ import java.io.Writer ;
 import org.apache.jena.atlas.io.IndentedWriter ;
 import org.apache.jena.graph.Node ;
 import org.apache.jena.graph.Triple ;
+import org.apache.jena.riot.out.NodeToLabel ;
 import org.apache.jena.sparql.core.Quad ;
 
 /** An output of triples / quads that is streaming.
@@ -42,6 +43,11 @@ public class WriterStreamRDFFlat extends WriterStreamRDFBase
         super(output) ;
     }
 
+    public WriterStreamRDFFlat(IndentedWriter output, NodeToLabel nodeToLabel)
+    { 
+        super(output, nodeToLabel) ;
+    }
+
     public WriterStreamRDFFlat(Writer output)
     { 
         super(output) ;
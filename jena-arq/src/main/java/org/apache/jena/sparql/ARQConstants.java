@@ -244,6 +244,9 @@ public class ARQConstants
     
     /** Context key for the execution-scoped bNode variable generator */
     public static final Symbol sysVarAllocAnon          = Symbol.create(systemVarNS+"namedVarAnon") ;
+
+    /** Context key for the execution-scoped memory budget of spilling operations */
+    public static final Symbol sysSpillBudget           = Symbol.create(systemVarNS+"spillBudget") ;
     
     /** Graphs forming the default graph (List&lt;String&gt;) (Dynamic dataset) */
     public static final Symbol symDatasetDefaultGraphs     = SystemARQ.allocSymbol("datasetDefaultGraphs") ;
@@ -0,0 +1,132 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine;
+
+import java.util.ArrayList ;
+import java.util.Collection ;
+import java.util.List ;
+import java.util.concurrent.ExecutionException ;
+import java.util.concurrent.ForkJoinPool ;
+import java.util.concurrent.Future ;
+import java.util.function.IntConsumer ;
+
+import org.apache.jena.query.ARQ ;
+import org.apache.jena.query.QueryCancelledException ;
+import org.apache.jena.query.QueryExecException ;
+import org.apache.jena.sparql.algebra.walker.Walker ;
+import org.apache.jena.sparql.expr.Expr ;
+import org.apache.jena.sparql.expr.ExprFunctionOp ;
+import org.apache.jena.sparql.expr.ExprVisitorBase ;
+
+/**
+ * Support for intra-query parallelism in query iterators.
+ * <p>
+ * Parallel execution is opt-in, per operator type, by context settings:
+ * {@link ARQ#parallelHashJoin} and {@link ARQ#parallelGroupBy}, with
+ * {@link ARQ#parallelism} limiting the number of tasks one operator runs at
+ * once. Tasks run in the common {@link ForkJoinPool}.
+ */
+public class ParallelExec
+{
+    /** Rows handed to one task. */
+    public static final int ChunkSize = 1024 ;
+
+    /** The degree of parallelism for one operator in this execution. */
+    public static int parallelism(ExecutionContext execCxt) {
+        int x = execCxt.getContext().getInt(ARQ.parallelism, -1) ;
+        if ( x <= 0 )
+            x = Runtime.getRuntime().availableProcessors() ;
+        return x ;
+    }
+
+    /** Whether hash joins should build and probe in parallel. */
+    public static boolean parallelHashJoin(ExecutionContext execCxt) {
+        return execCxt != null && execCxt.getContext().isTrue(ARQ.parallelHashJoin) && parallelism(execCxt) > 1 ;
+    }
+
+    /** Whether grouping should run in parallel. */
+    public static boolean parallelGroupBy(ExecutionContext execCxt) {
+        return execCxt != null && execCxt.getContext().isTrue(ARQ.parallelGroupBy) && parallelism(execCxt) > 1 ;
+    }
+
+    public static ForkJoinPool pool() {
+        return ForkJoinPool.commonPool() ;
+    }
+
+    /**
+     * Expressions that can be evaluated from several threads at once.
+     * EXISTS and NOT EXISTS run a sub-query that registers iterators with the
+     * {@link ExecutionContext}, which is not thread safe.
+     */
+    public static boolean isThreadSafe(Collection<Expr> exprs) {
+        if ( exprs == null )
+            return true ;
+        for ( Expr expr : exprs ) {
+            if ( ! isThreadSafe(expr) )
+                return false ;
+        }
+        return true ;
+    }
+
+    public static boolean isThreadSafe(Expr expr) {
+        if ( expr == null )
+            return true ;
+        boolean[] found = { false } ;
+        Walker.walk(expr, new ExprVisitorBase() {
+            @Override
+            public void visit(ExprFunctionOp op) { found[0] = true ; }
+        }) ;
+        return ! found[0] ;
+    }
+
+    /**
+     * Run {@code action} for each of {@code 0 .. tasks-1} in parallel and wait
+     * for all of them to finish.
+     */
+    public static void parallelFor(int tasks, IntConsumer action) {
+        if ( tasks == 1 ) {
+            action.accept(0) ;
+            return ;
+        }
+        List<Future<?>> futures = new ArrayList<>(tasks) ;
+        for ( int i = 0 ; i < tasks ; i++ ) {
+            final int task = i ;
+            futures.add(pool().submit(() -> action.accept(task))) ;
+        }
+        for ( Future<?> f : futures )
+            get(f) ;
+    }
+
+    /** Wait for a result; exceptions in the task are rethrown in this thread. */
+    public static <T> T get(Future<T> future) {
+        try {
+            return future.get() ;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt() ;
+            throw new QueryCancelledException() ;
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause() ;
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException)cause ;
+            if ( cause instanceof Error )
+                throw (Error)cause ;
+            throw new QueryExecException(cause) ;
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine;
+
+import java.lang.ref.WeakReference ;
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.List ;
+import java.util.Objects ;
+import java.util.Set ;
+import java.util.concurrent.CopyOnWriteArraySet ;
+import java.util.concurrent.atomic.AtomicLong ;
+import java.util.function.Function ;
+
+import org.apache.jena.atlas.lib.Cache ;
+import org.apache.jena.atlas.lib.CacheFactory ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.query.ARQ ;
+import org.apache.jena.query.Query ;
+import org.apache.jena.sparql.algebra.Op ;
+import org.apache.jena.sparql.algebra.Transformer ;
+import org.apache.jena.sparql.algebra.TransformCopy ;
+import org.apache.jena.sparql.algebra.op.OpBGP ;
+import org.apache.jena.sparql.core.BasicPattern ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.Substitute ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.binding.BindingFactory ;
+import org.apache.jena.sparql.engine.binding.BindingMap ;
+import org.apache.jena.sparql.pfunction.PropertyFunctionRegistry ;
+import org.apache.jena.sparql.util.Context ;
+import org.apache.jena.sparql.util.Symbol ;
+import org.apache.jena.vocabulary.RDF ;
+
+/**
+ * A bounded, least-recently-used cache of optimized algebra for queries.
+ * <p>
+ * The key is the algebra of the query in its serialized form, so differences
+ * of layout and comments do not matter, together with the dataset and the
+ * context settings that change the plan: the optimizer settings of
+ * {@link ARQ}, the TDB union default graph setting, and any added with
+ * {@link #addKeySymbol}.
+ * <p>
+ * Before optimization, the IRIs and literals in the subject and object
+ * positions of basic graph patterns are replaced by slot variables; after
+ * optimization the slots are substituted with the constants of the query, in
+ * the same way as initial bindings (e.g. from
+ * {@code QueryExecutionFactory.create(query, dataset, initialBinding)}).
+ * Queries that differ only in those constants, such as those made from a
+ * {@code ParameterizedSparqlString} or with initial bindings, share a plan.
+ * Constants elsewhere are part of the key: in FILTER and other expressions,
+ * in VALUES, in predicates, in property function and RDF list triples, because
+ * the optimizer uses them (e.g. filter equality and property functions).
+ * Plans made with {@link ARQ#optReorderBGP} are reordered without knowing
+ * the slot constants.
+ * <p>
+ * The dataset is part of the key by identity; the cache does not keep
+ * it from being garbage collected.
+ * <p>
+ * Queries with FROM or FROM NAMED are not cached because they are executed
+ * over a dataset built for each execution.
+ * <p>
+ * A plan cache is an option of a {@link QueryEngineFactory}; see
+ * {@link QueryEngineFactory#getPlanCache()}. It can be bypassed for a query or
+ * dataset by setting {@link ARQ#planCache} to false in the context.
+ */
+public class PlanCache
+{
+    private final Cache<Key, Op> cache ;
+    private final int maxSize ;
+    private final AtomicLong hits = new AtomicLong(0) ;
+    private final AtomicLong misses = new AtomicLong(0) ;
+
+    // Context settings that are part of the key.
+    private static final Set<Symbol> keySymbols = new CopyOnWriteArraySet<>(Arrays.asList(
+        ARQ.optimization, ARQ.optPathFlatten, ARQ.optFilterPlacement, ARQ.optFilterPlacementBGP,
+        ARQ.optFilterPlacementConservative, ARQ.optTopNSorting, ARQ.optDistinctToReduced,
+        ARQ.optOrderByDistinctApplication, ARQ.optFilterEquality, ARQ.optFilterInequality,
+        ARQ.optFilterImplicitJoin, ARQ.optImplicitLeftJoin, ARQ.optExprConstantFolding,
+        ARQ.optFilterConjunction, ARQ.optFilterExpandOneOf, ARQ.optFilterDisjunction,
+        ARQ.optPromoteTableEmpty, ARQ.optIndexJoinStrategy, ARQ.optInlineAssignments,
+        ARQ.optInlineAssignmentsAggressive, ARQ.optMergeBGPs, ARQ.optMergeExtends,
+        ARQ.optReorderBGP,
+        // Union default graph of TDB and TDB2.
+        Symbol.create("http://jena.hpl.hp.com/TDB#unionDefaultGraph"),
+        Symbol.create("http://jena.apache.org/TDB#unionDefaultGraph"))) ;
+
+    /**
+     * Make a context setting part of the key of cached plans, for settings that
+     * change the algebra produced for a query, such as a union default graph.
+     */
+    public static void addKeySymbol(Symbol symbol)
+    {
+        keySymbols.add(symbol) ;
+    }
+
+    public PlanCache(int maxSize)
+    {
+        this.maxSize = maxSize ;
+        this.cache = CacheFactory.createCache(maxSize) ;
+    }
+
+    /** Whether the cache can be used for this execution. */
+    public static boolean isEnabled(PlanCache planCache, Query query, Context context)
+    {
+        return planCache != null && query != null && ! query.hasDatasetDescription() && ! context.isFalse(ARQ.planCache) ;
+    }
+
+    /**
+     * Get the optimized algebra for the algebra of a query, calling
+     * {@code optimize} if it is not in the cache. The returned algebra has the
+     * constants of {@code op} and the initial bindings substituted.
+     */
+    public Op get(Op op, DatasetGraph dataset, Binding binding, Context context, Function<Op, Op> optimize)
+    {
+        Slots slots = new Slots(PropertyFunctionRegistry.chooseRegistry(context), binding) ;
+        Op slotOp = Transformer.transform(slots, op) ;
+        List<Object> settings = new ArrayList<>(keySymbols.size()) ;
+        for ( Symbol symbol : keySymbols )
+            settings.add(context.get(symbol)) ;
+        Key key = new Key(slotOp.toString(), dataset, settings) ;
+        Op plan = cache.getIfPresent(key) ;
+        if ( plan != null )
+            hits.incrementAndGet() ;
+        else
+        {
+            misses.incrementAndGet() ;
+            plan = optimize.apply(slotOp) ;
+            cache.put(key, plan) ;
+        }
+        if ( slots.values.isEmpty() )
+            return plan ;
+        return Substitute.substitute(plan, slots.values) ;
+    }
+
+    public long getHits()       { return hits.get() ; }
+    public long getMisses()     { return misses.get() ; }
+    public long size()          { return cache.size() ; }
+    public int getMaxSize()     { return maxSize ; }
+
+    public void clear()
+    {
+        cache.clear() ;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("PlanCache[size=%d/%d, hits=%d, misses=%d]", size(), maxSize, getHits(), getMisses()) ;
+    }
+
+    // Prefix of slot variables: not a legal SPARQL variable name.
+    private static final String slotPrefix = "/slot" ;
+
+    /**
+     * Replace the IRIs and literals in the subject and object positions of
+     * basic graph patterns by slot variables, recording the constants as
+     * bindings of the slots.
+     */
+    private static final class Slots extends TransformCopy
+    {
+        private final PropertyFunctionRegistry registry ;
+        private final BindingMap values ;
+        private int count = 0 ;
+
+        Slots(PropertyFunctionRegistry registry, Binding binding)
+        {
+            this.registry = registry ;
+            this.values = BindingFactory.create(binding) ;
+        }
+
+        @Override
+        public Op transform(OpBGP opBGP)
+        {
+            BasicPattern bgp = new BasicPattern() ;
+            for ( Triple triple : opBGP.getPattern() )
+            {
+                if ( isFixed(triple.getPredicate()) )
+                    bgp.add(triple) ;
+                else
+                    bgp.add(Triple.create(slot(triple.getSubject()), triple.getPredicate(), slot(triple.getObject()))) ;
+            }
+            return new OpBGP(bgp) ;
+        }
+
+        // Triples that are compiled according to their constants.
+        private boolean isFixed(Node predicate)
+        {
+            if ( ! predicate.isURI() )
+                return false ;
+            if ( predicate.equals(RDF.Nodes.first) || predicate.equals(RDF.Nodes.rest) )
+                return true ;
+            return registry != null && registry.isRegistered(predicate.getURI()) ;
+        }
+
+        private Node slot(Node node)
+        {
+            if ( ! node.isURI() && ! node.isLiteral() )
+                return node ;
+            Var var = Var.alloc(slotPrefix + (count++)) ;
+            values.add(var, node) ;
+            return var ;
+        }
+    }
+
+    private static final class Key
+    {
+        private final String opString ;
+        // Identity of the dataset, not keeping it reachable.
+        private final WeakReference<DatasetGraph> dataset ;
+        private final int datasetHash ;
+        private final List<Object> settings ;
+
+        Key(String opString, DatasetGraph dataset, List<Object> settings)
+        {
+            this.opString = opString ;
+            this.dataset = new WeakReference<>(dataset) ;
+            this.datasetHash = System.identityHashCode(dataset) ;
+            this.settings = settings ;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(opString, datasetHash, settings) ;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if ( this == obj ) return true ;
+            if ( ! ( obj instanceof Key ) ) return false ;
+            Key other = (Key)obj ;
+            DatasetGraph dsg = dataset.get() ;
+            // A key whose dataset has gone matches nothing and is evicted in time.
+            return dsg != null && dsg == other.dataset.get()
+                && settings.equals(other.settings) && opString.equals(other.opString) ;
+        }
+    }
+}
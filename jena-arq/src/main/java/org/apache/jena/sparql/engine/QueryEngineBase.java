@@ -44,6 +44,7 @@ public abstract class QueryEngineBase implements OpEval, Closeable
     private Query query = null ;
     private Op queryOp = null ;
     private Plan plan = null ;
+    private PlanCache planCache = null ;
     
     protected QueryEngineBase(Query query,
                               DatasetGraph dataset, 
@@ -92,13 +93,20 @@ public abstract class QueryEngineBase implements OpEval, Closeable
     {
         // Decide the algebra to actually execute.
         Op op = queryOp ;
-        if ( ! startBinding.isEmpty() ) {
-            op = Substitute.substitute(op, startBinding) ;
-            context.put(ARQConstants.sysCurrentAlgebra, op) ;
-            // Don't reset the startBinding because it also is
-            // needed in the output.
+        if ( PlanCache.isEnabled(planCache, query, context) ) {
+            // Optimize without the start binding and the constants of the
+            // query so the plan can be shared; the cache substitutes them.
+            op = planCache.get(queryOp, dataset, startBinding, context, this::modifyOp) ;
+            setOp(op) ;
+        } else {
+            if ( ! startBinding.isEmpty() ) {
+                op = Substitute.substitute(op, startBinding) ;
+                context.put(ARQConstants.sysCurrentAlgebra, op) ;
+                // Don't reset the startBinding because it also is
+                // needed in the output.
+            }
+            op = modifyOp(op) ;
         }
-        op = modifyOp(op) ;
 
         QueryIterator queryIterator = null ;
         if ( dataset != null )
@@ -153,6 +161,12 @@ public abstract class QueryEngineBase implements OpEval, Closeable
     public void close()
     { }
     
+    /** Use a cache of optimized algebra; call before {@link #getPlan()}. */
+    protected void usePlanCache(PlanCache planCache)
+    {
+        this.planCache = planCache ;
+    }
+
     protected void setOp(Op op)
     { 
         queryOp = op ;
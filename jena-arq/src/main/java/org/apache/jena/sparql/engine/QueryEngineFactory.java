@@ -89,4 +89,11 @@ public interface QueryEngineFactory {
      * @param context
      */
 	public Plan create(Op op, DatasetGraph dataset, Binding inputBinding, Context context);
+
+	/**
+	 * The cache of optimized algebra used by the query engines of this factory
+	 * for {@link #create(Query, DatasetGraph, Binding, Context)}, or null if
+	 * plans are not cached (the default).
+	 */
+	public default PlanCache getPlanCache() { return null; }
 }
@@ -0,0 +1,81 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+import java.util.HashMap ;
+import java.util.HashSet ;
+import java.util.Map ;
+import java.util.Set ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+
+/**
+ * Distinct over batches: rows already seen are removed from the selection
+ * vector. Memory use grows with the number of distinct rows; this is the
+ * in-memory strategy of {@code QueryIterDistinct} before it spills.
+ */
+class BatchIterDistinct extends BatchIter1
+{
+    // Numbering of variables across all batches seen.
+    private final Map<Var, Integer> varIndex = new HashMap<>() ;
+    private final Set<RowKey> seen = new HashSet<>() ;
+    private boolean[] keep ;
+
+    BatchIterDistinct(BatchIterator input, ExecutionContext execCxt, int batchSize) {
+        super(input, execCxt, batchSize) ;
+        this.keep = new boolean[batchSize] ;
+    }
+
+    @Override
+    protected BindingBatch moveToNextBatch() {
+        if ( ! input.hasNext() )
+            return null ;
+        BindingBatch batch = input.next() ;
+        int width = batch.width() ;
+        int[] layout = new int[width] ;
+        for ( int col = 0 ; col < width ; col++ ) {
+            Var v = batch.var(col) ;
+            Integer x = varIndex.get(v) ;
+            if ( x == null ) {
+                x = varIndex.size() ;
+                varIndex.put(v, x) ;
+            }
+            layout[col] = x ;
+        }
+        int n = batch.selected() ;
+        if ( keep.length < n )
+            keep = new boolean[n] ;
+        for ( int i = 0 ; i < n ; i++ ) {
+            int row = batch.row(i) ;
+            Node[] key = new Node[varIndex.size()] ;
+            for ( int col = 0 ; col < width ; col++ )
+                key[layout[col]] = batch.get(row, col) ;
+            keep[i] = seen.add(new RowKey(key)) ;
+        }
+        batch.select(keep) ;
+        return batch ;
+    }
+
+    @Override
+    protected void closeSubIterator() {
+        seen.clear() ;
+    }
+}
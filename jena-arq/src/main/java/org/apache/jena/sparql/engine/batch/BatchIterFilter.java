@@ -0,0 +1,71 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+import org.apache.jena.atlas.logging.Log ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.expr.Expr ;
+import org.apache.jena.sparql.expr.ExprException ;
+import org.apache.jena.sparql.expr.ExprList ;
+
+/** Filter batches by updating the selection vector. */
+class BatchIterFilter extends BatchIter1
+{
+    private final ExprList exprs ;
+    private final BindingBatchRow rowView = new BindingBatchRow() ;
+    private boolean[] keep ;
+
+    BatchIterFilter(BatchIterator input, ExprList exprs, ExecutionContext execCxt, int batchSize) {
+        super(input, execCxt, batchSize) ;
+        this.exprs = exprs ;
+        this.keep = new boolean[batchSize] ;
+    }
+
+    @Override
+    protected BindingBatch moveToNextBatch() {
+        if ( ! input.hasNext() )
+            return null ;
+        BindingBatch batch = input.next() ;
+        int n = batch.selected() ;
+        if ( keep.length < n )
+            keep = new boolean[n] ;
+        rowView.set(batch) ;
+        for ( int i = 0 ; i < n ; i++ )
+            keep[i] = accept(rowView.setRow(batch.row(i))) ;
+        batch.select(keep) ;
+        return batch ;
+    }
+
+    // As QueryIterFilterExpr, applied to each expression in turn.
+    private boolean accept(BindingBatchRow row) {
+        for ( Expr expr : exprs ) {
+            try {
+                if ( ! expr.isSatisfied(row, execCxt) )
+                    return false ;
+            } catch (ExprException ex) {
+                Log.warn(this, "Expression Exception in "+expr, ex) ;
+                return false ;
+            } catch (Exception ex) {
+                Log.warn(this, "General exception in "+expr, ex) ;
+                return false ;
+            }
+        }
+        return true ;
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.LinkedHashMap ;
+import java.util.List ;
+import java.util.Map ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.core.VarExprList ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.expr.ExprAggregator ;
+import org.apache.jena.sparql.expr.NodeValue ;
+import org.apache.jena.sparql.expr.aggregate.Accumulator ;
+
+/**
+ * Grouping and aggregation over batches, with the same results as
+ * {@code QueryIterGroup}. Group keys and aggregates are evaluated against a
+ * row view of each batch so input rows are not materialized as bindings.
+ */
+class BatchIterGroup extends BatchIter1
+{
+    private final VarExprList groupVars ;
+    private final List<ExprAggregator> aggregators ;
+    private final Var[] keyVars ;
+    private final Var[] outVars ;
+    private Iterator<Map.Entry<RowKey, Accumulator[]>> results = null ;
+    private boolean emptyInput = false ;
+
+    BatchIterGroup(BatchIterator input, VarExprList groupVars, List<ExprAggregator> aggregators,
+                   ExecutionContext execCxt, int batchSize) {
+        super(input, execCxt, batchSize) ;
+        this.groupVars = groupVars ;
+        this.aggregators = ( aggregators == null ) ? new ArrayList<>() : aggregators ;
+        List<Var> kv = groupVars.getVars() ;
+        this.keyVars = kv.toArray(new Var[kv.size()]) ;
+        List<Var> vars = new ArrayList<>(kv) ;
+        for ( ExprAggregator agg : this.aggregators )
+            vars.add(agg.getVar()) ;
+        this.outVars = vars.toArray(new Var[vars.size()]) ;
+    }
+
+    private void calc() {
+        Map<RowKey, Accumulator[]> groups = new LinkedHashMap<>() ;
+        BindingBatchRow rowView = new BindingBatchRow() ;
+        int numAgg = aggregators.size() ;
+        while ( input.hasNext() ) {
+            BindingBatch batch = input.next() ;
+            rowView.set(batch) ;
+            for ( int i = 0 ; i < batch.selected() ; i++ ) {
+                rowView.setRow(batch.row(i)) ;
+                Node[] key = new Node[keyVars.length] ;
+                for ( int k = 0 ; k < keyVars.length ; k++ )
+                    key[k] = groupVars.get(keyVars[k], rowView, execCxt) ;
+                RowKey rowKey = new RowKey(key) ;
+                Accumulator[] accs = groups.get(rowKey) ;
+                if ( accs == null ) {
+                    accs = new Accumulator[numAgg] ;
+                    for ( int a = 0 ; a < numAgg ; a++ )
+                        accs[a] = aggregators.get(a).getAggregator().createAccumulator() ;
+                    groups.put(rowKey, accs) ;
+                }
+                for ( Accumulator acc : accs )
+                    acc.accumulate(rowView, execCxt) ;
+            }
+        }
+        // No input rows: no groups, except that with aggregators there is one
+        // row of default values.
+        emptyInput = groups.isEmpty() ;
+        results = groups.entrySet().iterator() ;
+    }
+
+    @Override
+    protected BindingBatch moveToNextBatch() {
+        if ( results == null ) {
+            calc() ;
+            if ( emptyInput )
+                return aggregators.isEmpty() ? null : emptyGroup() ;
+        }
+        if ( ! results.hasNext() )
+            return null ;
+        BindingBatch batch = BindingBatch.create(outVars, batchSize) ;
+        while ( ! batch.isFull() && results.hasNext() ) {
+            Map.Entry<RowKey, Accumulator[]> e = results.next() ;
+            int row = batch.addRow() ;
+            RowKey key = e.getKey() ;
+            for ( int k = 0 ; k < keyVars.length ; k++ )
+                batch.set(row, k, key.get(k)) ;
+            Accumulator[] accs = e.getValue() ;
+            for ( int a = 0 ; a < accs.length ; a++ ) {
+                NodeValue value = accs[a].getValue() ;
+                if ( value != null )
+                    batch.set(row, keyVars.length + a, value.asNode()) ;
+            }
+        }
+        return batch ;
+    }
+
+    private BindingBatch emptyGroup() {
+        BindingBatch batch = BindingBatch.create(outVars, 1) ;
+        int row = batch.addRow() ;
+        for ( int a = 0 ; a < aggregators.size() ; a++ ) {
+            Node value = aggregators.get(a).getAggregator().getValueEmpty() ;
+            batch.set(row, keyVars.length + a, value) ;
+        }
+        return batch ;
+    }
+}
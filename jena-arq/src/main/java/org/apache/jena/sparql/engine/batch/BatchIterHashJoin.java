@@ -0,0 +1,215 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+import java.util.* ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.join.JoinKey ;
+
+/**
+ * Hash join of batches. The right-hand side is read into a hash table on the
+ * first variable of the join key; the left batches are streamed and probe the
+ * table. Right rows without the key variable bound are checked against every
+ * left row, and left rows without the key variable check all right rows,
+ * as {@code HashProbeTable} does for bindings.
+ */
+class BatchIterHashJoin extends BatchIterator
+{
+    private final BatchIterator left ;
+    private final BatchIterator right ;
+    private final Var keyVar ;
+
+    // Build side, row-major, values laid out by rightVars.
+    private boolean built = false ;
+    private final List<Var> rightVars = new ArrayList<>() ;
+    private final Map<Node, List<Node[]>> buckets = new HashMap<>() ;
+    private final List<Node[]> noKey = new ArrayList<>() ;
+    private final List<Node[]> allRows = new ArrayList<>() ;
+
+    // Probe state.
+    private BindingBatch leftBatch = null ;
+    private int leftIdx = 0 ;
+    private int leftRow = -1 ;
+    private Var[] outVars ;
+    private int[] rightToLeft ;     // For each right variable, the left column or -1.
+    private int[] rightToOut ;      // For each right variable, the output column.
+    private List<List<Node[]>> candidates = Collections.emptyList() ;
+    private int candList = 0 ;
+    private int candIdx = 0 ;
+    private BindingBatch outBatch = null ;
+
+    BatchIterHashJoin(JoinKey joinKey, BatchIterator left, BatchIterator right, ExecutionContext execCxt, int batchSize) {
+        super(execCxt, batchSize) ;
+        this.left = left ;
+        this.right = right ;
+        this.keyVar = ( joinKey == null || joinKey.isEmpty() ) ? null : joinKey.getVarKey() ;
+    }
+
+    private void build() {
+        built = true ;
+        Map<Var, Integer> varIndex = new HashMap<>() ;
+        while ( right.hasNext() ) {
+            BindingBatch batch = right.next() ;
+            int width = batch.width() ;
+            int[] layout = new int[width] ;
+            for ( int col = 0 ; col < width ; col++ ) {
+                Var v = batch.var(col) ;
+                Integer x = varIndex.get(v) ;
+                if ( x == null ) {
+                    x = rightVars.size() ;
+                    varIndex.put(v, x) ;
+                    rightVars.add(v) ;
+                }
+                layout[col] = x ;
+            }
+            int keyCol = ( keyVar == null ) ? -1 : batch.column(keyVar) ;
+            for ( int i = 0 ; i < batch.selected() ; i++ ) {
+                int row = batch.row(i) ;
+                Node[] values = new Node[rightVars.size()] ;
+                for ( int col = 0 ; col < width ; col++ )
+                    values[layout[col]] = batch.get(row, col) ;
+                allRows.add(values) ;
+                Node key = ( keyCol < 0 ) ? null : values[layout[keyCol]] ;
+                if ( key == null )
+                    noKey.add(values) ;
+                else
+                    buckets.computeIfAbsent(key, k -> new ArrayList<>()).add(values) ;
+            }
+        }
+        right.close() ;
+    }
+
+    @Override
+    protected BindingBatch moveToNextBatch() {
+        if ( ! built ) {
+            build() ;
+            if ( allRows.isEmpty() )
+                return null ;
+        }
+        for ( ;; ) {
+            while ( candList < candidates.size() ) {
+                List<Node[]> list = candidates.get(candList) ;
+                while ( candIdx < list.size() ) {
+                    Node[] rightRow = list.get(candIdx++) ;
+                    if ( ! compatible(rightRow) )
+                        continue ;
+                    emit(rightRow) ;
+                    if ( outBatch.isFull() )
+                        return takeOutput() ;
+                }
+                candList++ ;
+                candIdx = 0 ;
+            }
+            if ( leftBatch != null && leftIdx < leftBatch.selected() ) {
+                leftRow = leftBatch.row(leftIdx++) ;
+                probe(leftRow) ;
+                continue ;
+            }
+            if ( outBatch != null && outBatch.size() > 0 )
+                return takeOutput() ;
+            if ( ! left.hasNext() )
+                return null ;
+            startBatch(left.next()) ;
+        }
+    }
+
+    private void startBatch(BindingBatch batch) {
+        leftBatch = batch ;
+        leftIdx = 0 ;
+        List<Var> vars = new ArrayList<>(Arrays.asList(batch.vars())) ;
+        int n = rightVars.size() ;
+        rightToLeft = new int[n] ;
+        rightToOut = new int[n] ;
+        for ( int i = 0 ; i < n ; i++ ) {
+            Var v = rightVars.get(i) ;
+            int col = batch.column(v) ;
+            rightToLeft[i] = col ;
+            if ( col < 0 ) {
+                col = vars.size() ;
+                vars.add(v) ;
+            }
+            rightToOut[i] = col ;
+        }
+        outVars = vars.toArray(new Var[vars.size()]) ;
+    }
+
+    private void probe(int row) {
+        Node key = ( keyVar == null ) ? null : leftBatch.get(row, keyVar) ;
+        if ( key == null ) {
+            candidates = Collections.singletonList(allRows) ;
+        } else {
+            List<Node[]> bucket = buckets.get(key) ;
+            if ( bucket == null )
+                candidates = Collections.singletonList(noKey) ;
+            else
+                candidates = Arrays.asList(bucket, noKey) ;
+        }
+        candList = 0 ;
+        candIdx = 0 ;
+    }
+
+    private boolean compatible(Node[] rightRow) {
+        for ( int i = 0 ; i < rightRow.length ; i++ ) {
+            int col = rightToLeft[i] ;
+            if ( col < 0 || rightRow[i] == null )
+                continue ;
+            Node n = leftBatch.get(leftRow, col) ;
+            if ( n != null && ! n.equals(rightRow[i]) )
+                return false ;
+        }
+        return true ;
+    }
+
+    private void emit(Node[] rightRow) {
+        if ( outBatch == null )
+            outBatch = BindingBatch.create(outVars, batchSize) ;
+        int row = outBatch.addRow() ;
+        int width = leftBatch.width() ;
+        for ( int col = 0 ; col < width ; col++ )
+            outBatch.set(row, col, leftBatch.get(leftRow, col)) ;
+        for ( int i = 0 ; i < rightRow.length ; i++ ) {
+            if ( rightRow[i] != null )
+                outBatch.set(row, rightToOut[i], rightRow[i]) ;
+        }
+    }
+
+    private BindingBatch takeOutput() {
+        BindingBatch b = outBatch ;
+        outBatch = null ;
+        return b ;
+    }
+
+    @Override
+    protected void closeBatchIterator() {
+        left.close() ;
+        right.close() ;
+        buckets.clear() ;
+        noKey.clear() ;
+        allRows.clear() ;
+    }
+
+    @Override
+    protected void requestCancel() {
+        left.cancel() ;
+        right.cancel() ;
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+import java.util.Arrays ;
+
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+
+/** Remove the columns of non-distinguished variables (cf. {@code QueryIterDistinguishedVars}). */
+class BatchIterNamedVars extends BatchIter1
+{
+    BatchIterNamedVars(BatchIterator input, ExecutionContext execCxt, int batchSize) {
+        super(input, execCxt, batchSize) ;
+    }
+
+    @Override
+    protected BindingBatch moveToNextBatch() {
+        if ( ! input.hasNext() )
+            return null ;
+        BindingBatch batch = input.next() ;
+        Var[] vars = Arrays.stream(batch.vars()).filter(v -> v.isNamedVar()).toArray(Var[]::new) ;
+        if ( vars.length == batch.width() )
+            return batch ;
+        return batch.project(vars) ;
+    }
+}
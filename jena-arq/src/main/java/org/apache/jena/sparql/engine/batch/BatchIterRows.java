@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.LinkedHashSet ;
+import java.util.List ;
+import java.util.Set ;
+
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+
+/** Batches from a row-at-a-time {@link QueryIterator}. */
+class BatchIterRows extends BatchIterator
+{
+    private final QueryIterator input ;
+    private final List<Binding> rows ;
+    private boolean started = false ;
+
+    BatchIterRows(QueryIterator input, ExecutionContext execCxt, int batchSize) {
+        super(execCxt, batchSize) ;
+        this.input = input ;
+        this.rows = new ArrayList<>(batchSize) ;
+    }
+
+    /** The input, if no batches have been taken yet, else null. */
+    QueryIterator unwrap() {
+        return started ? null : input ;
+    }
+
+    @Override
+    public boolean isJoinIdentity() {
+        return ! started && input.isJoinIdentity() ;
+    }
+
+    @Override
+    protected BindingBatch moveToNextBatch() {
+        started = true ;
+        rows.clear() ;
+        Set<Var> vars = new LinkedHashSet<>() ;
+        while ( rows.size() < batchSize && input.hasNext() ) {
+            Binding b = input.nextBinding() ;
+            rows.add(b) ;
+            for ( Iterator<Var> iter = b.vars() ; iter.hasNext() ; )
+                vars.add(iter.next()) ;
+        }
+        if ( rows.isEmpty() )
+            return null ;
+        BindingBatch batch = BindingBatch.create(new ArrayList<>(vars), rows.size()) ;
+        for ( Binding b : rows ) {
+            int row = batch.addRow() ;
+            for ( int col = 0 ; col < batch.width() ; col++ ) {
+                // Not in the binding -> null -> unbound.
+                batch.set(row, col, b.get(batch.var(col))) ;
+            }
+        }
+        rows.clear() ;
+        return batch ;
+    }
+
+    @Override
+    protected void closeBatchIterator() {
+        input.close() ;
+    }
+
+    @Override
+    protected void requestCancel() {
+        input.cancel() ;
+    }
+}
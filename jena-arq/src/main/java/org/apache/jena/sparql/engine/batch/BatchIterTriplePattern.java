@@ -0,0 +1,201 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.List ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.sparql.core.BasicPattern ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderLib ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation ;
+import org.apache.jena.util.iterator.ExtendedIterator ;
+
+/**
+ * Match one triple pattern against the active graph for each selected row of
+ * the input batches. Output batches have the input columns followed by the
+ * new variables of the pattern.
+ */
+class BatchIterTriplePattern extends BatchIter1
+{
+    private static final ReorderTransformation reorderFixed = ReorderLib.fixed() ;
+
+    /** A basic graph pattern as a chain of triple pattern steps. */
+    static BatchIterator create(BatchIterator input, BasicPattern pattern, ExecutionContext execCxt, int batchSize) {
+        if ( pattern.size() >= 2 )
+            pattern = reorderFixed.reorder(pattern) ;
+        BatchIterator chain = input ;
+        for ( Triple triple : pattern )
+            chain = new BatchIterTriplePattern(chain, triple, execCxt, batchSize) ;
+        return chain ;
+    }
+
+    private final Graph graph ;
+    // Pattern slots: the constant or the variable at each of S, P, O.
+    private final Node[] slots ;
+    private final Var[] slotVars ;
+
+    // Current input batch and its layout.
+    private BindingBatch inBatch = null ;
+    private int inIdx = 0 ;
+    private Var[] outVars = null ;
+    private int[] slotColumn = null ;       // Output column for each variable slot, -1 for constants.
+    private int[] slotInColumn = null ;     // Input column for each variable slot, -1 if not in the input.
+
+    // Current input row.
+    private int inRow = -1 ;
+    private ExtendedIterator<Triple> graphIter = null ;
+    private final boolean[] slotBound = new boolean[3] ;
+
+    private BindingBatch outBatch = null ;
+
+    private BatchIterTriplePattern(BatchIterator input, Triple triple, ExecutionContext execCxt, int batchSize) {
+        super(input, execCxt, batchSize) ;
+        this.graph = execCxt.getActiveGraph() ;
+        this.slots = new Node[] {triple.getSubject(), triple.getPredicate(), triple.getObject()} ;
+        this.slotVars = new Var[3] ;
+        for ( int i = 0 ; i < 3 ; i++ )
+            slotVars[i] = Var.isVar(slots[i]) ? Var.alloc(slots[i]) : null ;
+    }
+
+    @Override
+    protected BindingBatch moveToNextBatch() {
+        for ( ;; ) {
+            if ( graphIter != null ) {
+                while ( graphIter.hasNext() ) {
+                    Triple t = graphIter.next() ;
+                    if ( ! accept(t) )
+                        continue ;
+                    emit(t) ;
+                    if ( outBatch.isFull() )
+                        return takeOutput() ;
+                }
+                graphIter.close() ;
+                graphIter = null ;
+            }
+            if ( inBatch != null && inIdx < inBatch.selected() ) {
+                inRow = inBatch.row(inIdx++) ;
+                graphIter = find(inRow) ;
+                continue ;
+            }
+            // Output batches have one layout so finish this one before moving on.
+            if ( outBatch != null && outBatch.size() > 0 )
+                return takeOutput() ;
+            if ( ! input.hasNext() )
+                return null ;
+            startBatch(input.next()) ;
+        }
+    }
+
+    private void startBatch(BindingBatch batch) {
+        inBatch = batch ;
+        inIdx = 0 ;
+        List<Var> vars = new ArrayList<>(Arrays.asList(batch.vars())) ;
+        slotColumn = new int[3] ;
+        slotInColumn = new int[3] ;
+        for ( int i = 0 ; i < 3 ; i++ ) {
+            Var v = slotVars[i] ;
+            if ( v == null ) {
+                slotColumn[i] = -1 ;
+                slotInColumn[i] = -1 ;
+                continue ;
+            }
+            slotInColumn[i] = batch.column(v) ;
+            int col = vars.indexOf(v) ;
+            if ( col < 0 ) {
+                col = vars.size() ;
+                vars.add(v) ;
+            }
+            slotColumn[i] = col ;
+        }
+        outVars = vars.toArray(new Var[vars.size()]) ;
+    }
+
+    private ExtendedIterator<Triple> find(int row) {
+        Node s = lookup(0, row) ;
+        Node p = lookup(1, row) ;
+        Node o = lookup(2, row) ;
+        return graph.find(s, p, o) ;
+    }
+
+    // Node to use in Graph.find for a slot; records whether a variable was bound.
+    private Node lookup(int i, int row) {
+        if ( slotVars[i] == null ) {
+            slotBound[i] = true ;
+            return slots[i] ;
+        }
+        int col = slotInColumn[i] ;
+        Node x = ( col < 0 ) ? null : inBatch.get(row, col) ;
+        slotBound[i] = ( x != null ) ;
+        return ( x == null ) ? Node.ANY : x ;
+    }
+
+    // Repeated unbound variables (e.g. ?x :p ?x) must match the same term.
+    private boolean accept(Triple t) {
+        for ( int i = 0 ; i < 3 ; i++ ) {
+            if ( slotBound[i] )
+                continue ;
+            for ( int j = i + 1 ; j < 3 ; j++ ) {
+                if ( ! slotBound[j] && slotVars[i].equals(slotVars[j]) && ! slot(t, i).equals(slot(t, j)) )
+                    return false ;
+            }
+        }
+        return true ;
+    }
+
+    private static Node slot(Triple t, int i) {
+        switch (i) {
+            case 0 : return t.getSubject() ;
+            case 1 : return t.getPredicate() ;
+            default: return t.getObject() ;
+        }
+    }
+
+    private void emit(Triple t) {
+        if ( outBatch == null )
+            outBatch = BindingBatch.create(outVars, batchSize) ;
+        int row = outBatch.addRow() ;
+        int width = inBatch.width() ;
+        for ( int col = 0 ; col < width ; col++ )
+            outBatch.set(row, col, inBatch.get(inRow, col)) ;
+        for ( int i = 0 ; i < 3 ; i++ ) {
+            if ( ! slotBound[i] )
+                outBatch.set(row, slotColumn[i], slot(t, i)) ;
+        }
+    }
+
+    private BindingBatch takeOutput() {
+        BindingBatch b = outBatch ;
+        outBatch = null ;
+        return b ;
+    }
+
+    @Override
+    protected void closeSubIterator() {
+        if ( graphIter != null )
+            Iter.close(graphIter) ;
+        graphIter = null ;
+    }
+}
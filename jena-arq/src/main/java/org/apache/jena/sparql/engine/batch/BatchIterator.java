@@ -0,0 +1,118 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+import java.util.Iterator ;
+import java.util.NoSuchElementException ;
+
+import org.apache.jena.atlas.lib.Closeable ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+
+/**
+ * Iterator of {@link BindingBatch BindingBatches}: the batch-at-a-time
+ * counterpart of {@link QueryIterator}.
+ * <p>
+ * Batches with no selected rows are skipped; a consumer only sees batches
+ * with at least one live row.
+ */
+public abstract class BatchIterator implements Iterator<BindingBatch>, Closeable
+{
+    protected final ExecutionContext execCxt ;
+    protected final int batchSize ;
+    private BindingBatch slot = null ;
+    private boolean finished = false ;
+    private boolean closed = false ;
+    private volatile boolean cancelled = false ;
+
+    protected BatchIterator(ExecutionContext execCxt, int batchSize) {
+        this.execCxt = execCxt ;
+        this.batchSize = batchSize ;
+    }
+
+    /** Batch iterator over the rows of a {@link QueryIterator}. */
+    public static BatchIterator create(QueryIterator input, ExecutionContext execCxt, int batchSize) {
+        if ( input instanceof QueryIterBatch ) {
+            BatchIterator batches = ((QueryIterBatch)input).unwrap() ;
+            if ( batches != null )
+                return batches ;
+        }
+        return new BatchIterRows(input, execCxt, batchSize) ;
+    }
+
+    @Override
+    public final boolean hasNext() {
+        if ( finished )
+            return false ;
+        if ( slot != null )
+            return true ;
+        while ( slot == null ) {
+            if ( cancelled ) {
+                finished = true ;
+                return false ;
+            }
+            BindingBatch batch = moveToNextBatch() ;
+            if ( batch == null ) {
+                finished = true ;
+                return false ;
+            }
+            if ( ! batch.isEmpty() )
+                slot = batch ;
+        }
+        return true ;
+    }
+
+    @Override
+    public final BindingBatch next() {
+        if ( ! hasNext() )
+            throw new NoSuchElementException() ;
+        BindingBatch batch = slot ;
+        slot = null ;
+        return batch ;
+    }
+
+    @Override
+    public final void close() {
+        if ( closed )
+            return ;
+        closed = true ;
+        finished = true ;
+        slot = null ;
+        closeBatchIterator() ;
+    }
+
+    /** Request cancellation: iteration finishes at the next batch boundary. */
+    public final void cancel() {
+        cancelled = true ;
+        requestCancel() ;
+    }
+
+    /** Does this iterator produce a single batch of one empty row? */
+    public boolean isJoinIdentity() {
+        return false ;
+    }
+
+    /** The next batch, which may have no selected rows, or null for the end. */
+    protected abstract BindingBatch moveToNextBatch() ;
+
+    protected abstract void closeBatchIterator() ;
+
+    /** Pass the cancel request on to inputs. */
+    protected abstract void requestCancel() ;
+}
@@ -0,0 +1,176 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+import java.util.Arrays ;
+import java.util.List ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.binding.BindingFactory ;
+import org.apache.jena.sparql.engine.binding.BindingMap ;
+
+/**
+ * A batch of rows held column-wise: one {@code Node[]} per variable, with a
+ * selection vector of the rows that are still live.
+ * <p>
+ * Operators that drop rows (filter, distinct) only rewrite the selection
+ * vector; operators that rearrange columns (project) share the column arrays.
+ * A {@code null} entry is an unbound variable; a {@code null} column is a
+ * variable that is unbound in every row.
+ */
+public final class BindingBatch
+{
+    /** Default number of rows in a batch. */
+    public static final int DefaultSize = 1024 ;
+
+    private final Var[] vars ;
+    private final Node[][] columns ;
+    private final int capacity ;
+    private int size ;
+    private final int[] selection ;
+    private int selected ;
+
+    /** Create an empty batch for the given variables. */
+    public static BindingBatch create(Var[] vars, int capacity) {
+        Node[][] columns = new Node[vars.length][] ;
+        for ( int i = 0 ; i < vars.length ; i++ )
+            columns[i] = new Node[capacity] ;
+        return new BindingBatch(vars, columns, capacity, 0, new int[capacity], 0) ;
+    }
+
+    /** Create an empty batch for the given variables. */
+    public static BindingBatch create(List<Var> vars, int capacity) {
+        return create(vars.toArray(new Var[vars.size()]), capacity) ;
+    }
+
+    private BindingBatch(Var[] vars, Node[][] columns, int capacity, int size, int[] selection, int selected) {
+        this.vars = vars ;
+        this.columns = columns ;
+        this.capacity = capacity ;
+        this.size = size ;
+        this.selection = selection ;
+        this.selected = selected ;
+    }
+
+    /** Number of columns */
+    public int width()                  { return vars.length ; }
+
+    /** The variables, in column order. Do not modify. */
+    public Var[] vars()                 { return vars ; }
+
+    public Var var(int col)             { return vars[col] ; }
+
+    /** Column for a variable, or -1 */
+    public int column(Var var) {
+        // Batches are narrow; a scan beats a map.
+        for ( int i = 0 ; i < vars.length ; i++ )
+            if ( vars[i].equals(var) )
+                return i ;
+        return -1 ;
+    }
+
+    /** Value at (row, column), or null for unbound. */
+    public Node get(int row, int col) {
+        Node[] c = columns[col] ;
+        return c == null ? null : c[row] ;
+    }
+
+    /** Value of a variable in a row, or null for unbound or not in this batch. */
+    public Node get(int row, Var var) {
+        int col = column(var) ;
+        return col < 0 ? null : get(row, col) ;
+    }
+
+    public void set(int row, int col, Node node) {
+        columns[col][row] = node ;
+    }
+
+    /** Number of physical rows (selected or not) */
+    public int size()                   { return size ; }
+
+    public int capacity()               { return capacity ; }
+
+    public boolean isFull()             { return size == capacity ; }
+
+    /** Number of selected rows */
+    public int selected()               { return selected ; }
+
+    public boolean isEmpty()            { return selected == 0 ; }
+
+    /** The physical row for the i'th selected row. */
+    public int row(int i)               { return selection[i] ; }
+
+    /**
+     * Add a new row, all unbound, and select it.
+     * Returns the physical row number.
+     */
+    public int addRow() {
+        if ( size == capacity )
+            throw new IllegalStateException("Batch is full") ;
+        int row = size++ ;
+        selection[selected++] = row ;
+        return row ;
+    }
+
+    /**
+     * Keep only the selected rows for which {@code keep[i]} is true where
+     * {@code i} is the index in the selection vector.
+     */
+    public void select(boolean[] keep) {
+        int j = 0 ;
+        for ( int i = 0 ; i < selected ; i++ ) {
+            if ( keep[i] )
+                selection[j++] = selection[i] ;
+        }
+        selected = j ;
+    }
+
+    /**
+     * A batch with the given variables, sharing the column data and selection
+     * of this batch. Variables not in this batch are unbound.
+     */
+    public BindingBatch project(Var[] projectVars) {
+        Node[][] c = new Node[projectVars.length][] ;
+        for ( int i = 0 ; i < projectVars.length ; i++ ) {
+            int col = column(projectVars[i]) ;
+            c[i] = ( col < 0 ) ? null : columns[col] ;
+        }
+        return new BindingBatch(projectVars, c, capacity, size, selection, selected) ;
+    }
+
+    /** Materialize a physical row as a {@link Binding}. */
+    public Binding binding(int row) {
+        BindingMap b = BindingFactory.create() ;
+        for ( int col = 0 ; col < vars.length ; col++ ) {
+            Node n = get(row, col) ;
+            if ( n != null )
+                b.add(vars[col], n) ;
+        }
+        return b ;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder() ;
+        sb.append("Batch").append(Arrays.asList(vars)).append(" ").append(selected).append("/").append(size) ;
+        return sb.toString() ;
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.List ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+
+/**
+ * A {@link Binding} that is a view of one row of a {@link BindingBatch}.
+ * The view is repositioned with {@link #setRow}, so one object serves a whole
+ * batch when evaluating expressions. It must not be retained beyond the
+ * current row; use {@link BindingBatch#binding(int)} to get a copy.
+ */
+class BindingBatchRow implements Binding
+{
+    private BindingBatch batch ;
+    private int row ;
+
+    BindingBatchRow() {}
+
+    BindingBatchRow set(BindingBatch batch) {
+        this.batch = batch ;
+        this.row = -1 ;
+        return this ;
+    }
+
+    BindingBatchRow setRow(int row) {
+        this.row = row ;
+        return this ;
+    }
+
+    @Override
+    public Iterator<Var> vars() {
+        List<Var> x = new ArrayList<>(batch.width()) ;
+        for ( int col = 0 ; col < batch.width() ; col++ ) {
+            if ( batch.get(row, col) != null )
+                x.add(batch.var(col)) ;
+        }
+        return x.iterator() ;
+    }
+
+    @Override
+    public boolean contains(Var var) {
+        return get(var) != null ;
+    }
+
+    @Override
+    public Node get(Var var) {
+        return batch.get(row, var) ;
+    }
+
+    @Override
+    public int size() {
+        int count = 0 ;
+        for ( int col = 0 ; col < batch.width() ; col++ ) {
+            if ( batch.get(row, col) != null )
+                count++ ;
+        }
+        return count ;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0 ;
+    }
+
+    @Override
+    public String toString() {
+        return batch.binding(row).toString() ;
+    }
+}
@@ -0,0 +1,163 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+import org.apache.jena.query.ARQ ;
+import org.apache.jena.sparql.algebra.Op ;
+import org.apache.jena.sparql.algebra.OpVars ;
+import org.apache.jena.sparql.algebra.op.* ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.join.JoinKey ;
+import org.apache.jena.sparql.engine.main.OpExecutor ;
+import org.apache.jena.sparql.engine.main.OpExecutorFactory ;
+import org.apache.jena.sparql.engine.main.QC ;
+import org.apache.jena.sparql.engine.main.StageGeneratorGeneric ;
+import org.apache.jena.sparql.util.Context ;
+
+/**
+ * An {@link OpExecutor} that evaluates BGPs, filters, joins, projection,
+ * distinct and grouping a batch of rows at a time (see {@link BindingBatch}).
+ * <p>
+ * Each supported operator compiles its sub-tree into a pipeline of
+ * {@link BatchIterator BatchIterators}. Any other operator is executed
+ * row-at-a-time by {@link OpExecutor} with adapters at the boundary, so
+ * pipelines form islands in an otherwise normal iterator tree.
+ * <p>
+ * BGPs are matched batch-wise only when the query would otherwise use
+ * {@link StageGeneratorGeneric}; a storage layer with its own stage generator
+ * keeps its BGP execution and the other operators are still batched.
+ * <p>
+ * Enable with {@link ARQ#batchExecution} or {@link #enable(Context)}.
+ */
+public class OpExecutorBatch extends OpExecutor
+{
+    public static final OpExecutorFactory factory = new OpExecutorFactory() {
+        @Override
+        public OpExecutor create(ExecutionContext execCxt) {
+            return new OpExecutorBatch(execCxt) ;
+        }
+    } ;
+
+    /** Use batch execution for queries executed with this context. */
+    public static void enable(Context context) {
+        QC.setFactory(context, factory) ;
+    }
+
+    protected final int batchSize ;
+    private final boolean hideBNodeVars ;
+
+    protected OpExecutorBatch(ExecutionContext execCxt) {
+        super(execCxt) ;
+        this.batchSize = execCxt.getContext().getInt(ARQ.batchExecutionSize, BindingBatch.DefaultSize) ;
+        this.hideBNodeVars = execCxt.getContext().isTrue(ARQ.hideNonDistiguishedVariables) ;
+    }
+
+    @Override
+    protected QueryIterator execute(OpBGP opBGP, QueryIterator input) {
+        return rows(batch(opBGP, batches(input))) ;
+    }
+
+    @Override
+    protected QueryIterator execute(OpFilter opFilter, QueryIterator input) {
+        return rows(batch(opFilter, batches(input))) ;
+    }
+
+    @Override
+    protected QueryIterator execute(OpJoin opJoin, QueryIterator input) {
+        return rows(batch(opJoin, batches(input))) ;
+    }
+
+    @Override
+    protected QueryIterator execute(OpProject opProject, QueryIterator input) {
+        return rows(batch(opProject, batches(input))) ;
+    }
+
+    @Override
+    protected QueryIterator execute(OpDistinct opDistinct, QueryIterator input) {
+        return rows(batch(opDistinct, batches(input))) ;
+    }
+
+    @Override
+    protected QueryIterator execute(OpGroup opGroup, QueryIterator input) {
+        return rows(batch(opGroup, batches(input))) ;
+    }
+
+    /** Compile an algebra expression into a batch pipeline over the input. */
+    protected BatchIterator batch(Op op, BatchIterator input) {
+        if ( op instanceof OpBGP )
+            return batchBGP((OpBGP)op, input) ;
+        if ( op instanceof OpFilter ) {
+            OpFilter opFilter = (OpFilter)op ;
+            BatchIterator sub = batch(opFilter.getSubOp(), input) ;
+            return new BatchIterFilter(sub, opFilter.getExprs(), execCxt, batchSize) ;
+        }
+        if ( op instanceof OpJoin ) {
+            OpJoin opJoin = (OpJoin)op ;
+            JoinKey joinKey = joinKey(opJoin.getLeft(), opJoin.getRight()) ;
+            BatchIterator left = batch(opJoin.getLeft(), input) ;
+            BatchIterator right = batch(opJoin.getRight(), batches(root())) ;
+            return new BatchIterHashJoin(joinKey, left, right, execCxt, batchSize) ;
+        }
+        if ( op instanceof OpProject ) {
+            OpProject opProject = (OpProject)op ;
+            if ( ! input.isJoinIdentity() )
+                // Nested projection needs the input (QueryIterProjectMerge).
+                return batches(super.execute(opProject, rows(input))) ;
+            BatchIterator sub = batch(opProject.getSubOp(), input) ;
+            return new BatchIterProject(sub, opProject.getVars(), execCxt, batchSize) ;
+        }
+        if ( op instanceof OpDistinct ) {
+            BatchIterator sub = batch(((OpDistinct)op).getSubOp(), input) ;
+            return new BatchIterDistinct(sub, execCxt, batchSize) ;
+        }
+        if ( op instanceof OpGroup ) {
+            OpGroup opGroup = (OpGroup)op ;
+            BatchIterator sub = batch(opGroup.getSubOp(), input) ;
+            return new BatchIterGroup(sub, opGroup.getGroupVars(), opGroup.getAggregators(), execCxt, batchSize) ;
+        }
+        // Not batched: run row-at-a-time.
+        return batches(exec(op, rows(input))) ;
+    }
+
+    // Prefer a variable that is always bound on both sides as the hash key.
+    private static JoinKey joinKey(Op left, Op right) {
+        JoinKey joinKey = JoinKey.createVarKey(OpVars.fixedVars(left), OpVars.fixedVars(right)) ;
+        if ( joinKey.isEmpty() )
+            joinKey = JoinKey.createVarKey(OpVars.visibleVars(left), OpVars.visibleVars(right)) ;
+        return joinKey ;
+    }
+
+    protected BatchIterator batchBGP(OpBGP opBGP, BatchIterator input) {
+        if ( ! ( stageGenerator instanceof StageGeneratorGeneric ) )
+            return batches(super.execute(opBGP, rows(input))) ;
+        BatchIterator bgp = BatchIterTriplePattern.create(input, opBGP.getPattern(), execCxt, batchSize) ;
+        if ( hideBNodeVars )
+            bgp = new BatchIterNamedVars(bgp, execCxt, batchSize) ;
+        return bgp ;
+    }
+
+    protected BatchIterator batches(QueryIterator qIter) {
+        return BatchIterator.create(qIter, execCxt, batchSize) ;
+    }
+
+    protected QueryIterator rows(BatchIterator batches) {
+        return QueryIterBatch.create(batches, execCxt) ;
+    }
+}
@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+import org.apache.jena.atlas.io.IndentedWriter ;
+import org.apache.jena.atlas.lib.Lib ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.iterator.QueryIter ;
+import org.apache.jena.sparql.serializer.SerializationContext ;
+
+/** Rows, one at a time, from a {@link BatchIterator}. */
+public class QueryIterBatch extends QueryIter
+{
+    private final BatchIterator batches ;
+    private BindingBatch current = null ;
+    private int idx = 0 ;
+    private boolean started = false ;
+
+    /** Row-at-a-time view of a {@link BatchIterator}. */
+    public static QueryIterator create(BatchIterator batches, ExecutionContext execCxt) {
+        if ( batches instanceof BatchIterRows ) {
+            QueryIterator qIter = ((BatchIterRows)batches).unwrap() ;
+            if ( qIter != null )
+                return qIter ;
+        }
+        return new QueryIterBatch(batches, execCxt) ;
+    }
+
+    private QueryIterBatch(BatchIterator batches, ExecutionContext execCxt) {
+        super(execCxt) ;
+        this.batches = batches ;
+    }
+
+    /** The batch iterator, if no rows have been taken yet, else null. */
+    BatchIterator unwrap() {
+        return started ? null : batches ;
+    }
+
+    @Override
+    protected boolean hasNextBinding() {
+        started = true ;
+        while ( current == null || idx >= current.selected() ) {
+            current = null ;
+            if ( ! batches.hasNext() )
+                return false ;
+            current = batches.next() ;
+            idx = 0 ;
+        }
+        return true ;
+    }
+
+    @Override
+    protected Binding moveToNextBinding() {
+        return current.binding(current.row(idx++)) ;
+    }
+
+    @Override
+    protected void closeIterator() {
+        batches.close() ;
+    }
+
+    @Override
+    protected void requestCancel() {
+        batches.cancel() ;
+    }
+
+    @Override
+    public void output(IndentedWriter out, SerializationContext sCxt) {
+        out.print(Lib.className(this)) ;
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+import java.util.Arrays ;
+
+import org.apache.jena.graph.Node ;
+
+/**
+ * Hash key for a row: values laid out by a variable numbering held by the
+ * caller. Missing trailing entries are treated as unbound so keys made before
+ * and after the numbering grows compare correctly.
+ */
+final class RowKey
+{
+    private final Node[] values ;
+    private final int hash ;
+
+    RowKey(Node[] values) {
+        this.values = values ;
+        int h = 0 ;
+        for ( int i = 0 ; i < values.length ; i++ ) {
+            if ( values[i] != null )
+                h = h + ( (i+1) * 31 ^ values[i].hashCode() ) ;
+        }
+        this.hash = h ;
+    }
+
+    Node get(int i) {
+        return i < values.length ? values[i] : null ;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash ;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if ( this == obj )
+            return true ;
+        if ( !(obj instanceof RowKey) )
+            return false ;
+        RowKey other = (RowKey)obj ;
+        if ( hash != other.hash )
+            return false ;
+        int n = Math.max(values.length, other.values.length) ;
+        for ( int i = 0 ; i < n ; i++ ) {
+            Node n1 = get(i) ;
+            Node n2 = other.get(i) ;
+            if ( n1 == null ? n2 != null : ! n1.equals(n2) )
+                return false ;
+        }
+        return true ;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.asList(values).toString() ;
+    }
+}
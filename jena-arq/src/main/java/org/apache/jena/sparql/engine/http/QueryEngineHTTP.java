@@ -39,6 +39,7 @@ import org.apache.jena.riot.Lang ;
 import org.apache.jena.riot.RDFDataMgr ;
 import org.apache.jena.riot.RDFLanguages ;
 import org.apache.jena.riot.WebContent ;
+import org.apache.jena.riot.thrift.BinRDF ;
 import org.apache.jena.sparql.ARQException ;
 import org.apache.jena.sparql.core.Quad;
 import org.apache.jena.sparql.engine.ResultSetCheckCondition ;
@@ -99,12 +100,14 @@ public class QueryEngineHTTP implements QueryExecution {
      * Supported content types for SELECT queries
      */
     public static String[] supportedSelectContentTypes = new String[] { WebContent.contentTypeResultsXML,
-            WebContent.contentTypeResultsJSON, WebContent.contentTypeTextTSV, WebContent.contentTypeTextCSV };
+            WebContent.contentTypeResultsJSON, WebContent.contentTypeTextTSV, WebContent.contentTypeTextCSV,
+            WebContent.contentTypeResultsThrift };
     /**
      * Supported content types for ASK queries
      */
     public static String[] supportedAskContentTypes = new String[] { WebContent.contentTypeResultsXML,
-            WebContent.contentTypeJSON, WebContent.contentTypeTextTSV, WebContent.contentTypeTextCSV };
+            WebContent.contentTypeJSON, WebContent.contentTypeTextTSV, WebContent.contentTypeTextCSV,
+            WebContent.contentTypeResultsThrift };
 
     // Releasing HTTP input streams is important. We remember this for SELECT,
     // and will close when the engine is closed
@@ -375,6 +378,8 @@ public class QueryEngineHTTP implements QueryExecution {
             return ResultSetFactory.fromTSV(in);
         if (actualContentType.equals(WebContent.contentTypeTextCSV))
             return CSVInput.fromCSV(in);
+        if (actualContentType.equals(WebContent.contentTypeResultsThrift))
+            return BinRDF.readResultSet(in);
         throw new QueryException("Endpoint returned Content-Type: " + actualContentType
                 + " which is not currently supported for SELECT queries");
     }
@@ -509,6 +514,8 @@ public class QueryEngineHTTP implements QueryExecution {
                 return TSVInput.booleanFromTSV(in);
             if (actualContentType.equals(WebContent.contentTypeTextCSV))
                 return CSVInput.booleanFromCSV(in);
+            if (actualContentType.equals(WebContent.contentTypeResultsThrift))
+                return BinRDF.readBoolean(in);
             throw new QueryException("Endpoint returned Content-Type: " + actualContentType
                     + " which is not currently supported for ASK queries");
         } catch (QueryExceptionHTTP e) { 
@@ -786,7 +793,9 @@ public class QueryEngineHTTP implements QueryExecution {
 
     private static String initSelectContentTypes() {
         StringBuilder sBuff = new StringBuilder() ;
-        accumulateContentTypeString(sBuff, WebContent.contentTypeResultsJSON,  1.0);
+        // Binary, and only from Jena : others will not offer it.
+        accumulateContentTypeString(sBuff, WebContent.contentTypeResultsThrift, 1.0);
+        accumulateContentTypeString(sBuff, WebContent.contentTypeResultsJSON,  0.95);
         accumulateContentTypeString(sBuff, WebContent.contentTypeResultsXML,   0.9);     // Less efficient
         
         accumulateContentTypeString(sBuff, WebContent.contentTypeTextTSV,      0.7);
@@ -801,7 +810,7 @@ public class QueryEngineHTTP implements QueryExecution {
     private static final String askContentTypeHeader = initAskContentTypes() ;
 
     public static String defaultAskHeader() {
-        return dftSelectContentTypeHeader ;
+        return askContentTypeHeader ;
     }
 
     // These happen to be the same.
@@ -875,7 +884,7 @@ public class QueryEngineHTTP implements QueryExecution {
         return sBuff.toString();
     }
     
-    private static void accumulateContentTypeString(StringBuilder sBuff, String str, double v) {
+    /*package*/ static void accumulateContentTypeString(StringBuilder sBuff, String str, double v) {
         if ( sBuff.length() != 0 )
             sBuff.append(", ") ;
         sBuff.append(str) ;
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.http;
+
+import java.io.InputStream ;
+import java.util.concurrent.* ;
+
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.atlas.io.IndentedWriter ;
+import org.apache.jena.atlas.lib.Lib ;
+import org.apache.jena.query.QueryCancelledException ;
+import org.apache.jena.query.QueryExecException ;
+import org.apache.jena.query.ResultSet ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.iterator.QueryIteratorBase ;
+import org.apache.jena.sparql.serializer.SerializationContext ;
+
+/**
+ * Results of a remote query, read from the HTTP response as the iterator is
+ * used. A background thread reads ahead into a buffer of a fixed number of
+ * rows, so the connection keeps being serviced while the rows are processed,
+ * without holding all of the results in memory.
+ * <p>
+ * The response stream is closed when the results have been read, on an
+ * error, or when the iterator is closed. A consumer waiting for the next row
+ * sees a close or a cancel from another thread within a poll interval.
+ */
+public class QueryIterServiceStream extends QueryIteratorBase
+{
+    private static final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "SERVICE results") ;
+        thread.setDaemon(true) ;
+        return thread ;
+    }) ;
+
+    // Marks the end of the results in the buffer.
+    private static final Object endMarker = new Object() ;
+    private static final long PollMillis = 100 ;
+
+    private final InputStream in ;
+    private final ResultSet resultSet ;
+    private final BlockingQueue<Object> buffer ;
+    private volatile boolean finished = false ;
+    private volatile boolean cancelled = false ;
+    private boolean done = false ;
+    private Binding slot = null ;
+
+    /**
+     * @param resultSet     Results, read from {@code in}
+     * @param in            The HTTP response
+     * @param bufferSize    The number of rows to read ahead
+     */
+    public QueryIterServiceStream(ResultSet resultSet, InputStream in, int bufferSize)
+    {
+        this.in = in ;
+        this.resultSet = resultSet ;
+        this.buffer = new ArrayBlockingQueue<>(Math.max(1, bufferSize)) ;
+        executor.execute(this::readAhead) ;
+    }
+
+    private void readAhead()
+    {
+        try {
+            while ( ! finished && resultSet.hasNext() )
+                put(resultSet.nextBinding()) ;
+            put(endMarker) ;
+        } catch (Throwable th) {
+            // After close, errors from the closed stream are expected.
+            if ( ! finished )
+                put(th) ;
+        } finally {
+            IO.close(in) ;
+        }
+    }
+
+    // Wait for space in the buffer unless the iterator is closed.
+    private void put(Object obj)
+    {
+        try {
+            while ( ! finished )
+            {
+                if ( buffer.offer(obj, PollMillis, TimeUnit.MILLISECONDS) )
+                    return ;
+            }
+        } catch (InterruptedException ex) {
+            finished = true ;
+        }
+    }
+
+    @Override
+    protected boolean hasNextBinding()
+    {
+        if ( slot != null )
+            return true ;
+        if ( done )
+            return false ;
+        Object obj ;
+        try {
+            // Poll so that a close or cancel is seen even if the reader
+            // thread has stopped adding to the buffer.
+            while ( (obj = buffer.poll(PollMillis, TimeUnit.MILLISECONDS)) == null )
+            {
+                if ( finished )
+                {
+                    done = true ;
+                    if ( cancelled )
+                        throw new QueryCancelledException() ;
+                    return false ;
+                }
+            }
+        } catch (InterruptedException ex) {
+            throw new QueryCancelledException() ;
+        }
+        if ( obj == endMarker )
+        {
+            done = true ;
+            return false ;
+        }
+        if ( obj instanceof Throwable )
+        {
+            done = true ;
+            if ( obj instanceof Error )
+                throw (Error)obj ;
+            if ( obj instanceof RuntimeException )
+                throw (RuntimeException)obj ;
+            throw new QueryExecException("Reading SERVICE results", (Throwable)obj) ;
+        }
+        slot = (Binding)obj ;
+        return true ;
+    }
+
+    @Override
+    protected Binding moveToNextBinding()
+    {
+        Binding b = slot ;
+        slot = null ;
+        return b ;
+    }
+
+    @Override
+    protected void closeIterator()
+    {
+        finished = true ;
+        buffer.clear() ;
+    }
+
+    @Override
+    protected void requestCancel()
+    {
+        cancelled = true ;
+        finished = true ;
+    }
+
+    @Override
+    public void output(IndentedWriter out, SerializationContext cxt)
+    {
+        out.print(Lib.className(this)) ;
+    }
+}
@@ -29,6 +29,12 @@ import org.apache.jena.query.Query ;
 import org.apache.jena.query.QueryExecException ;
 import org.apache.jena.query.ResultSet ;
 import org.apache.jena.query.ResultSetFactory ;
+import org.apache.jena.riot.Lang ;
+import org.apache.jena.riot.RDFLanguages ;
+import org.apache.jena.riot.ResultSetMgr ;
+import org.apache.jena.riot.WebContent ;
+import org.apache.jena.riot.resultset.ResultSetLang ;
+import org.apache.jena.riot.resultset.ResultSetReaderRegistry ;
 import org.apache.jena.sparql.SystemARQ ;
 import org.apache.jena.sparql.algebra.Op ;
 import org.apache.jena.sparql.algebra.OpAsQuery ;
@@ -92,6 +98,67 @@ public class Service {
      */
     public static final Symbol queryTimeout = SystemARQ.allocSymbol(base, "queryTimeout");
 
+    /**
+     * The HTTP Accept header for SERVICE requests; a string. The default,
+     * {@link #defaultAcceptHeader()}, prefers the formats that can be read
+     * quickly and as a stream: RDF Thrift results, then TSV, then JSON and
+     * XML. May also be set per service with {@link #serviceContext}.
+     */
+    public static final Symbol queryAcceptHeader = SystemARQ.allocSymbol(base, "queryAcceptHeader");
+
+    /**
+     * Return the results of a SERVICE request as they are read from the
+     * response, instead of reading them all before the query continues.
+     * Default false.
+     * <p>
+     * Reading all the results first avoids keeping the connection open while
+     * the rest of the query runs, which matters when a SERVICE calls back into
+     * the same server.
+     * 
+     * @see #queryStreamBuffer
+     */
+    public static final Symbol queryStreaming = SystemARQ.allocSymbol(base, "queryStreaming");
+
+    /**
+     * The number of rows read ahead of the query when {@link #queryStreaming}
+     * is set. Default 1000.
+     */
+    public static final Symbol queryStreamBuffer = SystemARQ.allocSymbol(base, "queryStreamBuffer");
+
+    private static final String dftAcceptHeader = initAcceptHeader();
+
+    public static String defaultAcceptHeader() {
+        return dftAcceptHeader;
+    }
+
+    private static String initAcceptHeader() {
+        StringBuilder sBuff = new StringBuilder();
+        QueryEngineHTTP.accumulateContentTypeString(sBuff, WebContent.contentTypeResultsThrift, 1.0);
+        QueryEngineHTTP.accumulateContentTypeString(sBuff, WebContent.contentTypeTextTSV,       0.9);
+        QueryEngineHTTP.accumulateContentTypeString(sBuff, WebContent.contentTypeResultsJSON,   0.8);
+        QueryEngineHTTP.accumulateContentTypeString(sBuff, WebContent.contentTypeResultsXML,    0.7);
+        QueryEngineHTTP.accumulateContentTypeString(sBuff, WebContent.contentTypeJSON,          0.2);
+        QueryEngineHTTP.accumulateContentTypeString(sBuff, WebContent.contentTypeXML,           0.2);
+        QueryEngineHTTP.accumulateContentTypeString(sBuff, WebContent.contentTypeXMLAlt,        0.2);
+        return sBuff.toString();
+    }
+
+    /**
+     * Send the bindings of the rest of the query to the remote endpoint in
+     * VALUES blocks of this many rows (a bind join), instead of one request
+     * per binding. The value is a number; not set or less than 2 means no
+     * bind join.
+     * 
+     * @see org.apache.jena.sparql.engine.main.iterator.QueryIterServiceBindJoin
+     */
+    public static final Symbol bindJoinBatchSize = SystemARQ.allocSymbol(base, "bindJoinBatchSize");
+
+    /**
+     * The number of bind join requests to the remote endpoint for one SERVICE
+     * that can be in progress at once. Default 4.
+     */
+    public static final Symbol bindJoinConcurrency = SystemARQ.allocSymbol(base, "bindJoinConcurrency");
+
     /**
      * Executes a service operator
      * 
@@ -168,19 +235,7 @@ public class Service {
         //@formatter:on
         query = OpAsQuery.asQuery(opRemote);
 
-        Explain.explain("HTTP", query, context);
-        String uri = op.getService().getURI();
-        HttpQuery httpQuery = configureQuery(uri, context, query);
-        InputStream in = httpQuery.exec();
-
-        // Read the whole of the results now.
-        // Avoids the problems with calling back into the same system e.g.
-        // Fuseki+SERVICE <http://localhost:3030/...>
-
-        ResultSet rs = ResultSetFactory.fromXML(in);
-        QueryIterator qIter = QueryIter.materialize(new QueryIteratorResultSet(rs));
-        // And close connection now, not when qIter is closed.
-        IO.close(in);
+        QueryIterator qIter = exec(op.getService().getURI(), query, context);
 
         // In some cases we may need to apply a re-mapping
         // This solves JENA-494 the naive way and may be brittle for complex
@@ -192,6 +247,68 @@ public class Service {
         return qIter;
     }
 
+    /**
+     * Send a query to a remote endpoint and return the results, read all at
+     * once or, if {@link #queryStreaming} is set, as they arrive.
+     * 
+     * @param uri
+     *            The uri of the endpoint
+     * @param query
+     *            The query to execute.
+     * @param context
+     *            Context
+     * @return Query iterator of the results.
+     */
+    public static QueryIterator exec(String uri, Query query, Context context) {
+        Explain.explain("HTTP", query, context);
+        HttpQuery httpQuery = configureQuery(uri, context, query);
+        InputStream in = httpQuery.exec();
+        ResultSet rs;
+        try {
+            rs = readResults(in, httpQuery.getContentType());
+        } catch (RuntimeException ex) {
+            IO.close(in);
+            throw ex;
+        }
+
+        if ( context != null && context.isTrue(queryStreaming) ) {
+            int bufferSize = context.getInt(queryStreamBuffer, 1000);
+            return new QueryIterServiceStream(rs, in, bufferSize);
+        }
+
+        // Read the whole of the results now.
+        // Avoids the problems with calling back into the same system e.g.
+        // Fuseki+SERVICE <http://localhost:3030/...>
+        try {
+            return QueryIter.materialize(new QueryIteratorResultSet(rs));
+        } finally {
+            // And close connection now, not when qIter is closed.
+            IO.close(in);
+        }
+    }
+
+    /**
+     * Read SPARQL results in the format given by the Content-Type of the
+     * response. No Content-Type, an XML Content-Type or one that is not a
+     * results format is read as XML, as all responses were before content
+     * negotiation. CSV is rejected because it does not keep the kinds of terms.
+     */
+    /*package*/ static ResultSet readResults(InputStream in, String contentType) {
+        if ( contentType == null || contentType.isEmpty() )
+            return ResultSetFactory.fromXML(in);
+        if ( contentType.equals(WebContent.contentTypeXML) || contentType.equals(WebContent.contentTypeXMLAlt) )
+            return ResultSetFactory.fromXML(in);
+        if ( contentType.equals(WebContent.contentTypeJSON) )
+            return ResultSetFactory.fromJSON(in);
+        Lang lang = RDFLanguages.contentTypeToLang(contentType);
+        if ( lang != null && lang.equals(ResultSetLang.SPARQLResultSetCSV) )
+            throw new QueryExecException("Endpoint returned Content-Type: " + contentType
+                                         + " which is not supported for SERVICE");
+        if ( lang == null || ResultSetReaderRegistry.getFactory(lang) == null )
+            return ResultSetFactory.fromXML(in);
+        return ResultSetMgr.read(in, lang);
+    }
+
     /**
      * Create and configure the HttpQuery object.
      * 
@@ -222,6 +339,8 @@ public class Service {
         // configure the query object.
         httpQuery.merge(QueryEngineHTTP.getServiceParams(uri, context));
         httpQuery.addParam(HttpParams.pQuery, query.toString());
+        String accept = context.getAsString(queryAcceptHeader, dftAcceptHeader);
+        httpQuery.setAccept(accept);
         httpQuery.setAllowCompression(context.isTrueOrUndef(queryCompression));
 
         HttpClient client = context.get(queryClient);
@@ -18,41 +18,56 @@
 
 package org.apache.jena.sparql.engine.iterator;
 
-import java.util.ArrayList ;
-import java.util.Collection ;
-import java.util.Iterator ;
-import java.util.List ;
+import java.util.* ;
 
+import org.apache.jena.atlas.data.BagFactory ;
+import org.apache.jena.atlas.data.DataBag ;
+import org.apache.jena.atlas.data.ThresholdPolicy ;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory ;
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.iterator.IteratorDelayedInitialization ;
+import org.apache.jena.atlas.iterator.IteratorSlotted ;
 import org.apache.jena.atlas.lib.Pair ;
 import org.apache.jena.ext.com.google.common.collect.HashMultimap;
 import org.apache.jena.ext.com.google.common.collect.Multimap;
 import org.apache.jena.graph.Node ;
+import org.apache.jena.riot.system.SerializationFactoryFinder ;
 import org.apache.jena.sparql.core.Var ;
 import org.apache.jena.sparql.core.VarExprList ;
 import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.ParallelExec ;
 import org.apache.jena.sparql.engine.QueryIterator ;
 import org.apache.jena.sparql.engine.binding.Binding ;
 import org.apache.jena.sparql.engine.binding.BindingFactory ;
 import org.apache.jena.sparql.engine.binding.BindingMap ;
 import org.apache.jena.sparql.expr.ExprAggregator ;
+import org.apache.jena.sparql.expr.ExprList ;
 import org.apache.jena.sparql.expr.NodeValue ;
 import org.apache.jena.sparql.expr.aggregate.Accumulator ;
 
 public class QueryIterGroup extends QueryIterPlainWrapper
 {
 	private final QueryIterator embeddedIterator;
+	private final Spill spill ;
 
 	public QueryIterGroup(QueryIterator qIter, 
                           VarExprList groupVars,
                           List<ExprAggregator> aggregators,
                           ExecutionContext execCxt) {
+	    this(qIter, groupVars, aggregators, execCxt, new Spill(execCxt)) ;
+	}
+
+	private QueryIterGroup(QueryIterator qIter, 
+                           VarExprList groupVars,
+                           List<ExprAggregator> aggregators,
+                           ExecutionContext execCxt,
+                           Spill spill) {
 	    // Delayed initalization 
 	    // Does the group calculation when first used (typically hasNext) 
-        super(calc(qIter, groupVars, aggregators, execCxt),
+        super(calc(qIter, groupVars, aggregators, execCxt, spill),
               execCxt) ;
         this.embeddedIterator = qIter;
+        this.spill = spill ;
     }
 
     @Override
@@ -66,57 +81,52 @@ public class QueryIterGroup extends QueryIterPlainWrapper
     protected void closeIterator()
     {
         this.embeddedIterator.close();
+        this.spill.close() ;
         super.closeIterator();
     }
+
+    /** Whether any groups were written to disk (for testing). */
+    boolean hasSpilled()
+    {
+        return spill.hasSpilled() ;
+    }
 	
     // Phase 1 : Consume the input iterator, assigning groups (keys) 
     //           and push rows through the aggregator function. 
     
     // Phase 2 : Go over the group bindings and assign the value of each aggregation.
+
+    // If the number of groups exceeds the threshold given by
+    // ARQ.spillToDiskThreshold or ARQ.spillToDiskBudget, the input rows for
+    // groups not already in memory are written to disk, partitioned by the hash
+    // of the group key. The in-memory groups are completed as before, then each
+    // partition is read back and grouped in memory in turn (external
+    // aggregation). A partition with more groups than the threshold allows is
+    // partitioned again in the same way. Rows for one group are always
+    // accumulated in input order.
+    //
+    // The parallel evaluation (ARQ.parallelGroupBy) holds all groups in memory,
+    // so it is only used when there is no threshold or budget.
 	
 	private static Pair<Var, Accumulator> placeholder = Pair.create((Var)null, (Accumulator)null) ; 
     
     private static Iterator<Binding> calc(final QueryIterator iter, 
                                           final VarExprList groupVarExpr,
                                           final List<ExprAggregator> aggregators,
-                                          final ExecutionContext execCxt)
+                                          final ExecutionContext execCxt,
+                                          final Spill spill)
     {
         return new IteratorDelayedInitialization<Binding>() {
             @Override
             protected Iterator<Binding> initializeIterator() {
 
-                boolean noAggregators =  ( aggregators == null || aggregators.isEmpty() ) ;
-                
-                // Phase 1 : assign bindings to buckets by key and pump through the aggregators.
-                Multimap<Binding, Pair<Var, Accumulator>> accumulators = HashMultimap.create() ;
-
-                while ( iter.hasNext() )
-                {
-                    Binding b = iter.nextBinding() ;
-                    Binding key = genKey(groupVarExpr, b, execCxt) ;
-
-                    if ( noAggregators )
-                    {
-                        // Put in a dummy to remember the input.
-                        accumulators.put(key, placeholder ) ;
-                        continue ;
-                    }
+                if ( ! spill.canSpill() && ParallelExec.parallelGroupBy(execCxt) && isThreadSafe(groupVarExpr, aggregators) )
+                    return calcParallel(iter, groupVarExpr, aggregators, execCxt) ;
 
-                    // Create if does not exist.
-                    if ( !accumulators.containsKey(key) )
-                    {
-                        for ( ExprAggregator agg : aggregators )
-                        {
-                            Accumulator x = agg.getAggregator().createAccumulator() ;
-                            Var v = agg.getVar() ;
-                            accumulators.put(key, Pair.create(v, x)) ;
-                        }
-                    }
+                boolean noAggregators =  ( aggregators == null || aggregators.isEmpty() ) ;
 
-                    // Do the per-accumulator calculation.
-                    for ( Pair<Var, Accumulator> pair : accumulators.get(key) )
-                        pair.getRight().accumulate(b, execCxt) ;
-                }
+                // Phase 1 : assign bindings to buckets by key and pump through the aggregators.
+                Multimap<Binding, Pair<Var, Accumulator>> accumulators = aggregate(iter, groupVarExpr, aggregators, execCxt, spill) ;
 
                 // Phase 2 : Empty input
                 // has as iter.hasNext false at start.
@@ -125,64 +135,350 @@ public class QueryIterGroup extends QueryIterPlainWrapper
                 //   If there are no aggregators, there are no groups.
                 //   If there are aggregators, then they may have a default value. 
 
-                if ( accumulators.isEmpty() )
+                if ( accumulators.isEmpty() && ! spill.hasSpilled() )
+                    return noGroups(aggregators) ;
+
+                // Phase 2 : There was input and so there are some groups.
+                Iterator<Binding> results = results(accumulators, noAggregators) ;
+                if ( ! spill.hasSpilled() )
+                    return results ;
+                return Iter.concat(results, spill.results(groupVarExpr, aggregators, execCxt)) ;
+            }
+        };
+    }
+
+    private static Multimap<Binding, Pair<Var, Accumulator>> aggregate(Iterator<Binding> iter,
+                                                                       VarExprList groupVarExpr,
+                                                                       List<ExprAggregator> aggregators,
+                                                                       ExecutionContext execCxt,
+                                                                       Spill spill)
+    {
+        boolean noAggregators =  ( aggregators == null || aggregators.isEmpty() ) ;
+        Multimap<Binding, Pair<Var, Accumulator>> accumulators = HashMultimap.create() ;
+
+        while ( iter.hasNext() )
+        {
+            Binding b = iter.next() ;
+            Binding key = genKey(groupVarExpr, b, execCxt) ;
+
+            // Create if does not exist.
+            if ( !accumulators.containsKey(key) )
+            {
+                if ( spill != null && spill.isFull() )
                 {
-                    if ( noAggregators )
-                    {
-                        // No rows to group, no aggregators.
-                        // ==> No result rows.
-                        return Iter.nullIterator() ;
-                    }
-                    
-                    BindingMap binding = BindingFactory.create() ;
+                    // Grouped later, from disk.
+                    spill.add(key, b) ;
+                    continue ;
+                }
+                if ( spill != null )
+                    spill.increment(key) ;
+
+                if ( noAggregators )
+                {
+                    // Put in a dummy to remember the input.
+                    accumulators.put(key, placeholder ) ;
+                    continue ;
+                }
+
+                for ( ExprAggregator agg : aggregators )
+                {
+                    Accumulator x = agg.getAggregator().createAccumulator() ;
+                    Var v = agg.getVar() ;
+                    accumulators.put(key, Pair.create(v, x)) ;
+                }
+            }
+
+            if ( noAggregators )
+                continue ;
+
+            // Do the per-accumulator calculation.
+            for ( Pair<Var, Accumulator> pair : accumulators.get(key) )
+                pair.getRight().accumulate(b, execCxt) ;
+        }
+        return accumulators ;
+    }
+
+    // For each bucket, get binding, add aggregator values to the binding.
+    private static Iterator<Binding> results(Multimap<Binding, Pair<Var, Accumulator>> accumulators, boolean noAggregators)
+    {
+        if ( noAggregators )
+            // We used placeholder so there are always the key. 
+            return accumulators.keySet().iterator() ;
+
+        // We used AccNull so there are always accumulators. 
+        List<Binding> results = new ArrayList<>() ;
+
+        for ( Binding k : accumulators.keySet() )
+            results.add(groupResult(k, accumulators.get(k))) ;
+        return results.iterator() ;
+    }
+
+    // Groups that did not fit in memory.
+    private static class Spill
+    {
+        private static final int NumPartitions = 32 ;
+        // Bits of the hash used at each level.
+        private static final int PartitionBits = 5 ;
+        private static final int MaxLevels = 4 ;
+
+        // The groups held in memory are charged to the policy until their results
+        // have been returned.
+        private final ThresholdPolicy<Binding> policy ;
+        private final int level ;
+        private final List<DataBag<Binding>> partitions = new ArrayList<>() ;
+        private final List<Spill> subSpills = new ArrayList<>() ;
+        private boolean spilled = false ;
+
+        Spill(ExecutionContext execCxt)
+        {
+            this(( execCxt == null )
+                 ? ThresholdPolicyFactory.never()
+                 : ThresholdPolicyFactory.policyFromContext(execCxt.getContext()),
+                 0) ;
+        }
+
+        private Spill(ThresholdPolicy<Binding> policy, int level)
+        {
+            this.policy = policy ;
+            this.level = level ;
+        }
+
+        /** Whether there is a threshold or budget at all. */
+        boolean canSpill()
+        {
+            return policy != ThresholdPolicyFactory.<Binding>never() ;
+        }
+
+        boolean isFull()
+        {
+            return policy.isThresholdExceeded() ;
+        }
+
+        void increment(Binding key)
+        {
+            policy.increment(key) ;
+        }
 
-                    for ( ExprAggregator agg : aggregators )
+        boolean hasSpilled()
+        {
+            return spilled ;
+        }
+
+        void add(Binding key, Binding row)
+        {
+            if ( ! spilled )
+            {
+                for ( int i = 0 ; i < NumPartitions ; i++ )
+                    partitions.add(null) ;
+                spilled = true ;
+            }
+            int hash = Integer.rotateRight(key.hashCode(), level*PartitionBits) ;
+            int idx = Math.floorMod(hash, NumPartitions) ;
+            DataBag<Binding> bag = partitions.get(idx) ;
+            if ( bag == null )
+            {
+                // Always on disk.
+                bag = BagFactory.newDefaultBag(ThresholdPolicyFactory.count(0), SerializationFactoryFinder.bindingSerializationFactory()) ;
+                partitions.set(idx, bag) ;
+            }
+            bag.add(row) ;
+        }
+
+        // Group each partition in memory, one at a time. Called when the results
+        // of the groups in memory have been returned.
+        Iterator<Binding> results(VarExprList groupVarExpr, List<ExprAggregator> aggregators, ExecutionContext execCxt)
+        {
+            boolean noAggregators =  ( aggregators == null || aggregators.isEmpty() ) ;
+            return new IteratorSlotted<Binding>() {
+                private int idx = 0 ;
+                private Iterator<Binding> current = Iter.nullIterator() ;
+
+                @Override
+                protected boolean hasMore()
+                {
+                    while ( ! current.hasNext() )
                     {
-                        Var v = agg.getVar();
-                        Node value = agg.getAggregator().getValueEmpty();
-                        if ( value != null )
+                        // The groups before are finished with.
+                        policy.reset() ;
+                        if ( idx >= partitions.size() )
+                            return false ;
+                        DataBag<Binding> bag = partitions.get(idx) ;
+                        partitions.set(idx, null) ;
+                        idx++ ;
+                        if ( bag == null )
+                            continue ;
+                        Spill sub = null ;
+                        if ( level < MaxLevels )
                         {
-                            binding.add( v, value );
+                            sub = new Spill(policy, level+1) ;
+                            subSpills.add(sub) ;
                         }
+                        Multimap<Binding, Pair<Var, Accumulator>> accumulators = aggregate(bag.iterator(), groupVarExpr, aggregators, execCxt, sub) ;
+                        bag.close() ;
+                        current = QueryIterGroup.results(accumulators, noAggregators) ;
+                        if ( sub != null && sub.hasSpilled() )
+                            current = Iter.concat(current, sub.results(groupVarExpr, aggregators, execCxt)) ;
                     }
-                        
-                    if ( binding == null )
-                        // This does not happen if there are any aggregators. 
-                        return Iter.nullIterator() ;
-                    // cast to get the static type inference to work.
-                    return Iter.singletonIter((Binding)binding) ;
+                    return true ;
                 }
 
-                // Phase 2 : There was input and so there are some groups.
-                // For each bucket, get binding, add aggregator values to the binding.
-                // We used AccNull so there are always accumulators. 
-                
-                if ( noAggregators )
-                    // We used placeholder so there are always the key. 
-                    return accumulators.keySet().iterator() ;
-                
-                List<Binding> results = new ArrayList<>() ;
+                @Override
+                protected Binding moveToNext()
+                {
+                    return current.next() ;
+                }
+            } ;
+        }
 
-                for ( Binding k : accumulators.keySet() )
+        void close()
+        {
+            for ( DataBag<Binding> bag : partitions )
+            {
+                if ( bag != null )
+                    bag.close() ;
+            }
+            partitions.clear() ;
+            for ( Spill sub : subSpills )
+                sub.close() ;
+            subSpills.clear() ;
+            policy.reset() ;
+        }
+    }
+
+    // Result when there are no groups (no input rows).
+    private static Iterator<Binding> noGroups(List<ExprAggregator> aggregators)
+    {
+        if ( aggregators == null || aggregators.isEmpty() )
+        {
+            // No rows to group, no aggregators.
+            // ==> No result rows.
+            return Iter.nullIterator() ;
+        }
+
+        BindingMap binding = BindingFactory.create() ;
+
+        for ( ExprAggregator agg : aggregators )
+        {
+            Var v = agg.getVar();
+            Node value = agg.getAggregator().getValueEmpty();
+            if ( value != null )
+            {
+                binding.add( v, value );
+            }
+        }
+
+        // cast to get the static type inference to work.
+        return Iter.singletonIter((Binding)binding) ;
+    }
+
+    // Result row for one group.
+    private static Binding groupResult(Binding key, Collection<Pair<Var, Accumulator>> accs)
+    {
+        BindingMap b = BindingFactory.create(key) ;
+
+        for ( Pair<Var, Accumulator> pair : accs )
+        {
+            Var v = pair.getLeft() ;
+            NodeValue value = pair.getRight().getValue() ;
+            Node n = (value==null) ? null : value.asNode() ;
+            if ( v == null || n == null )
+            {} 
+            else
+                b.add(v, n) ;
+        }
+        return b ;
+    }
+
+    private static boolean isThreadSafe(VarExprList groupVarExpr, List<ExprAggregator> aggregators)
+    {
+        if ( ! ParallelExec.isThreadSafe(groupVarExpr.getExprs().values()) )
+            return false ;
+        if ( aggregators != null )
+        {
+            for ( ExprAggregator agg : aggregators )
+            {
+                ExprList exprs = agg.getAggregator().getExprList() ;
+                if ( exprs != null && ! ParallelExec.isThreadSafe(exprs.getList()) )
+                    return false ;
+            }
+        }
+        return true ;
+    }
+
+    // Parallel grouping.
+    //
+    // Accumulators can not be combined so instead of partial aggregates per
+    // thread, groups are partitioned by key: each task owns the accumulators
+    // for the keys in its partition, across all chunks of input. Input is read
+    // in chunks; group keys for a chunk are calculated in parallel, then each
+    // task pushes the chunk's rows for its keys, in input order, through its
+    // accumulators. The per-task results are disjoint and are concatenated.
+
+    private static Iterator<Binding> calcParallel(QueryIterator iter,
+                                                  VarExprList groupVarExpr,
+                                                  List<ExprAggregator> aggregators,
+                                                  ExecutionContext execCxt)
+    {
+        final int tasks = ParallelExec.parallelism(execCxt) ;
+        final int chunkSize = ParallelExec.ChunkSize ;
+        final boolean noAggregators = ( aggregators == null || aggregators.isEmpty() ) ;
+        List<Map<Binding, List<Pair<Var, Accumulator>>>> partitions = new ArrayList<>(tasks) ;
+        for ( int i = 0 ; i < tasks ; i++ )
+            partitions.add(new LinkedHashMap<>()) ;
+
+        Binding[] rows = new Binding[chunkSize] ;
+        Binding[] keys = new Binding[chunkSize] ;
+        int[] owner = new int[chunkSize] ;
+
+        while ( iter.hasNext() )
+        {
+            int n = 0 ;
+            while ( n < chunkSize && iter.hasNext() )
+                rows[n++] = iter.nextBinding() ;
+            final int count = n ;
+
+            ParallelExec.parallelFor(tasks, task -> {
+                for ( int i = task ; i < count ; i += tasks )
                 {
-                    Collection<Pair<Var, Accumulator>> accs = accumulators.get(k) ;
-                    BindingMap b = BindingFactory.create(k) ;
-                    
-                    for ( Pair<Var, Accumulator> pair : accs )
+                    keys[i] = genKey(groupVarExpr, rows[i], execCxt) ;
+                    owner[i] = Math.floorMod(keys[i].hashCode(), tasks) ;
+                }
+            }) ;
+
+            ParallelExec.parallelFor(tasks, task -> {
+                Map<Binding, List<Pair<Var, Accumulator>>> accumulators = partitions.get(task) ;
+                for ( int i = 0 ; i < count ; i++ )
+                {
+                    if ( owner[i] != task )
+                        continue ;
+                    List<Pair<Var, Accumulator>> accs = accumulators.get(keys[i]) ;
+                    if ( accs == null )
                     {
-                        Var v = pair.getLeft() ;
-                        NodeValue value = pair.getRight().getValue() ;
-                        Node n = (value==null) ? null : value.asNode() ;
-                        if ( v == null || n == null )
-                        {} 
-                        else
-                            b.add(v, n) ;
+                        accs = new ArrayList<>() ;
+                        if ( ! noAggregators )
+                        {
+                            for ( ExprAggregator agg : aggregators )
+                                accs.add(Pair.create(agg.getVar(), agg.getAggregator().createAccumulator())) ;
+                        }
+                        accumulators.put(keys[i], accs) ;
                     }
-                    results.add(b) ;
+                    for ( Pair<Var, Accumulator> pair : accs )
+                        pair.getRight().accumulate(rows[i], execCxt) ;
                 }
-                return results.iterator() ;
-            }
-        };
+            }) ;
+            Arrays.fill(rows, 0, count, null) ;
+            Arrays.fill(keys, 0, count, null) ;
+        }
+
+        List<Binding> results = new ArrayList<>() ;
+        for ( Map<Binding, List<Pair<Var, Accumulator>>> accumulators : partitions )
+        {
+            for ( Map.Entry<Binding, List<Pair<Var, Accumulator>>> e : accumulators.entrySet() )
+                results.add(noAggregators ? e.getKey() : groupResult(e.getKey(), e.getValue())) ;
+        }
+        if ( results.isEmpty() )
+            return noGroups(aggregators) ;
+        return results.iterator() ;
     }
     
     static private Binding genKey(VarExprList vars, Binding binding, ExecutionContext execCxt) 
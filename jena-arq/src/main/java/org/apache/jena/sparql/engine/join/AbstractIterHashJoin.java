@@ -18,23 +18,43 @@
 
 package org.apache.jena.sparql.engine.join;
 
+import java.util.ArrayDeque ;
+import java.util.ArrayList ;
+import java.util.Deque ;
 import java.util.Iterator ;
 import java.util.List ;
+import java.util.concurrent.Future ;
 
+import org.apache.jena.atlas.data.ThresholdPolicy ;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory ;
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.sparql.algebra.Algebra ;
 import org.apache.jena.sparql.core.Var ;
 import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.ParallelExec ;
 import org.apache.jena.sparql.engine.QueryIterator ;
 import org.apache.jena.sparql.engine.binding.Binding ;
 import org.apache.jena.sparql.engine.iterator.QueryIter2 ;
+import org.apache.jena.sparql.engine.iterator.QueryIterNullIterator ;
 import org.apache.jena.sparql.engine.iterator.QueryIterPeek ;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper ;
 import org.apache.jena.sparql.engine.join.JoinKey ;
 
 /** Hash join algorithm
  *  
  * This code materializes one input into the probe table
  * then hash joins the other input from the stream side.
+ * <p>
+ * With {@link ParallelExec#parallelHashJoin}, the probe table is built as
+ * partitions in parallel and the stream side is read in chunks that are
+ * probed by concurrent tasks. Results are returned in stream order. 
+ * <p>
+ * If the probe table exceeds the threshold given by
+ * {@link org.apache.jena.query.ARQ#spillToDiskThreshold} or
+ * {@link org.apache.jena.query.ARQ#spillToDiskBudget}, both inputs are written
+ * to disk in partitions by the hash of the join key, and each partition is
+ * then joined in memory in turn (a "grace" hash join). Results are no longer in
+ * stream order.
  */
 
 public abstract class AbstractIterHashJoin extends QueryIter2 {
@@ -45,7 +65,7 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
     // See also stats in the probe table.
     
     protected final JoinKey               joinKey ;
-    protected final HashProbeTable        hashTable ;
+    protected HashProbeTable              hashTable ;
 
     private QueryIterator               iterStream ;
     private Binding                     rowStream       = null ;
@@ -59,6 +79,25 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
     
     private Binding slot = null ;
 
+    // Parallel execution.
+    private final int                   parallelism ;
+    private Boolean                     parallelProbe   = null ;
+    private final Deque<Future<List<Binding>>> inflight = new ArrayDeque<>() ;
+    private Iterator<Binding>           iterChunk       = null ;
+
+    // Spilling to disk.
+    private final ThresholdPolicy<Binding> policy ;
+    private HashJoinSpill               spill           = null ;
+    // The partitions being joined, innermost first, once the stream side is on disk.
+    private Deque<HashJoinSpill>        spills          = null ;
+    // Stream rows with no key are joined, a chunk at a time, with all build rows.
+    private Iterator<Binding>           noKeyStream     = null ;
+    private List<Binding>               noKeyChunk      = null ;
+    private boolean[]                   noKeyHits       = null ;
+    private Iterator<Binding>           noKeyBuild      = null ;
+    private Binding                     noKeyBuildRow   = null ;
+    private int                         noKeyIdx        = 0 ;
+
     protected AbstractIterHashJoin(JoinKey joinKey, QueryIterator probeIter, QueryIterator streamIter, ExecutionContext execCxt) {
         super(probeIter, streamIter, execCxt) ;
         
@@ -78,19 +117,44 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
         
         this.joinKey = joinKey ;
         this.iterStream = streamIter ;
-        this.hashTable = new HashProbeTable(joinKey) ;
+        this.parallelism = ParallelExec.parallelHashJoin(execCxt) ? ParallelExec.parallelism(execCxt) : 1 ;
+        // More partitions than tasks so that skew in key values evens out.
+        this.hashTable = new HashProbeTable(joinKey, parallelism == 1 ? 1 : 4 * parallelism) ;
         this.iterCurrent = null ;
+        this.policy = ( execCxt != null && canSpill() )
+            ? ThresholdPolicyFactory.policyFromContext(execCxt.getContext())
+            : ThresholdPolicyFactory.never() ;
         buildHashTable(probeIter) ;
         
     }
         
     private void buildHashTable(QueryIterator iter1) {
         state = Phase.HASH ;
+        List<Binding> rows = ( parallelism > 1 ) ? new ArrayList<>() : null ;
         for (; iter1.hasNext();) {
             Binding row1 = iter1.next() ;
             s_countProbe ++ ;
-            hashTable.put(row1) ;
+            if ( spill != null ) {
+                spill.addBuild(row1) ;
+                continue ;
+            }
+            if ( rows != null )
+                rows.add(row1) ;
+            else
+                hashTable.put(row1) ;
+            policy.increment(row1) ;
+            if ( policy.isThresholdExceeded() ) {
+                // Switch to partitions on disk.
+                spill = new HashJoinSpill(joinKey) ;
+                Iterator<Binding> held = ( rows != null ) ? rows.iterator() : hashTable.values() ;
+                held.forEachRemaining(spill::addBuild) ;
+                rows = null ;
+                hashTable.clear() ;
+                policy.reset() ;
+            }
         }
+        if ( rows != null )
+            hashTable.putAll(rows, parallelism) ;
         iter1.close() ;
         state = Phase.STREAM ;
     }
@@ -130,12 +194,28 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
                 return doOneTail() ;
             case STREAM :
         }
-        
+
+        if ( spill != null && spills == null )
+            startSpillPartitions() ;
+
+        if ( parallelProbe == null )
+            // Decided here, not in the constructor, because it depends on the subclass.
+            parallelProbe = ( parallelism > 1 && spill == null && canProbeInParallel() ) ;
+        if ( parallelProbe )
+            return moveToNextBindingParallel() ;
+
         for(;;) {
             // Ensure we are processing a row. 
             while ( iterCurrent == null ) {
                 // Move on to the next row from the right.
                 if ( ! iterStream.hasNext() ) {
+                    if ( spill != null ) {
+                        if ( nextSpillPartition() )
+                            continue ;
+                        Binding b = nextNoKeyResult() ;
+                        if ( b != null )
+                            return b ;
+                    }
                     state = Phase.TRAILER ;
                     iterTail = joinFinished() ;
                     if ( iterTail != null )
@@ -181,6 +261,173 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
     }    
     
     
+    // Write the stream side to the partitions, then start on the first partition.
+    private void startSpillPartitions() {
+        for (; iterStream.hasNext();)
+            spill.addStream(iterStream.next()) ;
+        iterStream.close() ;
+        iterStream = QueryIterNullIterator.create(getExecContext()) ;
+        spills = new ArrayDeque<>() ;
+        spills.push(spill) ;
+        nextSpillPartition() ;
+    }
+
+    // Set up the probe table and stream for the next partition, if any.
+    // A partition whose build rows exceed the threshold is partitioned again.
+    private boolean nextSpillPartition() {
+        hashTable.clear() ;
+        policy.reset() ;
+        while ( ! spills.isEmpty() ) {
+            HashJoinSpill current = spills.peek() ;
+            int idx = current.nextPartition() ;
+            if ( idx < 0 ) {
+                spills.pop() ;
+                if ( current != spill )
+                    current.close() ;
+                continue ;
+            }
+            if ( ! loadPartition(current, idx) ) {
+                spills.push(current.repartition(idx)) ;
+                continue ;
+            }
+            iterStream.close() ;
+            iterStream = new QueryIterPlainWrapper(current.stream(idx), getExecContext()) ;
+            return true ;
+        }
+        return false ;
+    }
+
+    // Load the build rows of a partition into the probe table. Returns false,
+    // with the table empty, if they exceed the threshold and the partition can
+    // be partitioned again.
+    private boolean loadPartition(HashJoinSpill current, int idx) {
+        hashTable = new HashProbeTable(joinKey) ;
+        boolean canRepartition = current.canRepartition() ;
+        Iterator<Binding> iter = current.build(idx) ;
+        while ( iter.hasNext() ) {
+            Binding row = iter.next() ;
+            hashTable.put(row) ;
+            policy.increment(row) ;
+            if ( canRepartition && policy.isThresholdExceeded() ) {
+                hashTable.clear() ;
+                policy.reset() ;
+                return false ;
+            }
+        }
+        return true ;
+    }
+
+    // Stream rows without the join key: all build rows are candidates.
+    // Read a chunk of stream rows, then pass over the build rows once for
+    // the chunk, noting which stream rows had a result.
+    private Binding nextNoKeyResult() {
+        if ( noKeyStream == null ) {
+            if ( ! spill.hasStreamNoKey() )
+                return null ;
+            noKeyStream = spill.streamNoKey() ;
+        }
+        for(;;) {
+            if ( noKeyBuildRow != null ) {
+                while ( noKeyIdx < noKeyChunk.size() ) {
+                    int i = noKeyIdx++ ;
+                    Binding row = noKeyChunk.get(i) ;
+                    Binding r = Algebra.merge(noKeyBuildRow, row) ;
+                    if ( r == null )
+                        continue ;
+                    Binding r2 = yieldOneResult(noKeyBuildRow, row, r) ;
+                    if ( r2 != null ) {
+                        noKeyHits[i] = true ;
+                        s_countResults ++ ;
+                        return r2 ;
+                    }
+                }
+                noKeyBuildRow = null ;
+            }
+            if ( noKeyBuild != null && noKeyBuild.hasNext() ) {
+                noKeyBuildRow = noKeyBuild.next() ;
+                noKeyIdx = 0 ;
+                continue ;
+            }
+            // End of the build rows for this chunk.
+            if ( noKeyChunk != null ) {
+                if ( noKeyBuild != null ) {
+                    noKeyBuild = null ;
+                    noKeyIdx = 0 ;
+                }
+                while ( noKeyIdx < noKeyChunk.size() ) {
+                    int i = noKeyIdx++ ;
+                    if ( noKeyHits[i] )
+                        continue ;
+                    Binding b = noYieldedRows(noKeyChunk.get(i)) ;
+                    if ( b != null )
+                        return b ;
+                }
+                noKeyChunk = null ;
+            }
+            if ( ! noKeyStream.hasNext() )
+                return null ;
+            noKeyChunk = new ArrayList<>(ParallelExec.ChunkSize) ;
+            while ( noKeyChunk.size() < ParallelExec.ChunkSize && noKeyStream.hasNext() )
+                noKeyChunk.add(noKeyStream.next()) ;
+            s_countScan += noKeyChunk.size() ;
+            noKeyHits = new boolean[noKeyChunk.size()] ;
+            noKeyBuild = spill.allBuild() ;
+            noKeyIdx = 0 ;
+        }
+    }
+
+    private Binding moveToNextBindingParallel() {
+        for(;;) {
+            if ( iterChunk != null && iterChunk.hasNext() ) {
+                s_countResults ++ ;
+                return iterChunk.next() ;
+            }
+            iterChunk = null ;
+            // Keep up to "parallelism" chunks in progress.
+            while ( inflight.size() < parallelism && iterStream.hasNext() ) {
+                List<Binding> chunk = new ArrayList<>(ParallelExec.ChunkSize) ;
+                while ( chunk.size() < ParallelExec.ChunkSize && iterStream.hasNext() )
+                    chunk.add(iterStream.next()) ;
+                s_countScan += chunk.size() ;
+                inflight.add(ParallelExec.pool().submit(() -> probeChunk(chunk))) ;
+            }
+            if ( inflight.isEmpty() ) {
+                state = Phase.TRAILER ;
+                iterTail = joinFinished() ;
+                if ( iterTail != null )
+                    return doOneTail() ;
+                return null ;
+            }
+            iterChunk = ParallelExec.get(inflight.poll()).iterator() ;
+        }
+    }
+
+    // Called on a worker thread; only reads the probe table.
+    private List<Binding> probeChunk(List<Binding> rows) {
+        List<Binding> results = new ArrayList<>() ;
+        for ( Binding row : rows ) {
+            boolean hit = false ;
+            Iterator<Binding> iter = hashTable.getCandidates(row) ;
+            while ( iter.hasNext() ) {
+                Binding rowCurrentProbe = iter.next() ;
+                Binding r = Algebra.merge(rowCurrentProbe, row) ;
+                if ( r == null )
+                    continue ;
+                Binding r2 = yieldOneResult(rowCurrentProbe, row, r) ;
+                if ( r2 != null ) {
+                    hit = true ;
+                    results.add(r2) ;
+                }
+            }
+            if ( ! hit ) {
+                Binding b = noYieldedRows(row) ;
+                if ( b != null )
+                    results.add(b) ;
+            }
+        }
+        return results ;
+    }
+
     private Binding doOneTail() {
         // Only in TRAILING
         if ( iterTail.hasNext() ) {
@@ -217,6 +464,23 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
      * @return QueryIterator or null
      */
     protected abstract QueryIterator joinFinished() ;
+
+    /**
+     * Whether {@link #yieldOneResult} and {@link #noYieldedRows} can be called
+     * from several threads at once, allowing a parallel probe.
+     */
+    protected boolean canProbeInParallel() {
+        return true ;
+    }
+
+    /**
+     * Whether the join can switch to partitions on disk when the probe table is
+     * too large. Only rows can be kept in the partitions so this is not possible
+     * if the subclass keeps state about probe rows. Called from the constructor.
+     */
+    protected boolean canSpill() {
+        return true ;
+    }
         
     @Override
     protected void closeSubIterator() {
@@ -224,12 +488,24 @@ public abstract class AbstractIterHashJoin extends QueryIter2 {
             String x = String.format(
                          "HashJoin: LHS=%d RHS=%d Results=%d RightMisses=%d MaxBucket=%d NoKeyBucket=%d",
                          s_countProbe, s_countScan, s_countResults, 
-                         hashTable.s_countScanMiss, hashTable.s_maxBucketSize, hashTable.s_noKeyBucketSize) ;
+                         hashTable.s_countScanMiss.sum(), hashTable.s_maxBucketSize, hashTable.s_noKeyBucketSize) ;
             System.out.println(x) ;
         }
+        for ( Future<List<Binding>> f : inflight )
+            f.cancel(false) ;
+        inflight.clear() ;
         // In case it's a peek iterator.
         iterStream.close() ;
         hashTable.clear(); 
+        if ( spills != null ) {
+            for ( HashJoinSpill s : spills ) {
+                if ( s != spill )
+                    s.close() ;
+            }
+        }
+        if ( spill != null )
+            spill.close() ;
+        policy.reset() ;
     }
 
     @Override
@@ -0,0 +1,197 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.join;
+
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.List ;
+
+import org.apache.jena.atlas.data.BagFactory ;
+import org.apache.jena.atlas.data.DataBag ;
+import org.apache.jena.atlas.data.ThresholdPolicyFactory ;
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.riot.system.SerializationFactoryFinder ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+
+/**
+ * The on-disk partitions of a hash join that has exceeded its memory threshold
+ * ("grace" hash join). Rows of both sides are partitioned by the hash of the
+ * join key so that each partition can be joined on its own with an in-memory
+ * probe table.
+ * <p>
+ * Build rows without a value for the join key are kept separately and are
+ * candidates for every stream row. Stream rows without a value for the join key
+ * are candidates for all build rows.
+ * <p>
+ * A partition with too many build rows to join in memory is partitioned again,
+ * on other bits of the hash, up to {@link #MaxLevels} times.
+ */
+class HashJoinSpill {
+    static final int NumPartitions = 32 ;
+    // Bits of the hash used at each level.
+    private static final int PartitionBits = 5 ;
+    static final int MaxLevels = 4 ;
+
+    private final JoinKey               joinKey ;
+    private final int                   level ;
+    private final List<DataBag<Binding>> buildParts ;
+    private final List<DataBag<Binding>> streamParts ;
+    private DataBag<Binding>            buildNoKey      = null ;
+    private DataBag<Binding>            streamNoKey     = null ;
+    private int                         nextPartition   = 0 ;
+
+    HashJoinSpill(JoinKey joinKey) {
+        this(joinKey, 0) ;
+    }
+
+    private HashJoinSpill(JoinKey joinKey, int level) {
+        this.joinKey = joinKey ;
+        this.level = level ;
+        this.buildParts = new ArrayList<>(NumPartitions) ;
+        this.streamParts = new ArrayList<>(NumPartitions) ;
+        for ( int i = 0 ; i < NumPartitions ; i++ ) {
+            buildParts.add(null) ;
+            streamParts.add(null) ;
+        }
+    }
+
+    private static DataBag<Binding> newBag() {
+        // Always on disk.
+        return BagFactory.newDefaultBag(ThresholdPolicyFactory.count(0), SerializationFactoryFinder.bindingSerializationFactory()) ;
+    }
+
+    /** Partition index or -1 for no key. */
+    private int partition(Binding row) {
+        Object longHash = JoinLib.hash(joinKey, row) ;
+        if ( longHash == JoinLib.noKeyHash )
+            return -1 ;
+        int hash = Integer.rotateRight(longHash.hashCode(), level*PartitionBits) ;
+        return Math.floorMod(hash, NumPartitions) ;
+    }
+
+    void addBuild(Binding row) {
+        int idx = partition(row) ;
+        if ( idx < 0 ) {
+            if ( buildNoKey == null )
+                buildNoKey = newBag() ;
+            buildNoKey.add(row) ;
+            return ;
+        }
+        add(buildParts, idx, row) ;
+    }
+
+    void addStream(Binding row) {
+        int idx = partition(row) ;
+        if ( idx < 0 ) {
+            if ( streamNoKey == null )
+                streamNoKey = newBag() ;
+            streamNoKey.add(row) ;
+            return ;
+        }
+        add(streamParts, idx, row) ;
+    }
+
+    private static void add(List<DataBag<Binding>> parts, int idx, Binding row) {
+        DataBag<Binding> bag = parts.get(idx) ;
+        if ( bag == null ) {
+            bag = newBag() ;
+            parts.set(idx, bag) ;
+        }
+        bag.add(row) ;
+    }
+
+    /** The next partition with stream rows, or -1 if there are no more. */
+    int nextPartition() {
+        while ( nextPartition < NumPartitions ) {
+            int idx = nextPartition++ ;
+            if ( streamParts.get(idx) != null )
+                return idx ;
+        }
+        return -1 ;
+    }
+
+    /** Whether a partition that is too large can be partitioned again. */
+    boolean canRepartition() {
+        return level < MaxLevels ;
+    }
+
+    /**
+     * Partition the rows of partition {@code idx} again, including the build rows
+     * without a join key. The stream rows of the partition are deleted; the build
+     * rows are still needed by {@link #allBuild()}.
+     */
+    HashJoinSpill repartition(int idx) {
+        HashJoinSpill sub = new HashJoinSpill(joinKey, level+1) ;
+        build(idx).forEachRemaining(sub::addBuild) ;
+        stream(idx).forEachRemaining(sub::addStream) ;
+        close(streamParts, idx) ;
+        return sub ;
+    }
+
+    /** The build rows that can match stream rows of partition {@code idx}. */
+    Iterator<Binding> build(int idx) {
+        return Iter.concat(iterator(buildParts.get(idx)), iterator(buildNoKey)) ;
+    }
+
+    Iterator<Binding> stream(int idx) {
+        return iterator(streamParts.get(idx)) ;
+    }
+
+    boolean hasStreamNoKey() {
+        return streamNoKey != null ;
+    }
+
+    Iterator<Binding> streamNoKey() {
+        return iterator(streamNoKey) ;
+    }
+
+    /** All the build rows; each call reads the partitions again. */
+    Iterator<Binding> allBuild() {
+        Iterator<Binding> iter = iterator(buildNoKey) ;
+        for ( DataBag<Binding> bag : buildParts )
+            iter = Iter.concat(iter, iterator(bag)) ;
+        return iter ;
+    }
+
+    private static Iterator<Binding> iterator(DataBag<Binding> bag) {
+        return bag == null ? Iter.nullIterator() : bag.iterator() ;
+    }
+
+    void close() {
+        close(buildParts) ;
+        close(streamParts) ;
+        if ( buildNoKey != null )
+            buildNoKey.close() ;
+        if ( streamNoKey != null )
+            streamNoKey.close() ;
+    }
+
+    private static void close(List<DataBag<Binding>> parts) {
+        for ( int i = 0 ; i < parts.size() ; i++ )
+            close(parts, i) ;
+    }
+
+    private static void close(List<DataBag<Binding>> parts, int idx) {
+        DataBag<Binding> bag = parts.get(idx) ;
+        if ( bag != null ) {
+            bag.close() ;
+            parts.set(idx, null) ;
+        }
+    }
+}
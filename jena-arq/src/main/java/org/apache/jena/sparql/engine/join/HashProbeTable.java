@@ -22,29 +22,53 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.jena.atlas.iterator.Iter;
 import org.apache.jena.ext.com.google.common.collect.ArrayListMultimap;
 import org.apache.jena.ext.com.google.common.collect.Multimap;
+import org.apache.jena.sparql.engine.ParallelExec;
 import org.apache.jena.sparql.engine.binding.Binding;
 import org.apache.jena.sparql.engine.join.JoinKey ;
 
-/** The probe table for a hash join */
+/**
+ * The probe table for a hash join.
+ * <p>
+ * The table can be split into partitions by hash value. Partitions are
+ * independent so {@link #putAll(List, int)} can build them in parallel; once
+ * built, the table is read-only and can be probed from several threads.
+ */
 class HashProbeTable {
     /*package*/ long s_count           = 0;
     /*package*/ long s_bucketCount     = 0;
     /*package*/ long s_maxBucketSize   = 0;
     /*package*/ long s_noKeyBucketSize = 0;
-    /*package*/ long s_maxMatchGroup   = 0;
-    /*package*/ long s_countScanMiss   = 0;
+    // Updated by the parallel probe tasks.
+    /*package*/ final LongAccumulator s_maxMatchGroup = new LongAccumulator(Math::max, 0);
+    /*package*/ final LongAdder       s_countScanMiss = new LongAdder();
 
-    private final List<Binding>             noKeyBucket = new ArrayList<>();
-    private final Multimap<Object, Binding> buckets;
-    private final JoinKey                   joinKey;
+    private final List<Binding>                   noKeyBucket = new ArrayList<>();
+    private final List<Multimap<Object, Binding>> partitions;
+    private final JoinKey                         joinKey;
 
     HashProbeTable(JoinKey joinKey) {
+        this(joinKey, 1);
+    }
+
+    HashProbeTable(JoinKey joinKey, int numPartitions) {
         this.joinKey = joinKey;
-        buckets = ArrayListMultimap.create();
+        this.partitions = new ArrayList<>(numPartitions);
+        for ( int i = 0 ; i < numPartitions ; i++ )
+            partitions.add(ArrayListMultimap.create());
+    }
+
+    private int partitionIdx(Object longHash) {
+        return Math.floorMod(longHash.hashCode(), partitions.size());
+    }
+
+    private Multimap<Object, Binding> partition(Object longHash) {
+        return partitions.get(partitionIdx(longHash));
     }
 
     public void put(Binding row) {
@@ -54,21 +78,58 @@ class HashProbeTable {
             noKeyBucket.add(row);
             return;
         }
-        buckets.put(longHash, row);
+        partition(longHash).put(longHash, row);
+    }
+
+    /**
+     * Add rows, building the partitions in parallel using up to
+     * {@code parallelism} tasks.
+     */
+    public void putAll(List<Binding> rows, int parallelism) {
+        int numPartitions = partitions.size();
+        if ( parallelism <= 1 || numPartitions == 1 || rows.size() < ParallelExec.ChunkSize ) {
+            rows.forEach(this::put);
+            return;
+        }
+        int n = rows.size();
+        s_count += n;
+        // Phase 1: hash, in parallel slices.
+        Object[] hashes = new Object[n];
+        int slices = Math.min(parallelism, n);
+        ParallelExec.parallelFor(slices, slice -> {
+            for ( int i = slice ; i < n ; i += slices )
+                hashes[i] = JoinLib.hash(joinKey, rows.get(i));
+        });
+        for ( int i = 0 ; i < n ; i++ ) {
+            if ( hashes[i] == JoinLib.noKeyHash )
+                noKeyBucket.add(rows.get(i));
+        }
+        // Phase 2: each task fills the partitions it owns, keeping input order.
+        int tasks = Math.min(parallelism, numPartitions);
+        ParallelExec.parallelFor(tasks, task -> {
+            for ( int i = 0 ; i < n ; i++ ) {
+                Object h = hashes[i];
+                if ( h == JoinLib.noKeyHash )
+                    continue;
+                int idx = partitionIdx(h);
+                if ( idx % tasks == task )
+                    partitions.get(idx).put(h, rows.get(i));
+            }
+        });
     }
 
     public Iterator<Binding> getCandidates(Binding row) {
         Iterator<Binding> iter = null;
         Object longHash = JoinLib.hash(joinKey, row);
         if ( longHash == JoinLib.noKeyHash )
-            iter = buckets.values().iterator();
+            iter = bucketValues();
         else {
-            Collection<Binding> x = buckets.get(longHash);
+            Collection<Binding> x = partition(longHash).get(longHash);
             if ( x != null ) {
-                s_maxMatchGroup = Math.max(s_maxMatchGroup, x.size());
+                s_maxMatchGroup.accumulate(x.size());
                 iter = x.iterator();
             } else {
-                s_countScanMiss ++ ;
+                s_countScanMiss.increment();
             }
         }
         // And the rows with no common hash key
@@ -77,14 +138,27 @@ class HashProbeTable {
         return iter;
     }
 
+    private Iterator<Binding> bucketValues() {
+        if ( partitions.size() == 1 )
+            return partitions.get(0).values().iterator();
+        Iterator<Binding> iter = null;
+        for ( Multimap<Object, Binding> buckets : partitions )
+            iter = Iter.concat(iter, buckets.values().iterator());
+        return iter;
+    }
+
     public void stats() {
         long max = 0;
-        for ( Object key : buckets.keys() ) {
-            long s = buckets.get(key).size();
-            max = Math.max(max, s);
+        long count = 0;
+        for ( Multimap<Object, Binding> buckets : partitions ) {
+            for ( Object key : buckets.keySet() ) {
+                long s = buckets.get(key).size();
+                max = Math.max(max, s);
+            }
+            count += buckets.keys().size();
         }
         s_maxBucketSize = max;
-        s_bucketCount = buckets.keys().size();
+        s_bucketCount = count;
         s_noKeyBucketSize = (noKeyBucket == null) ? 0 : noKeyBucket.size();
         // s_count
         // s_maxMatchGroup
@@ -102,16 +176,17 @@ class HashProbeTable {
         Object longHash = JoinLib.hash(joinKey, row);
         if ( longHash == JoinLib.noKeyHash )
             return noKeyBucket;
-        Collection<Binding> list = buckets.get(longHash);
+        Collection<Binding> list = partition(longHash).get(longHash);
         return list;
     }
 
     public Iterator<Binding> values() {
-        return Iter.concat(buckets.values().iterator(),
+        return Iter.concat(bucketValues(),
                            noKeyBucket.iterator()) ;
     }
     
     public void clear() {
-        buckets.clear();
+        partitions.forEach(Multimap::clear);
+        noKeyBucket.clear();
     }
 }
@@ -19,10 +19,12 @@
 package org.apache.jena.sparql.engine.join;
 
 import java.util.* ;
+import java.util.concurrent.ConcurrentHashMap ;
 
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.logging.Log ;
 import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.ParallelExec ;
 import org.apache.jena.sparql.engine.QueryIterator ;
 import org.apache.jena.sparql.engine.binding.Binding ;
 import org.apache.jena.sparql.engine.iterator.QueryIterNullIterator ;
@@ -86,7 +88,8 @@ public class QueryIterHashLeftJoin_Left extends AbstractIterHashJoin {
         this.conditions = conditions ;
     }
 
-    private Set<Binding> leftHits = new HashSet<>() ; 
+    // Concurrent: yieldOneResult is called from worker threads in a parallel probe.
+    private Set<Binding> leftHits = ConcurrentHashMap.newKeySet() ; 
     
     @Override
     protected Binding yieldOneResult(Binding rowCurrentProbe, Binding rowStream, Binding rowResult) {
@@ -102,6 +105,18 @@ public class QueryIterHashLeftJoin_Left extends AbstractIterHashJoin {
         return null;
     }
     
+    @Override
+    protected boolean canProbeInParallel() {
+        return conditions == null || ParallelExec.isThreadSafe(conditions.getList()) ;
+    }
+
+    @Override
+    protected boolean canSpill() {
+        // Unmatched probe rows are found in the probe table when the join
+        // finishes; with partitions on disk, it only holds the last partition.
+        return false ;
+    }
+
     @Override
     protected QueryIterator joinFinished() {
         Iterator<Binding> iter = Iter.filter(hashTable.values(), b-> ! leftHits.contains(b) )  ;
@@ -20,6 +20,7 @@ package org.apache.jena.sparql.engine.join;
 
 import org.apache.jena.atlas.logging.Log ;
 import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.ParallelExec ;
 import org.apache.jena.sparql.engine.QueryIterator ;
 import org.apache.jena.sparql.engine.binding.Binding ;
 import org.apache.jena.sparql.engine.iterator.QueryIterNullIterator ;
@@ -99,6 +100,11 @@ public class QueryIterHashLeftJoin_Right extends AbstractIterHashJoin {
         return rowCurrentProbe;
     }
     
+    @Override
+    protected boolean canProbeInParallel() {
+        return conditions == null || ParallelExec.isThreadSafe(conditions.getList()) ;
+    }
+
     @Override
     protected QueryIterator joinFinished() {
         return null ;
@@ -36,6 +36,7 @@ import org.apache.jena.sparql.core.Quad ;
 import org.apache.jena.sparql.core.Var ;
 import org.apache.jena.sparql.engine.ExecutionContext ;
 import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.batch.OpExecutorBatch ;
 import org.apache.jena.sparql.engine.binding.Binding ;
 import org.apache.jena.sparql.engine.iterator.* ;
 import org.apache.jena.sparql.engine.join.Join ;
@@ -70,7 +71,7 @@ public class OpExecutor
     private static OpExecutor createOpExecutor(ExecutionContext execCxt) {
         OpExecutorFactory factory = execCxt.getExecutor() ;
         if (factory == null)
-            factory = stdFactory ;
+            factory = execCxt.getContext().isTrue(ARQ.batchExecution) ? OpExecutorBatch.factory : stdFactory ;
         if (factory == null)
             return new OpExecutor(execCxt) ;
         return factory.create(execCxt) ;
@@ -304,7 +305,7 @@ public class OpExecutor
     }
 
     protected QueryIterator execute(OpService opService, QueryIterator input) {
-        return new QueryIterService(input, opService, execCxt) ;
+        return QueryIterServiceBindJoin.create(input, opService, execCxt) ;
     }
 
     // Quad form, "GRAPH ?g {}" Flip back to OpGraph.
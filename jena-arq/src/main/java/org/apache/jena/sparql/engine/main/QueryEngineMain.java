@@ -37,6 +37,10 @@ public class QueryEngineMain extends QueryEngineBase
     static public void register()       { QueryEngineRegistry.addFactory(factory) ; }
     static public void unregister()     { QueryEngineRegistry.removeFactory(factory) ; }
 
+    /** Cache optimized algebra for queries with this engine; null to switch off (the default). */
+    static public void setPlanCache(PlanCache planCache)
+    { ((QueryEngineMainFactory)factory).setPlanCache(planCache) ; }
+
     public QueryEngineMain(Op op, DatasetGraph dataset, Binding input, Context context)
     { super(op, dataset, input, context) ; }
     
@@ -79,6 +83,8 @@ public class QueryEngineMain extends QueryEngineBase
     
     protected static class QueryEngineMainFactory implements QueryEngineFactory
     {
+        private PlanCache planCache = null ;
+
         @Override
         public boolean accept(Query query, DatasetGraph dataset, Context context) 
         { return true ; }
@@ -87,6 +93,7 @@ public class QueryEngineMain extends QueryEngineBase
         public Plan create(Query query, DatasetGraph dataset, Binding input, Context context)
         {
             QueryEngineMain engine = new QueryEngineMain(query, dataset, input, context) ;
+            engine.usePlanCache(planCache) ;
             return engine.getPlan() ;
         }
         
@@ -100,5 +107,12 @@ public class QueryEngineMain extends QueryEngineBase
             QueryEngineMain engine = new QueryEngineMain(op, dataset, binding, context) ;
             return engine.getPlan() ;
         }
+
+        @Override
+        public PlanCache getPlanCache()
+        { return planCache ; }
+
+        public void setPlanCache(PlanCache planCache)
+        { this.planCache = planCache ; }
     }
 }
@@ -53,7 +53,8 @@ public class QueryIterService extends QueryIterRepeatApply
         QueryIterator qIter ;
         try {
             qIter = Service.exec((OpService)op, getExecContext().getContext()) ;
-            // This iterator is materialized already otherwise we may end up
+            // Unless Service.queryStreaming is set, this iterator is
+            // materialized already otherwise we may end up
             // not servicing the HTTP connection as needed.
             // In extremis, can cause a deadlock when SERVICE loops back to this server.
             // Add tracking.
@@ -0,0 +1,320 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.main.iterator;
+
+import java.util.* ;
+import java.util.concurrent.ExecutorService ;
+import java.util.concurrent.Executors ;
+import java.util.concurrent.Future ;
+
+import org.apache.jena.atlas.io.IndentedWriter ;
+import org.apache.jena.atlas.lib.Lib ;
+import org.apache.jena.atlas.logging.Log ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.query.Query ;
+import org.apache.jena.query.QueryExecException ;
+import org.apache.jena.sparql.algebra.Op ;
+import org.apache.jena.sparql.algebra.OpAsQuery ;
+import org.apache.jena.sparql.algebra.OpVars ;
+import org.apache.jena.sparql.algebra.Table ;
+import org.apache.jena.sparql.algebra.TableFactory ;
+import org.apache.jena.sparql.algebra.op.* ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.ParallelExec ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.Rename ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.binding.BindingFactory ;
+import org.apache.jena.sparql.engine.binding.BindingMap ;
+import org.apache.jena.sparql.engine.http.Service ;
+import org.apache.jena.sparql.engine.iterator.QueryIter1 ;
+import org.apache.jena.sparql.expr.NodeValue ;
+import org.apache.jena.sparql.serializer.SerializationContext ;
+import org.apache.jena.sparql.util.Context ;
+
+/**
+ * SERVICE as a bind join: the bindings from the rest of the query are sent to
+ * the remote endpoint in batches, as a VALUES block, instead of one request
+ * per binding as {@link QueryIterService} does.
+ * <p>
+ * Each row of the VALUES block carries a row number so that the results can be
+ * joined back to the bindings of the batch they came from. Several batches
+ * can be in progress at once ({@link Service#bindJoinConcurrency}); results
+ * are returned in the order of the batches, as each batch completes.
+ * <p>
+ * Sending the bindings as data joins them with the remote pattern rather than
+ * substituting them into it. That is only the same for some patterns (basic
+ * graph patterns, paths, joins and unions of them, and filters on their own
+ * variables, possibly under a projection or DISTINCT); for other patterns, and
+ * when the service is a variable, {@link #create} uses {@link QueryIterService}.
+ */
+public class QueryIterServiceBindJoin extends QueryIter1
+{
+    /** Row number in the VALUES block. */
+    private static final Var rowVar = Var.alloc("__row") ;
+
+    private static final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "SERVICE bind join") ;
+        thread.setDaemon(true) ;
+        return thread ;
+    }) ;
+
+    private final OpService opService ;
+    private final Op opRemote ;
+    private final List<Var> remoteVars ;
+    private final int batchSize ;
+    private final int concurrency ;
+    private final Deque<Future<List<Binding>>> pending = new ArrayDeque<>() ;
+    private Iterator<Binding> current = null ;
+
+    /**
+     * Create an iterator for a SERVICE: a bind join if {@link Service#bindJoinBatchSize}
+     * is set and the pattern allows it, else a {@link QueryIterService}.
+     */
+    public static QueryIterator create(QueryIterator input, OpService opService, ExecutionContext execCxt)
+    {
+        int batchSize = execCxt.getContext().getInt(Service.bindJoinBatchSize, 0) ;
+        if ( batchSize < 2 || ! opService.getService().isURI() )
+            return new QueryIterService(input, opService, execCxt) ;
+        Op opRemote = Rename.reverseVarRename(opService.getSubOp(), true) ;
+        // Scope renamed variables: leave to Service.exec to map back.
+        if ( ! opRemote.equals(opService.getSubOp()) || ! isJoinSafe(opRemote) )
+            return new QueryIterService(input, opService, execCxt) ;
+        return new QueryIterServiceBindJoin(input, opService, execCxt) ;
+    }
+
+    /**
+     * Whether joining the pattern with a VALUES block gives the same results as
+     * substituting each row into the pattern.
+     */
+    public static boolean isJoinSafe(Op op)
+    {
+        if ( op instanceof OpProject )
+            return isJoinSafe(((OpProject)op).getSubOp()) ;
+        if ( op instanceof OpDistinct )
+            return isJoinSafe(((OpDistinct)op).getSubOp()) ;
+        if ( op instanceof OpReduced )
+            return isJoinSafe(((OpReduced)op).getSubOp()) ;
+        return isJoinSafePattern(op) ;
+    }
+
+    private static boolean isJoinSafePattern(Op op)
+    {
+        if ( op instanceof OpBGP || op instanceof OpTriple || op instanceof OpPath )
+            return true ;
+        if ( op instanceof OpSequence )
+        {
+            for ( Op sub : ((OpSequence)op).getElements() )
+                if ( ! isJoinSafePattern(sub) )
+                    return false ;
+            return true ;
+        }
+        if ( op instanceof OpJoin || op instanceof OpUnion )
+        {
+            Op2 op2 = (Op2)op ;
+            return isJoinSafePattern(op2.getLeft()) && isJoinSafePattern(op2.getRight()) ;
+        }
+        if ( op instanceof OpFilter )
+        {
+            OpFilter opFilter = (OpFilter)op ;
+            // A filter on a variable from outside the pattern would see it
+            // bound by substitution but not by a join.
+            if ( ! OpVars.visibleVars(opFilter.getSubOp()).containsAll(opFilter.getExprs().getVarsMentioned()) )
+                return false ;
+            return isJoinSafePattern(opFilter.getSubOp()) ;
+        }
+        return false ;
+    }
+
+    public QueryIterServiceBindJoin(QueryIterator input, OpService opService, ExecutionContext execCxt)
+    {
+        super(input, execCxt) ;
+        if ( execCxt.getContext().isFalse(Service.serviceAllowed) )
+            throw new QueryExecException("SERVICE not allowed") ;
+        this.opService = opService ;
+        this.opRemote = opService.getSubOp() ;
+        this.remoteVars = new ArrayList<>(OpVars.visibleVars(opRemote)) ;
+        Context context = execCxt.getContext() ;
+        this.batchSize = Math.max(1, context.getInt(Service.bindJoinBatchSize, 1)) ;
+        this.concurrency = Math.max(1, context.getInt(Service.bindJoinConcurrency, 4)) ;
+    }
+
+    @Override
+    protected boolean hasNextBinding()
+    {
+        for ( ;; )
+        {
+            if ( current != null && current.hasNext() )
+                return true ;
+            current = null ;
+            fill() ;
+            if ( pending.isEmpty() )
+                return false ;
+            current = ParallelExec.get(pending.removeFirst()).iterator() ;
+        }
+    }
+
+    @Override
+    protected Binding moveToNextBinding()
+    {
+        return current.next() ;
+    }
+
+    // Start batches until there are enough in progress or the input is used up.
+    private void fill()
+    {
+        QueryIterator input = getInput() ;
+        while ( pending.size() < concurrency && input.hasNext() )
+        {
+            List<Binding> batch = new ArrayList<>(batchSize) ;
+            while ( batch.size() < batchSize && input.hasNext() )
+                batch.add(input.next()) ;
+            Context context = getExecContext().getContext() ;
+            pending.addLast(executor.submit(() -> execBatch(batch, context))) ;
+        }
+    }
+
+    private List<Binding> execBatch(List<Binding> batch, Context context)
+    {
+        // The distinct rows of the batch over the variables of the remote pattern.
+        Map<List<Node>, List<Binding>> groups = new LinkedHashMap<>() ;
+        for ( Binding binding : batch )
+        {
+            List<Node> key = new ArrayList<>(remoteVars.size()) ;
+            for ( Var v : remoteVars )
+                key.add(binding.get(v)) ;
+            groups.computeIfAbsent(key, k -> new ArrayList<>()).add(binding) ;
+        }
+
+        List<Var> vars = new ArrayList<>() ;
+        vars.add(rowVar) ;
+        for ( int i = 0 ; i < remoteVars.size() ; i++ )
+        {
+            for ( List<Node> key : groups.keySet() )
+            {
+                if ( key.get(i) != null )
+                {
+                    vars.add(remoteVars.get(i)) ;
+                    break ;
+                }
+            }
+        }
+        Table table = TableFactory.create(vars) ;
+        List<List<Binding>> rows = new ArrayList<>(groups.size()) ;
+        for ( Map.Entry<List<Node>, List<Binding>> e : groups.entrySet() )
+        {
+            BindingMap row = BindingFactory.create() ;
+            row.add(rowVar, NodeValue.makeInteger(rows.size()).asNode()) ;
+            List<Node> key = e.getKey() ;
+            for ( int i = 0 ; i < remoteVars.size() ; i++ )
+            {
+                if ( key.get(i) != null )
+                    row.add(remoteVars.get(i), key.get(i)) ;
+            }
+            table.addBinding(row) ;
+            rows.add(e.getValue()) ;
+        }
+
+        Query query = OpAsQuery.asQuery(OpJoin.create(OpTable.create(table), opRemote)) ;
+        List<Binding> results = new ArrayList<>() ;
+        QueryIterator qIter ;
+        try {
+            qIter = remote(opService.getService().getURI(), query, context) ;
+        } catch (RuntimeException ex)
+        {
+            if ( opService.getSilent() )
+            {
+                Log.warn(this, "SERVICE <" + opService.getService().toString() + ">: " + ex.getMessage()) ;
+                // Return the input
+                return batch ;
+            }
+            throw ex ;
+        }
+        try {
+            while ( qIter.hasNext() )
+            {
+                Binding remote = qIter.next() ;
+                Node n = remote.get(rowVar) ;
+                if ( n == null || ! n.isLiteral() )
+                    continue ;
+                int idx = NodeValue.makeNode(n).getInteger().intValue() ;
+                if ( idx < 0 || idx >= rows.size() )
+                    continue ;
+                for ( Binding outer : rows.get(idx) )
+                {
+                    Binding b = join(outer, remote) ;
+                    if ( b != null )
+                        results.add(b) ;
+                }
+            }
+        } finally { qIter.close() ; }
+        return results ;
+    }
+
+    /** Execute the query at the remote endpoint. */
+    protected QueryIterator remote(String serviceURI, Query query, Context context)
+    {
+        return Service.exec(serviceURI, query, context) ;
+    }
+
+    private static Binding join(Binding outer, Binding remote)
+    {
+        BindingMap b = BindingFactory.create(outer) ;
+        Iterator<Var> iter = remote.vars() ;
+        while ( iter.hasNext() )
+        {
+            Var v = iter.next() ;
+            if ( v.equals(rowVar) )
+                continue ;
+            Node n = remote.get(v) ;
+            Node n2 = outer.get(v) ;
+            if ( n2 == null )
+                b.add(v, n) ;
+            else if ( ! n2.equals(n) )
+                return null ;
+        }
+        return b ;
+    }
+
+    private void cancelPending()
+    {
+        for ( Future<List<Binding>> f : pending )
+            f.cancel(true) ;
+        pending.clear() ;
+    }
+
+    @Override
+    protected void requestSubCancel()
+    {
+        cancelPending() ;
+    }
+
+    @Override
+    protected void closeSubIterator()
+    {
+        cancelPending() ;
+    }
+
+    @Override
+    protected void details(IndentedWriter out, SerializationContext sCxt)
+    {
+        out.println(Lib.className(this) + " batch=" + batchSize + " concurrency=" + concurrency) ;
+    }
+}
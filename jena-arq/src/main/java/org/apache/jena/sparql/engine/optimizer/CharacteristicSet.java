@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.optimizer;
+
+import java.util.Collection ;
+import java.util.Collections ;
+import java.util.LinkedHashMap ;
+import java.util.Map ;
+
+import org.apache.jena.graph.Node ;
+
+/**
+ * A characteristic set : the exact set of predicates used by some subjects,
+ * with the number of such subjects and, for each predicate, the number of
+ * triples it has over those subjects.
+ */
+public final class CharacteristicSet
+{
+    private final long subjects ;
+    private final Map<Node, Long> occurrences ;
+
+    public CharacteristicSet(long subjects, Map<Node, Long> occurrences)
+    {
+        this.subjects = subjects ;
+        this.occurrences = Collections.unmodifiableMap(new LinkedHashMap<>(occurrences)) ;
+    }
+
+    /** Number of subjects with exactly this set of predicates. */
+    public long getSubjects()                   { return subjects ; }
+
+    /** Predicate to number of triples. */
+    public Map<Node, Long> getOccurrences()     { return occurrences ; }
+
+    public boolean containsAll(Collection<Node> predicates)
+    {
+        return occurrences.keySet().containsAll(predicates) ;
+    }
+
+    /**
+     * Estimate the number of solutions of a star of triple patterns, one for each
+     * of the predicates, over the subjects of this set. The predicates must be in
+     * this set.
+     */
+    public double estimateStar(Collection<Node> predicates)
+    {
+        double x = subjects ;
+        for ( Node p : predicates )
+            x = x * occurrences.get(p) / subjects ;
+        return x ;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "cset("+subjects+" "+occurrences+")" ;
+    }
+}
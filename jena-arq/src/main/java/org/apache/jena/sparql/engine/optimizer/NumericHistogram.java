@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.optimizer;
+
+import java.util.Arrays ;
+
+/**
+ * Equi-depth histogram of numeric values : each bucket holds about the same
+ * number of values. Bucket {@code i} covers {@code bounds[i]} to
+ * {@code bounds[i+1]}, inclusive.
+ */
+public final class NumericHistogram
+{
+    private final double[] bounds ;
+    private final long[] counts ;
+
+    public NumericHistogram(double[] bounds, long[] counts)
+    {
+        if ( bounds.length != counts.length+1 )
+            throw new IllegalArgumentException("Bounds and counts do not match: "+bounds.length+" / "+counts.length) ;
+        this.bounds = bounds ;
+        this.counts = counts ;
+    }
+
+    /**
+     * Build a histogram from a sample of the values, scaled to {@code total}
+     * values. The sample array is sorted in-place.
+     */
+    public static NumericHistogram build(double[] sample, long total, int buckets)
+    {
+        if ( sample.length == 0 )
+            return null ;
+        Arrays.sort(sample) ;
+        buckets = Math.min(buckets, sample.length) ;
+        double[] bounds = new double[buckets+1] ;
+        long[] counts = new long[buckets] ;
+        int start = 0 ;
+        bounds[0] = sample[0] ;
+        for ( int i = 0 ; i < buckets ; i++ )
+        {
+            int end = (int)((long)sample.length*(i+1)/buckets) ;
+            bounds[i+1] = sample[end-1] ;
+            counts[i] = Math.round((double)(end-start)*total/sample.length) ;
+            start = end ;
+        }
+        return new NumericHistogram(bounds, counts) ;
+    }
+
+    public double getMin()          { return bounds[0] ; }
+    public double getMax()          { return bounds[bounds.length-1] ; }
+    public double[] getBounds()     { return bounds ; }
+    public long[] getCounts()       { return counts ; }
+
+    /** Whether the value is between the smallest and largest values. */
+    public boolean contains(double value)
+    {
+        return value >= getMin() && value <= getMax() ;
+    }
+
+    /**
+     * Estimate the number of values between {@code lo} and {@code hi}, inclusive,
+     * assuming values are spread evenly within each bucket.
+     */
+    public double estimateRange(double lo, double hi)
+    {
+        double x = 0 ;
+        for ( int i = 0 ; i < counts.length ; i++ )
+        {
+            double b1 = bounds[i] ;
+            double b2 = bounds[i+1] ;
+            if ( hi < b1 || lo > b2 )
+                continue ;
+            if ( b1 == b2 || ( lo <= b1 && hi >= b2 ) )
+            {
+                x += counts[i] ;
+                continue ;
+            }
+            double overlap = Math.min(hi, b2) - Math.max(lo, b1) ;
+            x += counts[i] * overlap / (b2-b1) ;
+        }
+        return x ;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "histogram"+Arrays.toString(bounds)+Arrays.toString(counts) ;
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.optimizer;
+
+/** Statistics for one predicate. */
+public final class PredicateStats
+{
+    private final long count ;
+    private final long subjects ;
+    private final long objects ;
+    private final NumericHistogram histogram ;
+
+    /**
+     * @param count      Number of triples with the predicate
+     * @param subjects   Number of distinct subjects of those triples
+     * @param objects    Number of distinct objects of those triples
+     * @param histogram  Numeric object values, or null
+     */
+    public PredicateStats(long count, long subjects, long objects, NumericHistogram histogram)
+    {
+        this.count = count ;
+        this.subjects = subjects ;
+        this.objects = objects ;
+        this.histogram = histogram ;
+    }
+
+    public long getCount()                  { return count ; }
+    public long getSubjects()               { return subjects ; }
+    public long getObjects()                { return objects ; }
+    public NumericHistogram getHistogram()  { return histogram ; }
+
+    @Override
+    public String toString()
+    {
+        return String.format("count=%d subjects=%d objects=%d", count, subjects, objects) ;
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.optimizer;
+
+import static org.apache.jena.sparql.sse.Item.addPair ;
+
+import java.io.OutputStream ;
+import java.util.* ;
+import java.util.Map.Entry ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.ARQException ;
+import org.apache.jena.sparql.sse.Item ;
+import org.apache.jena.sparql.sse.ItemList ;
+import org.apache.jena.sparql.sse.ItemWriter ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.sparql.util.NodeFactoryExtra ;
+
+/**
+ * Statistics of a graph for cost-based join ordering: per-predicate counts and
+ * distinct subjects and objects, histograms of numeric objects, and
+ * characteristic sets.
+ * <p>
+ * Format:<pre>(catalog
+ *    (meta (count N) (subjects N) (objects N))
+ *    (predicate &lt;uri&gt; (count N) (subjects N) (objects N) (histogram (bounds ...) (counts ...)))
+ *    (type &lt;uri&gt; N)
+ *    (cset N (&lt;uri&gt; N) (&lt;uri&gt; N) ...)
+ *  )</pre>
+ * where a {@code cset} gives the number of subjects with exactly that set of
+ * predicates, and the number of triples for each predicate, and a {@code type}
+ * gives the number of triples with {@code rdf:type} and that class.
+ */
+public final class StatsCatalog
+{
+    public static final String CATALOG      = "catalog" ;
+    public static final String PREDICATE    = "predicate" ;
+    public static final String CSET         = "cset" ;
+    public static final String SUBJECTS     = "subjects" ;
+    public static final String OBJECTS      = "objects" ;
+    public static final String HISTOGRAM    = "histogram" ;
+    public static final String BOUNDS       = "bounds" ;
+    public static final String COUNTS       = "counts" ;
+    public static final String TYPE         = "type" ;
+
+    private final long count ;
+    private final long subjects ;
+    private final long objects ;
+    private final Map<Node, PredicateStats> predicates = new LinkedHashMap<>() ;
+    private final Map<Node, Long> types = new LinkedHashMap<>() ;
+    private final List<CharacteristicSet> sets = new ArrayList<>() ;
+
+    public StatsCatalog(long count, long subjects, long objects)
+    {
+        this.count = count ;
+        this.subjects = subjects ;
+        this.objects = objects ;
+    }
+
+    public void add(Node predicate, PredicateStats stats)   { predicates.put(predicate, stats) ; }
+    public void add(CharacteristicSet cs)                   { sets.add(cs) ; }
+    public void addType(Node type, long count)              { types.put(type, count) ; }
+
+    /** Number of triples */
+    public long getCount()                                  { return count ; }
+    /** Number of distinct subjects */
+    public long getSubjects()                               { return subjects ; }
+    /** Number of distinct objects */
+    public long getObjects()                                { return objects ; }
+    public Map<Node, PredicateStats> getPredicates()        { return Collections.unmodifiableMap(predicates) ; }
+    public PredicateStats getPredicate(Node predicate)      { return predicates.get(predicate) ; }
+    public List<CharacteristicSet> getCharacteristicSets()  { return Collections.unmodifiableList(sets) ; }
+    /** Number of subjects of {@code rdf:type}, by class */
+    public Map<Node, Long> getTypes()                       { return Collections.unmodifiableMap(types) ; }
+
+    /**
+     * Estimate the number of solutions of a star of triple patterns on the same
+     * subject variable, one for each of the predicates. Returns -1 if there are no
+     * characteristic sets.
+     */
+    public double estimateStar(Collection<Node> star)
+    {
+        if ( sets.isEmpty() )
+            return -1 ;
+        double x = 0 ;
+        for ( CharacteristicSet cs : sets )
+        {
+            if ( cs.containsAll(star) )
+                x += cs.estimateStar(star) ;
+        }
+        return x ;
+    }
+
+    // ---- Read and write
+
+    public static StatsCatalog read(String filename)
+    {
+        return parse(SSE.readFile(filename)) ;
+    }
+
+    public static StatsCatalog parse(Item item)
+    {
+        if ( !item.isTagged(CATALOG) )
+            throw new ARQException("Not tagged '"+CATALOG+"'") ;
+        ItemList list = item.getList().cdr() ;
+        long count = -1 ;
+        long subjects = -1 ;
+        long objects = -1 ;
+        if ( !list.isEmpty() && list.car().isTagged(StatsMatcher.META) )
+        {
+            ItemList meta = list.car().getList() ;
+            count = getLong(meta, StatsMatcher.COUNT) ;
+            subjects = getLong(meta, SUBJECTS) ;
+            objects = getLong(meta, OBJECTS) ;
+            list = list.cdr() ;
+        }
+        StatsCatalog catalog = new StatsCatalog(count, subjects, objects) ;
+        for ( ; !list.isEmpty() ; list = list.cdr() )
+        {
+            Item elt = list.car() ;
+            if ( elt.isTagged(PREDICATE) )
+            {
+                ItemList x = elt.getList() ;
+                Node p = x.get(1).getNode() ;
+                NumericHistogram histogram = null ;
+                Item h = Item.find(x, HISTOGRAM) ;
+                if ( h != null )
+                {
+                    double[] bounds = doubles(Item.find(h.getList(), BOUNDS).getList().cdr()) ;
+                    double[] c = doubles(Item.find(h.getList(), COUNTS).getList().cdr()) ;
+                    long[] counts = new long[c.length] ;
+                    for ( int i = 0 ; i < c.length ; i++ )
+                        counts[i] = (long)c[i] ;
+                    histogram = new NumericHistogram(bounds, counts) ;
+                }
+                catalog.add(p, new PredicateStats(getLong(x, StatsMatcher.COUNT), getLong(x, SUBJECTS), getLong(x, OBJECTS), histogram)) ;
+            }
+            else if ( elt.isTagged(TYPE) )
+                catalog.addType(elt.getList().get(1).getNode(), elt.getList().get(2).getInteger()) ;
+            else if ( elt.isTagged(CSET) )
+            {
+                ItemList x = elt.getList() ;
+                long n = x.get(1).getInteger() ;
+                Map<Node, Long> occurrences = new LinkedHashMap<>() ;
+                for ( Item pair : x.sublist(2) )
+                    occurrences.put(pair.getList().get(0).getNode(), pair.getList().get(1).getInteger()) ;
+                catalog.add(new CharacteristicSet(n, occurrences)) ;
+            }
+            else
+                throw new ARQException("Unrecognized: "+elt) ;
+        }
+        return catalog ;
+    }
+
+    private static long getLong(ItemList list, String key)
+    {
+        Item x = Item.find(list, key) ;
+        if ( x == null )
+            return -1 ;
+        return x.getList().get(1).getInteger() ;
+    }
+
+    private static double[] doubles(ItemList list)
+    {
+        double[] x = new double[list.size()] ;
+        for ( int i = 0 ; i < x.length ; i++ )
+            x[i] = list.get(i).getDouble() ;
+        return x ;
+    }
+
+    public Item format()
+    {
+        Item catalog = Item.createTagged(CATALOG) ;
+        ItemList list = catalog.getList() ;
+
+        Item meta = Item.createTagged(StatsMatcher.META) ;
+        addPair(meta.getList(), StatsMatcher.COUNT, NodeFactoryExtra.intToNode(count)) ;
+        addPair(meta.getList(), SUBJECTS, NodeFactoryExtra.intToNode(subjects)) ;
+        addPair(meta.getList(), OBJECTS, NodeFactoryExtra.intToNode(objects)) ;
+        list.add(meta) ;
+
+        for ( Entry<Node, PredicateStats> e : predicates.entrySet() )
+        {
+            PredicateStats ps = e.getValue() ;
+            Item x = Item.createTagged(PREDICATE) ;
+            x.getList().add(e.getKey()) ;
+            addPair(x.getList(), StatsMatcher.COUNT, NodeFactoryExtra.intToNode(ps.getCount())) ;
+            addPair(x.getList(), SUBJECTS, NodeFactoryExtra.intToNode(ps.getSubjects())) ;
+            addPair(x.getList(), OBJECTS, NodeFactoryExtra.intToNode(ps.getObjects())) ;
+            NumericHistogram h = ps.getHistogram() ;
+            if ( h != null )
+            {
+                Item hItem = Item.createTagged(HISTOGRAM) ;
+                Item bounds = Item.createTagged(BOUNDS) ;
+                for ( double d : h.getBounds() )
+                    bounds.getList().add(NodeFactoryExtra.doubleToNode(d)) ;
+                Item counts = Item.createTagged(COUNTS) ;
+                for ( long c : h.getCounts() )
+                    counts.getList().add(NodeFactoryExtra.intToNode(c)) ;
+                hItem.getList().add(bounds) ;
+                hItem.getList().add(counts) ;
+                x.getList().add(hItem) ;
+            }
+            list.add(x) ;
+        }
+
+        for ( Entry<Node, Long> e : types.entrySet() )
+        {
+            Item x = Item.createTagged(TYPE) ;
+            x.getList().add(e.getKey()) ;
+            x.getList().add(NodeFactoryExtra.intToNode(e.getValue())) ;
+            list.add(x) ;
+        }
+
+        for ( CharacteristicSet cs : sets )
+        {
+            Item x = Item.createTagged(CSET) ;
+            x.getList().add(NodeFactoryExtra.intToNode(cs.getSubjects())) ;
+            for ( Entry<Node, Long> e : cs.getOccurrences().entrySet() )
+                addPair(x.getList(), e.getKey(), NodeFactoryExtra.intToNode(e.getValue())) ;
+            list.add(x) ;
+        }
+        return catalog ;
+    }
+
+    public void write(OutputStream output)
+    {
+        ItemWriter.write(output, format()) ;
+    }
+
+    @Override
+    public String toString()
+    {
+        return format().toString() ;
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.optimizer.reorder;
+
+import java.util.* ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.optimizer.NumericHistogram ;
+import org.apache.jena.sparql.engine.optimizer.PredicateStats ;
+import org.apache.jena.sparql.engine.optimizer.StatsCatalog ;
+import org.apache.jena.sparql.expr.NodeValue ;
+import org.apache.jena.sparql.graph.NodeConst ;
+import org.apache.jena.sparql.sse.Item ;
+
+/**
+ * Join ordering by estimated cardinality, using a {@link StatsCatalog}.
+ * <p>
+ * Patterns are chosen greedily: the next pattern is the one that gives the
+ * smallest estimated number of intermediate solutions, among the patterns that
+ * share a variable with those already chosen (to avoid cross products). The
+ * number of matches of a pattern, for each solution so far, is estimated from
+ * the predicate statistics, treating variables already bound as constants. For
+ * a star of patterns on one subject variable, the characteristic sets are used
+ * instead, as predicates on the same subject are rarely independent.
+ */
+public final class ReorderCostBased extends ReorderTransformationSubstitution
+{
+    private final StatsCatalog catalog ;
+
+    public ReorderCostBased(StatsCatalog catalog)
+    {
+        this.catalog = catalog ;
+    }
+
+    @Override
+    protected ReorderProc reorder(List<Triple> triples, List<PatternTriple> components)
+    {
+        int N = triples.size() ;
+        int indexes[] = new int[N] ;
+        boolean[] done = new boolean[N] ;
+        Set<Node> bound = new HashSet<>() ;
+        // Predicates of the chosen patterns, by subject variable.
+        Map<Node, Set<Node>> stars = new HashMap<>() ;
+        double card = 1 ;
+        for ( int idx = 0 ; idx < N ; idx++ )
+        {
+            int best = -1 ;
+            double bestCard = 0 ;
+            boolean bestConnected = false ;
+            for ( int i = 0 ; i < N ; i++ )
+            {
+                if ( done[i] )
+                    continue ;
+                Triple t = triples.get(i) ;
+                boolean connected = connected(t, bound) ;
+                double c = card * estimate(t, bound, stars) ;
+                if ( best < 0 || ( connected && !bestConnected ) || ( connected == bestConnected && c < bestCard ) )
+                {
+                    best = i ;
+                    bestCard = c ;
+                    bestConnected = connected ;
+                }
+            }
+            indexes[idx] = best ;
+            done[best] = true ;
+            card = bestCard ;
+            Triple t = triples.get(best) ;
+            for ( Node n : nodes(t) )
+                if ( Var.isVar(n) )
+                    bound.add(n) ;
+            if ( Var.isVar(t.getSubject()) && !Var.isVar(t.getPredicate()) )
+                stars.computeIfAbsent(t.getSubject(), (x)->new HashSet<>()).add(t.getPredicate()) ;
+        }
+        return new ReorderProcIndexes(indexes) ;
+    }
+
+    private static Node[] nodes(Triple t)
+    {
+        return new Node[]{ t.getSubject(), t.getPredicate(), t.getObject() } ;
+    }
+
+    // No variables, or a variable already bound.
+    private static boolean connected(Triple t, Set<Node> bound)
+    {
+        boolean vars = false ;
+        for ( Node n : nodes(t) )
+        {
+            if ( ! Var.isVar(n) )
+                continue ;
+            if ( bound.contains(n) )
+                return true ;
+            vars = true ;
+        }
+        return !vars || bound.isEmpty() ;
+    }
+
+    /** Estimate the number of matches of a triple, for each solution of the patterns before it. */
+    private double estimate(Triple t, Set<Node> bound, Map<Node, Set<Node>> stars)
+    {
+        Node s = t.getSubject() ;
+        Node p = t.getPredicate() ;
+        Node o = t.getObject() ;
+        boolean sBound = isBound(s, bound) ;
+        boolean oBound = isBound(o, bound) ;
+        if ( !Var.isVar(p) && Var.isVar(s) && sBound )
+        {
+            Set<Node> star = stars.get(s) ;
+            PredicateStats ps = catalog.getPredicate(p) ;
+            if ( star != null && ps != null && !star.contains(p) )
+            {
+                Set<Node> star2 = new HashSet<>(star) ;
+                star2.add(p) ;
+                double before = catalog.estimateStar(star) ;
+                double after = catalog.estimateStar(star2) ;
+                if ( before > 0 && after >= 0 )
+                {
+                    double x = after/before ;
+                    if ( oBound )
+                        x = x * objectSelectivity(p, ps, o) ;
+                    return x ;
+                }
+            }
+        }
+        return estimate(s, sBound, p, isBound(p, bound), o, oBound) ;
+    }
+
+    private static boolean isBound(Node n, Set<Node> bound)
+    {
+        return !Var.isVar(n) || bound.contains(n) ;
+    }
+
+    private double estimate(Node s, boolean sBound, Node p, boolean pBound, Node o, boolean oBound)
+    {
+        if ( p != null && !Var.isVar(p) )
+        {
+            PredicateStats ps = catalog.getPredicate(p) ;
+            if ( ps == null )
+                // Not in the data.
+                return 0 ;
+            double x = ps.getCount() ;
+            if ( sBound )
+                x = x / Math.max(1, ps.getSubjects()) ;
+            if ( oBound )
+                x = x * objectSelectivity(p, ps, o) ;
+            return x ;
+        }
+        double x = catalog.getCount() ;
+        if ( pBound )
+            x = x / Math.max(1, catalog.getPredicates().size()) ;
+        if ( sBound )
+            x = x / Math.max(1, catalog.getSubjects()) ;
+        if ( oBound )
+            x = x / Math.max(1, catalog.getObjects()) ;
+        return x ;
+    }
+
+    /** Fraction of the triples of a predicate that have the object (null or a variable for "bound, unknown"). */
+    private double objectSelectivity(Node p, PredicateStats ps, Node o)
+    {
+        if ( o != null && !Var.isVar(o) )
+        {
+            if ( NodeConst.nodeRDFType.equals(p) && ! catalog.getTypes().isEmpty() )
+            {
+                Long n = catalog.getTypes().get(o) ;
+                return ( n == null ) ? 0 : (double)n / Math.max(1, ps.getCount()) ;
+            }
+            NumericHistogram h = ps.getHistogram() ;
+            if ( h != null && o.isLiteral() )
+            {
+                NodeValue nv = NodeValue.makeNode(o) ;
+                if ( nv.isNumber() && !h.contains(nv.getDouble()) )
+                    return 0 ;
+            }
+        }
+        return 1.0 / Math.max(1, ps.getObjects()) ;
+    }
+
+    /** Weight of a single pattern, where {@code TERM} is a bound variable. */
+    @Override
+    protected double weight(PatternTriple pt)
+    {
+        return estimate(node(pt.subject), bound(pt.subject),
+                        node(pt.predicate), bound(pt.predicate),
+                        node(pt.object), bound(pt.object)) ;
+    }
+
+    private static Node node(Item item)
+    {
+        return item.isNode() ? item.getNode() : null ;
+    }
+
+    private static boolean bound(Item item)
+    {
+        if ( item.isNode() )
+            return !Var.isVar(item.getNode()) ;
+        return item.equals(PatternElements.TERM) ;
+    }
+}
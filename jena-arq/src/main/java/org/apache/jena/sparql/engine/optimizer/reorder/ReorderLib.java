@@ -19,6 +19,7 @@
 package org.apache.jena.sparql.engine.optimizer.reorder ;
 
 import org.apache.jena.sparql.core.BasicPattern ;
+import org.apache.jena.sparql.engine.optimizer.StatsCatalog ;
 import org.apache.jena.sparql.engine.optimizer.StatsMatcher ;
 
 public class ReorderLib
@@ -85,4 +86,13 @@ public class ReorderLib
         return new ReorderWeighted(stats) ;
     }
 
+    /**
+     * Return a ReorderTransformation that orders by estimated cardinality, using
+     * a statistics catalog file (see {@link StatsCatalog}).
+     */
+    public static ReorderTransformation costBased(String filename) {
+        StatsCatalog catalog = StatsCatalog.read(filename) ;
+        return new ReorderCostBased(catalog) ;
+    }
+
 }
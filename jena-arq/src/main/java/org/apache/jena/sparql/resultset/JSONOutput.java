@@ -27,11 +27,8 @@ public class JSONOutput extends OutputBase {
 
     @Override
     public void format(OutputStream out, ResultSet resultSet) {
-        // Use direct string output - more control
-
-        JSONOutputResultSet jsonOut = new JSONOutputResultSet(out);
-        ResultSetApply a = new ResultSetApply(resultSet, jsonOut);
-        a.apply();
+        // Use direct byte output - more control, less garbage.
+        JSONOutputBindings.write(out, resultSet);
     }
 
     @Override
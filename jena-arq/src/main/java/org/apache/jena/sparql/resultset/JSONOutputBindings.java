@@ -0,0 +1,204 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.resultset;
+
+import static org.apache.jena.sparql.resultset.JSONResultsKW.*;
+
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.jena.atlas.json.io.JSWriter;
+import org.apache.jena.atlas.logging.Log;
+import org.apache.jena.graph.Node;
+import org.apache.jena.query.ARQ;
+import org.apache.jena.query.ResultSet;
+import org.apache.jena.rdf.model.impl.Util;
+import org.apache.jena.sparql.core.Var;
+import org.apache.jena.sparql.engine.binding.Binding;
+
+/**
+ * Write a result set in the SPARQL 1.1 JSON results format, working on the
+ * {@link Binding}s of the result set and writing through a {@link ResultsByteWriter}.
+ * The output is the same as {@link JSONOutputResultSet}.
+ */
+final class JSONOutputBindings {
+
+    // ASCII characters escaped in JSON strings.
+    private static final byte[][] escapes = jsonEscapes();
+
+    private static byte[][] jsonEscapes() {
+        StringBuilder chars = new StringBuilder();
+        List<String> replacements = new ArrayList<>();
+        for ( char ch = 0 ; ch < ' ' ; ch++ ) {
+            chars.append(ch);
+            switch (ch) {
+                case '\b' : replacements.add("\\b"); break;
+                case '\f' : replacements.add("\\f"); break;
+                case '\n' : replacements.add("\\n"); break;
+                case '\r' : replacements.add("\\r"); break;
+                case '\t' : replacements.add("\\t"); break;
+                default :   replacements.add(String.format("\\u%04X", (int)ch));
+            }
+        }
+        chars.append("\"\\\u007F");
+        replacements.add("\\\"");
+        replacements.add("\\\\");
+        replacements.add("\\u007F");
+        return ResultsByteWriter.escapeTable(chars.toString(), replacements.toArray(new String[0]));
+    }
+
+    private static final byte[] startRow       = ResultsByteWriter.bytes("      {\n");
+    private static final byte[] endRow         = ResultsByteWriter.bytes("\n      }");
+    private static final byte[] nextRow        = ResultsByteWriter.bytes(" ,\n");
+    private static final byte[] startBinding   = ResultsByteWriter.bytes("        ");
+    private static final byte[] startValue     = ResultsByteWriter.bytes(": { ");
+    private static final byte[] endValue       = ResultsByteWriter.bytes(" }");
+    private static final byte[] literal        = ResultsByteWriter.bytes(quote(kType)+": "+quote(kLiteral)+" , ");
+    private static final byte[] bnode          = ResultsByteWriter.bytes(quote(kType)+": "+quote(kBnode)+" , "+quote(kValue)+": ");
+    private static final byte[] value          = ResultsByteWriter.bytes(quote(kValue)+": \"");
+
+    private final ResultsByteWriter out;
+    private final boolean outputGraphBNodeLabels = ARQ.isTrue(ARQ.outputGraphBNodeLabels);
+    private int bNodeCounter = 0;
+    private final Map<Node, byte[]> bNodeMap = new HashMap<>();
+    // IRIs, formatted.
+    private final ResultsByteWriter.TermCache uris = new ResultsByteWriter.TermCache(1024);
+    // Start of a literal with a datatype or language tag.
+    private final Map<String, byte[]> datatypes = new HashMap<>();
+    private final Map<String, byte[]> langs = new HashMap<>();
+
+    static void write(OutputStream outStream, ResultSet resultSet) {
+        new JSONOutputBindings(outStream).write(resultSet);
+    }
+
+    private JSONOutputBindings(OutputStream outStream) {
+        out = new ResultsByteWriter(outStream);
+    }
+
+    private void write(ResultSet resultSet) {
+        List<String> varNames = resultSet.getResultVars();
+        Var[] vars = new Var[varNames.size()];
+        byte[][] varBytes = new byte[varNames.size()][];
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("{\n");
+        sb.append("  ").append(quote(kHead)).append(": {\n");
+        sb.append("    ").append(quote(kVars)).append(": [ ");
+        for ( int i = 0 ; i < vars.length ; i++ ) {
+            String varName = varNames.get(i);
+            vars[i] = Var.alloc(varName);
+            // Do not assume the name is JSON-safe.
+            varBytes[i] = ResultsByteWriter.bytes(quote(varName));
+            if ( i > 0 )
+                sb.append(" , ");
+            sb.append('"').append(varName).append('"');
+        }
+        sb.append(" ]\n");
+        sb.append("  } ,\n");
+        sb.append("  ").append(quote(kResults)).append(": {\n");
+        sb.append("    ").append(quote(kBindings)).append(": [\n");
+        out.write(sb.toString());
+
+        boolean firstRow = true;
+        while ( resultSet.hasNext() ) {
+            Binding b = resultSet.nextBinding();
+            if ( ! firstRow )
+                out.write(nextRow);
+            firstRow = false;
+            out.write(startRow);
+            boolean firstBinding = true;
+            for ( int i = 0 ; i < vars.length ; i++ ) {
+                Node n = b.get(vars[i]);
+                if ( n == null )
+                    continue;
+                if ( ! firstBinding )
+                    out.write(nextRow);
+                firstBinding = false;
+                out.write(startBinding);
+                out.write(varBytes[i]);
+                out.write(startValue);
+                writeValue(n);
+                out.write(endValue);
+            }
+            // An empty line is indented.
+            if ( firstBinding )
+                out.write(startBinding);
+            out.write(endRow);
+        }
+        if ( firstRow )
+            out.write("      ");
+        out.write("\n    ]\n  }\n}\n");
+        out.flush();
+    }
+
+    private void writeValue(Node n) {
+        if ( n.isURI() ) {
+            byte[] x = uris.get(n);
+            if ( x == null ) {
+                x = ResultsByteWriter.bytes(quote(kType)+": "+quote(kUri)+" , "+quote(kValue)+": "+quote(n.getURI()));
+                uris.put(n, x);
+            }
+            out.write(x);
+        } else if ( n.isLiteral() ) {
+            writeLiteral(n);
+        } else if ( n.isBlank() ) {
+            byte[] x = bNodeMap.get(n);
+            if ( x == null ) {
+                String label = outputGraphBNodeLabels ? n.getBlankNodeLabel() : "b"+(bNodeCounter++);
+                x = ResultsByteWriter.bytes(quote(label));
+                bNodeMap.put(n, x);
+            }
+            out.write(bnode);
+            out.write(x);
+        } else
+            Log.warn(this, "Unknown node type in result set: " + n);
+    }
+
+    private void writeLiteral(Node n) {
+        if ( Util.isLangString(n) ) {
+            String lang = n.getLiteralLanguage();
+            byte[] x = langs.get(lang);
+            if ( x == null ) {
+                x = ResultsByteWriter.bytes(quote(kType)+": "+quote(kLiteral)+" , "+quote(kXmlLang)+": "+quote(lang)+" , ");
+                langs.put(lang, x);
+            }
+            out.write(x);
+        } else if ( Util.isSimpleString(n) ) {
+            out.write(literal);
+        } else {
+            String datatype = n.getLiteralDatatypeURI();
+            byte[] x = datatypes.get(datatype);
+            if ( x == null ) {
+                x = ResultsByteWriter.bytes(quote(kType)+": "+quote(kLiteral)+" , "+quote(kDatatype)+": "+quote(datatype)+" , ");
+                datatypes.put(datatype, x);
+            }
+            out.write(x);
+        }
+        out.write(value);
+        out.writeEscapedJSON(n.getLiteralLexicalForm(), escapes);
+        out.writeASCII('"');
+    }
+
+    private static String quote(String string) {
+        return JSWriter.outputQuotedString(string);
+    }
+}
@@ -0,0 +1,270 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.resultset;
+
+import java.io.IOException ;
+import java.io.OutputStream ;
+import java.nio.charset.StandardCharsets ;
+
+import org.apache.jena.atlas.io.AWriter ;
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.graph.Node ;
+
+/**
+ * Output for the result set writers that encodes UTF-8 straight into a reusable
+ * byte buffer, which is passed to the output stream when full.
+ * <p>
+ * Strings are escaped with tables, one entry per ASCII character, worked out once.
+ * Terms that recur from row to row, such as IRIs, can be kept, fully formatted, in
+ * a {@link TermCache}. Together, these avoid creating strings for every term of
+ * every row.
+ */
+final class ResultsByteWriter implements AWriter
+{
+    private static final int BufferSize = 64*1024 ;
+    // Room for the largest output for one character.
+    private static final int Slack = 16 ;
+
+    private final OutputStream out ;
+    private final byte[] buffer = new byte[BufferSize] ;
+    private int idx = 0 ;
+
+    ResultsByteWriter(OutputStream out) {
+        this.out = out ;
+    }
+
+    /**
+     * Create an escape table. Character {@code chars.charAt(i)} is written as
+     * {@code replacements[i]}; other ASCII characters are written as they are.
+     */
+    static byte[][] escapeTable(String chars, String... replacements) {
+        byte[][] table = new byte[128][] ;
+        for ( int i = 0 ; i < chars.length() ; i++ )
+            table[chars.charAt(i)] = bytes(replacements[i]) ;
+        return table ;
+    }
+
+    static byte[] bytes(String string) {
+        return string.getBytes(StandardCharsets.UTF_8) ;
+    }
+
+    /** Write bytes, already in UTF-8. */
+    void write(byte[] bytes) {
+        int len = bytes.length ;
+        if ( len > BufferSize - idx ) {
+            drain() ;
+            if ( len > BufferSize ) {
+                try { out.write(bytes) ; }
+                catch (IOException ex) { IO.exception(ex) ; }
+                return ;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, idx, len) ;
+        idx += len ;
+    }
+
+    /** Write an ASCII character. */
+    void writeASCII(char ch) {
+        if ( idx >= BufferSize )
+            drain() ;
+        buffer[idx++] = (byte)ch ;
+    }
+
+    /** Write a string, escaping ASCII characters with the table. */
+    void writeEscaped(String string, byte[][] escapes) {
+        int len = string.length() ;
+        for ( int i = 0 ; i < len ; i++ ) {
+            if ( idx > BufferSize - Slack )
+                drain() ;
+            char ch = string.charAt(i) ;
+            if ( ch < 128 ) {
+                byte[] esc = escapes[ch] ;
+                if ( esc == null )
+                    buffer[idx++] = (byte)ch ;
+                else {
+                    System.arraycopy(esc, 0, buffer, idx, esc.length) ;
+                    idx += esc.length ;
+                }
+                continue ;
+            }
+            i = writeUTF8(string, i, len) ;
+        }
+    }
+
+    /**
+     * Write a JSON string, without quotes: as {@link #writeEscaped} with the extra
+     * rules of {@link org.apache.jena.atlas.json.io.JSWriter#outputQuotedString}
+     * for "&lt;/" and for control characters beyond ASCII.
+     */
+    void writeEscapedJSON(String string, byte[][] escapes) {
+        int len = string.length() ;
+        for ( int i = 0 ; i < len ; i++ ) {
+            if ( idx > BufferSize - Slack )
+                drain() ;
+            char ch = string.charAt(i) ;
+            if ( ch < 128 ) {
+                byte[] esc = escapes[ch] ;
+                if ( esc != null ) {
+                    System.arraycopy(esc, 0, buffer, idx, esc.length) ;
+                    idx += esc.length ;
+                    continue ;
+                }
+                if ( ch == '/' && i > 0 && string.charAt(i-1) == '<' )
+                    buffer[idx++] = '\\' ;
+                buffer[idx++] = (byte)ch ;
+                continue ;
+            }
+            if ( ch <= '\u009F' || ( ch >= '\u2000' && ch < '\u2100' ) ) {
+                buffer[idx++] = '\\' ;
+                buffer[idx++] = 'u' ;
+                for ( int j = 3 ; j >= 0 ; j-- )
+                    buffer[idx++] = (byte)hex[(ch>>(4*j))&0xF] ;
+                continue ;
+            }
+            i = writeUTF8(string, i, len) ;
+        }
+    }
+
+    private static final char[] hex = "0123456789ABCDEF".toCharArray() ;
+
+    // Encode the non-ASCII character at i; return the index of the last char used.
+    private int writeUTF8(String string, int i, int len) {
+        char ch = string.charAt(i) ;
+        if ( ch < 0x800 ) {
+            buffer[idx++] = (byte)(0xC0 | (ch >> 6)) ;
+            buffer[idx++] = (byte)(0x80 | (ch & 0x3F)) ;
+            return i ;
+        }
+        if ( Character.isHighSurrogate(ch) && i+1 < len && Character.isLowSurrogate(string.charAt(i+1)) ) {
+            int cp = Character.toCodePoint(ch, string.charAt(i+1)) ;
+            buffer[idx++] = (byte)(0xF0 | (cp >> 18)) ;
+            buffer[idx++] = (byte)(0x80 | ((cp >> 12) & 0x3F)) ;
+            buffer[idx++] = (byte)(0x80 | ((cp >> 6) & 0x3F)) ;
+            buffer[idx++] = (byte)(0x80 | (cp & 0x3F)) ;
+            return i+1 ;
+        }
+        if ( Character.isSurrogate(ch) ) {
+            // Unpaired : as the JDK encoder does.
+            buffer[idx++] = '?' ;
+            return i ;
+        }
+        buffer[idx++] = (byte)(0xE0 | (ch >> 12)) ;
+        buffer[idx++] = (byte)(0x80 | ((ch >> 6) & 0x3F)) ;
+        buffer[idx++] = (byte)(0x80 | (ch & 0x3F)) ;
+        return i ;
+    }
+
+    private static final byte[][] noEscapes = new byte[128][] ;
+
+    private void drain() {
+        if ( idx == 0 )
+            return ;
+        try { out.write(buffer, 0, idx) ; }
+        catch (IOException ex) { IO.exception(ex) ; }
+        idx = 0 ;
+    }
+
+    // ---- AWriter, for the node formatters.
+
+    // The first half of a surrogate pair written by write(char).
+    private char highSurrogate = 0 ;
+
+    @Override
+    public void write(char ch) {
+        if ( highSurrogate != 0 ) {
+            char ch1 = highSurrogate ;
+            highSurrogate = 0 ;
+            if ( Character.isLowSurrogate(ch) ) {
+                write(new String(new char[] {ch1, ch})) ;
+                return ;
+            }
+            write(String.valueOf(ch1)) ;
+        }
+        if ( ch < 128 )
+            writeASCII(ch) ;
+        else if ( Character.isHighSurrogate(ch) )
+            highSurrogate = ch ;
+        else
+            write(String.valueOf(ch)) ;
+    }
+
+    @Override
+    public void write(char[] cbuf) { write(new String(cbuf)) ; }
+
+    @Override
+    public void write(String string) { writeEscaped(string, noEscapes) ; }
+
+    @Override
+    public void print(char ch) { write(ch) ; }
+
+    @Override
+    public void print(char[] cbuf) { write(cbuf) ; }
+
+    @Override
+    public void print(String string) { write(string) ; }
+
+    @Override
+    public void printf(String fmt, Object... args) { write(String.format(fmt, args)) ; }
+
+    @Override
+    public void println(String string) { write(string) ; writeASCII('\n') ; }
+
+    @Override
+    public void println() { writeASCII('\n') ; }
+
+    @Override
+    public void flush() {
+        drain() ;
+        try { out.flush() ; }
+        catch (IOException ex) { IO.exception(ex) ; }
+    }
+
+    @Override
+    public void close() { flush() ; }
+
+    /**
+     * A fixed size, direct mapped cache of the output bytes for terms. A slot is
+     * replaced when another term hashes to it.
+     */
+    static final class TermCache {
+        private final Node[] keys ;
+        private final byte[][] values ;
+        private final int mask ;
+
+        /** Size is rounded up to a power of two. */
+        TermCache(int size) {
+            int n = Integer.highestOneBit(Math.max(size, 2)-1) << 1 ;
+            keys = new Node[n] ;
+            values = new byte[n][] ;
+            mask = n-1 ;
+        }
+
+        byte[] get(Node node) {
+            int i = node.hashCode() & mask ;
+            Node k = keys[i] ;
+            return ( k != null && k.equals(node) ) ? values[i] : null ;
+        }
+
+        void put(Node node, byte[] bytes) {
+            int i = node.hashCode() & mask ;
+            keys[i] = node ;
+            values[i] = bytes ;
+        }
+    }
+}
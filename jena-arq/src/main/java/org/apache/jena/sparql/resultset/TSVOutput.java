@@ -20,11 +20,9 @@ package org.apache.jena.sparql.resultset;
 
 import java.io.IOException ;
 import java.io.OutputStream ;
-import java.util.ArrayList ;
 import java.util.List ;
 
-import org.apache.jena.atlas.io.IO ;
-import org.apache.jena.atlas.io.AWriter ;
+import org.apache.jena.atlas.io.StringWriterI ;
 import org.apache.jena.atlas.lib.StrUtils ;
 import org.apache.jena.graph.Node ;
 import org.apache.jena.query.ResultSet ;
@@ -51,42 +49,51 @@ public class TSVOutput extends OutputBase
     public void format(OutputStream out, ResultSet resultSet) {
         // Use a Turtle formatter to format terms
         NodeFormatterTTL formatter = new NodeFormatterTTL(null, null);
+        // IRIs, formatted.
+        ResultsByteWriter.TermCache uris = new ResultsByteWriter.TermCache(1024);
 
-        AWriter w = IO.wrapUTF8(out);
+        ResultsByteWriter w = new ResultsByteWriter(out);
 
         String sep = null;
         List<String> varNames = resultSet.getResultVars();
-        List<Var> vars = new ArrayList<>(varNames.size());
+        Var[] vars = new Var[varNames.size()];
 
         // writes the variables on the first line
-        for ( String v : varNames ) {
+        for ( int i = 0 ; i < vars.length ; i++ ) {
             if ( sep != null )
                 w.write(sep);
             else
                 sep = SEP;
-            Var var = Var.alloc(v);
+            Var var = Var.alloc(varNames.get(i));
             w.write(var.toString());
-            vars.add(var);
+            vars[i] = var;
         }
         w.write(NL);
 
         // writes one binding by line
         for ( ; resultSet.hasNext() ; ) {
-            sep = null;
             Binding b = resultSet.nextBinding();
 
-            for ( Var v : vars ) {
-                if ( sep != null )
-                    w.write(sep);
-                sep = SEP;
-
-                Node n = b.get(v);
-                if ( n != null ) {
-                    // This will not include a raw tab.
+            for ( int i = 0 ; i < vars.length ; i++ ) {
+                if ( i > 0 )
+                    w.writeASCII('\t');
+                Node n = b.get(vars[i]);
+                if ( n == null )
+                    continue;
+                // This will not include a raw tab.
+                if ( n.isURI() ) {
+                    byte[] x = uris.get(n);
+                    if ( x == null ) {
+                        StringWriterI sw = new StringWriterI();
+                        formatter.format(sw, n);
+                        x = ResultsByteWriter.bytes(sw.toString());
+                        uris.put(n, x);
+                    }
+                    w.write(x);
+                } else
                     formatter.format(w, n);
-                }
             }
-            w.write(NL);
+            w.writeASCII('\n');
         }
 
         w.flush();
@@ -45,11 +45,7 @@ public class XMLOutput extends OutputBase
 
     @Override
     public void format(OutputStream out, ResultSet resultSet) {
-        XMLOutputResultSet xOut = new XMLOutputResultSet(out);
-        xOut.setStylesheetURL(stylesheetURL);
-        xOut.setXmlInst(includeXMLinst);
-        ResultSetApply a = new ResultSetApply(resultSet, xOut);
-        a.apply();
+        XMLOutputBindings.write(out, resultSet, stylesheetURL, includeXMLinst);
     }
 
     /** @return Returns the includeXMLinst. */
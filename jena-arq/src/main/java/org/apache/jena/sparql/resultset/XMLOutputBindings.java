@@ -0,0 +1,181 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.resultset;
+
+import static org.apache.jena.sparql.resultset.XMLResults.* ;
+
+import java.io.OutputStream ;
+import java.util.HashMap ;
+import java.util.List ;
+import java.util.Map ;
+
+import org.apache.jena.atlas.logging.Log ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.query.ARQ ;
+import org.apache.jena.query.ResultSet ;
+import org.apache.jena.rdf.model.impl.Util ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+
+/**
+ * Write a result set in the SPARQL XML results format, working on the
+ * {@link Binding}s of the result set and writing through a {@link ResultsByteWriter}.
+ * The output is the same as {@link XMLOutputResultSet}.
+ */
+final class XMLOutputBindings
+{
+    private static final byte[][] escapes = ResultsByteWriter.escapeTable("&<>\r\n", "&amp;", "&lt;", "&gt;", "&#x0D;", "&#x0A;") ;
+
+    private static final byte[] startRow        = ResultsByteWriter.bytes("    <"+dfSolution+">\n") ;
+    private static final byte[] endRow          = ResultsByteWriter.bytes("    </"+dfSolution+">\n") ;
+    private static final byte[] startBinding    = ResultsByteWriter.bytes("      <"+dfBinding+" name=\"") ;
+    private static final byte[] endBinding      = ResultsByteWriter.bytes("      </"+dfBinding+">\n") ;
+    private static final byte[] unbound         = ResultsByteWriter.bytes("        <"+dfUnbound+"/>\n") ;
+    private static final byte[] startURI        = ResultsByteWriter.bytes("        <"+dfURI+">") ;
+    private static final byte[] endURI          = ResultsByteWriter.bytes("</"+dfURI+">\n") ;
+    private static final byte[] startBNode      = ResultsByteWriter.bytes("        <"+dfBNode+">") ;
+    private static final byte[] endBNode        = ResultsByteWriter.bytes("</"+dfBNode+">\n") ;
+    private static final byte[] startLiteral    = ResultsByteWriter.bytes("        <"+dfLiteral+">") ;
+    private static final byte[] endLiteral      = ResultsByteWriter.bytes("</"+dfLiteral+">\n") ;
+
+    private final ResultsByteWriter out ;
+    private final String stylesheetURL ;
+    private final boolean xmlInst ;
+    private final boolean outputGraphBNodeLabels = ARQ.isTrue(ARQ.outputGraphBNodeLabels) ;
+    private int bNodeCounter = 0 ;
+    private final Map<Node, byte[]> bNodeMap = new HashMap<>() ;
+    // IRIs, escaped, with start and end tags.
+    private final ResultsByteWriter.TermCache uris = new ResultsByteWriter.TermCache(1024) ;
+    // Start tag of a literal with a datatype or language tag.
+    private final Map<String, byte[]> datatypes = new HashMap<>() ;
+    private final Map<String, byte[]> langs = new HashMap<>() ;
+
+    static void write(OutputStream outStream, ResultSet resultSet, String stylesheetURL, boolean xmlInst) {
+        new XMLOutputBindings(outStream, stylesheetURL, xmlInst).write(resultSet) ;
+    }
+
+    private XMLOutputBindings(OutputStream outStream, String stylesheetURL, boolean xmlInst) {
+        this.out = new ResultsByteWriter(outStream) ;
+        this.stylesheetURL = stylesheetURL ;
+        this.xmlInst = xmlInst ;
+    }
+
+    private void write(ResultSet resultSet) {
+        List<String> varNames = resultSet.getResultVars() ;
+        Var[] vars = new Var[varNames.size()] ;
+        byte[][] varBytes = new byte[varNames.size()][] ;
+
+        StringBuilder sb = new StringBuilder() ;
+        if ( xmlInst )
+            sb.append("<?xml version=\"1.0\"?>\n") ;
+        if ( stylesheetURL != null )
+            sb.append("<?xml-stylesheet type=\"text/xsl\" href=\"").append(stylesheetURL).append("\"?>\n") ;
+        sb.append("<").append(dfRootTag).append(" xmlns=\"").append(dfNamespace).append("\">\n") ;
+        sb.append("  <").append(dfHead).append(">\n") ;
+        for ( int i = 0 ; i < vars.length ; i++ ) {
+            String varName = varNames.get(i) ;
+            vars[i] = Var.alloc(varName) ;
+            varBytes[i] = ResultsByteWriter.bytes(varName+"\">\n") ;
+            sb.append("    <").append(dfVariable).append(" ").append(dfAttrVarName).append("=\"").append(varName).append("\"/>\n") ;
+        }
+        sb.append("  </").append(dfHead).append(">\n") ;
+        sb.append("  <").append(dfResults).append(">\n") ;
+        out.write(sb.toString()) ;
+
+        while ( resultSet.hasNext() ) {
+            Binding b = resultSet.nextBinding() ;
+            out.write(startRow) ;
+            for ( int i = 0 ; i < vars.length ; i++ ) {
+                Node n = b.get(vars[i]) ;
+                if ( n == null && ! XMLOutputResultSet.outputExplicitUnbound )
+                    continue ;
+                out.write(startBinding) ;
+                out.write(varBytes[i]) ;
+                writeValue(n) ;
+                out.write(endBinding) ;
+            }
+            out.write(endRow) ;
+        }
+
+        out.write("  </"+dfResults+">\n</"+dfRootTag+">\n") ;
+        out.flush() ;
+    }
+
+    private void writeValue(Node n) {
+        if ( n == null ) {
+            out.write(unbound) ;
+            return ;
+        }
+        if ( n.isURI() ) {
+            byte[] x = uris.get(n) ;
+            if ( x == null ) {
+                String s = "        <"+dfURI+">"+escape(n.getURI())+"</"+dfURI+">\n" ;
+                x = ResultsByteWriter.bytes(s) ;
+                uris.put(n, x) ;
+            }
+            out.write(x) ;
+            return ;
+        }
+        if ( n.isLiteral() ) {
+            writeLiteral(n) ;
+            return ;
+        }
+        if ( n.isBlank() ) {
+            byte[] x = bNodeMap.get(n) ;
+            if ( x == null ) {
+                String label = outputGraphBNodeLabels ? n.getBlankNodeLabel() : "b"+(bNodeCounter++) ;
+                x = ResultsByteWriter.bytes(escape(label)) ;
+                bNodeMap.put(n, x) ;
+            }
+            out.write(startBNode) ;
+            out.write(x) ;
+            out.write(endBNode) ;
+            return ;
+        }
+        Log.warn(this, "Unknown node type in result set: " + n) ;
+    }
+
+    private void writeLiteral(Node n) {
+        if ( Util.isLangString(n) ) {
+            String lang = n.getLiteralLanguage() ;
+            byte[] x = langs.get(lang) ;
+            if ( x == null ) {
+                x = ResultsByteWriter.bytes("        <"+dfLiteral+" xml:lang=\""+lang+"\">") ;
+                langs.put(lang, x) ;
+            }
+            out.write(x) ;
+        } else if ( Util.isSimpleString(n) ) {
+            out.write(startLiteral) ;
+        } else {
+            String datatype = n.getLiteralDatatypeURI() ;
+            byte[] x = datatypes.get(datatype) ;
+            if ( x == null ) {
+                x = ResultsByteWriter.bytes("        <"+dfLiteral+" "+dfAttrDatatype+"=\""+datatype+"\">") ;
+                datatypes.put(datatype, x) ;
+            }
+            out.write(x) ;
+        }
+        out.writeEscaped(n.getLiteralLexicalForm(), escapes) ;
+        out.write(endLiteral) ;
+    }
+
+    private static String escape(String string) {
+        return XMLOutputResultSet.xml_escape(string) ;
+    }
+}
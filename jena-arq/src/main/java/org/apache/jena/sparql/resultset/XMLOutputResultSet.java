@@ -241,7 +241,7 @@ public class XMLOutputResultSet implements ResultSetProcessor, XMLResults
         }
     }
 
-    private static String xml_escape(String string) {
+    /*package*/ static String xml_escape(String string) {
         final StringBuilder sb = new StringBuilder(string);
 
         int offset = 0;
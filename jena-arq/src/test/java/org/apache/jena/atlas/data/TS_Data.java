@@ -30,7 +30,8 @@ import org.junit.runners.Suite.SuiteClasses ;
     TestSortedDataBag.class, 
     TestDistinctDataBag.class,
     TestDistinctDataNet.class,
-    TestThresholdPolicyCount.class
+    TestThresholdPolicyCount.class,
+    TestThresholdPolicyBudget.class
 })
 
 public class TS_Data
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.atlas.data;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.query.ARQ ;
+import org.apache.jena.riot.system.SerializationFactoryFinder ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.binding.BindingFactory ;
+import org.apache.jena.sparql.util.Context ;
+import org.junit.Test ;
+
+public class TestThresholdPolicyBudget extends BaseTest
+{
+    @Test
+    public void budget_01()
+    {
+        SpillBudget budget = new SpillBudget(2);
+        ThresholdPolicyBudget<String> policy = new ThresholdPolicyBudget<>(budget, -1);
+        assertFalse(policy.isThresholdExceeded());
+        policy.increment("a");
+        assertFalse(policy.isThresholdExceeded());
+        policy.increment("b");
+        assertTrue(policy.isThresholdExceeded());
+        // Still held until reset.
+        assertEquals(2, budget.getUsed());
+        // Items after the threshold are not held.
+        policy.increment("c");
+        assertTrue(policy.isThresholdExceeded());
+        assertEquals(2, budget.getUsed());
+        policy.reset();
+        assertEquals(0, budget.getUsed());
+        assertFalse(policy.isThresholdExceeded());
+    }
+
+    @Test
+    public void budget_02()
+    {
+        // Shared between policies.
+        SpillBudget budget = new SpillBudget(2);
+        ThresholdPolicyBudget<String> policy1 = new ThresholdPolicyBudget<>(budget, -1);
+        ThresholdPolicyBudget<String> policy2 = new ThresholdPolicyBudget<>(budget, -1);
+        policy1.increment("a");
+        policy1.increment("b");
+        policy2.increment("c");
+        assertEquals(3, budget.getUsed());
+        assertTrue(policy1.isThresholdExceeded());
+        assertEquals(3, budget.getUsed());
+        policy1.reset();
+        assertEquals(1, budget.getUsed());
+        assertFalse(policy2.isThresholdExceeded());
+        policy2.reset();
+        assertEquals(0, budget.getUsed());
+    }
+
+    @Test
+    public void budget_03()
+    {
+        // Local threshold.
+        SpillBudget budget = new SpillBudget(100);
+        ThresholdPolicyBudget<String> policy = new ThresholdPolicyBudget<>(budget, 1);
+        policy.increment("a");
+        assertTrue(policy.isThresholdExceeded());
+        policy.reset();
+        assertFalse(policy.isThresholdExceeded());
+    }
+
+    @Test
+    public void budget_04()
+    {
+        // Each policy may keep a minimum even when the budget is used up.
+        SpillBudget budget = new SpillBudget(2 * ThresholdPolicyBudget.MinimumCount);
+        ThresholdPolicyBudget<String> policy1 = new ThresholdPolicyBudget<>(budget, -1);
+        ThresholdPolicyBudget<String> policy2 = new ThresholdPolicyBudget<>(budget, -1);
+        for ( int i = 0 ; i < 2 * ThresholdPolicyBudget.MinimumCount ; i++ )
+            policy1.increment("a");
+        assertFalse(policy2.isThresholdExceeded());
+        policy2.increment("b");
+        assertFalse(policy2.isThresholdExceeded());
+    }
+
+    @Test
+    public void budget_05()
+    {
+        Context cxt = new Context();
+        assertNull(SpillBudget.get(cxt));
+        cxt.set(ARQ.spillToDiskBudget, 10);
+        SpillBudget budget = SpillBudget.get(cxt);
+        assertNotNull(budget);
+        assertEquals(10, budget.getLimit());
+        assertSame(budget, SpillBudget.get(cxt));
+        ThresholdPolicy<String> policy = ThresholdPolicyFactory.policyFromContext(cxt);
+        assertTrue(policy instanceof ThresholdPolicyBudget);
+    }
+
+    @Test
+    public void budget_06()
+    {
+        // Closing a bag releases its items.
+        SpillBudget budget = new SpillBudget(100);
+        ThresholdPolicyBudget<String> policy = new ThresholdPolicyBudget<>(budget, -1);
+        DataBag<String> bag = BagFactory.newDefaultBag(policy, null);
+        bag.add("a");
+        bag.add("b");
+        assertEquals(2, budget.getUsed());
+        bag.close();
+        assertEquals(0, budget.getUsed());
+    }
+
+    @Test
+    public void budget_07()
+    {
+        // A bag releases its items when it writes them to disk.
+        SpillBudget budget = new SpillBudget(100);
+        ThresholdPolicyBudget<Binding> policy = new ThresholdPolicyBudget<>(budget, 2);
+        DataBag<Binding> bag = BagFactory.newDefaultBag(policy, SerializationFactoryFinder.bindingSerializationFactory());
+        try {
+            bag.add(binding(1));
+            bag.add(binding(2));
+            assertEquals(2, budget.getUsed());
+            bag.add(binding(3));
+            bag.add(binding(4));
+            assertEquals(0, budget.getUsed());
+            assertEquals(4, Iter.count(bag.iterator()));
+        } finally { bag.close(); }
+        assertEquals(0, budget.getUsed());
+    }
+
+    private static Binding binding(int i)
+    {
+        return BindingFactory.binding(Var.alloc("x"), NodeFactory.createURI("http://example/" + i));
+    }
+}
@@ -44,6 +44,7 @@ import org.junit.runners.Suite ;
     , TestParserFactory.class
     , TestPipedRDFIterators.class
     , TestCollectorStream.class
+    , TestLangNTupleParallel.class
 
 })
 
@@ -0,0 +1,198 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.lang;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertTrue ;
+
+import java.io.ByteArrayInputStream ;
+import java.io.IOException ;
+import java.io.InputStream ;
+import java.nio.charset.StandardCharsets ;
+import java.nio.file.Files ;
+import java.nio.file.Path ;
+import java.util.ArrayList ;
+import java.util.HashSet ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.Set ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.riot.Lang ;
+import org.apache.jena.riot.RDFParser ;
+import org.apache.jena.riot.RDFParserBuilder ;
+import org.apache.jena.riot.RiotException ;
+import org.apache.jena.riot.system.ErrorHandlerFactory ;
+import org.apache.jena.riot.system.FactoryRDFStd ;
+import org.apache.jena.riot.system.StreamRDFBase ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.DatasetGraphFactory ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.util.IsoMatcher ;
+import org.junit.Test ;
+
+public class TestLangNTupleParallel
+{
+    // Small chunks so that there are many of them.
+    private static final int ChunkSize = 200 ;
+
+    private static String dataNT(int n) {
+        StringBuilder sb = new StringBuilder() ;
+        for ( int i = 0 ; i < n ; i++ ) {
+            sb.append("<http://example/s").append(i%7).append("> <http://example/p> \"").append(i).append("\" .\n") ;
+            if ( i%10 == 0 )
+                sb.append("# Comment\n") ;
+            if ( i%13 == 0 )
+                sb.append("_:b").append(i%3).append(" <http://example/q> <http://example/o").append(i).append("> .\n") ;
+        }
+        return sb.toString() ;
+    }
+
+    private static String dataNQ(int n) {
+        StringBuilder sb = new StringBuilder() ;
+        for ( int i = 0 ; i < n ; i++ ) {
+            sb.append("_:b").append(i%5).append(" <http://example/p> \"").append(i).append("\" <http://example/g").append(i%3).append("> .\n") ;
+            sb.append("<http://example/s> <http://example/p> _:b").append(i%5).append(" .\n") ;
+        }
+        return sb.toString() ;
+    }
+
+    private static InputStream input(String string) {
+        return new ByteArrayInputStream(string.getBytes(StandardCharsets.UTF_8)) ;
+    }
+
+    private static RDFParserBuilder parallel(String string, Lang lang) {
+        return RDFParser.create().source(input(string)).lang(lang)
+            .parallel(4).parallelChunkSize(ChunkSize) ;
+    }
+
+    private static List<Triple> triples(RDFParserBuilder builder) {
+        List<Triple> triples = new ArrayList<>() ;
+        builder.parse(new StreamRDFBase() {
+            @Override public void triple(Triple triple) { triples.add(triple) ; }
+        }) ;
+        return triples ;
+    }
+
+    private static DatasetGraph dataset(RDFParserBuilder builder) {
+        DatasetGraph dsg = DatasetGraphFactory.createTxnMem() ;
+        builder.parse(dsg) ;
+        return dsg ;
+    }
+
+    @Test public void parallel_ordered_01() {
+        String data = dataNT(500) ;
+        List<Triple> expected = triples(RDFParser.create().source(input(data)).lang(Lang.NT)
+                                        .labelToNode(LabelToNode.createUseLabelAsGiven())) ;
+        List<Triple> actual = triples(parallel(data, Lang.NT).labelToNode(LabelToNode.createUseLabelAsGiven())) ;
+        assertEquals(expected, actual) ;
+    }
+
+    @Test public void parallel_unordered_01() {
+        String data = dataNT(500) ;
+        List<Triple> expected = triples(RDFParser.create().source(input(data)).lang(Lang.NT)
+                                        .labelToNode(LabelToNode.createUseLabelAsGiven())) ;
+        List<Triple> actual = triples(parallel(data, Lang.NT).parallelOrdered(false)
+                                      .labelToNode(LabelToNode.createUseLabelAsGiven())) ;
+        assertEquals(expected.size(), actual.size()) ;
+        assertEquals(new HashSet<>(expected), new HashSet<>(actual)) ;
+    }
+
+    @Test public void parallel_bnodes_01() {
+        // Default blank node labelling: the same label is the same blank node in every chunk.
+        String data = dataNQ(200) ;
+        DatasetGraph expected = dataset(RDFParser.create().source(input(data)).lang(Lang.NQUADS)) ;
+        DatasetGraph actual = dataset(parallel(data, Lang.NQUADS).parallelOrdered(false)) ;
+        Set<Node> bnodes = new HashSet<>() ;
+        actual.find().forEachRemaining(q -> { if ( q.getSubject().isBlank() ) bnodes.add(q.getSubject()) ; }) ;
+        assertEquals(5, bnodes.size()) ;
+        assertTrue(IsoMatcher.isomorphic(expected, actual)) ;
+    }
+
+    @Test public void parallel_bnodes_02() {
+        // Blank nodes with a FactoryRDF set by the application.
+        String data = dataNQ(200) ;
+        DatasetGraph expected = dataset(RDFParser.create().source(input(data)).lang(Lang.NQUADS)) ;
+        DatasetGraph actual = dataset(parallel(data, Lang.NQUADS).factory(new FactoryRDFStd())) ;
+        assertTrue(IsoMatcher.isomorphic(expected, actual)) ;
+    }
+
+    @Test public void parallel_path_01() throws IOException {
+        String data = dataNQ(300) ;
+        Path path = Files.createTempFile("parallel", ".nq") ;
+        try {
+            Files.write(path, data.getBytes(StandardCharsets.UTF_8)) ;
+            DatasetGraph expected = dataset(RDFParser.create().source(path)) ;
+            DatasetGraph actual = dataset(RDFParser.create().source(path).parallel(3).parallelChunkSize(ChunkSize)) ;
+            assertEquals(expected.getDefaultGraph().size(), actual.getDefaultGraph().size()) ;
+            assertTrue(IsoMatcher.isomorphic(expected, actual)) ;
+        } finally {
+            Files.delete(path) ;
+        }
+    }
+
+    @Test public void parallel_long_line_01() {
+        // Lines longer than the chunk size, and no final newline.
+        StringBuilder sb = new StringBuilder() ;
+        for ( int i = 0 ; i < 10 ; i++ )
+            sb.append("<http://example/s> <http://example/p> \"").append(i).append(':').append(new String(new char[3*ChunkSize]).replace('\0', 'x')).append("\" .\n") ;
+        sb.append("<http://example/s> <http://example/p> \"end\" .") ;
+        List<Triple> triples = triples(parallel(sb.toString(), Lang.NT)) ;
+        assertEquals(11, triples.size()) ;
+        assertEquals("end", triples.get(10).getObject().getLiteralLexicalForm()) ;
+    }
+
+    @Test public void parallel_crlf_01() {
+        String data = dataNT(100).replace("\n", "\r\n") ;
+        List<Triple> expected = triples(RDFParser.create().source(input(data)).lang(Lang.NT)
+                                        .labelToNode(LabelToNode.createUseLabelAsGiven())) ;
+        List<Triple> actual = triples(parallel(data, Lang.NT).labelToNode(LabelToNode.createUseLabelAsGiven())) ;
+        assertEquals(expected, actual) ;
+    }
+
+    @Test public void parallel_empty_01() {
+        List<Triple> triples = triples(parallel("", Lang.NT)) ;
+        assertEquals(0, triples.size()) ;
+    }
+
+    @Test public void parallel_quads_01() {
+        String data = dataNQ(100) ;
+        DatasetGraph dsg = dataset(parallel(data, Lang.NQUADS)) ;
+        // One triple for each blank node in the default graph.
+        assertEquals(5, dsg.getDefaultGraph().size()) ;
+        long count = 0 ;
+        for ( Iterator<Quad> iter = dsg.find() ; iter.hasNext() ; iter.next() )
+            count++ ;
+        assertEquals(5+100, count) ;
+    }
+
+    @Test(expected=RiotException.class)
+    public void parallel_bad_01() {
+        String data = dataNT(200)+"<http://example/s> <http://example/p> .\n"+dataNT(200) ;
+        triples(parallel(data, Lang.NT).errorHandler(ErrorHandlerFactory.errorHandlerNoLogging)) ;
+    }
+
+    @Test public void parallel_not_line_based_01() {
+        // Turtle is parsed as usual.
+        String data = "@prefix : <http://example/> . :s :p 1 , 2 , 3 ." ;
+        List<Triple> triples = triples(parallel(data, Lang.TTL)) ;
+        assertEquals(3, triples.size()) ;
+    }
+}
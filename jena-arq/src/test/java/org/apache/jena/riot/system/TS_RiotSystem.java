@@ -46,7 +46,9 @@ import org.junit.runners.Suite.SuiteClasses ;
     , TestLangRegistration.class
     , TestFormatRegistration.class
     , TestJsonLDReadWrite.class         // Some simple testing of the jsonld-java engine.
+    , TestJsonLDStream.class
     , TestSerializable.class
+    , TestAsyncParser.class
     
     // May be subject to performance vagaries, with the improvements made
     // to the fast implementation this should be fairly safe
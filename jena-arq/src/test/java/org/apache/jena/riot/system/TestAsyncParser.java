@@ -0,0 +1,174 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.system;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.jena.graph.Triple;
+import org.apache.jena.riot.Lang;
+import org.apache.jena.riot.RDFParser;
+import org.apache.jena.riot.RiotException;
+import org.apache.jena.riot.lang.LabelToNode;
+import org.apache.jena.sparql.core.Quad;
+import org.junit.Test;
+
+public class TestAsyncParser {
+
+    private static String data(int n) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("@prefix : <http://example/> .\n");
+        for ( int i = 0 ; i < n ; i++ ) {
+            sb.append(":s").append(i%10).append(" :p ").append(i).append(" .\n");
+            if ( i == n/2 )
+                sb.append("@prefix ns: <http://example/ns#> .\n");
+        }
+        return sb.toString();
+    }
+
+    private static InputStream input(String string) {
+        return new ByteArrayInputStream(string.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Record calls to a StreamRDF, and the thread making them. */
+    private static class Recorder extends StreamRDFBase {
+        final List<String> calls = new ArrayList<>();
+        final List<Triple> triples = new ArrayList<>();
+        boolean otherThread = false;
+        final Thread thread = Thread.currentThread();
+
+        private void check() { if ( Thread.currentThread() != thread ) otherThread = true; }
+
+        @Override public void start()                           { check(); calls.add("start"); }
+        @Override public void triple(Triple triple)             { check(); triples.add(triple); calls.add("triple"); }
+        @Override public void quad(Quad quad)                   { check(); calls.add("quad"); }
+        @Override public void prefix(String prefix, String iri) { check(); calls.add("prefix:"+prefix); }
+        @Override public void base(String base)                 { check(); calls.add("base"); }
+        @Override public void finish()                          { check(); calls.add("finish"); }
+    }
+
+    private static Recorder parse(String data, int batchSize) {
+        Recorder recorder = new Recorder();
+        RDFParser.create().source(input(data)).lang(Lang.TTL)
+            .labelToNode(LabelToNode.createUseLabelAsGiven())
+            .asyncBatchSize(batchSize)
+            .parse(recorder);
+        return recorder;
+    }
+
+    @Test public void async_01() {
+        String data = data(1000);
+        Recorder expected = new Recorder();
+        RDFParser.create().source(input(data)).lang(Lang.TTL)
+            .labelToNode(LabelToNode.createUseLabelAsGiven())
+            .parse(expected);
+        Recorder actual = parse(data, 7);
+        assertEquals(expected.calls, actual.calls);
+        assertEquals(expected.triples, actual.triples);
+        assertFalse(actual.otherThread);
+    }
+
+    @Test public void async_02() {
+        // Batch larger than the data.
+        Recorder actual = parse(data(10), 1000);
+        assertEquals(10, actual.triples.size());
+        assertEquals("start", actual.calls.get(0));
+        assertEquals("finish", actual.calls.get(actual.calls.size()-1));
+    }
+
+    @Test public void async_03() {
+        // Default batch size.
+        Recorder recorder = new Recorder();
+        RDFParser.create().source(input(data(100))).lang(Lang.TTL).async(true).parse(recorder);
+        assertEquals(100, recorder.triples.size());
+        assertFalse(recorder.otherThread);
+    }
+
+    @Test public void async_empty_01() {
+        Recorder actual = parse("", 10);
+        assertEquals(2, actual.calls.size());
+    }
+
+    @Test public void async_parse_error_01() {
+        Recorder recorder = new Recorder();
+        try {
+            RDFParser.create().source(input(data(100)+":s :p .")).lang(Lang.TTL)
+                .errorHandler(ErrorHandlerFactory.errorHandlerNoLogging)
+                .asyncBatchSize(10)
+                .parse(recorder);
+            fail("Expected a parse error");
+        } catch (RiotException ex) {}
+        // The batches before the error are delivered and the destination finished.
+        assertEquals(100, recorder.triples.size());
+        assertEquals("finish", recorder.calls.get(recorder.calls.size()-1));
+    }
+
+    @Test public void async_dest_error_01() throws InterruptedException {
+        // The destination fails: the parse stops.
+        StreamRDF dest = new StreamRDFBase() {
+            int count = 0;
+            @Override public void triple(Triple triple) {
+                if ( ++count == 50 )
+                    throw new IllegalStateException();
+            }
+        };
+        try {
+            RDFParser.create().source(input(data(100000))).lang(Lang.TTL)
+                .asyncBatchSize(10)
+                .parse(dest);
+            fail("Expected an exception");
+        } catch (IllegalStateException ex) {}
+        // The parser thread ends.
+        for ( int i = 0 ; i < 50 && parserThreads() ; i++ )
+            Thread.sleep(100);
+        assertFalse(parserThreads());
+    }
+
+    private static boolean parserThreads() {
+        for ( Thread t : Thread.getAllStackTraces().keySet() ) {
+            if ( t.getName().startsWith("RIOT-Async-") && t.isAlive() )
+                return true;
+        }
+        return false;
+    }
+
+    @Test public void async_parallel_01() {
+        // Async and parallel N-Triples.
+        StringBuilder sb = new StringBuilder();
+        for ( int i = 0 ; i < 1000 ; i++ )
+            sb.append("<http://example/s> <http://example/p> \"").append(i).append("\" .\n");
+        Recorder recorder = new Recorder();
+        RDFParser.create().source(input(sb.toString())).lang(Lang.NT)
+            .parallel(2).parallelChunkSize(500)
+            .asyncBatchSize(64)
+            .parse(recorder);
+        assertEquals(1000, recorder.triples.size());
+        for ( int i = 0 ; i < 1000 ; i++ )
+            assertEquals(Integer.toString(i), recorder.triples.get(i).getObject().getLiteralLexicalForm());
+        assertTrue(!recorder.otherThread);
+    }
+}
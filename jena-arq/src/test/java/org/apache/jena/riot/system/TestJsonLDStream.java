@@ -0,0 +1,252 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.system;
+
+import java.io.ByteArrayInputStream ;
+import java.io.ByteArrayOutputStream ;
+import java.nio.charset.StandardCharsets ;
+import java.util.HashMap ;
+import java.util.Map ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.riot.* ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.DatasetGraphFactory ;
+import org.apache.jena.sparql.graph.GraphFactory ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.sparql.util.Context ;
+import org.apache.jena.sparql.util.IsoMatcher ;
+import org.junit.Test ;
+
+/** Streaming JSON-LD : the writer is checked with the jsonld-java reader, the reader against it. */
+public class TestJsonLDStream extends BaseTest
+{
+    private static String DIR = "testing/RIOT/jsonld/" ;
+
+    // ---- Writer
+
+    @Test public void write_g01() {
+        writeGraph("(graph (:s :p :o) (:s :p 1) (:s :p 'abc') (:s :p 'abc'@en) (:s :q 1.5) (:s rdf:type :T))") ;
+    }
+
+    @Test public void write_g02() {
+        writeGraph("(graph (_:b :p _:b) (:s :p _:b) (_:b :q 'x'^^:dt) (:s :p :o))") ;
+    }
+
+    @Test public void write_g03() {
+        writeGraph("(graph (:s :p 'say \"hello\"\\n'))") ;
+    }
+
+    @Test public void write_g04() {
+        writeGraph("(graph)") ;
+    }
+
+    @Test public void write_ds01() {
+        writeDataset("(dataset (graph (:s :p :o)) (graph :g1 (:s :p 1) (_:b :p 2)) (graph :g2 (:s :p :o2)))") ;
+    }
+
+    @Test public void write_ds02() {
+        DatasetGraph dsg = RDFDataMgr.loadDatasetGraph(DIR+"dataset1.trig") ;
+        writeDataset(dsg) ;
+    }
+
+    @Test public void write_stream() {
+        Graph graph = SSE.parseGraph("(graph (:s :p :o) (:s :q 'x') (:z :p :o))") ;
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        StreamRDF stream = StreamRDFWriter.getWriterStream(out, RDFFormat.JSONLD_EXPAND_STREAM) ;
+        assertNotNull(stream) ;
+        StreamOps.graphToStream(graph, stream) ;
+        Graph graph2 = readGraph(out.toByteArray(), null) ;
+        assertTrue(graph.isIsomorphicWith(graph2)) ;
+    }
+
+    // ---- Reader
+
+    @Test public void read_01() {
+        readSame("[ { '@id' : 'http://example/s', 'http://example/p' : [ { '@id' : 'http://example/o' } ] } ]") ;
+    }
+
+    @Test public void read_02() {
+        readSame("{ '@context' : { 'ex' : 'http://example/' , 'name' : 'http://example/name' } ,"+
+                 "  '@id' : 'ex:s' , '@type' : [ 'ex:T1' , 'ex:T2' ] , 'name' : 'Alice' }") ;
+    }
+
+    @Test public void read_03() {
+        readSame("{ '@context' : { '@vocab' : 'http://example/' , '@language' : 'en' ,"+
+                 "                 'age' : { '@type' : 'http://www.w3.org/2001/XMLSchema#integer' } ,"+
+                 "                 'knows' : { '@type' : '@id' } } ,"+
+                 "  '@graph' : [ { '@id' : 'http://example/a' , 'name' : 'A' , 'age' : '21' , 'knows' : 'http://example/b' } ,"+
+                 "               { '@id' : 'http://example/b' , 'name' : { '@value' : 'B' , '@language' : 'fr' } ,"+
+                 "                 'n' : [ 1 , 2.5 , true ] } ] }") ;
+    }
+
+    @Test public void read_04() {
+        // Lists, and embedded nodes.
+        readSame("{ '@context' : { '@vocab' : 'http://example/' } ,"+
+                 "  '@id' : 'http://example/s' , 'list' : { '@list' : [ 1 , 'a' , { '@id' : 'http://example/x' } ] } ,"+
+                 "  'empty' : { '@list' : [] } ,"+
+                 "  'emb' : { 'p' : 'q' , 'inner' : { '@id' : 'http://example/in' , 'p' : 1 } } }") ;
+    }
+
+    @Test public void read_05() {
+        // Language maps and list containers.
+        readSame("{ '@context' : { 'label' : { '@id' : 'http://example/label' , '@container' : '@language' } ,"+
+                 "                 'seq' : { '@id' : 'http://example/seq' , '@container' : '@list' } } ,"+
+                 "  '@id' : 'http://example/s' , 'label' : { 'en' : 'Hello' , 'de' : [ 'Hallo' , 'Servus' ] } ,"+
+                 "  'seq' : [ 'a' , 'b' ] }") ;
+    }
+
+    @Test public void read_06() {
+        // Named graph.
+        readSame("[ { '@id' : 'http://example/g' , '@graph' : [ { '@id' : 'http://example/s' , 'http://example/p' : 'o' } ] } ,"+
+                 "  { '@id' : 'http://example/s' , 'http://example/p' : 'o1' } ]") ;
+    }
+
+    @Test public void read_07() {
+        // Base.
+        readSame("{ '@context' : { '@base' : 'http://example/base/' } , '@id' : 'x' , 'http://example/p' : { '@id' : '../y' } }") ;
+    }
+
+    @Test public void read_alias_01() {
+        // Keyword aliases.
+        readSame("{ '@context' : { 'id' : '@id' , 'type' : '@type' , 'ex' : 'http://example/' , 'name' : 'http://example/name' } ,"+
+                 "  'id' : 'ex:s' , 'type' : [ 'ex:T1' , 'ex:T2' ] , 'name' : 'Alice' }") ;
+    }
+
+    @Test public void read_alias_02() {
+        String json = "{ '@context' : { 'id' : '@id' , 'type' : '@type' , 'graph' : '@graph' , 'value' : '@value' , '@vocab' : 'http://example/' } ,"+
+                      "  'graph' : [ { 'id' : 'http://example/s' , 'type' : 'T' , 'p' : { 'value' : 'x' } } ] }" ;
+        Graph g = readGraph(bytes(json), null) ;
+        Graph expected = SSE.parseGraph("(graph (<http://example/s> rdf:type <http://example/T>) (<http://example/s> <http://example/p> 'x'))") ;
+        assertTrue(expected.isIsomorphicWith(g)) ;
+    }
+
+    @Test public void read_number_01() {
+        String json = "{ '@context' : { '@vocab' : 'http://example/' ,"+
+                      "                 'dec' : { '@type' : 'http://www.w3.org/2001/XMLSchema#decimal' } ,"+
+                      "                 'int' : { '@type' : 'http://www.w3.org/2001/XMLSchema#int' } ,"+
+                      "                 'dbl' : { '@type' : 'http://www.w3.org/2001/XMLSchema#double' } } ,"+
+                      "  '@id' : 'http://example/s' , 'dec' : [ 5.0 , 2.25 , 7 ] , 'int' : 3 , 'dbl' : 1 , 'n' : [ 1 , 2.5 ] }" ;
+        Graph g = readGraph(bytes(json), null) ;
+        Graph expected = SSE.parseGraph("(graph (:s :dec '5.0'^^xsd:decimal) (:s :dec '2.25'^^xsd:decimal) (:s :dec '7.0'^^xsd:decimal)"+
+                                        "  (:s :int '3'^^xsd:int) (:s :dbl '1.0E0'^^xsd:double)"+
+                                        "  (:s :n 1) (:s :n '2.5E0'^^xsd:double))") ;
+        assertTrue(expected.isIsomorphicWith(g)) ;
+    }
+
+    @Test public void read_context_01() {
+        // Context given separately.
+        String json = "{ '@id' : 'http://example/s' , 'name' : 'Alice' }" ;
+        Map<String, Object> jsonldContext = new HashMap<>() ;
+        jsonldContext.put("name", "http://example/name") ;
+        Context cxt = new Context() ;
+        cxt.set(RIOT.JSONLD_CONTEXT, jsonldContext) ;
+        Graph g = readGraph(bytes(json), cxt) ;
+        Graph expected = SSE.parseGraph("(graph (<http://example/s> <http://example/name> 'Alice'))") ;
+        assertTrue(expected.isIsomorphicWith(g)) ;
+    }
+
+    @Test public void read_context_02() {
+        // Context given separately replaces the document's context.
+        String json = "{ '@context' : { 'name' : 'http://other/name' } , '@id' : 'http://example/s' , 'name' : 'Alice' }" ;
+        Context cxt = new Context() ;
+        cxt.set(RIOT.JSONLD_CONTEXT, "{ \"name\" : \"http://example/name\" }") ;
+        Graph g = readGraph(bytes(json), cxt) ;
+        Graph expected = SSE.parseGraph("(graph (<http://example/s> <http://example/name> 'Alice'))") ;
+        assertTrue(expected.isIsomorphicWith(g)) ;
+    }
+
+    @Test(expected=RiotException.class)
+    public void read_bad_01() {
+        readGraph(bytes("{ '@graph' : [ { '@id' : 'http://example/s' , 'http://example/p' : 1 } ] , '@context' : { } }"), null) ;
+    }
+
+    @Test(expected=RiotException.class)
+    public void read_bad_02() {
+        readGraph(bytes("{ '@context' : 'http://example/remote-context' , '@id' : 'http://example/s' }"), null) ;
+    }
+
+    // ----
+
+    private static void writeGraph(String str) {
+        writeGraph(SSE.parseGraph(str)) ;
+    }
+
+    private static void writeGraph(Graph graph) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        RDFDataMgr.write(out, graph, RDFFormat.JSONLD_EXPAND_STREAM) ;
+        Graph graph2 = GraphFactory.createDefaultGraph() ;
+        RDFDataMgr.read(graph2, new ByteArrayInputStream(out.toByteArray()), Lang.JSONLD) ;
+        assertTrue(graph.isIsomorphicWith(graph2)) ;
+        // And the streaming reader.
+        Graph graph3 = readGraph(out.toByteArray(), null) ;
+        assertTrue(graph.isIsomorphicWith(graph3)) ;
+    }
+
+    private static void writeDataset(String str) {
+        writeDataset(SSE.parseDatasetGraph(str)) ;
+    }
+
+    private static void writeDataset(DatasetGraph dsg) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        RDFDataMgr.write(out, dsg, RDFFormat.JSONLD_EXPAND_STREAM) ;
+        DatasetGraph dsg2 = DatasetGraphFactory.create() ;
+        RDFDataMgr.read(dsg2, new ByteArrayInputStream(out.toByteArray()), Lang.JSONLD) ;
+        assertTrue(IsoMatcher.isomorphic(dsg, dsg2)) ;
+        DatasetGraph dsg3 = readDataset(out.toByteArray(), null) ;
+        assertTrue(IsoMatcher.isomorphic(dsg, dsg3)) ;
+    }
+
+    /** Read with both readers and compare. */
+    private static void readSame(String json) {
+        byte[] b = bytes(json) ;
+        DatasetGraph dsg1 = DatasetGraphFactory.create() ;
+        RDFDataMgr.read(dsg1, new ByteArrayInputStream(b), Lang.JSONLD) ;
+        DatasetGraph dsg2 = readDataset(b, null) ;
+        assertTrue(IsoMatcher.isomorphic(dsg1, dsg2)) ;
+    }
+
+    private static Graph readGraph(byte[] b, Context cxt) {
+        Graph graph = GraphFactory.createDefaultGraph() ;
+        parser(b, cxt).parse(graph) ;
+        return graph ;
+    }
+
+    private static DatasetGraph readDataset(byte[] b, Context cxt) {
+        DatasetGraph dsg = DatasetGraphFactory.create() ;
+        parser(b, cxt).parse(dsg) ;
+        return dsg ;
+    }
+
+    private static RDFParser parser(byte[] b, Context cxt) {
+        Context context = ( cxt == null ) ? new Context() : cxt ;
+        context.set(RIOT.JSONLD_STREAMING, true) ;
+        return RDFParser.create()
+            .source(new ByteArrayInputStream(b))
+            .lang(Lang.JSONLD)
+            .context(context)
+            .errorHandler(ErrorHandlerFactory.errorHandlerNoLogging)
+            .build() ;
+    }
+
+    private static byte[] bytes(String json) {
+        return json.replace('\'', '"').getBytes(StandardCharsets.UTF_8) ;
+    }
+}
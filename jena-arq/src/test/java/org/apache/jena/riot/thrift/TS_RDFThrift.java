@@ -26,6 +26,7 @@ import org.junit.runners.Suite ;
     TestThriftTerm.class
     , TestThriftSetup.class
     , TestStreamRDFThrift.class
+    , TestStreamRDFThriftDict.class
     , TestResultSetThrift.class
     //, TestPatchThrift.class
     
@@ -29,6 +29,8 @@ import org.apache.jena.atlas.lib.StrUtils ;
 import org.apache.jena.query.ResultSet ;
 import org.apache.jena.query.ResultSetFactory ;
 import org.apache.jena.query.ResultSetRewindable ;
+import org.apache.jena.riot.ResultSetMgr ;
+import org.apache.jena.riot.resultset.ResultSetLang ;
 import org.apache.jena.riot.thrift.BinRDF ;
 import org.apache.jena.sparql.resultset.ResultSetCompare ;
 import org.apache.jena.sparql.sse.Item ;
@@ -113,5 +115,50 @@ public class TestResultSetThrift extends BaseTest {
             test(ResultSetFactory.copyResults(rs)) ;
         } catch (IOException ex) { IO.exception(ex) ; }
     }
-}
 
+    @Test public void resultSet_20() {
+        // Rows written in batches.
+        int N = 3*BinRDF.ResultSetRowBatch+1 ;
+        StringBuilder sb = new StringBuilder("(resultset (?x ?y)") ;
+        for ( int i = 0 ; i < N ; i++ )
+            sb.append("(row (?x ").append(i).append(") (?y <http://example/").append(i%10).append(">))") ;
+        sb.append(")") ;
+        ResultSetRewindable rs = make(sb.toString()) ;
+        int[] flushes = { 0 } ;
+        ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override public void flush() { flushes[0]++ ; }
+        } ;
+        BinRDF.writeResultSet(out, rs) ;
+        assertTrue("Flushes: "+flushes[0], flushes[0] >= 3) ;
+        rs.reset() ;
+        ResultSetRewindable rs2 = ResultSetFactory.makeRewindable(BinRDF.readResultSet(new ByteArrayInputStream(out.toByteArray()))) ;
+        assertEquals(N, rs2.size()) ;
+        assertTrue(ResultSetCompare.equalsByTermAndOrder(rs, rs2)) ;
+    }
+
+    @Test public void booleanResult_01() { testBoolean(true) ; }
+
+    @Test public void booleanResult_02() { testBoolean(false) ; }
+
+    @Test public void booleanResult_03() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        ResultSetMgr.write(out, true, ResultSetLang.SPARQLResultSetThrift) ;
+        assertTrue(BinRDF.readBoolean(new ByteArrayInputStream(out.toByteArray()))) ;
+    }
+
+    @Test(expected=RiotThriftException.class)
+    public void booleanResult_04() {
+        // Not a boolean result.
+        rs1.reset() ;
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        BinRDF.writeResultSet(out, rs1) ;
+        rs1.reset() ;
+        BinRDF.readBoolean(new ByteArrayInputStream(out.toByteArray())) ;
+    }
+
+    private static void testBoolean(boolean b) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        BinRDF.writeBoolean(out, b) ;
+        assertEquals(b, BinRDF.readBoolean(new ByteArrayInputStream(out.toByteArray()))) ;
+    }
+}
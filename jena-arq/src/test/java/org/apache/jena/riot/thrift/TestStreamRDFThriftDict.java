@@ -0,0 +1,232 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.thrift;
+
+import java.io.ByteArrayInputStream ;
+import java.io.ByteArrayOutputStream ;
+import java.util.Arrays ;
+import java.util.Iterator ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.StrUtils ;
+import org.apache.jena.datatypes.xsd.XSDDatatype ;
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.riot.Lang ;
+import org.apache.jena.riot.RDFDataMgr ;
+import org.apache.jena.riot.RDFFormat ;
+import org.apache.jena.riot.RDFLanguages ;
+import org.apache.jena.riot.system.PrefixMap ;
+import org.apache.jena.riot.system.PrefixMapFactory ;
+import org.apache.jena.riot.system.StreamOps ;
+import org.apache.jena.riot.system.StreamRDF ;
+import org.apache.jena.riot.system.StreamRDFLib ;
+import org.apache.jena.riot.system.StreamRDFWrapper ;
+import org.apache.jena.riot.system.StreamRDFWriter ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.DatasetGraphFactory ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.graph.GraphFactory ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.junit.Test ;
+
+public class TestStreamRDFThriftDict extends BaseTest {
+
+    static String gs = StrUtils.strjoinNL(
+        "(graph",
+        "  (_:a :p 123) ",
+        "  (_:a :p 'foo'@en) ",
+        "  (_:a <http://example/ns#q> 'foo'@en) ",
+        "  (_:b :p '456') ",
+        "  (_:b :p '+0456'^^<http://www.w3.org/2001/XMLSchema#integer>) ",
+        "  (_:b :p '456.5e6') ",
+        "  (:s :p <http://example/ns#x>) ",
+        "  (:s :p <urn:x:y>) ",
+        "  (:s :p <http://example/>) ",
+        ")") ;
+
+    static Graph graph = SSE.parseGraph(gs) ;
+
+    static String dgs = StrUtils.strjoinNL(
+        "(dataset",
+        "  (graph (:s1 :p _:a) (:s2 :p _:a))" ,
+        "  (graph :g  (:s1 :p _:a) (:s1 :p 'abc'))" ,
+        "  (graph _:a (:s2 :p _:a))" ,
+        ")" ) ;
+
+    static DatasetGraph datasetGraph = SSE.parseDatasetGraph(dgs) ;
+
+    @Test public void graph_01() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        StreamRDF stream = new StreamRDF2ThriftDict(out, false) ;
+        StreamOps.graphToStream(graph, stream) ;
+
+        Graph g2 = GraphFactory.createGraphMem() ;
+        ThriftDict2StreamRDF.parse(new ByteArrayInputStream(out.toByteArray()), StreamRDFLib.graph(g2)) ;
+        sameTriples(graph, g2) ;
+    }
+
+    @Test public void graph_02() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        RDFDataMgr.write(out, graph, RDFFormat.RDF_THRIFT_DICT_COMPRESSED) ;
+
+        Graph g2 = GraphFactory.createGraphMem() ;
+        RDFDataMgr.read(g2, new ByteArrayInputStream(out.toByteArray()), Lang.RDFTHRIFT_DICT) ;
+        sameTriples(graph, g2) ;
+    }
+
+    @Test public void dataset_01() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        StreamRDFWriter.write(out, datasetGraph, Lang.RDFTHRIFT_DICT) ;
+
+        DatasetGraph dsg2 = DatasetGraphFactory.create() ;
+        RDFDataMgr.read(dsg2, new ByteArrayInputStream(out.toByteArray()), Lang.RDFTHRIFT_DICT) ;
+        sameQuads(datasetGraph, dsg2) ;
+    }
+
+    @Test public void dataset_02() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        RDFDataMgr.write(out, datasetGraph, RDFFormat.RDF_THRIFT_DICT_COMPRESSED) ;
+
+        DatasetGraph dsg2 = DatasetGraphFactory.create() ;
+        RDFDataMgr.read(dsg2, new ByteArrayInputStream(out.toByteArray()), Lang.RDFTHRIFT_DICT) ;
+        sameQuads(datasetGraph, dsg2) ;
+    }
+
+    @Test public void prefixes() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        StreamRDF stream = new StreamRDF2ThriftDict(out, true) ;
+        stream.start() ;
+        stream.prefix("ex", "http://example/") ;
+        stream.triple(SSE.parseTriple("(<http://example/s> <http://example/p> 'o')")) ;
+        stream.finish() ;
+
+        PrefixMap pmap = PrefixMapFactory.create() ;
+        Graph g2 = GraphFactory.createGraphMem() ;
+        StreamRDF dest = new StreamRDFWrapper(StreamRDFLib.graph(g2)) {
+            @Override
+            public void prefix(String prefix, String iri) {
+                pmap.add(prefix, iri) ;
+            }
+        } ;
+        ThriftDict2StreamRDF.parse(new ByteArrayInputStream(out.toByteArray()), dest) ;
+        assertEquals(1, g2.size()) ;
+        assertEquals("http://example/", pmap.expand("ex", "")) ;
+    }
+
+    // A dictionary much smaller than the number of distinct terms.
+    @Test public void dictionary_wrap_01() {
+        Graph g1 = manyTerms(500) ;
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        StreamRDF stream = new StreamRDF2ThriftDict(out, false, 7) ;
+        StreamOps.graphToStream(g1, stream) ;
+
+        Graph g2 = GraphFactory.createGraphMem() ;
+        ThriftDict2StreamRDF.parse(new ByteArrayInputStream(out.toByteArray()), StreamRDFLib.graph(g2)) ;
+        sameTriples(g1, g2) ;
+    }
+
+    @Test public void dictionary_wrap_02() {
+        Graph g1 = manyTerms(500) ;
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        StreamRDF stream = new StreamRDF2ThriftDict(out, true, 1) ;
+        StreamOps.graphToStream(g1, stream) ;
+
+        Graph g2 = GraphFactory.createGraphMem() ;
+        ThriftDict2StreamRDF.parse(new ByteArrayInputStream(out.toByteArray()), StreamRDFLib.graph(g2)) ;
+        sameTriples(g1, g2) ;
+    }
+
+    // Repeated terms make the output smaller than plain RDF Thrift.
+    @Test public void smaller_01() {
+        Graph g1 = manyTerms(2000) ;
+        ByteArrayOutputStream out1 = new ByteArrayOutputStream() ;
+        RDFDataMgr.write(out1, g1, RDFFormat.RDF_THRIFT) ;
+        ByteArrayOutputStream out2 = new ByteArrayOutputStream() ;
+        RDFDataMgr.write(out2, g1, RDFFormat.RDF_THRIFT_DICT) ;
+        ByteArrayOutputStream out3 = new ByteArrayOutputStream() ;
+        RDFDataMgr.write(out3, g1, RDFFormat.RDF_THRIFT_DICT_COMPRESSED) ;
+        assertTrue(out2.size() < out1.size()) ;
+        assertTrue(out3.size() < out2.size()) ;
+    }
+
+    @Test(expected=RiotThriftException.class)
+    public void truncated_01() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        RDFDataMgr.write(out, graph, RDFFormat.RDF_THRIFT_DICT) ;
+        byte[] bytes = out.toByteArray() ;
+        bytes = Arrays.copyOf(bytes, bytes.length-5) ;
+        ThriftDict2StreamRDF.parse(new ByteArrayInputStream(bytes), StreamRDFLib.sinkNull()) ;
+    }
+
+    @Test(expected=RiotThriftException.class)
+    public void bad_header_01() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        RDFDataMgr.write(out, graph, RDFFormat.RDF_THRIFT) ;
+        ThriftDict2StreamRDF.parse(new ByteArrayInputStream(out.toByteArray()), StreamRDFLib.sinkNull()) ;
+    }
+
+    @Test public void registration_01() {
+        assertEquals(RDFLanguages.THRIFT_DICT, RDFLanguages.filenameToLang("data.trdfd")) ;
+        assertEquals(RDFLanguages.THRIFT_DICT, RDFLanguages.nameToLang("RDF-THRIFT-DICT")) ;
+        assertTrue(RDFLanguages.isQuads(RDFLanguages.THRIFT_DICT)) ;
+        assertTrue(StreamRDFWriter.registered(RDFLanguages.THRIFT_DICT)) ;
+    }
+
+    private static Graph manyTerms(int n) {
+        Graph g = GraphFactory.createGraphMem() ;
+        Node dtp = NodeFactory.createURI("http://example/ns#value") ;
+        StringBuilder sb = new StringBuilder() ;
+        for ( int i = 0 ; i < 100 ; i++ )
+            sb.append('x') ;
+        String padding = sb.toString() ;
+        for ( int i = 0 ; i < n ; i++ ) {
+            Node s = NodeFactory.createURI("http://example/data/s"+(i%50)) ;
+            Node p = NodeFactory.createURI("http://example/ns#p"+(i%5)) ;
+            g.add(Triple.create(s, p, NodeFactory.createBlankNode("b"+(i%20)))) ;
+            g.add(Triple.create(s, dtp, NodeFactory.createLiteral(Integer.toString(i%30), XSDDatatype.XSDinteger))) ;
+            g.add(Triple.create(s, p, NodeFactory.createLiteral("Some text "+(i%10), "en"))) ;
+            g.add(Triple.create(s, p, NodeFactory.createLiteral("long"+i+padding))) ;
+        }
+        return g ;
+    }
+
+    private static void sameTriples(Graph g1, Graph g2) {
+        assertEquals(g1.size(), g2.size()) ;
+        Iterator<Triple> iter = g1.find(null, null, null) ;
+        while(iter.hasNext()) {
+            Triple t = iter.next() ;
+            assertTrue("Missing: "+t, g2.contains(t)) ;
+        }
+    }
+
+    private static void sameQuads(DatasetGraph dsg1, DatasetGraph dsg2) {
+        Iterator<Quad> iter = dsg1.find() ;
+        long count = 0 ;
+        while(iter.hasNext()) {
+            Quad q = iter.next() ;
+            assertTrue("Missing: "+q, dsg2.contains(q)) ;
+            count++ ;
+        }
+        assertEquals(count, Iter.count(dsg2.find())) ;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.riot.tokens ;
+
+import java.nio.ByteBuffer ;
+import java.nio.charset.StandardCharsets ;
+import java.util.ArrayList ;
+import java.util.List ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.atlas.lib.StrUtils ;
+import org.apache.jena.riot.RiotParseException ;
+import org.junit.Test ;
+
+public class TestTokenizerBytes extends BaseTest {
+
+    private static Tokenizer tokenizer(String string) {
+        return TokenizerFactory.makeTokenizerBytes(ByteBuffer.wrap(StrUtils.asUTF8bytes(string))) ;
+    }
+
+    private static List<Token> tokens(Tokenizer tokenizer) {
+        List<Token> tokens = new ArrayList<>() ;
+        while ( tokenizer.hasNext() )
+            tokens.add(tokenizer.next()) ;
+        return tokens ;
+    }
+
+    // Same tokens as the text tokenizer.
+    private static void testSame(String string) {
+        List<Token> expected = tokens(TokenizerFactory.makeTokenizerString(string)) ;
+        List<Token> actual = tokens(tokenizer(string)) ;
+        assertEquals(expected.size(), actual.size()) ;
+        for ( int i = 0 ; i < expected.size() ; i++ )
+            assertSameToken(expected.get(i), actual.get(i)) ;
+    }
+
+    // Token.equals does not include the sub-tokens.
+    private static void assertSameToken(Token expected, Token actual) {
+        if ( expected == null ) {
+            assertNull(actual) ;
+            return ;
+        }
+        assertEquals(expected, actual) ;
+        assertEquals(expected.getStringType(), actual.getStringType()) ;
+        assertSameToken(expected.getSubToken1(), actual.getSubToken1()) ;
+        assertSameToken(expected.getSubToken2(), actual.getSubToken2()) ;
+    }
+
+    private static Token tokenFor(String string) {
+        Tokenizer tokenizer = tokenizer(string) ;
+        assertTrue(tokenizer.hasNext()) ;
+        Token token = tokenizer.next() ;
+        assertFalse(tokenizer.hasNext()) ;
+        return token ;
+    }
+
+    @Test public void tokenBytes_iri_01()       { testSame("<http://example/>") ; }
+    @Test public void tokenBytes_iri_02()       { testSame("<http://example/\\u00E9\\U0001F600>") ; }
+    @Test public void tokenBytes_iri_03()       { testSame("<http://example/\u00E9>") ; }
+    @Test public void tokenBytes_iri_04()       { testSame("<>") ; }
+
+    @Test public void tokenBytes_bnode_01()     { testSame("_:abc") ; }
+    @Test public void tokenBytes_bnode_02()     { testSame("_:a.b") ; }
+    @Test public void tokenBytes_bnode_03()     { testSame("_:abc.") ; }
+    @Test public void tokenBytes_bnode_04()     { testSame("_:0x-y_z") ; }
+
+    @Test public void tokenBytes_string_01()    { testSame("\"abc\"") ; }
+    @Test public void tokenBytes_string_02()    { testSame("\"\"") ; }
+    @Test public void tokenBytes_string_03()    { testSame("'abc'") ; }
+    @Test public void tokenBytes_string_04()    { testSame("\"a\\tb\\n\\\"c\\\\\\u0041\"") ; }
+    @Test public void tokenBytes_string_05()    { testSame("\"caf\u00E9 \uD83D\uDE00\"") ; }
+
+    @Test public void tokenBytes_literal_01()   { testSame("\"abc\"@en") ; }
+    @Test public void tokenBytes_literal_02()   { testSame("\"abc\"@en-GB-x1") ; }
+    @Test public void tokenBytes_literal_03()   { testSame("\"1\"^^<http://www.w3.org/2001/XMLSchema#integer>") ; }
+    @Test public void tokenBytes_literal_04()   { testSame("\"1\"^^ <http://example/dt>") ; }
+
+    @Test public void tokenBytes_triple_01() {
+        testSame("<http://example/s> <http://example/p> \"o\"@en .\n_:b <http://example/p> _:c . # Comment\n") ;
+    }
+
+    @Test public void tokenBytes_quad_01() {
+        testSame("# Comment\r\n<s> <p> \"1\"^^<dt> <g> .\r\n\t<s> <p> 'x' .") ;
+    }
+
+    @Test public void tokenBytes_lines_01() {
+        Tokenizer tokenizer = tokenizer("<s> <p> <o> .\n\n  <s> <p> <o> .") ;
+        List<Token> tokens = tokens(tokenizer) ;
+        assertEquals(8, tokens.size()) ;
+        assertEquals(1, tokens.get(0).getLine()) ;
+        assertEquals(1, tokens.get(0).getColumn()) ;
+        assertEquals(3, tokens.get(4).getLine()) ;
+        assertEquals(3, tokens.get(4).getColumn()) ;
+    }
+
+    @Test public void tokenBytes_cache_01() {
+        // Repeated terms are the same string.
+        List<Token> tokens = tokens(tokenizer("<http://example/p> _:b <http://example/p> _:b \"x\"@en \"y\"@en")) ;
+        assertSame(tokens.get(0).getImage(), tokens.get(2).getImage()) ;
+        assertSame(tokens.get(1).getImage(), tokens.get(3).getImage()) ;
+        assertSame(tokens.get(4).getImage2(), tokens.get(5).getImage2()) ;
+    }
+
+    @Test public void tokenBytes_bom_01() {
+        byte[] b = "\uFEFF<s>".getBytes(StandardCharsets.UTF_8) ;
+        Token token = TokenizerFactory.makeTokenizerBytes(ByteBuffer.wrap(b)).next() ;
+        assertEquals("s", token.getImage()) ;
+    }
+
+    @Test public void tokenBytes_position_01() {
+        // Tokenize part of a buffer.
+        ByteBuffer bb = ByteBuffer.wrap(StrUtils.asUTF8bytes("<a> <b> <c>")) ;
+        bb.position(4) ;
+        bb.limit(7) ;
+        Token token = tokenFor(bb) ;
+        assertEquals("b", token.getImage()) ;
+    }
+
+    private static Token tokenFor(ByteBuffer bb) {
+        Tokenizer tokenizer = TokenizerFactory.makeTokenizerBytes(bb) ;
+        assertTrue(tokenizer.hasNext()) ;
+        Token token = tokenizer.next() ;
+        assertFalse(tokenizer.hasNext()) ;
+        return token ;
+    }
+
+    @Test(expected=RiotParseException.class)
+    public void tokenBytes_bad_01()             { tokenFor("<http://example/ space>") ; }
+
+    @Test(expected=RiotParseException.class)
+    public void tokenBytes_bad_02()             { tokenFor("<http://example/") ; }
+
+    @Test(expected=RiotParseException.class)
+    public void tokenBytes_bad_03()             { tokenFor("\"abc") ; }
+
+    @Test(expected=RiotParseException.class)
+    public void tokenBytes_bad_04()             { tokenFor("\"ab\nc\"") ; }
+
+    @Test(expected=RiotParseException.class)
+    public void tokenBytes_bad_05()             { tokenFor("\"\"\"abc\"\"\"") ; }
+
+    @Test(expected=RiotParseException.class)
+    public void tokenBytes_bad_06()             { tokenFor("\"abc\\q\"") ; }
+
+    @Test(expected=RiotParseException.class)
+    public void tokenBytes_bad_07()             { tokenFor("<http://example/\\n>") ; }
+
+    @Test(expected=RiotParseException.class)
+    public void tokenBytes_bad_08()             { tokenFor("\"abc\"@") ; }
+
+    @Test(expected=RiotParseException.class)
+    public void tokenBytes_bad_09()             { tokenFor("\"abc\"^^\"dt\"") ; }
+
+    @Test(expected=RiotParseException.class)
+    public void tokenBytes_bad_10()             { tokenFor("_:") ; }
+
+    @Test(expected=RiotParseException.class)
+    public void tokenBytes_bad_11()             { tokenFor(":p") ; }
+
+    @Test(expected=RiotParseException.class)
+    public void tokenBytes_bad_12() {
+        byte[] b = { '"', (byte)0xC3, (byte)0x28, '"' } ;
+        tokenFor(ByteBuffer.wrap(b)) ;
+    }
+}
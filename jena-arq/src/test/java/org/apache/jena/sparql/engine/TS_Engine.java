@@ -18,9 +18,12 @@
 
 package org.apache.jena.sparql.engine;
 
+import org.apache.jena.sparql.engine.batch.TS_Batch ;
 import org.apache.jena.sparql.engine.binding.TestBindingStreams ;
 import org.apache.jena.sparql.engine.http.TestQueryEngineHTTP ;
 import org.apache.jena.sparql.engine.http.TestService ;
+import org.apache.jena.sparql.engine.http.TestServiceBindJoin ;
+import org.apache.jena.sparql.engine.http.TestServiceResults ;
 import org.apache.jena.sparql.engine.iterator.TS_QueryIterators ;
 import org.apache.jena.sparql.engine.ref.TestTableJoin ;
 import org.junit.runner.RunWith ;
@@ -32,8 +35,12 @@ import org.junit.runners.Suite ;
       , TestTableJoin.class
       , TS_QueryIterators.class
       , TestService.class
+      , TestServiceBindJoin.class
+      , TestServiceResults.class
       , TestQueryEngineHTTP.class
       , TestQueryEngineMultiThreaded.class
+      , TS_Batch.class
+      , TestPlanCache.class
 })
 
 public class TS_Engine {}
@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertNull ;
+
+import java.lang.ref.WeakReference ;
+
+import org.apache.jena.atlas.lib.StrUtils ;
+import org.apache.jena.datatypes.xsd.XSDDatatype ;
+import org.apache.jena.query.* ;
+import org.apache.jena.rdf.model.RDFNode ;
+import org.apache.jena.rdf.model.ResourceFactory ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.engine.main.QueryEngineMain ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.sparql.util.Symbol ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+public class TestPlanCache
+{
+    private static final String data = StrUtils.strjoinNL
+        ("(graph"
+        ,"  (:s1 :p 1) (:s1 :q 'a')"
+        ,"  (:s2 :p 2) (:s2 :q 'b')"
+        ,"  (:s3 :p 2) (:s3 :q 'c')"
+        ,")") ;
+
+    private static final String qs = "PREFIX : <http://example/> SELECT * { ?s :p ?o ; :q ?z } ORDER BY ?z" ;
+
+    private PlanCache planCache ;
+    private Dataset dataset ;
+
+    @Before public void before() {
+        planCache = new PlanCache(10) ;
+        QueryEngineMain.setPlanCache(planCache) ;
+        dataset = dataset() ;
+    }
+
+    @After public void after() {
+        QueryEngineMain.setPlanCache(null) ;
+    }
+
+    private static Dataset dataset() {
+        DatasetGraph dsg = SSE.parseDatasetGraph("(dataset "+data+")") ;
+        return DatasetFactory.wrap(dsg) ;
+    }
+
+    private static int count(String queryString, Dataset dataset) {
+        return count(queryString, dataset, null) ;
+    }
+
+    private static int count(String queryString, Dataset dataset, QuerySolution initialBinding) {
+        try ( QueryExecution qExec = QueryExecutionFactory.create(queryString, dataset, initialBinding) ) {
+            return ResultSetFormatter.consume(qExec.execSelect()) ;
+        }
+    }
+
+    @Test public void planCache_01() {
+        assertEquals(3, count(qs, dataset)) ;
+        assertEquals(0, planCache.getHits()) ;
+        assertEquals(1, planCache.getMisses()) ;
+        assertEquals(3, count(qs, dataset)) ;
+        assertEquals(1, planCache.getHits()) ;
+        assertEquals(1, planCache.size()) ;
+    }
+
+    @Test public void planCache_02() {
+        // Same query, different layout.
+        count(qs, dataset) ;
+        String qs2 = "PREFIX : <http://example/>\nSELECT *\n{\n  ?s :p ?o .\n  ?s :q ?z .\n}\nORDER BY ?z\n" ;
+        assertEquals(3, count(qs2, dataset)) ;
+        assertEquals(1, planCache.getHits()) ;
+    }
+
+    @Test public void planCache_03() {
+        // Parameters : one plan, different results.
+        String qs3 = "PREFIX : <http://example/> SELECT * { ?s :p ?o ; :q ?z }" ;
+        QuerySolutionMap b1 = new QuerySolutionMap() ;
+        b1.add("o", literal(1)) ;
+        QuerySolutionMap b2 = new QuerySolutionMap() ;
+        b2.add("o", literal(2)) ;
+        assertEquals(1, count(qs3, dataset, b1)) ;
+        assertEquals(2, count(qs3, dataset, b2)) ;
+        assertEquals(1, planCache.getMisses()) ;
+        assertEquals(1, planCache.getHits()) ;
+        assertEquals(3, count(qs3, dataset)) ;
+        assertEquals(2, planCache.getHits()) ;
+    }
+
+    @Test public void planCache_04() {
+        // Different dataset.
+        count(qs, dataset) ;
+        count(qs, dataset()) ;
+        assertEquals(0, planCache.getHits()) ;
+        assertEquals(2, planCache.getMisses()) ;
+    }
+
+    @Test public void planCache_05() {
+        // Bypassed.
+        Query query = QueryFactory.create(qs) ;
+        try ( QueryExecution qExec = QueryExecutionFactory.create(query, dataset) ) {
+            qExec.getContext().set(ARQ.planCache, false) ;
+            assertEquals(3, ResultSetFormatter.consume(qExec.execSelect())) ;
+        }
+        assertEquals(0, planCache.getMisses()) ;
+        assertEquals(0, planCache.size()) ;
+    }
+
+    @Test public void planCache_06() {
+        // Bounded. FILTER constants are part of the key.
+        PlanCache planCache2 = new PlanCache(2) ;
+        QueryEngineMain.setPlanCache(planCache2) ;
+        for ( int i = 0 ; i < 10 ; i++ )
+            count("SELECT * { ?s ?p ?o FILTER(?o = "+i+") }", dataset) ;
+        assertEquals(10, planCache2.getMisses()) ;
+        assertEquals(2, planCache2.size()) ;
+    }
+
+    @Test public void planCache_07() {
+        // Results are the same as without the cache.
+        String qs7 = "PREFIX : <http://example/> SELECT ?z { ?s :p ?o FILTER(?o > 1) OPTIONAL { ?s :q ?z } }" ;
+        QueryEngineMain.setPlanCache(null) ;
+        int expected = count(qs7, dataset) ;
+        QueryEngineMain.setPlanCache(planCache) ;
+        assertEquals(expected, count(qs7, dataset)) ;
+        assertEquals(expected, count(qs7, dataset)) ;
+        assertEquals(1, planCache.getHits()) ;
+    }
+
+    @Test public void planCache_08() {
+        // FROM : not cached.
+        String qs8 = "PREFIX : <http://example/> SELECT * FROM :g { ?s ?p ?o }" ;
+        count(qs8, dataset) ;
+        count(qs8, dataset) ;
+        assertEquals(0, planCache.getMisses()) ;
+        assertEquals(0, planCache.size()) ;
+    }
+
+    @Test public void planCache_09() {
+        // Optimizer settings are part of the key.
+        count(qs, dataset) ;
+        Query query = QueryFactory.create(qs) ;
+        try ( QueryExecution qExec = QueryExecutionFactory.create(query, dataset) ) {
+            qExec.getContext().set(ARQ.optFilterPlacement, false) ;
+            assertEquals(3, ResultSetFormatter.consume(qExec.execSelect())) ;
+        }
+        assertEquals(0, planCache.getHits()) ;
+        assertEquals(2, planCache.getMisses()) ;
+        count(qs, dataset) ;
+        assertEquals(1, planCache.getHits()) ;
+    }
+
+    @Test public void planCache_10() {
+        // Union default graph setting of TDB2.
+        Symbol symbol = Symbol.create("http://jena.apache.org/TDB#unionDefaultGraph") ;
+        Query query = QueryFactory.create(qs) ;
+        for ( boolean b : new boolean[] {true, false, true} ) {
+            try ( QueryExecution qExec = QueryExecutionFactory.create(query, dataset) ) {
+                qExec.getContext().set(symbol, b) ;
+                ResultSetFormatter.consume(qExec.execSelect()) ;
+            }
+        }
+        assertEquals(2, planCache.getMisses()) ;
+        assertEquals(1, planCache.getHits()) ;
+    }
+
+    @Test public void planCache_11() {
+        // Added settings are part of the key.
+        Symbol symbol = Symbol.create("http://example/planCacheTest") ;
+        PlanCache.addKeySymbol(symbol) ;
+        Query query = QueryFactory.create(qs) ;
+        for ( boolean b : new boolean[] {true, false, true} ) {
+            try ( QueryExecution qExec = QueryExecutionFactory.create(query, dataset) ) {
+                qExec.getContext().set(symbol, b) ;
+                ResultSetFormatter.consume(qExec.execSelect()) ;
+            }
+        }
+        assertEquals(2, planCache.getMisses()) ;
+        assertEquals(1, planCache.getHits()) ;
+    }
+
+    @Test public void planCache_12() {
+        // Constants in the pattern, e.g. from ParameterizedSparqlString : one plan, different results.
+        int[] expected = { 0, 1, 2 } ;
+        for ( int i = 0 ; i < 3 ; i++ ) {
+            ParameterizedSparqlString pss = new ParameterizedSparqlString("PREFIX : <http://example/> SELECT * { ?s :p ?o ; :q ?z }") ;
+            pss.setLiteral("o", i) ;
+            assertEquals(expected[i], count(pss.toString(), dataset)) ;
+        }
+        assertEquals(1, planCache.getMisses()) ;
+        assertEquals(2, planCache.getHits()) ;
+        // Subject constants.
+        assertEquals(1, count("PREFIX : <http://example/> SELECT * { :s1 :p ?o ; :q ?z }", dataset)) ;
+        assertEquals(1, count("PREFIX : <http://example/> SELECT * { :s2 :p ?o ; :q ?z }", dataset)) ;
+        assertEquals(2, planCache.getMisses()) ;
+        assertEquals(3, planCache.getHits()) ;
+    }
+
+    @Test public void planCache_13() {
+        // Results are the same as without the cache, including property functions.
+        String[] queries = {
+            "PREFIX : <http://example/> SELECT * { :s2 :p ?o OPTIONAL { ?s :p 2 ; :q ?z } }",
+            "PREFIX : <http://example/> SELECT * { ?s :p 2 FILTER NOT EXISTS { ?s :q 'b' } }",
+            "PREFIX apf: <http://jena.apache.org/ARQ/property#> SELECT * { ?x apf:strSplit ('a b c' ' ') }",
+            "PREFIX apf: <http://jena.apache.org/ARQ/property#> SELECT * { ?x apf:strSplit ('a b' ' ') }",
+        } ;
+        for ( String queryString : queries ) {
+            QueryEngineMain.setPlanCache(null) ;
+            int expected = count(queryString, dataset) ;
+            QueryEngineMain.setPlanCache(planCache) ;
+            assertEquals(queryString, expected, count(queryString, dataset)) ;
+            assertEquals(queryString, expected, count(queryString, dataset)) ;
+        }
+        assertEquals(queries.length, planCache.getHits()) ;
+    }
+
+    @Test public void planCache_14() {
+        // The cache does not keep the dataset.
+        Dataset ds = dataset() ;
+        count(qs, ds) ;
+        assertEquals(1, planCache.size()) ;
+        WeakReference<Dataset> ref = new WeakReference<>(ds) ;
+        ds = null ;
+        for ( int i = 0 ; i < 20 && ref.get() != null ; i++ ) {
+            System.gc() ;
+            try { Thread.sleep(10) ; } catch (InterruptedException ex) {}
+        }
+        assertNull(ref.get()) ;
+    }
+
+    private static RDFNode literal(int i) {
+        return ResourceFactory.createTypedLiteral(Integer.toString(i), XSDDatatype.XSDinteger) ;
+    }
+}
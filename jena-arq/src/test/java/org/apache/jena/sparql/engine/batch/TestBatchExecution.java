@@ -0,0 +1,135 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertTrue ;
+
+import java.util.Arrays ;
+import java.util.Collection ;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype ;
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.query.* ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.DatasetGraphFactory ;
+import org.apache.jena.sparql.resultset.ResultSetCompare ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+import org.junit.runner.RunWith ;
+import org.junit.runners.Parameterized ;
+import org.junit.runners.Parameterized.Parameters ;
+
+/** Batch execution gives the same results as row-at-a-time execution. */
+@RunWith(Parameterized.class)
+public class TestBatchExecution
+{
+    @Parameters(name = "{index}: batch size {0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(new Object[][] { {1}, {2}, {7}, {BindingBatch.DefaultSize} }) ;
+    }
+
+    private static final String PREFIX = "PREFIX : <http://example/> " ;
+    private static Dataset dataset ;
+
+    @BeforeClass public static void beforeClass() {
+        DatasetGraph dsg = DatasetGraphFactory.create() ;
+        Graph graph = dsg.getDefaultGraph() ;
+        Node p = SSE.parseNode(":p") ;
+        Node q = SSE.parseNode(":q") ;
+        Node r = SSE.parseNode(":r") ;
+        for ( int i = 0 ; i < 40 ; i++ ) {
+            Node s = SSE.parseNode(":s"+i) ;
+            graph.add(Triple.create(s, p, NodeFactory.createLiteral(Integer.toString(i), XSDDatatype.XSDinteger))) ;
+            graph.add(Triple.create(s, q, SSE.parseNode(":o"+(i%5)))) ;
+            if ( i % 3 == 0 )
+                graph.add(Triple.create(s, r, s)) ;
+            if ( i % 4 == 0 )
+                graph.add(Triple.create(SSE.parseNode(":o"+(i%5)), r, SSE.parseNode(":x"+i))) ;
+        }
+        dataset = DatasetFactory.wrap(dsg) ;
+    }
+
+    private final int batchSize ;
+
+    public TestBatchExecution(int batchSize) {
+        this.batchSize = batchSize ;
+    }
+
+    @Test public void batch_bgp_1()         { test("SELECT * { ?s :p ?v }") ; }
+    @Test public void batch_bgp_2()         { test("SELECT * { ?s :p ?v ; :q ?o }") ; }
+    @Test public void batch_bgp_3()         { test("SELECT * { ?s :q ?o . ?o :r ?x }") ; }
+    @Test public void batch_bgp_repeated()  { test("SELECT * { ?s :r ?s }") ; }
+    @Test public void batch_bgp_none()      { test("SELECT * { ?s :p ?v ; :nothing ?z }") ; }
+    @Test public void batch_bgp_bnode()     { test("SELECT * { ?s :q [ :r ?x ] }") ; }
+    @Test public void batch_filter_1()      { test("SELECT * { ?s :p ?v FILTER(?v > 10) FILTER(?v < 33) }") ; }
+    @Test public void batch_filter_2()      { test("SELECT * { ?s :p ?v FILTER(?v > 100) }") ; }
+    @Test public void batch_filter_3()      { test("SELECT * { ?s :p ?v OPTIONAL { ?s :r ?z } FILTER(!bound(?z)) }") ; }
+    @Test public void batch_join_1()        { test("SELECT * { { ?s :p ?v } { ?s :q ?o } }") ; }
+    @Test public void batch_join_2()        { test("SELECT * { { ?s :p ?v } { ?o :r ?x } }") ; }
+    @Test public void batch_join_3()        { test("SELECT * { { ?s :q ?o } { OPTIONAL { ?s :r ?z } } }") ; }
+    @Test public void batch_join_4()        { test("SELECT * { { ?s :q ?o OPTIONAL { ?s :r ?z } } { ?z :p ?v } }") ; }
+    @Test public void batch_project_1()     { test("SELECT ?s { ?s :p ?v ; :q ?o }") ; }
+    @Test public void batch_project_2()     { test("SELECT ?s ?nothing { ?s :p ?v }") ; }
+    @Test public void batch_distinct_1()    { test("SELECT DISTINCT ?o { ?s :q ?o }") ; }
+    @Test public void batch_distinct_2()    { test("SELECT DISTINCT * { { ?s :q ?o } UNION { ?s :q ?o } UNION { ?s :r ?z } }") ; }
+    @Test public void batch_group_1()       { test("SELECT ?o (count(*) AS ?c) (sum(?v) AS ?t) { ?s :q ?o ; :p ?v } GROUP BY ?o") ; }
+    @Test public void batch_group_2()       { test("SELECT (count(*) AS ?c) { ?s :q ?o }") ; }
+    @Test public void batch_group_3()       { test("SELECT (count(*) AS ?c) (max(?v) AS ?m) { ?s :nothing ?v }") ; }
+    @Test public void batch_group_4()       { test("SELECT ?o { ?s :q ?o } GROUP BY ?o") ; }
+    @Test public void batch_group_5()       { test("SELECT ?z (count(?s) AS ?c) { ?s :q ?o OPTIONAL { ?s :r ?z } } GROUP BY ?z") ; }
+    @Test public void batch_group_6()       { test("SELECT ?o { ?s :nothing ?o } GROUP BY ?o") ; }
+    @Test public void batch_subquery_1()    { test("SELECT * { ?s :q ?o { SELECT ?o (count(*) AS ?c) { ?x :q ?o } GROUP BY ?o } }") ; }
+    @Test public void batch_mixed_1()       { test("SELECT * { ?s :p ?v MINUS { ?s :r ?z } FILTER (?v < 20) } ORDER BY ?v LIMIT 5") ; }
+
+    @Test public void batch_enable_symbol() {
+        Query query = QueryFactory.create(PREFIX+"SELECT * { ?s :p ?v FILTER(?v >= 35) }") ;
+        try ( QueryExecution qExec = QueryExecutionFactory.create(query, dataset) ) {
+            qExec.getContext().set(ARQ.batchExecution, true) ;
+            qExec.getContext().set(ARQ.batchExecutionSize, batchSize) ;
+            assertEquals(5, ResultSetFormatter.consume(qExec.execSelect())) ;
+        }
+    }
+
+    private void test(String queryString) {
+        Query query = QueryFactory.create(PREFIX+queryString) ;
+        ResultSetRewindable expected ;
+        try ( QueryExecution qExec = QueryExecutionFactory.create(query, dataset) ) {
+            expected = ResultSetFactory.copyResults(qExec.execSelect()) ;
+        }
+        ResultSetRewindable actual ;
+        try ( QueryExecution qExec = QueryExecutionFactory.create(query, dataset) ) {
+            OpExecutorBatch.enable(qExec.getContext()) ;
+            qExec.getContext().set(ARQ.batchExecutionSize, batchSize) ;
+            actual = ResultSetFactory.copyResults(qExec.execSelect()) ;
+        }
+        boolean b = ResultSetCompare.equalsByTerm(expected, actual) ;
+        if ( ! b ) {
+            expected.reset() ;
+            actual.reset() ;
+            ResultSetFormatter.out(expected) ;
+            ResultSetFormatter.out(actual) ;
+        }
+        assertTrue("Different results: "+queryString, b) ;
+    }
+}
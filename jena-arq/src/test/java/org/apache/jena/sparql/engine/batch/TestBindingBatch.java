@@ -0,0 +1,108 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.batch;
+
+import static org.junit.Assert.* ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.junit.Test ;
+
+public class TestBindingBatch
+{
+    private static Var x = Var.alloc("x") ;
+    private static Var y = Var.alloc("y") ;
+    private static Var z = Var.alloc("z") ;
+
+    private static BindingBatch batch(int rows) {
+        BindingBatch batch = BindingBatch.create(new Var[]{x, y}, 4) ;
+        for ( int i = 0 ; i < rows ; i++ ) {
+            int row = batch.addRow() ;
+            batch.set(row, 0, SSE.parseNode(":x"+i)) ;
+            if ( i % 2 == 0 )
+                batch.set(row, 1, SSE.parseNode(":y"+i)) ;
+        }
+        return batch ;
+    }
+
+    @Test public void batch_01() {
+        BindingBatch batch = batch(3) ;
+        assertEquals(3, batch.size()) ;
+        assertEquals(3, batch.selected()) ;
+        assertFalse(batch.isFull()) ;
+        assertEquals(1, batch.column(y)) ;
+        assertEquals(-1, batch.column(z)) ;
+        assertNull(batch.get(1, y)) ;
+        assertEquals(SSE.parseNode(":y2"), batch.get(2, y)) ;
+    }
+
+    @Test public void batch_02() {
+        BindingBatch batch = batch(4) ;
+        assertTrue(batch.isFull()) ;
+        batch.select(new boolean[]{true, false, false, true}) ;
+        assertEquals(4, batch.size()) ;
+        assertEquals(2, batch.selected()) ;
+        assertEquals(0, batch.row(0)) ;
+        assertEquals(3, batch.row(1)) ;
+        batch.select(new boolean[]{false, true}) ;
+        assertEquals(1, batch.selected()) ;
+        assertEquals(3, batch.row(0)) ;
+    }
+
+    @Test(expected=IllegalStateException.class)
+    public void batch_03() {
+        BindingBatch batch = batch(4) ;
+        batch.addRow() ;
+    }
+
+    @Test public void batch_project_01() {
+        BindingBatch batch = batch(3) ;
+        BindingBatch batch2 = batch.project(new Var[]{z, y}) ;
+        assertEquals(2, batch2.width()) ;
+        assertEquals(3, batch2.selected()) ;
+        assertNull(batch2.get(0, z)) ;
+        assertNull(batch2.get(0, x)) ;
+        assertEquals(SSE.parseNode(":y0"), batch2.get(0, y)) ;
+    }
+
+    @Test public void batch_binding_01() {
+        BindingBatch batch = batch(2) ;
+        Binding b0 = batch.binding(0) ;
+        Binding b1 = batch.binding(1) ;
+        assertEquals(2, b0.size()) ;
+        assertEquals(1, b1.size()) ;
+        assertFalse(b1.contains(y)) ;
+        Node n = SSE.parseNode(":x1") ;
+        assertEquals(n, b1.get(x)) ;
+    }
+
+    @Test public void batch_row_01() {
+        BindingBatch batch = batch(2) ;
+        BindingBatchRow row = new BindingBatchRow().set(batch) ;
+        row.setRow(0) ;
+        assertEquals(2, row.size()) ;
+        assertEquals(batch.binding(0), batch.binding(0)) ;
+        row.setRow(1) ;
+        assertEquals(1, row.size()) ;
+        assertFalse(row.contains(y)) ;
+        assertTrue(row.contains(x)) ;
+    }
+}
@@ -99,6 +99,7 @@ public class TestBindingStreams extends BaseTest
     @Test public void bindingStream_50()        { testWriteRead(b12) ; }
     @Test public void bindingStream_51()        { testWriteRead(b0) ; }
     @Test public void bindingStream_52()        { testWriteRead(pmap, b12,x10,b19) ; }
+    @Test public void bindingStream_53()        { testWriteRead(b02, b12, b10, b19) ; }
     
     @Test public void bindingStream_60()              { testWriteRead(bb1) ; }
     
@@ -39,6 +39,10 @@ public class TestQueryEngineHTTP extends BaseTest {
         test(QueryEngineHTTP.defaultSelectHeader(), WebContent.contentTypeTextTSV) ;
     }
     
+    @Test public void selectHeader_04() {
+        test(QueryEngineHTTP.defaultSelectHeader(), WebContent.contentTypeResultsThrift) ;
+    }
+    
     @Test public void constructHeader_01() {
         test(QueryEngineHTTP.defaultConstructHeader(), WebContent.contentTypeTurtle) ;
     }
@@ -59,6 +63,10 @@ public class TestQueryEngineHTTP extends BaseTest {
         test(QueryEngineHTTP.defaultSelectHeader(), WebContent.contentTypeResultsXML) ;
     }
     
+    @Test public void askHeader_03() {
+        test(QueryEngineHTTP.defaultAskHeader(), WebContent.contentTypeResultsThrift) ;
+    }
+    
     private static void test(String header, String content) {
         assertTrue(header.contains(content)) ;
     }
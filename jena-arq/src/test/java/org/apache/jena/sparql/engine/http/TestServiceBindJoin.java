@@ -0,0 +1,180 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.http;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertFalse ;
+import static org.junit.Assert.assertTrue ;
+
+import java.util.ArrayList ;
+import java.util.Collections ;
+import java.util.List ;
+
+import org.apache.jena.atlas.lib.StrUtils ;
+import org.apache.jena.query.ARQ ;
+import org.apache.jena.query.Query ;
+import org.apache.jena.sparql.algebra.Algebra ;
+import org.apache.jena.sparql.algebra.Op ;
+import org.apache.jena.sparql.algebra.op.OpService ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.Substitute ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper ;
+import org.apache.jena.sparql.engine.main.iterator.QueryIterService ;
+import org.apache.jena.sparql.engine.main.iterator.QueryIterServiceBindJoin ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.sparql.util.Context ;
+import org.junit.Test ;
+
+public class TestServiceBindJoin
+{
+    private static final DatasetGraph remoteData = SSE.parseDatasetGraph(StrUtils.strjoinNL
+        ("(dataset"
+        ,"  (graph"
+        ,"    (:a :p 1) (:a :p 2) (:b :p 3) (:c :p 4)"
+        ,"    (:a :name 'A') (:b :name 'B') (:d :name 'D')"
+        ,"))")) ;
+
+    private static final String input = StrUtils.strjoinNL
+        ("(table"
+        ,"  (row [?s :a] [?x 10])"
+        ,"  (row [?s :a] [?x 11])"
+        ,"  (row [?s :b] [?x 12])"
+        ,"  (row [?s :c])"
+        ,"  (row [?s :z] [?x 13])"
+        ,"  (row [?x 14])"
+        ,")") ;
+
+    /** Evaluates the remote query locally, recording the queries. */
+    static class BindJoinLocal extends QueryIterServiceBindJoin
+    {
+        final List<Query> queries ;
+
+        BindJoinLocal(QueryIterator input, OpService opService, ExecutionContext execCxt, List<Query> queries) {
+            super(input, opService, execCxt) ;
+            this.queries = queries ;
+        }
+
+        @Override
+        protected QueryIterator remote(String serviceURI, Query query, Context context) {
+            queries.add(query) ;
+            List<Binding> rows = new ArrayList<>() ;
+            QueryIterator qIter = Algebra.exec(Algebra.compile(query), remoteData) ;
+            qIter.forEachRemaining(rows::add) ;
+            return new QueryIterPlainWrapper(rows.iterator()) ;
+        }
+    }
+
+    private static ExecutionContext execCxt(int batchSize, int concurrency) {
+        Context cxt = ARQ.getContext().copy() ;
+        cxt.set(Service.bindJoinBatchSize, batchSize) ;
+        cxt.set(Service.bindJoinConcurrency, concurrency) ;
+        return new ExecutionContext(cxt, remoteData.getDefaultGraph(), remoteData, null) ;
+    }
+
+    private static List<String> bindJoin(String opStr, int batchSize, int concurrency, List<Query> queries) {
+        OpService op = (OpService)SSE.parseOp(opStr) ;
+        ExecutionContext execCxt = execCxt(batchSize, concurrency) ;
+        QueryIterator in = SSE.parseTable(input).iterator(execCxt) ;
+        QueryIterator qIter = new BindJoinLocal(in, op, execCxt, queries) ;
+        List<String> results = new ArrayList<>() ;
+        qIter.forEachRemaining(b -> results.add(str(b))) ;
+        qIter.close() ;
+        Collections.sort(results) ;
+        return results ;
+    }
+
+    /** One substitution per binding, as {@link QueryIterService} does. */
+    private static List<String> perBinding(String opStr) {
+        OpService op = (OpService)SSE.parseOp(opStr) ;
+        List<String> results = new ArrayList<>() ;
+        SSE.parseTable(input).rows().forEachRemaining(b -> {
+            Op op2 = Substitute.substitute(op.getSubOp(), b) ;
+            Algebra.exec(op2, remoteData).forEachRemaining(r -> results.add(str(Algebra.merge(b, r)))) ;
+        }) ;
+        Collections.sort(results) ;
+        return results ;
+    }
+
+    private static void test(String opStr, int batchSize, int concurrency, int expectedRequests) {
+        List<Query> queries = Collections.synchronizedList(new ArrayList<>()) ;
+        List<String> expected = perBinding(opStr) ;
+        List<String> actual = bindJoin(opStr, batchSize, concurrency, queries) ;
+        assertEquals(expected, actual) ;
+        assertEquals(expectedRequests, queries.size()) ;
+    }
+
+    // Binding.toString order depends on the binding implementation.
+    private static String str(Binding binding) {
+        List<String> x = new ArrayList<>() ;
+        binding.vars().forEachRemaining(v -> x.add(v + "=" + binding.get(v))) ;
+        Collections.sort(x) ;
+        return x.toString() ;
+    }
+
+    private static final String service1 = "(service <http://example/sparql> (bgp (?s :p ?o)))" ;
+    private static final String service2 = "(service <http://example/sparql> (bgp (?s :p ?o) (?s :name ?n)))" ;
+    private static final String service3 = "(service <http://example/sparql> (union (bgp (?s :p ?o)) (bgp (?s :name ?n))))" ;
+    private static final String service4 = "(service <http://example/sparql> (project (?s ?o) (filter (> ?o 1) (bgp (?s :p ?o)))))" ;
+
+    @Test public void bindJoin_01() { test(service1, 100, 1, 1) ; }
+    @Test public void bindJoin_02() { test(service1, 2, 1, 3) ; }
+    @Test public void bindJoin_03() { test(service1, 2, 3, 3) ; }
+    @Test public void bindJoin_04() { test(service2, 100, 1, 1) ; }
+    @Test public void bindJoin_05() { test(service3, 4, 2, 2) ; }
+    @Test public void bindJoin_06() { test(service4, 3, 2, 2) ; }
+
+    @Test public void bindJoin_07() {
+        // No matches.
+        test("(service <http://example/sparql> (bgp (?s :q ?o)))", 10, 1, 1) ;
+    }
+
+    @Test public void bindJoinSafe_01() {
+        assertTrue(QueryIterServiceBindJoin.isJoinSafe(SSE.parseOp("(bgp (?s :p ?o))"))) ;
+        assertTrue(QueryIterServiceBindJoin.isJoinSafe(SSE.parseOp("(distinct (project (?s) (bgp (?s :p ?o))))"))) ;
+        assertTrue(QueryIterServiceBindJoin.isJoinSafe(SSE.parseOp("(filter (= ?o 1) (bgp (?s :p ?o)))"))) ;
+    }
+
+    @Test public void bindJoinSafe_02() {
+        // Filter on a variable not from the pattern.
+        assertFalse(QueryIterServiceBindJoin.isJoinSafe(SSE.parseOp("(filter (= ?x 1) (bgp (?s :p ?o)))"))) ;
+        assertFalse(QueryIterServiceBindJoin.isJoinSafe(SSE.parseOp("(slice _ 1 (bgp (?s :p ?o)))"))) ;
+        assertFalse(QueryIterServiceBindJoin.isJoinSafe(SSE.parseOp("(leftjoin (bgp (?s :p ?o)) (bgp (?s :q ?z)))"))) ;
+        assertFalse(QueryIterServiceBindJoin.isJoinSafe(SSE.parseOp("(group (?s) ((?c (count))) (bgp (?s :p ?o)))"))) ;
+    }
+
+    @Test public void bindJoinCreate_01() {
+        OpService op = (OpService)SSE.parseOp(service1) ;
+        ExecutionContext execCxt = execCxt(10, 1) ;
+        QueryIterator qIter = QueryIterServiceBindJoin.create(SSE.parseTable(input).iterator(execCxt), op, execCxt) ;
+        assertTrue(qIter instanceof QueryIterServiceBindJoin) ;
+        qIter.close() ;
+    }
+
+    @Test public void bindJoinCreate_02() {
+        // Not enabled.
+        OpService op = (OpService)SSE.parseOp(service1) ;
+        ExecutionContext execCxt = execCxt(0, 1) ;
+        QueryIterator qIter = QueryIterServiceBindJoin.create(SSE.parseTable(input).iterator(execCxt), op, execCxt) ;
+        assertTrue(qIter instanceof QueryIterService) ;
+        qIter.close() ;
+    }
+}
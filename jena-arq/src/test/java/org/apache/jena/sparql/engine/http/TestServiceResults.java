@@ -0,0 +1,196 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.http;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertFalse ;
+import static org.junit.Assert.assertNotNull ;
+import static org.junit.Assert.assertNull ;
+import static org.junit.Assert.assertTrue ;
+
+import java.io.ByteArrayInputStream ;
+import java.io.ByteArrayOutputStream ;
+import java.io.InputStream ;
+import java.util.ArrayList ;
+import java.util.Collections ;
+import java.util.List ;
+import java.util.concurrent.* ;
+
+import org.apache.jena.query.QueryCancelledException ;
+import org.apache.jena.query.QueryExecException ;
+import org.apache.jena.query.ResultSet ;
+import org.apache.jena.query.ResultSetFactory ;
+import org.apache.jena.riot.Lang ;
+import org.apache.jena.riot.ResultSetMgr ;
+import org.apache.jena.riot.WebContent ;
+import org.apache.jena.riot.resultset.ResultSetLang ;
+import org.apache.jena.sparql.algebra.Table ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.ResultSetStream ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.binding.BindingFactory ;
+import org.apache.jena.sparql.resultset.ResultSetCompare ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.sparql.util.NodeFactoryExtra ;
+import org.junit.Test ;
+
+public class TestServiceResults
+{
+    private static final Table table = SSE.parseTable
+        ("(table (row [?s :a] [?o 1]) (row [?s :b] [?o 'abc'@en]) (row [?s _:b0]) (row [?o \"x\\ty\"]))") ;
+
+    private static ResultSet resultSet(Table table) {
+        return ResultSetFactory.create(table.iterator(null), Var.varNames(table.getVars())) ;
+    }
+
+    private static byte[] write(Lang lang) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        ResultSetMgr.write(out, resultSet(table), lang) ;
+        return out.toByteArray() ;
+    }
+
+    private static void testRead(Lang lang, String contentType) {
+        InputStream in = new ByteArrayInputStream(write(lang)) ;
+        ResultSet rs = Service.readResults(in, contentType) ;
+        assertTrue(ResultSetCompare.equalsByTerm(resultSet(table), rs)) ;
+    }
+
+    @Test public void service_read_01() { testRead(ResultSetLang.SPARQLResultSetXML, WebContent.contentTypeResultsXML) ; }
+    @Test public void service_read_02() { testRead(ResultSetLang.SPARQLResultSetXML, null) ; }
+    @Test public void service_read_03() { testRead(ResultSetLang.SPARQLResultSetJSON, WebContent.contentTypeResultsJSON) ; }
+    @Test public void service_read_04() { testRead(ResultSetLang.SPARQLResultSetTSV, WebContent.contentTypeTextTSV) ; }
+    @Test public void service_read_05() { testRead(ResultSetLang.SPARQLResultSetThrift, WebContent.contentTypeResultsThrift) ; }
+    @Test public void service_read_06() { testRead(ResultSetLang.SPARQLResultSetJSON, WebContent.contentTypeJSON) ; }
+
+    @Test public void service_read_08() { testRead(ResultSetLang.SPARQLResultSetXML, WebContent.contentTypeXMLAlt) ; }
+    @Test public void service_read_09() { testRead(ResultSetLang.SPARQLResultSetXML, WebContent.contentTypeTextPlain) ; }
+
+    @Test(expected=QueryExecException.class)
+    public void service_read_07() {
+        // CSV loses the kinds of terms.
+        testRead(ResultSetLang.SPARQLResultSetCSV, WebContent.contentTypeTextCSV) ;
+    }
+
+    @Test public void service_accept_01() {
+        String accept = Service.defaultAcceptHeader() ;
+        assertTrue(accept.startsWith(WebContent.contentTypeResultsThrift)) ;
+        assertTrue(accept.contains(WebContent.contentTypeResultsXML)) ;
+    }
+
+    private static ResultSet rows(int n) {
+        List<Binding> rows = new ArrayList<>() ;
+        Var v = Var.alloc("x") ;
+        for ( int i = 0 ; i < n ; i++ )
+            rows.add(BindingFactory.binding(v, NodeFactoryExtra.intToNode(i))) ;
+        return new ResultSetStream(Var.varNames(Collections.singletonList(v)), null, rows.iterator()) ;
+    }
+
+    @Test public void service_stream_01() {
+        QueryIterator qIter = new QueryIterServiceStream(rows(1000), new ByteArrayInputStream(new byte[0]), 10) ;
+        int count = 0 ;
+        while ( qIter.hasNext() ) {
+            Binding b = qIter.next() ;
+            assertEquals(count, NodeFactoryExtra.nodeToInt(b.get(Var.alloc("x")))) ;
+            count++ ;
+        }
+        qIter.close() ;
+        assertEquals(1000, count) ;
+    }
+
+    @Test public void service_stream_02() {
+        // Close before the end.
+        QueryIterator qIter = new QueryIterServiceStream(rows(1000), new ByteArrayInputStream(new byte[0]), 5) ;
+        assertTrue(qIter.hasNext()) ;
+        qIter.next() ;
+        qIter.close() ;
+        assertFalse(qIter.hasNext()) ;
+    }
+
+    @Test(expected=QueryExecException.class)
+    public void service_stream_03() {
+        ResultSet rs = new ResultSetStream(Collections.singletonList("x"), null, new java.util.Iterator<Binding>() {
+            int i = 0 ;
+            @Override public boolean hasNext() { return true ; }
+            @Override public Binding next() {
+                if ( ++i > 3 ) throw new QueryExecException("Bad results") ;
+                return BindingFactory.binding() ;
+            }
+        }) ;
+        QueryIterator qIter = new QueryIterServiceStream(rs, new ByteArrayInputStream(new byte[0]), 2) ;
+        while ( qIter.hasNext() )
+            qIter.next() ;
+    }
+
+    // Results that do not arrive until the latch is released.
+    private static ResultSet blocked(CountDownLatch latch) {
+        return new ResultSetStream(Collections.singletonList("x"), null, new java.util.Iterator<Binding>() {
+            @Override public boolean hasNext() {
+                try { latch.await() ; } catch (InterruptedException ex) {}
+                return false ;
+            }
+            @Override public Binding next() { throw new java.util.NoSuchElementException() ; }
+        }) ;
+    }
+
+    private static void testBlocked(boolean cancel, Class<?> expected) throws Exception {
+        CountDownLatch latch = new CountDownLatch(1) ;
+        try {
+            QueryIterator qIter = new QueryIterServiceStream(blocked(latch), new ByteArrayInputStream(new byte[0]), 2) ;
+            ExecutorService executor = Executors.newSingleThreadExecutor() ;
+            try {
+                Future<Boolean> f = executor.submit(qIter::hasNext) ;
+                // Let the consumer block waiting for a row.
+                Thread.sleep(200) ;
+                if ( cancel )
+                    qIter.cancel() ;
+                else
+                    qIter.close() ;
+                try {
+                    boolean b = f.get(5, TimeUnit.SECONDS) ;
+                    assertNull(expected) ;
+                    assertFalse(b) ;
+                } catch (ExecutionException ex) {
+                    assertNotNull(expected) ;
+                    assertTrue(expected.isInstance(ex.getCause())) ;
+                }
+            } finally { executor.shutdownNow() ; }
+        } finally { latch.countDown() ; }
+    }
+
+    @Test public void service_stream_04() throws Exception {
+        // Cancel while the consumer is waiting.
+        testBlocked(true, QueryCancelledException.class) ;
+    }
+
+    @Test public void service_stream_05() throws Exception {
+        // Close while the consumer is waiting.
+        testBlocked(false, null) ;
+    }
+
+    @Test(expected=Error.class)
+    public void service_stream_06() {
+        ResultSet rs = new ResultSetStream(Collections.singletonList("x"), null, new java.util.Iterator<Binding>() {
+            @Override public boolean hasNext() { throw new Error("Reader error") ; }
+            @Override public Binding next() { return null ; }
+        }) ;
+        QueryIterator qIter = new QueryIterServiceStream(rs, new ByteArrayInputStream(new byte[0]), 2) ;
+        qIter.hasNext() ;
+    }
+}
@@ -28,6 +28,8 @@ import org.junit.runners.Suite ;
     , TestDistinctDataBag.class 
     , TestDistinctDataBagLimited.class 
     , TestCancelDistinct.class
+    , TestQueryIterGroupParallel.class
+    , TestQueryIterGroupSpill.class
 })
 public class TS_QueryIterators {
 
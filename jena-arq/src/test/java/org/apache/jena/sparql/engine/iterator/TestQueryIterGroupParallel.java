@@ -0,0 +1,87 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.iterator;
+
+import static org.junit.Assert.assertTrue ;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype ;
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.query.* ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.DatasetGraphFactory ;
+import org.apache.jena.sparql.resultset.ResultSetCompare ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** Parallel GROUP BY and parallel hash joins give the same results as serial execution. */
+public class TestQueryIterGroupParallel
+{
+    private static final String PREFIX = "PREFIX : <http://example/> " ;
+    private static Dataset dataset ;
+
+    @BeforeClass public static void beforeClass() {
+        DatasetGraph dsg = DatasetGraphFactory.create() ;
+        Graph graph = dsg.getDefaultGraph() ;
+        Node p = SSE.parseNode(":p") ;
+        Node q = SSE.parseNode(":q") ;
+        for ( int i = 0 ; i < 3000 ; i++ ) {
+            Node s = SSE.parseNode(":s"+i) ;
+            graph.add(Triple.create(s, p, NodeFactory.createLiteral(Integer.toString(i), XSDDatatype.XSDinteger))) ;
+            if ( i % 7 != 0 )
+                graph.add(Triple.create(s, q, SSE.parseNode(":o"+(i%37)))) ;
+        }
+        dataset = DatasetFactory.wrap(dsg) ;
+    }
+
+    @Test public void group_parallel_1() { test("SELECT ?o (count(*) AS ?c) (sum(?v) AS ?t) { ?s :q ?o ; :p ?v } GROUP BY ?o") ; }
+    @Test public void group_parallel_2() { test("SELECT (count(*) AS ?c) (avg(?v) AS ?a) { ?s :p ?v }") ; }
+    @Test public void group_parallel_3() { test("SELECT (count(*) AS ?c) { ?s :nothing ?v }") ; }
+    @Test public void group_parallel_4() { test("SELECT ?o { ?s :q ?o } GROUP BY ?o") ; }
+    @Test public void group_parallel_5() { test("SELECT ?o { ?s :nothing ?o } GROUP BY ?o") ; }
+    @Test public void group_parallel_6() { test("SELECT ?o (group_concat(?v) AS ?g) (sample(?v) AS ?x) { ?s :q ?o ; :p ?v } GROUP BY ?o") ; }
+    @Test public void group_parallel_7() { test("SELECT ?o (count(DISTINCT ?v) AS ?c) (max(?v) AS ?m) { ?s :p ?v OPTIONAL { ?s :q ?o } } GROUP BY ?o") ; }
+    @Test public void group_parallel_8() { test("SELECT ?k (count(*) AS ?c) { ?s :p ?v } GROUP BY (?v/100 AS ?k)") ; }
+    @Test public void group_parallel_9() { test("SELECT ?o (count(*) AS ?c) { ?s :q ?o FILTER EXISTS { ?s :p ?v } } GROUP BY ?o") ; }
+
+    @Test public void join_parallel_1()  { test("SELECT * { ?s :p ?v OPTIONAL { ?s :q ?o } }") ; }
+    @Test public void join_parallel_2()  { test("SELECT * { ?s :p ?v OPTIONAL { ?s :q ?o FILTER(?v > 10) } }") ; }
+    @Test public void join_parallel_3()  { test("SELECT * { { ?s :p ?v } { SELECT ?s { ?s :q ?o } } }") ; }
+
+    private static void test(String queryString) {
+        Query query = QueryFactory.create(PREFIX+queryString) ;
+        ResultSetRewindable expected ;
+        try ( QueryExecution qExec = QueryExecutionFactory.create(query, dataset) ) {
+            expected = ResultSetFactory.copyResults(qExec.execSelect()) ;
+        }
+        ResultSetRewindable actual ;
+        try ( QueryExecution qExec = QueryExecutionFactory.create(query, dataset) ) {
+            qExec.getContext().set(ARQ.parallelGroupBy, true) ;
+            qExec.getContext().set(ARQ.parallelHashJoin, true) ;
+            qExec.getContext().set(ARQ.parallelism, 4) ;
+            // No index join: OPTIONAL and join become hash joins.
+            qExec.getContext().set(ARQ.optIndexJoinStrategy, false) ;
+            actual = ResultSetFactory.copyResults(qExec.execSelect()) ;
+        }
+        assertTrue("Different results: "+queryString, ResultSetCompare.equalsByTerm(expected, actual)) ;
+    }
+}
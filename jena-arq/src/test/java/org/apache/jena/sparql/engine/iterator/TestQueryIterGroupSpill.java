@@ -0,0 +1,137 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.iterator;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertTrue ;
+
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.List ;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype ;
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.query.* ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.DatasetGraphFactory ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.core.VarExprList ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.binding.BindingFactory ;
+import org.apache.jena.sparql.expr.ExprAggregator ;
+import org.apache.jena.sparql.expr.aggregate.AggCount ;
+import org.apache.jena.sparql.resultset.ResultSetCompare ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.sparql.util.Context ;
+import org.apache.jena.sparql.util.Symbol ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** GROUP BY and hash joins that spill to disk give the same results as in-memory execution. */
+public class TestQueryIterGroupSpill
+{
+    private static final String PREFIX = "PREFIX : <http://example/> " ;
+    private static Dataset dataset ;
+
+    @BeforeClass public static void beforeClass() {
+        DatasetGraph dsg = DatasetGraphFactory.create() ;
+        Graph graph = dsg.getDefaultGraph() ;
+        Node p = SSE.parseNode(":p") ;
+        Node q = SSE.parseNode(":q") ;
+        for ( int i = 0 ; i < 3000 ; i++ ) {
+            Node s = SSE.parseNode(":s"+i) ;
+            graph.add(Triple.create(s, p, NodeFactory.createLiteral(Integer.toString(i), XSDDatatype.XSDinteger))) ;
+            if ( i % 7 != 0 )
+                graph.add(Triple.create(s, q, SSE.parseNode(":o"+(i%37)))) ;
+        }
+        dataset = DatasetFactory.wrap(dsg) ;
+    }
+
+    @Test public void group_spill_1() { test("SELECT ?o (count(*) AS ?c) (sum(?v) AS ?t) { ?s :q ?o ; :p ?v } GROUP BY ?o") ; }
+    @Test public void group_spill_2() { test("SELECT (count(*) AS ?c) (avg(?v) AS ?a) { ?s :p ?v }") ; }
+    @Test public void group_spill_3() { test("SELECT (count(*) AS ?c) { ?s :nothing ?v }") ; }
+    @Test public void group_spill_4() { test("SELECT ?o { ?s :q ?o } GROUP BY ?o") ; }
+    @Test public void group_spill_5() { test("SELECT ?o { ?s :nothing ?o } GROUP BY ?o") ; }
+    @Test public void group_spill_6() { test("SELECT ?o (group_concat(?v) AS ?g) { ?s :q ?o ; :p ?v } GROUP BY ?o") ; }
+    @Test public void group_spill_7() { test("SELECT ?o (count(DISTINCT ?v) AS ?c) (max(?v) AS ?m) { ?s :p ?v OPTIONAL { ?s :q ?o } } GROUP BY ?o") ; }
+    @Test public void group_spill_8() { test("SELECT ?k (count(*) AS ?c) { ?s :p ?v } GROUP BY (?v/100 AS ?k)") ; }
+    @Test public void group_spill_9() { test("SELECT ?s (count(*) AS ?c) { ?s :p ?v } GROUP BY ?s") ; }
+
+    @Test public void join_spill_1()  { test("SELECT * { ?s :p ?v OPTIONAL { ?s :q ?o } }") ; }
+    @Test public void join_spill_2()  { test("SELECT * { ?s :p ?v OPTIONAL { ?s :q ?o FILTER(?v > 10) } }") ; }
+    @Test public void join_spill_3()  { test("SELECT * { { ?s :p ?v } { SELECT ?s { ?s :q ?o } } }") ; }
+
+    @Test public void group_spill_parallel_1() { testParallel(ARQ.spillToDiskThreshold, 5) ; }
+    @Test public void group_spill_parallel_2() { testParallel(ARQ.spillToDiskBudget, 20) ; }
+
+    // With parallel GROUP BY on, a threshold or budget still spills.
+    private static void testParallel(Symbol symbol, long limit) {
+        Var o = Var.alloc("o") ;
+        Var c = Var.alloc("c") ;
+        List<Binding> rows = new ArrayList<>() ;
+        for ( int i = 0 ; i < 3000 ; i++ )
+            rows.add(BindingFactory.binding(o, SSE.parseNode(":o"+(i%37)))) ;
+        Context cxt = ARQ.getContext().copy() ;
+        cxt.set(ARQ.parallelGroupBy, true) ;
+        cxt.set(ARQ.parallelism, 4) ;
+        cxt.set(symbol, limit) ;
+        ExecutionContext execCxt = new ExecutionContext(cxt, null, null, null) ;
+        List<ExprAggregator> aggregators = new ArrayList<>() ;
+        aggregators.add(new ExprAggregator(c, new AggCount())) ;
+        QueryIterGroup iter = new QueryIterGroup(new QueryIterPlainWrapper(rows.iterator(), execCxt),
+                                                 new VarExprList(Arrays.asList(o)), aggregators, execCxt) ;
+        int groups = 0 ;
+        long total = 0 ;
+        while ( iter.hasNext() ) {
+            Binding b = iter.next() ;
+            groups++ ;
+            total += ((Number)b.get(c).getLiteralValue()).longValue() ;
+        }
+        assertTrue(iter.hasSpilled()) ;
+        iter.close() ;
+        assertEquals(37, groups) ;
+        assertEquals(3000, total) ;
+    }
+
+    private static void test(String queryString) {
+        Query query = QueryFactory.create(PREFIX+queryString) ;
+        ResultSetRewindable expected ;
+        try ( QueryExecution qExec = QueryExecutionFactory.create(query, dataset) ) {
+            expected = ResultSetFactory.copyResults(qExec.execSelect()) ;
+        }
+        test(query, expected, ARQ.spillToDiskThreshold, 5) ;
+        test(query, expected, ARQ.spillToDiskBudget, 20) ;
+    }
+
+    private static void test(Query query, ResultSetRewindable expected, Symbol symbol, long limit) {
+        ResultSetRewindable actual ;
+        try ( QueryExecution qExec = QueryExecutionFactory.create(query, dataset) ) {
+            qExec.getContext().set(symbol, limit) ;
+            // No index join: OPTIONAL and join become hash joins.
+            qExec.getContext().set(ARQ.optIndexJoinStrategy, false) ;
+            actual = ResultSetFactory.copyResults(qExec.execSelect()) ;
+        }
+        expected.reset() ;
+        assertTrue("Different results: "+symbol+" "+query, ResultSetCompare.equalsByTerm(expected, actual)) ;
+    }
+}
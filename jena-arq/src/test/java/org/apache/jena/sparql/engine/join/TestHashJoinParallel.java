@@ -0,0 +1,89 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.engine.join;
+
+import java.util.ArrayList ;
+import java.util.List ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.ext.com.google.common.collect.HashMultiset ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.query.ARQ ;
+import org.apache.jena.sparql.algebra.Table ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.binding.BindingFactory ;
+import org.apache.jena.sparql.engine.binding.BindingMap ;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper ;
+import org.apache.jena.sparql.expr.ExprList ;
+import org.apache.jena.sparql.util.Context ;
+import org.junit.Test ;
+
+/** Hash join with parallel build and probe */
+public class TestHashJoinParallel extends AbstractTestInnerJoin {
+
+    /** Execution context with parallel hash joins enabled. */
+    static ExecutionContext parallelExecCxt() {
+        Context cxt = new Context() ;
+        cxt.set(ARQ.parallelHashJoin, true) ;
+        cxt.set(ARQ.parallelGroupBy, true) ;
+        cxt.set(ARQ.parallelism, 4) ;
+        return new ExecutionContext(cxt, null, null, null) ;
+    }
+
+    @Override
+    public QueryIterator join(JoinKey joinKey, Table left, Table right, ExprList conditions) {
+        return Join.hashJoin(joinKey, left.iterator(null), right.iterator(null), parallelExecCxt()) ;
+    }
+
+    private static Var a = Var.alloc("a") ;
+    private static Var b = Var.alloc("b") ;
+    private static Var c = Var.alloc("c") ;
+
+    // Rows (?a i%mod) (?v i) with ?a missing for every 50th row.
+    private static List<Binding> rows(int n, int mod, Var v) {
+        List<Binding> rows = new ArrayList<>(n) ;
+        for ( int i = 0 ; i < n ; i++ ) {
+            BindingMap row = BindingFactory.create() ;
+            if ( i % 50 != 0 )
+                row.add(a, NodeFactory.createLiteral("a"+(i%mod))) ;
+            row.add(v, NodeFactory.createLiteral("v"+i)) ;
+            rows.add(row) ;
+        }
+        return rows ;
+    }
+
+    private static void testLarge(JoinKey joinKey) {
+        List<Binding> left = rows(1500, 97, b) ;
+        List<Binding> right = rows(1100, 89, c) ;
+        ExecutionContext execCxt = parallelExecCxt() ;
+        QueryIterator qIter1 = Join.nestedLoopJoinBasic(new QueryIterPlainWrapper(left.iterator()), new QueryIterPlainWrapper(right.iterator()), null) ;
+        QueryIterator qIter2 = Join.hashJoin(joinKey, new QueryIterPlainWrapper(left.iterator()), new QueryIterPlainWrapper(right.iterator()), execCxt) ;
+        HashMultiset<Binding> expected = HashMultiset.create(Iter.toList(qIter1)) ;
+        HashMultiset<Binding> actual = HashMultiset.create(Iter.toList(qIter2)) ;
+        assertEquals(expected.size(), actual.size()) ;
+        assertEquals(expected, actual) ;
+    }
+
+    @Test public void join_parallel_large_1() { testLarge(JoinKey.create(a)) ; }
+    @Test public void join_parallel_large_2() { testLarge(JoinKey.create(b)) ; }
+    @Test public void join_parallel_large_3() { testLarge(null) ; }
+}
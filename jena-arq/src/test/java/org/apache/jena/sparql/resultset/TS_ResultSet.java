@@ -26,6 +26,7 @@ import org.junit.runners.Suite ;
     TestResultSet.class
     , TestResultSetFormat1.class
     , TestResultSetFormat2.class
+    , TestResultSetWriters.class
     //, TestResultSetCompare.class
 })
 public class TS_ResultSet
@@ -0,0 +1,198 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.resultset;
+
+import static org.junit.Assert.assertEquals ;
+
+import java.io.ByteArrayOutputStream ;
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.List ;
+import java.util.function.BiConsumer ;
+
+import org.apache.jena.atlas.io.AWriter ;
+import org.apache.jena.atlas.io.IO ;
+import org.apache.jena.atlas.lib.StrUtils ;
+import org.apache.jena.datatypes.xsd.XSDDatatype ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.query.ResultSet ;
+import org.apache.jena.rdf.model.ModelFactory ;
+import org.apache.jena.riot.out.NodeFormatterTTL ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.ResultSetStream ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.binding.BindingFactory ;
+import org.apache.jena.sparql.engine.binding.BindingMap ;
+import org.junit.Test ;
+
+/**
+ * The result set writers working on bindings ({@link JSONOutput}, {@link XMLOutput},
+ * {@link TSVOutput}) produce the same bytes as the {@link ResultSetProcessor}
+ * writers and the term-by-term TSV writer.
+ */
+public class TestResultSetWriters
+{
+    private static Node bnode1 = NodeFactory.createBlankNode() ;
+    private static Node bnode2 = NodeFactory.createBlankNode() ;
+
+    private static Node[] terms = {
+        NodeFactory.createURI("http://example/s"),
+        NodeFactory.createURI("http://example/a&b<c>?x=\"1\""),
+        NodeFactory.createURI("http://example/\u00E9\u4E2D"),
+        NodeFactory.createLiteral("abc"),
+        NodeFactory.createLiteral(""),
+        NodeFactory.createLiteral("quote\" back\\slash </script> a/b"),
+        NodeFactory.createLiteral("tab\t nl\n cr\r ff\f bs\b nul\u0000 us\u001F del\u007F"),
+        NodeFactory.createLiteral("\u0080\u009F\u00A0 \u2000\u2028\u20FF\u2100"),
+        NodeFactory.createLiteral("xml & < > ]]>"),
+        NodeFactory.createLiteral("\u00E9 \u4E2D\u6587 \uD83D\uDE00"),
+        NodeFactory.createLiteral("hello", "en"),
+        NodeFactory.createLiteral("bonjour", "fr-CA"),
+        NodeFactory.createLiteral("123", XSDDatatype.XSDinteger),
+        NodeFactory.createLiteral("1.5e0", XSDDatatype.XSDdouble),
+        NodeFactory.createLiteral("explicit", XSDDatatype.XSDstring),
+        NodeFactory.createLiteral("x", NodeFactory.getType("http://example/dt?a&b")),
+        bnode1,
+        bnode2,
+    } ;
+
+    @Test public void resultsEmpty()        { test(vars("a", "b")) ; }
+    @Test public void resultsNoVars()       { test(vars(), row()) ; }
+    @Test public void resultsEmptyRow()     { test(vars("a"), row()) ; }
+    @Test public void resultsOneRow()       { test(vars("a"), row(terms[0])) ; }
+
+    @Test public void resultsUnbound() {
+        test(vars("a", "b", "c"),
+             row(terms[0], null, terms[3]),
+             row(null, terms[10], null),
+             row(null, null, null)) ;
+    }
+
+    @Test public void resultsTerms() {
+        // Each term, in each column, more than once.
+        List<String> vars = vars("a", "b", "c") ;
+        List<Binding> rows = new ArrayList<>() ;
+        for ( int i = 0 ; i < 2*terms.length ; i++ ) {
+            Node[] row = new Node[3] ;
+            for ( int j = 0 ; j < 3 ; j++ )
+                row[j] = terms[(i+j) % terms.length] ;
+            rows.add(row(row)) ;
+        }
+        test(vars, rows.toArray(new Binding[0])) ;
+    }
+
+    @Test public void resultsVarNames() {
+        // Variables not in the order of the bindings.
+        Binding b = BindingFactory.binding(Var.alloc("\u00E9"), terms[5]) ;
+        test(vars("b", "\u00E9", "a"), row(terms[3], terms[4]), b) ;
+    }
+
+    @Test public void resultsLarge() {
+        // More than the buffer.
+        List<Binding> rows = new ArrayList<>() ;
+        for ( int i = 0 ; i < 5000 ; i++ )
+            rows.add(row(NodeFactory.createURI("http://example/s"+(i%100)),
+                         NodeFactory.createLiteral("Value \u00E9 "+i),
+                         terms[i % terms.length])) ;
+        test(vars("a", "b", "c"), rows.toArray(new Binding[0])) ;
+    }
+
+    @Test public void resultsLongLiteral() {
+        StringBuilder sb = new StringBuilder() ;
+        for ( int i = 0 ; i < 100000 ; i++ )
+            sb.append((char)('a'+(i%26))).append( i%1000 == 0 ? "\n\u00E9<\"" : "") ;
+        Node lit = NodeFactory.createLiteral(sb.toString()) ;
+        Node uri = NodeFactory.createURI("http://example/"+sb.toString().replaceAll("[\n<\"]", "")) ;
+        test(vars("a", "b"), row(lit, uri), row(uri, lit)) ;
+    }
+
+    private static void test(List<String> vars, Binding... rows) {
+        List<Binding> x = Arrays.asList(rows) ;
+        same(vars, x, (out, rs) -> new ResultSetApply(rs, new JSONOutputResultSet(out)).apply(),
+                      (out, rs) -> new JSONOutput().format(out, rs)) ;
+        same(vars, x, (out, rs) -> new ResultSetApply(rs, new XMLOutputResultSet(out)).apply(),
+                      (out, rs) -> new XMLOutput().format(out, rs)) ;
+        same(vars, x, (out, rs) -> {
+                          XMLOutputResultSet xOut = new XMLOutputResultSet(out) ;
+                          xOut.setStylesheetURL("http://example/style.xsl") ;
+                          xOut.setXmlInst(false) ;
+                          new ResultSetApply(rs, xOut).apply() ;
+                      },
+                      (out, rs) -> new XMLOutput(false, "http://example/style.xsl").format(out, rs)) ;
+        same(vars, x, TestResultSetWriters::tsv,
+                      (out, rs) -> new TSVOutput().format(out, rs)) ;
+    }
+
+    private static void same(List<String> vars, List<Binding> rows,
+                             BiConsumer<ByteArrayOutputStream, ResultSet> expected,
+                             BiConsumer<ByteArrayOutputStream, ResultSet> actual) {
+        ByteArrayOutputStream out1 = new ByteArrayOutputStream() ;
+        expected.accept(out1, resultSet(vars, rows)) ;
+        ByteArrayOutputStream out2 = new ByteArrayOutputStream() ;
+        actual.accept(out2, resultSet(vars, rows)) ;
+        assertEquals(StrUtils.fromUTF8bytes(out1.toByteArray()), StrUtils.fromUTF8bytes(out2.toByteArray())) ;
+        assertEquals(out1.size(), out2.size()) ;
+    }
+
+    // Term by term TSV.
+    private static void tsv(ByteArrayOutputStream out, ResultSet rs) {
+        NodeFormatterTTL formatter = new NodeFormatterTTL(null, null) ;
+        AWriter w = IO.wrapUTF8(out) ;
+        String sep = "" ;
+        for ( String v : rs.getResultVars() ) {
+            w.write(sep) ;
+            w.write(Var.alloc(v).toString()) ;
+            sep = "\t" ;
+        }
+        w.write("\n") ;
+        while ( rs.hasNext() ) {
+            Binding b = rs.nextBinding() ;
+            sep = "" ;
+            for ( String v : rs.getResultVars() ) {
+                w.write(sep) ;
+                sep = "\t" ;
+                Node n = b.get(Var.alloc(v)) ;
+                if ( n != null )
+                    formatter.format(w, n) ;
+            }
+            w.write("\n") ;
+        }
+        w.flush() ;
+    }
+
+    private static ResultSet resultSet(List<String> vars, List<Binding> rows) {
+        return new ResultSetStream(vars, ModelFactory.createDefaultModel(), rows.iterator()) ;
+    }
+
+    private static List<String> vars(String... vars) {
+        return Arrays.asList(vars) ;
+    }
+
+    // Columns, in order, are the variables of the test.
+    private static Binding row(Node... nodes) {
+        String[] names = { "a", "b", "c" } ;
+        BindingMap b = BindingFactory.create() ;
+        for ( int i = 0 ; i < nodes.length ; i++ ) {
+            if ( nodes[i] != null )
+                b.add(Var.alloc(names[i]), nodes[i]) ;
+        }
+        return b ;
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.sparql.solver;
+
+import java.io.ByteArrayOutputStream ;
+import java.util.Arrays ;
+
+import org.apache.jena.atlas.junit.BaseTest ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.BasicPattern ;
+import org.apache.jena.sparql.engine.optimizer.NumericHistogram ;
+import org.apache.jena.sparql.engine.optimizer.StatsCatalog ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderCostBased ;
+import org.apache.jena.sparql.sse.Item ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.junit.Test ;
+
+public class TestReorderCostBased extends BaseTest
+{
+    private static String catalogStr = String.join("\n",
+        "(catalog",
+        "  (meta (count 4310) (subjects 1000) (objects 3000))",
+        "  (predicate rdf:type (count 1000) (subjects 1000) (objects 3))",
+        "  (predicate :name (count 1000) (subjects 1000) (objects 990))",
+        "  (predicate :email (count 10) (subjects 10) (objects 10))",
+        "  (predicate :p (count 1000) (subjects 1000) (objects 1000))",
+        "  (predicate :q (count 500) (subjects 500) (objects 500))",
+        "  (predicate :r (count 800) (subjects 500) (objects 800))",
+        "  (predicate :age (count 1000) (subjects 1000) (objects 100)",
+        "     (histogram (bounds 0.0 50.0 99.0) (counts 500 500)))",
+        "  (type :Person 990)",
+        "  (type :Rare 2)",
+        "  (cset 500 (:p 500) (:q 500))",
+        "  (cset 500 (:p 500) (:r 800))",
+        ")") ;
+
+    private static StatsCatalog catalog()
+    {
+        String s1 = "(prefix ((: <http://example/>) (rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>)) " ;
+        Item item = SSE.parse(s1+catalogStr+")") ;
+        return StatsCatalog.parse(item) ;
+    }
+
+    @Test public void catalog_01()
+    {
+        StatsCatalog catalog = catalog() ;
+        assertEquals(4310, catalog.getCount()) ;
+        assertEquals(7, catalog.getPredicates().size()) ;
+        assertEquals(2, catalog.getCharacteristicSets().size()) ;
+        assertEquals(2, catalog.getTypes().get(SSE.parseNode(":Rare")).longValue()) ;
+        assertEquals(500, catalog.getPredicate(SSE.parseNode(":q")).getCount()) ;
+        assertNotNull(catalog.getPredicate(SSE.parseNode(":age")).getHistogram()) ;
+    }
+
+    @Test public void catalog_02()
+    {
+        // Write and read back.
+        StatsCatalog catalog = catalog() ;
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        catalog.write(out) ;
+        StatsCatalog catalog2 = StatsCatalog.parse(SSE.parse(out.toString())) ;
+        assertEquals(catalog.format(), catalog2.format()) ;
+    }
+
+    @Test public void catalog_03()
+    {
+        StatsCatalog catalog = catalog() ;
+        Node p = SSE.parseNode(":p") ;
+        Node q = SSE.parseNode(":q") ;
+        Node r = SSE.parseNode(":r") ;
+        assertEquals(1000, catalog.estimateStar(Arrays.asList(p)), 0.01) ;
+        assertEquals(500, catalog.estimateStar(Arrays.asList(p, q)), 0.01) ;
+        assertEquals(800, catalog.estimateStar(Arrays.asList(p, r)), 0.01) ;
+        assertEquals(0, catalog.estimateStar(Arrays.asList(q, r)), 0.01) ;
+    }
+
+    @Test public void histogram_01()
+    {
+        double[] sample = new double[100] ;
+        for ( int i = 0 ; i < 100 ; i++ )
+            sample[i] = 99-i ;
+        NumericHistogram h = NumericHistogram.build(sample, 1000, 4) ;
+        assertEquals(0, h.getMin(), 0) ;
+        assertEquals(99, h.getMax(), 0) ;
+        assertTrue(h.contains(50)) ;
+        assertFalse(h.contains(100)) ;
+        assertEquals(1000, h.estimateRange(0, 99), 0.01) ;
+        assertEquals(500, h.estimateRange(0, 49.5), 20) ;
+        assertEquals(0, h.estimateRange(200, 300), 0) ;
+    }
+
+    @Test public void reorder_01()
+    {
+        test("(bgp (?x :name ?n) (?x :email ?e))",
+             "(bgp (?x :email ?e) (?x :name ?n))") ;
+    }
+
+    @Test public void reorder_02()
+    {
+        // Rare class.
+        test("(bgp (?x :email ?e) (?x rdf:type :Rare))",
+             "(bgp (?x rdf:type :Rare) (?x :email ?e))") ;
+    }
+
+    @Test public void reorder_03()
+    {
+        // Common class.
+        test("(bgp (?x rdf:type :Person) (?x :email ?e))",
+             "(bgp (?x :email ?e) (?x rdf:type :Person))") ;
+    }
+
+    @Test public void reorder_04()
+    {
+        // Characteristic sets : no subject has both :q and :r.
+        test("(bgp (?x :p ?a) (?x :q ?b) (?x :r ?c))",
+             "(bgp (?x :q ?b) (?x :r ?c) (?x :p ?a))") ;
+    }
+
+    @Test public void reorder_05()
+    {
+        // Value outside the histogram.
+        test("(bgp (?x :email ?e) (?x :age 500))",
+             "(bgp (?x :age 500) (?x :email ?e))") ;
+    }
+
+    @Test public void reorder_06()
+    {
+        // Avoid a cross product.
+        test("(bgp (?x :name ?n) (?y :email ?e) (?x :p ?z) (?z :q ?y))",
+             "(bgp (?y :email ?e) (?z :q ?y) (?x :p ?z) (?x :name ?n))") ;
+    }
+
+    @Test public void reorder_07()
+    {
+        // Unknown predicate first.
+        test("(bgp (?x :name ?n) (?x :unknown ?v))",
+             "(bgp (?x :unknown ?v) (?x :name ?n))") ;
+    }
+
+    private static void test(String input, String expected)
+    {
+        String prefixes = "(prefix ((: <http://example/>) (rdf: <http://www.w3.org/1999/02/22-rdf-syntax-ns#>)) " ;
+        BasicPattern bgp1 = SSE.parseBGP(prefixes+input+")") ;
+        BasicPattern bgp2 = SSE.parseBGP(prefixes+expected+")") ;
+        BasicPattern bgp = new ReorderCostBased(catalog()).reorder(bgp1) ;
+        assertEquals(bgp2, bgp) ;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.benchmarks;
+
+import java.util.ArrayList ;
+import java.util.List ;
+import java.util.Random ;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.riot.out.NodeFmtLib ;
+
+/** Synthetic data for the benchmarks. Generation is deterministic for a given size. */
+public class BenchLib {
+    public static final String NS = "http://example/bench/" ;
+
+    /** Generate {@code n} triples over {@code n/10} subjects and 20 properties.
+     *  Objects are a mix of URIs, strings, language tagged strings and integers.
+     */
+    public static List<Triple> triples(int n) {
+        Random random = new Random(n) ;
+        int subjects = Math.max(1, n/10) ;
+        List<Triple> triples = new ArrayList<>(n) ;
+        for ( int i = 0 ; i < n ; i++ ) {
+            Node s = NodeFactory.createURI(NS+"s"+random.nextInt(subjects)) ;
+            Node p = NodeFactory.createURI(NS+"p"+random.nextInt(20)) ;
+            Node o ;
+            switch(i%4) {
+                case 0:  o = NodeFactory.createURI(NS+"s"+random.nextInt(subjects)) ; break ;
+                case 1:  o = NodeFactory.createLiteral("Literal value "+i) ; break ;
+                case 2:  o = NodeFactory.createLiteral("Label "+i, "en") ; break ;
+                default: o = NodeFactory.createLiteral(Integer.toString(random.nextInt(1000)), XSDDatatype.XSDinteger) ; break ;
+            }
+            triples.add(Triple.create(s, p, o)) ;
+        }
+        return triples ;
+    }
+
+    /** The triples as an N-Triples document. */
+    public static String asNTriples(List<Triple> triples) {
+        StringBuilder sb = new StringBuilder() ;
+        for ( Triple t : triples ) {
+            sb.append(NodeFmtLib.str(t.getSubject())).append(' ')
+              .append(NodeFmtLib.str(t.getPredicate())).append(' ')
+              .append(NodeFmtLib.str(t.getObject())).append(" .\n") ;
+        }
+        return sb.toString() ;
+    }
+
+    /** The triples as a Turtle document, using a prefix and abbreviated terms. */
+    public static String asTurtle(List<Triple> triples) {
+        String nt = asNTriples(triples) ;
+        return "PREFIX : <"+NS+">\n"+nt.replaceAll("<"+NS+"([^>]*)>", ":$1") ;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.benchmarks;
+
+import java.io.IOException ;
+import java.nio.file.Files ;
+import java.nio.file.Path ;
+import java.util.Iterator ;
+import java.util.Random ;
+import java.util.concurrent.TimeUnit ;
+
+import org.apache.commons.io.FileUtils ;
+import org.apache.jena.atlas.lib.Bytes ;
+import org.apache.jena.dboe.base.file.FileSet ;
+import org.apache.jena.dboe.base.file.Location ;
+import org.apache.jena.dboe.base.record.Record ;
+import org.apache.jena.dboe.base.record.RecordFactory ;
+import org.apache.jena.dboe.trans.bplustree.BPlusTree ;
+import org.apache.jena.dboe.trans.bplustree.BPlusTreeFactory ;
+import org.apache.jena.dboe.trans.bplustree.LeafPacking ;
+import org.apache.jena.dboe.transaction.txn.ComponentId ;
+import org.openjdk.jmh.annotations.* ;
+import org.openjdk.jmh.infra.Blackhole ;
+
+/**
+ * Point and range access to an on-disk {@link BPlusTree} of triple-shaped (3 x 8 byte) keys,
+ * with plain or packed leaves (see {@link LeafPacking}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BenchmarkBPlusTree {
+
+    @Param({"1000000"})
+    public int size ;
+
+    /** Number of records visited by a range scan. */
+    @Param({"100"})
+    public int rangeLength ;
+
+    @Param({"false", "true"})
+    public boolean packed ;
+
+    private static final RecordFactory recordFactory = new RecordFactory(3*Long.BYTES, 0) ;
+
+    private Path dir ;
+    private BPlusTree bpt ;
+    private Record[] probes ;
+    private int idx = 0 ;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("jena-bench") ;
+        Location location = Location.create(dir.toString()) ;
+        bpt = BPlusTreeFactory.createBPTree(ComponentId.allocLocal(), new FileSet(location, "SPO"), recordFactory, packed) ;
+        bpt.nonTransactional() ;
+        Random random = new Random(size) ;
+        // Subjects have an average of 10 triples.
+        for ( int i = 0 ; i < size ; i++ )
+            bpt.insert(record(i/10, random.nextInt(20), random.nextInt(size))) ;
+        bpt.sync() ;
+        probes = new Record[4096] ;
+        for ( int i = 0 ; i < probes.length ; i++ ) {
+            // Exact keys are not needed: find returns null on a miss, which also exercises the descent.
+            probes[i] = record(random.nextInt(size/10), random.nextInt(20), random.nextInt(size)) ;
+        }
+    }
+
+    @TearDown
+    public void teardown() throws IOException {
+        bpt.close() ;
+        FileUtils.deleteDirectory(dir.toFile()) ;
+    }
+
+    private static Record record(long v1, long v2, long v3) {
+        Record r = recordFactory.create() ;
+        byte[] k = r.getKey() ;
+        Bytes.setLong(v1, k, 0) ;
+        Bytes.setLong(v2, k, 8) ;
+        Bytes.setLong(v3, k, 16) ;
+        return r ;
+    }
+
+    private Record nextProbe() {
+        Record r = probes[idx++] ;
+        if ( idx >= probes.length )
+            idx = 0 ;
+        return r ;
+    }
+
+    @Benchmark
+    public Record pointLookup() {
+        return bpt.find(nextProbe()) ;
+    }
+
+    @Benchmark
+    public void rangeScan(Blackhole bh) {
+        Iterator<Record> iter = bpt.iterator(nextProbe(), null) ;
+        for ( int i = 0 ; i < rangeLength && iter.hasNext() ; i++ )
+            bh.consume(iter.next()) ;
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.benchmarks;
+
+import java.util.List ;
+import java.util.concurrent.TimeUnit ;
+
+import org.apache.jena.graph.Factory ;
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.util.iterator.ExtendedIterator ;
+import org.openjdk.jmh.annotations.* ;
+import org.openjdk.jmh.infra.Blackhole ;
+
+/** {@code Graph.find} on the in-memory graph, for each commonly used access pattern. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BenchmarkGraphMem {
+
+    @Param({"100000"})
+    public int size ;
+
+    private Graph graph ;
+    private Triple[] probes ;
+    private int idx = 0 ;
+
+    @Setup
+    public void setup() {
+        graph = Factory.createGraphMem() ;
+        List<Triple> triples = BenchLib.triples(size) ;
+        triples.forEach(graph::add) ;
+        probes = new Triple[Math.min(4096, triples.size())] ;
+        for ( int i = 0 ; i < probes.length ; i++ )
+            probes[i] = triples.get((int)((long)i*triples.size()/probes.length)) ;
+    }
+
+    private Triple nextProbe() {
+        Triple t = probes[idx++] ;
+        if ( idx >= probes.length )
+            idx = 0 ;
+        return t ;
+    }
+
+    @Benchmark
+    public void find_S__(Blackhole bh) {
+        Triple t = nextProbe() ;
+        find(t.getSubject(), Node.ANY, Node.ANY, bh) ;
+    }
+
+    @Benchmark
+    public void find_SP_(Blackhole bh) {
+        Triple t = nextProbe() ;
+        find(t.getSubject(), t.getPredicate(), Node.ANY, bh) ;
+    }
+
+    @Benchmark
+    public void find__PO(Blackhole bh) {
+        Triple t = nextProbe() ;
+        find(Node.ANY, t.getPredicate(), t.getObject(), bh) ;
+    }
+
+    @Benchmark
+    public void find___O(Blackhole bh) {
+        Triple t = nextProbe() ;
+        find(Node.ANY, Node.ANY, t.getObject(), bh) ;
+    }
+
+    @Benchmark
+    public void find_SPO(Blackhole bh) {
+        Triple t = nextProbe() ;
+        find(t.getSubject(), t.getPredicate(), t.getObject(), bh) ;
+    }
+
+    private void find(Node s, Node p, Node o, Blackhole bh) {
+        ExtendedIterator<Triple> iter = graph.find(s, p, o) ;
+        try {
+            while ( iter.hasNext() )
+                bh.consume(iter.next()) ;
+        } finally { iter.close() ; }
+    }
+}
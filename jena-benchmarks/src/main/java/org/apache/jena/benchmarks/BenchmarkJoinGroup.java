@@ -0,0 +1,121 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.benchmarks;
+
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.List ;
+import java.util.Random ;
+import java.util.concurrent.TimeUnit ;
+
+import org.apache.jena.datatypes.xsd.XSDDatatype ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.query.ARQ ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.core.VarExprList ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.sparql.engine.QueryIterator ;
+import org.apache.jena.sparql.engine.binding.Binding ;
+import org.apache.jena.sparql.engine.binding.BindingFactory ;
+import org.apache.jena.sparql.engine.binding.BindingMap ;
+import org.apache.jena.sparql.engine.iterator.QueryIterGroup ;
+import org.apache.jena.sparql.engine.iterator.QueryIterPlainWrapper ;
+import org.apache.jena.sparql.engine.join.QueryIterHashJoin ;
+import org.apache.jena.sparql.expr.ExprAggregator ;
+import org.apache.jena.sparql.expr.ExprVar ;
+import org.apache.jena.sparql.expr.aggregate.AggregatorFactory ;
+import org.openjdk.jmh.annotations.* ;
+import org.openjdk.jmh.infra.Blackhole ;
+
+/** Query engine operators: {@link QueryIterHashJoin} and {@link QueryIterGroup} over in-memory bindings. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BenchmarkJoinGroup {
+
+    @Param({"100000"})
+    public int size ;
+
+    /** Number of distinct join keys and group keys. */
+    @Param({"1000"})
+    public int keys ;
+
+    private static final Var varKey = Var.alloc("k") ;
+    private static final Var varA = Var.alloc("a") ;
+    private static final Var varB = Var.alloc("b") ;
+    private static final Var varCount = Var.alloc("count") ;
+    private static final Var varSum = Var.alloc("sum") ;
+
+    private List<Binding> left ;
+    private List<Binding> right ;
+    private ExecutionContext execCxt ;
+    private VarExprList groupVars ;
+    private List<ExprAggregator> aggregators ;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(size) ;
+        left = bindings(random, size, varA) ;
+        right = bindings(random, size/10, varB) ;
+        execCxt = new ExecutionContext(ARQ.getContext(), null, null, null) ;
+        groupVars = new VarExprList(Arrays.asList(varKey)) ;
+        aggregators = Arrays.asList(new ExprAggregator(varCount, AggregatorFactory.createCount(false)),
+                                    new ExprAggregator(varSum, AggregatorFactory.createSum(false, new ExprVar(varA)))) ;
+    }
+
+    private List<Binding> bindings(Random random, int n, Var var) {
+        List<Binding> x = new ArrayList<>(n) ;
+        for ( int i = 0 ; i < n ; i++ ) {
+            BindingMap b = BindingFactory.create() ;
+            b.add(varKey, NodeFactory.createURI(BenchLib.NS+"k"+random.nextInt(keys))) ;
+            b.add(var, integer(random.nextInt(1000))) ;
+            x.add(b) ;
+        }
+        return x ;
+    }
+
+    private static Node integer(int i) {
+        return NodeFactory.createLiteral(Integer.toString(i), XSDDatatype.XSDinteger) ;
+    }
+
+    @Benchmark
+    public void hashJoin(Blackhole bh) {
+        QueryIterator qIter = QueryIterHashJoin.create(new QueryIterPlainWrapper(left.iterator(), execCxt),
+                                                       new QueryIterPlainWrapper(right.iterator(), execCxt),
+                                                       execCxt) ;
+        consume(qIter, bh) ;
+    }
+
+    @Benchmark
+    public void group(Blackhole bh) {
+        QueryIterator qIter = new QueryIterGroup(new QueryIterPlainWrapper(left.iterator(), execCxt),
+                                                 groupVars, aggregators, execCxt) ;
+        consume(qIter, bh) ;
+    }
+
+    private static void consume(QueryIterator qIter, Blackhole bh) {
+        while ( qIter.hasNext() )
+            bh.consume(qIter.nextBinding()) ;
+        qIter.close() ;
+    }
+}
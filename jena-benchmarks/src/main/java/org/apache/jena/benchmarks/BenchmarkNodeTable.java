@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.benchmarks;
+
+import java.io.IOException ;
+import java.nio.file.Files ;
+import java.nio.file.Path ;
+import java.util.* ;
+import java.util.concurrent.TimeUnit ;
+
+import org.apache.commons.io.FileUtils ;
+import org.apache.jena.dboe.base.file.BinaryDataFileRandomAccess ;
+import org.apache.jena.dboe.base.file.FileSet ;
+import org.apache.jena.dboe.base.file.Location ;
+import org.apache.jena.dboe.base.record.RecordFactory ;
+import org.apache.jena.dboe.trans.bplustree.BPlusTree ;
+import org.apache.jena.dboe.trans.bplustree.BPlusTreeFactory ;
+import org.apache.jena.dboe.transaction.txn.ComponentId ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.tdb2.store.NodeId ;
+import org.apache.jena.tdb2.store.nodetable.NodeTable ;
+import org.apache.jena.tdb2.store.nodetable.NodeTableNative ;
+import org.apache.jena.tdb2.store.nodetable.NodeTableTRDF ;
+import org.apache.jena.tdb2.sys.SystemTDB ;
+import org.openjdk.jmh.annotations.* ;
+
+/** Lookups in an on-disk {@link NodeTableNative}, without the node table caches. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BenchmarkNodeTable {
+
+    @Param({"100000"})
+    public int size ;
+
+    private Path dir ;
+    private NodeTable nodeTable ;
+    private Node[] nodes ;
+    private NodeId[] nodeIds ;
+    private Node[] missing ;
+    private int idx = 0 ;
+
+    @Setup
+    public void setup() throws IOException {
+        dir = Files.createTempDirectory("jena-bench") ;
+        Location location = Location.create(dir.toString()) ;
+        RecordFactory recordFactory = new RecordFactory(SystemTDB.LenNodeHash, SystemTDB.SizeOfNodeId) ;
+        BPlusTree index = BPlusTreeFactory.createBPTree(ComponentId.allocLocal(), new FileSet(location, "nodes"), recordFactory) ;
+        index.nonTransactional() ;
+        BinaryDataFileRandomAccess data = new BinaryDataFileRandomAccess(location.getPath("nodes-data")) ;
+        data.open() ;
+        nodeTable = new NodeTableTRDF(index, data) ;
+
+        Set<Node> distinct = new LinkedHashSet<>() ;
+        for ( Triple t : BenchLib.triples(size) ) {
+            distinct.add(t.getSubject()) ;
+            distinct.add(t.getPredicate()) ;
+            distinct.add(t.getObject()) ;
+        }
+        List<Node> x = new ArrayList<>(distinct) ;
+        Collections.shuffle(x, new Random(size)) ;
+        nodes = x.toArray(new Node[0]) ;
+        nodeIds = new NodeId[nodes.length] ;
+        for ( int i = 0 ; i < nodes.length ; i++ )
+            nodeIds[i] = nodeTable.getAllocateNodeId(nodes[i]) ;
+        nodeTable.sync() ;
+        missing = new Node[1000] ;
+        for ( int i = 0 ; i < missing.length ; i++ )
+            missing[i] = NodeFactory.createURI(BenchLib.NS+"missing/"+i) ;
+    }
+
+    @TearDown
+    public void teardown() throws IOException {
+        nodeTable.close() ;
+        FileUtils.deleteDirectory(dir.toFile()) ;
+    }
+
+    private int next(int len) {
+        int i = idx++ ;
+        if ( idx >= len )
+            idx = 0 ;
+        return i ;
+    }
+
+    @Benchmark
+    public NodeId nodeToNodeId() {
+        return nodeTable.getNodeIdForNode(nodes[next(nodes.length)]) ;
+    }
+
+    @Benchmark
+    public Node nodeIdToNode() {
+        return nodeTable.getNodeForNodeId(nodeIds[next(nodeIds.length)]) ;
+    }
+
+    @Benchmark
+    public NodeId nodeToNodeIdMiss() {
+        return nodeTable.getNodeIdForNode(missing[next(missing.length)]) ;
+    }
+}
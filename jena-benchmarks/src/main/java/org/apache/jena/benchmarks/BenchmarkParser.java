@@ -0,0 +1,85 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.benchmarks;
+
+import java.io.ByteArrayInputStream ;
+import java.nio.charset.StandardCharsets ;
+import java.util.concurrent.TimeUnit ;
+
+import org.apache.jena.riot.Lang ;
+import org.apache.jena.riot.RDFParser ;
+import org.apache.jena.riot.system.StreamRDF ;
+import org.apache.jena.riot.system.StreamRDFBase ;
+import org.apache.jena.riot.tokens.Tokenizer ;
+import org.apache.jena.riot.tokens.TokenizerFactory ;
+import org.apache.jena.graph.Triple ;
+import org.openjdk.jmh.annotations.* ;
+import org.openjdk.jmh.infra.Blackhole ;
+
+/** Parsing: the tokenizer alone, then N-Triples and Turtle to a sink that does no work. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BenchmarkParser {
+
+    @Param({"100000"})
+    public int size ;
+
+    private String ntString ;
+    private byte[] ntBytes ;
+    private byte[] ttlBytes ;
+
+    @Setup
+    public void setup() {
+        ntString = BenchLib.asNTriples(BenchLib.triples(size)) ;
+        ntBytes = ntString.getBytes(StandardCharsets.UTF_8) ;
+        ttlBytes = BenchLib.asTurtle(BenchLib.triples(size)).getBytes(StandardCharsets.UTF_8) ;
+    }
+
+    @Benchmark
+    public void tokenizer(Blackhole bh) {
+        Tokenizer tokenizer = TokenizerFactory.makeTokenizerString(ntString) ;
+        while ( tokenizer.hasNext() )
+            bh.consume(tokenizer.next()) ;
+        tokenizer.close() ;
+    }
+
+    @Benchmark
+    public void parseNTriples(Blackhole bh) {
+        parse(ntBytes, Lang.NTRIPLES, bh) ;
+    }
+
+    @Benchmark
+    public void parseTurtle(Blackhole bh) {
+        parse(ttlBytes, Lang.TURTLE, bh) ;
+    }
+
+    private static void parse(byte[] bytes, Lang lang, Blackhole bh) {
+        StreamRDF sink = new StreamRDFBase() {
+            @Override public void triple(Triple triple) { bh.consume(triple) ; }
+        } ;
+        RDFParser.create()
+            .source(new ByteArrayInputStream(bytes))
+            .lang(lang)
+            .parse(sink) ;
+    }
+}
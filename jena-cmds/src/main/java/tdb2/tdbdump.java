@@ -18,18 +18,27 @@
 
 package tdb2;
 
+import java.nio.file.Path ;
+import java.nio.file.Paths ;
+import java.util.List ;
+
 import arq.cmdline.ModLangOutput ;
+import jena.cmd.ArgDecl ;
 import jena.cmd.CmdException ;
 import org.apache.jena.dboe.jenax.Txn;
 import org.apache.jena.riot.RDFDataMgr ;
 import org.apache.jena.riot.RDFFormat ;
 import org.apache.jena.riot.RDFLanguages ;
+import org.apache.jena.riot.system.StreamRDFWriter ;
 import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.tdb2.sys.DumpParallel ;
 import tdb2.cmdline.CmdTDB;
 
 public class tdbdump extends CmdTDB
 {
     static ModLangOutput modLangOutput = new ModLangOutput() ;
+    private static final ArgDecl argParallel = new ArgDecl(ArgDecl.NoValue, "parallel") ;
+    private static final ArgDecl argShards   = new ArgDecl(ArgDecl.HasValue, "shards") ;
     
     static public void main(String... argv) {
         CmdTDB.init() ;
@@ -39,6 +48,8 @@ public class tdbdump extends CmdTDB
     protected tdbdump(String[] argv) {
         super(argv) ;
         addModule(modLangOutput) ;
+        super.add(argParallel, "--parallel", "Dump in index order, using several threads") ;
+        super.add(argShards, "--shards=DIR", "Dump in parallel to compressed files in DIR") ;
     }
 
     @Override
@@ -60,6 +71,22 @@ public class tdbdump extends CmdTDB
             fmt = RDFFormat.NQUADS ;
         if ( ! RDFLanguages.isQuads(fmt.getLang() ))
             throw new CmdException("Databases can be dumped only in quad formats (e.g. Trig, N-Quads), not "+fmt.getLang()) ;
+        if ( contains(argParallel) || contains(argShards) ) {
+            if ( ! StreamRDFWriter.registered(fmt) ) {
+                RDFFormat fmtStream = StreamRDFWriter.defaultSerialization(fmt.getLang()) ;
+                if ( fmtStream == null )
+                    throw new CmdException("No streaming writer for "+fmt) ;
+                fmt = fmtStream ;
+            }
+            if ( contains(argShards) ) {
+                Path dir = Paths.get(getValue(argShards)) ;
+                List<Path> shards = DumpParallel.dumpShards(dsg, dir, "dump", fmt, true) ;
+                if ( ! isQuiet() )
+                    System.err.println("Written "+shards.size()+" files to "+dir) ;
+            } else
+                DumpParallel.dump(dsg, System.out, fmt, false) ;
+            return ;
+        }
         RDFFormat fmtFinal = fmt ;
         Txn.executeRead(dsg, ()->RDFDataMgr.write(System.out, dsg, fmtFinal));
     }
@@ -34,19 +34,21 @@ import org.apache.jena.riot.system.StreamRDF;
 import org.apache.jena.riot.system.StreamRDFLib;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.system.Txn;
+import org.apache.jena.tdb2.loader.LoaderParallel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import tdb2.cmdline.CmdTDB;
 import tdb2.cmdline.CmdTDBGraph;
 
 public class tdbloader extends CmdTDBGraph {
-    // private static final ArgDecl argParallel = new ArgDecl(ArgDecl.NoValue, "parallel");
+    private static final ArgDecl argParallel = new ArgDecl(ArgDecl.NoValue, "parallel");
     // private static final ArgDecl argIncremental = new ArgDecl(ArgDecl.NoValue, "incr", "incremental");
     private static final ArgDecl argNoStats = new ArgDecl(ArgDecl.NoValue, "nostats");
     private static final ArgDecl argStats = new ArgDecl(ArgDecl.HasValue,  "stats");
 
     private boolean showProgress  = true;
     private boolean generateStats  = true;
+    private boolean parallel       = false;
 
     static public void main(String... argv) {
         CmdTDB.init();
@@ -56,6 +58,7 @@ public class tdbloader extends CmdTDBGraph {
     protected tdbloader(String[] argv) {
         super(argv);
         super.add(argNoStats, "--nostats", "Switch off statistics gathering");
+        super.add(argParallel, "--parallel", "Bulk load into an empty database, building indexes in parallel");
         super.add(argStats);   // Hidden argument
     }
 
@@ -87,13 +90,18 @@ public class tdbloader extends CmdTDBGraph {
 
         if ( super.contains(argNoStats))
             generateStats = false;
+        if ( super.contains(argParallel) )
+            parallel = true;
         
         List<String> urls = getPositional();
         if ( urls.size() == 0 )
             urls.add("-");
 
         if ( graphName == null ) {
-            loadQuads(urls);
+            if ( parallel )
+                LoaderParallel.load(getDatasetGraph(), urls, showProgress);
+            else
+                loadQuads(urls);
             return;
         }
         
@@ -109,6 +117,8 @@ public class tdbloader extends CmdTDBGraph {
             }
         }
         
+        if ( parallel )
+            System.err.println("Warning: --parallel ignored when loading a named graph");
         loadOneGraph(urls);
     }
 
@@ -20,13 +20,17 @@ package tdb2;
 
 import java.util.Iterator ;
 
+import jena.cmd.ArgDecl;
+import jena.cmd.CmdException;
 import org.apache.jena.atlas.lib.tuple.Tuple ;
 import org.apache.jena.atlas.logging.Log ;
 import org.apache.jena.dboe.jenax.Txn;
 import org.apache.jena.graph.Node ;
 import org.apache.jena.sparql.core.Quad ;
 import org.apache.jena.tdb2.solver.SolverLib;
+import org.apache.jena.sparql.engine.optimizer.StatsCatalog;
 import org.apache.jena.tdb2.solver.stats.Stats;
+import org.apache.jena.tdb2.solver.stats.StatsCollectorCatalog;
 import org.apache.jena.tdb2.solver.stats.StatsCollectorNodeId;
 import org.apache.jena.tdb2.solver.stats.StatsResults;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
@@ -38,6 +42,8 @@ import tdb2.cmdline.CmdTDB;
 import tdb2.cmdline.CmdTDBGraph;
 
 public class tdbstats extends CmdTDBGraph {
+    private static final ArgDecl argCatalog = new ArgDecl(ArgDecl.NoValue, "catalog");
+
     static public void main(String... argv) {
         CmdTDB.init();
         new tdbstats(argv).mainRun();
@@ -45,6 +51,7 @@ public class tdbstats extends CmdTDBGraph {
 
     protected tdbstats(String[] argv) {
         super(argv);
+        super.add(argCatalog, "--catalog", "Write the statistics catalog for the cost-based optimizer into the database");
     }
 
     @Override
@@ -93,6 +100,13 @@ public class tdbstats extends CmdTDBGraph {
     protected void exec() {
         DatasetGraphTDB dsg = TDBInternal.getDatasetGraphTDB(getDatasetGraph());
         Node gn = getGraphName();
+        if ( contains(argCatalog) ) {
+            if ( gn != null )
+                throw new CmdException("--catalog is for the default graph only");
+            StatsCatalog catalog = Txn.calculateRead(dsg, ()->StatsCollectorCatalog.write(dsg));
+            catalog.write(System.out);
+            return;
+        }
         StatsResults results = stats(dsg, gn);
         Stats.write(System.out, results);
     }
@@ -0,0 +1,448 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.dboe.base.block ;
+
+import java.lang.management.ManagementFactory ;
+import java.util.* ;
+import java.util.concurrent.Callable ;
+import java.util.function.BiConsumer ;
+
+import javax.management.MBeanServer ;
+import javax.management.ObjectName ;
+
+import org.apache.jena.atlas.lib.Cache ;
+import org.apache.jena.dboe.DBOpEnvException ;
+import org.apache.jena.dboe.base.file.Location ;
+import org.slf4j.Logger ;
+import org.slf4j.LoggerFactory ;
+
+/**
+ * A read cache of blocks shared by all the {@link BlockMgrCache}s of one
+ * database, bounded by the total size in bytes of the cached blocks.
+ * <p>
+ * The replacement policy is 2Q (Johnson and Shasha). A block read for the
+ * first time goes into a FIFO queue, {@code A1in}, limited to a quarter of the
+ * budget. A block evicted from {@code A1in} is remembered, without its
+ * contents, in {@code A1out}; if it is read again while remembered, it goes into
+ * the main LRU queue, {@code Am}. Blocks read only once, such as the leaves
+ * visited by a large range scan, only pass through {@code A1in} and do not
+ * displace the frequently used blocks, such as the upper levels of the B+Trees.
+ * <p>
+ * Each block manager gets a {@link Cache} view of the pool with its own block
+ * ids. Only clean blocks are cached - delayed writes stay in the per-file write
+ * cache of the {@link BlockMgrCache} - so the pool can drop any block of any
+ * view. The pool is registered with the platform MBean server while it has
+ * block managers attached.
+ */
+public class BlockCachePool implements BlockCachePoolMBean {
+    private static Logger log = LoggerFactory.getLogger(BlockCachePool.class) ;
+
+    public static final String JmxDomain = "org.apache.jena.dboe" ;
+
+    // One pool per database location. Guarded by itself.
+    private static final Map<Location, BlockCachePool> pools = new HashMap<>() ;
+
+    /**
+     * Get the pool for a location, creating it with the given budget, in bytes,
+     * if there is no pool for the location.
+     */
+    public static BlockCachePool get(Location location, long maxBytes) {
+        synchronized(pools) {
+            BlockCachePool pool = pools.get(location) ;
+            if ( pool == null ) {
+                pool = new BlockCachePool(location, maxBytes) ;
+                pools.put(location, pool) ;
+            }
+            return pool ;
+        }
+    }
+
+    /** The pool in use for a location, or null. */
+    public static BlockCachePool find(Location location) {
+        synchronized(pools) {
+            return pools.get(location) ;
+        }
+    }
+
+    private static final class Key {
+        final int owner ;
+        final long id ;
+        Key(int owner, long id) { this.owner = owner ; this.id = id ; }
+
+        @Override
+        public int hashCode() { return 31*owner + Long.hashCode(id) ; }
+
+        @Override
+        public boolean equals(Object other) {
+            if ( this == other ) return true ;
+            if ( !(other instanceof Key) ) return false ;
+            Key k = (Key)other ;
+            return owner == k.owner && id == k.id ;
+        }
+    }
+
+    private final Location location ;
+    private final long maxBytes ;
+    private final long maxBytesIn ;
+    private final long maxBytesOut ;
+
+    // Guarded by this.
+    // A1in : FIFO of blocks seen once.
+    private final LinkedHashMap<Key, Block> a1in = new LinkedHashMap<>() ;
+    // Am : LRU of blocks seen again.
+    private final LinkedHashMap<Key, Block> am = new LinkedHashMap<>(16, 0.75f, true) ;
+    // A1out : FIFO of the sizes of blocks recently evicted from A1in.
+    private final LinkedHashMap<Key, Integer> a1out = new LinkedHashMap<>() ;
+    private long bytesIn = 0 ;
+    private long bytesMain = 0 ;
+    private long bytesOut = 0 ;
+    // Drop handlers of the views, by owner.
+    private final Map<Integer, BiConsumer<Long, Block>> dropHandlers = new HashMap<>() ;
+
+    private long hits = 0 ;
+    private long misses = 0 ;
+    private long evictions = 0 ;
+    private long promotions = 0 ;
+
+    // Guarded by pools.
+    private int ownerCounter = 0 ;
+    private final Set<Integer> owners = new HashSet<>() ;
+    private ObjectName objectName = null ;
+
+    /** Create a pool not in the registry : use {@link #get} to share a pool across a database. */
+    public BlockCachePool(Location location, long maxBytes) {
+        if ( maxBytes <= 0 )
+            throw new DBOpEnvException("Block cache pool size must be positive: "+maxBytes) ;
+        this.location = location ;
+        this.maxBytes = maxBytes ;
+        this.maxBytesIn = maxBytes/4 ;
+        this.maxBytesOut = maxBytes/2 ;
+    }
+
+    /**
+     * Attach a block manager to the pool, returning its view of the pool. Call
+     * {@link #detach} when the block manager is closed.
+     */
+    public Cache<Long, Block> attach() {
+        synchronized(pools) {
+            int owner = ++ownerCounter ;
+            owners.add(owner) ;
+            if ( objectName == null && pools.get(location) == this )
+                objectName = registerMBean() ;
+            return new PoolCache(owner) ;
+        }
+    }
+
+    /**
+     * Detach a block manager view, dropping its blocks. When the last view is
+     * detached, the pool is removed from the registry.
+     */
+    public void detach(Cache<Long, Block> cache) {
+        if ( !(cache instanceof PoolCache) || ((PoolCache)cache).pool() != this )
+            throw new DBOpEnvException("Not a view of this block cache pool") ;
+        PoolCache poolCache = (PoolCache)cache ;
+        setDropHandler(poolCache.owner, null) ;
+        removeOwner(poolCache.owner) ;
+        synchronized(pools) {
+            if ( ! owners.remove(poolCache.owner) )
+                return ;
+            if ( ! owners.isEmpty() )
+                return ;
+            if ( pools.get(location) == this )
+                pools.remove(location) ;
+            if ( objectName != null ) {
+                unregisterMBean(objectName) ;
+                objectName = null ;
+            }
+        }
+    }
+
+    // ---- 2Q
+
+    private synchronized Block get(Key key) {
+        Block block = am.get(key) ;
+        if ( block == null )
+            // No reordering : A1in is FIFO.
+            block = a1in.get(key) ;
+        if ( block == null )
+            misses++ ;
+        else
+            hits++ ;
+        return block ;
+    }
+
+    private synchronized boolean contains(Key key) {
+        return am.containsKey(key) || a1in.containsKey(key) ;
+    }
+
+    private synchronized void put(Key key, Block block) {
+        int weight = weight(block) ;
+        if ( weight > maxBytes ) {
+            remove(key) ;
+            return ;
+        }
+        Block old = am.get(key) ;
+        if ( old != null ) {
+            am.put(key, block) ;
+            bytesMain += weight - weight(old) ;
+            if ( old != block )
+                dropped(key, old) ;
+        } else if ( (old = a1in.get(key)) != null ) {
+            a1in.put(key, block) ;
+            bytesIn += weight - weight(old) ;
+            if ( old != block )
+                dropped(key, old) ;
+        } else {
+            Integer ghost = a1out.remove(key) ;
+            if ( ghost != null ) {
+                bytesOut -= ghost ;
+                promotions++ ;
+                am.put(key, block) ;
+                bytesMain += weight ;
+            } else {
+                a1in.put(key, block) ;
+                bytesIn += weight ;
+            }
+        }
+        reclaim() ;
+    }
+
+    private synchronized void remove(Key key) {
+        Block block = discard(key) ;
+        if ( block != null )
+            dropped(key, block) ;
+    }
+
+    /** Remove a key, without telling the drop handler. Return the block, if cached. */
+    private Block discard(Key key) {
+        Block block = am.remove(key) ;
+        if ( block != null )
+            bytesMain -= weight(block) ;
+        else {
+            block = a1in.remove(key) ;
+            if ( block != null )
+                bytesIn -= weight(block) ;
+        }
+        Integer ghost = a1out.remove(key) ;
+        if ( ghost != null )
+            bytesOut -= ghost ;
+        return block ;
+    }
+
+    private void reclaim() {
+        while ( bytesIn + bytesMain > maxBytes ) {
+            if ( bytesIn > maxBytesIn || am.isEmpty() ) {
+                Map.Entry<Key, Block> e = eldest(a1in) ;
+                int weight = weight(e.getValue()) ;
+                bytesIn -= weight ;
+                a1out.put(e.getKey(), weight) ;
+                bytesOut += weight ;
+                dropped(e.getKey(), e.getValue()) ;
+            } else {
+                Map.Entry<Key, Block> e = eldest(am) ;
+                bytesMain -= weight(e.getValue()) ;
+                dropped(e.getKey(), e.getValue()) ;
+            }
+            evictions++ ;
+        }
+        while ( bytesOut > maxBytesOut ) {
+            Map.Entry<Key, Integer> e = eldest(a1out) ;
+            bytesOut -= e.getValue() ;
+        }
+    }
+
+    /** Remove and return the oldest entry of a queue. */
+    private static <X> Map.Entry<Key, X> eldest(LinkedHashMap<Key, X> queue) {
+        Iterator<Map.Entry<Key, X>> iter = queue.entrySet().iterator() ;
+        Map.Entry<Key, X> e = iter.next() ;
+        e = new AbstractMap.SimpleImmutableEntry<>(e) ;
+        iter.remove() ;
+        return e ;
+    }
+
+    private void dropped(Key key, Block block) {
+        BiConsumer<Long, Block> dropHandler = dropHandlers.get(key.owner) ;
+        if ( dropHandler != null )
+            dropHandler.accept(key.id, block) ;
+    }
+
+    private synchronized void setDropHandler(int owner, BiConsumer<Long, Block> dropHandler) {
+        if ( dropHandler == null )
+            dropHandlers.remove(owner) ;
+        else
+            dropHandlers.put(owner, dropHandler) ;
+    }
+
+    private static int weight(Block block) {
+        return block.getByteBuffer().capacity() ;
+    }
+
+    private synchronized List<Long> ids(int owner) {
+        List<Long> ids = new ArrayList<>() ;
+        for ( Key k : a1in.keySet() )
+            if ( k.owner == owner ) ids.add(k.id) ;
+        for ( Key k : am.keySet() )
+            if ( k.owner == owner ) ids.add(k.id) ;
+        return ids ;
+    }
+
+    private synchronized void removeOwner(int owner) {
+        for ( Long id : ids(owner) )
+            discard(new Key(owner, id)) ;
+        Iterator<Map.Entry<Key, Integer>> iter = a1out.entrySet().iterator() ;
+        while ( iter.hasNext() ) {
+            Map.Entry<Key, Integer> e = iter.next() ;
+            if ( e.getKey().owner == owner ) {
+                bytesOut -= e.getValue() ;
+                iter.remove() ;
+            }
+        }
+    }
+
+    // ---- Per block manager view.
+
+    private class PoolCache implements Cache<Long, Block> {
+        private final int owner ;
+
+        PoolCache(int owner) { this.owner = owner ; }
+
+        BlockCachePool pool() { return BlockCachePool.this ; }
+
+        private Key key(Long id) { return new Key(owner, id) ; }
+
+        @Override
+        public boolean containsKey(Long id)         { return contains(key(id)) ; }
+
+        @Override
+        public Block getIfPresent(Long id)          { return get(key(id)) ; }
+
+        @Override
+        public Block getOrFill(Long id, Callable<Block> callable) {
+            Block block = getIfPresent(id) ;
+            if ( block != null )
+                return block ;
+            try { block = callable.call() ; }
+            catch (Exception ex) { throw new DBOpEnvException("Exception on cache fill", ex) ; }
+            if ( block != null )
+                put(id, block) ;
+            return block ;
+        }
+
+        @Override
+        public void put(Long id, Block block)       { BlockCachePool.this.put(key(id), block) ; }
+
+        @Override
+        public void remove(Long id)                 { BlockCachePool.this.remove(key(id)) ; }
+
+        /** A snapshot of the ids of this view. */
+        @Override
+        public Iterator<Long> keys()                { return ids(owner).iterator() ; }
+
+        @Override
+        public boolean isEmpty()                    { return ids(owner).isEmpty() ; }
+
+        @Override
+        public void clear()                         { removeOwner(owner) ; }
+
+        @Override
+        public long size()                          { return ids(owner).size() ; }
+
+        /**
+         * The handler is called, with the pool locked, when a block of this view is
+         * evicted, removed or replaced; {@link #clear} and detaching do not call it.
+         */
+        @Override
+        public void setDropHandler(BiConsumer<Long, Block> dropHandler) {
+            BlockCachePool.this.setDropHandler(owner, dropHandler) ;
+        }
+
+        @Override
+        public String toString() { return "BlockCachePool["+owner+"]" ; }
+    }
+
+    // ---- JMX
+
+    private ObjectName registerMBean() {
+        if ( location == null || location.isMem() )
+            return null ;
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer() ;
+            ObjectName objName = new ObjectName(JmxDomain+":type=BlockCache,location="+ObjectName.quote(location.getDirectoryPath())) ;
+            // Replace any stale registration, e.g. from a previous class loader.
+            if ( mbs.isRegistered(objName) )
+                mbs.unregisterMBean(objName) ;
+            mbs.registerMBean(this, objName) ;
+            return objName ;
+        } catch (Exception ex) {
+            log.warn("Failed to register block cache MBean: "+ex.getMessage()) ;
+            return null ;
+        }
+    }
+
+    private static void unregisterMBean(ObjectName objName) {
+        try {
+            MBeanServer mbs = ManagementFactory.getPlatformMBeanServer() ;
+            if ( mbs.isRegistered(objName) )
+                mbs.unregisterMBean(objName) ;
+        } catch (Exception ex) {
+            log.warn("Failed to unregister block cache MBean: "+ex.getMessage()) ;
+        }
+    }
+
+    // ---- BlockCachePoolMBean
+
+    @Override
+    public String getLocation() {
+        return location == null ? null : location.getDirectoryPath() ;
+    }
+
+    @Override
+    public long getMaxBytes()               { return maxBytes ; }
+
+    @Override
+    public synchronized long getBytes()     { return bytesIn + bytesMain ; }
+
+    @Override
+    public synchronized long getEntries()   { return a1in.size() + am.size() ; }
+
+    @Override
+    public int getOwners() {
+        synchronized(pools) {
+            return owners.size() ;
+        }
+    }
+
+    @Override
+    public synchronized long getHits()      { return hits ; }
+
+    @Override
+    public synchronized long getMisses()    { return misses ; }
+
+    @Override
+    public synchronized long getEvictions() { return evictions ; }
+
+    @Override
+    public synchronized long getPromotions() { return promotions ; }
+
+    @Override
+    public String toString() {
+        return String.format("BlockCachePool[%s: %d/%d bytes]", getLocation(), getBytes(), maxBytes) ;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.dboe.base.block ;
+
+/** Management view of a {@link BlockCachePool} */
+public interface BlockCachePoolMBean {
+    /** Directory of the database the pool is for */
+    public String getLocation() ;
+
+    /** Budget, in bytes, of cached blocks */
+    public long getMaxBytes() ;
+
+    /** Bytes of blocks currently cached */
+    public long getBytes() ;
+
+    /** Number of blocks currently cached */
+    public long getEntries() ;
+
+    /** Number of block managers sharing the pool */
+    public int getOwners() ;
+
+    /** Lookups that found the block */
+    public long getHits() ;
+
+    /** Lookups that did not find the block */
+    public long getMisses() ;
+
+    /** Blocks dropped to keep within the budget */
+    public long getEvictions() ;
+
+    /** Blocks re-read soon after eviction from the first-access queue, and kept in the main queue */
+    public long getPromotions() ;
+}
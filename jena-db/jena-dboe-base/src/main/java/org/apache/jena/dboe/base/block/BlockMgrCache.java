@@ -27,7 +27,10 @@ import org.apache.jena.atlas.lib.CacheFactory ;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
 
-/** Caching block manager - this is an LRU cache */
+/**
+ * Caching block manager - this is an LRU cache, or a view of a
+ * {@link BlockCachePool} shared with other block managers for the read blocks.
+ */
 public class BlockMgrCache extends BlockMgrSync {
     // Actually, this is two cache one on the read blocks and one on the write
     // blocks.
@@ -38,6 +41,8 @@ public class BlockMgrCache extends BlockMgrSync {
     private static Logger            log            = LoggerFactory.getLogger(BlockMgrCache.class) ;
     // Read cache : always present.
     private final Cache<Long, Block> readCache ;
+    // The shared pool the read cache is a view of, or null.
+    private final BlockCachePool     pool ;
 
     // Delayed dirty writes. May be present, may not.
     private final Cache<Long, Block> writeCache ;
@@ -53,16 +58,25 @@ public class BlockMgrCache extends BlockMgrSync {
     static BlockMgr create(int readSlots, int writeSlots, final BlockMgr blockMgr) {
         if ( readSlots < 0 && writeSlots < 0 )
             return blockMgr ;
-        return new BlockMgrCache(readSlots, writeSlots, blockMgr) ;
+        return new BlockMgrCache(readCache(readSlots), null, writeSlots, blockMgr) ;
+    }
+
+    /** Cache read blocks in a shared pool, and have a per-file write cache. */
+    static BlockMgr create(BlockCachePool pool, int writeSlots, final BlockMgr blockMgr) {
+        return new BlockMgrCache(pool.attach(), pool, writeSlots, blockMgr) ;
+    }
+
+    private static Cache<Long, Block> readCache(int readSlots) {
+        if ( readSlots < -1 )
+            return CacheFactory.createNullCache() ;
+        return CacheFactory.createCache(readSlots) ;
     }
 
-    private BlockMgrCache(int readSlots, int writeSlots, final BlockMgr blockMgr) {
+    private BlockMgrCache(Cache<Long, Block> readCache, BlockCachePool pool, int writeSlots, final BlockMgr blockMgr) {
         super(blockMgr) ;
         // Caches are related so we can't use a Getter for cache management.
-        if ( readSlots < -1 )
-            readCache = CacheFactory.createNullCache() ;
-        else
-            readCache = CacheFactory.createCache(readSlots) ;
+        this.readCache = readCache ;
+        this.pool = pool ;
         if ( writeSlots <= 0 )
             writeCache = null ;
         else {
@@ -234,6 +248,8 @@ public class BlockMgrCache extends BlockMgrSync {
         if ( writeCache != null )
             log("close (" + writeCache.size() + " blocks)") ;
         syncFlush() ;
+        if ( pool != null )
+            pool.detach(readCache) ;
         super.close() ;
     }
 
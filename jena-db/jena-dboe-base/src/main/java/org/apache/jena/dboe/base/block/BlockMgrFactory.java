@@ -47,7 +47,8 @@ public class BlockMgrFactory {
                       params.getFileMode(),
                       params.getBlockSize(),
                       params.getBlockReadCacheSize(),
-                      params.getBlockWriteCacheSize()) ;
+                      params.getBlockWriteCacheSize(),
+                      params.getBlockCachePoolSize()) ;
     }
     
     public static BlockMgr create(FileSet fileSet, String ext, int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
@@ -56,10 +57,25 @@ public class BlockMgrFactory {
 
     // XXX Deprecate?
     public static BlockMgr create(FileSet fileSet, String ext, FileMode fileMode, int blockSize, int readBlockCacheSize, int writeBlockCacheSize) {
+        return create(fileSet, ext, fileMode, blockSize, readBlockCacheSize, writeBlockCacheSize, SystemIndex.BlockCachePoolSize) ;
+    }
+
+    /**
+     * Create a BlockMgr. In direct file mode, if {@code blockCachePoolSize} is greater than
+     * zero, read blocks are cached in the {@link BlockCachePool} of the location, of that
+     * many bytes, instead of a read cache of {@code readBlockCacheSize} blocks.
+     */
+    public static BlockMgr create(FileSet fileSet, String ext, FileMode fileMode, int blockSize, int readBlockCacheSize, int writeBlockCacheSize,
+                                  long blockCachePoolSize) {
         if ( fileSet.isMem() )
             return createMem(fileSet.filename(ext), blockSize) ;
-        else
-            return createFile(fileSet.filename(ext), fileMode, blockSize, readBlockCacheSize, writeBlockCacheSize) ;
+        if ( fileMode == null )
+            fileMode = SystemIndex.fileMode() ;
+        if ( fileMode == FileMode.direct && blockCachePoolSize > 0 ) {
+            BlockCachePool pool = BlockCachePool.get(fileSet.getLocation(), blockCachePoolSize) ;
+            return createStdFile(fileSet.filename(ext), blockSize, pool, writeBlockCacheSize) ;
+        }
+        return createFile(fileSet.filename(ext), fileMode, blockSize, readBlockCacheSize, writeBlockCacheSize) ;
     }
 
     /** Create an in-memory block manager */
@@ -107,6 +123,17 @@ public class BlockMgrFactory {
         return track(blockMgr) ;
     }
 
+    /**
+     * Create a Block Manager using direct access, with read blocks cached in a pool
+     * shared with other block managers, and a per-file write cache.
+     */
+    public static BlockMgr createStdFile(String filename, int blockSize, BlockCachePool pool, int writeBlockCacheSize) {
+        BlockAccess file = new BlockAccessDirect(filename, blockSize) ;
+        BlockMgr blockMgr = wrapFileAccess(file, blockSize) ;
+        blockMgr = BlockMgrCache.create(pool, writeBlockCacheSize, blockMgr) ;
+        return track(blockMgr) ;
+    }
+
     /** Create a Block Manager using direct access, no caching, no nothing. */
     public static BlockMgr createStdFileNoCache(String filename, int blockSize) {
         BlockAccess blockAccess = new BlockAccessDirect(filename, blockSize) ;
@@ -23,5 +23,7 @@ public interface BlockParams {
     public Integer getBlockSize() ;
     public Integer getBlockReadCacheSize() ;
     public Integer getBlockWriteCacheSize() ;
+    /** Size, in bytes, of the read block cache shared by all the files of a location, or 0. */
+    public Long getBlockCachePoolSize() ;
 }
 
@@ -18,8 +18,11 @@
 
 package org.apache.jena.dboe.base.recordbuffer;
 
+import java.nio.ByteBuffer;
+
 import org.apache.jena.dboe.base.block.Block;
 import org.apache.jena.dboe.base.page.Page;
+import org.apache.jena.dboe.base.record.RecordException;
 import org.apache.jena.dboe.base.record.RecordFactory;
 import org.apache.jena.dboe.sys.Sys;
 
@@ -44,6 +47,10 @@ public final class RecordBufferPage extends RecordBufferPageBase
 
     private int link = Page.NO_ID ;
     
+    // Non-null if the records are held apart from the block and it is the
+    // job of the BlockConverter to write them to the block (e.g. encoded).
+    private final ByteBuffer detachedRecords ;
+    
     public final int getLink() { return link ; }
     
     public void setLink(int link)
@@ -55,6 +62,9 @@ public final class RecordBufferPage extends RecordBufferPageBase
     @Override
     protected void _reset(Block block)
     { 
+        if ( detachedRecords != null )
+            // The records do not depend on the block. 
+            return ;
         // TODO -- should this be format?
         // Print this 
         super.rebuild(block, this.getCount()) ;
@@ -81,15 +91,43 @@ public final class RecordBufferPage extends RecordBufferPageBase
     {
         int count = block.getByteBuffer().getInt(COUNT) ;
         int linkId = block.getByteBuffer().getInt(LINK) ;
+        if ( count < 0 )
+            throw new RecordException("Records block "+block.getId()+" is not in the plain format (count="+count+")") ;
         return new RecordBufferPage(block, factory, count, linkId) ;
     } 
     
+    /**
+     * Create a page with the records in a buffer of their own, not the block.
+     * The {@link org.apache.jena.dboe.base.page.BlockConverter} for the page
+     * must write the records to the block.
+     */
+    public static RecordBufferPage createDetached(Block block, RecordFactory factory, ByteBuffer records, int count, int linkId)
+    {
+        return new RecordBufferPage(block, factory, records, count, linkId) ;
+    }
+    
     private RecordBufferPage(Block block, RecordFactory factory, int count, int linkId)  
     {
         super(block, FIELD_LENGTH, factory, count) ;
         this.link = linkId ;
+        this.detachedRecords = null ;
     }
     
+    private RecordBufferPage(Block block, RecordFactory factory, ByteBuffer records, int count, int linkId)  
+    {
+        super(block, FIELD_LENGTH, factory, records, count) ;
+        this.link = linkId ;
+        this.detachedRecords = records ;
+    }
+    
+    /** Are the records held apart from the block? */
+    public boolean isDetached()
+    { return detachedRecords != null ; }
+    
+    /** The buffer of records of a detached page, else null. */
+    public ByteBuffer getDetachedRecords()
+    { return detachedRecords ; }
+    
     @Override
     public String toString()
     { return String.format("RecordBufferPage[id=%d,link=%d]: %s", getBackingBlock().getId(), getLink(), recBuff) ; }
@@ -70,6 +70,14 @@ public abstract class RecordBufferPageBase extends PageBase // implements Page
         rebuild(block, count) ;
     }
 
+    /** Records held in their own buffer, not in the block. */
+    protected RecordBufferPageBase(Block block, int offset, RecordFactory factory, ByteBuffer records, int count) {
+        super(block) ;
+        this.headerLength = FIELD_LENGTH + offset ;
+        this.factory = factory ;
+        this.recBuff = new RecordBuffer(records, factory, count) ;
+    }
+
     protected void rebuild(Block block, int count) {
         ByteBuffer bb = block.getByteBuffer() ;
         bb.clear() ;
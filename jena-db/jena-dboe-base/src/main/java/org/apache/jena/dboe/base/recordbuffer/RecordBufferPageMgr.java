@@ -40,12 +40,21 @@ public class RecordBufferPageMgr extends PageBlockMgr<RecordBufferPage>
     private final RecordFactory factory ;
     
     public RecordBufferPageMgr(RecordFactory factory, BlockMgr blockMgr) {
-        super(new Block2RecordBufferPage(factory), blockMgr) ;
+        this(factory, blockMgr, new Block2RecordBufferPage(factory)) ;
+    }
+
+    /** Manager with a specific block format. */
+    public RecordBufferPageMgr(RecordFactory factory, BlockMgr blockMgr, Block2RecordBufferPage converter) {
+        super(converter, blockMgr) ;
         this.factory = factory ;
     }
 
     public RecordFactory getRecordFactory() { return factory ; }
     
+    public Block2RecordBufferPage getConverter() {
+        return (Block2RecordBufferPage)pageFactory ;
+    }
+    
     public RecordBufferPage create() {
         return super.create(BlockType.RECORD_BLOCK) ;
     }
@@ -73,6 +73,7 @@ public class Names
     public static final String optStats                 = "stats.opt" ;
     public static final String optFixed                 = "fixed.opt" ;
     public static final String optNone                  = "none.opt" ; 
+    public static final String optCatalog               = "catalog.opt" ;
     public static final String optDefault               = optFixed ;
     
     public static final String extMeta                  = "info" ;
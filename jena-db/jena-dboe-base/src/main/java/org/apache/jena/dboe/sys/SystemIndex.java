@@ -72,7 +72,16 @@ public class SystemIndex
     /** Size of read block cache (32 bit systems only).  Increase JVM size as necessary. Per file. */
     public static final int BlockReadCacheSize      = intValue("BlockReadCacheSize", 10*1000) ;
     
+    /**
+     * Size, in bytes, of the read block cache shared by all the files of a database
+     * (direct file mode only), or 0 for a read cache per file of {@link #BlockReadCacheSize} blocks.
+     * @see org.apache.jena.dboe.base.block.BlockCachePool
+     */
+    public static final long BlockCachePoolSize     = longValue("BlockCachePoolSize", 0) ;
+
     private static int intValue(String name, int dft) { return dft ; }
+
+    private static long longValue(String name, long dft) { return dft ; }
     
     
     public static void setNullOut(boolean nullOut)
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.dboe.base.block;
+
+import static org.junit.Assert.* ;
+
+import java.nio.ByteBuffer ;
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.List ;
+
+import org.apache.jena.atlas.lib.Cache ;
+import org.apache.jena.dboe.base.file.Location ;
+import org.junit.Test ;
+
+public class TestBlockCachePool
+{
+    static final int BlkSize = 256 ;
+
+    private static Block block(long id) {
+        return new Block(id, ByteBuffer.allocate(BlkSize)) ;
+    }
+
+    // Read through the cache, as BlockMgrCache does.
+    private static void read(Cache<Long, Block> cache, long id) {
+        if ( cache.getIfPresent(id) == null )
+            cache.put(id, block(id)) ;
+    }
+
+    @Test public void pool_budget() {
+        BlockCachePool pool = new BlockCachePool(Location.mem(), 10*BlkSize) ;
+        Cache<Long, Block> cache = pool.attach() ;
+        for ( long i = 0 ; i < 100 ; i++ )
+            read(cache, i) ;
+        assertTrue(pool.getBytes() <= pool.getMaxBytes()) ;
+        assertEquals(10, pool.getEntries()) ;
+        assertEquals(90, pool.getEvictions()) ;
+        assertEquals(100, pool.getMisses()) ;
+        assertEquals(0, pool.getHits()) ;
+        // Most recent still there.
+        assertTrue(cache.containsKey(99L)) ;
+        assertFalse(cache.containsKey(0L)) ;
+    }
+
+    @Test public void pool_hits() {
+        BlockCachePool pool = new BlockCachePool(Location.mem(), 10*BlkSize) ;
+        Cache<Long, Block> cache = pool.attach() ;
+        read(cache, 1) ;
+        read(cache, 1) ;
+        read(cache, 2) ;
+        assertEquals(1, pool.getHits()) ;
+        assertEquals(2, pool.getMisses()) ;
+        cache.remove(1L) ;
+        assertFalse(cache.containsKey(1L)) ;
+        assertEquals(BlkSize, pool.getBytes()) ;
+    }
+
+    @Test public void pool_scan_resistant() {
+        BlockCachePool pool = new BlockCachePool(Location.mem(), 16*BlkSize) ;
+        Cache<Long, Block> cache = pool.attach() ;
+        // Hot blocks, read again after they have left the first-access queue.
+        for ( long i = 0 ; i < 4 ; i++ )
+            read(cache, i) ;
+        for ( long i = 100 ; i < 120 ; i++ )
+            read(cache, i) ;
+        for ( long i = 0 ; i < 4 ; i++ )
+            read(cache, i) ;
+        assertEquals(4, pool.getPromotions()) ;
+
+        // A large scan.
+        for ( long i = 1000 ; i < 2000 ; i++ )
+            read(cache, i) ;
+        for ( long i = 0 ; i < 4 ; i++ )
+            assertTrue("Hot block evicted: "+i, cache.containsKey(i)) ;
+        assertTrue(pool.getBytes() <= pool.getMaxBytes()) ;
+    }
+
+    @Test public void pool_views() {
+        BlockCachePool pool = new BlockCachePool(Location.mem(), 10*BlkSize) ;
+        Cache<Long, Block> cache1 = pool.attach() ;
+        Cache<Long, Block> cache2 = pool.attach() ;
+        Block b1 = block(1) ;
+        Block b2 = block(1) ;
+        cache1.put(1L, b1) ;
+        cache2.put(1L, b2) ;
+        assertSame(b1, cache1.getIfPresent(1L)) ;
+        assertSame(b2, cache2.getIfPresent(1L)) ;
+        cache2.put(2L, block(2)) ;
+        assertEquals(1, cache1.size()) ;
+        assertEquals(2, cache2.size()) ;
+        assertEquals(3, pool.getEntries()) ;
+        assertEquals(2, pool.getOwners()) ;
+
+        pool.detach(cache2) ;
+        assertEquals(1, pool.getEntries()) ;
+        assertEquals(1, pool.getOwners()) ;
+        assertSame(b1, cache1.getIfPresent(1L)) ;
+    }
+
+    @Test public void pool_dropHandler() {
+        BlockCachePool pool = new BlockCachePool(Location.mem(), 10*BlkSize) ;
+        Cache<Long, Block> cache1 = pool.attach() ;
+        Cache<Long, Block> cache2 = pool.attach() ;
+        List<Long> dropped1 = new ArrayList<>() ;
+        cache1.setDropHandler((id, b) -> { assertEquals(id.longValue(), b.getId().longValue()) ; dropped1.add(id) ; }) ;
+        for ( long i = 0 ; i < 5 ; i++ )
+            read(cache1, i) ;
+        cache1.remove(0L) ;
+        assertEquals(Arrays.asList(0L), dropped1) ;
+        // Blocks of the other view push out the blocks of this view.
+        for ( long i = 100 ; i < 120 ; i++ )
+            read(cache2, i) ;
+        assertEquals(5, dropped1.size()) ;
+        assertEquals(0, cache1.size()) ;
+        read(cache1, 1) ;
+        cache1.clear() ;
+        assertEquals(5, dropped1.size()) ;
+    }
+
+    @Test public void pool_registry() {
+        Location loc = Location.mem() ;
+        BlockCachePool pool = BlockCachePool.get(loc, 10*BlkSize) ;
+        assertSame(pool, BlockCachePool.get(loc, 10*BlkSize)) ;
+        Cache<Long, Block> cache = pool.attach() ;
+        pool.detach(cache) ;
+        assertNull(BlockCachePool.find(loc)) ;
+    }
+
+    @Test public void pool_blockMgr() {
+        BlockCachePool pool = new BlockCachePool(Location.mem(), 10*BlkSize) ;
+        BlockMgr blockMgr = new BlockMgrFileAccess(new org.apache.jena.dboe.base.file.BlockAccessMem("pool", BlkSize), BlkSize) ;
+        blockMgr = BlockMgrCache.create(pool, 5, blockMgr) ;
+        blockMgr.beginUpdate() ;
+        Block block = blockMgr.allocate(BlkSize) ;
+        block.getByteBuffer().put(0, (byte)0x12) ;
+        long id = block.getId() ;
+        blockMgr.write(block) ;
+        blockMgr.sync() ;
+        blockMgr.endUpdate() ;
+        // Written back blocks go into the read cache.
+        assertTrue(pool.getEntries() > 0) ;
+        blockMgr.beginRead() ;
+        Block block2 = blockMgr.getRead(id) ;
+        assertEquals(0x12, block2.getByteBuffer().get(0)) ;
+        blockMgr.endRead() ;
+        assertEquals(1, pool.getHits()) ;
+        blockMgr.close() ;
+        assertEquals(0, pool.getEntries()) ;
+        assertEquals(0, pool.getOwners()) ;
+    }
+}
@@ -48,6 +48,11 @@ public class IndexConst {
             return SystemIndex.BlockWriteCacheSize ;
         }
 
+        @Override
+        public Long getBlockCachePoolSize() {
+            return SystemIndex.BlockCachePoolSize ;
+        }
+
     }
 }
 
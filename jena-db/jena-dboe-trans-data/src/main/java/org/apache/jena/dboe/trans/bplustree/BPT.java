@@ -245,5 +245,19 @@ public final class BPT {
         // Now a broken tree of one root block and no records.
         return bpt ;
     }
+
+    /**
+     * Record the persistent state of a B+Tree that has been written directly to
+     * storage (e.g. by the rewriter) so that it can be attached later as a transactional
+     * B+Tree. The root is block zero and the allocation limits are the current ends of
+     * the block managers so that the first transaction does not overwrite the tree.
+     */
+    public static void setStateFromStorage(BPlusTree bpt) {
+        BPTStateMgr stateMgr = bpt.getStateManager() ;
+        stateMgr.setState(BPlusTreeParams.RootId,
+                          bpt.getNodeManager().allocLimit(),
+                          bpt.getRecordsMgr().allocLimit()) ;
+        stateMgr.sync() ;
+    }
 }
 
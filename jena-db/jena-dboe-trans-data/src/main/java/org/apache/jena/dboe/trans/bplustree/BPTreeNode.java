@@ -23,9 +23,9 @@ import static org.apache.jena.dboe.base.record.Record.keyLT;
 import static org.apache.jena.dboe.base.record.Record.keyNE;
 import static org.apache.jena.dboe.trans.bplustree.BPT.*;
 
-import java.util.ArrayList ;
 import java.util.Iterator ;
 import java.util.List ;
+import java.util.NoSuchElementException ;
 
 import org.apache.jena.atlas.io.IndentedLineBuffer ;
 import org.apache.jena.atlas.io.IndentedWriter ;
@@ -304,14 +304,29 @@ public final class BPTreeNode extends BPTreePage
         // Pages from pointer slots x1 to x2 (inc because while we exclude maxRec, 
         // keys are only a max of the subtree they mark out.
         
-        // XXX Just grab them now - later, keep indexes and fetch on next(). 
+        // Fetch pages on next() so that an iterator that is not run to the
+        // end, or with no maxRec, does not read every page to the right.
         // XXX Epoch tracking 
         
-        List<BPTreePage> x = new ArrayList<>(x2-x1+1) ;
-        for ( int i = x1 ; i <= x2 ; i++ )
-            x.add(get(i)) ;
-        
-        return x.iterator() ;
+        final int start = x1 ;
+        final int finish = x2 ;
+        return new Iterator<BPTreePage>() {
+            private int idx = start ;
+
+            @Override
+            public boolean hasNext() {
+                return idx <= finish ;
+            }
+
+            @Override
+            public BPTreePage next() {
+                if ( ! hasNext() )
+                    throw new NoSuchElementException() ;
+                bpTree.startReadBlkMgr() ;
+                try { return get(idx++) ; }
+                finally { bpTree.finishReadBlkMgr() ; }
+            }
+        } ;
     }
     
 //    // OUT OF DATE WITH MVCC
@@ -990,7 +1005,9 @@ public final class BPTreeNode extends BPTreePage
                 // (it's already there, with its value).
                 // Size is N+N and max could be odd so N+N and N+N+1 are
                 // possible.
-                if ( left.getCount() + 1 != left.getMaxSize() && left.getCount() != left.getMaxSize() )
+                // Packed leaves are merged by space, not count.
+                if ( bpTree.getRecordsMgr().getLeafPacking() == null 
+                     && left.getCount() + 1 != left.getMaxSize() && left.getCount() != left.getMaxSize() )
                     BPT.error("Inconsistent data node size: %d/%d", left.getCount(), left.getMaxSize()) ;
             } else if ( !left.isFull() ) {
                 // If not two data blocks, the left side should now be full
@@ -46,7 +46,7 @@ public final class BPTreeRecords extends BPTreePage {
         return log ;
     }
 
-    private final RecordBufferPage rBuffPage ;
+    private RecordBufferPage       rBuffPage ;
     private final BPTreeRecordsMgr bprRecordsMgr ;
     private RecordBuffer           rBuff ;        // Used heavily. Derived from
                                                    // rBuffPage
@@ -92,6 +92,9 @@ public final class BPTreeRecords extends BPTreePage {
 
     @Override
     public boolean isFull() {
+        LeafPacking packing = bprRecordsMgr.getLeafPacking() ;
+        if ( packing != null )
+            return packing.isFull(rBuffPage) ;
         return (rBuff.size() >= rBuff.maxSize()) ;
     }
 
@@ -104,6 +107,9 @@ public final class BPTreeRecords extends BPTreePage {
     public boolean isMinSize() {
         // 50% packing minimum.
         // If of max length 5 (i.e. odd), min size is 2. Integer division works.
+        LeafPacking packing = bprRecordsMgr.getLeafPacking() ;
+        if ( packing != null )
+            return packing.isMinSize(rBuffPage) ;
         return (rBuff.size() <= rBuff.maxSize() / 2) ;
     }
 
@@ -133,17 +139,31 @@ public final class BPTreeRecords extends BPTreePage {
             // Is this replicated in BPTreeNode?
             if ( getBackingBlock().isReadOnly() )
                 bprRecordsMgr.getBlockMgr().promote(getBackingBlock()) ;
+            writable() ;
             return false ;
         } else {
             Block oldBlock = getBackingBlock() ;
             boolean b = bprRecordsMgr.promoteDuplicate(this) ;
             if ( b )
                 bprRecordsMgr.getBlockMgr().release(oldBlock) ;
+            writable() ;
             return b ;
         }
 
     }
 
+    // A packed page read from a block only has room for its records.
+    private void writable() {
+        LeafPacking packing = bprRecordsMgr.getLeafPacking() ;
+        if ( packing == null )
+            return ;
+        RecordBufferPage page = packing.writable(rBuffPage) ;
+        if ( page != rBuffPage ) {
+            rBuffPage = page ;
+            rBuff = page.getRecordBuffer() ;
+        }
+    }
+
     @Override
     final public void release() {
         bprRecordsMgr.release(this) ;
@@ -161,9 +181,9 @@ public final class BPTreeRecords extends BPTreePage {
         Record r2 = null ;
         if ( i < 0 ) {
             i = decodeIndex(i) ;
+            promotePage(path, this) ;
             if ( rBuff.size() >= rBuff.maxSize() )
                 throw new StorageException("RecordBlock.put overflow") ;
-            promotePage(path, this) ;
             rBuff.add(i, record) ;
         } else {
             r2 = rBuff.get(i) ;
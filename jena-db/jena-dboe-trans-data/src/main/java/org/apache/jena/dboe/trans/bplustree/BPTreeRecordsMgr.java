@@ -35,11 +35,17 @@ final public class BPTreeRecordsMgr extends PageBlockMgr<BPTreeRecords>
 
     private final RecordBufferPageMgr rBuffPageMgr ;
     private final BPlusTree bpTree ;
+    private final LeafPacking packing ;
     
     BPTreeRecordsMgr(BPlusTree bpTree, RecordFactory recordFactory, RecordBufferPageMgr rBuffPageMgr) {
+        this(bpTree, recordFactory, rBuffPageMgr, null) ;
+    }
+    
+    BPTreeRecordsMgr(BPlusTree bpTree, RecordFactory recordFactory, RecordBufferPageMgr rBuffPageMgr, LeafPacking packing) {
         super(null , rBuffPageMgr.getBlockMgr()) ;
         this.bpTree = bpTree ;
-        super.setConverter(new Block2BPTreeRecords(this, recordFactory)) ;
+        this.packing = packing ;
+        super.setConverter(new Block2BPTreeRecords(this, rBuffPageMgr.getConverter())) ;
         // bpt is uninitialized at this point.
         // so record rBuffPageMgr
         this.rBuffPageMgr = rBuffPageMgr ;
@@ -50,9 +56,9 @@ final public class BPTreeRecordsMgr extends PageBlockMgr<BPTreeRecords>
         private Block2RecordBufferPage recordBufferConverter ;
         private BPTreeRecordsMgr       recordsMgr ;
 
-        Block2BPTreeRecords(BPTreeRecordsMgr mgr, RecordFactory recordFactory) {
+        Block2BPTreeRecords(BPTreeRecordsMgr mgr, Block2RecordBufferPage recordBufferConverter) {
             this.recordsMgr = mgr ;
-            this.recordBufferConverter = new RecordBufferPageMgr.Block2RecordBufferPage(recordFactory) ;
+            this.recordBufferConverter = recordBufferConverter ;
         }
 
         @Override
@@ -83,6 +89,8 @@ final public class BPTreeRecordsMgr extends PageBlockMgr<BPTreeRecords>
     
     public RecordBufferPageMgr getRecordBufferPageMgr() { return rBuffPageMgr ; }
     public BPlusTree getBPTree()                        { return bpTree ; }
+    /** The packing of leaves, or null for plain leaves. */
+    public LeafPacking getLeafPacking()                 { return packing ; }
 
     boolean isWritable(int id) {
         //System.err.println("BPTreeRecordsMgr.isWritable") ;
@@ -538,8 +538,11 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
 
     @Override
     protected ByteBuffer _commitPrepare(TxnId txnId, BptTxnState state) {
-        nodeManager.getBlockMgr().sync();
-        recordsMgr.getBlockMgr().sync();
+        if ( ! isGroupCommit() ) {
+            // Group commit: synced in syncCommittedData.
+            nodeManager.getBlockMgr().sync();
+            recordsMgr.getBlockMgr().sync();
+        }
         
         long nodeLimit = nodeManager.allocLimit() ;
         long recordsLimit = recordsMgr.allocLimit() ;
@@ -552,7 +555,9 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
     protected void _commit(TxnId txnId, BptTxnState state) {
         if ( isWriteTxn() ) {
             rootIdx = state.getRoot() ;
-            stateManager.sync();
+            // Group commit: written in syncCommittedState.
+            if ( ! isGroupCommit() )
+                stateManager.sync();
         }
     }
 
@@ -567,6 +572,19 @@ public class BPlusTree extends TransactionalComponentLifecycle<BptTxnState> impl
         nodeManager.resetAlloc(state.boundaryBlocksNode) ;
         recordsMgr.resetAlloc(state.boundaryBlocksRecord) ;
         stateManager.setState(state.initialroot, state.boundaryBlocksNode, state.boundaryBlocksRecord); 
+        // Group commit: the state may be of commits that are not yet durable.
+        if ( ! isGroupCommit() )
+            stateManager.sync();
+    }
+
+    @Override
+    public void syncCommittedData() {
+        nodeManager.getBlockMgr().sync();
+        recordsMgr.getBlockMgr().sync();
+    }
+
+    @Override
+    public void syncCommittedState() {
         stateManager.sync();
     }
 
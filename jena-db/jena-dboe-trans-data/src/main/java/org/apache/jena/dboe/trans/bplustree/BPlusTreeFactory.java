@@ -22,6 +22,7 @@ import org.apache.jena.dboe.DBOpEnvException;
 import org.apache.jena.dboe.base.block.BlockMgr;
 import org.apache.jena.dboe.base.block.BlockMgrFactory;
 import org.apache.jena.dboe.base.block.BlockMgrLogger;
+import org.apache.jena.dboe.base.block.FileMode;
 import org.apache.jena.dboe.base.file.BufferChannel;
 import org.apache.jena.dboe.base.file.BufferChannelMem;
 import org.apache.jena.dboe.base.file.FileFactory;
@@ -90,6 +91,24 @@ public class BPlusTreeFactory {
 
     /** Create a B+Tree using defaults */
     public static BPlusTree createBPTree(ComponentId cid, FileSet fileset, RecordFactory factory)
+    {
+        return createBPTree(cid, fileset, factory, false) ;
+    }
+
+    /** Create a B+Tree using defaults, with or without packed leaves (see {@link LeafPacking}). */
+    public static BPlusTree createBPTree(ComponentId cid, FileSet fileset, RecordFactory factory, boolean packedLeaves)
+    {
+        return createBPTree(cid, fileset, factory, packedLeaves, null, SystemIndex.BlockCachePoolSize) ;
+    }
+
+    /**
+     * Create a B+Tree using defaults, with or without packed leaves, in the given file mode
+     * (null for the system default), reading blocks through the
+     * {@link org.apache.jena.dboe.base.block.BlockCachePool} of the location if
+     * {@code blockCachePoolSize} is greater than zero (direct file mode only).
+     */
+    public static BPlusTree createBPTree(ComponentId cid, FileSet fileset, RecordFactory factory, boolean packedLeaves,
+                                         FileMode fileMode, long blockCachePoolSize)
     {
         int readCacheSize = SystemIndex.BlockReadCacheSize ;
         int writeCacheSize = SystemIndex.BlockWriteCacheSize ;
@@ -101,7 +120,7 @@ public class BPlusTreeFactory {
             blockSize = SystemIndex.BlockSizeTest ;
         }
         
-        return createBPTreeByBlockSize(cid, fileset, blockSize, readCacheSize, writeCacheSize, factory) ; 
+        return createBPTree(cid, fileset, -1, blockSize, readCacheSize, writeCacheSize, factory, packedLeaves, fileMode, blockCachePoolSize) ; 
     }
 
     /** Create a B+Tree by BlockSize */
@@ -134,6 +153,22 @@ public class BPlusTreeFactory {
     public static BPlusTree createBPTree(ComponentId cid, FileSet fileset, int order, int blockSize,
                                          int readCacheSize, int writeCacheSize,
                                          RecordFactory factory)
+    {
+        return createBPTree(cid, fileset, order, blockSize, readCacheSize, writeCacheSize, factory, false) ;
+    }
+
+    /** Knowing all the parameters, create a B+Tree */
+    public static BPlusTree createBPTree(ComponentId cid, FileSet fileset, int order, int blockSize,
+                                         int readCacheSize, int writeCacheSize,
+                                         RecordFactory factory, boolean packedLeaves)
+    {
+        return createBPTree(cid, fileset, order, blockSize, readCacheSize, writeCacheSize, factory, packedLeaves, null, SystemIndex.BlockCachePoolSize) ;
+    }
+
+    /** Knowing all the parameters, create a B+Tree */
+    public static BPlusTree createBPTree(ComponentId cid, FileSet fileset, int order, int blockSize,
+                                         int readCacheSize, int writeCacheSize,
+                                         RecordFactory factory, boolean packedLeaves, FileMode fileMode, long blockCachePoolSize)
     {
         // ---- Checking
         if (blockSize < 0 && order < 0) throw new IllegalArgumentException("Neither blocksize nor order specified") ;
@@ -151,10 +186,10 @@ public class BPlusTreeFactory {
             blockSize = BPlusTreeParams.calcBlockSize(order, factory) ;
         }
     
-        BPlusTreeParams params = new BPlusTreeParams(order, factory) ;
+        BPlusTreeParams params = new BPlusTreeParams(order, factory, packedLeaves) ;
         BufferChannel bptState = FileFactory.createBufferChannel(fileset, Names.extBptState) ;
-        BlockMgr blkMgrNodes = BlockMgrFactory.create(fileset, Names.extBptTree, blockSize, readCacheSize, writeCacheSize) ;
-        BlockMgr blkMgrRecords = BlockMgrFactory.create(fileset, Names.extBptRecords, blockSize, readCacheSize, writeCacheSize) ;
+        BlockMgr blkMgrNodes = BlockMgrFactory.create(fileset, Names.extBptTree, fileMode, blockSize, readCacheSize, writeCacheSize, blockCachePoolSize) ;
+        BlockMgr blkMgrRecords = BlockMgrFactory.create(fileset, Names.extBptRecords, fileMode, blockSize, readCacheSize, writeCacheSize, blockCachePoolSize) ;
         return BPlusTreeFactory.create(cid, params, bptState, blkMgrNodes, blkMgrRecords) ;
     }
 
@@ -181,8 +216,14 @@ public class BPlusTreeFactory {
         
         BPTreeNodeMgr nodeManager = new BPTreeNodeMgr(bpt, blkMgrNodes) ;
         
-        RecordBufferPageMgr recordPageMgr = new RecordBufferPageMgr(params.getRecordFactory(), blkMgrRecords) ;
-        BPTreeRecordsMgr recordsMgr = new BPTreeRecordsMgr(bpt, params.getRecordFactory(), recordPageMgr) ;
+        LeafPacking packing = null ;
+        RecordBufferPageMgr recordPageMgr ;
+        if ( params.isPackedLeaves() ) {
+            packing = new LeafPacking(params.getRecordFactory()) ;
+            recordPageMgr = new RecordBufferPageMgr(params.getRecordFactory(), blkMgrRecords, packing.getConverter()) ;
+        } else
+            recordPageMgr = new RecordBufferPageMgr(params.getRecordFactory(), blkMgrRecords) ;
+        BPTreeRecordsMgr recordsMgr = new BPTreeRecordsMgr(bpt, params.getRecordFactory(), recordPageMgr, packing) ;
         
         createIfAbsent(isReset, stateMgr, nodeManager, recordsMgr) ;
         
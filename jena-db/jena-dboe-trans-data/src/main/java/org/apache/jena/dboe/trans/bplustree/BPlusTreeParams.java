@@ -60,6 +60,9 @@ final public class BPlusTreeParams
     /** Factory for key-only records */ 
     final RecordFactory keyFactory ;
     
+    /** Are the leaves stored prefix-compressed? See {@link LeafPacking} */
+    final boolean packedLeaves ;
+    
     // ---- Derived constants.
 
     /** Maximum number of keys per non-leaf block */
@@ -125,6 +128,14 @@ final public class BPlusTreeParams
     }
     
     public BPlusTreeParams(int order, RecordFactory factory) {
+        this(order, factory, false) ;
+    }
+    
+    /** 
+     * B+Tree parameters, with or without packed leaves.
+     * Once a B+Tree has been used with packed leaves, it must always be used with packed leaves. 
+     */
+    public BPlusTreeParams(int order, RecordFactory factory, boolean packedLeaves) {
         // BTrees of order one aren't strictly BTrees
         // Order 1 => Min size = 0 and max size = 2*N-1 = 1.
         // If there is a gap, then the code may be defensive enough
@@ -137,6 +148,7 @@ final public class BPlusTreeParams
         this.order = order ;
         recordFactory = factory ;
         keyFactory = factory.keyFactory() ;
+        this.packedLeaves = packedLeaves ;
 
         // Derived constants.
         MaxRec  = 2*order-1 + Gap ;
@@ -154,6 +166,10 @@ final public class BPlusTreeParams
         return order ;
     }
 
+    public boolean isPackedLeaves() {
+        return packedLeaves ;
+    }
+
     public int getPtrLength() {
         return SizeOfPointer ;
     }
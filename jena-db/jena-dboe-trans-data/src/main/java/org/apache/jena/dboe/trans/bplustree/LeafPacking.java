@@ -0,0 +1,259 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.dboe.trans.bplustree;
+
+import static org.apache.jena.dboe.base.recordbuffer.RecordBufferPage.COUNT ;
+import static org.apache.jena.dboe.base.recordbuffer.RecordBufferPage.LINK ;
+
+import java.nio.ByteBuffer ;
+
+import org.apache.jena.dboe.base.block.Block ;
+import org.apache.jena.dboe.base.block.BlockType ;
+import org.apache.jena.dboe.base.page.Page ;
+import org.apache.jena.dboe.base.record.RecordException ;
+import org.apache.jena.dboe.base.record.RecordFactory ;
+import org.apache.jena.dboe.base.recordbuffer.RecordBufferPage ;
+import org.apache.jena.dboe.base.recordbuffer.RecordBufferPageMgr.Block2RecordBufferPage ;
+import org.apache.jena.dboe.sys.Sys ;
+
+/**
+ * Packed B+Tree leaves: the records of a leaf block are stored prefix-compressed.
+ * <p>
+ * The records of a leaf are in key order so each record usually has leading bytes
+ * in common with the one before it. In a packed block, a record is written as one
+ * byte for the length of the prefix it shares with the previous record, then the
+ * rest of the record; the first record is written in full. For indexes of tuples
+ * of fixed width ids, such as the tuple indexes of a triple store, this is a delta
+ * encoding of each record against the previous one.
+ * <p>
+ * A page is decoded into a buffer of its own (see
+ * {@link RecordBufferPage#createDetached}) and encoded when it is written to the
+ * block. A packed page can hold up to {@link #MaxExpansion} times the records of a
+ * plain block; whether it is full, or at the minimum size, depends on the space the
+ * encoded records take. The buffer of a page read from a block has room for only
+ * the records it holds, so reads do not allocate for the expansion;
+ * {@link #writable} gives a page with the full buffer before the page is changed. The limits are chosen so that the B+Tree operations always
+ * fit: an insert into a page that is not full, a shift into a page that is at the
+ * minimum size and a merge of two pages at the minimum size.
+ * <p>
+ * Blocks in the plain format are read as well, and are packed when next written, so
+ * packing can be switched on for an existing B+Tree. A packed block can not be
+ * read with packing off.
+ */
+public class LeafPacking {
+    /** Flag in the count field of a packed block. */
+    static final int PackedFlag         = 0x80000000 ;
+    /** Count and link fields. */
+    static final int HeaderLength       = LINK + Sys.SizeOfInt ;
+    /** Maximum number of records in a page, as a multiple of the number in a plain block. */ 
+    public static final int MaxExpansion = 4 ;
+
+    private final RecordFactory factory ;
+    private final int recordLength ;
+    private final Block2RecordBufferPage converter ;
+
+    public LeafPacking(RecordFactory factory) {
+        this.factory = factory ;
+        this.recordLength = factory.recordLength() ;
+        // The prefix length is one byte.
+        if ( recordLength > 0xFF )
+            throw new BPTreeException("Record too long for packed leaves: "+recordLength) ;
+        this.converter = new Block2PackedRecordBufferPage(factory) ;
+    }
+
+    /** The block format of packed leaves. */
+    public Block2RecordBufferPage getConverter() {
+        return converter ;
+    }
+
+    /** Can the page take another record? */
+    public boolean isFull(RecordBufferPage page) {
+        if ( ! page.isDetached() )
+            return page.getCount() >= page.getMaxSize() ;
+        if ( page.getCount() >= maxRecords(page.getBackingBlock()) )
+            return true ;
+        // Room for a record written in full.
+        return encodedLength(page) + recordLength + 1 > capacity(page.getBackingBlock()) ;
+    }
+
+    /** Is the page at, or below, the minimum size? */
+    public boolean isMinSize(RecordBufferPage page) {
+        if ( ! page.isDetached() )
+            return page.getCount() <= page.getMaxSize() / 2 ;
+        if ( page.getCount() > maxRecords(page.getBackingBlock()) / 2 )
+            return false ;
+        return encodedLength(page) <= capacity(page.getBackingBlock()) / 2 ;
+    }
+
+    /**
+     * A page that can take the maximum number of records: the page itself, or a
+     * copy with the full buffer for a page read from a block.
+     */
+    public RecordBufferPage writable(RecordBufferPage page) {
+        if ( ! page.isDetached() )
+            return page ;
+        Block block = page.getBackingBlock() ;
+        ByteBuffer records = page.getDetachedRecords() ;
+        if ( records.capacity() >= maxRecords(block) * recordLength )
+            return page ;
+        ByteBuffer bb = allocate(block) ;
+        System.arraycopy(records.array(), 0, bb.array(), 0, page.getCount() * recordLength) ;
+        return RecordBufferPage.createDetached(block, factory, bb, page.getCount(), page.getLink()) ;
+    }
+
+    /** Number of records, from the start of the page, that fit in the block when packed. */
+    public int fitCount(RecordBufferPage page) {
+        if ( ! page.isDetached() )
+            return page.getCount() ;
+        byte[] records = page.getDetachedRecords().array() ;
+        int space = capacity(page.getBackingBlock()) ;
+        int length = 0 ;
+        for ( int i = 0 ; i < page.getCount() ; i++ ) {
+            length += entryLength(records, i) ;
+            if ( length > space )
+                return i ;
+        }
+        return page.getCount() ;
+    }
+
+    /** The number of bytes the records of the page take when packed. */
+    public int encodedLength(RecordBufferPage page) {
+        byte[] records = page.getDetachedRecords().array() ;
+        int length = 0 ;
+        for ( int i = 0 ; i < page.getCount() ; i++ )
+            length += entryLength(records, i) ;
+        return length ;
+    }
+
+    private int entryLength(byte[] records, int idx) {
+        if ( idx == 0 )
+            return 1 + recordLength ;
+        return 1 + recordLength - commonPrefix(records, idx) ;
+    }
+
+    // Length of the prefix record idx has in common with record idx-1.
+    private int commonPrefix(byte[] records, int idx) {
+        int x1 = (idx-1)*recordLength ;
+        int x2 = idx*recordLength ;
+        int i = 0 ;
+        while ( i < recordLength && records[x1+i] == records[x2+i] )
+            i++ ;
+        return i ;
+    }
+
+    private static int capacity(Block block) {
+        return block.getByteBuffer().capacity() - HeaderLength ;
+    }
+
+    /** Maximum number of records of a page for the block. */
+    private int maxRecords(Block block) {
+        int space = capacity(block) ;
+        // The smallest entry is two bytes : keys are unique so the prefix is never the whole record.
+        int plainMax = RecordBufferPage.calcRecordSize(factory, block.getByteBuffer().capacity()) ;
+        int max = Math.min(MaxExpansion * plainMax, space / 2) ;
+        // A page at the minimum size must have room for a record written in full. 
+        if ( space < 2 * (recordLength + 1) )
+            throw new RecordException("Block too small for packed leaves: "+block.getByteBuffer().capacity()) ;
+        return max ;
+    }
+
+    private ByteBuffer allocate(Block block) {
+        return ByteBuffer.allocate(maxRecords(block) * recordLength) ;
+    }
+
+    private void encode(RecordBufferPage page, ByteBuffer bb) {
+        int count = page.getCount() ;
+        byte[] records = page.getDetachedRecords().array() ;
+        if ( encodedLength(page) > capacity(page.getBackingBlock()) )
+            throw new RecordException("Packed records do not fit in block "+page.getId()) ;
+        ByteBuffer out = bb.duplicate() ;
+        out.clear() ;
+        out.position(HeaderLength) ;
+        for ( int i = 0 ; i < count ; i++ ) {
+            int prefix = ( i == 0 ) ? 0 : commonPrefix(records, i) ;
+            out.put((byte)prefix) ;
+            out.put(records, i*recordLength+prefix, recordLength-prefix) ;
+        }
+        bb.putInt(COUNT, count | PackedFlag) ;
+        bb.putInt(LINK, page.getLink()) ;
+    }
+
+    private void decode(Block block, int count, byte[] records) {
+        ByteBuffer in = block.getByteBuffer().duplicate() ;
+        in.clear() ;
+        in.position(HeaderLength) ;
+        for ( int i = 0 ; i < count ; i++ ) {
+            int x = i*recordLength ;
+            int prefix = in.get() & 0xFF ;
+            if ( prefix > recordLength || ( i == 0 && prefix != 0 ) )
+                throw new RecordException("Corrupt packed block "+block.getId()+" : record "+i) ;
+            if ( prefix > 0 )
+                System.arraycopy(records, x-recordLength, records, x, prefix) ;
+            in.get(records, x+prefix, recordLength-prefix) ;
+        }
+    }
+
+    /** Converter between blocks, packed or plain, and detached {@link RecordBufferPage}s. */
+    private class Block2PackedRecordBufferPage extends Block2RecordBufferPage {
+        Block2PackedRecordBufferPage(RecordFactory factory) {
+            super(factory) ;
+        }
+
+        @Override
+        public RecordBufferPage createFromBlock(Block block, BlockType blkType) {
+            if ( blkType != BlockType.RECORD_BLOCK )
+                throw new RecordException("Not RECORD_BLOCK: " + blkType) ;
+            return RecordBufferPage.createDetached(block, factory, allocate(block), 0, Page.NO_ID) ;
+        }
+
+        @Override
+        public RecordBufferPage fromBlock(Block block) {
+            synchronized (block) {
+                ByteBuffer bb = block.getByteBuffer() ;
+                int count = bb.getInt(COUNT) ;
+                int linkId = bb.getInt(LINK) ;
+                boolean packed = ( count & PackedFlag ) != 0 ;
+                count = count & ~PackedFlag ;
+                if ( count > maxRecords(block) )
+                    throw new RecordException("Block "+block.getId()+" has too many records: "+count) ;
+                // Room for the records read: see writable().
+                ByteBuffer records = ByteBuffer.allocate(count * recordLength) ;
+                if ( packed ) {
+                    decode(block, count, records.array()) ;
+                } else {
+                    // Plain block.
+                    ByteBuffer in = bb.duplicate() ;
+                    in.clear() ;
+                    in.position(HeaderLength) ;
+                    in.get(records.array(), 0, count * recordLength) ;
+                }
+                return RecordBufferPage.createDetached(block, factory, records, count, linkId) ;
+            }
+        }
+
+        @Override
+        public Block toBlock(RecordBufferPage rbp) {
+            if ( ! rbp.isDetached() )
+                return super.toBlock(rbp) ;
+            encode(rbp, rbp.getBackingBlock().getByteBuffer()) ;
+            return rbp.getBackingBlock() ;
+        }
+    }
+}
@@ -112,7 +112,6 @@ public class BPlusTreeRewriter {
         }
         fixupRoot(root, pair, bpt2) ;
         // ****** Finish the tree.
-        //bpt2.getStateManager().
         blkMgrNodes.sync() ;
         blkMgrRecords.sync() ;
         return bpt2 ;
@@ -128,7 +127,8 @@ public class BPlusTreeRewriter {
         }
 
         final RecordBufferPageMgr mgr = bpt.getRecordsMgr().getRecordBufferPageMgr() ;
-        Iterator<RecordBufferPage> iter = new RecordBufferPageLinker(new RecordBufferPagePacker(records, mgr)) ;
+        LeafPacking packing = bpt.getRecordsMgr().getLeafPacking() ;
+        Iterator<RecordBufferPage> iter = new RecordBufferPageLinker(new RecordBufferPagePacker(records, mgr, packing)) ;
 
         // Write and convert to split pairs.
         Iterator<Pair<Integer, Record>> iter2 = Iter.map(iter, rbp-> {
@@ -176,14 +176,17 @@ public class BPlusTreeRewriter {
             RecordBufferPageMgr mgr = bpt.getRecordsMgr().getRecordBufferPageMgr() ;
             RecordBufferPage page1 = mgr.getWrite(id1) ;
             RecordBufferPage page2 = mgr.getWrite(id2) ;
-
-            // Wrong calculatation.
-            for ( int i = page2.getCount() ; i < page1.getMaxSize() / 2 ; i++ ) {
-                // shiftOneup(node1, node2) ;
-                Record r = page1.getRecordBuffer().getHigh() ;
-                page1.getRecordBuffer().removeTop() ;
-
-                page2.getRecordBuffer().add(0, r) ;
+            LeafPacking packing = bpt.getRecordsMgr().getLeafPacking() ;
+
+            if ( packing == null ) {
+                // Wrong calculatation.
+                for ( int i = page2.getCount() ; i < page1.getMaxSize() / 2 ; i++ )
+                    shiftOneUp(page1, page2) ;
+            } else {
+                // By space. Each shift adds at most one record written in full.
+                page2 = packing.writable(page2) ;
+                while ( packing.isMinSize(page2) && page1.getCount() > 1 )
+                    shiftOneUp(page1, page2) ;
             }
 
             mgr.put(page1) ;
@@ -194,6 +197,12 @@ public class BPlusTreeRewriter {
             // Record splitPoint = node1.maxRecord() ;
             return splitPoint ;
         }
+
+        private static void shiftOneUp(RecordBufferPage page1, RecordBufferPage page2) {
+            Record r = page1.getRecordBuffer().getHigh() ;
+            page1.getRecordBuffer().removeTop() ;
+            page2.getRecordBuffer().add(0, r) ;
+        }
     }
 
     // ---------------------------------------------------------------------------------------------
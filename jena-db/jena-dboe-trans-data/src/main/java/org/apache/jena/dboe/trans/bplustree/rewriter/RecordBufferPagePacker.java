@@ -18,6 +18,8 @@
 
 package org.apache.jena.dboe.trans.bplustree.rewriter ;
 
+import java.util.ArrayDeque ;
+import java.util.Deque ;
 import java.util.Iterator ;
 import java.util.NoSuchElementException ;
 
@@ -25,6 +27,7 @@ import org.apache.jena.dboe.base.buffer.RecordBuffer;
 import org.apache.jena.dboe.base.record.Record;
 import org.apache.jena.dboe.base.recordbuffer.RecordBufferPage;
 import org.apache.jena.dboe.base.recordbuffer.RecordBufferPageMgr;
+import org.apache.jena.dboe.trans.bplustree.LeafPacking;
 
 /**
  * Iterate over a stream of records, packing them into RecordBufferPage -- the
@@ -38,19 +41,24 @@ class RecordBufferPagePacker implements Iterator<RecordBufferPage> {
     Iterator<Record>    records          = null ;
     RecordBufferPage    recordBufferPage = null ;
     RecordBufferPageMgr rbMgr            = null ;
+    LeafPacking         packing          = null ;
+    // Records that did not fit in the last packed page, in order.
+    private final Deque<Record> pushback = new ArrayDeque<>() ;
 
     RecordBufferPagePacker(Iterator<Record> records, RecordBufferPageMgr rbMgr) {
+        this(records, rbMgr, null) ;
+    }
+
+    RecordBufferPagePacker(Iterator<Record> records, RecordBufferPageMgr rbMgr, LeafPacking packing) {
         this.records = records ;
         this.rbMgr = rbMgr ;
+        this.packing = packing ;
     }
 
     @Override
     public boolean hasNext() {
         if ( recordBufferPage == null ) {
-            if ( records == null )
-                return false ;
-
-            if ( !records.hasNext() ) {
+            if ( !moreRecords() ) {
                 records = null ;
                 return false ;
             }
@@ -63,18 +71,39 @@ class RecordBufferPagePacker implements Iterator<RecordBufferPage> {
             recordBufferPage = rbMgr.create() ;
 
             RecordBuffer rb = recordBufferPage.getRecordBuffer() ;
-            while (!rb.isFull() && records.hasNext()) {
-                Record r = records.next() ;
+            while (!rb.isFull() && moreRecords()) {
+                Record r = nextRecord() ;
                 rb.add(r) ;
             }
-            if ( !records.hasNext() )
-                records = null ;
+            if ( packing != null )
+                fitPacked(rb) ;
             return true ;
         }
         return true ;
 
     }
 
+    private boolean moreRecords() {
+        return !pushback.isEmpty() || ( records != null && records.hasNext() ) ;
+    }
+
+    private Record nextRecord() {
+        Record r = pushback.pollFirst() ;
+        return ( r != null ) ? r : records.next() ;
+    }
+
+    // Keep the records that fit in the block when packed; the rest go in the next page.
+    private void fitPacked(RecordBuffer rb) {
+        int n = packing.fitCount(recordBufferPage) ;
+        if ( n == rb.size() )
+            return ;
+        // Ahead of any records still pushed back from the page before.
+        for ( int i = rb.size()-1 ; i >= n ; i-- )
+            pushback.addFirst(rb.get(i)) ;
+        rb.clear(n, rb.size() - n) ;
+        rb.setSize(n) ;
+    }
+
     @Override
     public RecordBufferPage next() {
         if ( !hasNext() )
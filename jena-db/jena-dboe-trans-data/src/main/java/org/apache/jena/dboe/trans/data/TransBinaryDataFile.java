@@ -131,7 +131,9 @@ public class TransBinaryDataFile extends TransactionalComponentLifecycle<TransBi
     @Override
     protected ByteBuffer _commitPrepare(TxnId txnId, TxnBinFile state) {
         // Force to disk but do not set the on disk state to record that.
-        binFile.sync();
+        // Group commit: synced in syncCommittedData.
+        if ( ! isGroupCommit() )
+            binFile.sync();
         stateMgr.length(binFile.length()) ;
         return stateMgr.getState() ;
     }
@@ -140,7 +142,9 @@ public class TransBinaryDataFile extends TransactionalComponentLifecycle<TransBi
     protected void _commit(TxnId txnId, TxnBinFile state) {
         if ( isWriteTxn() ) {
             // Force to disk happens in _commitPrepare
-            stateMgr.writeState();
+            // Group commit: written in syncCommittedState.
+            if ( ! isGroupCommit() )
+                stateMgr.writeState();
             // Move visible commit point forward (not strictly necessary - transaction is ending. 
             committedLength.set(binFile.length()) ;
         }
@@ -158,6 +162,16 @@ public class TransBinaryDataFile extends TransactionalComponentLifecycle<TransBi
         }
     }
 
+    @Override
+    public void syncCommittedData() {
+        binFile.sync();
+    }
+
+    @Override
+    public void syncCommittedState() {
+        stateMgr.writeState();
+    }
+
     @Override
     protected void _complete(TxnId txnId, TxnBinFile state) {}
 
@@ -30,6 +30,7 @@ import org.junit.runners.Suite ;
     TestBPlusTreeIndexNonTxn.class,
     TestBPlusTreeNonTxn.class,
     TestBPTreeModes.class,
+    TestBPlusTreePackedNonTxn.class,
     
     // Transactional tests
     TestBPlusTreeTxn.class,
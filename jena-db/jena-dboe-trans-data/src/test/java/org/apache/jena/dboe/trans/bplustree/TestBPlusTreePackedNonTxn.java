@@ -0,0 +1,219 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.jena.dboe.trans.bplustree ;
+
+import java.util.ArrayList ;
+import java.util.List ;
+
+import org.apache.jena.atlas.lib.Bytes ;
+import org.apache.jena.dboe.base.block.BlockMgr;
+import org.apache.jena.dboe.base.block.BlockMgrFactory;
+import org.apache.jena.dboe.base.file.BufferChannel;
+import org.apache.jena.dboe.base.file.BufferChannelMem;
+import org.apache.jena.dboe.base.file.FileSet;
+import org.apache.jena.dboe.base.record.Record;
+import org.apache.jena.dboe.base.record.RecordException;
+import org.apache.jena.dboe.base.record.RecordFactory;
+import org.apache.jena.dboe.base.recordbuffer.RecordBufferPage;
+import org.apache.jena.dboe.index.test.AbstractTestRangeIndex;
+import org.apache.jena.dboe.sys.Names;
+import org.apache.jena.dboe.test.RecordLib;
+import org.apache.jena.dboe.trans.bplustree.rewriter.BPlusTreeRewriter;
+import org.apache.jena.dboe.trans.bplustree.rewriter.TestBPlusTreeRewriterNonTxn;
+import org.apache.jena.dboe.transaction.txn.ComponentId;
+import org.junit.AfterClass ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** Run the tests for a tree with packed leaves in "non-transactional" mode */ 
+public class TestBPlusTreePackedNonTxn extends AbstractTestRangeIndex {
+    static boolean originalCheckingNode ;
+    @BeforeClass
+    static public void beforeClass() {
+        originalCheckingNode = BPT.CheckingNode ;
+        BPT.CheckingNode = true ;
+    }
+
+    @AfterClass
+    static public void afterClass() {
+        BPT.CheckingNode = originalCheckingNode ;
+    }
+
+    @Override
+    protected BPlusTree makeRangeIndex(int order, int minRecords) {
+        RecordFactory factory = new RecordFactory(RecordLib.TestRecordLength, 0) ;
+        int blkSize = ( minRecords > 0 )
+            ? RecordBufferPage.calcBlockSize(factory, 2 * minRecords)
+            : BPlusTreeParams.calcBlockSize(order, factory) ;
+        BPlusTree bpt = make(new BPlusTreeParams(order, factory, true), blkSize) ;
+        bpt.nonTransactional() ;
+        return bpt ;
+    }
+
+    // Key, then value : records with keys in order share leading bytes.
+    static RecordFactory recordFactory = new RecordFactory(16, 8) ;
+    static int BlockSize = 1024 ;
+    
+    private static BPlusTree make(BPlusTreeParams params, int blkSize) {
+        return make(params, blkSize, BufferChannelMem.create("Packed(root)"), 
+                    BlockMgrFactory.createMem("Packed(records)", blkSize)) ;
+    }
+
+    private static BPlusTree make(BPlusTreeParams params, int blkSize, BufferChannel chan, BlockMgr blkMgrRecords) {
+        BlockMgr blkMgrNodes = BlockMgrFactory.createMem("Packed(nodes)", params.getCalcBlockSize()) ;
+        return BPlusTreeFactory.create(ComponentId.allocLocal(), params, chan, blkMgrNodes, blkMgrRecords) ;
+    }
+
+    private static BPlusTreeParams params(boolean packed) {
+        int order = BPlusTreeParams.calcOrder(BlockSize, recordFactory) ;
+        return new BPlusTreeParams(order, recordFactory, packed) ;
+    }
+
+    private static List<Record> data(int N, int step) {
+        List<Record> data = new ArrayList<>(N) ;
+        for ( int i = 0 ; i < N ; i++ ) {
+            Record record = recordFactory.create() ;
+            Bytes.setLong(i*step, record.getKey(), 8) ;
+            Bytes.setLong(i, record.getValue()) ;
+            data.add(record) ;
+        }
+        return data ;
+    }
+
+    private static BPlusTree load(BPlusTree bpt, List<Record> data) {
+        bpt.nonTransactional() ;
+        data.forEach(bpt::insert) ;
+        return bpt ;
+    }
+
+    private static long leafBlocks(BPlusTree bpt) {
+        return bpt.getRecordsMgr().allocLimit() ;
+    }
+
+    @Test public void packed_fewer_blocks() {
+        List<Record> data = data(5000, 1) ;
+        BPlusTree plain = load(make(params(false), BlockSize), data) ;
+        BPlusTree packed = load(make(params(true), BlockSize), data) ;
+        TestBPlusTreeRewriterNonTxn.scanComparision(data, packed) ;
+        TestBPlusTreeRewriterNonTxn.findComparison(data, packed) ;
+        packed.check() ;
+        assertTrue(leafBlocks(packed) * 2 < leafBlocks(plain)) ;
+    }
+
+    @Test public void packed_read_buffer() {
+        // A page read from a block has room for its records only, until changed.
+        List<Record> data = data(2000, 1) ;
+        BPlusTree bpt = load(make(params(true), BlockSize), data) ;
+        BPTreeRecords page = bpt.getRecordsMgr().getRead(0) ;
+        RecordBufferPage rbp = page.getRecordBufferPage() ;
+        assertEquals(rbp.getCount() * recordFactory.recordLength(), rbp.getDetachedRecords().capacity()) ;
+        RecordBufferPage rbp2 = bpt.getRecordsMgr().getLeafPacking().writable(rbp) ;
+        assertEquals(rbp.getCount(), rbp2.getCount()) ;
+        assertTrue(rbp2.getMaxSize() > rbp.getCount()) ;
+        assertEquals(rbp.getRecordBuffer().getHigh(), rbp2.getRecordBuffer().getHigh()) ;
+        page.release() ;
+    }
+
+    @Test public void packed_delete() {
+        List<Record> data = data(3000, 7) ;
+        BPlusTree bpt = load(make(params(true), BlockSize), data) ;
+        List<Record> remaining = new ArrayList<>() ;
+        for ( int i = 0 ; i < data.size() ; i++ ) {
+            if ( i % 3 == 0 )
+                remaining.add(data.get(i)) ;
+            else
+                bpt.delete(data.get(i)) ;
+        }
+        bpt.check() ;
+        TestBPlusTreeRewriterNonTxn.scanComparision(remaining, bpt) ;
+        remaining.forEach(bpt::delete) ;
+        assertTrue(bpt.isEmpty()) ;
+    }
+
+    @Test public void packed_replace() {
+        List<Record> data = data(2000, 1) ;
+        BPlusTree bpt = load(make(params(true), BlockSize), data) ;
+        // Same keys, values that do not compress.
+        List<Record> data2 = new ArrayList<>() ;
+        for ( Record r : data ) {
+            Record r2 = recordFactory.create(r.getKey()) ;
+            Bytes.setLong(~Bytes.getLong(r.getKey(), 8) * 0x9E3779B97F4A7C15L, r2.getValue()) ;
+            data2.add(r2) ;
+        }
+        data2.forEach(bpt::insert) ;
+        bpt.check() ;
+        TestBPlusTreeRewriterNonTxn.scanComparision(data2, bpt) ;
+    }
+
+    @Test public void packed_from_plain() {
+        // Plain blocks are read, and packed when written.
+        List<Record> data = data(2000, 3) ;
+        BufferChannel chan = BufferChannelMem.create("Packed(root)") ;
+        BlockMgr blkMgrRecords = BlockMgrFactory.createMem("Packed(records)", BlockSize) ;
+        BPlusTree plain = load(make(params(false), BlockSize, chan, blkMgrRecords), data.subList(0, 1000)) ;
+        BPT.setStateFromStorage(plain) ;
+        BPlusTree packed = BPlusTreeFactory.create(ComponentId.allocLocal(), params(true), chan, 
+                                                   plain.getNodeManager().getBlockMgr(), blkMgrRecords) ;
+        load(packed, data.subList(1000, 2000)) ;
+        packed.check() ;
+        TestBPlusTreeRewriterNonTxn.scanComparision(data, packed) ;
+        TestBPlusTreeRewriterNonTxn.findComparison(data, packed) ;
+    }
+
+    @Test(expected=RecordException.class)
+    public void packed_not_plain() {
+        List<Record> data = data(100, 1) ;
+        BufferChannel chan = BufferChannelMem.create("Packed(root)") ;
+        BlockMgr blkMgrRecords = BlockMgrFactory.createMem("Packed(records)", BlockSize) ;
+        BPlusTree packed = load(make(params(true), BlockSize, chan, blkMgrRecords), data) ;
+        BPT.setStateFromStorage(packed) ;
+        BPlusTree plain = BPlusTreeFactory.create(ComponentId.allocLocal(), params(false), chan, 
+                                                  packed.getNodeManager().getBlockMgr(), blkMgrRecords) ;
+        plain.nonTransactional() ;
+        plain.find(data.get(0)) ;
+    }
+
+    @Test public void packed_rewrite() {
+        List<Record> data = data(5000, 1) ;
+        BPlusTree plain = rewrite(params(false), data) ;
+        BPlusTree packed = rewrite(params(true), data) ;
+        packed.check() ;
+        TestBPlusTreeRewriterNonTxn.scanComparision(data, packed) ;
+        TestBPlusTreeRewriterNonTxn.findComparison(data, packed) ;
+        assertTrue(leafBlocks(packed) * 2 < leafBlocks(plain)) ;
+    }
+
+    @Test(timeout=60000)
+    public void packed_rewrite_large() {
+        // Many leaves : records carried over between pages must not build up.
+        List<Record> data = data(200000, 1) ;
+        BPlusTree packed = rewrite(params(true), data) ;
+        packed.check() ;
+        TestBPlusTreeRewriterNonTxn.scanComparision(data, packed) ;
+    }
+
+    private static BPlusTree rewrite(BPlusTreeParams params, List<Record> data) {
+        FileSet destination = FileSet.mem() ;
+        BufferChannel rootState = BufferChannelMem.create("Packed(root)") ;
+        BlockMgr blkMgrNodes = BlockMgrFactory.create(destination, Names.extBptTree, BlockSize, 10, 10) ;
+        BlockMgr blkMgrRecords = BlockMgrFactory.create(destination, Names.extBptRecords, BlockSize, 10, 10) ;
+        return BPlusTreeRewriter.packIntoBPlusTree(data.iterator(), params, recordFactory, rootState, blkMgrNodes, blkMgrRecords) ;
+    }
+}
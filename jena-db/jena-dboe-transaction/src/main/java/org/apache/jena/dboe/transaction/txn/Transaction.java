@@ -60,6 +60,8 @@ public class Transaction implements TransactionInfo {
     //private TxnState state ;
     private long dataVersion ;
     private ReadWrite mode ;
+    // Group commit: the prepared states, held by the coordinator until the commit.
+    /*package*/ List<PrepareState> prepareStates = null ;
     
     public Transaction(TransactionCoordinator txnMgr, TxnId txnId, ReadWrite readWrite, long dataVersion, List<SysTrans> components) {
         Objects.requireNonNull(txnMgr) ;
@@ -98,6 +100,15 @@ public class Transaction implements TransactionInfo {
         return dataVersion ;
     }
 
+    /** Whether the commit of this transaction does not sync, and is made
+     * durable by the coordinator with the commits of other transactions.
+     * @see TransactionCoordinator#setGroupCommit
+     */
+    public boolean isGroupCommit() {
+        TransactionCoordinator tc = txnMgr ;
+        return tc != null && tc.isGroupCommit() ;
+    }
+
     public void begin() {
         checkState(INACTIVE);
         components.forEach((c) -> c.begin()) ;
@@ -24,7 +24,9 @@ import static org.apache.jena.query.ReadWrite.WRITE ;
 import java.nio.ByteBuffer ;
 import java.util.ArrayList ;
 import java.util.Iterator ;
+import java.util.LinkedHashMap ;
 import java.util.List ;
+import java.util.Map ;
 import java.util.Objects ;
 import java.util.concurrent.ConcurrentHashMap ;
 import java.util.concurrent.Semaphore ;
@@ -171,6 +173,25 @@ public class TransactionCoordinator {
         }
     }
     
+    /**
+     * Enable group commit. A write transaction commits without syncing the
+     * journal or the components; the coordinator makes the commits that arrive
+     * within the latency window durable with one sync. {@code commit()} still
+     * returns only when the transaction is durable.
+     * <p>
+     * Set before the coordinator is started. A negative window disables group
+     * commit (the default).
+     */
+    public void setGroupCommit(long windowMillis) {
+        checkSetup() ;
+        this.groupCommitWindow = windowMillis ;
+    }
+
+    /** Whether write transactions commit as a group; see {@link #setGroupCommit}. */
+    public boolean isGroupCommit() {
+        return groupCommitWindow >= 0 ;
+    }
+
     public void setQuorumGenerator(QuorumGenerator qGen) {
         checkSetup() ;
         this.quorumGenerator = qGen ;
@@ -663,24 +684,52 @@ public class TransactionCoordinator {
     /** Signal that the transaction has finished. */  
     /*package*/ void completed(Transaction transaction) {
         finishActiveTransaction(transaction);
+        if ( isGroupCommit() ) {
+            // The journal is cleared by the group sync.
+            synchronized(coordinatorLock) {
+                clearPrepare(transaction) ;
+            }
+            return ;
+        }
         journal.reset() ;
     }
 
     /*package*/ void executePrepare(Transaction transaction) {
         // Do here because it needs access to the journal.
         notifyPrepareStart(transaction);
-        transaction.getComponents().forEach(sysTrans -> {
+        List<PrepareState> prepareStates = null ;
+        if ( isGroupCommit() ) {
+            // Kept until the group sync, so not written to the journal now.
+            prepareStates = new ArrayList<>() ;
+            synchronized(coordinatorLock) {
+                transaction.prepareStates = prepareStates ;
+                preparing = transaction ;
+            }
+        }
+        for ( SysTrans sysTrans : transaction.getComponents() ) {
             TransactionalComponent c = sysTrans.getComponent() ;
             ByteBuffer data = c.commitPrepare(transaction) ;
             if ( data != null ) {
-                PrepareState s = new PrepareState(c.getComponentId(), data) ;
-                journal.write(s) ;
+                if ( prepareStates != null ) {
+                    // Copy - the component may reuse the buffer for the next transaction.
+                    ByteBuffer bb = ByteBuffer.allocate(data.remaining()) ;
+                    bb.put(data.duplicate()) ;
+                    bb.flip() ;
+                    prepareStates.add(new PrepareState(c.getComponentId(), bb)) ;
+                } else {
+                    PrepareState s = new PrepareState(c.getComponentId(), data) ;
+                    journal.write(s) ;
+                }
             }
-        }) ;
+        }
         notifyPrepareFinish(transaction);
     }
 
     /*package*/ void executeCommit(Transaction transaction,  Runnable commit, Runnable finish) {
+        if ( isGroupCommit() ) {
+            executeGroupCommit(transaction, commit, finish) ;
+            return ;
+        }
         // This is the commit point. 
         synchronized(coordinatorLock) {
             // *** COMMIT POINT
@@ -705,9 +754,132 @@ public class TransactionCoordinator {
     
     /*package*/ void executeAbort(Transaction transaction, Runnable abort) {
         notifyAbortStart(transaction) ;
-        abort.run();
+        if ( isGroupCommit() ) {
+            // Components reset their in-memory state which must not
+            // happen during a group sync.
+            synchronized(coordinatorLock) {
+                clearPrepare(transaction) ;
+                abort.run();
+            }
+        } else
+            abort.run();
         notifyAbortFinish(transaction) ;
     }
+
+    // ---- Group commit
+    // A write transaction commits without syncing: the components make the
+    // changes visible and remember their state, and the prepared states are
+    // kept by the coordinator, replacing those of earlier transactions. The
+    // committing thread then waits until a group sync has included its commit.
+    // One of the waiting threads performs the group sync, after the latency
+    // window, for all the transactions that have committed by then:
+    //   sync the data of the components,
+    //   write the latest states and a COMMIT entry to the journal, and sync it (the commit point),
+    //   write the component states, and clear the journal.
+    // Journal recovery applies the states if there is a crash after the commit point.
+
+    // Latency window in milliseconds. Negative for no group commit.
+    private long groupCommitWindow = -1 ;
+    // The latest prepared state of each component, for transactions that have committed
+    // but are not yet durable. Guarded by coordinatorLock.
+    private final Map<ComponentId, PrepareState> groupStates = new LinkedHashMap<>() ;
+    // The transaction between prepare and commit, if any. Guarded by coordinatorLock.
+    private Transaction preparing = null ;
+
+    private final Object groupLock = new Object() ;
+    // Guarded by groupLock.
+    private long groupCommitted = 0 ;
+    private long groupDurable = 0 ;
+    private boolean groupSyncing = false ;
+
+    private void executeGroupCommit(Transaction transaction, Runnable commit, Runnable finish) {
+        long seq = -1 ;
+        synchronized(coordinatorLock) {
+            try {
+                commit.run() ;
+                finish.run() ;
+                if ( transaction.getMode() == WRITE ) {
+                    if ( transaction.prepareStates != null )
+                        transaction.prepareStates.forEach(ps -> groupStates.put(ps.getComponent(), ps)) ;
+                    advanceDataVersion() ;
+                    synchronized(groupLock) {
+                        seq = ++groupCommitted ;
+                    }
+                }
+            } finally { clearPrepare(transaction) ; }
+            notifyCommitFinish(transaction) ;
+        }
+        if ( seq > 0 )
+            awaitDurable(seq) ;
+    }
+
+    // Inside coordinatorLock.
+    private void clearPrepare(Transaction transaction) {
+        transaction.prepareStates = null ;
+        if ( preparing == transaction ) {
+            preparing = null ;
+            coordinatorLock.notifyAll() ;
+        }
+    }
+
+    /** Wait until the commit with sequence number {@code seq} is durable, performing the group sync if necessary. */
+    private void awaitDurable(long seq) {
+        for ( ;; ) {
+            synchronized(groupLock) {
+                while ( groupDurable < seq && groupSyncing ) {
+                    try { groupLock.wait() ; }
+                    catch (InterruptedException ex) { throw new TransactionException(ex) ; }
+                }
+                if ( groupDurable >= seq )
+                    return ;
+                groupSyncing = true ;
+            }
+            // This thread syncs the group.
+            try {
+                if ( groupCommitWindow > 0 ) {
+                    // Let more commits join the group.
+                    try { Thread.sleep(groupCommitWindow) ; }
+                    catch (InterruptedException ex) { Thread.currentThread().interrupt() ; }
+                }
+                long upTo = groupSync() ;
+                synchronized(groupLock) {
+                    groupDurable = Math.max(groupDurable, upTo) ;
+                }
+            } finally {
+                synchronized(groupLock) {
+                    groupSyncing = false ;
+                    groupLock.notifyAll() ;
+                }
+            }
+        }
+    }
+
+    /** Make all the committed transactions durable. Returns the last commit sequence number included. */ 
+    private long groupSync() {
+        synchronized(coordinatorLock) {
+            // Components hold the state of a prepared transaction until it commits or aborts.
+            while ( preparing != null ) {
+                try { coordinatorLock.wait() ; }
+                catch (InterruptedException ex) { throw new TransactionException(ex) ; }
+            }
+            long upTo ;
+            synchronized(groupLock) {
+                upTo = groupCommitted ;
+            }
+            if ( groupStates.isEmpty() )
+                return upTo ;
+            components.forEachComponent(c -> c.syncCommittedData()) ;
+            // *** COMMIT POINT
+            groupStates.values().forEach(journal::write) ;
+            journal.writeJournal(JournalEntry.COMMIT) ;
+            journal.sync() ;
+            // *** COMMIT POINT
+            components.forEachComponent(c -> c.syncCommittedState()) ;
+            journal.reset() ;
+            groupStates.clear() ;
+            return upTo ;
+        }
+    }
     
     // Active transactions: this is (the missing) ConcurrentHashSet
     private final static Object dummy                   = new Object() ;    
@@ -143,6 +143,19 @@ public interface TransactionalComponent
      */
     public void complete(Transaction transaction) ;
     
+    // ---- Group commit
+    
+    /** Force the data of transactions that committed without syncing
+     *  (group commit, see {@link TransactionCoordinator#setGroupCommit})
+     *  to persistent storage. Called when no transaction is between prepare and commit.
+     */
+    public default void syncCommittedData() {}
+    
+    /** Write the persistent state for the last committed transaction (group commit).
+     *  Called after {@link #syncCommittedData} and after the state has been written to the journal.
+     */
+    public default void syncCommittedState() {}
+    
     // ---- End of operations
     
     /** Detach this component from the transaction of the current thread
@@ -405,6 +405,12 @@ public abstract class TransactionalComponentLifecycle<X> implements Transactiona
         throw new InternalErrorException("Unclear transaction state") ;
     }
 
+    /** Whether syncing is left to the coordinator's group commit (see {@link Transaction#isGroupCommit}) */
+    protected boolean isGroupCommit() {
+        Transaction txn = getTransaction();
+        return txn != null && txn.isGroupCommit() ;
+    }
+
     protected boolean isReadTxn() { return ! isWriteTxn() ; }
     
     protected boolean isWriteTxn() {
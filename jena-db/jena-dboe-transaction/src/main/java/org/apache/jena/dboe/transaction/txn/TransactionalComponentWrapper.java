@@ -87,6 +87,16 @@ public class TransactionalComponentWrapper implements TransactionalComponent {
         other.complete(transaction) ;
     }
 
+    @Override
+    public void syncCommittedData() {
+        other.syncCommittedData() ;
+    }
+
+    @Override
+    public void syncCommittedState() {
+        other.syncCommittedState() ;
+    }
+
     @Override
     public SysTransState detach() {
         return other.detach() ;
@@ -21,6 +21,7 @@ package org.apache.jena.tdb2;
 import org.apache.jena.dboe.base.file.Location;
 import org.apache.jena.query.Dataset ;
 import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.tdb2.store.DatasetGraphDeltaLog;
 import org.apache.jena.tdb2.store.DatasetGraphSwitchable;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.apache.jena.tdb2.sys.DatabaseConnection;
@@ -51,6 +52,16 @@ public class DatabaseMgr {
         return connectDatasetGraph(Location.create(location)) ;
     }
     
+    /**
+     * Create or connect to a TDB2-backed dataset where commits append the changes
+     * to a log, and the changes are applied to the indexes in the background.
+     * 
+     * @see DatasetGraphDeltaLog
+     */
+    public static DatasetGraph connectDatasetGraphDeltaLog(Location location) {
+        return DatasetGraphDeltaLog.connect(location);
+    }
+
     /**
      * Compact a datasets which must be a switchable TDB database.
      * This is the normal dataset type for on-disk TDB2 databases.
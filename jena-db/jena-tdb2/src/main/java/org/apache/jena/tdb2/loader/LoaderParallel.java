@@ -0,0 +1,438 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.loader;
+
+import java.io.IOException ;
+import java.nio.file.DirectoryStream ;
+import java.nio.file.Files ;
+import java.nio.file.Path ;
+import java.nio.file.Paths ;
+import java.util.ArrayList ;
+import java.util.List ;
+import java.util.concurrent.* ;
+
+import org.apache.jena.atlas.lib.ProgressMonitor ;
+import org.apache.jena.atlas.lib.tuple.TupleMap ;
+import org.apache.jena.atlas.logging.FmtLog ;
+import org.apache.jena.dboe.base.block.BlockMgr ;
+import org.apache.jena.dboe.base.block.BlockMgrFactory ;
+import org.apache.jena.dboe.base.file.BufferChannel ;
+import org.apache.jena.dboe.base.file.FileFactory ;
+import org.apache.jena.dboe.base.file.FileSet ;
+import org.apache.jena.dboe.base.file.Location ;
+import org.apache.jena.dboe.base.record.RecordFactory ;
+import org.apache.jena.dboe.jenax.Txn ;
+import org.apache.jena.dboe.sys.Names ;
+import org.apache.jena.dboe.sys.SystemIndex ;
+import org.apache.jena.dboe.trans.bplustree.BPT ;
+import org.apache.jena.dboe.trans.bplustree.BPlusTree ;
+import org.apache.jena.dboe.trans.bplustree.BPlusTreeParams ;
+import org.apache.jena.dboe.trans.bplustree.rewriter.BPlusTreeRewriter ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.riot.RDFDataMgr ;
+import org.apache.jena.riot.system.ProgressStreamRDF ;
+import org.apache.jena.riot.system.StreamRDF ;
+import org.apache.jena.riot.system.StreamRDFLib ;
+import org.apache.jena.shared.JenaException ;
+import org.apache.jena.shared.PrefixMapping ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.tdb2.TDBException ;
+import org.apache.jena.tdb2.setup.StoreParams ;
+import org.apache.jena.tdb2.store.DatasetGraphSwitchable ;
+import org.apache.jena.tdb2.store.DatasetGraphTDB ;
+import org.apache.jena.tdb2.store.NodeIdFactory ;
+import org.apache.jena.tdb2.store.nodetable.NodeTable ;
+import org.apache.jena.tdb2.sys.IOX ;
+import org.apache.jena.tdb2.sys.StoreConnection ;
+import org.apache.jena.tdb2.sys.SystemTDB ;
+import org.apache.jena.tdb2.sys.TDBInternal ;
+import org.slf4j.Logger ;
+import org.slf4j.LoggerFactory ;
+
+/**
+ * Multi-phase, multi-threaded bulk loader for TDB2 databases.
+ * <p>
+ * <b>Data phase:</b> the input is parsed on one thread, nodes are allocated NodeIds on
+ * the calling thread inside a write transaction, and blocks of tuples of NodeIds are
+ * passed to one thread per index (SPO, POS, OSP, GSPO, ...) which sorts the tuples
+ * into index order, spilling sorted runs to temporary files.
+ * <p>
+ * <b>Index phase:</b> each index is built bottom-up from its sorted tuples by
+ * {@link BPlusTreeRewriter}, one thread per index. The database is then reattached.
+ * <p>
+ * The indexes must be empty at the start of the load. If they are not, or the
+ * database is in-memory, the data is loaded by parsing into the dataset in a single
+ * write transaction.
+ * <p>
+ * This is the TDB2 counterpart of the TDB1 {@code tdbloader2} process.
+ */
+public class LoaderParallel {
+    private static Logger LOG = LoggerFactory.getLogger("Loader") ;
+
+    /** Number of tuples sorted in memory, per index, before spilling to disk. */
+    public static int SortChunkSize = 500*1000 ;
+    /** Number of triples and quads passed from the parser to the node phase in one batch. */
+    public static int ParseBatchSize = 10*1000 ;
+    /** Number of tuples passed from the node phase to the index threads in one block. */
+    public static int TupleBlockSize = 10*1000 ;
+    /** Tick point for messages during the data phase */
+    public static int DataTickPoint = 100*1000 ;
+    /** Number of ticks per super tick */
+    public static int SuperTick = 10 ;
+
+    // Blocks queued for each thread.
+    private static final int QueueSize = 10 ;
+
+    /** Load the files into a database. */
+    public static void load(DatasetGraph dsg, List<String> urls, boolean showProgress) {
+        DatasetGraphTDB dsgtdb = TDBInternal.requireStorage(dsg) ;
+        Location location = dsgtdb.getLocation() ;
+        if ( location.isMem() ) {
+            loadTransactional(dsg, urls, showProgress) ;
+            return ;
+        }
+        DatasetGraphSwitchable container = TDBInternal.getDatabaseContainer(dsg) ;
+        if ( ! Txn.calculateRead(dsgtdb, dsgtdb::isEmpty) ) {
+            FmtLog.info(LOG, "Database is not empty: loading into the existing indexes") ;
+            loadTransactional(dsg, urls, showProgress) ;
+            return ;
+        }
+        new LoaderParallel(container, dsgtdb, showProgress).exec(urls) ;
+    }
+
+    /** Single write transaction, parse straight into the dataset. */
+    private static void loadTransactional(DatasetGraph dsg, List<String> urls, boolean showProgress) {
+        StreamRDF dest = StreamRDFLib.dataset(dsg) ;
+        ProgressMonitor monitor = null ;
+        if ( showProgress ) {
+            monitor = ProgressMonitor.create(LOG, "Triples", DataTickPoint, SuperTick) ;
+            dest = new ProgressStreamRDF(dest, monitor) ;
+            monitor.start() ;
+        }
+        StreamRDF sink = dest ;
+        Txn.executeWrite(dsg, ()->urls.forEach(fn->RDFDataMgr.parse(sink, fn))) ;
+        if ( monitor != null ) {
+            monitor.finish() ;
+            monitor.finishMessage() ;
+        }
+    }
+
+    // ---- Object
+
+    private final DatasetGraphSwitchable container ;
+    private final DatasetGraphTDB dsg ;
+    private final Location location ;
+    private final boolean showProgress ;
+    private final List<IndexWorker> tripleWorkers = new ArrayList<>() ;
+    private final List<IndexWorker> quadWorkers = new ArrayList<>() ;
+    private final List<IndexWorker> allWorkers = new ArrayList<>() ;
+    private ExecutorService executor ;
+
+    private LoaderParallel(DatasetGraphSwitchable container, DatasetGraphTDB dsg, boolean showProgress) {
+        this.container = container ;
+        this.dsg = dsg ;
+        this.location = dsg.getLocation() ;
+        this.showProgress = showProgress ;
+    }
+
+    private void exec(List<String> urls) {
+        Path tmpDir ;
+        try { tmpDir = Files.createTempDirectory(IOX.asPath(location), "loader") ; }
+        catch (IOException ex) { throw IOX.exception(ex) ; }
+        long start = System.currentTimeMillis() ;
+        StoreParams params = dsg.getStoreParams() ;
+        for ( String idx : params.getTripleIndexes() )
+            tripleWorkers.add(new IndexWorker(idx, TupleMap.create(params.getPrimaryIndexTriples(), idx), tmpDir)) ;
+        for ( String idx : params.getQuadIndexes() )
+            quadWorkers.add(new IndexWorker(idx, TupleMap.create(params.getPrimaryIndexQuads(), idx), tmpDir)) ;
+        allWorkers.addAll(tripleWorkers) ;
+        allWorkers.addAll(quadWorkers) ;
+        // One thread for the parser, one for each index.
+        executor = Executors.newFixedThreadPool(allWorkers.size()+1) ;
+        try {
+            dataPhase(urls) ;
+            // Detach the storage so the index files can be rewritten.
+            StoreConnection.release(location) ;
+            indexPhase() ;
+            DatasetGraphTDB dsg2 = StoreConnection.connectCreate(location).getDatasetGraphTDB() ;
+            if ( ! container.change(dsg, dsg2) )
+                container.set(dsg2) ;
+        } finally {
+            executor.shutdownNow() ;
+            allWorkers.forEach(w->w.sorter.close()) ;
+            deleteDirectory(tmpDir) ;
+        }
+        if ( showProgress ) {
+            long elapsed = System.currentTimeMillis() - start ;
+            FmtLog.info(LOG, "Load: %,.2f seconds", elapsed/1000.0) ;
+        }
+    }
+
+    // ---- Data phase
+
+    private static final class Batch {
+        static final Batch END = new Batch() ;
+        final List<Quad> quads = new ArrayList<>(ParseBatchSize) ;
+        final List<String[]> prefixes = new ArrayList<>() ;
+    }
+
+    /** Parse, allocate NodeIds and distribute tuples to the index threads. */
+    private void dataPhase(List<String> urls) {
+        BlockingQueue<Batch> parsed = new ArrayBlockingQueue<>(QueueSize) ;
+        Future<?> parser = executor.submit(()->parse(urls, parsed)) ;
+        List<Future<?>> sorters = new ArrayList<>() ;
+        for ( IndexWorker w : allWorkers )
+            sorters.add(executor.submit(w::sortPhase)) ;
+
+        ProgressMonitor monitor = showProgress ? ProgressMonitor.create(LOG, "Data", DataTickPoint, SuperTick) : null ;
+        if ( monitor != null )
+            monitor.start() ;
+        Txn.executeWrite(dsg, ()->{
+            NodeTable nodeTable = dsg.getTripleTable().getNodeTupleTable().getNodeTable() ;
+            PrefixMapping prefixMapping = dsg.getDefaultGraph().getPrefixMapping() ;
+            long[] triples = new long[TupleBlockSize*3] ;
+            long[] quads = new long[TupleBlockSize*4] ;
+            int numTriples = 0 ;
+            int numQuads = 0 ;
+            try {
+                for ( ;; ) {
+                    Batch batch = parsed.take() ;
+                    if ( batch == Batch.END )
+                        break ;
+                    for ( String[] p : batch.prefixes ) {
+                        try { prefixMapping.setNsPrefix(p[0], p[1]) ; }
+                        catch (JenaException ex) {}
+                    }
+                    for ( Quad q : batch.quads ) {
+                        if ( Quad.isDefaultGraph(q.getGraph()) ) {
+                            int i = 3*numTriples ;
+                            triples[i]   = encode(nodeTable, q.getSubject()) ;
+                            triples[i+1] = encode(nodeTable, q.getPredicate()) ;
+                            triples[i+2] = encode(nodeTable, q.getObject()) ;
+                            if ( ++numTriples == TupleBlockSize ) {
+                                dispatch(tripleWorkers, triples, numTriples) ;
+                                triples = new long[TupleBlockSize*3] ;
+                                numTriples = 0 ;
+                            }
+                        } else {
+                            int i = 4*numQuads ;
+                            quads[i]   = encode(nodeTable, q.getGraph()) ;
+                            quads[i+1] = encode(nodeTable, q.getSubject()) ;
+                            quads[i+2] = encode(nodeTable, q.getPredicate()) ;
+                            quads[i+3] = encode(nodeTable, q.getObject()) ;
+                            if ( ++numQuads == TupleBlockSize ) {
+                                dispatch(quadWorkers, quads, numQuads) ;
+                                quads = new long[TupleBlockSize*4] ;
+                                numQuads = 0 ;
+                            }
+                        }
+                        if ( monitor != null )
+                            monitor.tick() ;
+                    }
+                }
+                if ( numTriples > 0 )
+                    dispatch(tripleWorkers, triples, numTriples) ;
+                if ( numQuads > 0 )
+                    dispatch(quadWorkers, quads, numQuads) ;
+                dispatch(allWorkers, null, 0) ;
+            } catch (InterruptedException ex) {
+                throw new TDBException("Interrupted", ex) ;
+            }
+            // Any error parsing or sorting aborts the transaction.
+            await(parser) ;
+            sorters.forEach(LoaderParallel::await) ;
+        }) ;
+        if ( monitor != null ) {
+            monitor.finish() ;
+            monitor.finishMessage() ;
+        }
+    }
+
+    private static long encode(NodeTable nodeTable, Node node) {
+        return NodeIdFactory.encode(nodeTable.getAllocateNodeId(node)) ;
+    }
+
+    /** Send a block of tuples to index threads. A null block signals the end of the data. */
+    private static void dispatch(List<IndexWorker> workers, long[] tuples, int numTuples) throws InterruptedException {
+        Block block = ( tuples == null ) ? Block.END : new Block(tuples, numTuples) ;
+        for ( IndexWorker w : workers )
+            w.queue.put(block) ;
+    }
+
+    private static void parse(List<String> urls, BlockingQueue<Batch> output) {
+        StreamRDF stream = new StreamRDF() {
+            private Batch batch = new Batch() ;
+
+            @Override public void start() {}
+
+            @Override public void triple(Triple triple) {
+                quad(Quad.create(Quad.defaultGraphNodeGenerated, triple)) ;
+            }
+
+            @Override public void quad(Quad quad) {
+                batch.quads.add(quad) ;
+                if ( batch.quads.size() >= ParseBatchSize )
+                    flush() ;
+            }
+
+            @Override public void base(String base) {}
+
+            @Override public void prefix(String prefix, String iri) {
+                batch.prefixes.add(new String[]{prefix, iri}) ;
+            }
+
+            @Override public void finish() {
+                flush() ;
+            }
+
+            private void flush() {
+                if ( batch.quads.isEmpty() && batch.prefixes.isEmpty() )
+                    return ;
+                put(output, batch) ;
+                batch = new Batch() ;
+            }
+        } ;
+        try {
+            for ( String fn : urls ) {
+                if ( urls.size() > 1 )
+                    FmtLog.info(LOG, "File: %s", fn) ;
+                RDFDataMgr.parse(stream, fn) ;
+            }
+        } finally {
+            put(output, Batch.END) ;
+        }
+    }
+
+    private static void put(BlockingQueue<Batch> queue, Batch batch) {
+        try { queue.put(batch) ; }
+        catch (InterruptedException ex) { throw new TDBException("Interrupted", ex) ; }
+    }
+
+    // ---- Index phase
+
+    /** Build the indexes, in parallel, from the sorted tuples. */
+    private void indexPhase() {
+        List<Future<?>> builders = new ArrayList<>() ;
+        for ( IndexWorker w : allWorkers )
+            builders.add(executor.submit(w::buildPhase)) ;
+        builders.forEach(LoaderParallel::await) ;
+    }
+
+    private static void await(Future<?> future) {
+        try { future.get() ; }
+        catch (InterruptedException ex) { throw new TDBException("Interrupted", ex) ; }
+        catch (ExecutionException ex) {
+            Throwable cause = ex.getCause() ;
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException)cause ;
+            throw new TDBException("Loader: "+cause.getMessage(), cause) ;
+        }
+    }
+
+    private static final class Block {
+        static final Block END = new Block(null, 0) ;
+        final long[] tuples ;
+        final int numTuples ;
+        Block(long[] tuples, int numTuples) {
+            this.tuples = tuples ;
+            this.numTuples = numTuples ;
+        }
+    }
+
+    /** The work for one index: sort during the data phase, then build the B+Tree. */
+    private final class IndexWorker {
+        final String indexName ;
+        final int tupleLength ;
+        final TupleSorter sorter ;
+        final BlockingQueue<Block> queue = new ArrayBlockingQueue<>(QueueSize) ;
+
+        IndexWorker(String indexName, TupleMap tupleMap, Path tmpDir) {
+            this.indexName = indexName ;
+            this.tupleLength = tupleMap.length() ;
+            this.sorter = new TupleSorter(indexName, tupleMap, tmpDir, SortChunkSize) ;
+        }
+
+        void sortPhase() {
+            // On error, keep taking blocks so the data phase does not block.
+            RuntimeException error = null ;
+            try {
+                for ( ;; ) {
+                    Block block = queue.take() ;
+                    if ( block == Block.END )
+                        break ;
+                    if ( error != null )
+                        continue ;
+                    try { sorter.addAll(block.tuples, block.numTuples) ; }
+                    catch (RuntimeException ex) { error = ex ; }
+                }
+            } catch (InterruptedException ex) {
+                throw new TDBException("Interrupted", ex) ;
+            }
+            if ( error != null )
+                throw error ;
+            sorter.finish() ;
+        }
+
+        void buildPhase() {
+            RecordFactory recordFactory = new RecordFactory(tupleLength*SystemTDB.SizeOfNodeId, 0) ;
+            int blockSize = SystemIndex.BlockSize ;
+            int order = BPlusTreeParams.calcOrder(blockSize, recordFactory.recordLength()) ;
+            BPlusTreeParams bptParams = new BPlusTreeParams(order, recordFactory) ;
+
+            FileSet fileSet = new FileSet(location, indexName) ;
+            // Remove the empty B+Tree created with the database.
+            deleteFile(fileSet.filename(Names.extBptState)) ;
+            deleteFile(fileSet.filename(Names.extBptTree)) ;
+            deleteFile(fileSet.filename(Names.extBptRecords)) ;
+
+            // Small caches - blocks are written once, sequentially.
+            BufferChannel bptState = FileFactory.createBufferChannel(fileSet, Names.extBptState) ;
+            BlockMgr blkMgrNodes = BlockMgrFactory.create(fileSet, Names.extBptTree, blockSize, 10, 100) ;
+            BlockMgr blkMgrRecords = BlockMgrFactory.create(fileSet, Names.extBptRecords, blockSize, 10, 100) ;
+            BPlusTree bpt = BPlusTreeRewriter.packIntoBPlusTree(sorter.records(recordFactory), bptParams, recordFactory,
+                                                                bptState, blkMgrNodes, blkMgrRecords) ;
+            // The database is reopened, and updated, as transactional B+Trees.
+            BPT.setStateFromStorage(bpt) ;
+            bpt.close() ;
+            if ( showProgress )
+                FmtLog.info(LOG, "Index %s: %,d tuples", indexName, sorter.getCount()) ;
+        }
+    }
+
+    private static void deleteFile(String filename) {
+        try { Files.deleteIfExists(Paths.get(filename)) ; }
+        catch (IOException ex) { throw IOX.exception(ex) ; }
+    }
+
+    private static void deleteDirectory(Path dir) {
+        try {
+            if ( ! Files.exists(dir) )
+                return ;
+            try ( DirectoryStream<Path> entries = Files.newDirectoryStream(dir) ) {
+                for ( Path p : entries )
+                    Files.deleteIfExists(p) ;
+            }
+            Files.deleteIfExists(dir) ;
+        } catch (IOException ex) {
+            FmtLog.warn(LOG, "Failed to remove temporary directory %s", dir) ;
+        }
+    }
+}
@@ -0,0 +1,387 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.loader;
+
+import java.io.* ;
+import java.nio.file.Files ;
+import java.nio.file.Path ;
+import java.util.* ;
+
+import org.apache.jena.atlas.lib.Bytes ;
+import org.apache.jena.atlas.lib.tuple.TupleMap ;
+import org.apache.jena.dboe.base.record.Record ;
+import org.apache.jena.dboe.base.record.RecordFactory ;
+import org.apache.jena.tdb2.sys.IOX ;
+
+/**
+ * External sort of tuples of NodeIds, in their 64 bit on-disk form, into the order of
+ * one index.
+ * <p>
+ * Tuples are added in natural order (e.g. SPO) and permuted into index order as they
+ * are added. When the in-memory buffer is full, it is sorted and written to a temporary
+ * file as a sorted run. {@link #records} merges the runs, removing duplicates, and
+ * returns the tuples as B+Tree records, ready for packing into a B+Tree.
+ * <p>
+ * Tuples are compared as unsigned 64 bit values, slot by slot, which is the same order
+ * as the byte comparison of the records in the B+Tree.
+ * <p>
+ * Not thread safe; each index has its own {@code TupleSorter}.
+ */
+class TupleSorter {
+    /** Maximum number of runs merged in one pass. */
+    static int MergeWidth = 100 ;
+    private static final int BufferSize = 128*1024 ;
+
+    private final String label ;
+    private final int tupleLength ;
+    private final int[] slots ;
+    private final Path tmpDir ;
+    private final int chunkSize ;
+
+    private long[] buffer ;
+    private long[] workspace ;
+    // Number of tuples in the buffer.
+    private int count = 0 ;
+    private long total = 0 ;
+    private int runCounter = 0 ;
+    private final List<Path> runs = new ArrayList<>() ;
+    private boolean finished = false ;
+
+    /**
+     * @param label       Name for the sort, used in temporary file names.
+     * @param tupleMap    Mapping from natural order to index order.
+     * @param tmpDir      Directory for sorted runs.
+     * @param chunkSize   Number of tuples sorted in memory.
+     */
+    TupleSorter(String label, TupleMap tupleMap, Path tmpDir, int chunkSize) {
+        this.label = label ;
+        this.tupleLength = tupleMap.length() ;
+        this.slots = new int[tupleLength] ;
+        for ( int i = 0 ; i < tupleLength ; i++ )
+            slots[i] = tupleMap.mapIdx(i) ;
+        this.tmpDir = tmpDir ;
+        this.chunkSize = chunkSize ;
+    }
+
+    /** Add a tuple, in natural order, from an array of tuples. */
+    void add(long[] tuples, int start) {
+        if ( finished )
+            throw new IllegalStateException("TupleSorter.add called after finish") ;
+        // Allocate on first use - many loads do not have any quads.
+        if ( buffer == null )
+            buffer = new long[chunkSize*tupleLength] ;
+        if ( count == chunkSize )
+            spill() ;
+        int base = count*tupleLength ;
+        for ( int i = 0 ; i < tupleLength ; i++ )
+            buffer[base+i] = tuples[start+slots[i]] ;
+        count++ ;
+        total++ ;
+    }
+
+    /** Add all the tuples in the array, which is a sequence of tuples in natural order. */
+    void addAll(long[] tuples, int numTuples) {
+        for ( int i = 0 ; i < numTuples ; i++ )
+            add(tuples, i*tupleLength) ;
+    }
+
+    /** Number of tuples added, including any duplicates. */
+    long getCount() {
+        return total ;
+    }
+
+    /** Finish adding tuples. */
+    void finish() {
+        if ( finished )
+            return ;
+        finished = true ;
+        // If everything fits in memory, it stays in memory.
+        if ( ! runs.isEmpty() && count > 0 )
+            spill() ;
+        else
+            sort(buffer, count) ;
+    }
+
+    /**
+     * The tuples, in index order, without duplicates, as records.
+     * Call after {@link #finish}.
+     */
+    Iterator<Record> records(RecordFactory recordFactory) {
+        if ( ! finished )
+            throw new IllegalStateException("TupleSorter.records called before finish") ;
+        if ( recordFactory.keyLength() != tupleLength*Long.BYTES )
+            throw new IllegalArgumentException("Record key length "+recordFactory.keyLength()+" does not match tuple length "+tupleLength) ;
+        // Reduce the number of runs so they can be merged in one pass.
+        while ( runs.size() > MergeWidth ) {
+            List<Path> group = new ArrayList<>(runs.subList(0, MergeWidth)) ;
+            runs.removeAll(group) ;
+            Path merged = newRunFile() ;
+            try ( DataOutputStream out = openRun(merged) ) {
+                RunMerge merge = new RunMerge(openSources(group)) ;
+                while ( merge.advance() )
+                    writeTuple(out, merge.current(), 0) ;
+                merge.close() ;
+            } catch (IOException ex) { throw IOX.exception(ex) ; }
+            group.forEach(IOX::delete) ;
+            runs.add(merged) ;
+        }
+        List<RunSource> sources = runs.isEmpty()
+            ? Collections.singletonList(new MemorySource(buffer, count, tupleLength))
+            : openSources(runs) ;
+        return new RecordIterator(new RunMerge(sources), recordFactory) ;
+    }
+
+    /** Remove any temporary files and release the memory. */
+    void close() {
+        runs.forEach(IOX::delete) ;
+        runs.clear() ;
+        buffer = null ;
+        workspace = null ;
+    }
+
+    // ---- Sorted runs.
+
+    private void spill() {
+        sort(buffer, count) ;
+        Path path = newRunFile() ;
+        try ( DataOutputStream out = openRun(path) ) {
+            for ( int i = 0 ; i < count ; i++ )
+                writeTuple(out, buffer, i*tupleLength) ;
+        } catch (IOException ex) { throw IOX.exception(ex) ; }
+        runs.add(path) ;
+        count = 0 ;
+    }
+
+    private Path newRunFile() {
+        return tmpDir.resolve(String.format("%s-%04d.tmp", label, ++runCounter)) ;
+    }
+
+    private static DataOutputStream openRun(Path path) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path), BufferSize)) ;
+    }
+
+    private void writeTuple(DataOutputStream out, long[] tuples, int start) throws IOException {
+        for ( int i = 0 ; i < tupleLength ; i++ )
+            out.writeLong(tuples[start+i]) ;
+    }
+
+    private List<RunSource> openSources(List<Path> paths) {
+        List<RunSource> sources = new ArrayList<>(paths.size()) ;
+        for ( Path p : paths )
+            sources.add(new FileSource(p, tupleLength)) ;
+        return sources ;
+    }
+
+    // ---- In-memory sort : merge sort of the tuples in the buffer.
+
+    private void sort(long[] tuples, int numTuples) {
+        if ( numTuples < 2 )
+            return ;
+        if ( workspace == null )
+            workspace = new long[buffer.length] ;
+        long[] src = tuples ;
+        long[] dst = workspace ;
+        for ( int width = 1 ; width < numTuples ; width = 2*width ) {
+            for ( int lo = 0 ; lo < numTuples ; lo += 2*width ) {
+                int mid = Math.min(lo+width, numTuples) ;
+                int hi = Math.min(lo+2*width, numTuples) ;
+                merge(src, dst, lo, mid, hi) ;
+            }
+            long[] t = src ; src = dst ; dst = t ;
+        }
+        if ( src != tuples )
+            System.arraycopy(src, 0, tuples, 0, numTuples*tupleLength) ;
+    }
+
+    private void merge(long[] src, long[] dst, int lo, int mid, int hi) {
+        int i = lo ;
+        int j = mid ;
+        int w = tupleLength ;
+        for ( int k = lo ; k < hi ; k++ ) {
+            if ( i < mid && ( j >= hi || compare(src, i*w, src, j*w, w) <= 0 ) ) {
+                System.arraycopy(src, i*w, dst, k*w, w) ;
+                i++ ;
+            } else {
+                System.arraycopy(src, j*w, dst, k*w, w) ;
+                j++ ;
+            }
+        }
+    }
+
+    /** Compare two tuples as sequences of unsigned longs. */
+    static int compare(long[] tuples1, int start1, long[] tuples2, int start2, int tupleLength) {
+        for ( int i = 0 ; i < tupleLength ; i++ ) {
+            int x = Long.compareUnsigned(tuples1[start1+i], tuples2[start2+i]) ;
+            if ( x != 0 )
+                return x ;
+        }
+        return 0 ;
+    }
+
+    // ---- Merging runs.
+
+    /** A sorted sequence of tuples. */
+    private interface RunSource {
+        /** Move to the next tuple; return false if there are no more tuples. */
+        boolean advance() ;
+        /** The array holding the current tuple. */
+        long[] array() ;
+        /** Start of the current tuple in {@link #array()}. */
+        int start() ;
+        void close() ;
+    }
+
+    private static class MemorySource implements RunSource {
+        private final long[] tuples ;
+        private final int numTuples ;
+        private final int tupleLength ;
+        private int idx = -1 ;
+
+        MemorySource(long[] tuples, int numTuples, int tupleLength) {
+            this.tuples = tuples ;
+            this.numTuples = numTuples ;
+            this.tupleLength = tupleLength ;
+        }
+
+        @Override public boolean advance()  { return ++idx < numTuples ; }
+        @Override public long[] array()     { return tuples ; }
+        @Override public int start()        { return idx*tupleLength ; }
+        @Override public void close()       {}
+    }
+
+    private static class FileSource implements RunSource {
+        private final DataInputStream input ;
+        private final long[] tuple ;
+
+        FileSource(Path path, int tupleLength) {
+            try {
+                this.input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path), BufferSize)) ;
+            } catch (IOException ex) { throw IOX.exception(ex) ; }
+            this.tuple = new long[tupleLength] ;
+        }
+
+        @Override
+        public boolean advance() {
+            try {
+                tuple[0] = input.readLong() ;
+            } catch (EOFException ex) {
+                return false ;
+            } catch (IOException ex) { throw IOX.exception(ex) ; }
+            try {
+                for ( int i = 1 ; i < tuple.length ; i++ )
+                    tuple[i] = input.readLong() ;
+            } catch (IOException ex) { throw IOX.exception(ex) ; }
+            return true ;
+        }
+
+        @Override public long[] array()     { return tuple ; }
+        @Override public int start()        { return 0 ; }
+
+        @Override
+        public void close() {
+            try { input.close() ; }
+            catch (IOException ex) { throw IOX.exception(ex) ; }
+        }
+    }
+
+    /** k-way merge of sorted runs, dropping duplicates. */
+    private class RunMerge {
+        private final PriorityQueue<RunSource> queue ;
+        private final List<RunSource> sources ;
+        private final long[] current = new long[tupleLength] ;
+        private boolean first = true ;
+
+        RunMerge(List<RunSource> sources) {
+            this.sources = sources ;
+            this.queue = new PriorityQueue<>(Math.max(1, sources.size()),
+                                             (s1, s2) -> compare(s1.array(), s1.start(), s2.array(), s2.start(), tupleLength)) ;
+            for ( RunSource s : sources ) {
+                if ( s.advance() )
+                    queue.add(s) ;
+            }
+        }
+
+        /** Move to the next distinct tuple. */
+        boolean advance() {
+            for ( ;; ) {
+                RunSource s = queue.poll() ;
+                if ( s == null ) {
+                    close() ;
+                    return false ;
+                }
+                boolean isDuplicate = ! first && compare(current, 0, s.array(), s.start(), tupleLength) == 0 ;
+                if ( ! isDuplicate )
+                    System.arraycopy(s.array(), s.start(), current, 0, tupleLength) ;
+                if ( s.advance() )
+                    queue.add(s) ;
+                if ( ! isDuplicate ) {
+                    first = false ;
+                    return true ;
+                }
+            }
+        }
+
+        long[] current() {
+            return current ;
+        }
+
+        void close() {
+            sources.forEach(RunSource::close) ;
+        }
+    }
+
+    private static class RecordIterator implements Iterator<Record> {
+        private final RunMerge merge ;
+        private final RecordFactory recordFactory ;
+        private Record slot = null ;
+        private boolean finished = false ;
+
+        RecordIterator(RunMerge merge, RecordFactory recordFactory) {
+            this.merge = merge ;
+            this.recordFactory = recordFactory ;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if ( slot != null )
+                return true ;
+            if ( finished )
+                return false ;
+            if ( ! merge.advance() ) {
+                finished = true ;
+                return false ;
+            }
+            long[] tuple = merge.current() ;
+            byte[] key = new byte[tuple.length*Long.BYTES] ;
+            for ( int i = 0 ; i < tuple.length ; i++ )
+                Bytes.setLong(tuple[i], key, i*Long.BYTES) ;
+            slot = recordFactory.create(key) ;
+            return true ;
+        }
+
+        @Override
+        public Record next() {
+            if ( ! hasNext() )
+                throw new NoSuchElementException() ;
+            Record r = slot ;
+            slot = null ;
+            return r ;
+        }
+    }
+}
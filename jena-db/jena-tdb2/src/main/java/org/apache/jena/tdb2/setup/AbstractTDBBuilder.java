@@ -33,8 +33,11 @@ import org.apache.jena.dboe.transaction.txn.TransactionCoordinator;
 import org.apache.jena.dboe.transaction.txn.TransactionalBase;
 import org.apache.jena.dboe.transaction.txn.TransactionalSystem;
 import org.apache.jena.dboe.transaction.txn.journal.Journal;
+import org.apache.jena.sparql.ARQException;
 import org.apache.jena.sparql.engine.main.QC;
 import org.apache.jena.sparql.engine.optimizer.reorder.ReorderLib;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderTransformation;
+import org.apache.jena.sparql.sse.ItemException;
 import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.solver.OpExecutorTDB1;
 import org.apache.jena.tdb2.store.*;
@@ -59,6 +62,8 @@ public abstract class AbstractTDBBuilder {
     public static TransactionCoordinator buildTransactionCoordinator(Location location) {
         Journal journal = Journal.create(location);
         TransactionCoordinator txnCoord = new TransactionCoordinator(journal);
+        if ( SystemTDB.GroupCommitWindow >= 0 )
+            txnCoord.setGroupCommit(SystemTDB.GroupCommitWindow);
         return txnCoord;
     }
 
@@ -102,12 +107,29 @@ public abstract class AbstractTDBBuilder {
         TransactionalSystem trans = new TransactionalBase(txnCoord);
         DatasetGraphTxn dsg = new DatasetGraphTDB(trans, 
                                                   tripleTable, quadTable, prefixes, 
-                                                  ReorderLib.fixed(), location, params);
+                                                  chooseOptimizer(location), location, params);
         QC.setFactory(dsg.getContext(), OpExecutorTDB1.OpExecFactoryTDB);
         txnCoord.start();
         return dsg;
     }
 
+    /**
+     * The BGP optimizer : cost-based if there is a statistics catalog
+     * ({@link Names#optCatalog}) in the database directory, else fixed.
+     */
+    public ReorderTransformation chooseOptimizer(Location location) {
+        if ( !location.isMem() && location.exists(Names.optCatalog) ) {
+            try {
+                ReorderTransformation reorder = ReorderLib.costBased(location.getPath(Names.optCatalog));
+                log().debug("Cost-based BGP optimizer");
+                return reorder;
+            } catch (ARQException | ItemException ex) {
+                log().warn("Error in statistics catalog: " + ex.getMessage());
+            }
+        }
+        return ReorderLib.fixed();
+    }
+
     public Location getLocation()               { return location; }
     public StoreParams getParams()              { return params; }
     public TransactionCoordinator getTxnCoord() { return txnCoord; }
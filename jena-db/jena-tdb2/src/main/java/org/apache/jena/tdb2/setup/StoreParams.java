@@ -47,9 +47,11 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
     /*package*/ final Item<Integer>            blockSize ;
     /*package*/ final Item<Integer>            blockReadCacheSize ;
     /*package*/ final Item<Integer>            blockWriteCacheSize ;
+    /*package*/ final Item<Long>               blockCachePoolSize ;
     /*package*/ final Item<Integer>            Node2NodeIdCacheSize ;
     /*package*/ final Item<Integer>            NodeId2NodeCacheSize ;
     /*package*/ final Item<Integer>            NodeMissCacheSize ;
+    /*package*/ final Item<Long>               NodeCacheOffHeapSize ;
 
     /* These are items affect database layout and
      * only can be applied when a database is created.
@@ -70,6 +72,8 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
     /*package*/ final Item<String>             primaryIndexPrefix ;
     /*package*/ final Item<String[]>           prefixIndexes ;
 
+    /*package*/ final Item<Boolean>            packedIndexLeaves ;
+
     /** Build StoreParams, starting from system defaults.
      * 
      * @return StoreParamsBuilder
@@ -84,22 +88,27 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
     
     /*package*/ StoreParams(Item<FileMode> fileMode, Item<Integer> blockSize,
                             Item<Integer> blockReadCacheSize, Item<Integer> blockWriteCacheSize,
+                            Item<Long> blockCachePoolSize,
                             Item<Integer> node2NodeIdCacheSize, Item<Integer> nodeId2NodeCacheSize,
                             Item<Integer> nodeMissCacheSize,
+                            Item<Long> nodeCacheOffHeapSize,
                             
                             Item<String> nodeTableBaseName, 
                             Item<String> primaryIndexTriples, Item<String[]> tripleIndexes,
                             Item<String> primaryIndexQuads, Item<String[]> quadIndexes,
                             
                             Item<String> prefixTableBasename,
-                            Item<String> primaryIndexPrefix, Item<String[]> prefixIndexes) {
+                            Item<String> primaryIndexPrefix, Item<String[]> prefixIndexes,
+                            Item<Boolean> packedIndexLeaves) {
         this.fileMode               = fileMode ;
         this.blockSize              = blockSize ;
         this.blockReadCacheSize     = blockReadCacheSize ;
         this.blockWriteCacheSize    = blockWriteCacheSize ;
+        this.blockCachePoolSize     = blockCachePoolSize ;
         this.Node2NodeIdCacheSize   = node2NodeIdCacheSize ;
         this.NodeId2NodeCacheSize   = nodeId2NodeCacheSize ;
         this.NodeMissCacheSize      = nodeMissCacheSize ;
+        this.NodeCacheOffHeapSize   = nodeCacheOffHeapSize ;
 
         this.nodeTableBaseName      = nodeTableBaseName ;
         
@@ -111,6 +120,7 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         this.prefixIndexes          = prefixIndexes ;
         
         this.prefixTableBaseName         = prefixTableBasename ;
+        this.packedIndexLeaves      = packedIndexLeaves ;
     }
     
     /** The system default settings. This is the normal set to use.
@@ -168,6 +178,16 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         return blockWriteCacheSize.isSet ;
     }
 
+    @Override
+    public Long getBlockCachePoolSize() {
+        return blockCachePoolSize.value ;
+    }
+
+    @Override
+    public boolean isSetBlockCachePoolSize() {
+        return blockCachePoolSize.isSet ;
+    }
+
     @Override
     public Integer getNode2NodeIdCacheSize() {
         return Node2NodeIdCacheSize.value ;
@@ -198,6 +218,16 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         return NodeMissCacheSize.isSet ;
     }
 
+    @Override
+    public Long getNodeCacheOffHeapSize() {
+        return NodeCacheOffHeapSize.value ;
+    }
+
+    @Override
+    public boolean isSetNodeCacheOffHeapSize() {
+        return NodeCacheOffHeapSize.isSet ;
+    }
+
     public String getNodeTableBaseName() {
         return nodeTableBaseName.value ;
     }
@@ -240,6 +270,19 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         return prefixIndexes.value ;
     }
 
+    /**
+     * Whether the leaf blocks of the B+Tree indexes are prefix-compressed. This is
+     * part of the database layout, recorded when the database is created.
+     * @see org.apache.jena.dboe.trans.bplustree.LeafPacking
+     */
+    public boolean isPackedIndexLeaves() {
+        return packedIndexLeaves.value ;
+    }
+
+    public boolean isSetPackedIndexLeaves() {
+        return packedIndexLeaves.isSet ;
+    }
+
     @Override
     public String toString() {
         StringBuilder buff = new StringBuilder() ;
@@ -247,9 +290,11 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         fmt(buff, "blockSize", getBlockSize(), blockSize.isSet) ;
         fmt(buff, "readCacheSize", getBlockReadCacheSize(), blockReadCacheSize.isSet) ;
         fmt(buff, "writeCacheSize", getBlockWriteCacheSize(), blockWriteCacheSize.isSet) ;
+        fmt(buff, "blockCachePoolSize", getBlockCachePoolSize().toString(), blockCachePoolSize.isSet) ;
         fmt(buff, "Node2NodeIdCacheSize", getNode2NodeIdCacheSize(), Node2NodeIdCacheSize.isSet) ;
         fmt(buff, "NodeId2NodeCacheSize", getNodeId2NodeCacheSize(), NodeId2NodeCacheSize.isSet) ;
         fmt(buff, "NodeMissCacheSize", getNodeMissCacheSize(), NodeMissCacheSize.isSet) ;
+        fmt(buff, "NodeCacheOffHeapSize", getNodeCacheOffHeapSize().toString(), NodeCacheOffHeapSize.isSet) ;
 
         fmt(buff, "nodeTableBaseName", getNodeTableBaseName(), nodeTableBaseName.isSet) ;
         fmt(buff, "primaryIndexTriples", getPrimaryIndexTriples(), primaryIndexTriples.isSet) ;
@@ -260,6 +305,7 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         fmt(buff, "prefixTableBaseName", getPrefixTableBaseName(), prefixTableBaseName.isSet) ;
         fmt(buff, "primaryIndexPrefix", getPrimaryIndexPrefix(), primaryIndexPrefix.isSet) ;
         fmt(buff, "prefixIndexes", getPrefixIndexes(), prefixIndexes.isSet) ;
+        fmt(buff, "packedIndexLeaves", Boolean.toString(isPackedIndexLeaves()), packedIndexLeaves.isSet) ;
 
         return buff.toString() ;
     }
@@ -301,12 +347,16 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
             return false ;
         if ( !sameValues(params1.blockWriteCacheSize, params2.blockWriteCacheSize) )
             return false ;
+        if ( !sameValues(params1.blockCachePoolSize, params2.blockCachePoolSize) )
+            return false ;
         if ( !sameValues(params1.Node2NodeIdCacheSize, params2.Node2NodeIdCacheSize) )
             return false ;
         if ( !sameValues(params1.NodeId2NodeCacheSize, params2.NodeId2NodeCacheSize) )
             return false ;
         if ( !sameValues(params1.NodeMissCacheSize, params2.NodeMissCacheSize) )
             return false ;
+        if ( !sameValues(params1.NodeCacheOffHeapSize, params2.NodeCacheOffHeapSize) )
+            return false ;
         if ( !sameValues(params1.nodeTableBaseName, params2.nodeTableBaseName) )
             return false ;
         if ( !sameValues(params1.primaryIndexTriples, params2.primaryIndexTriples) )
@@ -323,6 +373,8 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
             return false ;
         if ( !sameValues(params1.prefixIndexes, params2.prefixIndexes) )
             return false ;
+        if ( !sameValues(params1.packedIndexLeaves, params2.packedIndexLeaves) )
+            return false ;
         return true ;
     }
     
@@ -337,9 +389,11 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         result = prime * result + ((Node2NodeIdCacheSize == null) ? 0 : Node2NodeIdCacheSize.hashCode()) ;
         result = prime * result + ((NodeId2NodeCacheSize == null) ? 0 : NodeId2NodeCacheSize.hashCode()) ;
         result = prime * result + ((NodeMissCacheSize == null) ? 0 : NodeMissCacheSize.hashCode()) ;
+        result = prime * result + ((NodeCacheOffHeapSize == null) ? 0 : NodeCacheOffHeapSize.hashCode()) ;
         result = prime * result + ((blockReadCacheSize == null) ? 0 : blockReadCacheSize.hashCode()) ;
         result = prime * result + ((blockSize == null) ? 0 : blockSize.hashCode()) ;
         result = prime * result + ((blockWriteCacheSize == null) ? 0 : blockWriteCacheSize.hashCode()) ;
+        result = prime * result + ((blockCachePoolSize == null) ? 0 : blockCachePoolSize.hashCode()) ;
         result = prime * result + ((fileMode == null) ? 0 : fileMode.hashCode()) ;
         result = prime * result + ((nodeTableBaseName == null) ? 0 : nodeTableBaseName.hashCode()) ;
         result = prime * result + ((prefixTableBaseName == null) ? 0 : prefixTableBaseName.hashCode()) ;
@@ -349,6 +403,7 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
         result = prime * result + ((primaryIndexTriples == null) ? 0 : primaryIndexTriples.hashCode()) ;
         result = prime * result + ((quadIndexes == null) ? 0 : quadIndexes.hashCode()) ;
         result = prime * result + ((tripleIndexes == null) ? 0 : tripleIndexes.hashCode()) ;
+        result = prime * result + ((packedIndexLeaves == null) ? 0 : packedIndexLeaves.hashCode()) ;
         return result ;
     }
 
@@ -376,6 +431,11 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
                 return false ;
         } else if ( !NodeMissCacheSize.equals(other.NodeMissCacheSize) )
             return false ;
+        if ( NodeCacheOffHeapSize == null ) {
+            if ( other.NodeCacheOffHeapSize != null )
+                return false ;
+        } else if ( !NodeCacheOffHeapSize.equals(other.NodeCacheOffHeapSize) )
+            return false ;
         if ( blockReadCacheSize == null ) {
             if ( other.blockReadCacheSize != null )
                 return false ;
@@ -391,6 +451,11 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
                 return false ;
         } else if ( !blockWriteCacheSize.equals(other.blockWriteCacheSize) )
             return false ;
+        if ( blockCachePoolSize == null ) {
+            if ( other.blockCachePoolSize != null )
+                return false ;
+        } else if ( !blockCachePoolSize.equals(other.blockCachePoolSize) )
+            return false ;
         if ( fileMode == null ) {
             if ( other.fileMode != null )
                 return false ;
@@ -436,6 +501,11 @@ public class StoreParams implements IndexParams, StoreParamsDynamic
                 return false ;
         } else if ( !tripleIndexes.equals(other.tripleIndexes) )
             return false ;
+        if ( packedIndexLeaves == null ) {
+            if ( other.packedIndexLeaves != null )
+                return false ;
+        } else if ( !packedIndexLeaves.equals(other.packedIndexLeaves) )
+            return false ;
         return true ;
     }
 }
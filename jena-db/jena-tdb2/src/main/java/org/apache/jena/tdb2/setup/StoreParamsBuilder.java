@@ -68,12 +68,16 @@ public class StoreParamsBuilder {
 
     private Item<Integer>            blockWriteCacheSize   = new Item<>(StoreParamsConst.blockWriteCacheSize, false) ;
 
+    private Item<Long>               blockCachePoolSize    = new Item<>(StoreParamsConst.blockCachePoolSize, false) ;
+
     private Item<Integer>            Node2NodeIdCacheSize  = new Item<>(StoreParamsConst.Node2NodeIdCacheSize, false) ;
 
     private Item<Integer>            NodeId2NodeCacheSize  = new Item<>(StoreParamsConst.NodeId2NodeCacheSize, false) ;
 
     private Item<Integer>            NodeMissCacheSize     = new Item<>(StoreParamsConst.NodeMissCacheSize, false) ;
 
+    private Item<Long>               NodeCacheOffHeapSize  = new Item<>(StoreParamsConst.NodeCacheOffHeapSize, false) ;
+
     /** Database layout - ignored after a database is created */
 
     private Item<Integer>            blockSize             = new Item<>(StoreParamsConst.blockSize, false) ;
@@ -93,6 +97,8 @@ public class StoreParamsBuilder {
     private Item<String>             primaryIndexPrefix    = new Item<>(StoreParamsConst.primaryIndexPrefix, false) ;
 
     private Item<String[]>           prefixIndexes         = new Item<>(StoreParamsConst.prefixIndexes, false) ;
+
+    private Item<Boolean>            packedIndexLeaves     = new Item<>(StoreParamsConst.packedIndexLeaves, false) ;
     
     public static StoreParamsBuilder create() {
         return new StoreParamsBuilder() ;
@@ -120,6 +126,9 @@ public class StoreParamsBuilder {
 
         if ( additionalParams.isSetBlockWriteCacheSize() )
             b.blockWriteCacheSize(additionalParams.getBlockWriteCacheSize()) ;
+
+        if ( additionalParams.isSetBlockCachePoolSize() )
+            b.blockCachePoolSize(additionalParams.getBlockCachePoolSize()) ;
         
         if ( additionalParams.isSetNode2NodeIdCacheSize() )            
             b.node2NodeIdCacheSize(additionalParams.getNode2NodeIdCacheSize()) ;
@@ -130,6 +139,9 @@ public class StoreParamsBuilder {
         if ( additionalParams.isSetNodeMissCacheSize() )
             b.nodeMissCacheSize(additionalParams.getNodeMissCacheSize()) ;
 
+        if ( additionalParams.isSetNodeCacheOffHeapSize() )
+            b.nodeCacheOffHeapSize(additionalParams.getNodeCacheOffHeapSize()) ;
+
         return b.build();
     }
     
@@ -142,9 +154,11 @@ public class StoreParamsBuilder {
         this.blockSize              = other.blockSize ;
         this.blockReadCacheSize     = other.blockReadCacheSize ; 
         this.blockWriteCacheSize    = other.blockWriteCacheSize ; 
+        this.blockCachePoolSize     = other.blockCachePoolSize ; 
         this.Node2NodeIdCacheSize   = other.Node2NodeIdCacheSize ; 
         this.NodeId2NodeCacheSize   = other.NodeId2NodeCacheSize ; 
         this.NodeMissCacheSize      = other.NodeMissCacheSize ; 
+        this.NodeCacheOffHeapSize   = other.NodeCacheOffHeapSize ; 
 
         this.nodeTableBaseName      = other.nodeTableBaseName ; 
         
@@ -157,17 +171,19 @@ public class StoreParamsBuilder {
         this.prefixTableBaseName    = other.prefixTableBaseName ; 
         this.primaryIndexPrefix     = other.primaryIndexPrefix ; 
         this.prefixIndexes          = other.prefixIndexes ; 
+        this.packedIndexLeaves      = other.packedIndexLeaves ; 
     }
     
     public StoreParams build() {
         return new StoreParams(
-                 fileMode, blockSize, blockReadCacheSize, blockWriteCacheSize, 
+                 fileMode, blockSize, blockReadCacheSize, blockWriteCacheSize, blockCachePoolSize,
                  Node2NodeIdCacheSize, NodeId2NodeCacheSize, NodeMissCacheSize,
+                 NodeCacheOffHeapSize,
                  nodeTableBaseName,
                  primaryIndexTriples, tripleIndexes,
                  primaryIndexQuads, quadIndexes, 
                  prefixTableBaseName, primaryIndexPrefix,
-                 prefixIndexes) ;
+                 prefixIndexes, packedIndexLeaves) ;
     }
     
     public FileMode getFileMode() {
@@ -210,6 +226,15 @@ public class StoreParamsBuilder {
         return Node2NodeIdCacheSize.value ;
     }
 
+    public long getBlockCachePoolSize() {
+        return blockCachePoolSize.value ;
+    }
+
+    public StoreParamsBuilder blockCachePoolSize(long blockCachePoolSize) {
+        this.blockCachePoolSize = new Item<>(blockCachePoolSize, true) ;
+        return this ;
+    }
+
    public StoreParamsBuilder node2NodeIdCacheSize(int node2NodeIdCacheSize) {
        Node2NodeIdCacheSize = new Item<>(node2NodeIdCacheSize, true) ;
        return this ;
@@ -233,6 +258,15 @@ public class StoreParamsBuilder {
        return this ;
    }
 
+    public long getNodeCacheOffHeapSize() {
+        return NodeCacheOffHeapSize.value ;
+    }
+
+   public StoreParamsBuilder nodeCacheOffHeapSize(long nodeCacheOffHeapSize) {
+       NodeCacheOffHeapSize = new Item<>(nodeCacheOffHeapSize, true) ;
+       return this ;
+   }
+
    public String getNodeTableBaseName() {
        return nodeTableBaseName.value ;
    }
@@ -305,5 +339,14 @@ public class StoreParamsBuilder {
        this.prefixIndexes = new Item<>(prefixIndexes, true) ;
        return this ;
    }
+
+    public boolean isPackedIndexLeaves() {
+        return packedIndexLeaves.value ;
+    }
+
+   public StoreParamsBuilder packedIndexLeaves(boolean packedIndexLeaves) {
+       this.packedIndexLeaves = new Item<>(packedIndexLeaves, true) ;
+       return this ;
+   }
 }
 
@@ -76,9 +76,11 @@ public class StoreParamsCodec {
         encode(builder, key(fBlockSize),                params.getBlockSize()) ;
         encode(builder, key(fBlockReadCacheSize),       params.getBlockReadCacheSize()) ;
         encode(builder, key(fBlockWriteCacheSize),      params.getBlockWriteCacheSize()) ;
+        encode(builder, key(fBlockCachePoolSize),       params.getBlockCachePoolSize()) ;
         encode(builder, key(fNode2NodeIdCacheSize),     params.getNode2NodeIdCacheSize()) ;
         encode(builder, key(fNodeId2NodeCacheSize),     params.getNodeId2NodeCacheSize()) ;
         encode(builder, key(fNodeMissCacheSize),        params.getNodeMissCacheSize()) ;
+        encode(builder, key(fNodeCacheOffHeapSize),     params.getNodeCacheOffHeapSize()) ;
         encode(builder, key(fNodeTableBaseName),        params.getNodeTableBaseName()) ;
         encode(builder, key(fPrimaryIndexTriples),      params.getPrimaryIndexTriples()) ;
         encode(builder, key(fTripleIndexes),            params.getTripleIndexes()) ;
@@ -87,6 +89,7 @@ public class StoreParamsCodec {
         encode(builder, key(fPrefixTableBaseName),      params.getPrefixTableBaseName()) ;
         encode(builder, key(fPrimaryIndexPrefix),       params.getPrimaryIndexPrefix()) ;
         encode(builder, key(fPrefixIndexes),            params.getPrefixIndexes()) ;
+        encode(builder, key(fPackedIndexLeaves),        params.isPackedIndexLeaves()) ;
         
         builder.finishObject("StoreParams") ;
         return (JsonObject)builder.build() ;
@@ -116,9 +119,11 @@ public class StoreParamsCodec {
                 case fBlockSize:               builder.blockSize(getInt(json, key)) ;                       break ;
                 case fBlockReadCacheSize:      builder.blockReadCacheSize(getInt(json, key)) ;              break ;
                 case fBlockWriteCacheSize:     builder.blockWriteCacheSize(getInt(json, key)) ;             break ;
+                case fBlockCachePoolSize:      builder.blockCachePoolSize(getLong(json, key)) ;             break ;
                 case fNode2NodeIdCacheSize:    builder.node2NodeIdCacheSize(getInt(json, key)) ;            break ;
                 case fNodeId2NodeCacheSize:    builder.nodeId2NodeCacheSize(getInt(json, key)) ;            break ;
                 case fNodeMissCacheSize:       builder.nodeMissCacheSize(getInt(json, key)) ;               break ;
+                case fNodeCacheOffHeapSize:    builder.nodeCacheOffHeapSize(getLong(json, key)) ;           break ;
                 
                 case fNodeTableBaseName:       builder.nodeTableBaseName(getString(json, key)) ;            break ;
                 case fPrimaryIndexTriples:     builder.primaryIndexTriples(getString(json, key)) ;          break ;
@@ -129,6 +134,7 @@ public class StoreParamsCodec {
                 case fPrefixTableBaseName:     builder.prefixTableBaseName(getString(json, key)) ;          break ;
                 case fPrimaryIndexPrefix:      builder.primaryIndexPrefix(getString(json, key)) ;           break ;
                 case fPrefixIndexes:           builder.prefixIndexes(getStringArray(json, key)) ;           break ;
+                case fPackedIndexLeaves:       builder.packedIndexLeaves(getBoolean(json, key)) ;           break ;
                 
                 default:
                     throw new TDBException("StoreParams key no recognized: "+key) ;
@@ -153,6 +159,20 @@ public class StoreParamsCodec {
         return x ;
     }
     
+    private static Long getLong(JsonObject json, String key) {
+        if ( ! json.hasKey(key) )
+            throw new TDBException("StoreParamsCodec.getLong: no such key: "+key) ;
+        Long x = json.get(key).getAsNumber().value().longValue() ;
+        return x ;
+    }
+    
+    private static Boolean getBoolean(JsonObject json, String key) {
+        if ( ! json.hasKey(key) )
+            throw new TDBException("StoreParamsCodec.getBoolean: no such key: "+key) ;
+        Boolean x = json.get(key).getAsBoolean().value() ;
+        return x ;
+    }
+    
     private static String[] getStringArray(JsonObject json, String key) {
         if ( ! json.hasKey(key) )
             throw new TDBException("StoreParamsCodec.getStringArray: no such key: "+key) ;
@@ -171,6 +191,10 @@ public class StoreParamsCodec {
             builder.key(name).value(x) ;
             return ;
         }
+        if ( value instanceof Boolean ) {
+            builder.key(name).value(((Boolean)value).booleanValue()) ;
+            return ;
+        }
         if ( value instanceof String ) {
             builder.key(name).value(value.toString()) ;
             return ;
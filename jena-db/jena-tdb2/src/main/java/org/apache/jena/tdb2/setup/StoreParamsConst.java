@@ -38,6 +38,9 @@ public class StoreParamsConst {
     public static final String   fBlockWriteCacheSize  = "block_write_cache_size" ;
     public static final int      blockWriteCacheSize   = SystemTDB.BlockWriteCacheSize ;
     
+    public static final String   fBlockCachePoolSize   = "block_cache_pool_size" ;
+    public static final long     blockCachePoolSize    = SystemTDB.BlockCachePoolSize ;
+    
     public static final String   fNode2NodeIdCacheSize = "node2nodeid_cache_size" ;
     public static final int      Node2NodeIdCacheSize  = SystemTDB.Node2NodeIdCacheSize ;
     
@@ -47,6 +50,9 @@ public class StoreParamsConst {
     public static final String   fNodeMissCacheSize    = "node_miss_cache_size" ;
     public static final int      NodeMissCacheSize     = SystemTDB.NodeMissCacheSize ;
     
+    public static final String   fNodeCacheOffHeapSize = "node_cache_offheap_size" ;
+    public static final long     NodeCacheOffHeapSize  = SystemTDB.NodeCacheOffHeapSize ;
+    
     /** Database layout - ignored after a database is created */
     public static final String   fBlockSize            = "block_size" ;
     public static final int      blockSize             = SystemTDB.BlockSize ;
@@ -75,6 +81,9 @@ public class StoreParamsConst {
     public static final String   fPrefixIndexes        = "prefix_indexes" ;
     public static final String[] prefixIndexes         = Names.prefixIndexes ;
 
+    public static final String   fPackedIndexLeaves    = "packed_index_leaves" ;
+    public static final boolean  packedIndexLeaves     = false ;
+
     // Must be after the constants above to get initialization order right
     // because StoreParamsBuilder uses these constants.
      
@@ -38,6 +38,11 @@ public interface StoreParamsDynamic {
     /** Block write cache (note: mapped files do not have a block cache) */
     public Integer getBlockWriteCacheSize() ;
     public boolean isSetBlockWriteCacheSize() ;
+
+    /** Size in bytes of the read block cache shared by the indexes of a database (direct
+     *  file mode only). If greater than zero, this replaces the read cache of each file. */
+    public Long getBlockCachePoolSize() ;
+    public boolean isSetBlockCachePoolSize() ;
     
     /** Node cache for Node->NodeId. */
     public Integer getNode2NodeIdCacheSize() ;
@@ -50,5 +55,10 @@ public interface StoreParamsDynamic {
     /** Node cache for recording known misses */
     public Integer getNodeMissCacheSize() ;
     public boolean isSetNodeMissCacheSize() ;
+
+    /** Size in bytes of the off-heap node caches. If greater than zero, these replace
+     *  the Node->NodeId and NodeId->Node caches. */
+    public Long getNodeCacheOffHeapSize() ;
+    public boolean isSetNodeCacheOffHeapSize() ;
 }
 
@@ -59,7 +59,10 @@ public class TDBBuilder extends AbstractTDBBuilder {
         StoreParams dftParams = StoreParams.getDftStoreParams();
         // This can write the chosen parameters if necessary (new database, appParams != null, locParams == null)
         boolean newArea = isNewDatabaseArea(location);
-        if ( newArea ) {
+        if ( newArea && SystemTDB.PackedIndexLeaves && ( appParams == null || ! appParams.isSetPackedIndexLeaves() ) ) {
+            // Recorded in the new database's parameters.
+            StoreParams base = ( appParams != null ) ? appParams : dftParams;
+            appParams = StoreParams.builder(base).packedIndexLeaves(true).build();
         }
         StoreParams params = StoreParamsFactory.decideStoreParams(location, newArea, appParams, locParams, dftParams);
         return create(location, params).build$(); 
@@ -86,7 +89,8 @@ public class TDBBuilder extends AbstractTDBBuilder {
     public RangeIndex buildRangeIndex(RecordFactory recordFactory, String name) {
         ComponentId cid = componentIdMgr.getComponentId(name);
         FileSet fs = new FileSet(location, name);
-        BPlusTree bpt = BPlusTreeFactory.createBPTree(cid, fs, recordFactory);
+        BPlusTree bpt = BPlusTreeFactory.createBPTree(cid, fs, recordFactory, params.isPackedIndexLeaves(),
+                                                      params.getFileMode(), params.getBlockCachePoolSize());
         txnCoord.add(bpt);
         return bpt;
     }
@@ -25,8 +25,8 @@ import org.apache.jena.sparql.algebra.Op ;
 import org.apache.jena.sparql.core.DatasetDescription ;
 import org.apache.jena.sparql.core.DatasetGraph ;
 import org.apache.jena.sparql.core.DynamicDatasets ;
-import org.apache.jena.sparql.core.Substitute ;
 import org.apache.jena.sparql.engine.Plan ;
+import org.apache.jena.sparql.engine.PlanCache ;
 import org.apache.jena.sparql.engine.QueryEngineFactory ;
 import org.apache.jena.sparql.engine.QueryEngineRegistry ;
 import org.apache.jena.sparql.engine.QueryIterator ;
@@ -54,14 +54,15 @@ public class QueryEngineTDB extends QueryEngineMain
     static public QueryEngineFactory getFactory() { return factory ; } 
     static public void register()       { QueryEngineRegistry.addFactory(factory) ; }
     static public void unregister()     { QueryEngineRegistry.removeFactory(factory) ; }
-    
-    private Binding initialInput ;
 
+    /** Cache optimized algebra for queries on TDB2 datasets; null to switch off (the default). */
+    static public void setPlanCache(PlanCache planCache)
+    { ((QueryEngineFactoryTDB)factory).setPlanCache(planCache) ; }
+    
     // ---- Object
     protected QueryEngineTDB(Op op, DatasetGraphTDB dataset, Binding input, Context context)
     {
         super(op, dataset, input, context) ;
-        this.initialInput = input ;
     }
     
     private boolean doingDynamicDatasetBySpecialDataset = false ;
@@ -76,7 +77,6 @@ public class QueryEngineTDB extends QueryEngineMain
             doingDynamicDatasetBySpecialDataset = true ;
             super.dataset = DynamicDatasets.dynamicDataset(dsDesc, dataset, isUnionDefaultGraph(cxt) ) ;
         }
-        this.initialInput = input ; 
     }
     
     private static boolean isUnionDefaultGraph(Context cxt) {
@@ -87,7 +87,7 @@ public class QueryEngineTDB extends QueryEngineMain
     @Override
     protected Op modifyOp(Op op)
     {
-        op = Substitute.substitute(op, initialInput) ;
+        // Any initial input has been substituted by QueryEngineBase.createPlan.
         // Optimize (high-level)
         op = super.modifyOp(op) ;
 
@@ -145,6 +145,8 @@ public class QueryEngineTDB extends QueryEngineMain
         
     protected static class QueryEngineFactoryTDB implements QueryEngineFactory
     {
+        private PlanCache planCache = null ;
+
         private static boolean isHandledByTDB(DatasetGraph dataset) {
             return TDBInternal.isBackedByTDB(dataset);
         }
@@ -166,6 +168,7 @@ public class QueryEngineTDB extends QueryEngineMain
         public Plan create(Query query, DatasetGraph dataset, Binding input, Context context)
         {
             QueryEngineTDB engine = new QueryEngineTDB(query, dsgToQuery(dataset), input, context) ;
+            engine.usePlanCache(planCache) ;
             return engine.getPlan() ;
         }
         
@@ -179,6 +182,13 @@ public class QueryEngineTDB extends QueryEngineMain
             QueryEngineTDB engine = new QueryEngineTDB(op, dsgToQuery(dataset), binding, context) ;
             return engine.getPlan() ;
         }
+
+        @Override
+        public PlanCache getPlanCache()
+        { return planCache ; }
+
+        public void setPlanCache(PlanCache planCache)
+        { this.planCache = planCache ; }
     }
     
 //    // By rewrite, not using a general purpose dataset with the right graphs in.
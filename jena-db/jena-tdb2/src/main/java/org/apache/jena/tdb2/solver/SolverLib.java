@@ -38,6 +38,7 @@ import org.apache.jena.sparql.engine.binding.Binding ;
 import org.apache.jena.sparql.engine.binding.BindingFactory ;
 import org.apache.jena.sparql.engine.binding.BindingMap ;
 import org.apache.jena.sparql.engine.iterator.QueryIterNullIterator ;
+import org.apache.jena.sparql.util.Context ;
 import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.lib.NodeLib;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
@@ -45,6 +46,7 @@ import org.apache.jena.tdb2.store.GraphTDB;
 import org.apache.jena.tdb2.store.NodeId;
 import org.apache.jena.tdb2.store.nodetable.NodeTable;
 import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.sys.SystemTDB;
 import org.apache.jena.tdb2.sys.TDBInternal;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
@@ -116,15 +118,38 @@ public class SolverLib
         Iterator<BindingNodeId> chain = Iter.map(input, SolverLib.convFromBinding(nodeTable)) ;
         List<Abortable> killList = new ArrayList<>() ;
         
+        if ( leapfrog(triples, anyGraph, filter, execCxt) )
+        {
+            List<Tuple<Node>> tuples = new ArrayList<>() ;
+            for ( Triple triple : triples )
+                tuples.add(tuple(graphNode, triple)) ;
+            chain = new StageMatchLeapfrog(nodeTupleTable, chain, tuples, execCxt) ;
+            chain = makeAbortable(chain, killList) ;
+            triples = Collections.emptyList() ;
+        }
+        
+        if ( ! anyGraph && triples.size() >= 2 && execCxt != null && execCxt.getContext().isTrue(SystemTDB.symMergeJoin) )
+        {
+            // Merge join the first triple pattern with a later one, if possible.
+            Tuple<Node> tuple0 = tuple(graphNode, triples.get(0)) ;
+            for ( int j = 1 ; j < triples.size() ; j++ )
+            {
+                Tuple<Node> tupleJ = tuple(graphNode, triples.get(j)) ;
+                Var joinVar = StageMatchMergeJoin.joinVar(nodeTupleTable, tuple0, tupleJ) ;
+                if ( joinVar == null )
+                    continue ;
+                chain = new StageMatchMergeJoin(nodeTupleTable, chain, tuple0, tupleJ, joinVar, filter, execCxt) ;
+                chain = makeAbortable(chain, killList) ;
+                triples = new ArrayList<>(triples) ;
+                triples.remove(j) ;
+                triples.remove(0) ;
+                break ;
+            }
+        }
+        
         for ( Triple triple : triples )
         {
-            Tuple<Node> tuple = null ;
-            if ( graphNode == null )
-                // 3-tuples
-                tuple = TupleFactory.tuple(triple.getSubject(), triple.getPredicate(), triple.getObject()) ;
-            else
-                // 4-tuples.
-                tuple = TupleFactory.tuple(graphNode, triple.getSubject(), triple.getPredicate(), triple.getObject()) ;
+            Tuple<Node> tuple = tuple(graphNode, triple) ;
             chain = solve(nodeTupleTable, tuple, anyGraph, chain, filter, execCxt) ;
             chain = makeAbortable(chain, killList) ; 
         }
@@ -153,6 +178,32 @@ public class SolverLib
         return new QueryIterTDB(iterBinding, killList, input, execCxt) ;
     }
     
+    /**
+     * Whether to use a leapfrog triejoin : only if set in the context, for all BGPs
+     * ("true") or for cyclic BGPs ("cyclic").
+     */
+    private static boolean leapfrog(List<Triple> triples, boolean anyGraph, Predicate<Tuple<NodeId>> filter, ExecutionContext execCxt)
+    {
+        if ( anyGraph || filter != null || triples.size() < 2 || execCxt == null )
+            return false ;
+        Context context = execCxt.getContext() ;
+        if ( context.isTrue(SystemTDB.symLeapfrog) )
+            return true ;
+        if ( "cyclic".equalsIgnoreCase(context.getAsString(SystemTDB.symLeapfrog)) )
+            return StageMatchLeapfrog.isCyclic(triples) ;
+        return false ;
+    }
+    
+    private static Tuple<Node> tuple(Node graphNode, Triple triple)
+    {
+        if ( graphNode == null )
+            // 3-tuples
+            return TupleFactory.tuple(triple.getSubject(), triple.getPredicate(), triple.getObject()) ;
+        else
+            // 4-tuples.
+            return TupleFactory.tuple(graphNode, triple.getSubject(), triple.getPredicate(), triple.getObject()) ;
+    }
+    
     /** Create an abortable iterator, storing it in the killList.
      *  Just return the input iterator if kilList is null. 
      */
@@ -0,0 +1,566 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.Iterator ;
+import java.util.List ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.iterator.IteratorSlotted ;
+import org.apache.jena.atlas.iterator.RepeatApplyIterator ;
+import org.apache.jena.atlas.lib.tuple.Tuple ;
+import org.apache.jena.atlas.lib.tuple.TupleFactory ;
+import org.apache.jena.atlas.lib.tuple.TupleMap ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord;
+
+/**
+ * Match a group of tuple patterns with a leapfrog triejoin.
+ * <p>
+ * A B+Tree index is a trie over the NodeIds of its slots, in index order. A
+ * global order of the variables is chosen so that each pattern has an index in
+ * which its variables occur in that order. The join binds one variable at a time
+ * by "leapfrogging" the indexes of the patterns that contain it: each index in
+ * turn seeks to the largest key of the others until they all agree. No
+ * intermediate results are built, so cyclic patterns such as triangles do not
+ * blow up as they do with pairwise joins.
+ * <p>
+ * The plan is made for each input binding. If the patterns repeat a variable
+ * in one tuple, or there is no order of the variables that the indexes support,
+ * the patterns are matched one after the other as {@link StageMatchTuple} does.
+ */
+public class StageMatchLeapfrog extends RepeatApplyIterator<BindingNodeId>
+{
+    /** Largest number of variables for which all orders are tried. */
+    private static final int MaxVars = 6 ;
+
+    private final NodeTupleTable nodeTupleTable ;
+    private final List<Tuple<Node>> patternTuples ;
+    private final ExecutionContext execCxt ;
+
+    public StageMatchLeapfrog(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input,
+                              List<Tuple<Node>> tuples, ExecutionContext execCxt)
+    {
+        super(input) ;
+        this.nodeTupleTable = nodeTupleTable ;
+        this.patternTuples = tuples ;
+        this.execCxt = execCxt ;
+    }
+
+    /**
+     * Test whether triple patterns are cyclic : there is a cycle of patterns
+     * where each pattern shares a variable with the next.
+     */
+    public static boolean isCyclic(List<Triple> triples)
+    {
+        // Union-find over patterns and the variables they mention.
+        // Patterns are 0..N-1, variables from N.
+        List<Node> vars = new ArrayList<>() ;
+        for ( Triple t : triples )
+            for ( Node n : nodes(t) )
+                if ( Var.isVar(n) && ! vars.contains(n) )
+                    vars.add(n) ;
+        int[] parent = new int[triples.size()+vars.size()] ;
+        for ( int i = 0 ; i < parent.length ; i++ )
+            parent[i] = i ;
+        for ( int i = 0 ; i < triples.size() ; i++ )
+        {
+            List<Node> seen = new ArrayList<>(3) ;
+            for ( Node n : nodes(triples.get(i)) )
+            {
+                if ( ! Var.isVar(n) || seen.contains(n) )
+                    continue ;
+                seen.add(n) ;
+                int x = root(parent, i) ;
+                int y = root(parent, triples.size()+vars.indexOf(n)) ;
+                if ( x == y )
+                    return true ;
+                parent[x] = y ;
+            }
+        }
+        return false ;
+    }
+
+    private static Node[] nodes(Triple t)
+    {
+        return new Node[]{ t.getSubject(), t.getPredicate(), t.getObject() } ;
+    }
+
+    private static int root(int[] parent, int i)
+    {
+        while ( parent[i] != i )
+            i = parent[i] ;
+        return i ;
+    }
+
+    @Override
+    protected Iterator<BindingNodeId> makeNextStage(BindingNodeId input)
+    {
+        int len = patternTuples.get(0).len() ;
+        List<NodeId[]> patternIds = new ArrayList<>() ;
+        List<Var[]> patternVars = new ArrayList<>() ;
+        List<Var> vars = new ArrayList<>() ;
+        boolean possible = true ;
+        for ( Tuple<Node> tuple : patternTuples )
+        {
+            NodeId ids[] = new NodeId[len] ;
+            Var[] var = new Var[len] ;
+            if ( ! StageMatchTuple.prepare(nodeTupleTable.getNodeTable(), tuple, input, ids, var) )
+                return Iter.nullIterator() ;
+            boolean ground = true ;
+            for ( int i = 0 ; i < len ; i++ )
+            {
+                if ( var[i] == null )
+                    continue ;
+                ground = false ;
+                for ( int j = i+1 ; j < len ; j++ )
+                    if ( var[i].equals(var[j]) )
+                        possible = false ;
+                if ( ! vars.contains(var[i]) )
+                    vars.add(var[i]) ;
+            }
+            if ( ground )
+            {
+                // Existence test.
+                if ( ! nodeTupleTable.getTupleTable().find(TupleFactory.create(ids)).hasNext() )
+                    return Iter.nullIterator() ;
+                continue ;
+            }
+            patternIds.add(ids) ;
+            patternVars.add(var) ;
+        }
+        if ( vars.isEmpty() )
+            return Iter.singleton(input) ;
+
+        TrieIterator[][] levels = null ;
+        Var[] order = null ;
+        if ( possible && vars.size() <= MaxVars )
+        {
+            order = plan(patternVars, vars) ;
+            if ( order != null )
+                levels = tries(patternIds, patternVars, order) ;
+        }
+        if ( levels == null )
+        {
+            Iterator<BindingNodeId> iter = Iter.singleton(input) ;
+            for ( Tuple<Node> tuple : patternTuples )
+                iter = new StageMatchTuple(nodeTupleTable, iter, tuple, false, null, execCxt) ;
+            return iter ;
+        }
+        return new LeapfrogJoin(input, order, levels) ;
+    }
+
+    /** The B+Tree indexes of the tuple table. */
+    private List<TupleIndexRecord> indexes()
+    {
+        List<TupleIndexRecord> x = new ArrayList<>() ;
+        for ( TupleIndex index : nodeTupleTable.getTupleTable().getIndexes() )
+        {
+            if ( index != null && index.baseTupleIndex() instanceof TupleIndexRecord )
+                x.add((TupleIndexRecord)index.baseTupleIndex()) ;
+        }
+        return x ;
+    }
+
+    /**
+     * Choose an order of the variables. Each pattern must have an index where
+     * its variables are in that order; orders where more patterns have their
+     * constants leading in the index are better. Returns null if no order is
+     * possible.
+     */
+    private Var[] plan(List<Var[]> patternVars, List<Var> vars)
+    {
+        List<TupleIndexRecord> indexes = indexes() ;
+        Var[] best = null ;
+        int bestScore = -1 ;
+        for ( Var[] order : permutations(vars) )
+        {
+            int score = 0 ;
+            for ( Var[] var : patternVars )
+            {
+                int s = -1 ;
+                for ( TupleIndexRecord index : indexes )
+                    s = Math.max(s, score(index.getMapping(), var, order)) ;
+                if ( s < 0 )
+                {
+                    score = -1 ;
+                    break ;
+                }
+                score += s ;
+            }
+            if ( score > bestScore )
+            {
+                best = order ;
+                bestScore = score ;
+            }
+        }
+        return best ;
+    }
+
+    /**
+     * Score an index for a pattern and a variable order : -1 if the variables are
+     * not in the order in the index, else the number of leading constants.
+     */
+    private static int score(TupleMap tupleMap, Var[] var, Var[] order)
+    {
+        int leading = 0 ;
+        int rank = -1 ;
+        boolean seenVar = false ;
+        for ( int i = 0 ; i < var.length ; i++ )
+        {
+            Var v = var[tupleMap.getSlotIdx(i)] ;
+            if ( v == null )
+            {
+                if ( ! seenVar )
+                    leading++ ;
+                continue ;
+            }
+            seenVar = true ;
+            int r = Arrays.asList(order).indexOf(v) ;
+            if ( r < rank )
+                return -1 ;
+            rank = r ;
+        }
+        return leading ;
+    }
+
+    private static List<Var[]> permutations(List<Var> vars)
+    {
+        List<Var[]> x = new ArrayList<>() ;
+        permutations(vars, new Var[vars.size()], 0, x) ;
+        return x ;
+    }
+
+    private static void permutations(List<Var> vars, Var[] current, int idx, List<Var[]> acc)
+    {
+        if ( idx == current.length )
+        {
+            acc.add(current.clone()) ;
+            return ;
+        }
+        for ( Var v : vars )
+        {
+            if ( Arrays.asList(current).subList(0, idx).contains(v) )
+                continue ;
+            current[idx] = v ;
+            permutations(vars, current, idx+1, acc) ;
+        }
+    }
+
+    /** For each variable in order, the trie iterators of the patterns that contain it. */
+    private TrieIterator[][] tries(List<NodeId[]> patternIds, List<Var[]> patternVars, Var[] order)
+    {
+        List<TupleIndexRecord> indexes = indexes() ;
+        List<List<TrieIterator>> levels = new ArrayList<>() ;
+        for ( int i = 0 ; i < order.length ; i++ )
+            levels.add(new ArrayList<>()) ;
+        for ( int p = 0 ; p < patternIds.size() ; p++ )
+        {
+            NodeId[] ids = patternIds.get(p) ;
+            Var[] var = patternVars.get(p) ;
+            TupleIndexRecord index = null ;
+            int s = -1 ;
+            for ( TupleIndexRecord idx : indexes )
+            {
+                int s2 = score(idx.getMapping(), var, order) ;
+                if ( s2 > s )
+                {
+                    index = idx ;
+                    s = s2 ;
+                }
+            }
+            TrieIterator trie = new TrieIterator(index, ids, var) ;
+            for ( int i = 0 ; i < order.length ; i++ )
+            {
+                if ( Arrays.asList(var).contains(order[i]) )
+                    levels.get(i).add(trie) ;
+            }
+        }
+        TrieIterator[][] x = new TrieIterator[order.length][] ;
+        for ( int i = 0 ; i < order.length ; i++ )
+            x[i] = levels.get(i).toArray(new TrieIterator[0]) ;
+        return x ;
+    }
+
+    /**
+     * A position in an index used as a trie. The key is in index order, and in the
+     * 64 bit on-disk form of NodeIds, which is the order of keys in the index.
+     */
+    private static class TrieIterator
+    {
+        private final TupleIndexRecord.Seeker index ;
+        private final long[] key ;
+        private final boolean[] fixed ;
+        // Index positions of the variables, from the first in index order.
+        private final int[] varPos ;
+        private int depth = -1 ;
+        private boolean atEnd = false ;
+
+        TrieIterator(TupleIndexRecord index, NodeId[] ids, Var[] var)
+        {
+            this.index = index.seeker() ;
+            TupleMap tupleMap = index.getMapping() ;
+            int len = ids.length ;
+            key = new long[len] ;
+            fixed = new boolean[len] ;
+            int numVars = 0 ;
+            for ( Var v : var )
+                if ( v != null ) numVars++ ;
+            varPos = new int[numVars] ;
+            int j = 0 ;
+            for ( int i = 0 ; i < len ; i++ )
+            {
+                int slot = tupleMap.getSlotIdx(i) ;
+                if ( var[slot] == null )
+                {
+                    fixed[i] = true ;
+                    key[i] = NodeIdFactory.encode(ids[slot]) ;
+                }
+                else
+                    varPos[j++] = i ;
+            }
+        }
+
+        long key()          { return key[varPos[depth]] ; }
+        boolean atEnd()     { return atEnd ; }
+
+        /** Go down to the first key of the next variable */
+        void open()
+        {
+            depth++ ;
+            seek(0L) ;
+        }
+
+        void up()
+        {
+            depth-- ;
+            atEnd = false ;
+        }
+
+        void next()
+        {
+            long k = key() ;
+            if ( k == -1L )
+                atEnd = true ;
+            else
+                seek(k+1) ;
+        }
+
+        /** Move to the first key, at the current depth, that is at or after k (unsigned). */
+        void seek(long k)
+        {
+            int pos = varPos[depth] ;
+            long[] start = new long[key.length] ;
+            System.arraycopy(key, 0, start, 0, pos) ;
+            for ( ;; )
+            {
+                start[pos] = k ;
+                // The constants up to the next variable, then the lowest key.
+                int i = pos+1 ;
+                for ( ; i < key.length && fixed[i] ; i++ )
+                    start[i] = key[i] ;
+                for ( ; i < key.length ; i++ )
+                    start[i] = 0 ;
+                long[] x = index.ceiling(start) ;
+                if ( x == null || ! match(x, 0, pos) )
+                {
+                    atEnd = true ;
+                    return ;
+                }
+                int end = pos+1 ;
+                while ( end < key.length && fixed[end] )
+                    end++ ;
+                if ( match(x, pos+1, end) )
+                {
+                    key[pos] = x[pos] ;
+                    atEnd = false ;
+                    return ;
+                }
+                // The key exists but not with the following constants.
+                if ( x[pos] != k )
+                    k = x[pos] ;
+                else if ( k == -1L )
+                {
+                    atEnd = true ;
+                    return ;
+                }
+                else
+                    k = k+1 ;
+            }
+        }
+
+        private boolean match(long[] x, int from, int to)
+        {
+            for ( int i = from ; i < to ; i++ )
+                if ( x[i] != key[i] )
+                    return false ;
+            return true ;
+        }
+    }
+
+    /** The leapfrog triejoin, with one level per variable. */
+    private static class LeapfrogJoin extends IteratorSlotted<BindingNodeId>
+    {
+        private final BindingNodeId input ;
+        private final Var[] vars ;
+        private final TrieIterator[][] levels ;
+        private final int[] p ;
+        private final boolean[] levelAtEnd ;
+        // The key found at each level.
+        private final long[] keys ;
+        private int level = -1 ;
+        private boolean finished = false ;
+        private BindingNodeId result = null ;
+
+        LeapfrogJoin(BindingNodeId input, Var[] vars, TrieIterator[][] levels)
+        {
+            this.input = input ;
+            this.vars = vars ;
+            this.levels = levels ;
+            this.p = new int[vars.length] ;
+            this.levelAtEnd = new boolean[vars.length] ;
+            this.keys = new long[vars.length] ;
+        }
+
+        @Override
+        protected boolean hasMore()
+        {
+            if ( result != null )
+                return true ;
+            if ( finished )
+                return false ;
+            if ( level < 0 )
+            {
+                level = 0 ;
+                openLevel(0) ;
+            }
+            else
+                nextLevel(level) ;
+            for ( ;; )
+            {
+                if ( levelAtEnd[level] )
+                {
+                    upLevel(level) ;
+                    if ( level == 0 )
+                    {
+                        finished = true ;
+                        return false ;
+                    }
+                    level-- ;
+                    nextLevel(level) ;
+                    continue ;
+                }
+                if ( level == vars.length-1 )
+                {
+                    result = binding() ;
+                    return true ;
+                }
+                level++ ;
+                openLevel(level) ;
+            }
+        }
+
+        @Override
+        protected BindingNodeId moveToNext()
+        {
+            BindingNodeId b = result ;
+            result = null ;
+            return b ;
+        }
+
+        private BindingNodeId binding()
+        {
+            BindingNodeId b = new BindingNodeId(input) ;
+            for ( int i = 0 ; i < vars.length ; i++ )
+                b.put(vars[i], NodeIdFactory.decode(keys[i])) ;
+            return b ;
+        }
+
+        private void openLevel(int i)
+        {
+            TrieIterator[] iters = levels[i] ;
+            boolean atEnd = false ;
+            for ( TrieIterator iter : iters )
+            {
+                iter.open() ;
+                atEnd = atEnd || iter.atEnd() ;
+            }
+            levelAtEnd[i] = atEnd ;
+            if ( atEnd )
+                return ;
+            Arrays.sort(iters, (t1, t2) -> Long.compareUnsigned(t1.key(), t2.key())) ;
+            p[i] = 0 ;
+            search(i) ;
+        }
+
+        private void upLevel(int i)
+        {
+            for ( TrieIterator iter : levels[i] )
+                iter.up() ;
+            levelAtEnd[i] = false ;
+        }
+
+        private void nextLevel(int i)
+        {
+            TrieIterator[] iters = levels[i] ;
+            iters[p[i]].next() ;
+            if ( iters[p[i]].atEnd() )
+            {
+                levelAtEnd[i] = true ;
+                return ;
+            }
+            p[i] = (p[i]+1) % iters.length ;
+            search(i) ;
+        }
+
+        // Seek each iterator in turn to the largest key until all keys are the same.
+        private void search(int i)
+        {
+            TrieIterator[] iters = levels[i] ;
+            int n = iters.length ;
+            long max = iters[(p[i]+n-1) % n].key() ;
+            for ( ;; )
+            {
+                TrieIterator iter = iters[p[i]] ;
+                if ( iter.key() == max )
+                {
+                    keys[i] = max ;
+                    return ;
+                }
+                iter.seek(max) ;
+                if ( iter.atEnd() )
+                {
+                    levelAtEnd[i] = true ;
+                    return ;
+                }
+                max = iter.key() ;
+                p[i] = (p[i]+1) % n ;
+            }
+        }
+    }
+}
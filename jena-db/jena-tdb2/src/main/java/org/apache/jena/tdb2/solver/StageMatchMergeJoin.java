@@ -0,0 +1,330 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.function.Predicate ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.iterator.IteratorSlotted ;
+import org.apache.jena.atlas.iterator.RepeatApplyIterator ;
+import org.apache.jena.atlas.lib.tuple.Tuple ;
+import org.apache.jena.atlas.lib.tuple.TupleFactory ;
+import org.apache.jena.atlas.lib.tuple.TupleMap ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.engine.ExecutionContext ;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord;
+
+/**
+ * Join two tuple patterns that share a variable by merging two index scans.
+ * <p>
+ * A B+Tree index scan with the fixed slots of a pattern as its key prefix
+ * returns tuples in the order of the next slot of the index. If, for both
+ * patterns, there is an index where that next slot is the shared variable, the
+ * two scans are in the same order of the variable's NodeId and can be merged,
+ * instead of probing the index for the second pattern once for each match of the
+ * first.
+ * <p>
+ * The check is made for each input binding; if the variable is bound, or there
+ * are no suitable indexes, the patterns are matched one after the other as
+ * {@link StageMatchTuple} does.
+ */
+public class StageMatchMergeJoin extends RepeatApplyIterator<BindingNodeId>
+{
+    private final NodeTupleTable nodeTupleTable ;
+    private final Tuple<Node> patternTuple1 ;
+    private final Tuple<Node> patternTuple2 ;
+    private final Var joinVar ;
+    private final Predicate<Tuple<NodeId>> filter ;
+    private final ExecutionContext execCxt ;
+
+    public StageMatchMergeJoin(NodeTupleTable nodeTupleTable, Iterator<BindingNodeId> input,
+                               Tuple<Node> tuple1, Tuple<Node> tuple2, Var joinVar,
+                               Predicate<Tuple<NodeId>> filter,
+                               ExecutionContext execCxt)
+    {
+        super(input) ;
+        this.nodeTupleTable = nodeTupleTable ;
+        this.patternTuple1 = tuple1 ;
+        this.patternTuple2 = tuple2 ;
+        this.joinVar = joinVar ;
+        this.filter = filter ;
+        this.execCxt = execCxt ;
+    }
+
+    /**
+     * Find a variable for a merge join of two patterns, considering only the
+     * constants in the patterns. Returns null if there is none.
+     */
+    public static Var joinVar(NodeTupleTable nodeTupleTable, Tuple<Node> tuple1, Tuple<Node> tuple2)
+    {
+        boolean[] fixed1 = constants(tuple1) ;
+        boolean[] fixed2 = constants(tuple2) ;
+        for ( int i = 0 ; i < tuple1.len() ; i++ )
+        {
+            Node n = tuple1.get(i) ;
+            if ( ! Var.isVar(n) )
+                continue ;
+            int slot1 = slot(tuple1, n) ;
+            int slot2 = slot(tuple2, n) ;
+            if ( slot1 < 0 || slot2 < 0 )
+                continue ;
+            if ( orderedIndex(nodeTupleTable, fixed1, slot1) != null && orderedIndex(nodeTupleTable, fixed2, slot2) != null )
+                return Var.alloc(n) ;
+        }
+        return null ;
+    }
+
+    private static boolean[] constants(Tuple<Node> tuple)
+    {
+        boolean[] fixed = new boolean[tuple.len()] ;
+        for ( int i = 0 ; i < tuple.len() ; i++ )
+            fixed[i] = ! Var.isVar(tuple.get(i)) ;
+        return fixed ;
+    }
+
+    /** The slot of a variable that occurs exactly once in the tuple, else -1. */
+    private static int slot(Tuple<Node> tuple, Node var)
+    {
+        int slot = -1 ;
+        for ( int i = 0 ; i < tuple.len() ; i++ )
+        {
+            if ( var.equals(tuple.get(i)) )
+            {
+                if ( slot >= 0 )
+                    return -1 ;
+                slot = i ;
+            }
+        }
+        return slot ;
+    }
+
+    /**
+     * Find a B+Tree index whose leading slots are exactly the fixed slots,
+     * followed by the given slot. Returns null if there is none.
+     */
+    static TupleIndex orderedIndex(NodeTupleTable nodeTupleTable, boolean[] fixed, int slot)
+    {
+        int numFixed = 0 ;
+        for ( boolean b : fixed )
+            if ( b ) numFixed++ ;
+        for ( TupleIndex index : nodeTupleTable.getTupleTable().getIndexes() )
+        {
+            if ( index == null || ! ( index.baseTupleIndex() instanceof TupleIndexRecord ) )
+                continue ;
+            TupleMap tupleMap = index.getMapping() ;
+            boolean matches = true ;
+            for ( int i = 0 ; i < numFixed ; i++ )
+            {
+                if ( ! fixed[tupleMap.getSlotIdx(i)] )
+                {
+                    matches = false ;
+                    break ;
+                }
+            }
+            if ( matches && tupleMap.getSlotIdx(numFixed) == slot )
+                return index ;
+        }
+        return null ;
+    }
+
+    @Override
+    protected Iterator<BindingNodeId> makeNextStage(BindingNodeId input)
+    {
+        int len = patternTuple1.len() ;
+        NodeId ids1[] = new NodeId[len] ;
+        Var[] var1 = new Var[len] ;
+        NodeId ids2[] = new NodeId[len] ;
+        Var[] var2 = new Var[len] ;
+        if ( ! StageMatchTuple.prepare(nodeTupleTable.getNodeTable(), patternTuple1, input, ids1, var1) )
+            return Iter.nullIterator() ;
+        if ( ! StageMatchTuple.prepare(nodeTupleTable.getNodeTable(), patternTuple2, input, ids2, var2) )
+            return Iter.nullIterator() ;
+
+        int slot1 = slot(patternTuple1, joinVar) ;
+        int slot2 = slot(patternTuple2, joinVar) ;
+        TupleIndex index1 = null ;
+        TupleIndex index2 = null ;
+        if ( ids1[slot1] == null )
+        {
+            index1 = orderedIndex(nodeTupleTable, fixed(ids1), slot1) ;
+            index2 = orderedIndex(nodeTupleTable, fixed(ids2), slot2) ;
+        }
+        if ( index1 == null || index2 == null )
+        {
+            // Not possible for this binding : one pattern after the other.
+            Iterator<BindingNodeId> iter = Iter.singleton(input) ;
+            iter = new StageMatchTuple(nodeTupleTable, iter, patternTuple1, false, filter, execCxt) ;
+            return new StageMatchTuple(nodeTupleTable, iter, patternTuple2, false, filter, execCxt) ;
+        }
+
+        Iterator<Tuple<NodeId>> iter1 = index1.find(TupleFactory.create(ids1)) ;
+        Iterator<Tuple<NodeId>> iter2 = index2.find(TupleFactory.create(ids2)) ;
+        if ( filter != null )
+        {
+            iter1 = Iter.filter(iter1, filter) ;
+            iter2 = Iter.filter(iter2, filter) ;
+        }
+        return new MergeJoin(input, iter1, slot1, var1, iter2, slot2, var2) ;
+    }
+
+    private static boolean[] fixed(NodeId[] ids)
+    {
+        boolean[] fixed = new boolean[ids.length] ;
+        for ( int i = 0 ; i < ids.length ; i++ )
+            fixed[i] = ( ids[i] != null ) ;
+        return fixed ;
+    }
+
+    /** Merge two tuple streams, both in index order of their join slot. */
+    private static class MergeJoin extends IteratorSlotted<BindingNodeId>
+    {
+        private final BindingNodeId input ;
+        private final Iterator<Tuple<NodeId>> iter1 ;
+        private final Iterator<Tuple<NodeId>> iter2 ;
+        private final int slot1 ;
+        private final int slot2 ;
+        private final Var[] var1 ;
+        private final Var[] var2 ;
+
+        private Tuple<NodeId> next1 ;
+        private Tuple<NodeId> next2 ;
+        // Tuples of both sides with the same join key.
+        private final List<Tuple<NodeId>> run1 = new ArrayList<>() ;
+        private final List<Tuple<NodeId>> run2 = new ArrayList<>() ;
+        private int idx1 = 0 ;
+        private int idx2 = 0 ;
+        private BindingNodeId result = null ;
+
+        MergeJoin(BindingNodeId input,
+                  Iterator<Tuple<NodeId>> iter1, int slot1, Var[] var1,
+                  Iterator<Tuple<NodeId>> iter2, int slot2, Var[] var2)
+        {
+            this.input = input ;
+            this.iter1 = iter1 ;
+            this.iter2 = iter2 ;
+            this.slot1 = slot1 ;
+            this.slot2 = slot2 ;
+            this.var1 = var1 ;
+            this.var2 = var2 ;
+            this.next1 = iter1.hasNext() ? iter1.next() : null ;
+            this.next2 = iter2.hasNext() ? iter2.next() : null ;
+        }
+
+        @Override
+        protected boolean hasMore()
+        {
+            for ( ;; )
+            {
+                // Cross product of the current runs.
+                while ( idx1 < run1.size() )
+                {
+                    while ( idx2 < run2.size() )
+                    {
+                        result = bind(run1.get(idx1), run2.get(idx2++)) ;
+                        if ( result != null )
+                            return true ;
+                    }
+                    idx1++ ;
+                    idx2 = 0 ;
+                }
+                if ( ! nextRuns() )
+                    return false ;
+            }
+        }
+
+        @Override
+        protected BindingNodeId moveToNext()
+        {
+            BindingNodeId b = result ;
+            result = null ;
+            return b ;
+        }
+
+        // Advance both sides to the next common key.
+        private boolean nextRuns()
+        {
+            run1.clear() ;
+            run2.clear() ;
+            idx1 = 0 ;
+            idx2 = 0 ;
+            while ( next1 != null && next2 != null )
+            {
+                NodeId key = next1.get(slot1) ;
+                int x = NodeId.compareIndexOrder(key, next2.get(slot2)) ;
+                if ( x < 0 )
+                {
+                    next1 = iter1.hasNext() ? iter1.next() : null ;
+                    continue ;
+                }
+                if ( x > 0 )
+                {
+                    next2 = iter2.hasNext() ? iter2.next() : null ;
+                    continue ;
+                }
+                while ( next1 != null && key.equals(next1.get(slot1)) )
+                {
+                    run1.add(next1) ;
+                    next1 = iter1.hasNext() ? iter1.next() : null ;
+                }
+                while ( next2 != null && key.equals(next2.get(slot2)) )
+                {
+                    run2.add(next2) ;
+                    next2 = iter2.hasNext() ? iter2.next() : null ;
+                }
+                return true ;
+            }
+            return false ;
+        }
+
+        private BindingNodeId bind(Tuple<NodeId> tuple1, Tuple<NodeId> tuple2)
+        {
+            BindingNodeId output = new BindingNodeId(input) ;
+            if ( ! bind(output, var1, tuple1) || ! bind(output, var2, tuple2) )
+                return null ;
+            return output ;
+        }
+
+        private static boolean bind(BindingNodeId output, Var[] vars, Tuple<NodeId> tuple)
+        {
+            for ( int i = 0 ; i < vars.length ; i++ )
+            {
+                Var v = vars[i] ;
+                if ( v == null )
+                    continue ;
+                NodeId id = tuple.get(i) ;
+                NodeId current = output.get(v) ;
+                if ( current != null )
+                {
+                    if ( ! current.equals(id) )
+                        return false ;
+                    continue ;
+                }
+                output.put(v, id) ;
+            }
+            return true ;
+        }
+    }
+}
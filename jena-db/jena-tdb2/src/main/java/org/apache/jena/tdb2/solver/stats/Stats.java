@@ -34,6 +34,7 @@ import org.apache.jena.atlas.logging.Log ;
 import org.apache.jena.graph.Graph ;
 import org.apache.jena.graph.Node ;
 import org.apache.jena.graph.Triple ;
+import org.apache.jena.sparql.engine.optimizer.StatsCatalog ;
 import org.apache.jena.sparql.engine.optimizer.StatsMatcher ;
 import org.apache.jena.sparql.graph.NodeConst ;
 import org.apache.jena.sparql.sse.Item ;
@@ -57,6 +58,15 @@ public class Stats
         write(output, stats.getPredicates(), stats.getTypes(), stats.getCount()) ;
     }
     
+    /** Write a statistics catalog */
+    static public void write(String filename, StatsCatalog catalog)
+    {
+        try (OutputStream statsOut = new BufferedOutputStream(new FileOutputStream(filename))) {
+            catalog.write(statsOut) ;
+        } catch (IOException ex)
+        { Log.warn(Stats.class, "Problem when writing statistics catalog", ex) ; }
+    }
+    
     static private void write(String filename, Map<Node, Integer> predicateStats, Map<Node, Integer> typeStats, long statsTotal)
     {
         // Write out the stats
@@ -0,0 +1,246 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver.stats;
+
+import java.util.* ;
+import java.util.Map.Entry ;
+
+import org.apache.jena.atlas.lib.tuple.Tuple ;
+import org.apache.jena.atlas.lib.tuple.TupleMap ;
+import org.apache.jena.dboe.sys.Names;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.engine.optimizer.CharacteristicSet ;
+import org.apache.jena.sparql.engine.optimizer.NumericHistogram ;
+import org.apache.jena.sparql.engine.optimizer.PredicateStats ;
+import org.apache.jena.sparql.engine.optimizer.StatsCatalog ;
+import org.apache.jena.sparql.expr.NodeValue ;
+import org.apache.jena.sparql.graph.NodeConst ;
+import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.nodetable.NodeTable;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex;
+
+/**
+ * Gather a {@link StatsCatalog} from the triple table of a database. The triples
+ * are read in index order, SPO for the per-subject figures (distinct subjects
+ * and characteristic sets), POS for distinct objects and the numeric values, and
+ * OSP to count distinct objects overall, so no per-node state is kept for
+ * subjects or objects.
+ * <p>
+ * The catalog is used by the query optimizer when it is the file
+ * {@link Names#optCatalog} in the database directory, when the database is
+ * next opened.
+ */
+public class StatsCollectorCatalog
+{
+    /** Largest number of characteristic sets kept (those with most subjects). */
+    public static int MaxCharacteristicSets = 10000 ;
+    /** Number of buckets in a histogram. */
+    public static int HistogramBuckets      = 16 ;
+    /** Numeric values sampled for each predicate. */
+    public static int SampleSize            = 1024 ;
+
+    /** Gather the catalog for the default graph (read transaction required) */
+    public static StatsCatalog gather(DatasetGraphTDB dsg)
+    {
+        return gather(dsg.getTripleTable().getNodeTupleTable()) ;
+    }
+
+    /** Gather the catalog for a table of triples */
+    public static StatsCatalog gather(NodeTupleTable triples)
+    {
+        NodeTable nodeTable = triples.getNodeTable() ;
+        NodeId rdfType = nodeTable.getNodeIdForNode(NodeConst.nodeRDFType) ;
+
+        // ---- SPO
+        long count = 0 ;
+        long subjects = 0 ;
+        Map<NodeId, long[]> predicates = new HashMap<>() ;    // count, subjects, objects
+        Map<NodeId, Long> types = new HashMap<>() ;
+        Map<List<NodeId>, Acc> sets = new HashMap<>() ;
+        NodeId currentS = null ;
+        NodeId currentP = null ;
+        Map<NodeId, Long> star = new TreeMap<>(NodeId::compareIndexOrder) ;
+        Iterator<Tuple<NodeId>> iter = index(triples, 0, 1).all() ;
+        while ( iter.hasNext() )
+        {
+            Tuple<NodeId> t = iter.next() ;
+            NodeId s = t.get(0) ;
+            NodeId p = t.get(1) ;
+            NodeId o = t.get(2) ;
+            count++ ;
+            long[] x = predicates.computeIfAbsent(p, (k)->new long[3]) ;
+            x[0]++ ;
+            if ( ! s.equals(currentS) )
+            {
+                subjects++ ;
+                addSet(sets, star) ;
+                currentS = s ;
+                currentP = null ;
+            }
+            if ( ! p.equals(currentP) )
+            {
+                x[1]++ ;
+                currentP = p ;
+            }
+            star.merge(p, 1L, Long::sum) ;
+            if ( p.equals(rdfType) )
+                types.merge(o, 1L, Long::sum) ;
+        }
+        addSet(sets, star) ;
+
+        // ---- POS
+        Map<NodeId, Sample> samples = new HashMap<>() ;
+        Random random = new Random(0) ;
+        currentP = null ;
+        NodeId currentO = null ;
+        iter = index(triples, 1, 2).all() ;
+        while ( iter.hasNext() )
+        {
+            Tuple<NodeId> t = iter.next() ;
+            NodeId p = t.get(1) ;
+            NodeId o = t.get(2) ;
+            if ( ! p.equals(currentP) || ! o.equals(currentO) )
+            {
+                predicates.get(p)[2]++ ;
+                currentP = p ;
+                currentO = o ;
+            }
+            if ( o.isInline() )
+            {
+                NodeValue nv = NodeValue.makeNode(NodeId.extract(o)) ;
+                if ( nv.isNumber() )
+                    samples.computeIfAbsent(p, (k)->new Sample()).add(nv.getDouble(), random) ;
+            }
+        }
+
+        // ---- OSP
+        long objects = 0 ;
+        currentO = null ;
+        iter = index(triples, 2, 0).all() ;
+        while ( iter.hasNext() )
+        {
+            NodeId o = iter.next().get(2) ;
+            if ( ! o.equals(currentO) )
+            {
+                objects++ ;
+                currentO = o ;
+            }
+        }
+
+        // ---- Results
+        StatsCatalog catalog = new StatsCatalog(count, subjects, objects) ;
+        for ( Entry<NodeId, long[]> e : predicates.entrySet() )
+        {
+            long[] x = e.getValue() ;
+            Sample sample = samples.get(e.getKey()) ;
+            NumericHistogram histogram = ( sample == null ) ? null : sample.histogram() ;
+            catalog.add(nodeTable.getNodeForNodeId(e.getKey()), new PredicateStats(x[0], x[1], x[2], histogram)) ;
+        }
+        for ( Entry<NodeId, Long> e : types.entrySet() )
+            catalog.addType(nodeTable.getNodeForNodeId(e.getKey()), e.getValue()) ;
+        List<Acc> accs = new ArrayList<>(sets.values()) ;
+        accs.sort((a1, a2) -> Long.compare(a2.subjects, a1.subjects)) ;
+        for ( Acc acc : accs.subList(0, Math.min(accs.size(), MaxCharacteristicSets)) )
+        {
+            Map<Node, Long> occurrences = new LinkedHashMap<>() ;
+            for ( int i = 0 ; i < acc.predicates.size() ; i++ )
+                occurrences.put(nodeTable.getNodeForNodeId(acc.predicates.get(i)), acc.occurrences[i]) ;
+            catalog.add(new CharacteristicSet(acc.subjects, occurrences)) ;
+        }
+        return catalog ;
+    }
+
+    /** Gather the catalog for the default graph and write it to the database directory. */
+    public static StatsCatalog write(DatasetGraphTDB dsg)
+    {
+        if ( dsg.getLocation().isMem() )
+            throw new TDBException("In-memory database : no directory for the statistics") ;
+        StatsCatalog catalog = gather(dsg) ;
+        Stats.write(dsg.getLocation().getPath(Names.optCatalog), catalog) ;
+        return catalog ;
+    }
+
+    /** An index with the slots first and second leading. */
+    private static TupleIndex index(NodeTupleTable triples, int first, int second)
+    {
+        for ( TupleIndex index : triples.getTupleTable().getIndexes() )
+        {
+            TupleMap tupleMap = index.getMapping() ;
+            if ( tupleMap.getSlotIdx(0) == first && tupleMap.getSlotIdx(1) == second )
+                return index ;
+        }
+        throw new TDBException("No index for statistics: slots "+first+" and "+second) ;
+    }
+
+    // Add the predicates of one subject to its characteristic set.
+    private static void addSet(Map<List<NodeId>, Acc> sets, Map<NodeId, Long> star)
+    {
+        if ( star.isEmpty() )
+            return ;
+        List<NodeId> key = new ArrayList<>(star.keySet()) ;
+        Acc acc = sets.computeIfAbsent(key, Acc::new) ;
+        acc.subjects++ ;
+        int i = 0 ;
+        for ( long n : star.values() )
+            acc.occurrences[i++] += n ;
+        star.clear() ;
+    }
+
+    private static class Acc
+    {
+        final List<NodeId> predicates ;
+        final long[] occurrences ;
+        long subjects = 0 ;
+
+        Acc(List<NodeId> predicates)
+        {
+            this.predicates = predicates ;
+            this.occurrences = new long[predicates.size()] ;
+        }
+    }
+
+    // Reservoir sample of numeric values.
+    private static class Sample
+    {
+        final double[] values = new double[SampleSize] ;
+        int size = 0 ;
+        long seen = 0 ;
+
+        void add(double value, Random random)
+        {
+            seen++ ;
+            if ( size < values.length )
+                values[size++] = value ;
+            else
+            {
+                long i = (long)(random.nextDouble()*seen) ;
+                if ( i < values.length )
+                    values[(int)i] = value ;
+            }
+        }
+
+        NumericHistogram histogram()
+        {
+            return NumericHistogram.build(Arrays.copyOf(values, size), seen, HistogramBuckets) ;
+        }
+    }
+}
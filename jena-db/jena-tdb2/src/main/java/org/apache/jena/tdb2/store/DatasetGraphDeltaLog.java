@@ -0,0 +1,472 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store;
+
+import java.util.ArrayList ;
+import java.util.HashMap ;
+import java.util.HashSet ;
+import java.util.Iterator ;
+import java.util.LinkedHashMap ;
+import java.util.LinkedHashSet ;
+import java.util.List ;
+import java.util.Map ;
+import java.util.Set ;
+import java.util.concurrent.ExecutionException ;
+import java.util.concurrent.Executors ;
+import java.util.concurrent.ScheduledExecutorService ;
+import java.util.concurrent.TimeUnit ;
+import java.util.concurrent.atomic.AtomicBoolean ;
+import java.util.concurrent.locks.ReadWriteLock ;
+import java.util.concurrent.locks.ReentrantLock ;
+import java.util.concurrent.locks.ReentrantReadWriteLock ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.logging.FmtLog ;
+import org.apache.jena.dboe.base.file.Location ;
+import org.apache.jena.dboe.jenax.Txn ;
+import org.apache.jena.dboe.transaction.txn.TransactionException ;
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.query.ReadWrite ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.DatasetGraphTriplesQuads ;
+import org.apache.jena.sparql.core.GraphView ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.tdb2.TDBException ;
+import org.apache.jena.tdb2.sys.DatabaseConnection ;
+import org.apache.jena.tdb2.sys.SystemTDB ;
+import org.apache.jena.tdb2.sys.TDBInternal ;
+import org.slf4j.Logger ;
+import org.slf4j.LoggerFactory ;
+
+/**
+ * A TDB2 database where a write transaction commits by appending its changes
+ * to a durable log ({@link DeltaLog}) instead of updating the indexes. A
+ * background thread applies the committed changes to the indexes in large,
+ * sorted batches ({@link DeltaApply}).
+ * <p>
+ * Transactions see the indexes overlaid with the changes not yet applied. A
+ * write transaction reads the indexes in a read transaction of the TDB2
+ * database, so writers are not held up by the application of earlier commits.
+ * There is one writer at a time.
+ * <p>
+ * On start-up, changes in the log from before a crash are applied to the indexes.
+ * <p>
+ * The SPARQL query engine uses the general {@link DatasetGraph} interface, not
+ * the TDB2 query engine.
+ *
+ * @see SystemTDB#DeltaApplyThreshold
+ * @see SystemTDB#DeltaApplyInterval
+ */
+public class DatasetGraphDeltaLog extends DatasetGraphTriplesQuads {
+    private static Logger LOG = LoggerFactory.getLogger(DatasetGraphDeltaLog.class) ;
+
+    // One per database.
+    private static final Map<Location, DatasetGraphDeltaLog> datasets = new HashMap<>() ;
+
+    /** Create or connect to the delta log dataset for a TDB2 database. */
+    public static DatasetGraphDeltaLog connect(Location location) {
+        synchronized(datasets) {
+            return datasets.computeIfAbsent(location, loc -> {
+                DatasetGraph base = DatabaseConnection.connectCreate(loc).getDatasetGraph() ;
+                return new DatasetGraphDeltaLog(loc, base, SystemTDB.DeltaApplyThreshold, SystemTDB.DeltaApplyInterval) ;
+            }) ;
+        }
+    }
+
+    /**
+     * Stop all the delta log datasets without applying their changes to the
+     * indexes, as if the JVM had stopped. Use with great care (testing only).
+     */
+    public static void internalReset() {
+        List<DatasetGraphDeltaLog> x ;
+        synchronized(datasets) {
+            x = new ArrayList<>(datasets.values()) ;
+            datasets.clear() ;
+        }
+        for ( DatasetGraphDeltaLog dsg : x ) {
+            dsg.closed = true ;
+            dsg.stopApplier(true) ;
+            if ( dsg.log != null )
+                dsg.log.close() ;
+        }
+    }
+
+    private static class TxnState {
+        final ReadWrite mode ;
+        final DeltaState delta ;
+        // The changes of a write transaction. Null when the transaction has committed or aborted.
+        Map<Quad, Boolean> changes ;
+        // The quads added by the transaction.
+        DeltaState.Index added = DeltaState.Index.EMPTY ;
+        TxnState(ReadWrite mode, DeltaState delta) {
+            this.mode = mode ;
+            this.delta = delta ;
+            this.changes = ( mode == ReadWrite.WRITE ) ? new LinkedHashMap<>() : null ;
+        }
+    }
+
+    private final Location location ;
+    private final DatasetGraph base ;
+    private final DeltaLog log ;
+    private final int applyThreshold ;
+
+    private final ThreadLocal<TxnState> txn = new ThreadLocal<>() ;
+    private final ReentrantLock writerLock = new ReentrantLock(true) ;
+    // Committed changes not yet in the indexes. Changed inside commitLock.
+    private volatile DeltaState state = DeltaState.EMPTY ;
+    // Orders appends to the log with the start of a new log segment.
+    private final Object commitLock = new Object() ;
+    // A transaction starts (read "state", begin on "base") with the read lock;
+    // the commit of applied changes to the indexes, and the removal of them from "state",
+    // are done with the write lock. A transaction sees the indexes and the changes not in them.
+    private final ReadWriteLock startLock = new ReentrantReadWriteLock() ;
+
+    private final ScheduledExecutorService applier ;
+    private final AtomicBoolean applyRequested = new AtomicBoolean(false) ;
+    private volatile boolean closed = false ;
+
+    private DatasetGraphDeltaLog(Location location, DatasetGraph base, int applyThreshold, long applyInterval) {
+        this.location = location ;
+        this.base = base ;
+        this.applyThreshold = applyThreshold ;
+        this.log = location.isMem() ? null : new DeltaLog(location) ;
+        if ( log != null )
+            recover() ;
+        this.applier = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "TDB2 delta: "+location.getDirectoryPath()) ;
+            thread.setDaemon(true) ;
+            return thread ;
+        }) ;
+        if ( applyInterval > 0 )
+            applier.scheduleWithFixedDelay(this::applyBackground, applyInterval, applyInterval, TimeUnit.MILLISECONDS) ;
+    }
+
+    public Location getLocation() {
+        return location ;
+    }
+
+    /** Number of changes committed but not yet applied to the indexes. */
+    public long getDeltaSize() {
+        return state.size() ;
+    }
+
+    /** Apply all the committed changes to the indexes, and wait until that has finished. */
+    public void applyDelta() {
+        checkNotClosed() ;
+        try { applier.submit(this::apply).get() ; }
+        catch (InterruptedException ex) { throw new TDBException("Interrupted", ex) ; }
+        catch (ExecutionException ex) { throw new TDBException("Failed to apply changes", ex.getCause()) ; }
+    }
+
+    // ---- Applying changes to the indexes.
+
+    /** Apply the changes in the log from before the last shutdown. */
+    private void recover() {
+        int segment = log.segment() ;
+        List<Map<Quad, Boolean>> batches = log.readBefore(segment) ;
+        if ( ! batches.isEmpty() ) {
+            DeltaState recovered = DeltaState.EMPTY ;
+            for ( Map<Quad, Boolean> batch : batches )
+                recovered = recovered.append(batch) ;
+            FmtLog.info(LOG, "Recovery: %d transactions, %d changes", recovered.batchCount(), recovered.size()) ;
+            Map<Quad, Boolean> changes = recovered.changes() ;
+            Txn.executeWrite(base, ()->DeltaApply.apply(changes, TDBInternal.requireStorage(base))) ;
+        }
+        log.deleteBefore(segment) ;
+    }
+
+    private void applyBackground() {
+        try { apply() ; }
+        catch (Throwable ex) { FmtLog.error(LOG, ex, "Failed to apply changes") ; }
+    }
+
+    // Only on the applier thread.
+    private void apply() {
+        DeltaState snapshot ;
+        int segment = -1 ;
+        synchronized(commitLock) {
+            snapshot = state ;
+            if ( snapshot.isEmpty() )
+                return ;
+            // Later commits go in the new segment.
+            if ( log != null )
+                segment = log.rotate() ;
+        }
+        base.begin(ReadWrite.WRITE) ;
+        try {
+            DeltaApply.apply(snapshot.changes(), TDBInternal.requireStorage(base)) ;
+            startLock.writeLock().lock() ;
+            try {
+                base.commit() ;
+                synchronized(commitLock) {
+                    state = state.dropApplied(snapshot) ;
+                }
+            } finally { startLock.writeLock().unlock() ; }
+        } catch (RuntimeException ex) {
+            try { base.abort() ; } catch (RuntimeException ex2) { ex.addSuppressed(ex2) ; }
+            throw ex ;
+        } finally { base.end() ; }
+        if ( log != null )
+            log.deleteBefore(segment) ;
+    }
+
+    private void stopApplier(boolean now) {
+        if ( now )
+            applier.shutdownNow() ;
+        else
+            applier.shutdown() ;
+        try { applier.awaitTermination(60, TimeUnit.SECONDS) ; }
+        catch (InterruptedException ex) { Thread.currentThread().interrupt() ; }
+    }
+
+    // ---- Transactions
+
+    @Override
+    public void begin(ReadWrite readWrite) {
+        checkNotClosed() ;
+        if ( txn.get() != null )
+            throw new TransactionException("Already in a transaction") ;
+        if ( readWrite == ReadWrite.WRITE )
+            writerLock.lock() ;
+        try {
+            startLock.readLock().lock() ;
+            try {
+                DeltaState delta = state ;
+                base.begin(ReadWrite.READ) ;
+                txn.set(new TxnState(readWrite, delta)) ;
+            } finally { startLock.readLock().unlock() ; }
+        } catch (RuntimeException ex) {
+            if ( readWrite == ReadWrite.WRITE )
+                writerLock.unlock() ;
+            throw ex ;
+        }
+    }
+
+    @Override
+    public void commit() {
+        TxnState t = requireTxn() ;
+        if ( t.mode == ReadWrite.READ || t.changes == null )
+            return ;
+        Map<Quad, Boolean> batch = t.changes ;
+        t.changes = null ;
+        if ( batch.isEmpty() )
+            return ;
+        long size ;
+        synchronized(commitLock) {
+            if ( log != null )
+                log.append(batch) ;
+            state = state.append(batch) ;
+            size = state.size() ;
+        }
+        if ( size >= applyThreshold && applyRequested.compareAndSet(false, true) ) {
+            applier.execute(()->{
+                applyRequested.set(false) ;
+                applyBackground() ;
+            }) ;
+        }
+    }
+
+    @Override
+    public void abort() {
+        TxnState t = requireTxn() ;
+        t.changes = null ;
+    }
+
+    @Override
+    public void end() {
+        TxnState t = txn.get() ;
+        if ( t == null )
+            return ;
+        boolean unfinished = ( t.changes != null ) ;
+        txn.remove() ;
+        long size ;
+        try { base.end() ; }
+        finally {
+            if ( t.mode == ReadWrite.WRITE )
+                writerLock.unlock() ;
+            size = state.size() ;
+        }
+        if ( unfinished )
+            throw new TransactionException("Write transaction with no commit or abort") ;
+        // Writes are faster than applying them: wait for the indexes to catch up.
+        if ( t.mode == ReadWrite.WRITE && size >= 4L*applyThreshold )
+            applyDelta() ;
+    }
+
+    @Override
+    public boolean isInTransaction() {
+        return txn.get() != null ;
+    }
+
+    @Override
+    public boolean supportsTransactions() {
+        return true ;
+    }
+
+    @Override
+    public boolean supportsTransactionAbort() {
+        return true ;
+    }
+
+    private TxnState requireTxn() {
+        TxnState t = txn.get() ;
+        if ( t == null )
+            throw new TransactionException("Not in a transaction") ;
+        return t ;
+    }
+
+    private TxnState requireWriteTxn() {
+        TxnState t = requireTxn() ;
+        if ( t.mode != ReadWrite.WRITE )
+            throw new TransactionException("Not in a write transaction") ;
+        if ( t.changes == null )
+            throw new TransactionException("Transaction has finished") ;
+        return t ;
+    }
+
+    private void checkNotClosed() {
+        if ( closed )
+            throw new TDBException("Closed: "+location) ;
+    }
+
+    /** Close: the changes are applied to the indexes and the log is removed. */
+    @Override
+    public void close() {
+        if ( closed )
+            return ;
+        synchronized(datasets) {
+            datasets.remove(location) ;
+        }
+        try { applyDelta() ; }
+        finally {
+            closed = true ;
+            stopApplier(false) ;
+            if ( log != null ) {
+                log.close() ;
+                log.deleteBefore(log.segment()+1) ;
+            }
+        }
+    }
+
+    // ---- Data access
+
+    @Override
+    public Graph getDefaultGraph() {
+        return GraphView.createDefaultGraph(this) ;
+    }
+
+    @Override
+    public Graph getGraph(Node graphNode) {
+        return GraphView.createNamedGraph(this, graphNode) ;
+    }
+
+    @Override
+    protected void addToDftGraph(Node s, Node p, Node o) {
+        change(Quad.create(Quad.defaultGraphIRI, s, p, canonical(o)), true) ;
+    }
+
+    @Override
+    protected void addToNamedGraph(Node g, Node s, Node p, Node o) {
+        change(Quad.create(g, s, p, canonical(o)), true) ;
+    }
+
+    @Override
+    protected void deleteFromDftGraph(Node s, Node p, Node o) {
+        change(Quad.create(Quad.defaultGraphIRI, s, p, canonical(o)), false) ;
+    }
+
+    @Override
+    protected void deleteFromNamedGraph(Node g, Node s, Node p, Node o) {
+        change(Quad.create(g, s, p, canonical(o)), false) ;
+    }
+
+    // Record a change without looking at the indexes: an add of a quad that is
+    // already there, or a delete of one that is not, is harmless in the overlay and
+    // is resolved against the indexes by DeltaApply.
+    private void change(Quad quad, boolean add) {
+        TxnState t = requireWriteTxn() ;
+        Boolean prev = t.changes.put(quad, add) ;
+        t.added = t.added.change(quad, prev != null && prev, add) ;
+    }
+
+    @Override
+    protected Iterator<Quad> findInDftGraph(Node s, Node p, Node o) {
+        o = canonical(o) ;
+        Iterator<Quad> iter = base.find(Quad.defaultGraphIRI, s, p, o) ;
+        // The storage may use another node for the default graph.
+        iter = Iter.map(iter, q -> q.getGraph().equals(Quad.defaultGraphIRI) ? q : Quad.create(Quad.defaultGraphIRI, q.asTriple())) ;
+        return overlay(iter, Quad.defaultGraphIRI, s, p, o) ;
+    }
+
+    @Override
+    protected Iterator<Quad> findInSpecificNamedGraph(Node g, Node s, Node p, Node o) {
+        o = canonical(o) ;
+        return overlay(base.find(g, s, p, o), g, s, p, o) ;
+    }
+
+    @Override
+    protected Iterator<Quad> findInAnyNamedGraphs(Node s, Node p, Node o) {
+        o = canonical(o) ;
+        return overlay(base.findNG(Node.ANY, s, p, o), Node.ANY, s, p, o) ;
+    }
+
+    /** The quads of the indexes, changed by the committed changes and then by the changes of this transaction. */
+    private Iterator<Quad> overlay(Iterator<Quad> iter, Node g, Node s, Node p, Node o) {
+        TxnState t = requireTxn() ;
+        DeltaState delta = t.delta ;
+        if ( ! delta.isEmpty() ) {
+            iter = Iter.filter(iter, q -> ! delta.isChanged(q)) ;
+            iter = Iter.concat(iter, delta.findAdded(g, s, p, o)) ;
+        }
+        Map<Quad, Boolean> changes = t.changes ;
+        if ( changes != null && ! changes.isEmpty() ) {
+            // There may be changes to the changes while iterating, e.g. the
+            // slice-by-slice deleteAny. The index of added quads is persistent
+            // so this iterates over the adds as they were when find was called.
+            iter = Iter.filter(iter, q -> ! changes.containsKey(q)) ;
+            iter = Iter.concat(iter, t.added.find(g, s, p, o)) ;
+        }
+        return iter ;
+    }
+
+    @Override
+    public Iterator<Node> listGraphNodes() {
+        TxnState t = requireTxn() ;
+        Set<Node> graphNames = new LinkedHashSet<>() ;
+        base.listGraphNodes().forEachRemaining(graphNames::add) ;
+        // Graphs with changes may have become empty or have been created.
+        Set<Node> changed = new HashSet<>() ;
+        t.delta.changedQuads().forEachRemaining(q -> changed.add(q.getGraph())) ;
+        if ( t.changes != null )
+            t.changes.keySet().forEach(q -> changed.add(q.getGraph())) ;
+        changed.remove(Quad.defaultGraphIRI) ;
+        graphNames.addAll(changed) ;
+        return Iter.filter(graphNames.iterator(), 
+                           gn -> ! changed.contains(gn) || findInSpecificNamedGraph(gn, Node.ANY, Node.ANY, Node.ANY).hasNext()) ;
+    }
+
+    /** Literals the storage keeps as values are in their canonical form, as the storage would return them. */
+    private static Node canonical(Node node) {
+        if ( node == null || ! node.isLiteral() )
+            return node ;
+        NodeId nid = NodeId.inline(node) ;
+        return ( nid == null ) ? node : NodeId.extract(nid) ;
+    }
+}
@@ -27,6 +27,7 @@ import org.apache.jena.atlas.lib.CacheFactory ;
 import org.apache.jena.dboe.base.file.Location;
 import org.apache.jena.graph.Graph;
 import org.apache.jena.graph.Node;
+import org.apache.jena.query.ReadWrite;
 import org.apache.jena.shared.PrefixMapping;
 import org.apache.jena.shared.impl.PrefixMappingImpl;
 import org.apache.jena.sparql.core.DatasetGraph ;
@@ -44,6 +45,9 @@ public class DatasetGraphSwitchable extends DatasetGraphWrapperTxn /* Until ARQ
 //    }
     
     private final AtomicReference<DatasetGraph> dsgx = new AtomicReference<>();
+    // The DatasetGraph of the transaction of this thread, which stays the
+    // same if the base is switched (e.g. compaction) during the transaction. 
+    private final ThreadLocal<DatasetGraph> txnDsg = new ThreadLocal<>();
     // Null for in-memory datasets.
     private final Path basePath;
     private final Location location ;
@@ -71,7 +75,48 @@ public class DatasetGraphSwitchable extends DatasetGraphWrapperTxn /* Until ARQ
      *  made based on that contract.
      */
     @Override
-    public DatasetGraph get() { return dsgx.get(); }
+    public DatasetGraph get() {
+        DatasetGraph dsg = txnDsg.get();
+        return ( dsg != null ) ? dsg : dsgx.get();
+    }
+
+    @Override
+    public void begin(ReadWrite readWrite) {
+        for ( ;; ) {
+            DatasetGraph dsg = dsgx.get();
+            dsg.begin(readWrite);
+            if ( dsg == dsgx.get() ) {
+                txnDsg.set(dsg);
+                return;
+            }
+            // Switched while starting, e.g. after waiting for a compaction to finish.
+            // Start again on the current DatasetGraph.
+            if ( readWrite == ReadWrite.WRITE )
+                dsg.abort();
+            dsg.end();
+        }
+    }
+
+    // commit() and abort() finish the transaction: release the pinned DatasetGraph
+    // so that later calls, including one without end(), go to the current one.
+
+    @Override
+    public void commit() {
+        try { get().commit(); }
+        finally { txnDsg.remove(); }
+    }
+
+    @Override
+    public void abort() {
+        try { get().abort(); }
+        finally { txnDsg.remove(); }
+    }
+
+    @Override
+    public void end() {
+        try { get().end(); }
+        finally { txnDsg.remove(); }
+    }
 
     /** Set the base {@link DatasetGraph}.
      * Returns the old value.
@@ -113,11 +158,11 @@ public class DatasetGraphSwitchable extends DatasetGraphWrapperTxn /* Until ARQ
         return new PrefixMappingImpl() {
             
             DatasetPrefixStorage dps() {
-                return ((DatasetGraphTDB)dsgx.get()).getPrefixes();
+                return ((DatasetGraphTDB)DatasetGraphSwitchable.this.get()).getPrefixes();
             }
             
             Graph graph() {
-                DatasetGraphTDB dsg = (DatasetGraphTDB)dsgx.get();
+                DatasetGraphTDB dsg = (DatasetGraphTDB)DatasetGraphSwitchable.this.get();
                 if ( gn == null )
                     return dsg.getDefaultGraph();
                 else
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store;
+
+import java.util.ArrayList ;
+import java.util.Comparator ;
+import java.util.List ;
+import java.util.Map ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.tdb2.store.nodetable.NodeTable ;
+
+/**
+ * Apply the changes of a {@link DatasetGraphDeltaLog} to the TDB2 storage, in
+ * a write transaction, as one sorted batch.
+ * <p>
+ * The nodes are given NodeIds first, then the quads are added or deleted in the
+ * NodeId order of the primary indexes (SPO, GSPO), so the B+Tree updates of the
+ * primary indexes are in key order and touch each block once.
+ * <p>
+ * The changes are recorded without looking at the indexes, so an add may be of a
+ * quad that is already there, and a delete of one that is not; the index update
+ * in the batch resolves these.
+ */
+class DeltaApply {
+
+    private static class Change {
+        final Quad quad ;
+        final boolean add ;
+        final boolean dftGraph ;
+        final long[] key ;
+        Change(Quad quad, boolean add, boolean dftGraph, long[] key) {
+            this.quad = quad ;
+            this.add = add ;
+            this.dftGraph = dftGraph ;
+            this.key = key ;
+        }
+    }
+
+    // Triples (default graph) first, then in key order.
+    private static final Comparator<Change> order = (c1, c2) -> {
+        if ( c1.dftGraph != c2.dftGraph )
+            return c1.dftGraph ? -1 : 1 ;
+        for ( int i = 0 ; i < c1.key.length ; i++ ) {
+            int x = Long.compareUnsigned(c1.key[i], c2.key[i]) ;
+            if ( x != 0 )
+                return x ;
+        }
+        return 0 ;
+    };
+
+    /** Apply the changes; the caller must be in a write transaction on {@code dsg}. */
+    static void apply(Map<Quad, Boolean> changes, DatasetGraphTDB dsg) {
+        NodeTable triplesNodeTable = dsg.getTripleTable().getNodeTupleTable().getNodeTable() ;
+        NodeTable quadsNodeTable = dsg.getQuadTable().getNodeTupleTable().getNodeTable() ;
+        List<Change> deletes = new ArrayList<>() ;
+        List<Change> adds = new ArrayList<>() ;
+        for ( Map.Entry<Quad, Boolean> e : changes.entrySet() ) {
+            Quad quad = e.getKey() ;
+            boolean add = e.getValue() ;
+            boolean dftGraph = quad.isDefaultGraph() ;
+            NodeTable nodeTable = dftGraph ? triplesNodeTable : quadsNodeTable ;
+            long[] key = dftGraph
+                ? key(nodeTable, add, quad.getSubject(), quad.getPredicate(), quad.getObject())
+                : key(nodeTable, add, quad.getGraph(), quad.getSubject(), quad.getPredicate(), quad.getObject()) ;
+            if ( key == null )
+                // Delete with a node not in the database.
+                continue ;
+            (add ? adds : deletes).add(new Change(quad, add, dftGraph, key)) ;
+        }
+        deletes.sort(order) ;
+        adds.sort(order) ;
+        for ( Change c : deletes )
+            dsg.delete(c.quad) ;
+        for ( Change c : adds )
+            dsg.add(c.quad) ;
+    }
+
+    private static long[] key(NodeTable nodeTable, boolean allocate, Node... nodes) {
+        long[] key = new long[nodes.length] ;
+        for ( int i = 0 ; i < nodes.length ; i++ ) {
+            NodeId nid = allocate ? nodeTable.getAllocateNodeId(nodes[i]) : nodeTable.getNodeIdForNode(nodes[i]) ;
+            if ( NodeId.isDoesNotExist(nid) )
+                return null ;
+            key[i] = NodeIdFactory.encode(nid) ;
+        }
+        return key ;
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store;
+
+import java.io.ByteArrayInputStream ;
+import java.io.ByteArrayOutputStream ;
+import java.io.DataInputStream ;
+import java.io.EOFException ;
+import java.io.IOException ;
+import java.io.InputStream ;
+import java.nio.ByteBuffer ;
+import java.nio.channels.FileChannel ;
+import java.nio.file.DirectoryStream ;
+import java.nio.file.Files ;
+import java.nio.file.Path ;
+import java.nio.file.StandardOpenOption ;
+import java.util.ArrayList ;
+import java.util.LinkedHashMap ;
+import java.util.List ;
+import java.util.Map ;
+import java.util.regex.Pattern ;
+import java.util.zip.CRC32 ;
+
+import org.apache.jena.atlas.logging.FmtLog ;
+import org.apache.jena.dboe.base.file.Location ;
+import org.apache.jena.riot.thrift.ThriftConvert ;
+import org.apache.jena.riot.thrift.wire.RDF_Quad ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.tdb2.TDBException ;
+import org.apache.jena.tdb2.sys.FilenameUtils ;
+import org.apache.jena.tdb2.sys.IOX ;
+import org.apache.thrift.TException ;
+import org.apache.thrift.protocol.TCompactProtocol ;
+import org.apache.thrift.protocol.TProtocol ;
+import org.apache.thrift.transport.TIOStreamTransport ;
+import org.slf4j.Logger ;
+import org.slf4j.LoggerFactory ;
+
+/**
+ * The durable log of a {@link DatasetGraphDeltaLog}: the batches of changes
+ * of committed write transactions, appended in commit order.
+ * <p>
+ * The log is a sequence of numbered segment files, "Delta-NNNN". Appends go to the
+ * latest segment; {@link #rotate} starts a new one so that the segments
+ * before it can be deleted once their batches are in the indexes.
+ * <p>
+ * A record is the length and CRC32 of the encoded batch, followed by the batch:
+ * the number of changes, then, for each, add/delete and the quad in Thrift encoding.
+ * Reading stops at the first incomplete or damaged record, the part of an append
+ * that was not made durable.
+ */
+class DeltaLog {
+    private static Logger LOG = LoggerFactory.getLogger(DeltaLog.class) ;
+
+    static final String namebase = "Delta" ;
+    static final String SEP = "-" ;
+    private static final int HeaderLength = Integer.BYTES + Long.BYTES ;
+
+    private final Path directory ;
+    private int segment ;
+    private FileChannel channel ;
+
+    /** Open the log of a database. Any existing segments are for recovery; appends go to a new segment. */
+    DeltaLog(Location location) {
+        this.directory = IOX.asPath(location) ;
+        List<Path> existing = segments() ;
+        int last = existing.isEmpty() ? 0 : index(existing.get(existing.size()-1)) ;
+        this.segment = last+1 ;
+        this.channel = openSegment(segment) ;
+    }
+
+    /** The current segment number. */
+    int segment() {
+        return segment ;
+    }
+
+    /** Read the batches in the segments before the current one. */
+    List<Map<Quad, Boolean>> readBefore(int segmentLimit) {
+        List<Map<Quad, Boolean>> batches = new ArrayList<>() ;
+        for ( Path path : segments() ) {
+            if ( index(path) >= segmentLimit )
+                break ;
+            read(path, batches) ;
+        }
+        return batches ;
+    }
+
+    /** Append a batch and force it to disk. */
+    void append(Map<Quad, Boolean> batch) {
+        byte[] bytes = encode(batch) ;
+        CRC32 crc = new CRC32() ;
+        crc.update(bytes) ;
+        ByteBuffer bb = ByteBuffer.allocate(HeaderLength+bytes.length) ;
+        bb.putInt(bytes.length) ;
+        bb.putLong(crc.getValue()) ;
+        bb.put(bytes) ;
+        bb.flip() ;
+        try {
+            while ( bb.hasRemaining() )
+                channel.write(bb) ;
+            channel.force(false) ;
+        } catch (IOException ex) { throw IOX.exception(ex) ; }
+    }
+
+    /** Start a new segment. Returns the new segment number. */
+    int rotate() {
+        close() ;
+        segment++ ;
+        channel = openSegment(segment) ;
+        return segment ;
+    }
+
+    /** Delete the segments before the given one. */
+    void deleteBefore(int segmentLimit) {
+        for ( Path path : segments() ) {
+            if ( index(path) >= segmentLimit )
+                break ;
+            IOX.delete(path) ;
+        }
+    }
+
+    void close() {
+        try { channel.close() ; }
+        catch (IOException ex) { throw IOX.exception(ex) ; }
+    }
+
+    private FileChannel openSegment(int idx) {
+        Path path = directory.resolve(FilenameUtils.filename(namebase, SEP, idx)) ;
+        try {
+            FileChannel fc = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE) ;
+            fc.position(fc.size()) ;
+            return fc ;
+        } catch (IOException ex) { throw IOX.exception(ex) ; }
+    }
+
+    /** Segment files, in order. */
+    private List<Path> segments() {
+        Pattern pattern = Pattern.compile(Pattern.quote(namebase+SEP)+"[\\d]+") ;
+        List<Path> paths = new ArrayList<>() ;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, namebase+SEP+"*")) {
+            for ( Path entry : stream ) {
+                if ( pattern.matcher(entry.getFileName().toString()).matches() && Files.isRegularFile(entry) )
+                    paths.add(entry) ;
+            }
+        } catch (IOException ex) { throw IOX.exception(ex) ; }
+        paths.sort((p1, p2) -> Integer.compare(index(p1), index(p2))) ;
+        return paths ;
+    }
+
+    private static int index(Path path) {
+        return FilenameUtils.extractIndex(path.getFileName().toString(), namebase, SEP) ;
+    }
+
+    private static void read(Path path, List<Map<Quad, Boolean>> batches) {
+        try ( InputStream in = Files.newInputStream(path) ) {
+            DataInputStream data = new DataInputStream(in) ;
+            for ( ;; ) {
+                int len ;
+                try { len = data.readInt() ; }
+                catch (EOFException ex) { return ; }
+                long checksum = data.readLong() ;
+                byte[] bytes = new byte[len] ;
+                data.readFully(bytes) ;
+                CRC32 crc = new CRC32() ;
+                crc.update(bytes) ;
+                if ( crc.getValue() != checksum ) {
+                    FmtLog.warn(LOG, "Checksum error in %s: the rest of the segment is ignored", path.getFileName()) ;
+                    return ;
+                }
+                batches.add(decode(bytes)) ;
+            }
+        }
+        catch (EOFException ex) {
+            FmtLog.warn(LOG, "Incomplete record at the end of %s: ignored", path.getFileName()) ;
+        }
+        catch (IOException ex) { throw IOX.exception(ex) ; }
+    }
+
+    private static byte[] encode(Map<Quad, Boolean> batch) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        TProtocol protocol = new TCompactProtocol(new TIOStreamTransport(out)) ;
+        try {
+            protocol.writeI32(batch.size()) ;
+            for ( Map.Entry<Quad, Boolean> e : batch.entrySet() ) {
+                protocol.writeBool(e.getValue()) ;
+                ThriftConvert.convert(e.getKey(), false).write(protocol) ;
+            }
+        } catch (TException ex) { throw new TDBException("DeltaLog: encode", ex) ; }
+        return out.toByteArray() ;
+    }
+
+    private static Map<Quad, Boolean> decode(byte[] bytes) {
+        TProtocol protocol = new TCompactProtocol(new TIOStreamTransport(new ByteArrayInputStream(bytes))) ;
+        try {
+            int n = protocol.readI32() ;
+            Map<Quad, Boolean> batch = new LinkedHashMap<>(2*n) ;
+            for ( int i = 0 ; i < n ; i++ ) {
+                boolean add = protocol.readBool() ;
+                RDF_Quad rq = new RDF_Quad() ;
+                rq.read(protocol) ;
+                batch.put(ThriftConvert.convert(rq), add) ;
+            }
+            return batch ;
+        } catch (TException ex) { throw new TDBException("DeltaLog: decode", ex) ; }
+    }
+}
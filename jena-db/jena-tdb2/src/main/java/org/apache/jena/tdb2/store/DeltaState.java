@@ -0,0 +1,271 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store;
+
+import java.util.HashMap ;
+import java.util.Iterator ;
+import java.util.Map ;
+
+import com.github.andrewoma.dexx.collection.Maps ;
+import com.github.andrewoma.dexx.collection.Pair ;
+import com.github.andrewoma.dexx.collection.Set ;
+import com.github.andrewoma.dexx.collection.Sets ;
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.iterator.IteratorConcat ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Quad ;
+
+/**
+ * The committed, not yet applied, changes of a {@link DatasetGraphDeltaLog}:
+ * one batch per write transaction, in commit order. A batch maps a quad to
+ * {@code true} (added) or {@code false} (deleted).
+ * <p>
+ * The latest change of each quad, and the added quads by subject, predicate,
+ * object and graph, are kept in persistent maps that are updated as each batch
+ * is appended, so the cost of a commit depends on the size of its batch, not on
+ * the number of changes waiting to be applied.
+ * <p>
+ * Immutable: a commit, or the application of batches to the indexes, creates
+ * a new {@code DeltaState}, so a transaction keeps the one it started with.
+ */
+final class DeltaState {
+    static final DeltaState EMPTY = new DeltaState(0, 0, 0, Maps.of(), Index.EMPTY) ;
+
+    /** The latest change of a quad, and the batch it was in. */
+    private static final class Change {
+        final long batch ;
+        final boolean add ;
+        Change(long batch, boolean add) {
+            this.batch = batch ;
+            this.add = add ;
+        }
+    }
+
+    // Batches are numbered in commit order; this state has batches "first" to "next"-1.
+    private final long first ;
+    private final long next ;
+    private final long size ;
+    private final com.github.andrewoma.dexx.collection.Map<Quad, Change> changes ;
+    private final Index added ;
+
+    private DeltaState(long first, long next, long size, com.github.andrewoma.dexx.collection.Map<Quad, Change> changes, Index added) {
+        this.first = first ;
+        this.next = next ;
+        this.size = size ;
+        this.changes = changes ;
+        this.added = added ;
+    }
+
+    /** Add a batch. */
+    DeltaState append(Map<Quad, Boolean> batch) {
+        com.github.andrewoma.dexx.collection.Map<Quad, Change> c = changes ;
+        Index idx = added ;
+        for ( Map.Entry<Quad, Boolean> e : batch.entrySet() ) {
+            Quad quad = e.getKey() ;
+            boolean add = e.getValue() ;
+            Change prev = c.get(quad) ;
+            c = c.put(quad, new Change(next, add)) ;
+            idx = idx.change(quad, prev != null && prev.add, add) ;
+        }
+        return new DeltaState(first, next+1, size+batch.size(), c, idx) ;
+    }
+
+    /**
+     * Remove the batches of {@code applied}, an earlier state of this one. Quads
+     * changed again by a later batch keep their latest change.
+     */
+    DeltaState dropApplied(DeltaState applied) {
+        if ( applied.first != first )
+            throw new IllegalArgumentException("Not an earlier state") ;
+        com.github.andrewoma.dexx.collection.Map<Quad, Change> c = changes ;
+        Index idx = added ;
+        for ( Quad quad : applied.changes.keys() ) {
+            Change now = c.get(quad) ;
+            if ( now != null && now.batch < applied.next ) {
+                c = c.remove(quad) ;
+                if ( now.add )
+                    idx = idx.minus(quad) ;
+            }
+        }
+        return new DeltaState(applied.next, next, size-applied.size, c, idx) ;
+    }
+
+    /** The latest change of each quad, as a map that may be modified. */
+    Map<Quad, Boolean> changes() {
+        Map<Quad, Boolean> x = new HashMap<>(changes.size()*2) ;
+        for ( Pair<Quad, Change> e : changes )
+            x.put(e.component1(), e.component2().add) ;
+        return x ;
+    }
+
+    /** The latest change of a quad: true (added), false (deleted), or null if not changed. */
+    Boolean get(Quad quad) {
+        Change c = changes.get(quad) ;
+        return ( c == null ) ? null : c.add ;
+    }
+
+    boolean isChanged(Quad quad) {
+        return changes.containsKey(quad) ;
+    }
+
+    /** The quads with changes. */
+    Iterator<Quad> changedQuads() {
+        return changes.keys().iterator() ;
+    }
+
+    /** The quads whose latest change is an add, that match the pattern; see {@link #matches}. */
+    Iterator<Quad> findAdded(Node g, Node s, Node p, Node o) {
+        return added.find(g, s, p, o) ;
+    }
+
+    /**
+     * Test whether a quad matches a pattern. {@code g} is a graph name, the
+     * default graph, or {@code Node.ANY} for any named graph; {@code s},
+     * {@code p} and {@code o} may be {@code Node.ANY} or null as wildcards.
+     */
+    static boolean matches(Quad quad, Node g, Node s, Node p, Node o) {
+        if ( Quad.isDefaultGraph(g) ) {
+            if ( ! quad.isDefaultGraph() )
+                return false ;
+        } else if ( isAny(g) ) {
+            if ( quad.isDefaultGraph() )
+                return false ;
+        } else if ( ! g.equals(quad.getGraph()) )
+            return false ;
+        return matches(s, quad.getSubject()) && matches(p, quad.getPredicate()) && matches(o, quad.getObject()) ;
+    }
+
+    private static boolean matches(Node pattern, Node node) {
+        return isAny(pattern) || pattern.equals(node) ;
+    }
+
+    // The default graph has more than one name.
+    private static Node graphKey(Node g) {
+        return Quad.isDefaultGraph(g) ? Quad.defaultGraphIRI : g ;
+    }
+
+    private static boolean isAny(Node node) {
+        return node == null || node == Node.ANY ;
+    }
+
+    int batchCount()    { return (int)(next-first) ; }
+
+    /** Number of changes, over all the batches (a quad may be counted more than once). */
+    long size()         { return size ; }
+
+    boolean isEmpty()   { return next == first ; }
+
+    /**
+     * The added quads by each of subject, predicate, object and graph. Also used for
+     * the changes of a write transaction. Persistent, so iterating over the result
+     * of {@link #find} is not affected by later changes.
+     */
+    static final class Index {
+        static final Index EMPTY = new Index(Maps.of(), Maps.of(), Maps.of(), Maps.of()) ;
+
+        final com.github.andrewoma.dexx.collection.Map<Node, Set<Quad>> bySubject ;
+        final com.github.andrewoma.dexx.collection.Map<Node, Set<Quad>> byPredicate ;
+        final com.github.andrewoma.dexx.collection.Map<Node, Set<Quad>> byObject ;
+        final com.github.andrewoma.dexx.collection.Map<Node, Set<Quad>> byGraph ;
+
+        Index(com.github.andrewoma.dexx.collection.Map<Node, Set<Quad>> bySubject,
+              com.github.andrewoma.dexx.collection.Map<Node, Set<Quad>> byPredicate,
+              com.github.andrewoma.dexx.collection.Map<Node, Set<Quad>> byObject,
+              com.github.andrewoma.dexx.collection.Map<Node, Set<Quad>> byGraph) {
+            this.bySubject = bySubject ;
+            this.byPredicate = byPredicate ;
+            this.byObject = byObject ;
+            this.byGraph = byGraph ;
+        }
+
+        /** Record a change of a quad, given whether it was an add before. */
+        Index change(Quad quad, boolean wasAdded, boolean add) {
+            if ( add && ! wasAdded )
+                return plus(quad) ;
+            if ( ! add && wasAdded )
+                return minus(quad) ;
+            return this ;
+        }
+
+        /** The quads that match the pattern; see {@link DeltaState#matches}. */
+        Iterator<Quad> find(Node g, Node s, Node p, Node o) {
+            Set<Quad> candidates = null ;
+            if ( ! isAny(s) )
+                candidates = smaller(candidates, bySubject.get(s)) ;
+            if ( ! isAny(o) )
+                candidates = smaller(candidates, byObject.get(o)) ;
+            if ( ! isAny(p) )
+                candidates = smaller(candidates, byPredicate.get(p)) ;
+            if ( ! isAny(g) )
+                candidates = smaller(candidates, byGraph.get(graphKey(g))) ;
+            Iterator<Quad> iter ;
+            if ( candidates != null )
+                iter = candidates.iterator() ;
+            else if ( isAny(s) && isAny(p) && isAny(o) && isAny(g) ) {
+                // Any named graph, no other constants: every quad is in one graph set.
+                IteratorConcat<Quad> all = new IteratorConcat<>() ;
+                for ( Set<Quad> x : byGraph.values() )
+                    all.add(x.iterator()) ;
+                iter = all ;
+            } else
+                // A constant with no added quads.
+                return Iter.nullIterator() ;
+            return Iter.filter(iter, quad -> matches(quad, g, s, p, o)) ;
+        }
+
+        Index plus(Quad quad) {
+            return new Index(plus(bySubject, quad.getSubject(), quad),
+                             plus(byPredicate, quad.getPredicate(), quad),
+                             plus(byObject, quad.getObject(), quad),
+                             plus(byGraph, graphKey(quad.getGraph()), quad)) ;
+        }
+
+        Index minus(Quad quad) {
+            return new Index(minus(bySubject, quad.getSubject(), quad),
+                             minus(byPredicate, quad.getPredicate(), quad),
+                             minus(byObject, quad.getObject(), quad),
+                             minus(byGraph, graphKey(quad.getGraph()), quad)) ;
+        }
+
+        // The smaller set of candidates. "current" is null for no set yet; "other" is null
+        // if the key is not in the index.
+        private static Set<Quad> smaller(Set<Quad> current, Set<Quad> other) {
+            if ( other == null )
+                return Sets.of() ;
+            if ( current == null || other.size() < current.size() )
+                return other ;
+            return current ;
+        }
+
+        private static com.github.andrewoma.dexx.collection.Map<Node, Set<Quad>> plus(com.github.andrewoma.dexx.collection.Map<Node, Set<Quad>> map, Node key, Quad quad) {
+            Set<Quad> x = map.get(key) ;
+            if ( x == null )
+                x = Sets.of() ;
+            return map.put(key, x.add(quad)) ;
+        }
+
+        private static com.github.andrewoma.dexx.collection.Map<Node, Set<Quad>> minus(com.github.andrewoma.dexx.collection.Map<Node, Set<Quad>> map, Node key, Quad quad) {
+            Set<Quad> x = map.get(key) ;
+            if ( x == null )
+                return map ;
+            x = x.remove(quad) ;
+            return x.isEmpty() ? map.remove(key) : map.put(key, x) ;
+        }
+    }
+}
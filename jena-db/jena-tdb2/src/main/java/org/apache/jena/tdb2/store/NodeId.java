@@ -211,6 +211,15 @@ public class NodeId implements Comparable<NodeId>
         return Long.compare(n1.value2, n2.value2);
     }
     
+    /**
+     * Compare in the order of index keys, which is the unsigned order of the
+     * 64 bit on-disk form. Index scans with a fixed prefix return tuples in this
+     * order of the next slot.
+     */
+    public static int compareIndexOrder(NodeId n1, NodeId n2) {
+        return Long.compareUnsigned(NodeIdFactory.encode(n1), NodeIdFactory.encode(n2));
+    }
+    
     public final boolean isConcrete() { return isConcrete(this); }
     
     public static final boolean isConcrete(NodeId nodeId) { 
@@ -128,8 +128,8 @@ public class NodeIdFactory
         return decode(value2);
     }
 
-    // 64 bit version
-    private static NodeId decode(long value2) {
+    /** Decode the 64 bit on-disk form of a NodeId. */
+    public static NodeId decode(long value2) {
         return NodeIdFactory.create(value2);
     }
 
@@ -139,7 +139,8 @@ public class NodeIdFactory
         Bytes.setLong(v2, b, 0);
     }
 
-    private static long encode(NodeId nodeId) {
+    /** Encode a NodeId as its 64 bit on-disk form. */
+    public static long encode(NodeId nodeId) {
         long x = nodeId.value2;
         switch(nodeId.type()) {
             case PTR:
@@ -0,0 +1,266 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.concurrent.Callable ;
+import java.util.concurrent.locks.StampedLock ;
+import java.util.function.BiConsumer ;
+
+import org.apache.jena.atlas.AtlasException ;
+import org.apache.jena.atlas.lib.Bytes ;
+import org.apache.jena.atlas.lib.Cache ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.tdb2.lib.NodeLib ;
+import org.apache.jena.tdb2.store.Hash ;
+import org.apache.jena.tdb2.store.NodeId ;
+import org.apache.jena.tdb2.store.NodeIdFactory ;
+import org.apache.jena.tdb2.sys.SystemTDB ;
+
+/**
+ * Node to NodeId cache held outside the Java heap.
+ * <p>
+ * The key is the node hash, the same 128 bit hash the node table uses as the key of
+ * its node index; the value is the 64 bit disk form of the NodeId. Entries live in a
+ * 4-way set associative table. When a set is full, the oldest entry in the set is
+ * replaced. The nodes themselves are kept, in the compact binary form of
+ * {@link NodeId2NodeCacheOffHeap}, in a ring buffer so that the keys can be
+ * recovered; when the ring wraps round, the entries for the oldest nodes are dropped.
+ * <p>
+ * Lookups are lock-free unless they overlap with an update.
+ */
+public class Node2NodeIdCacheOffHeap implements Cache<Node, NodeId> {
+    // Slot : hash(hi) | hash(lo) | NodeId | position+1 (0 for an empty slot).
+    private static final int SlotSize    = 4*Long.BYTES ;
+    private static final int Ways        = 4 ;
+    private static final int BucketSize  = Ways*SlotSize ;
+    /** Average number of ring bytes per slot. */
+    private static final int BytesPerSlot  = 64 ;
+
+    private final OffHeapBytes    table ;
+    private final long            bucketMask ;
+    private final OffHeapNodeRing ring ;
+    private final OffHeapNodeRing.Overwrite overwritten = this::overwritten ;
+    private final StampedLock     lock      = new StampedLock() ;
+    // Protected by the write lock.
+    private long                  count     = 0 ;
+    private BiConsumer<Node, NodeId> dropHandler = null ;
+
+    /** Create a cache using about {@code size} bytes, split between the table and the node storage. */
+    public Node2NodeIdCacheOffHeap(long size) {
+        long slots = Math.max(Ways, size/(SlotSize+BytesPerSlot)) ;
+        long buckets = Long.highestOneBit(slots/Ways) ;
+        this.table = new OffHeapBytes(buckets*BucketSize) ;
+        this.bucketMask = buckets-1 ;
+        this.ring = new OffHeapNodeRing(Math.max(1024, size-table.capacity()), 2) ;
+    }
+
+    /** Number of bytes of memory used. */
+    public long sizeBytes() {
+        return table.capacity()+ring.capacity() ;
+    }
+
+    private static Hash hash(Node node) {
+        Hash h = new Hash(SystemTDB.LenNodeHash) ;
+        NodeLib.setHash(h, node) ;
+        return h ;
+    }
+
+    private long bucket(long hi, long lo) {
+        return ((hi ^ lo) & bucketMask)*BucketSize ;
+    }
+
+    @Override
+    public boolean containsKey(Node key) {
+        return getIfPresent(key) != null ;
+    }
+
+    @Override
+    public NodeId getIfPresent(Node key) {
+        byte[] h = hash(key).getBytes() ;
+        long hi = Bytes.getLong(h, 0) ;
+        long lo = Bytes.getLong(h, 8) ;
+        long st = lock.tryOptimisticRead() ;
+        long x = find(hi, lo) ;
+        long v = ( x == -1 ) ? 0 : table.getLong(x+16) ;
+        if ( ! lock.validate(st) ) {
+            st = lock.readLock() ;
+            try {
+                x = find(hi, lo) ;
+                v = ( x == -1 ) ? 0 : table.getLong(x+16) ;
+            } finally { lock.unlockRead(st) ; }
+        }
+        return x == -1 ? null : NodeIdFactory.decode(v) ;
+    }
+
+    /** Return the address of the slot for the hash, or -1. The caller holds, or validates, the lock. */
+    private long find(long hi, long lo) {
+        long b = bucket(hi, lo) ;
+        for ( int i = 0 ; i < Ways ; i++ ) {
+            long x = b+i*SlotSize ;
+            if ( table.getLong(x+24) != 0 && table.getLong(x) == hi && table.getLong(x+8) == lo )
+                return x ;
+        }
+        return -1 ;
+    }
+
+    @Override
+    public NodeId getOrFill(Node key, Callable<NodeId> callable) {
+        NodeId value = getIfPresent(key) ;
+        if ( value == null ) {
+            try { value = callable.call() ; }
+            catch (Exception e) {
+                throw new AtlasException("Exception on cache fill", e) ;
+            }
+            if ( value != null )
+                put(key, value) ;
+        }
+        return value ;
+    }
+
+    @Override
+    public void put(Node key, NodeId value) {
+        byte[] bytes = NodeId2NodeCacheOffHeap.encode(key) ;
+        if ( bytes == null || bytes.length > ring.maxNodeBytes() )
+            return ;
+        byte[] h = hash(key).getBytes() ;
+        long hi = Bytes.getLong(h, 0) ;
+        long lo = Bytes.getLong(h, 8) ;
+        long v = NodeIdFactory.encode(value) ;
+        long st = lock.writeLock() ;
+        try {
+            long x = find(hi, lo) ;
+            if ( x != -1 ) {
+                long old = table.getLong(x+16) ;
+                table.putLong(x+16, v) ;
+                if ( old != v && dropHandler != null )
+                    dropHandler.accept(key, NodeIdFactory.decode(old)) ;
+                return ;
+            }
+            long posn = ring.append(hi, lo, bytes, overwritten) ;
+            // Empty slot, else the oldest.
+            long b = bucket(hi, lo) ;
+            long oldest = Long.MAX_VALUE ;
+            for ( int i = 0 ; i < Ways ; i++ ) {
+                long y = b+i*SlotSize ;
+                long p = table.getLong(y+24) ;
+                if ( p == 0 ) {
+                    x = y ;
+                    break ;
+                }
+                if ( p < oldest ) {
+                    oldest = p ;
+                    x = y ;
+                }
+            }
+            if ( table.getLong(x+24) != 0 )
+                drop(x) ;
+            table.putLong(x, hi) ;
+            table.putLong(x+8, lo) ;
+            table.putLong(x+16, v) ;
+            table.putLong(x+24, posn+1) ;
+            count++ ;
+        } finally { lock.unlockWrite(st) ; }
+    }
+
+    /** The ring is about to overwrite the entry at this position. */
+    private void overwritten(long posn) {
+        long x = find(ring.key(posn, 0), ring.key(posn, 1)) ;
+        if ( x != -1 && table.getLong(x+24)-1 == posn )
+            drop(x) ;
+    }
+
+    /** Remove the entry in a slot. The caller holds the write lock. */
+    private void drop(long x) {
+        long v = table.getLong(x+16) ;
+        byte[] bytes = ( dropHandler == null ) ? null : ring.read(table.getLong(x+24)-1) ;
+        table.clear(x, SlotSize) ;
+        count-- ;
+        if ( bytes != null )
+            dropHandler.accept(NodeId2NodeCacheOffHeap.decode(bytes), NodeIdFactory.decode(v)) ;
+    }
+
+    @Override
+    public void remove(Node key) {
+        byte[] h = hash(key).getBytes() ;
+        long hi = Bytes.getLong(h, 0) ;
+        long lo = Bytes.getLong(h, 8) ;
+        long st = lock.writeLock() ;
+        try {
+            long x = find(hi, lo) ;
+            if ( x != -1 )
+                drop(x) ;
+        } finally { lock.unlockWrite(st) ; }
+    }
+
+    /** Iterate over the keys. This takes a copy. */
+    @Override
+    public Iterator<Node> keys() {
+        List<Node> keys = new ArrayList<>() ;
+        long st = lock.readLock() ;
+        try {
+            for ( long x = 0 ; x < table.capacity() ; x += SlotSize ) {
+                long p = table.getLong(x+24) ;
+                if ( p == 0 )
+                    continue ;
+                byte[] bytes = ring.read(p-1) ;
+                if ( bytes != null )
+                    keys.add(NodeId2NodeCacheOffHeap.decode(bytes)) ;
+            }
+        } finally { lock.unlockRead(st) ; }
+        return keys.iterator() ;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0 ;
+    }
+
+    @Override
+    public void clear() {
+        long st = lock.writeLock() ;
+        try {
+            table.clear() ;
+            ring.clear() ;
+            count = 0 ;
+        } finally { lock.unlockWrite(st) ; }
+    }
+
+    @Override
+    public long size() {
+        long st = lock.readLock() ;
+        try { return count ; }
+        finally { lock.unlockRead(st) ; }
+    }
+
+    /** The handler is called, with the write lock held, when an entry is evicted, removed or replaced. */
+    @Override
+    public void setDropHandler(BiConsumer<Node, NodeId> dropHandler) {
+        long st = lock.writeLock() ;
+        try { this.dropHandler = dropHandler ; }
+        finally { lock.unlockWrite(st) ; }
+    }
+
+    @Override
+    public String toString() {
+        return "Node2NodeIdCacheOffHeap["+sizeBytes()+" bytes]" ;
+    }
+}
@@ -0,0 +1,321 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import java.nio.charset.StandardCharsets ;
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.concurrent.Callable ;
+import java.util.concurrent.locks.StampedLock ;
+import java.util.function.BiConsumer ;
+
+import org.apache.jena.atlas.AtlasException ;
+import org.apache.jena.atlas.lib.Bytes ;
+import org.apache.jena.atlas.lib.Cache ;
+import org.apache.jena.datatypes.TypeMapper ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.sparql.util.NodeUtils ;
+import org.apache.jena.tdb2.store.NodeId ;
+import org.apache.jena.tdb2.store.NodeIdFactory ;
+
+/**
+ * NodeId to Node cache held outside the Java heap.
+ * <p>
+ * Nodes are written, in a compact binary form, to a ring buffer. An index maps the
+ * 64 bit disk form of the NodeId to the position of the entry in the ring. When the
+ * ring wraps round, the oldest entries are overwritten and their index entries are
+ * dropped. The index is 4-way set associative; when a set is full, the entry for the
+ * oldest node is replaced.
+ * <p>
+ * Lookups are lock-free unless they overlap with an update.
+ */
+public class NodeId2NodeCacheOffHeap implements Cache<NodeId, Node> {
+    // Index slot : NodeId | position+1 (0 for an empty slot)
+    private static final int SlotSize      = 2*Long.BYTES ;
+    private static final int Ways          = 4 ;
+    private static final int BucketSize    = Ways*SlotSize ;
+    /** Average number of ring bytes per index slot. */
+    private static final int BytesPerSlot  = 64 ;
+
+    private final OffHeapBytes    index ;
+    private final long            bucketMask ;
+    private final OffHeapNodeRing ring ;
+    private final OffHeapNodeRing.Overwrite overwritten = this::overwritten ;
+    private final StampedLock     lock        = new StampedLock() ;
+    // Protected by the write lock.
+    private long                  count       = 0 ;
+    private BiConsumer<NodeId, Node> dropHandler = null ;
+
+    /** Create a cache using about {@code size} bytes, split between the index and the node storage. */
+    public NodeId2NodeCacheOffHeap(long size) {
+        long slots = Math.max(Ways, size/(SlotSize+BytesPerSlot)) ;
+        long buckets = Long.highestOneBit(slots/Ways) ;
+        this.index = new OffHeapBytes(buckets*BucketSize) ;
+        this.bucketMask = buckets-1 ;
+        this.ring = new OffHeapNodeRing(Math.max(1024, size-index.capacity()), 1) ;
+    }
+
+    /** Number of bytes of memory used. */
+    public long sizeBytes() {
+        return index.capacity()+ring.capacity() ;
+    }
+
+    private long bucket(long key) {
+        long h = key * 0x9E3779B97F4A7C15L ;
+        h ^= (h >>> 32) ;
+        return (h & bucketMask)*BucketSize ;
+    }
+
+    @Override
+    public boolean containsKey(NodeId key) {
+        return getIfPresent(key) != null ;
+    }
+
+    @Override
+    public Node getIfPresent(NodeId key) {
+        long k = NodeIdFactory.encode(key) ;
+        long st = lock.tryOptimisticRead() ;
+        byte[] bytes = read(k) ;
+        if ( ! lock.validate(st) ) {
+            st = lock.readLock() ;
+            try { bytes = read(k) ; }
+            finally { lock.unlockRead(st) ; }
+        }
+        return bytes == null ? null : decode(bytes) ;
+    }
+
+    /** Copy out the bytes for the key, or return null.
+     *  The caller holds, or validates, the lock so this must be safe
+     *  against reading partly updated data.
+     */
+    private byte[] read(long key) {
+        long x = findSlot(key) ;
+        if ( x == -1 )
+            return null ;
+        long posn = index.getLong(x+8)-1 ;
+        if ( ! ring.isLive(posn) || ring.key(posn, 0) != key )
+            return null ;
+        return ring.read(posn) ;
+    }
+
+    private long findSlot(long key) {
+        long b = bucket(key) ;
+        for ( int i = 0 ; i < Ways ; i++ ) {
+            long x = b+i*SlotSize ;
+            if ( index.getLong(x+8) != 0 && index.getLong(x) == key )
+                return x ;
+        }
+        return -1 ;
+    }
+
+    @Override
+    public Node getOrFill(NodeId key, Callable<Node> callable) {
+        Node value = getIfPresent(key) ;
+        if ( value == null ) {
+            try { value = callable.call() ; }
+            catch (Exception e) {
+                throw new AtlasException("Exception on cache fill", e) ;
+            }
+            if ( value != null )
+                put(key, value) ;
+        }
+        return value ;
+    }
+
+    @Override
+    public void put(NodeId key, Node value) {
+        byte[] bytes = encode(value) ;
+        if ( bytes == null || bytes.length > ring.maxNodeBytes() )
+            return ;
+        long k = NodeIdFactory.encode(key) ;
+        long st = lock.writeLock() ;
+        try {
+            byte[] oldBytes = ( dropHandler == null ) ? null : read(k) ;
+            long posn = ring.append(k, 0, bytes, overwritten) ;
+            // Look again - appending may have dropped the old entry.
+            long x = findSlot(k) ;
+            if ( x == -1 ) {
+                // Empty slot, else the oldest.
+                long b = bucket(k) ;
+                long oldest = Long.MAX_VALUE ;
+                for ( int i = 0 ; i < Ways ; i++ ) {
+                    long y = b+i*SlotSize ;
+                    long p = index.getLong(y+8) ;
+                    if ( p == 0 ) {
+                        x = y ;
+                        break ;
+                    }
+                    if ( p < oldest ) {
+                        oldest = p ;
+                        x = y ;
+                    }
+                }
+                if ( index.getLong(x+8) != 0 )
+                    drop(x) ;
+                index.putLong(x, k) ;
+                count++ ;
+            } else if ( oldBytes != null && ! Arrays.equals(oldBytes, bytes) )
+                dropHandler.accept(key, decode(oldBytes)) ;
+            index.putLong(x+8, posn+1) ;
+        } finally { lock.unlockWrite(st) ; }
+    }
+
+    /** The ring is about to overwrite the entry at this position. */
+    private void overwritten(long posn) {
+        long x = findSlot(ring.key(posn, 0)) ;
+        if ( x != -1 && index.getLong(x+8)-1 == posn )
+            drop(x) ;
+    }
+
+    /** Remove the entry in an index slot. The caller holds the write lock. */
+    private void drop(long x) {
+        long k = index.getLong(x) ;
+        byte[] bytes = ( dropHandler == null ) ? null : ring.read(index.getLong(x+8)-1) ;
+        index.clear(x, SlotSize) ;
+        count-- ;
+        if ( bytes != null )
+            dropHandler.accept(NodeIdFactory.decode(k), decode(bytes)) ;
+    }
+
+    @Override
+    public void remove(NodeId key) {
+        long k = NodeIdFactory.encode(key) ;
+        long st = lock.writeLock() ;
+        try {
+            long x = findSlot(k) ;
+            if ( x != -1 )
+                drop(x) ;
+        } finally { lock.unlockWrite(st) ; }
+    }
+
+    /** Iterate over the keys. This takes a copy. */
+    @Override
+    public Iterator<NodeId> keys() {
+        List<NodeId> keys = new ArrayList<>() ;
+        long st = lock.readLock() ;
+        try {
+            for ( long x = 0 ; x < index.capacity() ; x += SlotSize ) {
+                if ( index.getLong(x+8) != 0 )
+                    keys.add(NodeIdFactory.decode(index.getLong(x))) ;
+            }
+        } finally { lock.unlockRead(st) ; }
+        return keys.iterator() ;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0 ;
+    }
+
+    @Override
+    public void clear() {
+        long st = lock.writeLock() ;
+        try {
+            index.clear() ;
+            ring.clear() ;
+            count = 0 ;
+        } finally { lock.unlockWrite(st) ; }
+    }
+
+    @Override
+    public long size() {
+        long st = lock.readLock() ;
+        try { return count ; }
+        finally { lock.unlockRead(st) ; }
+    }
+
+    /** The handler is called, with the write lock held, when an entry is evicted, removed or replaced. */
+    @Override
+    public void setDropHandler(BiConsumer<NodeId, Node> dropHandler) {
+        long st = lock.writeLock() ;
+        try { this.dropHandler = dropHandler ; }
+        finally { lock.unlockWrite(st) ; }
+    }
+
+    @Override
+    public String toString() {
+        return "NodeId2NodeCacheOffHeap["+sizeBytes()+" bytes]" ;
+    }
+
+    // ---- Node encoding.
+    // Tag byte then one or two strings, each as length and UTF-8 bytes.
+
+    private static final byte URI        = 1 ;
+    private static final byte BNODE      = 2 ;
+    private static final byte STRING     = 3 ;
+    private static final byte LANGSTRING = 4 ;
+    private static final byte LITERAL    = 5 ;
+
+    /** Encode a node, or return null if it is not a kind of node the cache stores. */
+    /*package*/ static byte[] encode(Node node) {
+        if ( node.isURI() )
+            return encode(URI, node.getURI(), null) ;
+        if ( node.isBlank() )
+            return encode(BNODE, node.getBlankNodeLabel(), null) ;
+        if ( node.isLiteral() ) {
+            if ( NodeUtils.isSimpleString(node) )
+                return encode(STRING, node.getLiteralLexicalForm(), null) ;
+            if ( NodeUtils.isLangString(node) )
+                return encode(LANGSTRING, node.getLiteralLexicalForm(), node.getLiteralLanguage()) ;
+            return encode(LITERAL, node.getLiteralLexicalForm(), node.getLiteralDatatypeURI()) ;
+        }
+        return null ;
+    }
+
+    private static byte[] encode(byte tag, String str1, String str2) {
+        byte[] b1 = str1.getBytes(StandardCharsets.UTF_8) ;
+        byte[] b2 = ( str2 == null ) ? null : str2.getBytes(StandardCharsets.UTF_8) ;
+        int len = 1+4+b1.length+( b2 == null ? 0 : 4+b2.length ) ;
+        byte[] bytes = new byte[len] ;
+        bytes[0] = tag ;
+        int idx = 1 ;
+        Bytes.setInt(b1.length, bytes, idx) ;
+        System.arraycopy(b1, 0, bytes, idx+4, b1.length) ;
+        idx += 4+b1.length ;
+        if ( b2 != null ) {
+            Bytes.setInt(b2.length, bytes, idx) ;
+            System.arraycopy(b2, 0, bytes, idx+4, b2.length) ;
+        }
+        return bytes ;
+    }
+
+    /*package*/ static Node decode(byte[] bytes) {
+        byte tag = bytes[0] ;
+        int len1 = Bytes.getInt(bytes, 1) ;
+        String str1 = new String(bytes, 5, len1, StandardCharsets.UTF_8) ;
+        String str2 = null ;
+        int idx = 5+len1 ;
+        if ( idx < bytes.length ) {
+            int len2 = Bytes.getInt(bytes, idx) ;
+            str2 = new String(bytes, idx+4, len2, StandardCharsets.UTF_8) ;
+        }
+        switch(tag) {
+            case URI:           return NodeFactory.createURI(str1) ;
+            case BNODE:         return NodeFactory.createBlankNode(str1) ;
+            case STRING:        return NodeFactory.createLiteral(str1) ;
+            case LANGSTRING:    return NodeFactory.createLiteral(str1, str2) ;
+            case LITERAL:       return NodeFactory.createLiteral(str1, TypeMapper.getInstance().getSafeTypeByName(str2)) ;
+            default:
+                throw new IllegalStateException("Unrecognized node encoding: "+tag) ;
+        }
+    }
+}
@@ -54,6 +54,9 @@ public class NodeTableCache implements NodeTable {
     private final Object        lock          = new Object() ;
 
     public static NodeTable create(NodeTable nodeTable, StoreParams params) {
+        long offHeapSize = params.getNodeCacheOffHeapSize() ;
+        if ( offHeapSize > 0 )
+            return createOffHeap(nodeTable, offHeapSize, params.getNodeMissCacheSize()) ;
         int nodeToIdCacheSize = params.getNode2NodeIdCacheSize() ;
         int idToNodeCacheSize = params.getNodeId2NodeCacheSize() ;
         if ( nodeToIdCacheSize <= 0 && idToNodeCacheSize <= 0 )
@@ -61,6 +64,17 @@ public class NodeTableCache implements NodeTable {
         return new NodeTableCache(nodeTable, nodeToIdCacheSize, idToNodeCacheSize, params.getNodeMissCacheSize()) ;
     }
 
+    /**
+     * Create a NodeTableCache with the Node->NodeId and NodeId->Node caches outside the Java heap.
+     * The bytes are split evenly between the Node->NodeId cache and the NodeId->Node cache.
+     * The "known misses" cache is kept on-heap. 
+     */
+    public static NodeTable createOffHeap(NodeTable nodeTable, long offHeapSize, int nodeMissesCacheSize) {
+        Cache<Node, NodeId> node2id = new Node2NodeIdCacheOffHeap(offHeapSize/2) ;
+        Cache<NodeId, Node> id2node = new NodeId2NodeCacheOffHeap(offHeapSize-offHeapSize/2) ;
+        return new NodeTableCache(nodeTable, node2id, id2node, nodeMissesCacheSize) ;
+    }
+
     public static NodeTable create(NodeTable nodeTable, int nodeToIdCacheSize, int idToNodeCacheSize, int nodeMissesCacheSize) {
         if ( nodeToIdCacheSize <= 0 && idToNodeCacheSize <= 0 )
             return nodeTable ;
@@ -77,6 +91,14 @@ public class NodeTableCache implements NodeTable {
             notPresent = CacheFactory.createCacheSet(nodeMissesCacheSize) ;
     }
 
+    private NodeTableCache(NodeTable baseTable, Cache<Node, NodeId> node2id, Cache<NodeId, Node> id2node, int nodeMissesCacheSize) {
+        this.baseTable = baseTable ;
+        this.node2id_Cache = node2id ;
+        this.id2node_Cache = id2node ;
+        if ( nodeMissesCacheSize > 0 )
+            notPresent = CacheFactory.createCacheSet(nodeMissesCacheSize) ;
+    }
+
     // ---- Cache access, no going to underlying table.
     
     public Node getNodeForNodeIdCache(NodeId id) {
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import java.nio.ByteBuffer ;
+
+/**
+ * Fixed size memory outside the Java heap, addressed by {@code long} offsets.
+ * The space is a sequence of equal sized direct {@code ByteBuffer} segments so it
+ * is not limited to 2G. A single access must not cross a segment boundary.
+ * <p>
+ * Not thread-safe; callers provide any synchronization.
+ */
+final class OffHeapBytes {
+    /** Largest segment - a power of two that fits in a ByteBuffer. */
+    static final int        MaxSegmentSize = 1<<30 ;
+
+    private final ByteBuffer[] segments ;
+    private final int       segmentShift ;
+    private final long      segmentMask ;
+    private final long      capacity ;
+
+    /** Allocate at least {@code size} bytes, rounded up to a multiple of the segment size. */
+    OffHeapBytes(long size) {
+        this(size, MaxSegmentSize) ;
+    }
+
+    /*package*/ OffHeapBytes(long size, int maxSegmentSize) {
+        if ( size <= 0 )
+            throw new IllegalArgumentException("Size must be positive: "+size) ;
+        if ( Integer.bitCount(maxSegmentSize) != 1 )
+            throw new IllegalArgumentException("Segment size must be a power of two: "+maxSegmentSize) ;
+        int segSize = maxSegmentSize ;
+        while ( segSize > 8 && segSize/2 >= size )
+            segSize = segSize/2 ;
+        long n = (size+segSize-1)/segSize ;
+        if ( n > Integer.MAX_VALUE )
+            throw new IllegalArgumentException("Too large: "+size) ;
+        this.segmentShift = Integer.numberOfTrailingZeros(segSize) ;
+        this.segmentMask = segSize-1 ;
+        this.segments = new ByteBuffer[(int)n] ;
+        for ( int i = 0 ; i < segments.length ; i++ )
+            segments[i] = ByteBuffer.allocateDirect(segSize) ;
+        this.capacity = n*segSize ;
+    }
+
+    long capacity()         { return capacity ; }
+
+    int segmentSize()       { return 1<<segmentShift ; }
+
+    /** Bytes left in the segment from this address. */
+    int segmentRemaining(long addr) {
+        return (int)(segmentSize() - (addr & segmentMask)) ;
+    }
+
+    long getLong(long addr) {
+        return segment(addr).getLong(offset(addr)) ;
+    }
+
+    void putLong(long addr, long value) {
+        segment(addr).putLong(offset(addr), value) ;
+    }
+
+    int getInt(long addr) {
+        return segment(addr).getInt(offset(addr)) ;
+    }
+
+    void putInt(long addr, int value) {
+        segment(addr).putInt(offset(addr), value) ;
+    }
+
+    void get(long addr, byte[] bytes, int start, int length) {
+        ByteBuffer bb = segment(addr).duplicate() ;
+        bb.position(offset(addr)) ;
+        bb.get(bytes, start, length) ;
+    }
+
+    void put(long addr, byte[] bytes, int start, int length) {
+        ByteBuffer bb = segment(addr).duplicate() ;
+        bb.position(offset(addr)) ;
+        bb.put(bytes, start, length) ;
+    }
+
+    /** Set a range of bytes, within one segment, to zero. */
+    void clear(long addr, int length) {
+        ByteBuffer bb = segment(addr) ;
+        int x = offset(addr) ;
+        int i = 0 ;
+        for ( ; i+8 <= length ; i += 8 )
+            bb.putLong(x+i, 0L) ;
+        for ( ; i < length ; i++ )
+            bb.put(x+i, (byte)0) ;
+    }
+
+    /** Set all the bytes to zero. */
+    void clear() {
+        for ( int i = 0 ; i < segments.length ; i++ )
+            clear(((long)i)<<segmentShift, segmentSize()) ;
+    }
+
+    private ByteBuffer segment(long addr) {
+        return segments[(int)(addr>>>segmentShift)] ;
+    }
+
+    private int offset(long addr) {
+        return (int)(addr & segmentMask) ;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.nodetable;
+
+/**
+ * Encoded nodes in a ring buffer held outside the Java heap, for the off-heap node caches.
+ * <p>
+ * An entry is a key of one or two longs, the length, then the node bytes. Entries do not
+ * cross segment boundaries. When the ring wraps round, the oldest entries are
+ * overwritten; before that happens, the owning cache is given the position of each
+ * entry so it can drop any index entry that still refers to it.
+ * <p>
+ * Not thread-safe; the owning cache provides the synchronization.
+ */
+final class OffHeapNodeRing {
+    /** Called with the position of an entry that is about to be overwritten. */
+    interface Overwrite { void overwrite(long posn) ; }
+
+    /** Nodes larger than this are not stored. */
+    private static final int MaxNodeBytes  = 64*1024 ;
+
+    private final OffHeapBytes ring ;
+    private final long         ringSize ;
+    private final int          keyBytes ;
+    private final int          header ;
+    private final int          maxNodeBytes ;
+    // Positions only increase; the address is the position modulo the ring size.
+    // Entries from tail to head are live.
+    private long               head        = 0 ;
+    private long               tail        = 0 ;
+
+    OffHeapNodeRing(long size, int keyLongs) {
+        this.ring = new OffHeapBytes(size) ;
+        this.ringSize = ring.capacity() ;
+        this.keyBytes = keyLongs*Long.BYTES ;
+        this.header = keyBytes+Integer.BYTES ;
+        this.maxNodeBytes = (int)Math.min(MaxNodeBytes, Math.min(ring.segmentSize(), ringSize/4)-header) ;
+    }
+
+    long capacity()         { return ringSize ; }
+
+    int maxNodeBytes()      { return maxNodeBytes ; }
+
+    boolean isLive(long posn) {
+        return posn >= tail && posn < head ;
+    }
+
+    /** Append an entry and return its position. */
+    long append(long key0, long key1, byte[] bytes, Overwrite overwrite) {
+        int entryLen = header+bytes.length ;
+        int remaining = ring.segmentRemaining(head % ringSize) ;
+        long posn = ( remaining < entryLen ) ? head+remaining : head ;
+        long end = posn+entryLen ;
+        // Make room: retire the entries that will be overwritten.
+        while ( tail < end-ringSize ) {
+            long addr = tail % ringSize ;
+            int rem = ring.segmentRemaining(addr) ;
+            int len = ( rem < header ) ? -1 : ring.getInt(addr+keyBytes) ;
+            if ( len < 0 ) {
+                // Padding to the end of the segment.
+                tail += rem ;
+                continue ;
+            }
+            overwrite.overwrite(tail) ;
+            tail += header+len ;
+        }
+        if ( posn != head && remaining >= header )
+            // Mark the padding.
+            ring.putInt(head % ringSize+keyBytes, -1) ;
+        long addr = posn % ringSize ;
+        ring.putLong(addr, key0) ;
+        if ( keyBytes > Long.BYTES )
+            ring.putLong(addr+Long.BYTES, key1) ;
+        ring.putInt(addr+keyBytes, bytes.length) ;
+        ring.put(addr+header, bytes, 0, bytes.length) ;
+        head = end ;
+        return posn ;
+    }
+
+    /** Part of the key of the entry at a position. */
+    long key(long posn, int i) {
+        return ring.getLong(posn % ringSize+i*Long.BYTES) ;
+    }
+
+    /** Copy out the node bytes of the entry at a position, or return null.
+     *  This must be safe against reading partly updated data.
+     */
+    byte[] read(long posn) {
+        if ( ! isLive(posn) )
+            return null ;
+        long addr = posn % ringSize ;
+        int len = ring.getInt(addr+keyBytes) ;
+        if ( len < 0 || len > maxNodeBytes || header+len > ring.segmentRemaining(addr) )
+            return null ;
+        byte[] bytes = new byte[len] ;
+        ring.get(addr+header, bytes, 0, len) ;
+        return bytes ;
+    }
+
+    /** Make every entry dead. */
+    void clear() {
+        tail = head ;
+    }
+}
@@ -28,6 +28,7 @@ import java.util.function.Predicate ;
 import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.iterator.NullIterator ;
 import org.apache.jena.atlas.iterator.SingletonIterator ;
+import org.apache.jena.atlas.lib.Bytes ;
 import org.apache.jena.atlas.lib.tuple.Tuple ;
 import org.apache.jena.atlas.lib.tuple.TupleFactory;
 import org.apache.jena.atlas.lib.tuple.TupleMap ;
@@ -46,6 +47,7 @@ public class TupleIndexRecord extends TupleIndexBase
     private final RangeIndex index ; 
     private final RecordFactory factory ;
     private final RecordMapper<Tuple<NodeId>> recordMapper;
+    private final RecordMapper<long[]> keyMapper;
 
     public TupleIndexRecord(int N,  TupleMap tupleMapping, String name, RecordFactory factory, RangeIndex index)
     {
@@ -85,6 +87,13 @@ public class TupleIndexRecord extends TupleIndexBase
             }
             return TupleFactory.create(nodeIds);
         };
+        keyMapper = (bb, entryIdx, key, recFactory) -> {
+            int bbStart = entryIdx*recFactory.recordLength();
+            long[] x = new long[numNodeIds];
+            for ( int i = 0 ; i < numNodeIds ; i++ )
+                x[i] = bb.getLong(bbStart+i*NodeId.SIZE);
+            return x;
+        };
     }
     
     /** Insert a tuple */
@@ -244,6 +253,105 @@ public class TupleIndexRecord extends TupleIndexBase
         return tuples ;
     }
     
+    /**
+     * Find the first key at or after {@code start}, or return null if there is none.
+     * Keys are in index order, not natural order, with each slot in the 64 bit
+     * on-disk form of a NodeId ({@link NodeIdFactory#encode}).
+     * This is the "seek" step of joins that treat the index as a trie.
+     */
+    public long[] ceiling(long[] start) {
+        Iterator<long[]> iter = index.iterator(keyRecord(start), null, keyMapper) ;
+        return iter.hasNext() ? iter.next() : null ;
+    }
+
+    /**
+     * A cursor for a sequence of {@link #ceiling} calls where the keys mostly go
+     * forward. It keeps its place in the index: a key close after the last one found
+     * is reached by stepping along the records, not by searching from the root.
+     */
+    public Seeker seeker() {
+        return new Seeker() ;
+    }
+
+    /** @see #seeker() */
+    public final class Seeker {
+        // Records to step over before searching from the root instead.
+        private static final int SeekSteps = 32 ;
+        private Iterator<long[]> iter = null ;
+        private long[] last = null ;
+
+        private Seeker() {}
+
+        /** As {@link TupleIndexRecord#ceiling}. */
+        public long[] ceiling(long[] start) {
+            if ( last != null ) {
+                int x = compare(last, start) ;
+                if ( x == 0 )
+                    return last ;
+                if ( x < 0 ) {
+                    for ( int i = 0 ; i < SeekSteps && iter.hasNext() ; i++ ) {
+                        last = iter.next() ;
+                        if ( compare(last, start) >= 0 )
+                            return last ;
+                    }
+                    if ( ! iter.hasNext() ) {
+                        // Nothing after start.
+                        last = null ;
+                        iter = null ;
+                        return null ;
+                    }
+                }
+            }
+            iter = index.iterator(keyRecord(start), null, keyMapper) ;
+            last = iter.hasNext() ? iter.next() : null ;
+            return last ;
+        }
+    }
+
+    /** Compare a key with a start key, which may be shorter; missing slots are zero. */
+    private static int compare(long[] key, long[] start) {
+        for ( int i = 0 ; i < key.length ; i++ ) {
+            long k = ( i < start.length ) ? start[i] : 0 ;
+            int x = Long.compareUnsigned(key[i], k) ;
+            if ( x != 0 )
+                return x ;
+        }
+        return 0 ;
+    }
+
+    /**
+     * Return the last key of the index, or null if the index is empty. The key is in
+     * the same form as {@link #ceiling}.
+     */
+    public long[] lastKey() {
+        Record r = index.maxKey() ;
+        if ( r == null )
+            return null ;
+        long[] x = new long[tupleLength] ;
+        for ( int i = 0 ; i < tupleLength ; i++ )
+            x[i] = Bytes.getLong(r.getKey(), i*SizeOfNodeId) ;
+        return x ;
+    }
+
+    /**
+     * All the tuples, in natural order, with keys from {@code start} (inclusive) to
+     * {@code finish} (exclusive). The keys are in the same form as {@link #ceiling}
+     * and may be shorter than a tuple; missing slots are zero. A null start or finish
+     * is the start or end of the index.
+     */
+    public Iterator<Tuple<NodeId>> range(long[] start, long[] finish) {
+        Record minRec = ( start == null ) ? null : keyRecord(start) ;
+        Record maxRec = ( finish == null ) ? null : keyRecord(finish) ;
+        return index.iterator(minRec, maxRec, recordMapper) ;
+    }
+
+    private Record keyRecord(long[] key) {
+        Record record = factory.createKeyOnly() ;
+        for ( int i = 0 ; i < key.length ; i++ )
+            Bytes.setLong(key[i], record.getKey(), i*SizeOfNodeId) ;
+        return record ;
+    }
+
     @Override
     public Iterator<Tuple<NodeId>> all()
     {
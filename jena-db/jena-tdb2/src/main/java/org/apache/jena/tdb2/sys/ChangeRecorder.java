@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.sys;
+
+import java.util.ArrayDeque ;
+import java.util.ArrayList ;
+import java.util.Deque ;
+import java.util.List ;
+
+import org.apache.jena.dboe.transaction.TransactionalMonitor ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.DatasetChanges ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.core.QuadAction ;
+import org.apache.jena.tdb2.TDBException ;
+
+/**
+ * Record the changes of committed write transactions of a
+ * {@link org.apache.jena.tdb2.store.DatasetGraphTDB}, in commit order, so
+ * they can be replayed onto a copy of the database.
+ * <p>
+ * Install as both the {@link DatasetChanges} monitor and the
+ * {@link TransactionalMonitor} of the dataset. Changes are collected per thread
+ * and queued when the transaction starts to commit; at that point the writer
+ * still holds the single writer lock so the queue is in commit order. A queued
+ * batch is discarded if the commit does not finish.
+ * <p>
+ * The changes are held in memory.
+ */
+class ChangeRecorder implements DatasetChanges, TransactionalMonitor {
+
+    /** Changes of one write transaction. */
+    private static class Batch {
+        final List<QuadChange> changes ;
+        // Guarded by the ChangeRecorder.
+        boolean committed = false ;
+        Batch(List<QuadChange> changes) { this.changes = changes ; }
+    }
+
+    /** One add or delete of a quad. */
+    static class QuadChange {
+        final boolean add ;
+        final Quad quad ;
+        QuadChange(boolean add, Quad quad) {
+            this.add = add ;
+            this.quad = quad ;
+        }
+    }
+
+    // Changes of the writer on this thread, not yet committing.
+    private final ThreadLocal<List<QuadChange>> pending = new ThreadLocal<>() ;
+    // The batch of this thread while it is committing.
+    private final ThreadLocal<Batch> committing = new ThreadLocal<>() ;
+    // Batches in commit order. Guarded by this.
+    private final Deque<Batch> queue = new ArrayDeque<>() ;
+
+    // ---- DatasetChanges
+
+    @Override
+    public void start() {}
+
+    @Override
+    public void change(QuadAction qaction, Node g, Node s, Node p, Node o) {
+        boolean add ;
+        switch (qaction) {
+            case ADD :      add = true ;  break ;
+            case DELETE :   add = false ; break ;
+            default :       return ;
+        }
+        List<QuadChange> changes = pending.get() ;
+        if ( changes == null ) {
+            changes = new ArrayList<>() ;
+            pending.set(changes) ;
+        }
+        // The default graph is reported as null.
+        if ( g == null )
+            g = Quad.defaultGraphIRI ;
+        changes.add(new QuadChange(add, Quad.create(g, s, p, o))) ;
+    }
+
+    @Override
+    public void finish() {}
+
+    @Override
+    public void reset() {}
+
+    // ---- TransactionalMonitor
+
+    @Override
+    public void startCommit() {
+        List<QuadChange> changes = pending.get() ;
+        pending.remove() ;
+        if ( changes == null || changes.isEmpty() )
+            return ;
+        Batch batch = new Batch(changes) ;
+        synchronized(this) {
+            queue.addLast(batch) ;
+        }
+        committing.set(batch) ;
+    }
+
+    @Override
+    public void finishCommit() {
+        Batch batch = committing.get() ;
+        committing.remove() ;
+        if ( batch == null )
+            return ;
+        synchronized(this) {
+            batch.committed = true ;
+            notifyAll() ;
+        }
+    }
+
+    @Override
+    public void startAbort() {
+        discard() ;
+    }
+
+    @Override
+    public void startEnd() {
+        // A commit that did not finish, or changes without a commit.
+        discard() ;
+    }
+
+    private void discard() {
+        pending.remove() ;
+        Batch batch = committing.get() ;
+        committing.remove() ;
+        if ( batch == null )
+            return ;
+        synchronized(this) {
+            queue.remove(batch) ;
+            notifyAll() ;
+        }
+    }
+
+    /** Number of batches queued. */
+    synchronized int size() {
+        return queue.size() ;
+    }
+
+    /**
+     * Take the committed batches from the front of the queue, in commit order.
+     * If {@code waitForCommits}, wait until any batch that is still committing has
+     * finished or been discarded, and take all of the queue.
+     */
+    synchronized List<QuadChange> take(boolean waitForCommits) {
+        List<QuadChange> changes = new ArrayList<>() ;
+        for ( ;; ) {
+            Batch batch = queue.peekFirst() ;
+            if ( batch == null )
+                return changes ;
+            if ( ! batch.committed ) {
+                if ( ! waitForCommits )
+                    return changes ;
+                try { wait() ; }
+                catch (InterruptedException ex) { throw new TDBException("Interrupted", ex) ; }
+                continue ;
+            }
+            queue.removeFirst() ;
+            changes.addAll(batch.changes) ;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.sys;
+
+import java.io.BufferedOutputStream ;
+import java.io.IOException ;
+import java.io.OutputStream ;
+import java.nio.file.Files ;
+import java.nio.file.Path ;
+import java.nio.file.Paths ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.Map ;
+import java.util.Objects ;
+import java.util.Set ;
+
+import org.apache.jena.dboe.base.block.BlockMgr ;
+import org.apache.jena.dboe.base.block.BlockMgrFactory ;
+import org.apache.jena.dboe.base.file.BinaryDataFile ;
+import org.apache.jena.dboe.base.file.BufferChannel ;
+import org.apache.jena.dboe.base.file.FileFactory ;
+import org.apache.jena.dboe.base.file.FileSet ;
+import org.apache.jena.dboe.base.file.Location ;
+import org.apache.jena.dboe.base.record.Record ;
+import org.apache.jena.dboe.base.record.RecordFactory ;
+import org.apache.jena.dboe.index.Index ;
+import org.apache.jena.dboe.sys.Names ;
+import org.apache.jena.dboe.sys.SystemIndex ;
+import org.apache.jena.dboe.trans.bplustree.BPT ;
+import org.apache.jena.dboe.trans.bplustree.BPlusTree ;
+import org.apache.jena.dboe.trans.bplustree.BPlusTreeParams ;
+import org.apache.jena.dboe.trans.bplustree.rewriter.BPlusTreeRewriter ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.tdb2.TDBException ;
+import org.apache.jena.tdb2.setup.StoreParams ;
+import org.apache.jena.tdb2.store.DatasetGraphTDB ;
+import org.apache.jena.tdb2.store.DatasetPrefixesTDB ;
+import org.apache.jena.tdb2.store.nodetable.NodeTable ;
+import org.apache.jena.tdb2.store.nodetable.NodeTableTRDF ;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable ;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex ;
+import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord ;
+import org.apache.jena.tdb2.sys.ChangeRecorder.QuadChange ;
+
+/**
+ * Copy a TDB2 database at the level of records, for compaction.
+ * <p>
+ * The node tables are copied as the bytes of the object file, and the node
+ * index and every tuple index are packed, in record order, into new B+Trees.
+ * NodeIds are not changed so the tuple index records are used as they are.
+ * The space of the versions of B+Tree blocks no longer in use is not copied.
+ */
+class CompactCopy {
+
+    private static final int BufferSize = 128*1024 ;
+
+    /**
+     * Copy the database into an empty directory.
+     * The caller must be in a read transaction on {@code dsg}; the copy is of that view of the database.
+     */
+    static void copy(DatasetGraphTDB dsg, Location location) {
+        StoreParams params = dsg.getStoreParams() ;
+        Location srcLocation = dsg.getLocation() ;
+        copyFile(srcLocation, location, Names.TDB_CONFIG_FILE) ;
+        copyFile(srcLocation, location, Names.optCatalog) ;
+
+        NodeTable nodeTable = dsg.getTripleTable().getNodeTupleTable().getNodeTable() ;
+        copyNodeTable(nodeTable, location, params.getNodeTableBaseName(), params) ;
+        copyTupleIndexes(dsg.getTripleTable().getNodeTupleTable(), location, params) ;
+        copyTupleIndexes(dsg.getQuadTable().getNodeTupleTable(), location, params) ;
+
+        DatasetPrefixesTDB prefixes = (DatasetPrefixesTDB)dsg.getPrefixes() ;
+        copyNodeTable(prefixes.getNodeTupleTable().getNodeTable(), location, params.getPrefixTableBaseName(), params) ;
+        copyTupleIndexes(prefixes.getNodeTupleTable(), location, params) ;
+    }
+
+    private static void copyFile(Location src, Location dst, String filename) {
+        if ( ! src.exists(filename) )
+            return ;
+        try { Files.copy(Paths.get(src.getPath(filename)), Paths.get(dst.getPath(filename))) ; }
+        catch (IOException ex) { throw IOX.exception(ex) ; }
+    }
+
+    private static void copyNodeTable(NodeTable nodeTable, Location location, String name, StoreParams params) {
+        NodeTable base = nodeTable.baseNodeTable() ;
+        if ( ! ( base instanceof NodeTableTRDF ) )
+            throw new TDBException("Compact: unexpected node table: "+base.getClass().getSimpleName()) ;
+        NodeTableTRDF nodeTableTRDF = (NodeTableTRDF)base ;
+        copyIndex(nodeTableTRDF.getIndex(), location, name, params) ;
+        copyData(nodeTableTRDF.getData(), new FileSet(location, name+"-data")) ;
+    }
+
+    private static void copyTupleIndexes(NodeTupleTable nodeTupleTable, Location location, StoreParams params) {
+        for ( TupleIndex index : nodeTupleTable.getTupleTable().getIndexes() ) {
+            TupleIndex base = index.baseTupleIndex() ;
+            if ( ! ( base instanceof TupleIndexRecord ) )
+                throw new TDBException("Compact: unexpected tuple index: "+base.getClass().getSimpleName()) ;
+            copyIndex(((TupleIndexRecord)base).getRangeIndex(), location, base.getName(), params) ;
+        }
+    }
+
+    /**
+     * Write the records of an index, which are in sorted order, as a packed B+Tree,
+     * with the leaf block format of the database.
+     */
+    private static void copyIndex(Index index, Location location, String name, StoreParams params) {
+        RecordFactory recordFactory = index.getRecordFactory() ;
+        int blockSize = SystemIndex.BlockSize ;
+        int order = BPlusTreeParams.calcOrder(blockSize, recordFactory.recordLength()) ;
+        BPlusTreeParams bptParams = new BPlusTreeParams(order, recordFactory, params.isPackedIndexLeaves()) ;
+
+        FileSet fileSet = new FileSet(location, name) ;
+        // Small caches - blocks are written once, sequentially.
+        BufferChannel bptState = FileFactory.createBufferChannel(fileSet, Names.extBptState) ;
+        BlockMgr blkMgrNodes = BlockMgrFactory.create(fileSet, Names.extBptTree, blockSize, 10, 100) ;
+        BlockMgr blkMgrRecords = BlockMgrFactory.create(fileSet, Names.extBptRecords, blockSize, 10, 100) ;
+        Iterator<Record> records = index.iterator() ;
+        BPlusTree bpt = BPlusTreeRewriter.packIntoBPlusTree(records, bptParams, recordFactory,
+                                                            bptState, blkMgrNodes, blkMgrRecords) ;
+        // The copy is opened as a transactional B+Tree.
+        BPT.setStateFromStorage(bpt) ;
+        bpt.close() ;
+    }
+
+    /** Copy the bytes of a node table object file, up to the length in this transaction. */
+    private static void copyData(BinaryDataFile data, FileSet fileSet) {
+        long length = data.length() ;
+        byte[] buffer = new byte[BufferSize] ;
+        Path path = Paths.get(fileSet.filename(Names.extObjNodeData)) ;
+        try ( OutputStream out = new BufferedOutputStream(Files.newOutputStream(path)) ) {
+            long posn = 0 ;
+            while ( posn < length ) {
+                int len = (int)Math.min(buffer.length, length-posn) ;
+                int x = data.read(posn, buffer, 0, len) ;
+                if ( x <= 0 )
+                    throw new TDBException("Compact: short read of the node data at "+posn) ;
+                out.write(buffer, 0, x) ;
+                posn += x ;
+            }
+        } catch (IOException ex) { throw IOX.exception(ex) ; }
+    }
+
+    /** Apply changes, in order; the caller must be in a write transaction on {@code dsg}. */
+    static void replay(List<QuadChange> changes, DatasetGraph dsg) {
+        for ( QuadChange change : changes ) {
+            Quad quad = change.quad ;
+            if ( change.add )
+                dsg.add(quad) ;
+            else
+                dsg.delete(quad) ;
+        }
+    }
+
+    /**
+     * Make the prefixes of {@code dst} the same as those of {@code src}. Prefix
+     * changes are not recorded with the data changes so this is done at switch-over,
+     * at the level of {@code Node}s. Only graphs whose prefixes differ are rewritten.
+     * The caller must be in a read transaction on {@code src} and a write transaction on {@code dst}.
+     */
+    static void syncPrefixes(DatasetGraphTDB src, DatasetGraphTDB dst) {
+        DatasetPrefixesTDB srcPrefixes = (DatasetPrefixesTDB)src.getPrefixes() ;
+        DatasetPrefixesTDB dstPrefixes = (DatasetPrefixesTDB)dst.getPrefixes() ;
+        Set<String> graphNames = srcPrefixes.graphNames() ;
+        for ( String gn : dstPrefixes.graphNames() ) {
+            if ( ! graphNames.contains(gn) )
+                dstPrefixes.removeAllFromPrefixMap(gn) ;
+        }
+        for ( String gn : graphNames ) {
+            Map<String, String> srcMap = srcPrefixes.readPrefixMap(gn) ;
+            if ( Objects.equals(srcMap, dstPrefixes.readPrefixMap(gn)) )
+                continue ;
+            dstPrefixes.removeAllFromPrefixMap(gn) ;
+            srcMap.forEach((prefix, uri) -> dstPrefixes.insertPrefix(gn, prefix, uri)) ;
+        }
+    }
+}
@@ -23,7 +23,6 @@ import java.io.IOException ;
 import java.io.OutputStream ;
 import java.nio.file.* ;
 import java.util.List;
-import java.util.zip.GZIPOutputStream ;
 
 import org.apache.jena.atlas.RuntimeIOException ;
 import org.apache.jena.atlas.lib.DateTimeUtils ;
@@ -32,14 +31,14 @@ import org.apache.jena.atlas.logging.Log;
 import org.apache.jena.dboe.base.file.Location;
 import org.apache.jena.dboe.jenax.Txn;
 import org.apache.jena.dboe.transaction.txn.TransactionCoordinator;
-import org.apache.jena.dboe.transaction.txn.TransactionalSystem;
-import org.apache.jena.riot.Lang ;
-import org.apache.jena.riot.RDFDataMgr ;
+import org.apache.jena.query.ReadWrite;
+import org.apache.jena.riot.RDFFormat ;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.tdb2.TDBException;
 import org.apache.jena.tdb2.setup.StoreParams;
 import org.apache.jena.tdb2.store.DatasetGraphSwitchable;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.sys.ChangeRecorder.QuadChange;
 import org.slf4j.Logger ;
 import org.slf4j.LoggerFactory ;
 
@@ -119,10 +118,11 @@ public class DatabaseOps {
 //  }
 
         Pair<OutputStream, Path> x = openUniqueFileForWriting(backupDir, BACKUPS_FN, "nq.gz");
+        // Dumped in parallel, as gzip compressed shards: one after another, they
+        // are a single gzip file.
         try (OutputStream out2 = x.getLeft();
-             OutputStream out1 = new GZIPOutputStream(out2, 8 * 1024) ;
-             OutputStream out = new BufferedOutputStream(out1)) {
-            Txn.executeRead(dsg, ()->RDFDataMgr.write(out, dsg, Lang.NQUADS));
+             OutputStream out = new BufferedOutputStream(out2)) {
+            DumpParallel.dump(dsg, out, RDFFormat.NQUADS, true, backupDir);
         } catch (IOException e) {
             throw IOX.exception(e) ;
         }
@@ -202,11 +202,19 @@ public class DatabaseOps {
         }
     }
     
-    // XXX Later - switch in a recording dataset, not block writers, and reply after
-    // switch over before releasing the new dataset to the container.
-    // Maybe copy indexes and switch the DSG over (drop switchable).
-    
-    /** Copy the latest version from one location to another. */
+    /** Stop catching up while writers run when fewer than this many changes were replayed in a round. */
+    /*package*/ static int CatchUpThreshold    = 1000;
+    /** Maximum number of rounds of catching up while writers run. */
+    /*package*/ static int CatchUpRounds       = 10;
+
+    /**
+     * Copy the latest version from one location to another, then switch the container over.
+     * <p>
+     * The copy is taken in a read transaction, at the level of records (see {@link CompactCopy}),
+     * while writers continue. Their changes are recorded ({@link ChangeRecorder}) and replayed
+     * onto the copy; writers are blocked only for the final round of replay, the prefixes
+     * and the switch-over.
+     */
     private static void compact(DatasetGraphSwitchable container, Location loc1, Location loc2) {
         if ( loc1.isMem() || loc2.isMem() )
             throw new TDBException("Compact involves a memory location: "+loc1+" : "+loc2);
@@ -223,34 +231,69 @@ public class DatabaseOps {
         if ( dsgBase != dsgCurrent )
             throw new TDBException("Inconsistent datasets : "+dsgCurrent.getLocation()+" , "+dsgBase.getLocation());
         
-        TransactionalSystem txnSystem = dsgBase.getTxnSystem();
         TransactionCoordinator txnMgr = dsgBase.getTxnSystem().getTxnMgr();
-        
-        // Stop update.  On exit there are no writers and none will start until switched over.
-        txnMgr.tryBlockWriters();
-        // txnMgr.begin(WRITE, false) will now bounce.
-        
-        // Copy the latest generation.
-        DatasetGraphTDB dsgCompact = StoreConnection.connectCreate(loc2).getDatasetGraphTDB();
-        CopyDSG.copy(dsgBase, dsgCompact);   
+        ChangeRecorder recorder = new ChangeRecorder();
 
-        TransactionCoordinator txnMgr2 = dsgCompact.getTxnSystem().getTxnMgr();
-        txnMgr2.startExclusiveMode();
+        // Start recording and take the read transaction for the copy with no
+        // writer active, so every later commit is recorded completely.
+        txnMgr.blockWriters();
+        try {
+            dsgBase.setMonitor(recorder);
+            dsgBase.setTransactionalMonitor(recorder);
+            dsgBase.begin(ReadWrite.READ);
+        } finally { txnMgr.enableWriters(); }
 
-        txnMgr.startExclusiveMode();
+        DatasetGraphTDB dsgCompact;
+        boolean writersBlocked = false;
+        try {
+            try {
+                CompactCopy.copy(dsgBase, loc2);
+            } finally { dsgBase.end(); }
+            dsgCompact = StoreConnection.connectCreate(loc2).getDatasetGraphTDB();
+
+            // Catch up while writers run.
+            for ( int i = 0 ; i < CatchUpRounds ; i++ ) {
+                List<QuadChange> changes = recorder.take(false);
+                if ( changes.isEmpty() )
+                    break;
+                Txn.executeWrite(dsgCompact, ()->CompactCopy.replay(changes, dsgCompact));
+                if ( changes.size() < CatchUpThreshold )
+                    break;
+            }
+
+            // Stop update. Replay the rest, including any commit still finishing.
+            txnMgr.blockWriters();
+            writersBlocked = true;
+            LOG.debug("Compact: writers blocked: "+recorder.size()+" transactions to replay");
+            List<QuadChange> changes = recorder.take(true);
+            Txn.executeRead(dsgBase, ()->
+                Txn.executeWrite(dsgCompact, ()->{
+                    CompactCopy.replay(changes, dsgCompact);
+                    CompactCopy.syncPrefixes(dsgBase, dsgCompact);
+                }));
+        } catch (RuntimeException ex) {
+            // Abandon the compaction and leave the current database in use.
+            if ( writersBlocked )
+                txnMgr.enableWriters();
+            throw ex;
+        } finally {
+            dsgBase.removeMonitor(recorder);
+            dsgBase.removeTransactionalMonitor(recorder);
+        }
 
-        // No transactions on either database.
         // Switch.
         if ( ! container.change(dsgCurrent, dsgCompact) ) {
             Log.warn(DatabaseOps.class, "Inconistent: old datasetgraph not as expected");
             container.set(dsgCompact);
         }
-        txnMgr2.finishExclusiveMode();
         // New database running.
+        // Writers waiting to start on the old database see the switch and start again on the new one.
+        txnMgr.enableWriters();
+        // Wait for transactions on the old database to finish.
+        txnMgr.startExclusiveMode();
 
         // Clean-up.
-        // txnMgr.finishExclusiveMode();
-        // Don't call : txnMgr.startWriters();
+        // Don't call : txnMgr.finishExclusiveMode();
         StoreConnection.release(dsgBase.getLocation());
     }
     
@@ -0,0 +1,424 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.sys;
+
+import java.io.BufferedOutputStream ;
+import java.io.IOException ;
+import java.io.OutputStream ;
+import java.nio.file.DirectoryStream ;
+import java.nio.file.Files ;
+import java.nio.file.Path ;
+import java.util.ArrayList ;
+import java.util.Arrays ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.Map ;
+import java.util.concurrent.* ;
+import java.util.concurrent.atomic.AtomicLong ;
+import java.util.zip.GZIPOutputStream ;
+
+import org.apache.jena.atlas.io.IndentedWriter ;
+import org.apache.jena.atlas.lib.tuple.Tuple ;
+import org.apache.jena.atlas.logging.FmtLog ;
+import org.apache.jena.dboe.transaction.txn.TransactionCoordinator ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.query.ReadWrite ;
+import org.apache.jena.riot.Lang ;
+import org.apache.jena.riot.RDFFormat ;
+import org.apache.jena.riot.RDFLanguages ;
+import org.apache.jena.riot.out.NodeToLabel ;
+import org.apache.jena.riot.system.StreamRDF ;
+import org.apache.jena.riot.system.StreamRDFWriter ;
+import org.apache.jena.riot.system.SyntaxLabels ;
+import org.apache.jena.riot.writer.WriterStreamRDFBlocks ;
+import org.apache.jena.riot.writer.WriterStreamRDFFlat ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.tdb2.TDBException ;
+import org.apache.jena.tdb2.store.DatasetGraphTDB ;
+import org.apache.jena.tdb2.store.NodeId ;
+import org.apache.jena.tdb2.store.nodetable.NodeTable ;
+import org.apache.jena.tdb2.store.tupletable.TupleIndex ;
+import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord ;
+import org.apache.jena.tdb2.store.tupletable.TupleTable ;
+import org.slf4j.Logger ;
+import org.slf4j.LoggerFactory ;
+
+/**
+ * Parallel dump of a TDB2 database.
+ * <p>
+ * The primary indexes of the triple table and the quad table (SPO and GSPO by
+ * default) are split into ranges of the leading slot. Worker threads each take a
+ * range, scan it, decode the NodeIds through the database node table, which is
+ * shared and cached, and write the triples and quads to a shard, optionally gzip
+ * compressed. The output is in index order, so is grouped by subject (triples) or
+ * by graph then subject (quads), and a dump of the same data is always the same.
+ * <p>
+ * Shards can be kept as numbered files, or joined in order into a single stream.
+ * Concatenated gzip shards are a valid gzip file and concatenated N-Quads (or
+ * Turtle/TriG blocks) shards are valid N-Quads (or Turtle/TriG). Blank nodes are
+ * written with their internal labels, so shards read separately keep blank node
+ * identity if they are read with labels as given.
+ * <p>
+ * All workers read the same version of the database: writers are held back while
+ * the workers start their read transactions, and then released. The calling
+ * thread must not be in a write transaction.
+ * <p>
+ * The format must be one with a streaming writer ({@link StreamRDFWriter}). With a
+ * triples format, only the default graph is written.
+ */
+public class DumpParallel {
+    private static Logger LOG = LoggerFactory.getLogger(DumpParallel.class) ;
+
+    /** Number of worker threads. */
+    public static int Threads = Runtime.getRuntime().availableProcessors() ;
+    /** Number of ranges each index is split into, per worker thread. Skew is evened out by having many ranges. */
+    public static int RangesPerThread = 8 ;
+
+    /**
+     * Write the database to an output stream. The shards are written to temporary
+     * files, in the system temporary directory, then copied to the output in order.
+     * If {@code compress} is true, the output is gzip compressed.
+     * @return The number of triples and quads written.
+     */
+    public static long dump(DatasetGraph dsg, OutputStream output, RDFFormat format, boolean compress) {
+        return dump(dsg, output, format, compress, null) ;
+    }
+
+    /**
+     * Write the database to an output stream, using a temporary directory inside
+     * {@code workDir} for the shards, for example the directory of the output file.
+     * If {@code workDir} is null, the system temporary directory is used.
+     * @return The number of triples and quads written.
+     */
+    public static long dump(DatasetGraph dsg, OutputStream output, RDFFormat format, boolean compress, Path workDir) {
+        DatasetGraphTDB dsgtdb = TDBInternal.requireStorage(dsg) ;
+        Path tmpDir ;
+        try {
+            tmpDir = ( workDir == null )
+                ? Files.createTempDirectory("tdb2-dump")
+                : Files.createTempDirectory(workDir, "tdb2-dump") ;
+        } catch (IOException ex) { throw IOX.exception(ex) ; }
+        try {
+            DumpParallel dump = new DumpParallel(dsgtdb, tmpDir, "shard", format, compress, false) ;
+            List<Future<Path>> shards = dump.start() ;
+            try {
+                for ( Future<Path> f : shards ) {
+                    Path shard = await(f) ;
+                    Files.copy(shard, output) ;
+                    Files.delete(shard) ;
+                }
+                output.flush() ;
+            } catch (IOException ex) {
+                throw IOX.exception(ex) ;
+            } finally {
+                dump.finish() ;
+            }
+            return dump.count.get() ;
+        } finally {
+            deleteDirectory(tmpDir) ;
+        }
+    }
+
+    /**
+     * Write the database to numbered files {@code basename-NNNN.ext}, with
+     * {@code .gz} added if {@code compress} is true. Each file can be read on its
+     * own, and reading them in order gives the dump in index order.
+     * @return The files, in order.
+     */
+    public static List<Path> dumpShards(DatasetGraph dsg, Path directory, String basename, RDFFormat format, boolean compress) {
+        DatasetGraphTDB dsgtdb = TDBInternal.requireStorage(dsg) ;
+        if ( ! Files.exists(directory) )
+            IOX.createDirectory(directory) ;
+        DumpParallel dump = new DumpParallel(dsgtdb, directory, basename, format, compress, true) ;
+        List<Future<Path>> shards = dump.start() ;
+        List<Path> paths = new ArrayList<>() ;
+        try {
+            for ( Future<Path> f : shards )
+                paths.add(await(f)) ;
+        } finally {
+            dump.finish() ;
+        }
+        return paths ;
+    }
+
+    // ---- Object
+
+    /** A range of the leading slot of an index, bounds null for the start or end of the index. */
+    private static class Range {
+        final int seq ;
+        final TupleIndex index ;
+        final long[] start ;
+        final long[] finish ;
+        final CompletableFuture<Path> result = new CompletableFuture<>() ;
+
+        Range(int seq, TupleIndex index, long[] start, long[] finish) {
+            this.seq = seq ;
+            this.index = index ;
+            this.start = start ;
+            this.finish = finish ;
+        }
+    }
+
+    private final DatasetGraphTDB dsg ;
+    private final Path directory ;
+    private final String basename ;
+    private final String extension ;
+    private final RDFFormat format ;
+    private final boolean compress ;
+    private final boolean prefixesEveryShard ;
+    private final BlockingQueue<Range> ranges = new LinkedBlockingQueue<>() ;
+    private final AtomicLong count = new AtomicLong(0) ;
+    private volatile boolean cancelled = false ;
+    private ExecutorService executor ;
+    private final List<Future<?>> workers = new ArrayList<>() ;
+
+    private DumpParallel(DatasetGraphTDB dsg, Path directory, String basename, RDFFormat format, boolean compress, boolean prefixesEveryShard) {
+        if ( ! StreamRDFWriter.registered(format) )
+            throw new TDBException("Not a streaming format: "+format) ;
+        this.dsg = dsg ;
+        this.directory = directory ;
+        this.basename = basename ;
+        this.format = format ;
+        this.compress = compress ;
+        this.prefixesEveryShard = prefixesEveryShard ;
+        List<String> exts = format.getLang().getFileExtensions() ;
+        String ext = exts.isEmpty() ? "dat" : exts.get(0) ;
+        this.extension = compress ? ext+".gz" : ext ;
+    }
+
+    /** Split the indexes, start the workers, and return the shards in order. */
+    private List<Future<Path>> start() {
+        int numThreads = Math.max(1, Threads) ;
+        TransactionCoordinator txnMgr = dsg.getTxnSystem().getTxnMgr() ;
+        CountDownLatch started = new CountDownLatch(numThreads) ;
+        List<Range> all = new ArrayList<>() ;
+        executor = Executors.newFixedThreadPool(numThreads) ;
+        // No writer can commit while the ranges are calculated and the workers
+        // start their read transactions.
+        txnMgr.blockWriters() ;
+        try {
+            boolean inTxn = dsg.isInTransaction() ;
+            if ( ! inTxn )
+                dsg.begin(ReadWrite.READ) ;
+            try {
+                int numRanges = numThreads*Math.max(1, RangesPerThread) ;
+                split(all, dsg.getTripleTable().getNodeTupleTable().getTupleTable(), numRanges) ;
+                if ( RDFLanguages.isQuads(format.getLang()) )
+                    split(all, dsg.getQuadTable().getNodeTupleTable().getTupleTable(), numRanges) ;
+            } finally {
+                if ( ! inTxn )
+                    dsg.end() ;
+            }
+            for ( int i = 0 ; i < numThreads ; i++ )
+                workers.add(executor.submit(()->worker(started))) ;
+            started.await() ;
+        } catch (InterruptedException ex) {
+            cancelled = true ;
+            throw new TDBException("Interrupted", ex) ;
+        } finally {
+            txnMgr.enableWriters() ;
+        }
+        if ( all.isEmpty() )
+            // Always write something, if only the prefixes.
+            all.add(new Range(0, null, null, null)) ;
+        List<Future<Path>> results = new ArrayList<>() ;
+        for ( Range r : all ) {
+            results.add(r.result) ;
+            ranges.add(r) ;
+        }
+        ranges.add(END) ;
+        return results ;
+    }
+
+    private static final Range END = new Range(-1, null, null, null) ;
+
+    /** Wait for the workers ; cancel any unfinished work. */
+    private void finish() {
+        cancelled = true ;
+        executor.shutdown() ;
+        for ( Future<?> f : workers ) {
+            try { f.get() ; }
+            catch (InterruptedException | ExecutionException ex) {}
+        }
+    }
+
+    private void split(List<Range> acc, TupleTable table, int numRanges) {
+        TupleIndex index = table.getIndex(0) ;
+        if ( index.isEmpty() )
+            return ;
+        int seq = acc.size() ;
+        TupleIndex base = index.baseTupleIndex() ;
+        if ( ! ( base instanceof TupleIndexRecord ) ) {
+            acc.add(new Range(seq, index, null, null)) ;
+            return ;
+        }
+        TupleIndexRecord indexRecord = (TupleIndexRecord)base ;
+        long[] first = indexRecord.ceiling(new long[]{0}) ;
+        long[] last = indexRecord.lastKey() ;
+        // Split on the first slot that varies, e.g. on S when there is one graph in GSPO.
+        int k = 0 ;
+        while ( k < first.length-1 && first[k] == last[k] )
+            k++ ;
+        // Unsigned arithmetic : keys compare as unsigned 64 bit numbers.
+        long lo = first[k] ;
+        long span = last[k] - lo ;
+        if ( numRanges <= 1 || Long.compareUnsigned(span, numRanges) < 0 ) {
+            acc.add(new Range(seq, indexRecord, null, null)) ;
+            return ;
+        }
+        long step = Long.divideUnsigned(span, numRanges) + 1 ;
+        long[] start = null ;
+        for ( int i = 1 ; i < numRanges ; i++ ) {
+            long[] finish = Arrays.copyOf(first, k+1) ;
+            finish[k] = lo + i*step ;
+            acc.add(new Range(seq++, indexRecord, start, finish)) ;
+            start = finish ;
+        }
+        acc.add(new Range(seq, indexRecord, start, null)) ;
+    }
+
+    private void worker(CountDownLatch started) {
+        dsg.begin(ReadWrite.READ) ;
+        started.countDown() ;
+        try {
+            NodeTable nodeTable = dsg.getTripleTable().getNodeTupleTable().getNodeTable() ;
+            Map<String, String> prefixes = dsg.getDefaultGraph().getPrefixMapping().getNsPrefixMap() ;
+            for ( ;; ) {
+                Range range = ranges.take() ;
+                if ( range == END ) {
+                    ranges.add(END) ;
+                    return ;
+                }
+                if ( cancelled ) {
+                    range.result.cancel(false) ;
+                    continue ;
+                }
+                try {
+                    boolean withPrefixes = prefixesEveryShard || range.seq == 0 ;
+                    range.result.complete(writeShard(range, nodeTable, withPrefixes ? prefixes : null)) ;
+                } catch (Throwable th) {
+                    cancelled = true ;
+                    range.result.completeExceptionally(th) ;
+                }
+            }
+        } catch (InterruptedException ex) {
+            cancelled = true ;
+        } finally {
+            dsg.end() ;
+        }
+    }
+
+    private Path writeShard(Range range, NodeTable nodeTable, Map<String, String> prefixes) throws IOException {
+        Path path = directory.resolve(String.format("%s-%04d.%s", basename, range.seq, extension)) ;
+        try ( OutputStream out = output(path) ) {
+            StreamRDF stream = writer(out) ;
+            stream.start() ;
+            if ( prefixes != null )
+                prefixes.forEach(stream::prefix) ;
+            if ( range.index != null )
+                send(range, nodeTable, stream) ;
+            stream.finish() ;
+        }
+        return path ;
+    }
+
+    /**
+     * The writer for a shard. Blank nodes are written with their internal labels, so
+     * the same blank node has the same label in every shard. The N-Triples, N-Quads
+     * and RDF Thrift writers already do this.
+     */
+    private StreamRDF writer(OutputStream out) {
+        Lang lang = format.getLang() ;
+        if ( lang.equals(Lang.TURTLE) || lang.equals(Lang.TRIG) ) {
+            IndentedWriter w = new IndentedWriter(out) ;
+            NodeToLabel labels = SyntaxLabels.createNodeToLabelRT() ;
+            if ( format.equals(RDFFormat.TURTLE_FLAT) || format.equals(RDFFormat.TRIG_FLAT) )
+                return new WriterStreamRDFFlat(w, labels) ;
+            return new WriterStreamRDFBlocks(w, labels) ;
+        }
+        return StreamRDFWriter.getWriterStream(out, format) ;
+    }
+
+    private OutputStream output(Path path) throws IOException {
+        OutputStream out = Files.newOutputStream(path) ;
+        if ( compress )
+            out = new GZIPOutputStream(out, 64*1024) ;
+        return new BufferedOutputStream(out, 128*1024) ;
+    }
+
+    private void send(Range range, NodeTable nodeTable, StreamRDF stream) {
+        Iterator<Tuple<NodeId>> iter = ( range.start == null && range.finish == null )
+            ? range.index.all()
+            : ((TupleIndexRecord)range.index).range(range.start, range.finish) ;
+        int len = range.index.getTupleLength() ;
+        // Adjacent tuples often share NodeIds in the leading slots.
+        NodeId[] lastIds = new NodeId[len] ;
+        Node[] lastNodes = new Node[len] ;
+        Node[] nodes = new Node[len] ;
+        long n = 0 ;
+        while ( iter.hasNext() ) {
+            Tuple<NodeId> tuple = iter.next() ;
+            for ( int i = 0 ; i < len ; i++ ) {
+                NodeId id = tuple.get(i) ;
+                if ( ! id.equals(lastIds[i]) ) {
+                    lastIds[i] = id ;
+                    lastNodes[i] = nodeTable.getNodeForNodeId(id) ;
+                }
+                nodes[i] = lastNodes[i] ;
+            }
+            if ( len == 3 )
+                stream.triple(Triple.create(nodes[0], nodes[1], nodes[2])) ;
+            else
+                stream.quad(Quad.create(nodes[0], nodes[1], nodes[2], nodes[3])) ;
+            if ( ( ++n & 0xFFFF ) == 0 && cancelled )
+                break ;
+        }
+        count.addAndGet(n) ;
+    }
+
+    private static Path await(Future<Path> f) {
+        try { return f.get() ; }
+        catch (InterruptedException ex) { throw new TDBException("Interrupted", ex) ; }
+        catch (CancellationException ex) { throw new TDBException("Dump cancelled", ex) ; }
+        catch (ExecutionException ex) {
+            Throwable cause = ex.getCause() ;
+            if ( cause instanceof RuntimeException )
+                throw (RuntimeException)cause ;
+            if ( cause instanceof IOException )
+                throw IOX.exception((IOException)cause) ;
+            throw new TDBException("Dump failed", cause) ;
+        }
+    }
+
+    private static void deleteDirectory(Path dir) {
+        try {
+            if ( ! Files.exists(dir) )
+                return ;
+            try ( DirectoryStream<Path> entries = Files.newDirectoryStream(dir) ) {
+                for ( Path p : entries )
+                    Files.deleteIfExists(p) ;
+            }
+            Files.deleteIfExists(dir) ;
+        } catch (IOException ex) {
+            FmtLog.warn(LOG, "Failed to delete %s", dir) ;
+        }
+    }
+}
@@ -122,6 +122,12 @@ public class SystemTDB
     /** Experimental : triple and quad filtering at scan level */
     public static final Symbol symTupleFilter       = allocSymbol("tupleFilter") ;
 
+    /** Join the first triple pattern of a BGP with another by merging ordered index scans (Boolean, default false) */
+    public static final Symbol symMergeJoin         = allocSymbol("mergeJoin") ;
+
+    /** Match BGPs with a leapfrog triejoin ("true" for all BGPs, "cyclic" for cyclic BGPs only; default false) */
+    public static final Symbol symLeapfrog          = allocSymbol("leapfrog") ;
+
     private static final String propertyFileKey1    = tdbPropertyRoot+".settings" ;
     private static final String propertyFileKey2    = tdbSymbolPrefix+":settings" ;
 
@@ -176,17 +182,59 @@ public class SystemTDB
     /** Size of Node lookup miss cache. */
     public static final int NodeMissCacheSize       = 1000 ;
     
+    /** Size, in bytes, of the off-heap node caches; 0 means use the on-heap caches.
+     *  The JVM must allow this much direct memory ({@code -XX:MaxDirectMemorySize}).
+     */
+    public static final long NodeCacheOffHeapSize   = 0 ;
+    
     /** Size of the delayed-write block cache (32 bit systems only). Per file. */
     public static final int BlockWriteCacheSize     = intValue("BlockWriteCacheSize", 1000) ;
 
     /** Size of read block cache (32 bit systems only). Per file. */
     public static final int BlockReadCacheSize      = intValue("BlockReadCacheSize", 5*1000) ;
+
+    /** Size, in bytes, of the read block cache shared by the indexes of a database
+     *  (direct file mode only); 0 means a read block cache per file. */
+    public static final long BlockCachePoolSize     = 0 ;
     
     // ---- Misc
     
 //    /** Number of adds/deletes between calls to sync (-ve to disable) */
 //    public static final int SyncTick                = intValue("SyncTick", -1) ;
 
+    /**
+     * Group commit latency window, in milliseconds, for databases opened after
+     * this is set. Concurrent write transactions that commit within the window
+     * are made durable with one sync. Negative (the default) for a sync at each commit.
+     * @see org.apache.jena.dboe.transaction.txn.TransactionCoordinator#setGroupCommit
+     */
+    public static int GroupCommitWindow             = intValue("GroupCommitWindow", -1) ;
+
+    /**
+     * {@link org.apache.jena.tdb2.store.DatasetGraphDeltaLog}: the number of
+     * committed changes not in the indexes at which they are applied to the indexes.
+     * Writers wait for the indexes to catch up at four times this number.
+     */
+    public static int DeltaApplyThreshold           = intValue("DeltaApplyThreshold", 100*1000) ;
+
+    /**
+     * {@link org.apache.jena.tdb2.store.DatasetGraphDeltaLog}: the interval, in
+     * milliseconds, at which committed changes are applied to the indexes
+     * (zero or negative for only by size).
+     */
+    public static int DeltaApplyInterval            = intValue("DeltaApplyInterval", 1000) ;
+
+    /**
+     * Create new databases with prefix-compressed leaf blocks in the B+Tree
+     * indexes, unless the application's {@link org.apache.jena.tdb2.setup.StoreParams}
+     * say otherwise. The choice is recorded in the database's parameters
+     * ({@code tdb.cfg}) and applies whenever it is opened; this setting does not
+     * change existing databases.
+     * @see org.apache.jena.tdb2.setup.StoreParams#isPackedIndexLeaves()
+     * @see org.apache.jena.dboe.trans.bplustree.LeafPacking
+     */
+    public static boolean PackedIndexLeaves         = false ;
+
     /** Default BGP optimizer */
     public static ReorderTransformation defaultReorderTransform = ReorderLib.fixed() ;
 
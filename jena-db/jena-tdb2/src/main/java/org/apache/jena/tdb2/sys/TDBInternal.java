@@ -23,6 +23,7 @@ import org.apache.jena.graph.Node;
 import org.apache.jena.query.Dataset;
 import org.apache.jena.sparql.core.DatasetGraph;
 import org.apache.jena.tdb2.TDBException;
+import org.apache.jena.tdb2.store.DatasetGraphDeltaLog;
 import org.apache.jena.tdb2.store.DatasetGraphSwitchable;
 import org.apache.jena.tdb2.store.DatasetGraphTDB;
 import org.apache.jena.tdb2.store.NodeId;
@@ -161,6 +162,7 @@ public class TDBInternal {
      * Use with great care.
      */
     public static void reset() {
+        DatasetGraphDeltaLog.internalReset();
         DatabaseConnection.internalReset();
         StoreConnection.internalReset();
     }
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.loader;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertFalse ;
+import static org.junit.Assert.assertTrue ;
+
+import java.io.File ;
+import java.io.IOException ;
+import java.nio.file.Files ;
+import java.util.Arrays ;
+import java.util.List ;
+
+import org.apache.commons.io.FileUtils ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.atlas.lib.StrUtils ;
+import org.apache.jena.dboe.base.file.Location ;
+import org.apache.jena.dboe.jenax.Txn ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.query.* ;
+import org.apache.jena.riot.RDFDataMgr ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.DatasetGraphFactory ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.tdb2.DatabaseMgr ;
+import org.apache.jena.tdb2.sys.IOX ;
+import org.apache.jena.tdb2.sys.TDBInternal ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Rule ;
+import org.junit.Test ;
+import org.junit.rules.TemporaryFolder ;
+
+public class TestLoaderParallel {
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private Location dir = null ;
+    private int sortChunkSize ;
+
+    private static String dataTriples = StrUtils.strjoinNL
+        ("@prefix : <http://example/> ."
+        ,":s :p 1 ."
+        ,":s :p 2 ."
+        ,":s :q :o ."
+        ,":s :p 1 ."
+        ,"_:b :p \"abc\" ."
+        ,":x :p _:b ."
+        ,":x :q \"2017-01-01\"^^<http://www.w3.org/2001/XMLSchema#date> ."
+        ) ;
+
+    private static String dataQuads = StrUtils.strjoinNL
+        ("<http://example/s> <http://example/p> \"dft\" ."
+        ,"<http://example/s> <http://example/p> \"g1\" <http://example/g1> ."
+        ,"<http://example/s> <http://example/p> \"g2\" <http://example/g2> ."
+        ,"<http://example/s> <http://example/p> \"g2\" <http://example/g2> ."
+        ,"_:a <http://example/p> _:a <http://example/g2> ."
+        ) ;
+
+    @Before
+    public void before() {
+        dir = Location.create(tempFolder.getRoot().getAbsolutePath()+"/DB");
+        FileUtils.deleteQuietly(IOX.asFile(dir));
+        FileOps.ensureDir(dir.getDirectoryPath());
+        sortChunkSize = LoaderParallel.SortChunkSize ;
+    }
+
+    @After
+    public void after() {
+        LoaderParallel.SortChunkSize = sortChunkSize ;
+        TDBInternal.reset();
+        FileUtils.deleteQuietly(IOX.asFile(dir));
+    }
+
+    @Test public void loader_triples()          { runTest("data.ttl", dataTriples) ; }
+    @Test public void loader_quads()            { runTest("data.nq", dataQuads) ; }
+
+    @Test public void loader_spill()            {
+        // Sorted runs on disk.
+        LoaderParallel.SortChunkSize = 2 ;
+        runTest("data.ttl", dataTriples) ;
+    }
+
+    @Test public void loader_files() {
+        String fn1 = file("data1.ttl", dataTriples) ;
+        String fn2 = file("data2.nq", dataQuads) ;
+        DatasetGraph expected = DatasetGraphFactory.createTxnMem() ;
+        RDFDataMgr.read(expected, fn1) ;
+        RDFDataMgr.read(expected, fn2) ;
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dir) ;
+        LoaderParallel.load(dsg, Arrays.asList(fn1, fn2), false) ;
+        check(expected, dsg) ;
+    }
+
+    @Test public void loader_update_after() {
+        String fn = file("data.ttl", dataTriples) ;
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dir) ;
+        LoaderParallel.load(dsg, Arrays.asList(fn), false) ;
+        Quad q1 = SSE.parseQuad("(_ <http://example/s> <http://example/p> 1)") ;
+        Quad q2 = SSE.parseQuad("(<http://example/g> <http://example/s> <http://example/p> 99)") ;
+        Txn.executeWrite(dsg, ()->{
+            dsg.delete(q1) ;
+            dsg.add(q2) ;
+        }) ;
+        Txn.executeRead(dsg, ()->{
+            assertFalse(dsg.contains(q1)) ;
+            assertTrue(dsg.contains(q2)) ;
+            assertEquals(5, dsg.getDefaultGraph().size()) ;
+        }) ;
+        // Reopen.
+        TDBInternal.reset() ;
+        DatasetGraph dsg2 = DatabaseMgr.connectDatasetGraph(dir) ;
+        Txn.executeRead(dsg2, ()->{
+            assertFalse(dsg2.contains(q1)) ;
+            assertTrue(dsg2.contains(q2)) ;
+            assertEquals(5, dsg2.getDefaultGraph().size()) ;
+        }) ;
+    }
+
+    @Test public void loader_not_empty() {
+        // Falls back to loading into the existing indexes.
+        String fn = file("data.ttl", dataTriples) ;
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dir) ;
+        Quad q = SSE.parseQuad("(_ <http://example/z> <http://example/p> 1)") ;
+        Txn.executeWrite(dsg, ()->dsg.add(q)) ;
+        LoaderParallel.load(dsg, Arrays.asList(fn), false) ;
+        Txn.executeRead(dsg, ()->{
+            assertTrue(dsg.contains(q)) ;
+            assertEquals(7, dsg.getDefaultGraph().size()) ;
+        }) ;
+    }
+
+    @Test public void loader_query() {
+        String fn = file("data.ttl", dataTriples) ;
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dir) ;
+        LoaderParallel.load(dsg, Arrays.asList(fn), false) ;
+        Dataset ds = DatasetFactory.wrap(dsg) ;
+        Txn.executeRead(dsg, ()->{
+            String qs = "PREFIX : <http://example/> SELECT (count(*) AS ?C) { ?s :p ?o }" ;
+            try ( QueryExecution qExec = QueryExecutionFactory.create(qs, ds) ) {
+                long c = qExec.execSelect().next().getLiteral("C").getLong() ;
+                assertEquals(4, c) ;
+            }
+        }) ;
+    }
+
+    private void runTest(String filename, String data) {
+        String fn = file(filename, data) ;
+        DatasetGraph expected = DatasetGraphFactory.createTxnMem() ;
+        RDFDataMgr.read(expected, fn) ;
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dir) ;
+        LoaderParallel.load(dsg, Arrays.asList(fn), false) ;
+        check(expected, dsg) ;
+        // Temporary files have been removed.
+        File[] x = new File(DatabaseMgr.location(dsg).getDirectoryPath()).listFiles((d,n)->n.startsWith("loader")) ;
+        assertTrue(x == null || x.length == 0) ;
+    }
+
+    private static void check(DatasetGraph expected, DatasetGraph dsg) {
+        Txn.executeRead(dsg, ()->{
+            assertTrue(expected.getDefaultGraph().isIsomorphicWith(dsg.getDefaultGraph())) ;
+            List<Node> graphs = org.apache.jena.atlas.iterator.Iter.toList(expected.listGraphNodes()) ;
+            assertEquals(graphs.size(), org.apache.jena.atlas.iterator.Iter.count(dsg.listGraphNodes())) ;
+            for ( Node gn : graphs )
+                assertTrue(expected.getGraph(gn).isIsomorphicWith(dsg.getGraph(gn))) ;
+            assertEquals(expected.getDefaultGraph().getPrefixMapping().getNsPrefixMap(),
+                         dsg.getDefaultGraph().getPrefixMapping().getNsPrefixMap()) ;
+            // Index consistency.
+            assertTrue(dsg.contains(null, null, NodeFactory.createURI("http://example/p"), null)) ;
+        }) ;
+    }
+
+    private String file(String filename, String data) {
+        File f = new File(tempFolder.getRoot(), filename) ;
+        try { Files.write(f.toPath(), data.getBytes("UTF-8")) ; }
+        catch (IOException ex) { throw new RuntimeException(ex) ; }
+        return f.getAbsolutePath() ;
+    }
+}
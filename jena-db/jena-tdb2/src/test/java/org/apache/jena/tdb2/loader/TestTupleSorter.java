@@ -0,0 +1,135 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.loader;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertFalse ;
+import static org.junit.Assert.assertTrue ;
+
+import java.util.ArrayList ;
+import java.util.Iterator ;
+import java.util.List ;
+import java.util.Random ;
+
+import org.apache.jena.atlas.lib.Bytes ;
+import org.apache.jena.atlas.lib.tuple.TupleMap ;
+import org.apache.jena.dboe.base.record.Record ;
+import org.apache.jena.dboe.base.record.RecordFactory ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Rule ;
+import org.junit.Test ;
+import org.junit.rules.TemporaryFolder ;
+
+public class TestTupleSorter {
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private static RecordFactory recordFactory = new RecordFactory(3*Long.BYTES, 0) ;
+    private int mergeWidth ;
+
+    @Before public void before()    { mergeWidth = TupleSorter.MergeWidth ; }
+    @After  public void after()     { TupleSorter.MergeWidth = mergeWidth ; }
+
+    @Test public void sorter_empty() {
+        TupleSorter sorter = sorter("SPO", 10) ;
+        sorter.finish() ;
+        assertFalse(sorter.records(recordFactory).hasNext()) ;
+        sorter.close() ;
+    }
+
+    @Test public void sorter_memory_1() {
+        // SPO->POS
+        TupleSorter sorter = sorter("POS", 10) ;
+        sorter.add(new long[] {1, 2, 3}, 0) ;
+        sorter.add(new long[] {4, 1, 2}, 0) ;
+        sorter.finish() ;
+        List<long[]> x = results(sorter) ;
+        assertEquals(2, x.size()) ;
+        check(x.get(0), 1, 2, 4) ;
+        check(x.get(1), 2, 3, 1) ;
+    }
+
+    @Test public void sorter_memory_duplicates() {
+        TupleSorter sorter = sorter("SPO", 10) ;
+        long[] tuples = {5, 5, 5, 1, 1, 1, 5, 5, 5} ;
+        sorter.addAll(tuples, 3) ;
+        sorter.finish() ;
+        assertEquals(3, sorter.getCount()) ;
+        List<long[]> x = results(sorter) ;
+        assertEquals(2, x.size()) ;
+        check(x.get(0), 1, 1, 1) ;
+        check(x.get(1), 5, 5, 5) ;
+    }
+
+    @Test public void sorter_unsigned() {
+        // Inline NodeIds have the high bit set and sort after pointers.
+        TupleSorter sorter = sorter("SPO", 10) ;
+        sorter.add(new long[] {-1L, 0, 0}, 0) ;
+        sorter.add(new long[] {1, 0, 0}, 0) ;
+        sorter.finish() ;
+        List<long[]> x = results(sorter) ;
+        check(x.get(0), 1, 0, 0) ;
+        check(x.get(1), -1L, 0, 0) ;
+    }
+
+    @Test public void sorter_runs_1()   { runTest(1000, 7, 100) ; }
+    @Test public void sorter_runs_2()   { runTest(1000, 50, 100) ; }
+    // Multiple merge passes.
+    @Test public void sorter_runs_3()   { runTest(1000, 10, 3) ; }
+    @Test public void sorter_runs_4()   { runTest(999, 1, 2) ; }
+
+    private void runTest(int N, int chunkSize, int width) {
+        TupleSorter.MergeWidth = width ;
+        TupleSorter sorter = sorter("OSP", chunkSize) ;
+        Random random = new Random(1234) ;
+        for ( int i = 0 ; i < N ; i++ ) {
+            // Small values so there are duplicates.
+            long[] t = { random.nextInt(10), random.nextInt(10), random.nextInt(10) } ;
+            sorter.add(t, 0) ;
+        }
+        sorter.finish() ;
+        assertEquals(N, sorter.getCount()) ;
+        List<long[]> x = results(sorter) ;
+        for ( int i = 1 ; i < x.size() ; i++ )
+            assertTrue(TupleSorter.compare(x.get(i-1), 0, x.get(i), 0, 3) < 0) ;
+        sorter.close() ;
+        assertEquals(0, tempFolder.getRoot().list().length) ;
+    }
+
+    private TupleSorter sorter(String index, int chunkSize) {
+        return new TupleSorter(index, TupleMap.create("SPO", index), tempFolder.getRoot().toPath(), chunkSize) ;
+    }
+
+    private static List<long[]> results(TupleSorter sorter) {
+        List<long[]> x = new ArrayList<>() ;
+        Iterator<Record> iter = sorter.records(recordFactory) ;
+        while(iter.hasNext()) {
+            byte[] key = iter.next().getKey() ;
+            x.add(new long[] { Bytes.getLong(key, 0), Bytes.getLong(key, 8), Bytes.getLong(key, 16) }) ;
+        }
+        return x ;
+    }
+
+    private static void check(long[] tuple, long... expected) {
+        assertEquals(expected.length, tuple.length) ;
+        for ( int i = 0 ; i < expected.length ; i++ )
+            assertEquals(expected[i], tuple[i]) ;
+    }
+}
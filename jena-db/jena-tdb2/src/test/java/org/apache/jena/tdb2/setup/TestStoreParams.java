@@ -95,6 +95,39 @@ public class TestStoreParams {
         assertArrayEquals(expected, params.getTripleIndexes()) ;
     }
 
+    @Test public void store_params_15() {
+        StoreParams params = StoreParams.builder().nodeCacheOffHeapSize(8L*1024*1024*1024).build() ;
+        StoreParams params2 = roundTrip(params) ;
+        assertEqualsStoreParams(params,params2) ;
+        assertEquals(8L*1024*1024*1024, params2.getNodeCacheOffHeapSize().longValue()) ;
+        assertTrue(params2.isSetNodeCacheOffHeapSize()) ;
+    }
+
+    @Test public void store_params_16() {
+        StoreParams params = StoreParams.builder().packedIndexLeaves(true).build() ;
+        StoreParams params2 = roundTrip(params) ;
+        assertEqualsStoreParams(params,params2) ;
+        assertTrue(params2.isPackedIndexLeaves()) ;
+        assertFalse(StoreParams.getDftStoreParams().isPackedIndexLeaves()) ;
+    }
+
+    @Test public void store_params_17() {
+        // Stored parameters from before the setting was recorded.
+        JsonObject obj = StoreParamsCodec.encodeToJson(StoreParams.getDftStoreParams()) ;
+        obj.remove("tdb.packed_index_leaves") ;
+        StoreParams params = StoreParamsCodec.decode(obj) ;
+        assertFalse(params.isPackedIndexLeaves()) ;
+    }
+
+    @Test public void store_params_18() {
+        StoreParams params = StoreParams.builder().blockCachePoolSize(256L*1024*1024).build() ;
+        StoreParams params2 = roundTrip(params) ;
+        assertEqualsStoreParams(params,params2) ;
+        assertEquals(256L*1024*1024, params2.getBlockCachePoolSize().longValue()) ;
+        assertTrue(params2.isSetBlockCachePoolSize()) ;
+        assertEquals(0, StoreParams.getDftStoreParams().getBlockCachePoolSize().longValue()) ;
+    }
+
     // Check that setting gets recorded and propagated.
 
     @Test public void store_params_20() {
@@ -131,6 +164,23 @@ public class TestStoreParams {
         
     }
 
+
+    // Dynamic
+    @Test public void store_params_24() {
+        StoreParams params1 = StoreParams.builder().build() ;
+        StoreParams params2 = StoreParams.builder().blockCachePoolSize(1024*1024).build() ;
+        StoreParams params3 = StoreParamsBuilder.modify(params1, params2) ;
+        assertTrue(params3.isSetBlockCachePoolSize()) ;
+        assertEquals(1024*1024, params3.getBlockCachePoolSize().longValue()) ;
+    }
+
+    // Layout is not modified.
+    @Test public void store_params_23() {
+        StoreParams params1 = StoreParams.builder().build() ;
+        StoreParams params2 = StoreParams.builder().packedIndexLeaves(true).build() ;
+        StoreParams params3 = StoreParamsBuilder.modify(params1, params2) ;
+        assertFalse(params3.isPackedIndexLeaves()) ;
+    }
     
     // --------
     
@@ -20,12 +20,15 @@ package org.apache.jena.tdb2.setup;
 
 import static org.junit.Assert.*;
 import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.dboe.base.block.BlockCachePool;
+import org.apache.jena.dboe.base.block.FileMode;
 import org.apache.jena.dboe.base.file.Location;
 import org.apache.jena.dboe.sys.Names;
 import org.apache.jena.tdb2.ConfigTest;
 import org.apache.jena.tdb2.setup.StoreParams;
 import org.apache.jena.tdb2.setup.StoreParamsCodec;
 import org.apache.jena.tdb2.setup.StoreParamsFactory;
+import org.apache.jena.tdb2.sys.StoreConnection;
 import org.junit.Test ;
 
 //TestParamsCreate
@@ -157,5 +160,23 @@ public class TestStoreParamsChoose {
         assertEquals(12, p.getNodeMissCacheSize().intValue()) ;  // Application
     }
 
+    @Test public void params_block_cache_pool_1() {
+        // Shared read block cache, from the location's parameters.
+        Location loc = Location.create(DIR) ;
+        FileOps.clearAll(loc.getDirectoryPath());
+        StoreParams params = StoreParams.builder()
+            .fileMode(FileMode.direct)
+            .blockCachePoolSize(1024*1024)
+            .build() ;
+        StoreParamsCodec.write(loc, params);
+        StoreConnection.connectCreate(loc) ;
+        try {
+            assertNotNull(BlockCachePool.find(loc)) ;
+        } finally {
+            StoreConnection.release(loc) ;
+        }
+        assertNull(BlockCachePool.find(loc)) ;
+    }
+
 }
 
@@ -29,15 +29,20 @@ import java.nio.file.Files ;
 import java.nio.file.Path ;
 import java.nio.file.Paths ;
 
+import org.apache.jena.atlas.iterator.Iter ;
 import org.apache.jena.atlas.json.JSON ;
 import org.apache.jena.atlas.json.JsonObject ;
 import org.apache.jena.atlas.lib.FileOps ;
 import org.apache.jena.dboe.base.file.Location;
 import org.apache.jena.dboe.sys.Names;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.system.Txn ;
 import org.apache.jena.tdb2.ConfigTest;
 import org.apache.jena.tdb2.setup.StoreParams;
 import org.apache.jena.tdb2.setup.StoreParamsCodec;
 import org.apache.jena.tdb2.sys.StoreConnection;
+import org.apache.jena.tdb2.sys.SystemTDB;
 import org.apache.jena.tdb2.sys.TDBInternal;
 import org.junit.After ;
 import org.junit.Before ;
@@ -158,6 +163,41 @@ public class TestStoreParamsCreate {
         assertEquals(pApp.getBlockSize(), pDB.getBlockSize()) ;
     }
 
+    // Packed leaves are recorded with the database, and used whatever the system setting.
+    @Test public void params_packed_01() {
+        boolean b = SystemTDB.PackedIndexLeaves ;
+        try {
+            SystemTDB.PackedIndexLeaves = true ;
+            StoreConnection.connectCreate(loc) ;
+            DatasetGraph dsg = StoreConnection.connectExisting(loc).getDatasetGraph() ;
+            Txn.executeWrite(dsg, ()->{
+                for ( int i = 0 ; i < 1000 ; i++ )
+                    dsg.add(SSE.parseQuad("(_ :s :p "+i+")")) ;
+            }) ;
+        } finally { SystemTDB.PackedIndexLeaves = b ; }
+        assertTrue("Config file not found", Files.exists(cfg)) ;
+        assertTrue(StoreParamsCodec.read(loc).isPackedIndexLeaves()) ;
+        expel();
+
+        SystemTDB.PackedIndexLeaves = false ;
+        StoreConnection.connectCreate(loc) ;
+        StoreConnection sConn = StoreConnection.connectExisting(loc) ;
+        assertTrue(sConn.getDatasetGraphTDB().getStoreParams().isPackedIndexLeaves()) ;
+        DatasetGraph dsg = sConn.getDatasetGraph() ;
+        Txn.executeRead(dsg, ()->assertEquals(1000, Iter.count(dsg.find()))) ;
+    }
+
+    // Existing databases are not changed.
+    @Test public void params_packed_02() {
+        StoreConnection.connectCreate(loc) ;
+        expel();
+        boolean b = SystemTDB.PackedIndexLeaves ;
+        try {
+            SystemTDB.PackedIndexLeaves = true ;
+            StoreConnection.connectCreate(loc) ;
+            assertFalse(StoreConnection.connectExisting(loc).getDatasetGraphTDB().getStoreParams().isPackedIndexLeaves()) ;
+        } finally { SystemTDB.PackedIndexLeaves = b ; }
+    }
     
 //    // Custom then modified.
 //    @Test public void params_reconnect_03() { 
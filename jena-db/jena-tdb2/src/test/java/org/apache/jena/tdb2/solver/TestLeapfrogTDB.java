@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.* ;
+
+import java.util.List ;
+import java.util.Random ;
+
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.Triple ;
+import org.apache.jena.query.* ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.resultset.ResultSetCompare ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.sys.SystemTDB;
+import org.junit.AfterClass ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** Leapfrog triejoin of triple patterns */
+public class TestLeapfrogTDB
+{
+    private static final String PREFIX = "PREFIX : <http://example/> " ;
+    private static Dataset dataset = null ;
+
+    @BeforeClass static public void beforeClass()
+    {
+        dataset = TL.createTestDatasetMem() ;
+        dataset.begin(ReadWrite.WRITE) ;
+        DatasetGraph dsg = dataset.asDatasetGraph() ;
+        Random random = new Random(1234) ;
+        Node g = SSE.parseNode(":g") ;
+        Node e = SSE.parseNode(":e") ;
+        Node f = SSE.parseNode(":f") ;
+        for ( int i = 0 ; i < 600 ; i++ )
+        {
+            Node s = SSE.parseNode(":n"+random.nextInt(40)) ;
+            Node o = SSE.parseNode(":n"+random.nextInt(40)) ;
+            Node p = ( i % 3 == 0 ) ? f : e ;
+            Node gn = ( i % 4 == 0 ) ? g : Quad.defaultGraphIRI ;
+            dsg.add(gn, s, p, o) ;
+        }
+        for ( int i = 0 ; i < 40 ; i++ )
+            dsg.add(Quad.defaultGraphIRI, SSE.parseNode(":n"+i), SSE.parseNode(":v"), SSE.parseNode(Integer.toString(i%5))) ;
+    }
+
+    @AfterClass static public void afterClass()
+    {
+        dataset.abort() ;
+        TL.expel(dataset) ;
+    }
+
+    @Test public void cyclic_01() { assertTrue(isCyclic("(?a :e ?b) (?b :e ?c) (?c :e ?a)")) ; }
+    @Test public void cyclic_02() { assertTrue(isCyclic("(?a :e ?b) (?a :f ?b)")) ; }
+    @Test public void cyclic_03() { assertFalse(isCyclic("(?a :e ?b) (?b :e ?c) (?c :e ?d)")) ; }
+    @Test public void cyclic_04() { assertFalse(isCyclic("(?s :e ?a) (?s :f ?b) (?s :v ?c)")) ; }
+    @Test public void cyclic_05() { assertFalse(isCyclic("(?a :e ?b) (?a :f :n1) (?c :e :n1)")) ; }
+    @Test public void cyclic_06() { assertFalse(isCyclic("(?a :e ?a)")) ; }
+
+    @Test public void leapfrog_01() { test("SELECT * { ?a :e ?b . ?b :e ?c . ?c :e ?a }") ; }
+    @Test public void leapfrog_02() { test("SELECT * { ?a :e ?b . ?b :e ?c . ?c :e ?d . ?a :e ?c . ?a :e ?d . ?b :e ?d }") ; }
+    @Test public void leapfrog_03() { test("SELECT * { :n1 :e ?b . ?b :e ?c . ?c :e :n1 }") ; }
+    @Test public void leapfrog_04() { test("SELECT * { ?a ?p ?b . ?b ?p ?c . ?c ?p ?a }") ; }
+    @Test public void leapfrog_05() { test("SELECT * { ?a :e ?b . ?a :f ?b }") ; }
+    @Test public void leapfrog_06() { test("SELECT * { ?s :e ?a . ?s :f ?b . ?s :v ?c }") ; }
+    @Test public void leapfrog_07() { test("SELECT * { ?a :e ?a . ?a :f ?b }") ; }
+    @Test public void leapfrog_08() { test("SELECT * { GRAPH :g { ?a :e ?b . ?b ?p ?c . ?c ?q ?a } }") ; }
+    @Test public void leapfrog_09() { test("SELECT * { GRAPH ?g { ?a :e ?b . ?b ?p ?c . ?c ?q ?a } }") ; }
+    @Test public void leapfrog_10() { test("SELECT * { VALUES ?a { :n1 :n2 :n3 :unknown } ?a :e ?b . ?b :e ?c . ?c :e ?a }") ; }
+    @Test public void leapfrog_11() { test("SELECT * { ?a :e ?b . ?b :e ?c . ?c :unknown ?a }") ; }
+    @Test public void leapfrog_12() { test("SELECT * { ?a :e ?b . ?b :v 3 . ?b :e ?c . ?c :v 3 . ?c :e ?a }") ; }
+    @Test public void leapfrog_13() { test("SELECT * { ?a :e ?b . ?b :e ?a . ?a :v ?x . ?b :v ?x }") ; }
+    @Test public void leapfrog_14() { test("SELECT * { ?a :e ?b . ?b :e ?c . ?c :e ?a OPTIONAL { ?a :v ?x } }") ; }
+    @Test public void leapfrog_15() { test("SELECT * { ?a :e ?b OPTIONAL { ?b :e ?c . ?c :e ?a . ?a :f ?c } }") ; }
+
+    private static boolean isCyclic(String str)
+    {
+        List<Triple> triples = SSE.parseBGP("(bgp "+str+")").getList() ;
+        return StageMatchLeapfrog.isCyclic(triples) ;
+    }
+
+    private static void test(String queryString)
+    {
+        Query query = QueryFactory.create(PREFIX+queryString) ;
+        ResultSetRewindable expected = execute(query, false) ;
+        ResultSetRewindable actual = execute(query, true) ;
+        ResultSetRewindable cyclic = execute(query, "cyclic") ;
+        assertTrue("No results: "+queryString, expected.size() > 0 || queryString.contains("unknown")) ;
+        assertTrue("Different results: "+queryString, ResultSetCompare.equalsByTerm(expected, actual)) ;
+        expected.reset() ;
+        assertTrue("Different results: "+queryString, ResultSetCompare.equalsByTerm(expected, cyclic)) ;
+    }
+
+    private static ResultSetRewindable execute(Query query, Object leapfrog)
+    {
+        try ( QueryExecution qExec = QueryExecutionFactory.create(query, dataset) ) {
+            qExec.getContext().set(SystemTDB.symLeapfrog, leapfrog) ;
+            return ResultSetFactory.copyResults(qExec.execSelect()) ;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.* ;
+
+import org.apache.jena.atlas.lib.tuple.Tuple ;
+import org.apache.jena.atlas.lib.tuple.TupleFactory ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.query.* ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.core.Var ;
+import org.apache.jena.sparql.resultset.ResultSetCompare ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.store.nodetupletable.NodeTupleTable;
+import org.apache.jena.tdb2.sys.SystemTDB;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.junit.AfterClass ;
+import org.junit.BeforeClass ;
+import org.junit.Test ;
+
+/** Merge join of triple patterns over ordered index scans */
+public class TestMergeJoinTDB
+{
+    private static final String PREFIX = "PREFIX : <http://example/> " ;
+    private static Dataset dataset = null ;
+
+    @BeforeClass static public void beforeClass()
+    {
+        dataset = TL.createTestDatasetMem() ;
+        dataset.begin(ReadWrite.WRITE) ;
+        DatasetGraph dsg = dataset.asDatasetGraph() ;
+        Node g = SSE.parseNode(":g") ;
+        Node type = SSE.parseNode(":type") ;
+        Node p = SSE.parseNode(":p") ;
+        Node q = SSE.parseNode(":q") ;
+        for ( int i = 0 ; i < 500 ; i++ )
+        {
+            Node s = SSE.parseNode(":s"+i) ;
+            Node gn = ( i % 5 == 0 ) ? g : Quad.defaultGraphIRI ;
+            if ( i % 2 == 0 )
+                dsg.add(gn, s, type, SSE.parseNode(":A")) ;
+            if ( i % 3 == 0 )
+                dsg.add(gn, s, type, SSE.parseNode(":B")) ;
+            dsg.add(gn, s, p, SSE.parseNode(":o"+(i%7))) ;
+            if ( i % 4 == 0 )
+                dsg.add(gn, s, p, SSE.parseNode(":o"+(i%11))) ;
+            dsg.add(gn, s, q, SSE.parseNode(Integer.toString(i))) ;
+        }
+    }
+
+    @AfterClass static public void afterClass()
+    {
+        dataset.abort() ;
+        TL.expel(dataset) ;
+    }
+
+    @Test public void joinVar_01()
+    {
+        NodeTupleTable ntt = tripleTable() ;
+        Var v = StageMatchMergeJoin.joinVar(ntt, triple("?s :type :A"), triple("?s :type :B")) ;
+        assertEquals(Var.alloc("s"), v) ;
+    }
+
+    @Test public void joinVar_02()
+    {
+        NodeTupleTable ntt = tripleTable() ;
+        Var v = StageMatchMergeJoin.joinVar(ntt, triple("?s1 :p ?o"), triple("?s2 :p ?o")) ;
+        assertEquals(Var.alloc("o"), v) ;
+    }
+
+    @Test public void joinVar_03()
+    {
+        // POS does not give ?s in order for (?s :p ?o).
+        NodeTupleTable ntt = tripleTable() ;
+        Var v = StageMatchMergeJoin.joinVar(ntt, triple("?s :type :A"), triple("?s :p ?o")) ;
+        assertNull(v) ;
+    }
+
+    @Test public void joinVar_04()
+    {
+        // Variable used twice in a pattern.
+        NodeTupleTable ntt = tripleTable() ;
+        Var v = StageMatchMergeJoin.joinVar(ntt, triple("?s :type ?s"), triple("?s :type :B")) ;
+        assertNull(v) ;
+    }
+
+    @Test public void merge_01() { test("SELECT * { ?s :type :A . ?s :type :B }") ; }
+    @Test public void merge_02() { test("SELECT * { ?s1 :p ?o . ?s2 :p ?o }") ; }
+    @Test public void merge_03() { test("SELECT * { ?s :type :A . ?s :p ?o . ?s :type :B }") ; }
+    @Test public void merge_04() { test("SELECT * { ?s :type :A . ?s :type :B . ?s :q ?v }") ; }
+    @Test public void merge_05() { test("SELECT * { ?s :type :A . ?s :type :Unknown }") ; }
+    @Test public void merge_06() { test("SELECT * { ?x :p ?o . ?y :p ?o FILTER(?x != ?y) }") ; }
+    @Test public void merge_07() { test("SELECT * { GRAPH :g { ?s :type :A . ?s :type :B } }") ; }
+    @Test public void merge_08() { test("SELECT * { GRAPH ?g { ?s :type :A . ?s :type :B } }") ; }
+    @Test public void merge_09() { test("SELECT * { VALUES ?s { :s0 :s6 :s7 } ?s :type :A . ?s :type :B }") ; }
+    @Test public void merge_10() { test("SELECT * { :s6 :type ?t . ?s :type ?t }") ; }
+
+    private static void test(String queryString)
+    {
+        Query query = QueryFactory.create(PREFIX+queryString) ;
+        ResultSetRewindable expected ;
+        try ( QueryExecution qExec = QueryExecutionFactory.create(query, dataset) ) {
+            expected = ResultSetFactory.copyResults(qExec.execSelect()) ;
+        }
+        ResultSetRewindable actual ;
+        try ( QueryExecution qExec = QueryExecutionFactory.create(query, dataset) ) {
+            qExec.getContext().set(SystemTDB.symMergeJoin, true) ;
+            actual = ResultSetFactory.copyResults(qExec.execSelect()) ;
+        }
+        assertTrue("No results: "+queryString, expected.size() > 0 || queryString.contains("Unknown")) ;
+        assertTrue("Different results: "+queryString, ResultSetCompare.equalsByTerm(expected, actual)) ;
+    }
+
+    private static NodeTupleTable tripleTable()
+    {
+        DatasetGraphTDB dsg = TDBInternal.getDatasetGraphTDB(dataset.asDatasetGraph()) ;
+        return dsg.getTripleTable().getNodeTupleTable() ;
+    }
+
+    private static Tuple<Node> triple(String str)
+    {
+        String[] x = str.split(" ") ;
+        return TupleFactory.tuple(SSE.parseNode(x[0]), SSE.parseNode(x[1]), SSE.parseNode(x[2])) ;
+    }
+
+}
@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.solver;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertNotNull ;
+import static org.junit.Assert.assertNull ;
+import static org.junit.Assert.assertTrue ;
+
+import java.util.Arrays ;
+
+import org.apache.jena.atlas.lib.StrUtils ;
+import org.apache.jena.dboe.base.file.Location ;
+import org.apache.jena.dboe.jenax.Txn;
+import org.apache.jena.dboe.sys.Names ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.engine.optimizer.CharacteristicSet ;
+import org.apache.jena.sparql.engine.optimizer.NumericHistogram ;
+import org.apache.jena.sparql.engine.optimizer.PredicateStats ;
+import org.apache.jena.sparql.engine.optimizer.StatsCatalog ;
+import org.apache.jena.sparql.engine.optimizer.reorder.ReorderCostBased ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.tdb2.DatabaseMgr ;
+import org.apache.jena.tdb2.junit.TL;
+import org.apache.jena.tdb2.solver.stats.StatsCollectorCatalog ;
+import org.apache.jena.tdb2.store.DatasetGraphTDB;
+import org.apache.jena.tdb2.sys.TDBInternal;
+import org.junit.Test ;
+
+public class TestStatsCatalog
+{
+    static final String data = StrUtils.strjoinNL
+        ("(dataset"
+        ,"  (graph"
+        ,"    (<s1> :name 'a') (<s1> :age 10) (<s1> rdf:type :Person)"
+        ,"    (<s2> :name 'b') (<s2> :age 20) (<s2> rdf:type :Person)"
+        ,"    (<s3> :name 'c') (<s3> :age 30) (<s3> :age 40)"
+        ,"    (<s4> :label 'd') (<s4> rdf:type :Thing))"
+        ,"  (graph <g> (<s5> :name 'e'))"
+        ,")") ;
+
+    static DatasetGraph dataset() {
+        DatasetGraph dsg = TL.createTestDatasetGraphMem() ;
+        DatasetGraph src = SSE.parseDatasetGraph(data) ;
+        Txn.executeWrite(dsg, ()->src.find().forEachRemaining(dsg::add)) ;
+        return dsg ;
+    }
+
+    static StatsCatalog gather(DatasetGraph dsg) {
+        DatasetGraphTDB dsgtdb = TDBInternal.getDatasetGraphTDB(dsg) ;
+        return Txn.calculateRead(dsg, ()->StatsCollectorCatalog.gather(dsgtdb)) ;
+    }
+
+    static Node node(String str) { return SSE.parseNode(str) ; }
+
+    @Test public void catalog_01() {
+        // Default graph only.
+        StatsCatalog catalog = gather(dataset()) ;
+        assertEquals(11, catalog.getCount()) ;
+        assertEquals(4, catalog.getSubjects()) ;
+        // 'a' 'b' 'c' 'd' 10 20 30 40 :Person :Thing
+        assertEquals(10, catalog.getObjects()) ;
+        assertEquals(4, catalog.getPredicates().size()) ;
+    }
+
+    @Test public void catalog_02() {
+        StatsCatalog catalog = gather(dataset()) ;
+        PredicateStats age = catalog.getPredicate(node(":age")) ;
+        assertNotNull(age) ;
+        assertEquals(4, age.getCount()) ;
+        assertEquals(3, age.getSubjects()) ;
+        assertEquals(4, age.getObjects()) ;
+        PredicateStats label = catalog.getPredicate(node(":label")) ;
+        assertEquals(1, label.getCount()) ;
+        assertNull(catalog.getPredicate(node(":other"))) ;
+    }
+
+    @Test public void catalog_03() {
+        StatsCatalog catalog = gather(dataset()) ;
+        assertEquals(Long.valueOf(2), catalog.getTypes().get(node(":Person"))) ;
+        assertEquals(Long.valueOf(1), catalog.getTypes().get(node(":Thing"))) ;
+    }
+
+    @Test public void catalog_04() {
+        // Characteristic sets: {name, age, type} x2, {name, age}, {label, type}
+        StatsCatalog catalog = gather(dataset()) ;
+        assertEquals(3, catalog.getCharacteristicSets().size()) ;
+        long total = 0 ;
+        for ( CharacteristicSet cs : catalog.getCharacteristicSets() )
+            total += cs.getSubjects() ;
+        assertEquals(4, total) ;
+        // Matches of { ?s :name ?n ; :age ?a } : <s3> has two ages.
+        double x = catalog.estimateStar(Arrays.asList(node(":name"), node(":age"))) ;
+        assertEquals(4, x, 0.01) ;
+    }
+
+    @Test public void catalog_05() {
+        StatsCatalog catalog = gather(dataset()) ;
+        NumericHistogram histogram = catalog.getPredicate(node(":age")).getHistogram() ;
+        assertNotNull(histogram) ;
+        assertEquals(10, histogram.getMin(), 0) ;
+        assertEquals(40, histogram.getMax(), 0) ;
+        assertTrue(histogram.contains(25)) ;
+        assertTrue(!histogram.contains(50)) ;
+        // Not numeric.
+        assertNull(catalog.getPredicate(node(":name")).getHistogram()) ;
+    }
+
+    @Test public void catalog_06() {
+        // Round trip through the file format.
+        StatsCatalog catalog = gather(dataset()) ;
+        StatsCatalog catalog2 = StatsCatalog.parse(catalog.format()) ;
+        assertEquals(catalog.toString(), catalog2.toString()) ;
+    }
+
+    @Test public void catalog_07() {
+        // On disk : the catalog is picked up when the database is next opened.
+        Location location = TL.cleanLocation() ;
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(location) ;
+        DatasetGraph src = SSE.parseDatasetGraph(data) ;
+        Txn.executeWrite(dsg, ()->src.find().forEachRemaining(dsg::add)) ;
+        DatasetGraphTDB dsgtdb = TDBInternal.getDatasetGraphTDB(dsg) ;
+        assertTrue(!( dsgtdb.getReorderTransform() instanceof ReorderCostBased )) ;
+
+        Txn.executeRead(dsg, ()->StatsCollectorCatalog.write(dsgtdb)) ;
+        Location storage = dsgtdb.getLocation() ;
+        assertTrue(storage.exists(Names.optCatalog)) ;
+        TDBInternal.expel(dsg) ;
+
+        DatasetGraph dsg2 = DatabaseMgr.connectDatasetGraph(location) ;
+        DatasetGraphTDB dsgtdb2 = TDBInternal.getDatasetGraphTDB(dsg2) ;
+        assertTrue(dsgtdb2.getReorderTransform() instanceof ReorderCostBased) ;
+        TDBInternal.expel(dsg2) ;
+    }
+}
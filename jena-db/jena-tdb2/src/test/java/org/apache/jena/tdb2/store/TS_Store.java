@@ -52,6 +52,9 @@ import org.junit.runners.Suite ;
     , TestTransactionLifecycleTDB.class
     , TestTransPromoteTDB.class
     , TestQuadFilter.class
+    , TestGroupCommit.class
+    , TestDatasetGraphDeltaLog.class
+    , TestDeltaState.class
 } )
 public class TS_Store
 { 
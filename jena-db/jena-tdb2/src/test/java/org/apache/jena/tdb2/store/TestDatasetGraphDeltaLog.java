@@ -0,0 +1,225 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertFalse ;
+import static org.junit.Assert.assertTrue ;
+
+import java.util.List ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.dboe.base.file.Location ;
+import org.apache.jena.dboe.jenax.Txn ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.query.ReadWrite ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.tdb2.ConfigTest ;
+import org.apache.jena.tdb2.DatabaseMgr ;
+import org.apache.jena.tdb2.sys.SystemTDB ;
+import org.apache.jena.tdb2.sys.TDBInternal ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+public class TestDatasetGraphDeltaLog
+{
+    private static Quad q1 = SSE.parseQuad("(_ <s> <p> 1)") ;
+    private static Quad q2 = SSE.parseQuad("(<g> <s> <p> 2)") ;
+    private static Quad q3 = SSE.parseQuad("(<g> <s> <q> 'x')") ;
+    private static Quad q4 = SSE.parseQuad("(<g2> <s> <p> 'y')") ;
+
+    private int threshold ;
+    private int interval ;
+    private Location location ;
+
+    @Before public void before() {
+        TDBInternal.reset() ;
+        threshold = SystemTDB.DeltaApplyThreshold ;
+        interval = SystemTDB.DeltaApplyInterval ;
+        // Changes are applied only when asked.
+        SystemTDB.DeltaApplyThreshold = Integer.MAX_VALUE/4 ;
+        SystemTDB.DeltaApplyInterval = -1 ;
+        String dir = ConfigTest.getCleanDir() ;
+        // Including the storage directories.
+        FileOps.clearAll(dir) ;
+        location = Location.create(dir) ;
+    }
+
+    @After public void after() {
+        SystemTDB.DeltaApplyThreshold = threshold ;
+        SystemTDB.DeltaApplyInterval = interval ;
+        TDBInternal.reset() ;
+    }
+
+    private static void assertContents(DatasetGraph dsg, Quad... quads) {
+        Txn.executeRead(dsg, ()->{
+            for ( Quad q : quads )
+                assertTrue("Missing: "+q, dsg.contains(q)) ;
+            assertEquals(quads.length, Iter.count(dsg.find())) ;
+        }) ;
+    }
+
+    @Test public void delta_01() {
+        DatasetGraphDeltaLog dsg = DatasetGraphDeltaLog.connect(location) ;
+        Txn.executeWrite(dsg, ()->{ dsg.add(q1) ; dsg.add(q2) ; }) ;
+        assertEquals(2, dsg.getDeltaSize()) ;
+        assertContents(dsg, q1, q2) ;
+        // Not in the indexes.
+        DatasetGraph base = DatabaseMgr.connectDatasetGraph(location) ;
+        Txn.executeRead(base, ()->assertTrue(base.isEmpty())) ;
+
+        dsg.applyDelta() ;
+        assertEquals(0, dsg.getDeltaSize()) ;
+        assertContents(dsg, q1, q2) ;
+        Txn.executeRead(base, ()->{
+            assertTrue(base.contains(q1)) ;
+            assertTrue(base.contains(q2)) ;
+        }) ;
+    }
+
+    @Test public void delta_02() {
+        // Deletes of applied and unapplied changes.
+        DatasetGraphDeltaLog dsg = DatasetGraphDeltaLog.connect(location) ;
+        Txn.executeWrite(dsg, ()->{ dsg.add(q1) ; dsg.add(q2) ; }) ;
+        dsg.applyDelta() ;
+        Txn.executeWrite(dsg, ()->{ dsg.add(q3) ; dsg.add(q4) ; }) ;
+        Txn.executeWrite(dsg, ()->{ dsg.delete(q2) ; dsg.delete(q4) ; }) ;
+        assertContents(dsg, q1, q3) ;
+        Txn.executeRead(dsg, ()->{
+            List<Node> graphs = Iter.toList(dsg.listGraphNodes()) ;
+            assertEquals(1, graphs.size()) ;
+            assertEquals(q3.getGraph(), graphs.get(0)) ;
+            assertEquals(1, Iter.count(dsg.find(Node.ANY, Node.ANY, Node.ANY, SSE.parseNode("'x'")))) ;
+            assertEquals(1, Iter.count(dsg.getDefaultGraph().find(Node.ANY, Node.ANY, Node.ANY))) ;
+        }) ;
+        dsg.applyDelta() ;
+        assertContents(dsg, q1, q3) ;
+    }
+
+    @Test public void delta_03() {
+        // Isolation: a reader does not see later commits, or the application of changes.
+        DatasetGraphDeltaLog dsg = DatasetGraphDeltaLog.connect(location) ;
+        Txn.executeWrite(dsg, ()->dsg.add(q1)) ;
+        dsg.begin(ReadWrite.READ) ;
+        try {
+            Txn.executeWrite(dsg, ()->{}) ;
+            Thread thread = new Thread(()->{
+                Txn.executeWrite(dsg, ()->{ dsg.delete(q1) ; dsg.add(q2) ; }) ;
+                dsg.applyDelta() ;
+            }) ;
+            thread.start() ;
+            thread.join() ;
+            assertTrue(dsg.contains(q1)) ;
+            assertFalse(dsg.contains(q2)) ;
+        } catch (InterruptedException ex) {
+            throw new RuntimeException(ex) ;
+        } finally { dsg.end() ; }
+        assertContents(dsg, q2) ;
+    }
+
+    @Test public void delta_04() {
+        // Abort and changes within the transaction.
+        DatasetGraphDeltaLog dsg = DatasetGraphDeltaLog.connect(location) ;
+        dsg.begin(ReadWrite.WRITE) ;
+        dsg.add(q1) ;
+        assertTrue(dsg.contains(q1)) ;
+        dsg.abort() ;
+        dsg.end() ;
+        assertContents(dsg) ;
+        Txn.executeWrite(dsg, ()->{
+            dsg.add(q1) ;
+            dsg.add(q2) ;
+            dsg.delete(q1) ;
+            assertEquals(1, Iter.count(dsg.find())) ;
+        }) ;
+        assertContents(dsg, q2) ;
+    }
+
+    @Test public void delta_05() {
+        // Recovery: changes only in the log.
+        DatasetGraphDeltaLog dsg = DatasetGraphDeltaLog.connect(location) ;
+        Txn.executeWrite(dsg, ()->{ dsg.add(q1) ; dsg.add(q2) ; }) ;
+        dsg.applyDelta() ;
+        Txn.executeWrite(dsg, ()->{ dsg.add(q3) ; dsg.delete(q1) ; }) ;
+        // Stop without applying the changes.
+        TDBInternal.reset() ;
+        DatasetGraphDeltaLog dsg2 = DatasetGraphDeltaLog.connect(location) ;
+        assertEquals(0, dsg2.getDeltaSize()) ;
+        assertContents(dsg2, q2, q3) ;
+    }
+
+    @Test public void delta_06() {
+        // Close applies the changes.
+        DatasetGraphDeltaLog dsg = DatasetGraphDeltaLog.connect(location) ;
+        Txn.executeWrite(dsg, ()->dsg.add(q4)) ;
+        dsg.close() ;
+        DatasetGraph base = DatabaseMgr.connectDatasetGraph(location) ;
+        Txn.executeRead(base, ()->assertTrue(base.contains(q4))) ;
+    }
+
+    @Test public void delta_07() {
+        // Changes applied in the background while writing and reading.
+        SystemTDB.DeltaApplyThreshold = 10 ;
+        SystemTDB.DeltaApplyInterval = 5 ;
+        DatasetGraphDeltaLog dsg = DatasetGraphDeltaLog.connect(location) ;
+        int N = 200 ;
+        for ( int i = 0 ; i < N ; i++ ) {
+            Quad q = SSE.parseQuad("(<g> <s> <p> "+i+")") ;
+            Txn.executeWrite(dsg, ()->dsg.add(q)) ;
+            if ( i % 2 == 1 ) {
+                Quad q0 = SSE.parseQuad("(<g> <s> <p> "+(i-1)+")") ;
+                Txn.executeWrite(dsg, ()->dsg.delete(q0)) ;
+            }
+            int expected = (i+1)/2 + (i+1)%2 ;
+            Txn.executeRead(dsg, ()->assertEquals(expected, Iter.count(dsg.find()))) ;
+        }
+        dsg.applyDelta() ;
+        DatasetGraph base = DatabaseMgr.connectDatasetGraph(location) ;
+        Txn.executeRead(base, ()->assertEquals(N/2, Iter.count(base.find()))) ;
+    }
+
+    @Test public void delta_08() {
+        // Changes are recorded blindly: adds of quads already in the indexes, deletes
+        // of quads that are not there, and finds while the transaction changes data.
+        DatasetGraphDeltaLog dsg = DatasetGraphDeltaLog.connect(location) ;
+        Txn.executeWrite(dsg, ()->{ dsg.add(q1) ; dsg.add(q2) ; }) ;
+        dsg.applyDelta() ;
+        Txn.executeWrite(dsg, ()->{
+            dsg.add(q1) ;
+            dsg.delete(q3) ;
+            dsg.add(q4) ;
+            dsg.add(q4) ;
+            assertEquals(3, Iter.count(dsg.find())) ;
+            assertEquals(1, Iter.count(dsg.find(q1.getGraph(), q1.getSubject(), q1.getPredicate(), q1.getObject()))) ;
+            dsg.deleteAny(Node.ANY, Node.ANY, Node.ANY, Node.ANY) ;
+            assertEquals(0, Iter.count(dsg.find())) ;
+            dsg.add(q2) ;
+            dsg.add(q3) ;
+        }) ;
+        assertContents(dsg, q2, q3) ;
+        dsg.applyDelta() ;
+        assertContents(dsg, q2, q3) ;
+        DatasetGraph base = DatabaseMgr.connectDatasetGraph(location) ;
+        Txn.executeRead(base, ()->assertEquals(2, Iter.count(base.find()))) ;
+    }
+}
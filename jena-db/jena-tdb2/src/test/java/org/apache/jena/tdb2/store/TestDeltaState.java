@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertFalse ;
+import static org.junit.Assert.assertNull ;
+import static org.junit.Assert.assertTrue ;
+
+import java.util.LinkedHashMap ;
+import java.util.Map ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.junit.Test ;
+
+public class TestDeltaState
+{
+    private static Quad q1 = SSE.parseQuad("(_ <s> <p> 1)") ;
+    private static Quad q2 = SSE.parseQuad("(<g> <s> <p> 2)") ;
+    private static Quad q3 = SSE.parseQuad("(<g> <s> <q> 'x')") ;
+    private static Quad q4 = SSE.parseQuad("(<g2> <s2> <p> 'y')") ;
+    private static Node ANY = Node.ANY ;
+
+    private static Map<Quad, Boolean> batch(Object... changes) {
+        Map<Quad, Boolean> x = new LinkedHashMap<>() ;
+        for ( int i = 0 ; i < changes.length ; i += 2 )
+            x.put((Quad)changes[i], (Boolean)changes[i+1]) ;
+        return x ;
+    }
+
+    private static long count(DeltaState state, Node g, Node s, Node p, Node o) {
+        return Iter.count(state.findAdded(g, s, p, o)) ;
+    }
+
+    @Test public void deltaState_01() {
+        DeltaState state = DeltaState.EMPTY.append(batch(q1, true, q2, true)).append(batch(q1, false, q3, true)) ;
+        assertEquals(2, state.batchCount()) ;
+        assertEquals(4, state.size()) ;
+        assertEquals(Boolean.FALSE, state.get(q1)) ;
+        assertEquals(Boolean.TRUE, state.get(q3)) ;
+        assertNull(state.get(q4)) ;
+        assertEquals(3, state.changes().size()) ;
+    }
+
+    @Test public void deltaState_02() {
+        DeltaState state = DeltaState.EMPTY.append(batch(q1, true, q2, true, q3, true, q4, true)).append(batch(q2, false)) ;
+        assertEquals(1, count(state, Quad.defaultGraphIRI, ANY, ANY, ANY)) ;
+        assertEquals(2, count(state, ANY, ANY, ANY, ANY)) ;
+        assertEquals(1, count(state, ANY, ANY, SSE.parseNode("<p>"), ANY)) ;
+        assertEquals(1, count(state, ANY, SSE.parseNode("<s>"), ANY, ANY)) ;
+        assertEquals(1, count(state, SSE.parseNode("<g>"), ANY, ANY, SSE.parseNode("'x'"))) ;
+        assertEquals(1, count(state, Quad.defaultGraphIRI, SSE.parseNode("<s>"), SSE.parseNode("<p>"), SSE.parseNode("1"))) ;
+        assertEquals(0, count(state, ANY, SSE.parseNode("<s3>"), ANY, ANY)) ;
+        assertEquals(0, count(state, SSE.parseNode("<g>"), ANY, SSE.parseNode("<p>"), ANY)) ;
+    }
+
+    @Test public void deltaState_03() {
+        // Drop applied batches : later changes are kept.
+        DeltaState state1 = DeltaState.EMPTY.append(batch(q1, true, q2, true)) ;
+        DeltaState state2 = state1.append(batch(q1, false, q3, true)) ;
+        DeltaState state3 = state2.dropApplied(state1) ;
+        assertEquals(1, state3.batchCount()) ;
+        assertEquals(2, state3.size()) ;
+        assertEquals(Boolean.FALSE, state3.get(q1)) ;
+        assertFalse(state3.isChanged(q2)) ;
+        assertEquals(1, count(state3, ANY, SSE.parseNode("<s>"), ANY, ANY)) ;
+        // Earlier states are unchanged.
+        assertEquals(Boolean.TRUE, state1.get(q1)) ;
+        assertEquals(1, count(state1, Quad.defaultGraphIRI, ANY, ANY, ANY)) ;
+        DeltaState state4 = state3.dropApplied(state3) ;
+        assertTrue(state4.isEmpty()) ;
+        assertEquals(0, state4.size()) ;
+        assertFalse(state4.changedQuads().hasNext()) ;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store;
+
+import static org.junit.Assert.assertEquals ;
+import static org.junit.Assert.assertFalse ;
+import static org.junit.Assert.assertTrue ;
+
+import java.util.ArrayList ;
+import java.util.List ;
+import java.util.concurrent.ExecutorService ;
+import java.util.concurrent.Executors ;
+import java.util.concurrent.Future ;
+import java.util.concurrent.TimeUnit ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.dboe.base.file.Location ;
+import org.apache.jena.dboe.jenax.Txn ;
+import org.apache.jena.query.ReadWrite ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.tdb2.ConfigTest ;
+import org.apache.jena.tdb2.sys.StoreConnection ;
+import org.apache.jena.tdb2.sys.SystemTDB ;
+import org.apache.jena.tdb2.sys.TDBInternal ;
+import org.junit.After ;
+import org.junit.Before ;
+import org.junit.Test ;
+
+/** Write transactions with group commit, on disk. */
+public class TestGroupCommit
+{
+    private int window ;
+    private Location location ;
+
+    @Before public void before() {
+        TDBInternal.reset() ;
+        window = SystemTDB.GroupCommitWindow ;
+        SystemTDB.GroupCommitWindow = 2 ;
+        location = Location.create(ConfigTest.getCleanDir()) ;
+    }
+
+    @After public void after() {
+        SystemTDB.GroupCommitWindow = window ;
+        TDBInternal.reset() ;
+    }
+
+    private static Quad quad(int i, int j) {
+        return SSE.parseQuad("(<g> <s"+i+"> <p> "+j+")") ;
+    }
+
+    private DatasetGraphTDB connect() {
+        return StoreConnection.connectCreate(location).getDatasetGraphTDB() ;
+    }
+
+    /** Release the database and open it again, from the disk. */
+    private DatasetGraphTDB reopen() {
+        StoreConnection.release(location) ;
+        return connect() ;
+    }
+
+    @Test public void group_commit_01() {
+        DatasetGraphTDB dsg = connect() ;
+        assertTrue(dsg.getTxnSystem().getTxnMgr().isGroupCommit()) ;
+        for ( int j = 0 ; j < 10 ; j++ ) {
+            Quad q = quad(0, j) ;
+            Txn.executeWrite(dsg, ()->dsg.add(q)) ;
+        }
+        DatasetGraphTDB dsg2 = reopen() ;
+        Txn.executeRead(dsg2, ()->{
+            for ( int j = 0 ; j < 10 ; j++ )
+                assertTrue(dsg2.contains(quad(0, j))) ;
+        }) ;
+    }
+
+    @Test public void group_commit_02() {
+        DatasetGraphTDB dsg = connect() ;
+        Txn.executeWrite(dsg, ()->dsg.add(quad(0, 0))) ;
+        dsg.begin(ReadWrite.WRITE) ;
+        dsg.add(quad(0, 1)) ;
+        dsg.abort() ;
+        dsg.end() ;
+        Txn.executeWrite(dsg, ()->dsg.add(quad(0, 2))) ;
+        DatasetGraphTDB dsg2 = reopen() ;
+        Txn.executeRead(dsg2, ()->{
+            assertTrue(dsg2.contains(quad(0, 0))) ;
+            assertFalse(dsg2.contains(quad(0, 1))) ;
+            assertTrue(dsg2.contains(quad(0, 2))) ;
+        }) ;
+    }
+
+    @Test public void group_commit_03() throws Exception {
+        // Concurrent writers: each commit returns when it is durable.
+        int threads = 4 ;
+        int commits = 25 ;
+        DatasetGraphTDB dsg = connect() ;
+        ExecutorService executor = Executors.newFixedThreadPool(threads) ;
+        try {
+            List<Future<?>> futures = new ArrayList<>() ;
+            for ( int i = 0 ; i < threads ; i++ ) {
+                int t = i ;
+                futures.add(executor.submit(()->{
+                    for ( int j = 0 ; j < commits ; j++ ) {
+                        Quad q = quad(t, j) ;
+                        Txn.executeWrite(dsg, ()->dsg.add(q)) ;
+                    }
+                })) ;
+            }
+            for ( Future<?> f : futures )
+                f.get(60, TimeUnit.SECONDS) ;
+        } finally {
+            executor.shutdownNow() ;
+        }
+        DatasetGraphTDB dsg2 = reopen() ;
+        Txn.executeRead(dsg2, ()->{
+            assertEquals(threads*commits, Iter.count(dsg2.find())) ;
+            for ( int i = 0 ; i < threads ; i++ )
+                for ( int j = 0 ; j < commits ; j++ )
+                    assertTrue(dsg2.contains(quad(i, j))) ;
+        }) ;
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.store.nodetable;
+
+import static org.junit.Assert.* ;
+
+import java.util.HashMap ;
+import java.util.HashSet ;
+import java.util.Map ;
+import java.util.Set ;
+
+import org.apache.jena.atlas.iterator.Iter ;
+import org.apache.jena.graph.Node ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.sparql.util.NodeFactoryExtra ;
+import org.apache.jena.tdb2.store.NodeId ;
+import org.apache.jena.tdb2.store.NodeIdFactory ;
+import org.junit.Test ;
+
+public class TestNodeCacheOffHeap
+{
+    private static Node node(int i) { return NodeFactory.createURI("http://example/node/"+i) ; }
+    private static NodeId nodeId(int i) { return NodeIdFactory.createPtr(8L*i) ; }
+
+    private static void codec(String str) {
+        Node n = NodeFactoryExtra.parseNode(str) ;
+        byte[] b = NodeId2NodeCacheOffHeap.encode(n) ;
+        assertNotNull(b) ;
+        assertEquals(n, NodeId2NodeCacheOffHeap.decode(b)) ;
+    }
+
+    @Test public void offheap_codec_01()    { codec("<http://example/x>") ; }
+    @Test public void offheap_codec_02()    { codec("_:b0") ; }
+    @Test public void offheap_codec_03()    { codec("'abc'") ; }
+    @Test public void offheap_codec_04()    { codec("'abc'@en-gb") ; }
+    @Test public void offheap_codec_05()    { codec("'123'^^<http://www.w3.org/2001/XMLSchema#integer>") ; }
+    @Test public void offheap_codec_06()    { codec("'x'^^<http://example/dt>") ; }
+    @Test public void offheap_codec_07()    { codec("''") ; }
+    @Test public void offheap_codec_08()    { codec("'نواف'") ; }
+
+    @Test public void offheap_codec_09() {
+        assertNull(NodeId2NodeCacheOffHeap.encode(NodeFactory.createVariable("x"))) ;
+    }
+
+    @Test public void offheap_bytes_01() {
+        OffHeapBytes bytes = new OffHeapBytes(1000, 256) ;
+        assertEquals(1024, bytes.capacity()) ;
+        assertEquals(256, bytes.segmentSize()) ;
+        bytes.putLong(256+8, 99L) ;
+        bytes.putInt(1020, 7) ;
+        assertEquals(99L, bytes.getLong(264)) ;
+        assertEquals(7, bytes.getInt(1020)) ;
+        assertEquals(4, bytes.segmentRemaining(1020)) ;
+        byte[] b = { 1, 2, 3 } ;
+        bytes.put(510, b, 0, 2) ;
+        byte[] b2 = new byte[2] ;
+        bytes.get(510, b2, 0, 2) ;
+        assertArrayEquals(new byte[] {1, 2}, b2) ;
+        bytes.clear() ;
+        assertEquals(0L, bytes.getLong(264)) ;
+    }
+
+    @Test public void offheap_bytes_02() {
+        OffHeapBytes bytes = new OffHeapBytes(100) ;
+        assertEquals(128, bytes.capacity()) ;
+    }
+
+    @Test public void offheap_node2id_01() {
+        Node2NodeIdCacheOffHeap cache = new Node2NodeIdCacheOffHeap(4096) ;
+        assertTrue(cache.isEmpty()) ;
+        assertNull(cache.getIfPresent(node(1))) ;
+        cache.put(node(1), nodeId(1)) ;
+        cache.put(node(2), nodeId(2)) ;
+        assertEquals(nodeId(1), cache.getIfPresent(node(1))) ;
+        assertEquals(nodeId(2), cache.getIfPresent(node(2))) ;
+        assertEquals(2, cache.size()) ;
+        cache.put(node(1), nodeId(3)) ;
+        assertEquals(nodeId(3), cache.getIfPresent(node(1))) ;
+        assertEquals(2, cache.size()) ;
+        cache.remove(node(1)) ;
+        assertNull(cache.getIfPresent(node(1))) ;
+        assertEquals(1, cache.size()) ;
+        cache.clear() ;
+        assertTrue(cache.isEmpty()) ;
+        assertFalse(cache.containsKey(node(2))) ;
+    }
+
+    @Test public void offheap_node2id_02() {
+        // Small cache - more nodes than slots.
+        Node2NodeIdCacheOffHeap cache = new Node2NodeIdCacheOffHeap(1024) ;
+        int N = 1000 ;
+        for ( int i = 0 ; i < N ; i++ )
+            cache.put(node(i), nodeId(i)) ;
+        assertTrue(cache.size() <= 1024/32) ;
+        int hits = 0 ;
+        for ( int i = 0 ; i < N ; i++ ) {
+            NodeId x = cache.getIfPresent(node(i)) ;
+            if ( x != null ) {
+                assertEquals(nodeId(i), x) ;
+                hits++ ;
+            }
+        }
+        assertEquals(cache.size(), hits) ;
+        // The most recent entry is always present.
+        assertEquals(nodeId(N-1), cache.getIfPresent(node(N-1))) ;
+    }
+
+    @Test public void offheap_node2id_03() {
+        Node2NodeIdCacheOffHeap cache = new Node2NodeIdCacheOffHeap(4096) ;
+        Node lit = NodeFactoryExtra.parseNode("'abc'@en") ;
+        cache.put(node(1), nodeId(1)) ;
+        cache.put(lit, nodeId(2)) ;
+        Set<Node> keys = new HashSet<>(Iter.toList(cache.keys())) ;
+        assertEquals(2, keys.size()) ;
+        assertTrue(keys.contains(node(1))) ;
+        assertTrue(keys.contains(lit)) ;
+        cache.clear() ;
+        assertFalse(cache.keys().hasNext()) ;
+    }
+
+    @Test public void offheap_node2id_04() {
+        // Every entry is either still in the cache or has been passed to the drop handler.
+        Node2NodeIdCacheOffHeap cache = new Node2NodeIdCacheOffHeap(2048) ;
+        Map<Node, NodeId> dropped = new HashMap<>() ;
+        cache.setDropHandler((n, id) -> assertNull(dropped.put(n, id))) ;
+        int N = 1000 ;
+        for ( int i = 0 ; i < N ; i++ )
+            cache.put(node(i), nodeId(i)) ;
+        for ( int i = 0 ; i < N ; i++ ) {
+            NodeId x = cache.getIfPresent(node(i)) ;
+            if ( x == null )
+                assertEquals(nodeId(i), dropped.get(node(i))) ;
+            else
+                assertFalse(dropped.containsKey(node(i))) ;
+        }
+        assertEquals(N, cache.size()+dropped.size()) ;
+        assertEquals(cache.size(), Iter.count(cache.keys())) ;
+        cache.remove(node(N-1)) ;
+        assertEquals(nodeId(N-1), dropped.get(node(N-1))) ;
+    }
+
+    @Test public void offheap_id2node_01() {
+        NodeId2NodeCacheOffHeap cache = new NodeId2NodeCacheOffHeap(8192) ;
+        assertTrue(cache.isEmpty()) ;
+        assertNull(cache.getIfPresent(nodeId(1))) ;
+        Node lit = NodeFactoryExtra.parseNode("'abc'@en") ;
+        cache.put(nodeId(1), node(1)) ;
+        cache.put(nodeId(2), lit) ;
+        assertEquals(node(1), cache.getIfPresent(nodeId(1))) ;
+        assertEquals(lit, cache.getIfPresent(nodeId(2))) ;
+        assertEquals(2, cache.size()) ;
+        Set<NodeId> keys = new HashSet<>(Iter.toList(cache.keys())) ;
+        assertEquals(2, keys.size()) ;
+        assertTrue(keys.contains(nodeId(1))) ;
+        cache.remove(nodeId(1)) ;
+        assertNull(cache.getIfPresent(nodeId(1))) ;
+        cache.clear() ;
+        assertTrue(cache.isEmpty()) ;
+        assertNull(cache.getIfPresent(nodeId(2))) ;
+    }
+
+    @Test public void offheap_id2node_02() {
+        // Ring wraps round many times.
+        NodeId2NodeCacheOffHeap cache = new NodeId2NodeCacheOffHeap(4096) ;
+        int N = 5000 ;
+        for ( int i = 0 ; i < N ; i++ )
+            cache.put(nodeId(i), node(i)) ;
+        int hits = 0 ;
+        for ( int i = 0 ; i < N ; i++ ) {
+            Node n = cache.getIfPresent(nodeId(i)) ;
+            if ( n != null ) {
+                assertEquals(node(i), n) ;
+                hits++ ;
+            }
+        }
+        assertTrue(hits > 0) ;
+        assertTrue(hits < N) ;
+        assertEquals(node(N-1), cache.getIfPresent(nodeId(N-1))) ;
+        // Early entries have been overwritten.
+        assertNull(cache.getIfPresent(nodeId(0))) ;
+    }
+
+    @Test public void offheap_id2node_03() {
+        // Too large to cache.
+        NodeId2NodeCacheOffHeap cache = new NodeId2NodeCacheOffHeap(4096) ;
+        StringBuilder sb = new StringBuilder() ;
+        for ( int i = 0 ; i < 2000 ; i++ )
+            sb.append('x') ;
+        Node n = NodeFactory.createLiteral(sb.toString()) ;
+        cache.put(nodeId(1), n) ;
+        assertNull(cache.getIfPresent(nodeId(1))) ;
+    }
+
+    @Test public void offheap_id2node_04() {
+        // Every entry is either still in the cache or has been passed to the drop handler.
+        NodeId2NodeCacheOffHeap cache = new NodeId2NodeCacheOffHeap(4096) ;
+        Map<NodeId, Node> dropped = new HashMap<>() ;
+        cache.setDropHandler((id, n) -> assertNull(dropped.put(id, n))) ;
+        int N = 5000 ;
+        for ( int i = 0 ; i < N ; i++ )
+            cache.put(nodeId(i), node(i)) ;
+        for ( int i = 0 ; i < N ; i++ ) {
+            Node n = cache.getIfPresent(nodeId(i)) ;
+            if ( n == null )
+                assertEquals(node(i), dropped.get(nodeId(i))) ;
+            else
+                assertFalse(dropped.containsKey(nodeId(i))) ;
+        }
+        assertEquals(N, cache.size()+dropped.size()) ;
+        assertEquals(cache.size(), Iter.count(cache.keys())) ;
+    }
+}
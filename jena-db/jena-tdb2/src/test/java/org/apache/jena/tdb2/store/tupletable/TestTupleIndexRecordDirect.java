@@ -35,6 +35,7 @@ import org.apache.jena.dboe.index.RangeIndex;
 import org.apache.jena.tdb2.junit.BuildTestLib;
 import org.apache.jena.tdb2.setup.StoreParams;
 import org.apache.jena.tdb2.store.NodeId;
+import org.apache.jena.tdb2.store.NodeIdFactory;
 import org.apache.jena.tdb2.store.tupletable.TupleIndexRecord;
 import org.apache.jena.tdb2.sys.SystemTDB;
 import org.junit.Test ;
@@ -313,4 +314,22 @@ public class TestTupleIndexRecordDirect
    }
 
     
+
+    @Test public void TupleIndexRecordSeeker_1()
+    {
+        TupleIndexRecord index = create("SPO") ;
+        for ( int i = 0 ; i < 1000 ; i++ )
+            add(index, NodeIdFactory.createPtr(i/10), NodeIdFactory.createPtr(i%10), NodeIdFactory.createPtr(2*i)) ;
+        TupleIndexRecord.Seeker seeker = index.seeker() ;
+        // Forward, near and far, then back.
+        long[][] starts = { {0}, {0,3}, {0,3}, {1}, {1,9,100}, {2}, {50}, {50,5}, {3,1}, {99,9,1999}, {99,9,2000}, {100}, {5} } ;
+        for ( long[] start : starts )
+        {
+            long[] x1 = index.ceiling(start) ;
+            long[] x2 = seeker.ceiling(start) ;
+            assertArrayEquals(x1, x2) ;
+        }
+        assertNull(seeker.ceiling(new long[]{100})) ;
+        assertNotNull(seeker.ceiling(new long[]{0})) ;
+    }
 }
@@ -23,12 +23,19 @@ import static org.junit.Assert.assertFalse ;
 import static org.junit.Assert.assertNotEquals ;
 import static org.junit.Assert.assertTrue ;
 
+import java.util.concurrent.ExecutorService ;
+import java.util.concurrent.Executors ;
+import java.util.concurrent.Future ;
+import java.util.concurrent.atomic.AtomicBoolean ;
+import java.util.concurrent.atomic.AtomicInteger ;
+
 import org.apache.commons.io.FileUtils ;
 import org.apache.jena.atlas.lib.FileOps ;
 import org.apache.jena.dboe.base.file.Location;
 import org.apache.jena.dboe.jenax.Txn;
 import org.apache.jena.graph.Graph ;
 import org.apache.jena.graph.Triple ;
+import org.apache.jena.query.ReadWrite ;
 import org.apache.jena.riot.RDFDataMgr ;
 import org.apache.jena.sparql.core.DatasetGraph ;
 import org.apache.jena.sparql.core.Quad ;
@@ -160,6 +167,78 @@ public class TestDatabaseOps
         Txn.executeRead(dsgOld,  ()->assertNull(dsgOld.getDefaultGraph().getPrefixMapping().getNsPrefixURI("ex")));
     }
 
+    @Test public void compact_during_update_4() throws Exception {
+        // Compact while another thread updates: every committed change is in the compacted database.
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dir);
+        Txn.executeWrite(dsg, ()-> {
+            for ( int i = 0 ; i < 1000 ; i++ )
+                dsg.add(SSE.parseQuad("(<g> <s> <p> "+i+")")) ;
+            dsg.add(quad1) ;
+            dsg.getDefaultGraph().getPrefixMapping().setNsPrefix("ex", "http://example/") ;
+        }) ;
+        DatasetGraphSwitchable dsgs = (DatasetGraphSwitchable)dsg;
+        DatasetGraph dsg1 = dsgs.get();
+
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger counter = new AtomicInteger(0);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> writer = executor.submit(()->{
+            while ( running.get() ) {
+                int i = counter.get();
+                Txn.executeWrite(dsg, ()-> {
+                    dsg.add(SSE.parseQuad("(_ <s> <q> "+i+")")) ;
+                    dsg.delete(SSE.parseQuad("(<g> <s> <p> "+i+")")) ;
+                }) ;
+                counter.incrementAndGet();
+            }
+        });
+        try {
+            // Let the writer get going.
+            while ( counter.get() < 10 )
+                Thread.sleep(1);
+            DatabaseMgr.compact(dsg);
+            int atCompact = counter.get();
+            // And carry on after the switch-over.
+            while ( counter.get() < atCompact+10 )
+                Thread.sleep(1);
+        } finally {
+            running.set(false);
+            writer.get();
+            executor.shutdown();
+        }
+
+        assertNotEquals(dsg1, dsgs.get());
+        int n = counter.get();
+        Txn.executeRead(dsg, ()-> {
+            assertTrue(dsg.contains(quad1)) ;
+            for ( int i = 0 ; i < n ; i++ ) {
+                assertTrue(dsg.contains(SSE.parseQuad("(_ <s> <q> "+i+")"))) ;
+                assertFalse(dsg.contains(SSE.parseQuad("(<g> <s> <p> "+i+")"))) ;
+            }
+            assertEquals(n+1, dsg.getDefaultGraph().size());
+            assertEquals(Math.max(0, 1000-n), dsg.getGraph(SSE.parseNode("<g>")).size());
+            assertEquals("http://example/", dsg.getDefaultGraph().getPrefixMapping().getNsPrefixURI("ex"));
+        }) ;
+    }
+
+    @Test public void compact_after_commit_5() {
+        // commit() without end() must not leave the thread on the old database.
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dir);
+        DatasetGraphSwitchable dsgs = (DatasetGraphSwitchable)dsg;
+        DatasetGraph dsg1 = dsgs.get();
+        dsg.begin(ReadWrite.WRITE);
+        dsg.add(quad1) ;
+        dsg.commit();
+        DatabaseMgr.compact(dsg);
+        assertNotEquals(dsg1, dsgs.get());
+        Txn.executeWrite(dsg, ()->dsg.add(quad2)) ;
+        Txn.executeRead(dsg, ()-> {
+            assertTrue(dsg.contains(quad1)) ;
+            assertTrue(dsg.contains(quad2)) ;
+        }) ;
+        dsg.end();
+    }
+
     @Test public void backup_1() {
         DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dir);
         Txn.executeWrite(dsg, ()-> {
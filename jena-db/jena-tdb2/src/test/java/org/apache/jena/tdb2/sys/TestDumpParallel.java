@@ -0,0 +1,227 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.jena.tdb2.sys;
+
+import static org.junit.Assert.* ;
+
+import java.io.ByteArrayInputStream ;
+import java.io.ByteArrayOutputStream ;
+import java.io.IOException ;
+import java.io.InputStream ;
+import java.nio.file.Files ;
+import java.nio.file.Path ;
+import java.nio.file.Paths ;
+import java.util.List ;
+import java.util.stream.Collectors ;
+import java.util.stream.Stream ;
+import java.util.zip.GZIPInputStream ;
+
+import org.apache.commons.io.FileUtils ;
+import org.apache.jena.atlas.lib.FileOps ;
+import org.apache.jena.dboe.base.file.Location ;
+import org.apache.jena.dboe.jenax.Txn ;
+import org.apache.jena.graph.Graph ;
+import org.apache.jena.graph.NodeFactory ;
+import org.apache.jena.riot.Lang ;
+import org.apache.jena.riot.RDFDataMgr ;
+import org.apache.jena.riot.RDFFormat ;
+import org.apache.jena.sparql.core.DatasetGraph ;
+import org.apache.jena.sparql.core.DatasetGraphFactory ;
+import org.apache.jena.sparql.core.Quad ;
+import org.apache.jena.sparql.graph.GraphFactory ;
+import org.apache.jena.sparql.sse.SSE ;
+import org.apache.jena.sparql.util.IsoMatcher ;
+import org.apache.jena.tdb2.DatabaseMgr ;
+import org.apache.jena.tdb2.store.DatasetGraphSwitchable ;
+import org.junit.After ;
+import org.junit.AfterClass ;
+import org.junit.Before ;
+import org.junit.BeforeClass ;
+import org.junit.Rule ;
+import org.junit.Test ;
+import org.junit.rules.TemporaryFolder ;
+
+public class TestDumpParallel
+{
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private Location dir = null;
+    private static int threads ;
+    private static int rangesPerThread ;
+
+    @BeforeClass public static void beforeClass() {
+        threads = DumpParallel.Threads ;
+        rangesPerThread = DumpParallel.RangesPerThread ;
+        DumpParallel.Threads = 3 ;
+        DumpParallel.RangesPerThread = 4 ;
+    }
+
+    @AfterClass public static void afterClass() {
+        DumpParallel.Threads = threads ;
+        DumpParallel.RangesPerThread = rangesPerThread ;
+    }
+
+    @Before
+    public void before() {
+        dir = Location.create(tempFolder.getRoot().getAbsolutePath());
+        FileUtils.deleteQuietly(IOX.asFile(dir));
+        FileOps.ensureDir(dir.getDirectoryPath());
+    }
+
+    @After
+    public void after() {
+        TDBInternal.reset();
+        FileUtils.deleteQuietly(IOX.asFile(dir));
+    }
+
+    private DatasetGraph database(int numTriples, int numQuads) {
+        DatasetGraph dsg = DatabaseMgr.connectDatasetGraph(dir.getSubLocation("DB"));
+        Txn.executeWrite(dsg, ()->{
+            dsg.getDefaultGraph().getPrefixMapping().setNsPrefix("ex", "http://example/");
+            for ( int i = 0 ; i < numTriples ; i++ ) {
+                dsg.add(Quad.defaultGraphIRI, NodeFactory.createURI("http://example/s"+(i%97)),
+                        NodeFactory.createURI("http://example/p"+(i%5)), SSE.parseNode("'"+i+"'")) ;
+                if ( i % 10 == 0 )
+                    dsg.add(SSE.parseQuad("(_ _:b"+i+" <http://example/p> "+i+")")) ;
+            }
+            for ( int i = 0 ; i < numQuads ; i++ )
+                dsg.add(NodeFactory.createURI("http://example/g"+(i%3)), NodeFactory.createURI("http://example/s"+i),
+                        NodeFactory.createURI("http://example/q"), SSE.parseNode(""+i)) ;
+        }) ;
+        return dsg;
+    }
+
+    private static DatasetGraph read(byte[] bytes, Lang lang, boolean compressed) throws IOException {
+        InputStream in = new ByteArrayInputStream(bytes) ;
+        if ( compressed )
+            in = new GZIPInputStream(in) ;
+        DatasetGraph dsg = DatasetGraphFactory.create() ;
+        RDFDataMgr.read(dsg, in, lang) ;
+        return dsg ;
+    }
+
+    private static DatasetGraph copy(DatasetGraph dsg) {
+        DatasetGraph copy = DatasetGraphFactory.create() ;
+        Txn.executeRead(dsg, ()->dsg.find().forEachRemaining(copy::add)) ;
+        return copy ;
+    }
+
+    private static byte[] dump(DatasetGraph dsg, RDFFormat format, boolean compress) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        DumpParallel.dump(dsg, out, format, compress) ;
+        return out.toByteArray() ;
+    }
+
+    @Test public void dump_01() throws IOException {
+        DatasetGraph dsg = database(2000, 500) ;
+        byte[] b = dump(dsg, RDFFormat.NQUADS, false) ;
+        assertTrue(IsoMatcher.isomorphic(copy(dsg), read(b, Lang.NQUADS, false))) ;
+    }
+
+    @Test public void dump_02() throws IOException {
+        DatasetGraph dsg = database(2000, 500) ;
+        byte[] b = dump(dsg, RDFFormat.NQUADS, true) ;
+        assertTrue(IsoMatcher.isomorphic(copy(dsg), read(b, Lang.NQUADS, true))) ;
+    }
+
+    @Test public void dump_03() throws IOException {
+        // Blocks, with prefixes.
+        DatasetGraph dsg = database(500, 100) ;
+        byte[] b = dump(dsg, RDFFormat.TRIG_BLOCKS, false) ;
+        assertTrue(IsoMatcher.isomorphic(copy(dsg), read(b, Lang.TRIG, false))) ;
+    }
+
+    @Test public void dump_04() throws IOException {
+        // Triples format : default graph only.
+        DatasetGraph dsg = database(500, 100) ;
+        byte[] b = dump(dsg, RDFFormat.TURTLE_BLOCKS, true) ;
+        Graph g = GraphFactory.createDefaultGraph() ;
+        RDFDataMgr.read(g, new GZIPInputStream(new ByteArrayInputStream(b)), Lang.TURTLE) ;
+        assertTrue(copy(dsg).getDefaultGraph().isIsomorphicWith(g)) ;
+    }
+
+    @Test public void dump_05() throws IOException {
+        // Empty.
+        DatasetGraph dsg = database(0, 0) ;
+        byte[] b = dump(dsg, RDFFormat.NQUADS, true) ;
+        assertTrue(read(b, Lang.NQUADS, true).isEmpty()) ;
+    }
+
+    @Test public void dump_06() {
+        // Index order : the same each time, and different thread counts give the same output.
+        DatasetGraph dsg = database(1000, 200) ;
+        byte[] b1 = dump(dsg, RDFFormat.NQUADS, false) ;
+        int x = DumpParallel.Threads ;
+        try {
+            DumpParallel.Threads = 1 ;
+            byte[] b2 = dump(dsg, RDFFormat.NQUADS, false) ;
+            assertArrayEquals(b1, b2) ;
+        } finally { DumpParallel.Threads = x ; }
+    }
+
+    @Test public void dump_07() throws IOException {
+        // Inside a read transaction.
+        DatasetGraph dsg = database(100, 10) ;
+        byte[] b = Txn.calculateRead(dsg, ()->dump(dsg, RDFFormat.NQUADS, false)) ;
+        assertTrue(IsoMatcher.isomorphic(copy(dsg), read(b, Lang.NQUADS, false))) ;
+    }
+
+    @Test public void dump_08() throws IOException {
+        // Temporary shards go in the work directory, not the database, and are removed.
+        DatasetGraph dsg = database(500, 100) ;
+        Path workDir = IOX.asPath(dir).resolve("work") ;
+        Files.createDirectory(workDir) ;
+        List<Path> dbFiles = list(IOX.asPath(dir.getSubLocation("DB"))) ;
+        ByteArrayOutputStream out = new ByteArrayOutputStream() ;
+        DumpParallel.dump(dsg, out, RDFFormat.NQUADS, true, workDir) ;
+        assertTrue(IsoMatcher.isomorphic(copy(dsg), read(out.toByteArray(), Lang.NQUADS, true))) ;
+        assertTrue(list(workDir).isEmpty()) ;
+        assertEquals(dbFiles, list(IOX.asPath(dir.getSubLocation("DB")))) ;
+    }
+
+    /** The files under a directory. */
+    private static List<Path> list(Path directory) throws IOException {
+        try ( Stream<Path> s = Files.walk(directory) ) {
+            return s.filter(Files::isRegularFile).sorted().collect(Collectors.toList()) ;
+        }
+    }
+
+    @Test public void shards_01() throws IOException {
+        DatasetGraph dsg = database(2000, 500) ;
+        Path shardDir = IOX.asPath(dir).resolve("shards") ;
+        List<Path> shards = DumpParallel.dumpShards(dsg, shardDir, "dump", RDFFormat.NQUADS, true) ;
+        assertTrue(shards.size() > 1) ;
+        DatasetGraph dsg2 = DatasetGraphFactory.create() ;
+        for ( Path p : shards ) {
+            assertTrue(p.getFileName().toString().endsWith(".nq.gz")) ;
+            try ( InputStream in = new GZIPInputStream(Files.newInputStream(p)) ) {
+                RDFDataMgr.read(dsg2, in, Lang.NQUADS) ;
+            }
+        }
+        assertTrue(IsoMatcher.isomorphic(copy(dsg), dsg2)) ;
+    }
+
+    @Test public void backup_01() throws IOException {
+        DatasetGraph dsg = database(500, 100) ;
+        String fn = DatabaseOps.backup((DatasetGraphSwitchable)dsg) ;
+        byte[] b = Files.readAllBytes(Paths.get(fn)) ;
+        assertTrue(IsoMatcher.isomorphic(copy(dsg), read(b, Lang.NQUADS, true))) ;
+    }
+}
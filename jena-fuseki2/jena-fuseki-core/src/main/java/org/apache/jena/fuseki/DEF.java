@@ -43,6 +43,7 @@ public class DEF
                                                                           contentTypeJSONLD,
                                                                           contentTypeRDFJSON,
                                                                           contentTypeRDFThrift,
+                                                                          contentTypeRDFThriftDict,
                                                                           
                                                                           contentTypeTriG,
                                                                           contentTypeTriGAlt1,
@@ -62,7 +63,8 @@ public class DEF
                                                                           contentTypeTriXxml,
                                                                           contentTypeJSONLD,
                                                                           contentTypeRDFJSON,
-                                                                          contentTypeRDFThrift
+                                                                          contentTypeRDFThrift,
+                                                                          contentTypeRDFThriftDict
                                                                           ) ;
     
     public static final AcceptList quadsOffer         = AcceptList.create(contentTypeTriG,
@@ -90,6 +92,7 @@ public class DEF
                                                                            contentTypeTextCSV,
                                                                            contentTypeTextTSV,
                                                                            contentTypeResultsXML,
+                                                                           contentTypeResultsThrift,
                                                                            contentTypeTextPlain
                                                                            ) ;
 
@@ -34,6 +34,9 @@ import org.apache.jena.atlas.json.JsonObject ;
 import org.apache.jena.atlas.json.JsonValue ;
 import org.apache.jena.fuseki.server.* ;
 import org.apache.jena.fuseki.servlets.HttpAction ;
+import org.apache.jena.sparql.engine.PlanCache ;
+import org.apache.jena.sparql.engine.QueryEngineFactory ;
+import org.apache.jena.sparql.engine.QueryEngineRegistry ;
 
 public class ActionStats extends ActionContainerItem
 {
@@ -55,6 +58,7 @@ public class ActionStats extends ActionContainerItem
         builder.startObject("datasets") ;
         registry.forEach((name, access)->statsDataset(builder, access));
         builder.finishObject("datasets") ;
+        statsPlanCaches(builder) ;
         builder.finishObject("top") ;
         return builder.build().getAsObject() ;
     }
@@ -118,6 +122,25 @@ public class ActionStats extends ActionContainerItem
         builder.finishObject("counters") ;
     }
 
+    /** Query plan caches of the registered query engine factories. */
+    private static void statsPlanCaches(JsonBuilder builder) {
+        builder.key(JsonConst.planCaches) ;
+        builder.startObject("planCaches") ;
+        for ( QueryEngineFactory factory : QueryEngineRegistry.get().factories() ) {
+            PlanCache planCache = factory.getPlanCache() ;
+            if ( planCache == null )
+                continue ;
+            builder.key(factory.getClass().getName()) ;
+            builder.startObject() ;
+            builder.key(JsonConst.cacheSize).value(planCache.size()) ;
+            builder.key(JsonConst.cacheMaxSize).value(planCache.getMaxSize()) ;
+            builder.key(JsonConst.cacheHits).value(planCache.getHits()) ;
+            builder.key(JsonConst.cacheMisses).value(planCache.getMisses()) ;
+            builder.finishObject() ;
+        }
+        builder.finishObject("planCaches") ;
+    }
+
     private static void operationCounters(JsonBuilder builder, Endpoint operation) {
         for (CounterName cn : operation.getCounters().counters()) {
             Counter c = operation.getCounters().get(cn) ;
@@ -33,9 +33,12 @@ import org.apache.jena.fuseki.server.FusekiSystem ;
 import org.apache.jena.query.ReadWrite ;
 import org.apache.jena.riot.Lang ;
 import org.apache.jena.riot.RDFDataMgr ;
+import org.apache.jena.riot.RDFFormat ;
 import org.apache.jena.sparql.core.DatasetGraph ;
 import org.apache.jena.sparql.core.Transactional ;
 import org.apache.jena.sparql.core.TransactionalNull ;
+import org.apache.jena.tdb2.sys.DumpParallel ;
+import org.apache.jena.tdb2.sys.TDBInternal ;
 
 /** Perform a backup */ 
 public class Backup
@@ -101,18 +104,28 @@ public class Backup
         OutputStream out = null ;
         try {
             
-            if ( true ) {
-                // This seems to achive about the same as "gzip -6"
-                // It's not too expensive in elapsed time but it's not
-                // zero cost. GZip, large buffer.
-                out = new FileOutputStream(backupfile + ".gz") ;
-                out = new GZIPOutputStream(out, 8 * 1024) ;
+            if ( TDBInternal.isBackedByTDB(dsg) ) {
+                // TDB2 : scan the indexes in parallel, writing gzip compressed
+                // parts which, one after another, are a single gzip file.
+                File file = new File(backupfile + ".gz").getAbsoluteFile() ;
+                out = new FileOutputStream(file) ;
                 out = new BufferedOutputStream(out) ;
+                // Shards are written next to the backup file.
+                DumpParallel.dump(dsg, out, RDFFormat.NQUADS, true, file.getParentFile().toPath()) ;
             } else {
-                out = new FileOutputStream(backupfile) ;
-                out = new BufferedOutputStream(out) ;
+                if ( true ) {
+                    // This seems to achive about the same as "gzip -6"
+                    // It's not too expensive in elapsed time but it's not
+                    // zero cost. GZip, large buffer.
+                    out = new FileOutputStream(backupfile + ".gz") ;
+                    out = new GZIPOutputStream(out, 8 * 1024) ;
+                    out = new BufferedOutputStream(out) ;
+                } else {
+                    out = new FileOutputStream(backupfile) ;
+                    out = new BufferedOutputStream(out) ;
+                }
+                RDFDataMgr.write(out, dsg, Lang.NQUADS) ;
             }
-            RDFDataMgr.write(out, dsg, Lang.NQUADS) ;
             out.close() ;
             out = null ;
         } catch (FileNotFoundException e) {
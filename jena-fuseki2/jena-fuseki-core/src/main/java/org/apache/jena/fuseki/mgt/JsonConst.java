@@ -50,4 +50,10 @@ public class JsonConst
     public static final String srvDescription   = "srv.description" ;
     public static final String srvEndpoints     = "srv.endpoints" ;
 
+    public static final String planCaches       = "planCaches" ;
+    public static final String cacheSize        = "size" ;
+    public static final String cacheMaxSize     = "maxSize" ;
+    public static final String cacheHits        = "hits" ;
+    public static final String cacheMisses      = "misses" ;
+
 }
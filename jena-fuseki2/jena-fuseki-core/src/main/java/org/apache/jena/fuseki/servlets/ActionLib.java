@@ -21,11 +21,16 @@ package org.apache.jena.fuseki.servlets;
 import javax.servlet.http.HttpServletRequest ;
 
 import org.apache.jena.atlas.web.AcceptList ;
+import org.apache.jena.atlas.web.MediaRange ;
 import org.apache.jena.atlas.web.MediaType ;
 import org.apache.jena.fuseki.DEF ;
 import org.apache.jena.fuseki.conneg.ConNeg ;
 import org.apache.jena.fuseki.server.DataAccessPoint ;
 import org.apache.jena.fuseki.server.DataAccessPointRegistry ;
+import org.apache.jena.riot.Lang ;
+import org.apache.jena.riot.RDFFormat ;
+import org.apache.jena.riot.RDFWriterRegistry ;
+import org.apache.jena.riot.web.HttpNames ;
 
 /** Operations related to servlets */
 
@@ -176,5 +181,32 @@ public class ActionLib {
     public static MediaType contentNegotationQuads(HttpAction action) {
         return contentNegotation(action, DEF.quadsOffer, DEF.acceptNQuads) ;
     }
+
+    private static final String jsonldProfileExpanded = "http://www.w3.org/ns/json-ld#expanded" ;
+
+    /**
+     * Choose the output format for a negotiated language, preferring formats
+     * that write as the data is read. RDF/XML is the plain form; JSON-LD is
+     * streamed when the request asks for the expanded profile.
+     */
+    public static RDFFormat outputFormat(HttpAction action, Lang lang) {
+        if ( lang == Lang.RDFXML )
+            return RDFFormat.RDFXML_PLAIN ;
+        if ( lang == Lang.JSONLD && acceptsProfile(action, jsonldProfileExpanded) )
+            return RDFFormat.JSONLD_EXPAND_STREAM ;
+        return RDFWriterRegistry.defaultSerialization(lang) ;
+    }
+
+    private static boolean acceptsProfile(HttpAction action, String profile) {
+        String accept = action.request.getHeader(HttpNames.hAccept) ;
+        if ( accept == null )
+            return false ;
+        for ( MediaRange mr : new AcceptList(accept).entries() ) {
+            String x = mr.getParameter("profile") ;
+            if ( x != null && x.contains(profile) )
+                return true ;
+        }
+        return false ;
+    }
 }
 
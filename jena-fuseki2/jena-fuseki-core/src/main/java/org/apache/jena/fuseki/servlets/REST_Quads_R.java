@@ -86,9 +86,8 @@ public class REST_Quads_R extends REST_Quads {
             action.response.setHeader("Content-type", lang.getContentType().toHeaderString());
             // ActionLib.contentNegotationQuads above
             // RDF/XML is not a choice but this code is general.
-            RDFFormat fmt =
-                // Choose streaming.
-                ( lang == Lang.RDFXML ) ? RDFFormat.RDFXML_PLAIN : RDFWriterRegistry.defaultSerialization(lang) ;
+            // Choose streaming.
+            RDFFormat fmt = ActionLib.outputFormat(action, lang) ;
             try {
                 RDFDataMgr.write(out, dsg, fmt) ;
             } catch (JenaException ex) {
@@ -247,9 +247,10 @@ public class ResponseResultSet
             if ( resultSet != null )
                 ResultSetMgr.write(out, resultSet, ResultSetLang.SPARQLResultSetThrift) ;
             if ( booleanResult != null )
-                xlog.error("Can't write boolen result in thrift") ;
+                ResultSetMgr.write(out, booleanResult.booleanValue(), ResultSetLang.SPARQLResultSetThrift) ;
         } ;
-        output(action, contentType, WebContent.charsetUTF8, proc) ;
+        // Binary : no charset.
+        output(action, contentType, null, proc) ;
     }
 
     private static void output(HttpAction action, String contentType, String charset, OutputContent proc) {
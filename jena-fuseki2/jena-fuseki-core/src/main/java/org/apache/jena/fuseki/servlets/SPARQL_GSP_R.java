@@ -76,8 +76,7 @@ public class SPARQL_GSP_R extends SPARQL_GSP
             action.response.setContentType(ct) ;
             Graph g = target.graph() ;
             //Special case RDF/XML to be the plain (faster, less readable) form
-            RDFFormat fmt = 
-                ( lang == Lang.RDFXML ) ? RDFFormat.RDFXML_PLAIN : RDFWriterRegistry.defaultSerialization(lang) ;
+            RDFFormat fmt = ActionLib.outputFormat(action, lang) ;
             try { 
                 RDFDataMgr.write(out, g, fmt) ;
             } catch (JenaException ex) { 
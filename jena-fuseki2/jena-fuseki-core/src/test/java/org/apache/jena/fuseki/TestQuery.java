@@ -36,6 +36,7 @@ import org.apache.jena.graph.Node ;
 import org.apache.jena.graph.Triple ;
 import org.apache.jena.query.* ;
 import org.apache.jena.rdf.model.Model ;
+import org.apache.jena.riot.WebContent ;
 import org.apache.jena.riot.web.HttpOp;
 import org.apache.jena.sparql.core.Quad ;
 import org.apache.jena.sparql.core.Var ;
@@ -264,6 +265,29 @@ public class TestQuery extends AbstractFusekiTest {
         }
     }
 
+    @Test
+    public void query_select_conneg_default() {
+        // Jena to Jena : binary results by default.
+        try (QueryEngineHTTP qExec = (QueryEngineHTTP) QueryExecutionFactory.sparqlService(serviceQuery(),
+                "SELECT * {?s ?p ?o}")) {
+            assertEquals(1, ResultSetFormatter.consume(qExec.execSelect()));
+            assertEquals(WebContent.contentTypeResultsThrift, qExec.getHttpResponseContentType());
+        }
+    }
+
+    @Test
+    public void query_ask_conneg_default() {
+        try (QueryEngineHTTP qExec = (QueryEngineHTTP) QueryExecutionFactory.sparqlService(serviceQuery(),
+                "ASK {?s ?p ?o}")) {
+            assertTrue(qExec.execAsk());
+            assertEquals(WebContent.contentTypeResultsThrift, qExec.getHttpResponseContentType());
+        }
+        try (QueryEngineHTTP qExec = (QueryEngineHTTP) QueryExecutionFactory.sparqlService(serviceQuery(),
+                "ASK { <http://example/none> ?p ?o }")) {
+            assertFalse(qExec.execAsk());
+        }
+    }
+
     private static void execQuery(String queryString, int exceptedRowCount) {
         try ( QueryExecution qExec = QueryExecutionFactory.sparqlService(serviceQuery(), queryString) ) {
             ResultSet rs = qExec.execSelect() ;